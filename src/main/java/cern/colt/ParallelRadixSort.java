@@ -0,0 +1,594 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt;
+
+import java.util.concurrent.Future;
+
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Multithreaded implementation of least significant digit radix sort for
+ * primitive arrays, and of the corresponding stable argsort.
+ * <p>
+ * Keys are mapped to unsigned integers of the same width that compare in the
+ * same order as the original values, and are then sorted one byte at a time;
+ * passes over bytes that are equal for all keys are skipped. Each pass is
+ * parallelized by splitting the keys into contiguous chunks: every thread
+ * counts the digits of its chunk, the counts are combined into per-thread
+ * output offsets, and every thread then scatters its chunk. Since the offsets
+ * of a chunk come after those of all previous chunks, every pass, and
+ * therefore the whole sort, is stable.
+ * <p>
+ * Floating point values are ordered as by <tt>java.util.Arrays.sort</tt>:
+ * <tt>-0.0</tt> comes before <tt>0.0</tt> and all <tt>NaN</tt>s are moved to
+ * the end. The argsorts ({@link #sortIndex(double[], int, int, int)}) treat
+ * <tt>-0.0</tt> and <tt>0.0</tt> as equal and all <tt>NaN</tt>s as equal to
+ * each other and greater than any other value. This is the natural ordering
+ * used by {@link cern.colt.matrix.tdouble.algo.DoubleSorting}, so the result
+ * is identical to that of a stable comparison sort of the indexes.
+ * <p>
+ * The sorts need an additional amount of memory that is about twice the size
+ * of the keys (plus twice the size of the index for the argsorts).
+ * 
+ * @see ParallelQuickSort
+ * @see Sorting#radixSort(double[], int, int)
+ */
+public class ParallelRadixSort {
+    private static final int BITS = 8;
+
+    private static final int RADIX = 1 << BITS;
+
+    private static final int MASK = RADIX - 1;
+
+    /**
+     * Below this number of elements, value sorts fall back to
+     * <tt>java.util.Arrays.sort</tt>.
+     */
+    private static final int SMALL = 512;
+
+    /**
+     * Makes this class non instantiable, but still let's others inherit from
+     * it.
+     */
+    protected ParallelRadixSort() {
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * 
+     * @param a
+     *            the array to be sorted.
+     * @param fromIndex
+     *            the index of the first element (inclusive) to be sorted.
+     * @param toIndex
+     *            the index of the last element (exclusive) to be sorted.
+     */
+    public static void sort(final double[] a, final int fromIndex, int toIndex) {
+        // move the NaNs to the end, their payload is irrelevant to the order
+        for (int i = toIndex; i-- > fromIndex;) {
+            if (a[i] != a[i]) {
+                double tmp = a[--toIndex];
+                a[toIndex] = a[i];
+                a[i] = tmp;
+            }
+        }
+        final int n = toIndex - fromIndex;
+        if (n < SMALL) {
+            java.util.Arrays.sort(a, fromIndex, toIndex);
+            return;
+        }
+        final long[] keys = new long[n];
+        forEachChunk(n, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++) {
+                    long bits = Double.doubleToRawLongBits(a[fromIndex + i]);
+                    keys[i] = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+                }
+            }
+        });
+        sort(keys, null, n);
+        forEachChunk(n, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++) {
+                    long key = keys[i];
+                    a[fromIndex + i] = Double.longBitsToDouble(key ^ ((~key >> 63) | Long.MIN_VALUE));
+                }
+            }
+        });
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * 
+     * @param a
+     *            the array to be sorted.
+     * @param fromIndex
+     *            the index of the first element (inclusive) to be sorted.
+     * @param toIndex
+     *            the index of the last element (exclusive) to be sorted.
+     */
+    public static void sort(final float[] a, final int fromIndex, int toIndex) {
+        // move the NaNs to the end, their payload is irrelevant to the order
+        for (int i = toIndex; i-- > fromIndex;) {
+            if (a[i] != a[i]) {
+                float tmp = a[--toIndex];
+                a[toIndex] = a[i];
+                a[i] = tmp;
+            }
+        }
+        final int n = toIndex - fromIndex;
+        if (n < SMALL) {
+            java.util.Arrays.sort(a, fromIndex, toIndex);
+            return;
+        }
+        final int[] keys = new int[n];
+        forEachChunk(n, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++) {
+                    int bits = Float.floatToRawIntBits(a[fromIndex + i]);
+                    keys[i] = bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+                }
+            }
+        });
+        sort(keys, null, n);
+        forEachChunk(n, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++) {
+                    int key = keys[i];
+                    a[fromIndex + i] = Float.intBitsToFloat(key ^ ((~key >> 31) | Integer.MIN_VALUE));
+                }
+            }
+        });
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * 
+     * @param a
+     *            the array to be sorted.
+     * @param fromIndex
+     *            the index of the first element (inclusive) to be sorted.
+     * @param toIndex
+     *            the index of the last element (exclusive) to be sorted.
+     */
+    public static void sort(final int[] a, final int fromIndex, int toIndex) {
+        final int n = toIndex - fromIndex;
+        if (n < SMALL) {
+            java.util.Arrays.sort(a, fromIndex, toIndex);
+            return;
+        }
+        final int[] keys = new int[n];
+        forEachChunk(n, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++)
+                    keys[i] = a[fromIndex + i] ^ Integer.MIN_VALUE;
+            }
+        });
+        sort(keys, null, n);
+        forEachChunk(n, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++)
+                    a[fromIndex + i] = keys[i] ^ Integer.MIN_VALUE;
+            }
+        });
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * 
+     * @param a
+     *            the array to be sorted.
+     * @param fromIndex
+     *            the index of the first element (inclusive) to be sorted.
+     * @param toIndex
+     *            the index of the last element (exclusive) to be sorted.
+     */
+    public static void sort(final long[] a, final int fromIndex, int toIndex) {
+        final int n = toIndex - fromIndex;
+        if (n < SMALL) {
+            java.util.Arrays.sort(a, fromIndex, toIndex);
+            return;
+        }
+        final long[] keys = new long[n];
+        forEachChunk(n, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++)
+                    keys[i] = a[fromIndex + i] ^ Long.MIN_VALUE;
+            }
+        });
+        sort(keys, null, n);
+        forEachChunk(n, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++)
+                    a[fromIndex + i] = keys[i] ^ Long.MIN_VALUE;
+            }
+        });
+    }
+
+    /**
+     * Returns the indexes <tt>0..size-1</tt> of the elements
+     * <tt>a[offset + i*stride]</tt>, stably sorted into ascending order of the
+     * elements. <tt>-0.0</tt> equals <tt>0.0</tt> and <tt>NaN</tt>s come last.
+     * 
+     * @param a
+     *            the elements.
+     * @param offset
+     *            the index of the first element.
+     * @param stride
+     *            the distance between two elements.
+     * @param size
+     *            the number of elements.
+     * @return the sorted indexes.
+     */
+    public static int[] sortIndex(final double[] a, final int offset, final int stride, int size) {
+        final long[] keys = new long[size];
+        final int[] indexes = new int[size];
+        forEachChunk(size, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++) {
+                    double value = a[offset + i * stride];
+                    // doubleToLongBits collapses all NaNs into one
+                    long bits = value == 0 ? 0 : Double.doubleToLongBits(value);
+                    keys[i] = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+                    indexes[i] = i;
+                }
+            }
+        });
+        sort(keys, indexes, size);
+        return indexes;
+    }
+
+    /**
+     * Returns the indexes <tt>0..size-1</tt> of the elements
+     * <tt>a[offset + i*stride]</tt>, stably sorted into ascending order of the
+     * elements. <tt>-0.0f</tt> equals <tt>0.0f</tt> and <tt>NaN</tt>s come last.
+     * 
+     * @param a
+     *            the elements.
+     * @param offset
+     *            the index of the first element.
+     * @param stride
+     *            the distance between two elements.
+     * @param size
+     *            the number of elements.
+     * @return the sorted indexes.
+     */
+    public static int[] sortIndex(final float[] a, final int offset, final int stride, int size) {
+        final int[] keys = new int[size];
+        final int[] indexes = new int[size];
+        forEachChunk(size, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++) {
+                    float value = a[offset + i * stride];
+                    // floatToIntBits collapses all NaNs into one
+                    int bits = value == 0 ? 0 : Float.floatToIntBits(value);
+                    keys[i] = bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+                    indexes[i] = i;
+                }
+            }
+        });
+        sort(keys, indexes, size);
+        return indexes;
+    }
+
+    /**
+     * Returns the indexes <tt>0..size-1</tt> of the elements
+     * <tt>a[offset + i*stride]</tt>, stably sorted into ascending order of the
+     * elements.
+     * 
+     * @param a
+     *            the elements.
+     * @param offset
+     *            the index of the first element.
+     * @param stride
+     *            the distance between two elements.
+     * @param size
+     *            the number of elements.
+     * @return the sorted indexes.
+     */
+    public static int[] sortIndex(final int[] a, final int offset, final int stride, int size) {
+        final int[] keys = new int[size];
+        final int[] indexes = new int[size];
+        forEachChunk(size, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++) {
+                    keys[i] = a[offset + i * stride] ^ Integer.MIN_VALUE;
+                    indexes[i] = i;
+                }
+            }
+        });
+        sort(keys, indexes, size);
+        return indexes;
+    }
+
+    /**
+     * Returns the indexes <tt>0..size-1</tt> of the elements
+     * <tt>a[offset + i*stride]</tt>, stably sorted into ascending order of the
+     * elements.
+     * 
+     * @param a
+     *            the elements.
+     * @param offset
+     *            the index of the first element.
+     * @param stride
+     *            the distance between two elements.
+     * @param size
+     *            the number of elements.
+     * @return the sorted indexes.
+     */
+    public static int[] sortIndex(final long[] a, final int offset, final int stride, int size) {
+        final long[] keys = new long[size];
+        final int[] indexes = new int[size];
+        forEachChunk(size, new Chunk() {
+            void apply(int first, int last) {
+                for (int i = first; i < last; i++) {
+                    keys[i] = a[offset + i * stride] ^ Long.MIN_VALUE;
+                    indexes[i] = i;
+                }
+            }
+        });
+        sort(keys, indexes, size);
+        return indexes;
+    }
+
+    /**
+     * Sorts the first <tt>n</tt> unsigned keys, permuting <tt>indexes</tt>
+     * along with them unless it is <tt>null</tt>.
+     */
+    private static void sort(long[] keys, int[] indexes, final int n) {
+        final int nthreads = numberOfThreads(n);
+        final int digits = 8;
+
+        // count all digits of each chunk in a single sweep
+        final int[][] counts = new int[nthreads][];
+        final long[] src0 = keys;
+        forEachThread(n, nthreads, new Chunk() {
+            void apply(int first, int last, int j) {
+                int[] count = new int[digits * RADIX];
+                for (int i = first; i < last; i++) {
+                    long key = src0[i];
+                    for (int d = 0; d < digits; d++)
+                        count[(d << BITS) + ((int) (key >>> (d * BITS)) & MASK)]++;
+                }
+                counts[j] = count;
+            }
+        });
+
+        long[] src = keys;
+        long[] dst = new long[n];
+        int[] isrc = indexes;
+        int[] idst = indexes == null ? null : new int[n];
+        boolean recount = false;
+        for (int d = 0; d < digits; d++) {
+            if (isTrivial(counts, d, n))
+                continue;
+            final int shift = d * BITS;
+            if (recount)
+                count(src, n, nthreads, shift, counts, d);
+            final int[][] offsets = offsets(counts, d);
+            final long[] s = src, t = dst;
+            final int[] is = isrc, it = idst;
+            forEachThread(n, nthreads, new Chunk() {
+                void apply(int first, int last, int j) {
+                    int[] offset = offsets[j];
+                    if (is == null) {
+                        for (int i = first; i < last; i++) {
+                            long key = s[i];
+                            t[offset[(int) (key >>> shift) & MASK]++] = key;
+                        }
+                    } else {
+                        for (int i = first; i < last; i++) {
+                            long key = s[i];
+                            int p = offset[(int) (key >>> shift) & MASK]++;
+                            t[p] = key;
+                            it[p] = is[i];
+                        }
+                    }
+                }
+            });
+            src = t;
+            dst = s;
+            isrc = it;
+            idst = is;
+            recount = true;
+        }
+        if (src != keys) {
+            System.arraycopy(src, 0, keys, 0, n);
+            if (indexes != null)
+                System.arraycopy(isrc, 0, indexes, 0, n);
+        }
+    }
+
+    /**
+     * Sorts the first <tt>n</tt> unsigned keys, permuting <tt>indexes</tt>
+     * along with them unless it is <tt>null</tt>.
+     */
+    private static void sort(int[] keys, int[] indexes, final int n) {
+        final int nthreads = numberOfThreads(n);
+        final int digits = 4;
+
+        // count all digits of each chunk in a single sweep
+        final int[][] counts = new int[nthreads][];
+        final int[] src0 = keys;
+        forEachThread(n, nthreads, new Chunk() {
+            void apply(int first, int last, int j) {
+                int[] count = new int[digits * RADIX];
+                for (int i = first; i < last; i++) {
+                    int key = src0[i];
+                    for (int d = 0; d < digits; d++)
+                        count[(d << BITS) + ((key >>> (d * BITS)) & MASK)]++;
+                }
+                counts[j] = count;
+            }
+        });
+
+        int[] src = keys;
+        int[] dst = new int[n];
+        int[] isrc = indexes;
+        int[] idst = indexes == null ? null : new int[n];
+        boolean recount = false;
+        for (int d = 0; d < digits; d++) {
+            if (isTrivial(counts, d, n))
+                continue;
+            final int shift = d * BITS;
+            if (recount)
+                count(src, n, nthreads, shift, counts, d);
+            final int[][] offsets = offsets(counts, d);
+            final int[] s = src, t = dst;
+            final int[] is = isrc, it = idst;
+            forEachThread(n, nthreads, new Chunk() {
+                void apply(int first, int last, int j) {
+                    int[] offset = offsets[j];
+                    if (is == null) {
+                        for (int i = first; i < last; i++) {
+                            int key = s[i];
+                            t[offset[(key >>> shift) & MASK]++] = key;
+                        }
+                    } else {
+                        for (int i = first; i < last; i++) {
+                            int key = s[i];
+                            int p = offset[(key >>> shift) & MASK]++;
+                            t[p] = key;
+                            it[p] = is[i];
+                        }
+                    }
+                }
+            });
+            src = t;
+            dst = s;
+            isrc = it;
+            idst = is;
+            recount = true;
+        }
+        if (src != keys) {
+            System.arraycopy(src, 0, keys, 0, n);
+            if (indexes != null)
+                System.arraycopy(isrc, 0, indexes, 0, n);
+        }
+    }
+
+    /**
+     * Recounts digit <tt>d</tt> of each chunk after the keys have been moved by
+     * an earlier pass.
+     */
+    private static void count(final long[] keys, int n, int nthreads, final int shift, final int[][] counts,
+            final int d) {
+        forEachThread(n, nthreads, new Chunk() {
+            void apply(int first, int last, int j) {
+                int[] count = counts[j];
+                int base = d << BITS;
+                for (int r = 0; r < RADIX; r++)
+                    count[base + r] = 0;
+                for (int i = first; i < last; i++)
+                    count[base + ((int) (keys[i] >>> shift) & MASK)]++;
+            }
+        });
+    }
+
+    /**
+     * Recounts digit <tt>d</tt> of each chunk after the keys have been moved by
+     * an earlier pass.
+     */
+    private static void count(final int[] keys, int n, int nthreads, final int shift, final int[][] counts,
+            final int d) {
+        forEachThread(n, nthreads, new Chunk() {
+            void apply(int first, int last, int j) {
+                int[] count = counts[j];
+                int base = d << BITS;
+                for (int r = 0; r < RADIX; r++)
+                    count[base + r] = 0;
+                for (int i = first; i < last; i++)
+                    count[base + ((keys[i] >>> shift) & MASK)]++;
+            }
+        });
+    }
+
+    /**
+     * Returns <tt>true</tt> if all keys have the same digit <tt>d</tt>, so that
+     * the pass over it would not move anything.
+     */
+    private static boolean isTrivial(int[][] counts, int d, int n) {
+        int base = d << BITS;
+        for (int r = 0; r < RADIX; r++) {
+            int total = 0;
+            for (int j = 0; j < counts.length; j++)
+                total += counts[j][base + r];
+            if (total == n)
+                return true;
+            if (total != 0)
+                return false;
+        }
+        return false;
+    }
+
+    /**
+     * Returns, for each chunk and value of digit <tt>d</tt>, the position of
+     * the first key of the chunk with that digit in the output of the pass.
+     */
+    private static int[][] offsets(int[][] counts, int d) {
+        int nthreads = counts.length;
+        int base = d << BITS;
+        int[][] offsets = new int[nthreads][RADIX];
+        int sum = 0;
+        for (int r = 0; r < RADIX; r++) {
+            for (int j = 0; j < nthreads; j++) {
+                offsets[j][r] = sum;
+                sum += counts[j][base + r];
+            }
+        }
+        return offsets;
+    }
+
+    private static int numberOfThreads(int n) {
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (nthreads > 1 && n >= ConcurrencyUtils.getThreadsBeginN_1D())
+            return Math.min(nthreads, n);
+        return 1;
+    }
+
+    private static void forEachChunk(int n, Chunk chunk) {
+        forEachThread(n, numberOfThreads(n), chunk);
+    }
+
+    /**
+     * Applies the chunk procedure to <tt>nthreads</tt> contiguous ranges of
+     * <tt>0..n-1</tt>, concurrently if <tt>nthreads &gt; 1</tt>.
+     */
+    private static void forEachThread(int n, int nthreads, final Chunk chunk) {
+        if (nthreads == 1) {
+            chunk.apply(0, n, 0);
+            return;
+        }
+        Future<?>[] futures = new Future[nthreads];
+        int k = n / nthreads;
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = j * k;
+            final int lastIdx = (j == nthreads - 1) ? n : firstIdx + k;
+            final int thread = j;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    chunk.apply(firstIdx, lastIdx, thread);
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+    }
+
+    /**
+     * A procedure applied to a contiguous range of keys.
+     */
+    private static abstract class Chunk {
+        void apply(int first, int last) {
+        }
+
+        void apply(int first, int last, int thread) {
+            apply(first, last);
+        }
+    }
+}
@@ -20,7 +20,7 @@ import cern.colt.function.tshort.ShortComparator;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
- * Quicksorts, mergesorts and binary searches; complements
+ * Quicksorts, mergesorts, radix sorts and binary searches; complements
  * <tt>java.util.Arrays</tt>. Contains, for example, the quicksort on
  * Comparators and Comparables, which are still missing in
  * <tt>java.util.Arrays</tt> of JDK 1.2. Also provides mergesorts for types not
@@ -2410,6 +2410,98 @@ public class Sorting extends Object {
         quickSort1(a, fromIndex, toIndex - fromIndex, c);
     }
 
+    /**
+     * Sorts the specified range of the specified array of doubles into ascending
+     * numerical order, using a multithreaded radix sort. <tt>-0.0</tt> is
+     * sorted before <tt>0.0</tt> and all <tt>NaN</tt>s are moved to the end, as
+     * by <tt>java.util.Arrays.sort</tt>.
+     * 
+     * @param a
+     *            the array to be sorted.
+     * @param fromIndex
+     *            the index of the first element (inclusive) to be sorted.
+     * @param toIndex
+     *            the index of the last element (exclusive) to be sorted.
+     * @throws IllegalArgumentException
+     *             if <tt>fromIndex &gt; toIndex</tt>
+     * @throws ArrayIndexOutOfBoundsException
+     *             if <tt>fromIndex &lt; 0</tt> or
+     *             <tt>toIndex &gt; a.length</tt>
+     * @see ParallelRadixSort
+     */
+    public static void radixSort(double[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        ParallelRadixSort.sort(a, fromIndex, toIndex);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of floats into ascending
+     * numerical order, using a multithreaded radix sort. <tt>-0.0f</tt> is
+     * sorted before <tt>0.0f</tt> and all <tt>NaN</tt>s are moved to the end, as
+     * by <tt>java.util.Arrays.sort</tt>.
+     * 
+     * @param a
+     *            the array to be sorted.
+     * @param fromIndex
+     *            the index of the first element (inclusive) to be sorted.
+     * @param toIndex
+     *            the index of the last element (exclusive) to be sorted.
+     * @throws IllegalArgumentException
+     *             if <tt>fromIndex &gt; toIndex</tt>
+     * @throws ArrayIndexOutOfBoundsException
+     *             if <tt>fromIndex &lt; 0</tt> or
+     *             <tt>toIndex &gt; a.length</tt>
+     * @see ParallelRadixSort
+     */
+    public static void radixSort(float[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        ParallelRadixSort.sort(a, fromIndex, toIndex);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of ints into ascending
+     * numerical order, using a multithreaded radix sort.
+     * 
+     * @param a
+     *            the array to be sorted.
+     * @param fromIndex
+     *            the index of the first element (inclusive) to be sorted.
+     * @param toIndex
+     *            the index of the last element (exclusive) to be sorted.
+     * @throws IllegalArgumentException
+     *             if <tt>fromIndex &gt; toIndex</tt>
+     * @throws ArrayIndexOutOfBoundsException
+     *             if <tt>fromIndex &lt; 0</tt> or
+     *             <tt>toIndex &gt; a.length</tt>
+     * @see ParallelRadixSort
+     */
+    public static void radixSort(int[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        ParallelRadixSort.sort(a, fromIndex, toIndex);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of longs into ascending
+     * numerical order, using a multithreaded radix sort.
+     * 
+     * @param a
+     *            the array to be sorted.
+     * @param fromIndex
+     *            the index of the first element (inclusive) to be sorted.
+     * @param toIndex
+     *            the index of the last element (exclusive) to be sorted.
+     * @throws IllegalArgumentException
+     *             if <tt>fromIndex &gt; toIndex</tt>
+     * @throws ArrayIndexOutOfBoundsException
+     *             if <tt>fromIndex &lt; 0</tt> or
+     *             <tt>toIndex &gt; a.length</tt>
+     * @see ParallelRadixSort
+     */
+    public static void radixSort(long[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        ParallelRadixSort.sort(a, fromIndex, toIndex);
+    }
+
     /**
      * Sorts the specified sub-array of chars into ascending order.
      */
@@ -632,6 +632,30 @@ public class FloatArrayList extends AbstractFloatList {
         }
     }
 
+    /**
+     * Sorts the specified range of the receiver into ascending order.
+     * 
+     * The sorting algorithm is dynamically chosen according to the size of the
+     * range: large ranges are sorted with a multithreaded radix sort, small
+     * ones with the quicksort of <tt>java.util.Arrays</tt>. <tt>NaN</tt>s are
+     * sorted to the end.
+     * 
+     * @param from
+     *            the index of the first element (inclusive) to be sorted.
+     * @param to
+     *            the index of the last element (inclusive) to be sorted.
+     * @exception IndexOutOfBoundsException
+     *                index is out of range (<tt>size()&gt;0 && (from&lt;0 ||
+     *                from&gt;to || to&gt;=size())</tt>).
+     * @see cern.colt.Sorting#radixSort(float[], int, int)
+     */
+    public void sortFromTo(int from, int to) {
+        if (size == 0)
+            return;
+        checkRangeFromTo(from, to, size);
+        cern.colt.Sorting.radixSort(elements, from, to + 1);
+    }
+
     /**
      * Trims the capacity of the receiver to be the receiver's current size.
      * Releases any superfluos internal memory. An application can use this
@@ -678,15 +678,15 @@ public class LongArrayList extends AbstractLongList {
      * Sorts the specified range of the receiver into ascending order.
      * 
      * The sorting algorithm is dynamically chosen according to the
-     * characteristics of the data set. Currently quicksort and countsort are
+     * characteristics of the data set. Currently radix sort and countsort are
      * considered. Countsort is not always applicable, but if applicable, it
-     * usually outperforms quicksort by a factor of 3-4.
+     * usually outperforms radix sort on small value ranges.
      * 
      * <p>
      * Best case performance: O(N).
-     * <dt>Worst case performance: O(N^2) (a degenerated quicksort).
+     * <dt>Worst case performance: O(N).
      * <dt>Best case space requirements: 0 KB.
-     * <dt>Worst case space requirements: 40 KB.
+     * <dt>Worst case space requirements: twice the size of the range.
      * 
      * @param from
      *            the index of the first element (inclusive) to be sorted.
@@ -734,7 +734,7 @@ public class LongArrayList extends AbstractLongList {
         if (width < widthThreshold && countSortEstimate < quickSortEstimate) {
             countSortFromTo(from, to, min, max);
         } else {
-            quickSortFromTo(from, to);
+            cern.colt.Sorting.radixSort(elements, from, to + 1);
         }
     }
 
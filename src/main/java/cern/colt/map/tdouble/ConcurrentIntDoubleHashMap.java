@@ -0,0 +1,698 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.map.tdouble;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import cern.colt.function.tdouble.IntDoubleProcedure;
+import cern.colt.function.tint.IntProcedure;
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tint.IntArrayList;
+
+/**
+ * Thread-safe hash map holding (key,value) associations of type
+ * <tt>(int-->double)</tt>; Automatically grows and shrinks as needed. First
+ * see the <a href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * The keys are partitioned into a fixed number of segments, each of which is
+ * an open addressing hash table with linear probing and a power-of-two
+ * capacity. Retrieval operations (<tt>get</tt>, <tt>containsKey</tt>) do not
+ * lock and may overlap with updates; they reflect the most recently completed
+ * update of the key. Updates (<tt>put</tt>, <tt>removeKey</tt>,
+ * <tt>adjustOrPutValue</tt>) lock only the segment the key belongs to, so up to
+ * <tt>concurrencyLevel</tt> threads can update the map without contention.
+ * Removed entries leave a tombstone that is never reused by the current table;
+ * tombstones are discarded when the segment is rehashed. This keeps every slot
+ * of a published table immutable except for its value, which is what makes
+ * unsynchronized reads safe.
+ * <p>
+ * Iteration (<tt>forEachKey</tt>, <tt>forEachPair</tt>, <tt>keys</tt>,
+ * <tt>values</tt>) is weakly consistent: it reflects the state of each segment
+ * at some point during the iteration and never throws an exception because of
+ * concurrent updates. Bulk operations such as <tt>keys()</tt> followed by
+ * <tt>values()</tt> only yield matching pairs if the map is not modified in the
+ * meantime.
+ *
+ * @see OpenIntDoubleHashMap
+ * @see java.util.concurrent.ConcurrentHashMap
+ */
+public class ConcurrentIntDoubleHashMap extends AbstractIntDoubleMap {
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default number of segments.
+     */
+    protected static final int defaultConcurrencyLevel = 16;
+
+    protected static final int FREE = 0;
+
+    protected static final int FULL = 1;
+
+    protected static final int REMOVED = 2;
+
+    /**
+     * The segments, each of which is a hash table on its own.
+     *
+     * @serial
+     */
+    protected Segment[] segments;
+
+    /**
+     * Shift and mask selecting the segment from the high bits of the hash.
+     */
+    protected int segmentShift;
+
+    protected int segmentMask;
+
+    /**
+     * Constructs an empty map with default capacity, default load factors and
+     * default concurrency level.
+     */
+    public ConcurrentIntDoubleHashMap() {
+        this(defaultCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and default
+     * load factors and concurrency level.
+     *
+     * @param initialCapacity
+     *            the initial capacity of the map.
+     * @throws IllegalArgumentException
+     *             if the initial capacity is less than zero.
+     */
+    public ConcurrentIntDoubleHashMap(int initialCapacity) {
+        this(initialCapacity, defaultMinLoadFactor, defaultMaxLoadFactor);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * specified minimum and maximum load factor and default concurrency level.
+     *
+     * @param initialCapacity
+     *            the initial capacity.
+     * @param minLoadFactor
+     *            the minimum load factor.
+     * @param maxLoadFactor
+     *            the maximum load factor.
+     * @throws IllegalArgumentException
+     *             if
+     *
+     *             <tt>initialCapacity < 0 || (minLoadFactor < 0.0 || minLoadFactor >= 1.0) || (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) || (minLoadFactor >= maxLoadFactor)</tt>
+     *             .
+     */
+    public ConcurrentIntDoubleHashMap(int initialCapacity, double minLoadFactor, double maxLoadFactor) {
+        this(initialCapacity, minLoadFactor, maxLoadFactor, defaultConcurrencyLevel);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity, minimum and
+     * maximum load factor and concurrency level.
+     *
+     * @param initialCapacity
+     *            the initial capacity.
+     * @param minLoadFactor
+     *            the minimum load factor.
+     * @param maxLoadFactor
+     *            the maximum load factor.
+     * @param concurrencyLevel
+     *            the estimated number of concurrently updating threads; it is
+     *            rounded up to a power of two and determines the number of
+     *            segments.
+     * @throws IllegalArgumentException
+     *             if
+     *
+     *             <tt>initialCapacity < 0 || (minLoadFactor < 0.0 || minLoadFactor >= 1.0) || (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) || (minLoadFactor >= maxLoadFactor) || concurrencyLevel <= 0</tt>
+     *             .
+     */
+    public ConcurrentIntDoubleHashMap(int initialCapacity, double minLoadFactor, double maxLoadFactor,
+            int concurrencyLevel) {
+        if (concurrencyLevel <= 0)
+            throw new IllegalArgumentException("Illegal concurrencyLevel: " + concurrencyLevel);
+        setUp(initialCapacity, minLoadFactor, maxLoadFactor);
+        int nsegments = 1;
+        int shift = 0;
+        while (nsegments < concurrencyLevel && nsegments < (1 << 16)) {
+            nsegments <<= 1;
+            shift++;
+        }
+        this.segmentShift = 64 - shift;
+        this.segmentMask = nsegments - 1;
+        this.segments = new Segment[nsegments];
+        int segmentCapacity = (initialCapacity + nsegments - 1) / nsegments;
+        for (int i = 0; i < nsegments; i++) {
+            segments[i] = new Segment(segmentCapacity, minLoadFactor, maxLoadFactor);
+        }
+    }
+
+    /**
+     * Adds <tt>incrValue</tt> to the value associated with the given key, or
+     * associates the key with <tt>newValue</tt> if it is not contained. The
+     * operation is performed atomically.
+     *
+     * @param key
+     *            the key.
+     * @param newValue
+     *            the value to be associated if the key is not contained.
+     * @param incrValue
+     *            the value to be added if the key is contained.
+     * @return the value now associated with the key.
+     */
+    public double adjustOrPutValue(int key, double newValue, double incrValue) {
+        long hash = hash(key);
+        return segmentFor(hash).adjustOrPutValue(key, hash, newValue, incrValue);
+    }
+
+    /**
+     * Assigns the result of a function to each value;
+     * <tt>v[i] = function(v[i])</tt>. Each segment is locked while its values
+     * are assigned.
+     *
+     * @param function
+     *            a function object taking as argument the current association's
+     *            value.
+     */
+    public void assign(cern.colt.function.tdouble.DoubleFunction function) {
+        for (int s = 0; s < segments.length; s++) {
+            segments[s].assign(function);
+        }
+    }
+
+    /**
+     * Removes all (key,value) associations from the receiver.
+     */
+    public void clear() {
+        for (int s = 0; s < segments.length; s++) {
+            segments[s].clear();
+        }
+    }
+
+    /**
+     * Returns a deep copy of the receiver.
+     *
+     * @return a deep copy of the receiver.
+     */
+    public Object clone() {
+        ConcurrentIntDoubleHashMap copy = (ConcurrentIntDoubleHashMap) super.clone();
+        copy.segments = new Segment[segments.length];
+        for (int s = 0; s < segments.length; s++) {
+            copy.segments[s] = segments[s].copy();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the receiver contains the specified key.
+     *
+     * @return <tt>true</tt> if the receiver contains the specified key.
+     */
+    public boolean containsKey(int key) {
+        long hash = hash(key);
+        Table t = segmentFor(hash).table;
+        return t.indexOfKey(key, hash) >= 0;
+    }
+
+    /**
+     * Ensures that the receiver can hold at least the specified number of
+     * associations without needing to allocate new internal memory, assuming
+     * the keys are evenly distributed among the segments.
+     *
+     * @param minCapacity
+     *            the desired minimum capacity.
+     */
+    public void ensureCapacity(int minCapacity) {
+        int segmentCapacity = (minCapacity + segments.length - 1) / segments.length;
+        for (int s = 0; s < segments.length; s++) {
+            segments[s].ensureCapacity(segmentCapacity);
+        }
+    }
+
+    /**
+     * Applies a procedure to each key of the receiver, if any. Iterates over
+     * the keys in no particular order.
+     *
+     * @param procedure
+     *            the procedure to be applied. Stops iteration if the procedure
+     *            returns <tt>false</tt>, otherwise continues.
+     * @return <tt>false</tt> if the procedure stopped before all keys where
+     *         iterated over, <tt>true</tt> otherwise.
+     */
+    public boolean forEachKey(IntProcedure procedure) {
+        for (int s = 0; s < segments.length; s++) {
+            Table t = segments[s].table;
+            for (int i = t.keys.length; i-- > 0;) {
+                if (t.state.get(i) == FULL)
+                    if (!procedure.apply(t.keys[i]))
+                        return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies a procedure to each (key,value) pair of the receiver, if any.
+     * Iteration order is guaranteed to be <i>identical</i> to the order used by
+     * method {@link #forEachKey(IntProcedure)}.
+     *
+     * @param procedure
+     *            the procedure to be applied. Stops iteration if the procedure
+     *            returns <tt>false</tt>, otherwise continues.
+     * @return <tt>false</tt> if the procedure stopped before all keys where
+     *         iterated over, <tt>true</tt> otherwise.
+     */
+    public boolean forEachPair(final IntDoubleProcedure procedure) {
+        for (int s = 0; s < segments.length; s++) {
+            Table t = segments[s].table;
+            for (int i = t.keys.length; i-- > 0;) {
+                if (t.state.get(i) == FULL)
+                    if (!procedure.apply(t.keys[i], Double.longBitsToDouble(t.values.get(i))))
+                        return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value associated with the specified key. Does not lock.
+     *
+     * @param key
+     *            the key to be searched for.
+     * @return the value associated with the specified key; <tt>0</tt> if no
+     *         such key is present.
+     */
+    public double get(int key) {
+        long hash = hash(key);
+        Table t = segmentFor(hash).table;
+        int i = t.indexOfKey(key, hash);
+        if (i < 0)
+            return 0; // not contained
+        return Double.longBitsToDouble(t.values.get(i));
+    }
+
+    /**
+     * Returns <tt>true</tt> if the receiver contains no (key,value)
+     * associations.
+     *
+     * @return <tt>true</tt> if the receiver contains no (key,value)
+     *         associations.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Fills all keys contained in the receiver into the specified list. Fills
+     * the list, starting at index 0. After this call returns the specified list
+     * has a new size that equals the number of keys found.
+     *
+     * @param list
+     *            the list to be filled, can have any size.
+     */
+    public void keys(IntArrayList list) {
+        list.clear();
+        for (int s = 0; s < segments.length; s++) {
+            Table t = segments[s].table;
+            for (int i = t.keys.length; i-- > 0;) {
+                if (t.state.get(i) == FULL)
+                    list.add(t.keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Associates the given key with the given value. Replaces any old
+     * <tt>(key,someOtherValue)</tt> association, if existing.
+     *
+     * @param key
+     *            the key the value shall be associated with.
+     * @param value
+     *            the value to be associated.
+     * @return <tt>true</tt> if the receiver did not already contain such a key;
+     *         <tt>false</tt> if the receiver did already contain such a key -
+     *         the new value has now replaced the formerly associated value.
+     */
+    public boolean put(int key, double value) {
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * Removes the given key with its associated element from the receiver, if
+     * present.
+     *
+     * @param key
+     *            the key to be removed from the receiver.
+     * @return <tt>true</tt> if the receiver contained the specified key,
+     *         <tt>false</tt> otherwise.
+     */
+    public boolean removeKey(int key) {
+        long hash = hash(key);
+        return segmentFor(hash).removeKey(key, hash);
+    }
+
+    /**
+     * Returns the number of (key,value) associations currently contained.
+     *
+     * @return the number of (key,value) associations currently contained.
+     */
+    public int size() {
+        long size = 0;
+        for (int s = 0; s < segments.length; s++) {
+            size += segments[s].count;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Trims the capacity of each segment to its current size and discards all
+     * tombstones.
+     */
+    public void trimToSize() {
+        for (int s = 0; s < segments.length; s++) {
+            segments[s].trimToSize();
+        }
+    }
+
+    /**
+     * Fills all values contained in the receiver into the specified list. Fills
+     * the list, starting at index 0. After this call returns the specified list
+     * has a new size that equals the number of values found. Iteration order is
+     * guaranteed to be <i>identical</i> to the order used by method
+     * {@link #forEachKey(IntProcedure)}.
+     *
+     * @param list
+     *            the list to be filled, can have any size.
+     */
+    public void values(DoubleArrayList list) {
+        list.clear();
+        for (int s = 0; s < segments.length; s++) {
+            Table t = segments[s].table;
+            for (int i = t.keys.length; i-- > 0;) {
+                if (t.state.get(i) == FULL)
+                    list.add(Double.longBitsToDouble(t.values.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Returns a well distributed hash of the given key; the high bits select
+     * the segment and the low bits the slot.
+     */
+    protected static long hash(int key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    protected Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> segmentShift) & segmentMask];
+    }
+
+    /**
+     * A hash table of fixed capacity. A slot goes from <tt>FREE</tt> to
+     * <tt>FULL</tt> to <tt>REMOVED</tt> and is never reused, so that its key
+     * does not change after the slot has been published by the volatile write
+     * of its state.
+     */
+    protected static final class Table implements java.io.Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final int[] keys;
+
+        final AtomicLongArray values;
+
+        final AtomicIntegerArray state;
+
+        Table(int capacity) {
+            this.keys = new int[capacity];
+            this.values = new AtomicLongArray(capacity);
+            this.state = new AtomicIntegerArray(capacity);
+        }
+
+        /**
+         * Returns the index where the key is contained, else -1.
+         */
+        int indexOfKey(int key, long hash) {
+            final int[] tab = keys;
+            final AtomicIntegerArray stat = state;
+            final int mask = tab.length - 1;
+            int i = (int) hash & mask;
+            int s;
+            while ((s = stat.get(i)) != FREE) {
+                if (s == FULL && tab[i] == key)
+                    return i;
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the index where the key is contained as <tt>-index-1</tt>,
+         * else the index of the free slot where it should be inserted.
+         */
+        int indexOfInsertion(int key, long hash) {
+            final int[] tab = keys;
+            final AtomicIntegerArray stat = state;
+            final int mask = tab.length - 1;
+            int i = (int) hash & mask;
+            int s;
+            while ((s = stat.get(i)) != FREE) {
+                if (s == FULL && tab[i] == key)
+                    return -i - 1;
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * A segment of the map. All updates of a segment are performed while
+     * holding its lock; the table is replaced as a whole when rehashing.
+     */
+    protected static final class Segment extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        volatile Table table;
+
+        /**
+         * The number of <tt>FULL</tt> slots.
+         */
+        volatile int count;
+
+        /**
+         * The number of <tt>FULL</tt> and <tt>REMOVED</tt> slots.
+         */
+        int used;
+
+        int lowWaterMark;
+
+        int highWaterMark;
+
+        final double minLoadFactor;
+
+        final double maxLoadFactor;
+
+        Segment(int initialCapacity, double minLoadFactor, double maxLoadFactor) {
+            this.minLoadFactor = minLoadFactor;
+            this.maxLoadFactor = maxLoadFactor;
+            setTable(new Table(capacityFor(initialCapacity)));
+            // see OpenIntDoubleHashMap.setUp()
+            this.lowWaterMark = 0;
+        }
+
+        /**
+         * Returns the smallest power of two that holds the given number of
+         * entries without exceeding the maximum load factor.
+         */
+        int capacityFor(int size) {
+            int capacity = 2;
+            while (capacity < (1 << 30) && (int) (capacity * maxLoadFactor) <= size) {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
+
+        void setTable(Table t) {
+            int capacity = t.keys.length;
+            this.lowWaterMark = (int) (capacity * minLoadFactor);
+            this.highWaterMark = Math.min(capacity - 1, (int) (capacity * maxLoadFactor));
+            this.table = t;
+        }
+
+        void rehash(int newCapacity) {
+            Table old = table;
+            Table t = new Table(newCapacity);
+            int mask = newCapacity - 1;
+            for (int i = old.keys.length; i-- > 0;) {
+                if (old.state.get(i) == FULL) {
+                    int key = old.keys[i];
+                    int j = (int) hash(key) & mask;
+                    while (t.state.get(j) != FREE) {
+                        j = (j + 1) & mask;
+                    }
+                    t.keys[j] = key;
+                    t.values.set(j, old.values.get(i));
+                    t.state.set(j, FULL);
+                }
+            }
+            used = count;
+            setTable(t); // publish
+        }
+
+        /**
+         * Returns the index of the slot for a new key, growing the table if
+         * necessary. Must be called while holding the lock.
+         */
+        int slotForInsertion(int key, long hash, int i) {
+            if (used + 1 > highWaterMark) {
+                rehash(capacityFor(count + 1));
+                i = table.indexOfInsertion(key, hash);
+            }
+            return i;
+        }
+
+        void insert(Table t, int i, int key, long raw) {
+            t.keys[i] = key;
+            t.values.set(i, raw);
+            t.state.set(i, FULL); // publishes the key
+            used++;
+            count++;
+        }
+
+        boolean put(int key, long hash, double value) {
+            lock();
+            try {
+                int i = table.indexOfInsertion(key, hash);
+                if (i < 0) { // already contained
+                    table.values.set(-i - 1, Double.doubleToRawLongBits(value));
+                    return false;
+                }
+                i = slotForInsertion(key, hash, i);
+                insert(table, i, key, Double.doubleToRawLongBits(value));
+                return true;
+            } finally {
+                unlock();
+            }
+        }
+
+        double adjustOrPutValue(int key, long hash, double newValue, double incrValue) {
+            lock();
+            try {
+                int i = table.indexOfInsertion(key, hash);
+                if (i < 0) { // already contained
+                    i = -i - 1;
+                    double value = Double.longBitsToDouble(table.values.get(i)) + incrValue;
+                    table.values.set(i, Double.doubleToRawLongBits(value));
+                    return value;
+                }
+                i = slotForInsertion(key, hash, i);
+                insert(table, i, key, Double.doubleToRawLongBits(newValue));
+                return newValue;
+            } finally {
+                unlock();
+            }
+        }
+
+        boolean removeKey(int key, long hash) {
+            lock();
+            try {
+                int i = table.indexOfKey(key, hash);
+                if (i < 0)
+                    return false; // key not contained
+                table.state.set(i, REMOVED);
+                count--;
+                if (count < lowWaterMark) {
+                    rehash(capacityFor(count));
+                }
+                return true;
+            } finally {
+                unlock();
+            }
+        }
+
+        void assign(cern.colt.function.tdouble.DoubleFunction function) {
+            lock();
+            try {
+                Table t = table;
+                for (int i = t.keys.length; i-- > 0;) {
+                    if (t.state.get(i) == FULL) {
+                        double value = function.apply(Double.longBitsToDouble(t.values.get(i)));
+                        t.values.set(i, Double.doubleToRawLongBits(value));
+                    }
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        void clear() {
+            lock();
+            try {
+                count = 0;
+                used = 0;
+                setTable(new Table(capacityFor(0)));
+                this.lowWaterMark = 0;
+            } finally {
+                unlock();
+            }
+        }
+
+        void ensureCapacity(int minCapacity) {
+            lock();
+            try {
+                int capacity = capacityFor(minCapacity);
+                if (table.keys.length < capacity)
+                    rehash(capacity);
+            } finally {
+                unlock();
+            }
+        }
+
+        void trimToSize() {
+            lock();
+            try {
+                rehash(capacityFor(count));
+            } finally {
+                unlock();
+            }
+        }
+
+        Segment copy() {
+            lock();
+            try {
+                Segment copy = new Segment(0, minLoadFactor, maxLoadFactor);
+                Table t = new Table(table.keys.length);
+                for (int i = t.keys.length; i-- > 0;) {
+                    t.keys[i] = table.keys[i];
+                    t.values.set(i, table.values.get(i));
+                    t.state.set(i, table.state.get(i));
+                }
+                copy.setTable(t);
+                copy.lowWaterMark = lowWaterMark;
+                copy.count = count;
+                copy.used = used;
+                return copy;
+            } finally {
+                unlock();
+            }
+        }
+    }
+}
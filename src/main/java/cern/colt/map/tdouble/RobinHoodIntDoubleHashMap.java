@@ -0,0 +1,711 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.map.tdouble;
+
+import java.util.Arrays;
+
+import cern.colt.function.tdouble.IntDoubleProcedure;
+import cern.colt.function.tint.IntProcedure;
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tint.IntArrayList;
+
+/**
+ * Hash map holding (key,value) associations of type <tt>(int-->double)</tt>;
+ * Automatically grows and shrinks as needed; Implemented using open addressing
+ * with Robin Hood linear probing. First see the <a
+ * href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * The capacity of the table is always a power of two and there is no state
+ * array: a slot is free if its key is <tt>0</tt>, and the association of the
+ * key <tt>0</tt> itself is kept outside of the table. Removal uses backward
+ * shift deletion and leaves no tombstones. See
+ * {@link RobinHoodLongDoubleHashMap} for details.
+ * 
+ * @see OpenIntDoubleHashMap
+ */
+public class RobinHoodIntDoubleHashMap extends AbstractIntDoubleMap {
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The hash table keys.
+     * 
+     * @serial
+     */
+    protected int table[];
+
+    /**
+     * The hash table values.
+     * 
+     * @serial
+     */
+    protected double values[];
+
+    /**
+     * The capacity of the table minus one.
+     * 
+     * @serial
+     */
+    protected int mask;
+
+    /**
+     * Whether the receiver contains the key <tt>FREE</tt>.
+     * 
+     * @serial
+     */
+    protected boolean hasFreeKey;
+
+    /**
+     * The value associated with the key <tt>FREE</tt>, if any.
+     * 
+     * @serial
+     */
+    protected double freeKeyValue;
+
+    /**
+     * The key marking a free slot.
+     */
+    protected static final int FREE = 0;
+
+    /**
+     * The largest possible capacity.
+     */
+    protected static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * Constructs an empty map with default capacity and default load factors.
+     */
+    public RobinHoodIntDoubleHashMap() {
+        this(defaultCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and default
+     * load factors.
+     * 
+     * @param initialCapacity
+     *            the initial capacity of the map.
+     * @throws IllegalArgumentException
+     *             if the initial capacity is less than zero.
+     */
+    public RobinHoodIntDoubleHashMap(int initialCapacity) {
+        this(initialCapacity, defaultMinLoadFactor, defaultMaxLoadFactor);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * specified minimum and maximum load factor.
+     * 
+     * @param initialCapacity
+     *            the initial capacity.
+     * @param minLoadFactor
+     *            the minimum load factor.
+     * @param maxLoadFactor
+     *            the maximum load factor.
+     * @throws IllegalArgumentException
+     *             if
+     * 
+     *             <tt>initialCapacity < 0 || (minLoadFactor < 0.0 || minLoadFactor >= 1.0) || (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) || (minLoadFactor >= maxLoadFactor)</tt>
+     *             .
+     */
+    public RobinHoodIntDoubleHashMap(int initialCapacity, double minLoadFactor, double maxLoadFactor) {
+        setUp(initialCapacity, minLoadFactor, maxLoadFactor);
+    }
+
+    /**
+     * Assigns the result of a function to each value;
+     * <tt>v[i] = function(v[i])</tt>.
+     * 
+     * @param function
+     *            a function object taking as argument the current association's
+     *            value.
+     */
+    public void assign(cern.colt.function.tdouble.DoubleFunction function) {
+        final int tab[] = table;
+        final double val[] = values;
+        // specialization for speed
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            double multiplicator = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (multiplicator == 1)
+                return;
+            if (multiplicator == 0) {
+                clear();
+                return;
+            }
+            for (int i = tab.length; i-- > 0;) {
+                if (tab[i] != FREE)
+                    val[i] *= multiplicator;
+            }
+            freeKeyValue *= multiplicator;
+        } else { // the general case x[i] = f(x[i])
+            for (int i = tab.length; i-- > 0;) {
+                if (tab[i] != FREE)
+                    val[i] = function.apply(val[i]);
+            }
+            if (hasFreeKey)
+                freeKeyValue = function.apply(freeKeyValue);
+        }
+    }
+
+    /**
+     * Clears the receiver, then adds all (key,value) pairs of <tt>other</tt>
+     * values to it.
+     * 
+     * @param other
+     *            the other map to be copied into the receiver.
+     */
+    public void assign(AbstractIntDoubleMap other) {
+        if (!(other instanceof RobinHoodIntDoubleHashMap)) {
+            super.assign(other);
+            return;
+        }
+        RobinHoodIntDoubleHashMap source = (RobinHoodIntDoubleHashMap) other;
+        RobinHoodIntDoubleHashMap copy = (RobinHoodIntDoubleHashMap) source.copy();
+        this.table = copy.table;
+        this.values = copy.values;
+        this.mask = copy.mask;
+        this.hasFreeKey = copy.hasFreeKey;
+        this.freeKeyValue = copy.freeKeyValue;
+        this.distinct = copy.distinct;
+        this.lowWaterMark = copy.lowWaterMark;
+        this.highWaterMark = copy.highWaterMark;
+        this.minLoadFactor = copy.minLoadFactor;
+        this.maxLoadFactor = copy.maxLoadFactor;
+    }
+
+    /**
+     * Removes all (key,value) associations from the receiver. Implicitly calls
+     * <tt>trimToSize()</tt>.
+     */
+    public void clear() {
+        Arrays.fill(this.table, FREE);
+        Arrays.fill(this.values, 0);
+        this.hasFreeKey = false;
+        this.freeKeyValue = 0;
+        this.distinct = 0;
+        trimToSize();
+    }
+
+    /**
+     * Returns a deep copy of the receiver.
+     * 
+     * @return a deep copy of the receiver.
+     */
+    public Object clone() {
+        RobinHoodIntDoubleHashMap copy = (RobinHoodIntDoubleHashMap) super.clone();
+        copy.table = copy.table.clone();
+        copy.values = copy.values.clone();
+        return copy;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the receiver contains the specified key.
+     * 
+     * @return <tt>true</tt> if the receiver contains the specified key.
+     */
+    public boolean containsKey(int key) {
+        if (key == FREE)
+            return hasFreeKey;
+        return indexOfKey(key) >= 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the receiver contains the specified value.
+     * 
+     * @return <tt>true</tt> if the receiver contains the specified value.
+     */
+    public boolean containsValue(double value) {
+        if (hasFreeKey && freeKeyValue == value)
+            return true;
+        return indexOfValue(value) >= 0;
+    }
+
+    /**
+     * Ensures that the receiver can hold at least the specified number of
+     * associations without needing to allocate new internal memory. If
+     * necessary, allocates new internal memory and increases the capacity of
+     * the receiver.
+     * <p>
+     * This method never need be called; it is for performance tuning only.
+     * Calling this method before <tt>put()</tt>ing a large number of
+     * associations boosts performance, because the receiver will grow only once
+     * instead of potentially many times and hash collisions get less probable.
+     * 
+     * @param minCapacity
+     *            the desired minimum capacity.
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (table.length < minCapacity) {
+            rehash(powerOfTwoCapacity(minCapacity));
+        }
+    }
+
+    /**
+     * Applies a procedure to each key of the receiver, if any. Note: Iterates
+     * over the keys in no particular order. Subclasses can define a particular
+     * order, for example, "sorted by key". All methods which <i>can</i> be
+     * expressed in terms of this method (most methods can) <i>must
+     * guarantee</i> to use the <i>same</i> order defined by this method, even
+     * if it is no particular order. This is necessary so that, for example,
+     * methods <tt>keys</tt> and <tt>values</tt> will yield association pairs,
+     * not two uncorrelated lists.
+     * 
+     * @param procedure
+     *            the procedure to be applied. Stops iteration if the procedure
+     *            returns <tt>false</tt>, otherwise continues.
+     * @return <tt>false</tt> if the procedure stopped before all keys where
+     *         iterated over, <tt>true</tt> otherwise.
+     */
+    public boolean forEachKey(IntProcedure procedure) {
+        if (hasFreeKey && !procedure.apply(FREE))
+            return false;
+        final int tab[] = table;
+        for (int i = tab.length; i-- > 0;) {
+            if (tab[i] != FREE)
+                if (!procedure.apply(tab[i]))
+                    return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies a procedure to each (key,value) pair of the receiver, if any.
+     * Iteration order is guaranteed to be <i>identical</i> to the order used by
+     * method {@link #forEachKey(IntProcedure)}.
+     * 
+     * @param procedure
+     *            the procedure to be applied. Stops iteration if the procedure
+     *            returns <tt>false</tt>, otherwise continues.
+     * @return <tt>false</tt> if the procedure stopped before all keys where
+     *         iterated over, <tt>true</tt> otherwise.
+     */
+    public boolean forEachPair(final IntDoubleProcedure procedure) {
+        if (hasFreeKey && !procedure.apply(FREE, freeKeyValue))
+            return false;
+        final int tab[] = table;
+        for (int i = tab.length; i-- > 0;) {
+            if (tab[i] != FREE)
+                if (!procedure.apply(tab[i], values[i]))
+                    return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value associated with the specified key. It is often a good
+     * idea to first check with {@link #containsKey(int)} whether the given key
+     * has a value associated or not, i.e. whether there exists an association
+     * for the given key or not.
+     * 
+     * @param key
+     *            the key to be searched for.
+     * @return the value associated with the specified key; <tt>0</tt> if no
+     *         such key is present.
+     */
+    public double get(int key) {
+        if (key == FREE)
+            return freeKeyValue;
+        int i = indexOfKey(key);
+        if (i < 0)
+            return 0; // not contained
+        return values[i];
+    }
+
+    /**
+     * @param key
+     *            the key to be searched in the receiver; must not be
+     *            <tt>FREE</tt>.
+     * @return the slot where the key is contained in the receiver, else returns
+     *         -1.
+     */
+    protected int indexOfKey(int key) {
+        final int tab[] = table;
+        final int m = mask;
+        int i = hash(key) & m;
+        // stop at a free slot, or at an entry that is closer to its home slot
+        // than the key would be; the key cannot come after such an entry
+        for (int dist = 0;; dist++) {
+            final int k = tab[i];
+            if (k == key)
+                return i;
+            if (k == FREE || ((i - hash(k)) & m) < dist)
+                return -1; // not found
+            i = (i + 1) & m;
+        }
+    }
+
+    /**
+     * @param value
+     *            the value to be searched in the receiver.
+     * @return the slot where the value is contained in the receiver, returns
+     *         -1 if the value was not found.
+     */
+    protected int indexOfValue(double value) {
+        final int tab[] = table;
+        final double val[] = values;
+        for (int i = tab.length; i-- > 0;) {
+            if (tab[i] != FREE && val[i] == value)
+                return i;
+        }
+        return -1; // not found
+    }
+
+    /**
+     * Returns the first key the given value is associated with. It is often a
+     * good idea to first check with {@link #containsValue(double)} whether
+     * there exists an association from a key to this value. Search order is
+     * guaranteed to be <i>identical</i> to the order used by method
+     * {@link #forEachKey(IntProcedure)}.
+     * 
+     * @param value
+     *            the value to search for.
+     * @return the first key for which holds <tt>get(key) == value</tt>; returns
+     *         <tt>Integer.MIN_VALUE</tt> if no such key exists.
+     */
+    public int keyOf(double value) {
+        if (hasFreeKey && freeKeyValue == value)
+            return FREE;
+        int i = indexOfValue(value);
+        if (i < 0)
+            return Integer.MIN_VALUE;
+        return table[i];
+    }
+
+    /**
+     * Fills all keys contained in the receiver into the specified list. Fills
+     * the list, starting at index 0. After this call returns the specified list
+     * has a new size that equals <tt>this.size()</tt>. Iteration order is
+     * guaranteed to be <i>identical</i> to the order used by method
+     * {@link #forEachKey(IntProcedure)}.
+     * <p>
+     * This method can be used to iterate over the keys of the receiver.
+     * 
+     * @param list
+     *            the list to be filled, can have any size.
+     */
+    public void keys(IntArrayList list) {
+        list.setSize(distinct);
+        int[] elements = list.elements();
+        int j = 0;
+        if (hasFreeKey)
+            elements[j++] = FREE;
+        final int tab[] = table;
+        for (int i = tab.length; i-- > 0;) {
+            if (tab[i] != FREE)
+                elements[j++] = tab[i];
+        }
+    }
+
+    /**
+     * Fills all pairs satisfying a given condition into the specified lists.
+     * Fills into the lists, starting at index 0. After this call returns the
+     * specified lists both have a new size, the number of pairs satisfying the
+     * condition. Iteration order is guaranteed to be <i>identical</i> to the
+     * order used by method {@link #forEachKey(IntProcedure)}.
+     * 
+     * @param condition
+     *            the condition to be matched. Takes the current key as first
+     *            and the current value as second argument.
+     * @param keyList
+     *            the list to be filled with keys, can have any size.
+     * @param valueList
+     *            the list to be filled with values, can have any size.
+     */
+    public void pairsMatching(final IntDoubleProcedure condition, final IntArrayList keyList,
+            final DoubleArrayList valueList) {
+        keyList.clear();
+        valueList.clear();
+        if (hasFreeKey && condition.apply(FREE, freeKeyValue)) {
+            keyList.add(FREE);
+            valueList.add(freeKeyValue);
+        }
+        final int tab[] = table;
+        for (int i = tab.length; i-- > 0;) {
+            if (tab[i] != FREE && condition.apply(tab[i], values[i])) {
+                keyList.add(tab[i]);
+                valueList.add(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Associates the given key with the given value. Replaces any old
+     * <tt>(key,someOtherValue)</tt> association, if existing.
+     * 
+     * @param key
+     *            the key the value shall be associated with.
+     * @param value
+     *            the value to be associated.
+     * @return <tt>true</tt> if the receiver did not already contain such a key;
+     *         <tt>false</tt> if the receiver did already contain such a key -
+     *         the new value has now replaced the formerly associated value.
+     */
+    public boolean put(int key, double value) {
+        if (key == FREE) {
+            this.freeKeyValue = value;
+            if (this.hasFreeKey)
+                return false;
+            this.hasFreeKey = true;
+            this.distinct++;
+            return true;
+        }
+
+        final int tab[] = table;
+        final int m = mask;
+        int i = hash(key) & m;
+        int dist = 0;
+        for (;; dist++) {
+            final int k = tab[i];
+            if (k == key) { // already contained
+                this.values[i] = value;
+                return false;
+            }
+            if (k == FREE || ((i - hash(k)) & m) < dist)
+                break; // not contained, belongs to slot i
+            i = (i + 1) & m;
+        }
+
+        if (this.distinct >= this.highWaterMark) {
+            rehash(chooseGrowCapacity(this.distinct + 1, this.minLoadFactor, this.maxLoadFactor));
+            i = hash(key) & mask;
+            dist = 0;
+        }
+        insert(key, value, i, dist);
+        this.distinct++;
+        return true;
+    }
+
+    /**
+     * Removes the given key with its associated element from the receiver, if
+     * present.
+     * 
+     * @param key
+     *            the key to be removed from the receiver.
+     * @return <tt>true</tt> if the receiver contained the specified key,
+     *         <tt>false</tt> otherwise.
+     */
+    public boolean removeKey(int key) {
+        if (key == FREE) {
+            if (!this.hasFreeKey)
+                return false;
+            this.hasFreeKey = false;
+            this.freeKeyValue = 0;
+        } else {
+            int i = indexOfKey(key);
+            if (i < 0)
+                return false; // key not contained
+
+            // backward shift deletion: move the rest of the cluster one slot
+            // closer to home until an empty slot or an entry at its home slot
+            final int tab[] = table;
+            final double val[] = values;
+            final int m = mask;
+            int j = (i + 1) & m;
+            for (;;) {
+                final int k = tab[j];
+                if (k == FREE || ((j - hash(k)) & m) == 0)
+                    break;
+                tab[i] = k;
+                val[i] = val[j];
+                i = j;
+                j = (j + 1) & m;
+            }
+            tab[i] = FREE;
+            val[i] = 0;
+        }
+        this.distinct--;
+
+        if (this.distinct < this.lowWaterMark) {
+            int newCapacity = chooseShrinkCapacity(this.distinct, this.minLoadFactor, this.maxLoadFactor);
+            if (newCapacity < table.length)
+                rehash(newCapacity);
+            else
+                this.lowWaterMark = chooseLowWaterMark(table.length >> 1, this.minLoadFactor);
+        }
+        return true;
+    }
+
+    /**
+     * Trims the capacity of the receiver to be the receiver's current size.
+     * Releases any superfluous internal memory. An application can use this
+     * operation to minimize the storage of the receiver.
+     */
+    public void trimToSize() {
+        int newCapacity = fitCapacity(powerOfTwoCapacity((int) (1 + 1.2 * size())));
+        if (table.length > newCapacity) {
+            rehash(newCapacity);
+        }
+    }
+
+    /**
+     * Fills all values contained in the receiver into the specified list. Fills
+     * the list, starting at index 0. After this call returns the specified list
+     * has a new size that equals <tt>this.size()</tt>. Iteration order is
+     * guaranteed to be <i>identical</i> to the order used by method
+     * {@link #forEachKey(IntProcedure)}.
+     * <p>
+     * This method can be used to iterate over the values of the receiver.
+     * 
+     * @param list
+     *            the list to be filled, can have any size.
+     */
+    public void values(DoubleArrayList list) {
+        list.setSize(distinct);
+        double[] elements = list.elements();
+        int j = 0;
+        if (hasFreeKey)
+            elements[j++] = freeKeyValue;
+        final int tab[] = table;
+        for (int i = tab.length; i-- > 0;) {
+            if (tab[i] != FREE)
+                elements[j++] = values[i];
+        }
+    }
+
+    protected int chooseGrowCapacity(int size, double minLoad, double maxLoad) {
+        return powerOfTwoCapacity(super.chooseGrowCapacity(size, minLoad, maxLoad));
+    }
+
+    protected int chooseMeanCapacity(int size, double minLoad, double maxLoad) {
+        return powerOfTwoCapacity(super.chooseMeanCapacity(size, minLoad, maxLoad));
+    }
+
+    protected int chooseShrinkCapacity(int size, double minLoad, double maxLoad) {
+        return powerOfTwoCapacity(super.chooseShrinkCapacity(size, minLoad, maxLoad));
+    }
+
+    /**
+     * Returns the smallest power of two capacity that is not less than the
+     * given capacity.
+     */
+    protected static int powerOfTwoCapacity(int capacity) {
+        if (capacity >= MAX_CAPACITY)
+            return MAX_CAPACITY;
+        int c = 2;
+        while (c < capacity)
+            c <<= 1;
+        return c;
+    }
+
+    /**
+     * Returns a well distributed hash of the given key; only its low bits are
+     * used to select the home slot.
+     */
+    protected static int hash(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Inserts a key that is not contained in the receiver, starting at slot
+     * <tt>i</tt>, which is <tt>dist</tt> slots away from the key's home slot.
+     */
+    protected void insert(int key, double value, int i, int dist) {
+        final int tab[] = table;
+        final double val[] = values;
+        final int m = mask;
+        for (;; dist++) {
+            final int k = tab[i];
+            if (k == FREE) {
+                tab[i] = key;
+                val[i] = value;
+                return;
+            }
+            final int d = (i - hash(k)) & m;
+            if (d < dist) {
+                // the resident is closer to its home slot; take its place and
+                // move it further down the cluster instead
+                final double v = val[i];
+                tab[i] = key;
+                val[i] = value;
+                key = k;
+                value = v;
+                dist = d;
+            }
+            i = (i + 1) & m;
+        }
+    }
+
+    /**
+     * Rehashes the contents of the receiver into a new table with a smaller or
+     * larger capacity. This method is called automatically when the number of
+     * keys in the receiver exceeds the high water mark or falls below the low
+     * water mark.
+     */
+    protected void rehash(int newCapacity) {
+        newCapacity = fitCapacity(newCapacity);
+        final int oldTable[] = table;
+        final double oldValues[] = values;
+
+        this.table = new int[newCapacity];
+        this.values = new double[newCapacity];
+        this.mask = newCapacity - 1;
+        this.lowWaterMark = chooseLowWaterMark(newCapacity, this.minLoadFactor);
+        this.highWaterMark = chooseHighWaterMark(newCapacity, this.maxLoadFactor);
+
+        final int m = mask;
+        for (int i = oldTable.length; i-- > 0;) {
+            final int key = oldTable[i];
+            if (key != FREE)
+                insert(key, oldValues[i], hash(key) & m, 0);
+        }
+    }
+
+    /**
+     * Initializes the receiver.
+     * 
+     * @param initialCapacity
+     *            the initial capacity of the receiver.
+     * @param minLoadFactor
+     *            the minLoadFactor of the receiver.
+     * @param maxLoadFactor
+     *            the maxLoadFactor of the receiver.
+     * @throws IllegalArgumentException
+     *             if
+     * 
+     *             <tt>initialCapacity < 0 || (minLoadFactor < 0.0 || minLoadFactor >= 1.0) || (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) || (minLoadFactor >= maxLoadFactor)</tt>
+     *             .
+     */
+    protected void setUp(int initialCapacity, double minLoadFactor, double maxLoadFactor) {
+        super.setUp(initialCapacity, minLoadFactor, maxLoadFactor);
+        int capacity = powerOfTwoCapacity(initialCapacity);
+
+        this.table = new int[capacity];
+        this.values = new double[capacity];
+        this.mask = capacity - 1;
+        this.minLoadFactor = minLoadFactor;
+        this.maxLoadFactor = maxLoadFactor;
+        this.hasFreeKey = false;
+        this.freeKeyValue = 0;
+        this.distinct = 0;
+
+        // lowWaterMark will be established upon first expansion, see
+        // OpenIntDoubleHashMap.setUp(...)
+        this.lowWaterMark = 0;
+        this.highWaterMark = chooseHighWaterMark(capacity, this.maxLoadFactor);
+    }
+
+    /**
+     * Returns the given capacity, doubled as often as needed to hold one more
+     * than the current number of associations below the high water mark.
+     */
+    private int fitCapacity(int capacity) {
+        while (capacity < MAX_CAPACITY && chooseHighWaterMark(capacity, this.maxLoadFactor) <= this.distinct)
+            capacity <<= 1;
+        return capacity;
+    }
+}
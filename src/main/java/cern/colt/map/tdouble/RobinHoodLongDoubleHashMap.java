@@ -0,0 +1,724 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.map.tdouble;
+
+import java.util.Arrays;
+
+import cern.colt.function.tdouble.LongDoubleProcedure;
+import cern.colt.function.tlong.LongProcedure;
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tlong.LongArrayList;
+
+/**
+ * Hash map holding (key,value) associations of type <tt>(long-->double)</tt>;
+ * Automatically grows and shrinks as needed; Implemented using open addressing
+ * with Robin Hood linear probing. First see the <a
+ * href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * The capacity of the table is always a power of two, so that the home slot of
+ * a key is found by masking its hash instead of by an integer division. Keys
+ * and values are stored next to each other in a single <tt>long[]</tt> (the
+ * value as its raw <tt>double</tt> bits), so that a probe touches one cache
+ * line instead of three arrays. There is no state array: a slot is free if its
+ * key is <tt>0</tt>, and the association of the key <tt>0</tt> itself is kept
+ * outside of the table.
+ * <p>
+ * On insertion, an entry that is further away from its home slot than the
+ * resident entry takes over the slot, and the resident moves on ("Robin Hood"
+ * hashing). This keeps probe sequences short and of similar length even at
+ * high load factors, and lets unsuccessful lookups stop as soon as they meet an
+ * entry that is closer to its home than the key searched for. Removal shifts
+ * the following entries of the cluster back by one slot, so that no tombstones
+ * are left behind and lookups never slow down because of earlier removals.
+ * <p>
+ * The map is a drop-in replacement for {@link OpenLongDoubleHashMap}, for
+ * example as the backing store of a
+ * {@link cern.colt.matrix.tdouble.impl.SparseDoubleMatrix2D}. Load factors up to
+ * about <tt>0.9</tt> are practical.
+ * 
+ * @see OpenLongDoubleHashMap
+ */
+public class RobinHoodLongDoubleHashMap extends AbstractLongDoubleMap {
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The hash table; the key of slot <tt>i</tt> is stored at
+     * <tt>table[2*i]</tt> and the raw bits of its value at
+     * <tt>table[2*i+1]</tt>.
+     * 
+     * @serial
+     */
+    protected long table[];
+
+    /**
+     * The capacity of the table minus one.
+     * 
+     * @serial
+     */
+    protected int mask;
+
+    /**
+     * Whether the receiver contains the key <tt>FREE</tt>.
+     * 
+     * @serial
+     */
+    protected boolean hasFreeKey;
+
+    /**
+     * The value associated with the key <tt>FREE</tt>, if any.
+     * 
+     * @serial
+     */
+    protected double freeKeyValue;
+
+    /**
+     * The key marking a free slot.
+     */
+    protected static final long FREE = 0;
+
+    /**
+     * The largest possible capacity.
+     */
+    protected static final int MAX_CAPACITY = 1 << 29;
+
+    /**
+     * Constructs an empty map with default capacity and default load factors.
+     */
+    public RobinHoodLongDoubleHashMap() {
+        this(defaultCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and default
+     * load factors.
+     * 
+     * @param initialCapacity
+     *            the initial capacity of the map.
+     * @throws IllegalArgumentException
+     *             if the initial capacity is less than zero.
+     */
+    public RobinHoodLongDoubleHashMap(int initialCapacity) {
+        this(initialCapacity, defaultMinLoadFactor, defaultMaxLoadFactor);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * specified minimum and maximum load factor.
+     * 
+     * @param initialCapacity
+     *            the initial capacity.
+     * @param minLoadFactor
+     *            the minimum load factor.
+     * @param maxLoadFactor
+     *            the maximum load factor.
+     * @throws IllegalArgumentException
+     *             if
+     * 
+     *             <tt>initialCapacity < 0 || (minLoadFactor < 0.0 || minLoadFactor >= 1.0) || (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) || (minLoadFactor >= maxLoadFactor)</tt>
+     *             .
+     */
+    public RobinHoodLongDoubleHashMap(int initialCapacity, double minLoadFactor, double maxLoadFactor) {
+        setUp(initialCapacity, minLoadFactor, maxLoadFactor);
+    }
+
+    /**
+     * Assigns the result of a function to each value;
+     * <tt>v[i] = function(v[i])</tt>.
+     * 
+     * @param function
+     *            a function object taking as argument the current association's
+     *            value.
+     */
+    public void assign(cern.colt.function.tdouble.DoubleFunction function) {
+        final long tab[] = table;
+        // specialization for speed
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            double multiplicator = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (multiplicator == 1)
+                return;
+            if (multiplicator == 0) {
+                clear();
+                return;
+            }
+            for (int i = tab.length - 2; i >= 0; i -= 2) {
+                if (tab[i] != FREE)
+                    tab[i + 1] = Double.doubleToRawLongBits(Double.longBitsToDouble(tab[i + 1]) * multiplicator);
+            }
+            freeKeyValue *= multiplicator;
+        } else { // the general case x[i] = f(x[i])
+            for (int i = tab.length - 2; i >= 0; i -= 2) {
+                if (tab[i] != FREE)
+                    tab[i + 1] = Double.doubleToRawLongBits(function.apply(Double.longBitsToDouble(tab[i + 1])));
+            }
+            if (hasFreeKey)
+                freeKeyValue = function.apply(freeKeyValue);
+        }
+    }
+
+    /**
+     * Clears the receiver, then adds all (key,value) pairs of <tt>other</tt>
+     * values to it.
+     * 
+     * @param other
+     *            the other map to be copied into the receiver.
+     */
+    public void assign(AbstractLongDoubleMap other) {
+        if (!(other instanceof RobinHoodLongDoubleHashMap)) {
+            super.assign(other);
+            return;
+        }
+        RobinHoodLongDoubleHashMap source = (RobinHoodLongDoubleHashMap) other;
+        RobinHoodLongDoubleHashMap copy = (RobinHoodLongDoubleHashMap) source.copy();
+        this.table = copy.table;
+        this.mask = copy.mask;
+        this.hasFreeKey = copy.hasFreeKey;
+        this.freeKeyValue = copy.freeKeyValue;
+        this.distinct = copy.distinct;
+        this.lowWaterMark = copy.lowWaterMark;
+        this.highWaterMark = copy.highWaterMark;
+        this.minLoadFactor = copy.minLoadFactor;
+        this.maxLoadFactor = copy.maxLoadFactor;
+    }
+
+    /**
+     * Removes all (key,value) associations from the receiver. Implicitly calls
+     * <tt>trimToSize()</tt>.
+     */
+    public void clear() {
+        Arrays.fill(this.table, 0);
+        this.hasFreeKey = false;
+        this.freeKeyValue = 0;
+        this.distinct = 0;
+        trimToSize();
+    }
+
+    /**
+     * Returns a deep copy of the receiver.
+     * 
+     * @return a deep copy of the receiver.
+     */
+    public Object clone() {
+        RobinHoodLongDoubleHashMap copy = (RobinHoodLongDoubleHashMap) super.clone();
+        copy.table = copy.table.clone();
+        return copy;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the receiver contains the specified key.
+     * 
+     * @return <tt>true</tt> if the receiver contains the specified key.
+     */
+    public boolean containsKey(long key) {
+        if (key == FREE)
+            return hasFreeKey;
+        return indexOfKey(key) >= 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the receiver contains the specified value.
+     * 
+     * @return <tt>true</tt> if the receiver contains the specified value.
+     */
+    public boolean containsValue(double value) {
+        if (hasFreeKey && freeKeyValue == value)
+            return true;
+        return indexOfValue(value) >= 0;
+    }
+
+    /**
+     * Ensures that the receiver can hold at least the specified number of
+     * associations without needing to allocate new internal memory. If
+     * necessary, allocates new internal memory and increases the capacity of
+     * the receiver.
+     * <p>
+     * This method never need be called; it is for performance tuning only.
+     * Calling this method before <tt>put()</tt>ing a large number of
+     * associations boosts performance, because the receiver will grow only once
+     * instead of potentially many times and hash collisions get less probable.
+     * 
+     * @param minCapacity
+     *            the desired minimum capacity.
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (mask + 1 < minCapacity) {
+            rehash(powerOfTwoCapacity(minCapacity));
+        }
+    }
+
+    /**
+     * Applies a procedure to each key of the receiver, if any. Note: Iterates
+     * over the keys in no particular order. Subclasses can define a particular
+     * order, for example, "sorted by key". All methods which <i>can</i> be
+     * expressed in terms of this method (most methods can) <i>must
+     * guarantee</i> to use the <i>same</i> order defined by this method, even
+     * if it is no particular order. This is necessary so that, for example,
+     * methods <tt>keys</tt> and <tt>values</tt> will yield association pairs,
+     * not two uncorrelated lists.
+     * 
+     * @param procedure
+     *            the procedure to be applied. Stops iteration if the procedure
+     *            returns <tt>false</tt>, otherwise continues.
+     * @return <tt>false</tt> if the procedure stopped before all keys where
+     *         iterated over, <tt>true</tt> otherwise.
+     */
+    public boolean forEachKey(LongProcedure procedure) {
+        if (hasFreeKey && !procedure.apply(FREE))
+            return false;
+        final long tab[] = table;
+        for (int i = tab.length - 2; i >= 0; i -= 2) {
+            if (tab[i] != FREE)
+                if (!procedure.apply(tab[i]))
+                    return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies a procedure to each (key,value) pair of the receiver, if any.
+     * Iteration order is guaranteed to be <i>identical</i> to the order used by
+     * method {@link #forEachKey(LongProcedure)}.
+     * 
+     * @param procedure
+     *            the procedure to be applied. Stops iteration if the procedure
+     *            returns <tt>false</tt>, otherwise continues.
+     * @return <tt>false</tt> if the procedure stopped before all keys where
+     *         iterated over, <tt>true</tt> otherwise.
+     */
+    public boolean forEachPair(final LongDoubleProcedure procedure) {
+        if (hasFreeKey && !procedure.apply(FREE, freeKeyValue))
+            return false;
+        final long tab[] = table;
+        for (int i = tab.length - 2; i >= 0; i -= 2) {
+            if (tab[i] != FREE)
+                if (!procedure.apply(tab[i], Double.longBitsToDouble(tab[i + 1])))
+                    return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value associated with the specified key. It is often a good
+     * idea to first check with {@link #containsKey(long)} whether the given key
+     * has a value associated or not, i.e. whether there exists an association
+     * for the given key or not.
+     * 
+     * @param key
+     *            the key to be searched for.
+     * @return the value associated with the specified key; <tt>0</tt> if no
+     *         such key is present.
+     */
+    public double get(long key) {
+        if (key == FREE)
+            return freeKeyValue;
+        final long tab[] = table;
+        final int m = mask;
+        int i = hash(key) & m;
+        for (int dist = 0;; dist++) {
+            final long k = tab[i << 1];
+            if (k == key)
+                return Double.longBitsToDouble(tab[(i << 1) + 1]);
+            if (k == FREE || ((i - hash(k)) & m) < dist)
+                return 0; // not contained
+            i = (i + 1) & m;
+        }
+    }
+
+    /**
+     * @param key
+     *            the key to be searched in the receiver; must not be
+     *            <tt>FREE</tt>.
+     * @return the slot where the key is contained in the receiver, else returns
+     *         -1.
+     */
+    protected int indexOfKey(long key) {
+        final long tab[] = table;
+        final int m = mask;
+        int i = hash(key) & m;
+        // stop at a free slot, or at an entry that is closer to its home slot
+        // than the key would be; the key cannot come after such an entry
+        for (int dist = 0;; dist++) {
+            final long k = tab[i << 1];
+            if (k == key)
+                return i;
+            if (k == FREE || ((i - hash(k)) & m) < dist)
+                return -1; // not found
+            i = (i + 1) & m;
+        }
+    }
+
+    /**
+     * @param value
+     *            the value to be searched in the receiver.
+     * @return the slot where the value is contained in the receiver, returns
+     *         -1 if the value was not found.
+     */
+    protected int indexOfValue(double value) {
+        final long tab[] = table;
+        for (int i = tab.length - 2; i >= 0; i -= 2) {
+            if (tab[i] != FREE && Double.longBitsToDouble(tab[i + 1]) == value)
+                return i >> 1;
+        }
+        return -1; // not found
+    }
+
+    /**
+     * Returns the first key the given value is associated with. It is often a
+     * good idea to first check with {@link #containsValue(double)} whether
+     * there exists an association from a key to this value. Search order is
+     * guaranteed to be <i>identical</i> to the order used by method
+     * {@link #forEachKey(LongProcedure)}.
+     * 
+     * @param value
+     *            the value to search for.
+     * @return the first key for which holds <tt>get(key) == value</tt>; returns
+     *         <tt>Long.MIN_VALUE</tt> if no such key exists.
+     */
+    public long keyOf(double value) {
+        if (hasFreeKey && freeKeyValue == value)
+            return FREE;
+        int i = indexOfValue(value);
+        if (i < 0)
+            return Long.MIN_VALUE;
+        return table[i << 1];
+    }
+
+    /**
+     * Fills all keys contained in the receiver into the specified list. Fills
+     * the list, starting at index 0. After this call returns the specified list
+     * has a new size that equals <tt>this.size()</tt>. Iteration order is
+     * guaranteed to be <i>identical</i> to the order used by method
+     * {@link #forEachKey(LongProcedure)}.
+     * <p>
+     * This method can be used to iterate over the keys of the receiver.
+     * 
+     * @param list
+     *            the list to be filled, can have any size.
+     */
+    public void keys(LongArrayList list) {
+        list.setSize(distinct);
+        long[] elements = list.elements();
+        int j = 0;
+        if (hasFreeKey)
+            elements[j++] = FREE;
+        final long tab[] = table;
+        for (int i = tab.length - 2; i >= 0; i -= 2) {
+            if (tab[i] != FREE)
+                elements[j++] = tab[i];
+        }
+    }
+
+    /**
+     * Fills all pairs satisfying a given condition into the specified lists.
+     * Fills into the lists, starting at index 0. After this call returns the
+     * specified lists both have a new size, the number of pairs satisfying the
+     * condition. Iteration order is guaranteed to be <i>identical</i> to the
+     * order used by method {@link #forEachKey(LongProcedure)}.
+     * 
+     * @param condition
+     *            the condition to be matched. Takes the current key as first
+     *            and the current value as second argument.
+     * @param keyList
+     *            the list to be filled with keys, can have any size.
+     * @param valueList
+     *            the list to be filled with values, can have any size.
+     */
+    public void pairsMatching(final LongDoubleProcedure condition, final LongArrayList keyList,
+            final DoubleArrayList valueList) {
+        keyList.clear();
+        valueList.clear();
+        if (hasFreeKey && condition.apply(FREE, freeKeyValue)) {
+            keyList.add(FREE);
+            valueList.add(freeKeyValue);
+        }
+        final long tab[] = table;
+        for (int i = tab.length - 2; i >= 0; i -= 2) {
+            if (tab[i] != FREE) {
+                double value = Double.longBitsToDouble(tab[i + 1]);
+                if (condition.apply(tab[i], value)) {
+                    keyList.add(tab[i]);
+                    valueList.add(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Associates the given key with the given value. Replaces any old
+     * <tt>(key,someOtherValue)</tt> association, if existing.
+     * 
+     * @param key
+     *            the key the value shall be associated with.
+     * @param value
+     *            the value to be associated.
+     * @return <tt>true</tt> if the receiver did not already contain such a key;
+     *         <tt>false</tt> if the receiver did already contain such a key -
+     *         the new value has now replaced the formerly associated value.
+     */
+    public boolean put(long key, double value) {
+        if (key == FREE) {
+            this.freeKeyValue = value;
+            if (this.hasFreeKey)
+                return false;
+            this.hasFreeKey = true;
+            this.distinct++;
+            return true;
+        }
+
+        final long tab[] = table;
+        final int m = mask;
+        int i = hash(key) & m;
+        int dist = 0;
+        for (;; dist++) {
+            final long k = tab[i << 1];
+            if (k == key) { // already contained
+                tab[(i << 1) + 1] = Double.doubleToRawLongBits(value);
+                return false;
+            }
+            if (k == FREE || ((i - hash(k)) & m) < dist)
+                break; // not contained, belongs to slot i
+            i = (i + 1) & m;
+        }
+
+        if (this.distinct >= this.highWaterMark) {
+            rehash(chooseGrowCapacity(this.distinct + 1, this.minLoadFactor, this.maxLoadFactor));
+            i = hash(key) & mask;
+            dist = 0;
+        }
+        insert(key, Double.doubleToRawLongBits(value), i, dist);
+        this.distinct++;
+        return true;
+    }
+
+    /**
+     * Removes the given key with its associated element from the receiver, if
+     * present.
+     * 
+     * @param key
+     *            the key to be removed from the receiver.
+     * @return <tt>true</tt> if the receiver contained the specified key,
+     *         <tt>false</tt> otherwise.
+     */
+    public boolean removeKey(long key) {
+        if (key == FREE) {
+            if (!this.hasFreeKey)
+                return false;
+            this.hasFreeKey = false;
+            this.freeKeyValue = 0;
+        } else {
+            int i = indexOfKey(key);
+            if (i < 0)
+                return false; // key not contained
+
+            // backward shift deletion: move the rest of the cluster one slot
+            // closer to home until an empty slot or an entry at its home slot
+            final long tab[] = table;
+            final int m = mask;
+            int j = (i + 1) & m;
+            for (;;) {
+                final long k = tab[j << 1];
+                if (k == FREE || ((j - hash(k)) & m) == 0)
+                    break;
+                tab[i << 1] = k;
+                tab[(i << 1) + 1] = tab[(j << 1) + 1];
+                i = j;
+                j = (j + 1) & m;
+            }
+            tab[i << 1] = FREE;
+            tab[(i << 1) + 1] = 0;
+        }
+        this.distinct--;
+
+        if (this.distinct < this.lowWaterMark) {
+            int newCapacity = chooseShrinkCapacity(this.distinct, this.minLoadFactor, this.maxLoadFactor);
+            if (newCapacity < mask + 1)
+                rehash(newCapacity);
+            else
+                this.lowWaterMark = chooseLowWaterMark((mask + 1) >> 1, this.minLoadFactor);
+        }
+        return true;
+    }
+
+    /**
+     * Trims the capacity of the receiver to be the receiver's current size.
+     * Releases any superfluous internal memory. An application can use this
+     * operation to minimize the storage of the receiver.
+     */
+    public void trimToSize() {
+        int newCapacity = fitCapacity(powerOfTwoCapacity((int) (1 + 1.2 * size())));
+        if (mask + 1 > newCapacity) {
+            rehash(newCapacity);
+        }
+    }
+
+    /**
+     * Fills all values contained in the receiver into the specified list. Fills
+     * the list, starting at index 0. After this call returns the specified list
+     * has a new size that equals <tt>this.size()</tt>. Iteration order is
+     * guaranteed to be <i>identical</i> to the order used by method
+     * {@link #forEachKey(LongProcedure)}.
+     * <p>
+     * This method can be used to iterate over the values of the receiver.
+     * 
+     * @param list
+     *            the list to be filled, can have any size.
+     */
+    public void values(DoubleArrayList list) {
+        list.setSize(distinct);
+        double[] elements = list.elements();
+        int j = 0;
+        if (hasFreeKey)
+            elements[j++] = freeKeyValue;
+        final long tab[] = table;
+        for (int i = tab.length - 2; i >= 0; i -= 2) {
+            if (tab[i] != FREE)
+                elements[j++] = Double.longBitsToDouble(tab[i + 1]);
+        }
+    }
+
+    protected int chooseGrowCapacity(int size, double minLoad, double maxLoad) {
+        return powerOfTwoCapacity(super.chooseGrowCapacity(size, minLoad, maxLoad));
+    }
+
+    protected int chooseMeanCapacity(int size, double minLoad, double maxLoad) {
+        return powerOfTwoCapacity(super.chooseMeanCapacity(size, minLoad, maxLoad));
+    }
+
+    protected int chooseShrinkCapacity(int size, double minLoad, double maxLoad) {
+        return powerOfTwoCapacity(super.chooseShrinkCapacity(size, minLoad, maxLoad));
+    }
+
+    /**
+     * Returns the smallest power of two capacity that is not less than the
+     * given capacity.
+     */
+    protected static int powerOfTwoCapacity(int capacity) {
+        if (capacity >= MAX_CAPACITY)
+            return MAX_CAPACITY;
+        int c = 2;
+        while (c < capacity)
+            c <<= 1;
+        return c;
+    }
+
+    /**
+     * Returns a well distributed hash of the given key; only its low bits are
+     * used to select the home slot.
+     */
+    protected static int hash(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Inserts a key that is not contained in the receiver, starting at slot
+     * <tt>i</tt>, which is <tt>dist</tt> slots away from the key's home slot.
+     */
+    protected void insert(long key, long bits, int i, int dist) {
+        final long tab[] = table;
+        final int m = mask;
+        for (;; dist++) {
+            final int p = i << 1;
+            final long k = tab[p];
+            if (k == FREE) {
+                tab[p] = key;
+                tab[p + 1] = bits;
+                return;
+            }
+            final int d = (i - hash(k)) & m;
+            if (d < dist) {
+                // the resident is closer to its home slot; take its place and
+                // move it further down the cluster instead
+                final long v = tab[p + 1];
+                tab[p] = key;
+                tab[p + 1] = bits;
+                key = k;
+                bits = v;
+                dist = d;
+            }
+            i = (i + 1) & m;
+        }
+    }
+
+    /**
+     * Rehashes the contents of the receiver into a new table with a smaller or
+     * larger capacity. This method is called automatically when the number of
+     * keys in the receiver exceeds the high water mark or falls below the low
+     * water mark.
+     */
+    protected void rehash(int newCapacity) {
+        newCapacity = fitCapacity(newCapacity);
+        final long oldTable[] = table;
+
+        this.table = new long[2 * newCapacity];
+        this.mask = newCapacity - 1;
+        this.lowWaterMark = chooseLowWaterMark(newCapacity, this.minLoadFactor);
+        this.highWaterMark = chooseHighWaterMark(newCapacity, this.maxLoadFactor);
+
+        final int m = mask;
+        for (int i = oldTable.length - 2; i >= 0; i -= 2) {
+            final long key = oldTable[i];
+            if (key != FREE)
+                insert(key, oldTable[i + 1], hash(key) & m, 0);
+        }
+    }
+
+    /**
+     * Initializes the receiver.
+     * 
+     * @param initialCapacity
+     *            the initial capacity of the receiver.
+     * @param minLoadFactor
+     *            the minLoadFactor of the receiver.
+     * @param maxLoadFactor
+     *            the maxLoadFactor of the receiver.
+     * @throws IllegalArgumentException
+     *             if
+     * 
+     *             <tt>initialCapacity < 0 || (minLoadFactor < 0.0 || minLoadFactor >= 1.0) || (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) || (minLoadFactor >= maxLoadFactor)</tt>
+     *             .
+     */
+    protected void setUp(int initialCapacity, double minLoadFactor, double maxLoadFactor) {
+        super.setUp(initialCapacity, minLoadFactor, maxLoadFactor);
+        int capacity = powerOfTwoCapacity(initialCapacity);
+
+        this.table = new long[2 * capacity];
+        this.mask = capacity - 1;
+        this.minLoadFactor = minLoadFactor;
+        this.maxLoadFactor = maxLoadFactor;
+        this.hasFreeKey = false;
+        this.freeKeyValue = 0;
+        this.distinct = 0;
+
+        // lowWaterMark will be established upon first expansion, see
+        // OpenLongDoubleHashMap.setUp(...)
+        this.lowWaterMark = 0;
+        this.highWaterMark = chooseHighWaterMark(capacity, this.maxLoadFactor);
+    }
+
+    /**
+     * Returns the given capacity, doubled as often as needed to hold one more
+     * than the current number of associations below the high water mark.
+     */
+    private int fitCapacity(int capacity) {
+        while (capacity < MAX_CAPACITY && chooseHighWaterMark(capacity, this.maxLoadFactor) <= this.distinct)
+            capacity <<= 1;
+        return capacity;
+    }
+}
@@ -0,0 +1,712 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix;
+
+import java.util.concurrent.Future;
+
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Blocked, cache-oblivious and parallel copies between dense matrix layouts.
+ * <p>
+ * A matrix is described by its elements array, the index of its element
+ * <tt>(0,0)</tt>, and its row and column strides, as in the dense matrix
+ * implementations. Copying a row major matrix into a column major one (or a
+ * matrix into the dice view of another) reads along rows and writes along
+ * columns, so an element by element loop misses the cache on every write once
+ * a column no longer fits in it. The methods of this class instead split the
+ * matrix recursively along its larger dimension until a block has at most
+ * {@link #LEAF_SIZE} elements; the source and destination of such a block fit
+ * in the L1 cache whatever the strides, at every level of the cache
+ * hierarchy. Large matrices are split into bands of rows or columns, one per
+ * thread.
+ * <p>
+ * Complex matrices store each element as two consecutive values; their
+ * strides and zero indexes count values, not elements.
+ */
+public class DenseTranspose {
+
+    /**
+     * The maximum number of elements in a block copied by a single loop.
+     */
+    public static final int LEAF_SIZE = 1024;
+
+    /**
+     * Makes this class non instantiable, but still let's others inherit from
+     * it.
+     */
+    protected DenseTranspose() {
+    }
+
+    /**
+     * Copies a <tt>rows x columns</tt> matrix into another. The two matrices
+     * must not share cells.
+     *
+     * @param src
+     *            the elements of the source
+     * @param srcZero
+     *            the index of element <tt>(0,0)</tt> of the source
+     * @param srcRowStride
+     *            the row stride of the source
+     * @param srcColumnStride
+     *            the column stride of the source
+     * @param dst
+     *            the elements of the destination
+     * @param dstZero
+     *            the index of element <tt>(0,0)</tt> of the destination
+     * @param dstRowStride
+     *            the row stride of the destination
+     * @param dstColumnStride
+     *            the column stride of the destination
+     * @param rows
+     *            the number of rows
+     * @param columns
+     *            the number of columns
+     */
+    public static void copy(final double[] src, final int srcZero, final int srcRowStride, final int srcColumnStride,
+            final double[] dst, final int dstZero, final int dstRowStride, final int dstColumnStride, int rows,
+            int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                int idxDst = dstZero + firstRow * dstRowStride + firstColumn * dstColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    for (int i = idxSrc, j = idxDst, c = firstColumn; c < lastColumn; c++) {
+                        dst[j] = src[i];
+                        i += srcColumnStride;
+                        j += dstColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                    idxDst += dstRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a <tt>rows x columns</tt> matrix into another. The two matrices
+     * must not share cells.
+     *
+     * @see #copy(double[], int, int, int, double[], int, int, int, int, int)
+     */
+    public static void copy(final float[] src, final int srcZero, final int srcRowStride, final int srcColumnStride,
+            final float[] dst, final int dstZero, final int dstRowStride, final int dstColumnStride, int rows,
+            int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                int idxDst = dstZero + firstRow * dstRowStride + firstColumn * dstColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    for (int i = idxSrc, j = idxDst, c = firstColumn; c < lastColumn; c++) {
+                        dst[j] = src[i];
+                        i += srcColumnStride;
+                        j += dstColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                    idxDst += dstRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a <tt>rows x columns</tt> matrix into another. The two matrices
+     * must not share cells.
+     *
+     * @see #copy(double[], int, int, int, double[], int, int, int, int, int)
+     */
+    public static void copy(final int[] src, final int srcZero, final int srcRowStride, final int srcColumnStride,
+            final int[] dst, final int dstZero, final int dstRowStride, final int dstColumnStride, int rows,
+            int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                int idxDst = dstZero + firstRow * dstRowStride + firstColumn * dstColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    for (int i = idxSrc, j = idxDst, c = firstColumn; c < lastColumn; c++) {
+                        dst[j] = src[i];
+                        i += srcColumnStride;
+                        j += dstColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                    idxDst += dstRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a <tt>rows x columns</tt> matrix into another. The two matrices
+     * must not share cells.
+     *
+     * @see #copy(double[], int, int, int, double[], int, int, int, int, int)
+     */
+    public static void copy(final long[] src, final int srcZero, final int srcRowStride, final int srcColumnStride,
+            final long[] dst, final int dstZero, final int dstRowStride, final int dstColumnStride, int rows,
+            int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                int idxDst = dstZero + firstRow * dstRowStride + firstColumn * dstColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    for (int i = idxSrc, j = idxDst, c = firstColumn; c < lastColumn; c++) {
+                        dst[j] = src[i];
+                        i += srcColumnStride;
+                        j += dstColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                    idxDst += dstRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a <tt>rows x columns</tt> matrix into another. The two matrices
+     * must not share cells.
+     *
+     * @see #copy(double[], int, int, int, double[], int, int, int, int, int)
+     */
+    public static void copy(final Object[] src, final int srcZero, final int srcRowStride, final int srcColumnStride,
+            final Object[] dst, final int dstZero, final int dstRowStride, final int dstColumnStride, int rows,
+            int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                int idxDst = dstZero + firstRow * dstRowStride + firstColumn * dstColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    for (int i = idxSrc, j = idxDst, c = firstColumn; c < lastColumn; c++) {
+                        dst[j] = src[i];
+                        i += srcColumnStride;
+                        j += dstColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                    idxDst += dstRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a <tt>rows x columns</tt> complex matrix into another. The two
+     * matrices must not share cells.
+     *
+     * @see #copy(double[], int, int, int, double[], int, int, int, int, int)
+     */
+    public static void copyComplex(final double[] src, final int srcZero, final int srcRowStride,
+            final int srcColumnStride, final double[] dst, final int dstZero, final int dstRowStride,
+            final int dstColumnStride, int rows, int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                int idxDst = dstZero + firstRow * dstRowStride + firstColumn * dstColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    for (int i = idxSrc, j = idxDst, c = firstColumn; c < lastColumn; c++) {
+                        dst[j] = src[i];
+                        dst[j + 1] = src[i + 1];
+                        i += srcColumnStride;
+                        j += dstColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                    idxDst += dstRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a <tt>rows x columns</tt> complex matrix into another. The two
+     * matrices must not share cells.
+     *
+     * @see #copy(double[], int, int, int, double[], int, int, int, int, int)
+     */
+    public static void copyComplex(final float[] src, final int srcZero, final int srcRowStride,
+            final int srcColumnStride, final float[] dst, final int dstZero, final int dstRowStride,
+            final int dstColumnStride, int rows, int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                int idxDst = dstZero + firstRow * dstRowStride + firstColumn * dstColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    for (int i = idxSrc, j = idxDst, c = firstColumn; c < lastColumn; c++) {
+                        dst[j] = src[i];
+                        dst[j + 1] = src[i + 1];
+                        i += srcColumnStride;
+                        j += dstColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                    idxDst += dstRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a matrix into a 2-dimensional array, as in <tt>toArray()</tt>.
+     *
+     * @param src
+     *            the elements of the source
+     * @param srcZero
+     *            the index of element <tt>(0,0)</tt> of the source
+     * @param srcRowStride
+     *            the row stride of the source
+     * @param srcColumnStride
+     *            the column stride of the source
+     * @param dst
+     *            the destination, of shape at least
+     *            <tt>dst.length==rows, dst[row].length==columns</tt>
+     * @param rows
+     *            the number of rows
+     * @param columns
+     *            the number of columns
+     */
+    public static void copy(final double[] src, final int srcZero, final int srcRowStride, final int srcColumnStride,
+            final double[][] dst, int rows, int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    double[] currentRow = dst[r];
+                    for (int i = idxSrc, c = firstColumn; c < lastColumn; c++) {
+                        currentRow[c] = src[i];
+                        i += srcColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a matrix into a 2-dimensional array, as in <tt>toArray()</tt>.
+     *
+     * @see #copy(double[], int, int, int, double[][], int, int)
+     */
+    public static void copy(final float[] src, final int srcZero, final int srcRowStride, final int srcColumnStride,
+            final float[][] dst, int rows, int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    float[] currentRow = dst[r];
+                    for (int i = idxSrc, c = firstColumn; c < lastColumn; c++) {
+                        currentRow[c] = src[i];
+                        i += srcColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a matrix into a 2-dimensional array, as in <tt>toArray()</tt>.
+     *
+     * @see #copy(double[], int, int, int, double[][], int, int)
+     */
+    public static void copy(final int[] src, final int srcZero, final int srcRowStride, final int srcColumnStride,
+            final int[][] dst, int rows, int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    int[] currentRow = dst[r];
+                    for (int i = idxSrc, c = firstColumn; c < lastColumn; c++) {
+                        currentRow[c] = src[i];
+                        i += srcColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a matrix into a 2-dimensional array, as in <tt>toArray()</tt>.
+     *
+     * @see #copy(double[], int, int, int, double[][], int, int)
+     */
+    public static void copy(final long[] src, final int srcZero, final int srcRowStride, final int srcColumnStride,
+            final long[][] dst, int rows, int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    long[] currentRow = dst[r];
+                    for (int i = idxSrc, c = firstColumn; c < lastColumn; c++) {
+                        currentRow[c] = src[i];
+                        i += srcColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a matrix into a 2-dimensional array, as in <tt>toArray()</tt>.
+     *
+     * @see #copy(double[], int, int, int, double[][], int, int)
+     */
+    public static void copy(final Object[] src, final int srcZero, final int srcRowStride, final int srcColumnStride,
+            final Object[][] dst, int rows, int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    Object[] currentRow = dst[r];
+                    for (int i = idxSrc, c = firstColumn; c < lastColumn; c++) {
+                        currentRow[c] = src[i];
+                        i += srcColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a complex matrix into a 2-dimensional array, as in
+     * <tt>toArray()</tt>: element <tt>(r,c)</tt> goes to
+     * <tt>dst[r][2*c]</tt> and <tt>dst[r][2*c+1]</tt>.
+     *
+     * @see #copy(double[], int, int, int, double[][], int, int)
+     */
+    public static void copyComplex(final double[] src, final int srcZero, final int srcRowStride,
+            final int srcColumnStride, final double[][] dst, int rows, int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    double[] currentRow = dst[r];
+                    for (int i = idxSrc, c = firstColumn; c < lastColumn; c++) {
+                        currentRow[2 * c] = src[i];
+                        currentRow[2 * c + 1] = src[i + 1];
+                        i += srcColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Copies a complex matrix into a 2-dimensional array, as in
+     * <tt>toArray()</tt>: element <tt>(r,c)</tt> goes to
+     * <tt>dst[r][2*c]</tt> and <tt>dst[r][2*c+1]</tt>.
+     *
+     * @see #copy(double[], int, int, int, double[][], int, int)
+     */
+    public static void copyComplex(final float[] src, final int srcZero, final int srcRowStride,
+            final int srcColumnStride, final float[][] dst, int rows, int columns) {
+        run(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                int idxSrc = srcZero + firstRow * srcRowStride + firstColumn * srcColumnStride;
+                for (int r = firstRow; r < lastRow; r++) {
+                    float[] currentRow = dst[r];
+                    for (int i = idxSrc, c = firstColumn; c < lastColumn; c++) {
+                        currentRow[2 * c] = src[i];
+                        currentRow[2 * c + 1] = src[i + 1];
+                        i += srcColumnStride;
+                    }
+                    idxSrc += srcRowStride;
+                }
+            }
+        }, rows, columns);
+    }
+
+    /**
+     * Transposes a square <tt>n x n</tt> matrix in place, swapping element
+     * <tt>(r,c)</tt> with element <tt>(c,r)</tt>.
+     *
+     * @param elements
+     *            the elements of the matrix
+     * @param zero
+     *            the index of element <tt>(0,0)</tt>
+     * @param rowStride
+     *            the row stride
+     * @param columnStride
+     *            the column stride
+     * @param n
+     *            the number of rows and columns
+     */
+    public static void transposeInPlace(final double[] elements, final int zero, final int rowStride,
+            final int columnStride, int n) {
+        runLower(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                for (int r = firstRow; r < lastRow; r++) {
+                    int end = Math.min(lastColumn, r);
+                    for (int i = zero + r * rowStride + firstColumn * columnStride, j = zero + firstColumn
+                            * rowStride + r * columnStride, c = firstColumn; c < end; c++) {
+                        double tmp = elements[i];
+                        elements[i] = elements[j];
+                        elements[j] = tmp;
+                        i += columnStride;
+                        j += rowStride;
+                    }
+                }
+            }
+        }, n);
+    }
+
+    /**
+     * Transposes a square <tt>n x n</tt> matrix in place.
+     *
+     * @see #transposeInPlace(double[], int, int, int, int)
+     */
+    public static void transposeInPlace(final float[] elements, final int zero, final int rowStride,
+            final int columnStride, int n) {
+        runLower(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                for (int r = firstRow; r < lastRow; r++) {
+                    int end = Math.min(lastColumn, r);
+                    for (int i = zero + r * rowStride + firstColumn * columnStride, j = zero + firstColumn
+                            * rowStride + r * columnStride, c = firstColumn; c < end; c++) {
+                        float tmp = elements[i];
+                        elements[i] = elements[j];
+                        elements[j] = tmp;
+                        i += columnStride;
+                        j += rowStride;
+                    }
+                }
+            }
+        }, n);
+    }
+
+    /**
+     * Transposes a square <tt>n x n</tt> matrix in place.
+     *
+     * @see #transposeInPlace(double[], int, int, int, int)
+     */
+    public static void transposeInPlace(final int[] elements, final int zero, final int rowStride,
+            final int columnStride, int n) {
+        runLower(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                for (int r = firstRow; r < lastRow; r++) {
+                    int end = Math.min(lastColumn, r);
+                    for (int i = zero + r * rowStride + firstColumn * columnStride, j = zero + firstColumn
+                            * rowStride + r * columnStride, c = firstColumn; c < end; c++) {
+                        int tmp = elements[i];
+                        elements[i] = elements[j];
+                        elements[j] = tmp;
+                        i += columnStride;
+                        j += rowStride;
+                    }
+                }
+            }
+        }, n);
+    }
+
+    /**
+     * Transposes a square <tt>n x n</tt> matrix in place.
+     *
+     * @see #transposeInPlace(double[], int, int, int, int)
+     */
+    public static void transposeInPlace(final long[] elements, final int zero, final int rowStride,
+            final int columnStride, int n) {
+        runLower(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                for (int r = firstRow; r < lastRow; r++) {
+                    int end = Math.min(lastColumn, r);
+                    for (int i = zero + r * rowStride + firstColumn * columnStride, j = zero + firstColumn
+                            * rowStride + r * columnStride, c = firstColumn; c < end; c++) {
+                        long tmp = elements[i];
+                        elements[i] = elements[j];
+                        elements[j] = tmp;
+                        i += columnStride;
+                        j += rowStride;
+                    }
+                }
+            }
+        }, n);
+    }
+
+    /**
+     * Transposes a square <tt>n x n</tt> matrix in place.
+     *
+     * @see #transposeInPlace(double[], int, int, int, int)
+     */
+    public static void transposeInPlace(final Object[] elements, final int zero, final int rowStride,
+            final int columnStride, int n) {
+        runLower(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                for (int r = firstRow; r < lastRow; r++) {
+                    int end = Math.min(lastColumn, r);
+                    for (int i = zero + r * rowStride + firstColumn * columnStride, j = zero + firstColumn
+                            * rowStride + r * columnStride, c = firstColumn; c < end; c++) {
+                        Object tmp = elements[i];
+                        elements[i] = elements[j];
+                        elements[j] = tmp;
+                        i += columnStride;
+                        j += rowStride;
+                    }
+                }
+            }
+        }, n);
+    }
+
+    /**
+     * Transposes a square <tt>n x n</tt> complex matrix in place. The elements
+     * are not conjugated.
+     *
+     * @see #transposeInPlace(double[], int, int, int, int)
+     */
+    public static void transposeInPlaceComplex(final double[] elements, final int zero, final int rowStride,
+            final int columnStride, int n) {
+        runLower(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                for (int r = firstRow; r < lastRow; r++) {
+                    int end = Math.min(lastColumn, r);
+                    for (int i = zero + r * rowStride + firstColumn * columnStride, j = zero + firstColumn
+                            * rowStride + r * columnStride, c = firstColumn; c < end; c++) {
+                        double re = elements[i];
+                        double im = elements[i + 1];
+                        elements[i] = elements[j];
+                        elements[i + 1] = elements[j + 1];
+                        elements[j] = re;
+                        elements[j + 1] = im;
+                        i += columnStride;
+                        j += rowStride;
+                    }
+                }
+            }
+        }, n);
+    }
+
+    /**
+     * Transposes a square <tt>n x n</tt> complex matrix in place. The elements
+     * are not conjugated.
+     *
+     * @see #transposeInPlace(double[], int, int, int, int)
+     */
+    public static void transposeInPlaceComplex(final float[] elements, final int zero, final int rowStride,
+            final int columnStride, int n) {
+        runLower(new Block() {
+            void run(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+                for (int r = firstRow; r < lastRow; r++) {
+                    int end = Math.min(lastColumn, r);
+                    for (int i = zero + r * rowStride + firstColumn * columnStride, j = zero + firstColumn
+                            * rowStride + r * columnStride, c = firstColumn; c < end; c++) {
+                        float re = elements[i];
+                        float im = elements[i + 1];
+                        elements[i] = elements[j];
+                        elements[i + 1] = elements[j + 1];
+                        elements[j] = re;
+                        elements[j + 1] = im;
+                        i += columnStride;
+                        j += rowStride;
+                    }
+                }
+            }
+        }, n);
+    }
+
+    /**
+     * A loop over the elements of a rectangular block.
+     */
+    private static abstract class Block {
+        abstract void run(int firstRow, int lastRow, int firstColumn, int lastColumn);
+    }
+
+    /**
+     * Runs a block loop over a <tt>rows x columns</tt> matrix, splitting it
+     * into bands along its larger dimension when it is large enough for
+     * threads.
+     */
+    private static void run(final Block block, final int rows, final int columns) {
+        if (rows == 0 || columns == 0) {
+            return;
+        }
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && ((long) rows * columns >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            final boolean byRows = rows >= columns;
+            final int n = byRows ? rows : columns;
+            nthreads = Math.min(nthreads, n);
+            Future<?>[] futures = new Future[nthreads];
+            int k = n / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int first = j * k;
+                final int last = (j == nthreads - 1) ? n : first + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        if (byRows) {
+                            recurse(block, first, last, 0, columns);
+                        } else {
+                            recurse(block, 0, rows, first, last);
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            recurse(block, 0, rows, 0, columns);
+        }
+    }
+
+    /**
+     * Runs a block loop over the strictly lower triangle of an <tt>n x n</tt>
+     * matrix. The block loop must skip the elements on or above the diagonal.
+     * The threads get bands of rows with triangles of equal area.
+     */
+    private static void runLower(final Block block, final int n) {
+        if (n < 2) {
+            return;
+        }
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && ((long) n * n >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, n);
+            Future<?>[] futures = new Future[nthreads];
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = (int) (n * Math.sqrt((double) j / nthreads));
+                final int lastRow = (j == nthreads - 1) ? n : (int) (n * Math.sqrt((double) (j + 1) / nthreads));
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        recurse(block, firstRow, lastRow, 0, firstRow);
+                        recurseLower(block, firstRow, lastRow);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            recurseLower(block, 0, n);
+        }
+    }
+
+    private static void recurse(Block block, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+        int m = lastRow - firstRow;
+        int n = lastColumn - firstColumn;
+        if ((long) m * n <= LEAF_SIZE) {
+            if (m > 0 && n > 0) {
+                block.run(firstRow, lastRow, firstColumn, lastColumn);
+            }
+        } else if (m >= n) {
+            int mid = firstRow + m / 2;
+            recurse(block, firstRow, mid, firstColumn, lastColumn);
+            recurse(block, mid, lastRow, firstColumn, lastColumn);
+        } else {
+            int mid = firstColumn + n / 2;
+            recurse(block, firstRow, lastRow, firstColumn, mid);
+            recurse(block, firstRow, lastRow, mid, lastColumn);
+        }
+    }
+
+    private static void recurseLower(Block block, int first, int last) {
+        int n = last - first;
+        if ((long) n * n <= 2 * LEAF_SIZE) {
+            if (n > 1) {
+                block.run(first, last, first, last);
+            }
+        } else {
+            int mid = first + n / 2;
+            recurseLower(block, first, mid);
+            recurse(block, mid, last, first, mid);
+            recurseLower(block, mid, last);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix;
+
+/**
+ * 16-bit floating-point formats, used by the matrices that store their
+ * elements in <tt>short</tt> arrays. Values are encoded with round to nearest,
+ * ties to even; values beyond the range of a format become infinite.
+ */
+public enum Float16Format {
+
+    /**
+     * IEEE 754 half precision: 5 exponent bits and 10 fraction bits; about 3
+     * significant decimal digits, magnitudes up to 65504
+     */
+    Half {
+        public float decode(short value) {
+            return HALF_TO_FLOAT[value & 0xffff];
+        }
+
+        public void decode(short[] src, int srcPos, float[] dest, int destPos, int length) {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = HALF_TO_FLOAT[src[srcPos + i] & 0xffff];
+            }
+        }
+
+        public short encode(float value) {
+            int bits = Float.floatToRawIntBits(value);
+            int sign = (bits >>> 16) & 0x8000;
+            int abs = bits & 0x7fffffff;
+            if (abs >= 0x7f800000) { // infinity or NaN
+                return (short) (sign | 0x7c00 | (abs > 0x7f800000 ? 0x200 | (abs >>> 13) & 0x3ff : 0));
+            }
+            if (abs >= 0x477ff000) { // rounds to a magnitude above 65504
+                return (short) (sign | 0x7c00);
+            }
+            if (abs < 0x33000000) { // rounds to zero
+                return (short) sign;
+            }
+            int h;
+            int shift;
+            int m;
+            if (abs < 0x38800000) { // subnormal
+                m = (abs & 0x7fffff) | 0x800000;
+                shift = 126 - (abs >>> 23);
+                h = m >>> shift;
+            } else {
+                m = abs;
+                shift = 13;
+                h = (abs - 0x38000000) >>> 13;
+            }
+            int rest = m & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (rest > halfway || (rest == halfway && (h & 1) != 0)) {
+                h++;
+            }
+            return (short) (sign | h);
+        }
+    },
+
+    /**
+     * Brain floating point: the upper half of an IEEE 754 single; 8 exponent
+     * bits and 7 fraction bits, about 2 to 3 significant decimal digits over
+     * the full range of <tt>float</tt>
+     */
+    BFloat16 {
+        public float decode(short value) {
+            return Float.intBitsToFloat(value << 16);
+        }
+
+        public void decode(short[] src, int srcPos, float[] dest, int destPos, int length) {
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = Float.intBitsToFloat(src[srcPos + i] << 16);
+            }
+        }
+
+        public short encode(float value) {
+            int bits = Float.floatToRawIntBits(value);
+            if ((bits & 0x7fffffff) > 0x7f800000) { // NaN; keep it quiet
+                return (short) ((bits >>> 16) | 0x40);
+            }
+            return (short) ((bits + 0x7fff + ((bits >>> 16) & 1)) >>> 16);
+        }
+    };
+
+    /*
+     * Decoded values of all half precision numbers.
+     */
+    private static final float[] HALF_TO_FLOAT = new float[1 << 16];
+
+    static {
+        for (int h = 0; h < HALF_TO_FLOAT.length; h++) {
+            int sign = (h & 0x8000) << 16;
+            int exponent = (h >>> 10) & 0x1f;
+            int fraction = h & 0x3ff;
+            float value;
+            if (exponent == 0x1f) {
+                value = Float.intBitsToFloat(sign | 0x7f800000 | (fraction << 13));
+            } else if (exponent != 0) {
+                value = Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (fraction << 13));
+            } else {
+                value = fraction * 0x1p-24f;
+                if (sign != 0) {
+                    value = -value;
+                }
+            }
+            HALF_TO_FLOAT[h] = value;
+        }
+    }
+
+    /**
+     * Returns the value represented by the given 16 bits.
+     * 
+     * @param value
+     *            the encoded value
+     * @return the decoded value
+     */
+    public abstract float decode(short value);
+
+    /**
+     * Decodes <tt>length</tt> values of <tt>src</tt>, starting at
+     * <tt>srcPos</tt>, into <tt>dest</tt>, starting at <tt>destPos</tt>.
+     * 
+     * @param src
+     *            the encoded values
+     * @param srcPos
+     *            the index of the first value to decode
+     * @param dest
+     *            the array where the decoded values are to be stored
+     * @param destPos
+     *            the index of the first decoded value in <tt>dest</tt>
+     * @param length
+     *            the number of values
+     */
+    public abstract void decode(short[] src, int srcPos, float[] dest, int destPos, int length);
+
+    /**
+     * Returns the 16-bit representation of the nearest value of this format.
+     * 
+     * @param value
+     *            the value to encode
+     * @return the encoded value
+     */
+    public abstract short encode(float value);
+}
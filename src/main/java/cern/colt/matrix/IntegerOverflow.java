@@ -0,0 +1,32 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix;
+
+/**
+ * What integer matrix products do with results that do not fit into the
+ * type of the result matrix.
+ */
+public enum IntegerOverflow {
+
+    /**
+     * The results wrap around, like the int and long arithmetic of Java
+     */
+    Wrap,
+
+    /**
+     * An <tt>ArithmeticException</tt> is thrown
+     */
+    Checked,
+
+    /**
+     * The results are clamped to the smallest or largest value of the type
+     */
+    Saturated,
+
+}
@@ -0,0 +1,38 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix;
+
+/**
+ * Boundary conditions of stencil operations: how the cells on the border of
+ * the grid are treated and which values stand for the cells outside of it.
+ */
+public enum StencilBoundary {
+
+    /**
+     * The cells on the border are not updated (Dirichlet conditions)
+     */
+    Fixed,
+
+    /**
+     * All cells are updated; the cells outside the grid are zero
+     */
+    Zero,
+
+    /**
+     * All cells are updated; the grid wraps around in every dimension
+     */
+    Periodic,
+
+    /**
+     * All cells are updated; a cell outside the grid has the value of the
+     * nearest cell on the border (zero-flux Neumann conditions)
+     */
+    Clamped,
+
+}
@@ -9,6 +9,13 @@ It is provided "as is" without expressed or implied warranty.
 package cern.colt.matrix.tbit;
 
 import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tint.IntMatrix2D;
+import cern.colt.matrix.tint.impl.DenseIntMatrix2D;
+import cern.colt.matrix.tint.impl.SparseRCIntMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
  * Fixed sized (non resizable) n*m bit matrix. A bit matrix has a number of
@@ -36,6 +43,12 @@ import java.awt.Rectangle;
  * is quick, it is even quicker (<b>but not safe</b>) to use
  * <tt>getQuick(...)</tt> and <tt>putQuick(...)</tt>.
  * <p>
+ * Bit matrices can be multiplied without converting them to integer matrices:
+ * <tt>zMult</tt> computes the boolean (OR-AND) product and
+ * <tt>zMultCount</tt> counts, for each pair of a row of the receiver and a
+ * column of the other matrix, the common bits. Both work on 64 bits at a time
+ * and split the rows of the result among several threads.
+ * <p>
  * <b>Note</b> that this implementation is not synchronized.
  * 
  * @author wolfgang.hoschek@cern.ch
@@ -58,6 +71,12 @@ public class BitMatrix extends cern.colt.PersistentObject {
      */
     protected long bits[];
 
+    /*
+     * The number of units of the lookup tables of the boolean product kept
+     * at a time (256 KB).
+     */
+    private static final int TABLE_UNITS = 1 << 15;
+
     /**
      * Constructs a bit matrix with a given number of columns and rows. All bits
      * are initially <tt>false</tt>.
@@ -73,6 +92,42 @@ public class BitMatrix extends cern.colt.PersistentObject {
         elements(QuickBitVector.makeBitVector(columns * rows, 1), columns, rows);
     }
 
+    /**
+     * Constructs a bit matrix from a pattern in compressed row storage: the
+     * bits <tt>[columnIndexes[p],row]</tt> with
+     * <tt>rowPointers[row] &lt;= p &lt; rowPointers[row+1]</tt> are set, all
+     * other bits are <tt>false</tt>.
+     * 
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param rowPointers
+     *            row pointers, of length <tt>rows+1</tt>.
+     * @param columnIndexes
+     *            column indexes.
+     * @throws IllegalArgumentException
+     *             if <tt>columns &lt; 0 || rows &lt; 0</tt> or if
+     *             <tt>rowPointers.length != rows+1</tt>.
+     * @throws IndexOutOfBoundsException
+     *             if a column index is not in <tt>[0,columns()-1]</tt>.
+     * @see #toSparseRC()
+     */
+    public BitMatrix(int columns, int rows, int[] rowPointers, int[] columnIndexes) {
+        this(columns, rows);
+        if (rowPointers.length != rows + 1)
+            throw new IllegalArgumentException("rowPointers.length != rows + 1");
+        for (int row = 0; row < rows; row++) {
+            int offset = row * columns;
+            for (int p = rowPointers[row]; p < rowPointers[row + 1]; p++) {
+                int column = columnIndexes[p];
+                if (column < 0 || column >= columns)
+                    throw new IndexOutOfBoundsException("column:" + column + ", row:" + row);
+                QuickBitVector.set(bits, offset + column);
+            }
+        }
+    }
+
     /**
      * Performs a logical <b>AND</b> of the receiver with another bit matrix.
      * The receiver is modified so that a bit in it has the value
@@ -608,6 +663,63 @@ public class BitMatrix extends cern.colt.PersistentObject {
         return new BitVector(bits, size());
     }
 
+    /**
+     * Returns the pattern of the receiver in compressed row storage: a matrix
+     * with <tt>rows()</tt> rows and <tt>columns()</tt> columns holding
+     * <tt>1</tt> where the receiver has a bit in the <tt>true</tt> state. The
+     * column indexes are sorted. The rows are converted in parallel.
+     * 
+     * @return the pattern of the receiver.
+     */
+    public SparseRCIntMatrix2D toSparseRC() {
+        final int units = units(columns);
+        final long[] packed = packRows();
+        final int[] rowPointers = new int[rows + 1];
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        boolean parallel = (nthreads > 1) && (rows > 1)
+                && ((long) rows * units >= ConcurrencyUtils.getThreadsBeginN_2D());
+        if (parallel) {
+            nthreads = Math.min(nthreads, rows);
+            Future<?>[] futures = new Future[nthreads];
+            int k = rows / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        countRows(packed, units, rowPointers, firstRow, lastRow);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            countRows(packed, units, rowPointers, 0, rows);
+        }
+        for (int r = 0; r < rows; r++) {
+            rowPointers[r + 1] += rowPointers[r];
+        }
+        final int[] columnIndexes = new int[rowPointers[rows]];
+        int[] values = new int[columnIndexes.length];
+        Arrays.fill(values, 1);
+        if (parallel) {
+            Future<?>[] futures = new Future[nthreads];
+            int k = rows / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        fillRows(packed, units, rowPointers, columnIndexes, firstRow, lastRow);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            fillRows(packed, units, rowPointers, columnIndexes, 0, rows);
+        }
+        return new SparseRCIntMatrix2D(rows, columns, rowPointers, columnIndexes, values);
+    }
+
     /**
      * Returns a (very crude) string representation of the receiver.
      */
@@ -616,6 +728,53 @@ public class BitMatrix extends cern.colt.PersistentObject {
         return toBitVector().toString();
     }
 
+    /**
+     * Returns the transitive closure of the receiver, a square matrix seen as
+     * the adjacency matrix of a directed graph: bit <tt>[j,i]</tt> of the
+     * result is set if and only if there is a path of length at least one
+     * from <tt>i</tt> to <tt>j</tt>. The closure is computed by repeated
+     * boolean squaring, <tt>R = R | R*R</tt>, in <tt>O(log(rows()))</tt>
+     * products.
+     * 
+     * @return the transitive closure.
+     * @throws IllegalArgumentException
+     *             if <tt>columns() != rows()</tt>.
+     */
+    public BitMatrix transitiveClosure() {
+        if (columns != rows)
+            throw new IllegalArgumentException("Matrix must be square: (columns,rows)=(" + columns + "," + rows + ")");
+        int units = units(columns);
+        long[] closure = packRows();
+        boolean changed = true;
+        while (changed) {
+            long[] square = multiply(closure, rows, units, closure, rows, units);
+            changed = false;
+            for (int i = 0; i < closure.length; i++) {
+                long val = closure[i] | square[i];
+                if (val != closure[i]) {
+                    closure[i] = val;
+                    changed = true;
+                }
+            }
+        }
+        BitMatrix result = new BitMatrix(columns, rows);
+        result.unpackRows(closure);
+        return result;
+    }
+
+    /**
+     * Returns the transpose of the receiver, a new matrix with
+     * <tt>rows()</tt> columns and <tt>columns()</tt> rows whose bit
+     * <tt>[row,column]</tt> is bit <tt>[column,row]</tt> of the receiver.
+     * 
+     * @return the transpose.
+     */
+    public BitMatrix transpose() {
+        BitMatrix result = new BitMatrix(rows, columns);
+        result.unpackRows(packTranspose());
+        return result;
+    }
+
     /**
      * Performs a logical <b>XOR</b> of the receiver with another bit matrix.
      * The receiver is modified so that a bit in it has the value
@@ -638,4 +797,334 @@ public class BitMatrix extends cern.colt.PersistentObject {
         checkDimensionCompatibility(other);
         toBitVector().xor(other.toBitVector());
     }
+
+    /**
+     * Returns the boolean product of the receiver and <tt>B</tt>: bit
+     * <tt>[j,i]</tt> of the result is set if and only if there is a
+     * <tt>k</tt> with bits <tt>[k,i]</tt> of the receiver and <tt>[j,k]</tt>
+     * of <tt>B</tt> set, that is <tt>C[i,j] = OR<sub>k</sub> A[i,k] &amp;&amp;
+     * B[k,j]</tt> in the usual row and column notation.
+     * <p>
+     * The rows of <tt>B</tt> are combined 64 bits at a time. When the receiver
+     * has many rows, the method of the Four Russians is used: for each group
+     * of 8 rows of <tt>B</tt> the 256 possible unions are tabulated, and each
+     * row of the result takes one union per group.
+     * 
+     * @param B
+     *            the second factor.
+     * @return the boolean product, with <tt>B.columns()</tt> columns and
+     *         <tt>rows()</tt> rows.
+     * @throws IllegalArgumentException
+     *             if <tt>columns() != B.rows()</tt>.
+     */
+    public BitMatrix zMult(BitMatrix B) {
+        if (columns != B.rows())
+            throw new IllegalArgumentException("Incompatible dimensions: (columns,rows)=(" + columns + "," + rows
+                    + "), (B.columns,B.rows)=(" + B.columns() + "," + B.rows() + ")");
+        int units = units(B.columns());
+        long[] product = multiply(packRows(), rows, units(columns), B.packRows(), columns, units);
+        BitMatrix C = new BitMatrix(B.columns(), rows);
+        C.unpackRows(product);
+        return C;
+    }
+
+    /**
+     * Returns the counting product of the receiver and <tt>B</tt>, the
+     * product of the two as 0-1 matrices: element <tt>[i,j]</tt> of the
+     * result is the number of <tt>k</tt> with bits <tt>[k,i]</tt> of the
+     * receiver and <tt>[j,k]</tt> of <tt>B</tt> set. For example,
+     * <tt>A.zMultCount(A.transpose())</tt> counts the co-occurrences of the
+     * rows of <tt>A</tt>. Each element is computed as the population count of
+     * the intersection of a row of the receiver and a column of <tt>B</tt>.
+     * 
+     * @param B
+     *            the second factor.
+     * @return the counting product, a dense <tt>rows() x B.columns()</tt>
+     *         matrix.
+     * @throws IllegalArgumentException
+     *             if <tt>columns() != B.rows()</tt>.
+     */
+    public IntMatrix2D zMultCount(BitMatrix B) {
+        if (columns != B.rows())
+            throw new IllegalArgumentException("Incompatible dimensions: (columns,rows)=(" + columns + "," + rows
+                    + "), (B.columns,B.rows)=(" + B.columns() + "," + B.rows() + ")");
+        final long[] a = packRows();
+        final long[] bt = B.packTranspose();
+        final int units = units(columns);
+        final int n = B.columns();
+        final int[] elements = new int[rows * n];
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (rows > 1) && ((long) rows * n * units >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, rows);
+            Future<?>[] futures = new Future[nthreads];
+            int k = rows / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        count(a, bt, units, n, elements, firstRow, lastRow);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            count(a, bt, units, n, elements, 0, rows);
+        }
+        return new DenseIntMatrix2D(rows, n, elements, 0, 0, n, 1, false);
+    }
+
+    /*
+     * Elements [firstRow..lastRow-1, *] of the counting product; the columns
+     * are taken in blocks that stay in the cache.
+     */
+    private static void count(long[] a, long[] bt, int units, int n, int[] elements, int firstRow, int lastRow) {
+        int block = Math.max(1, TABLE_UNITS / Math.max(1, units));
+        for (int j0 = 0; j0 < n; j0 += block) {
+            int j1 = Math.min(n, j0 + block);
+            for (int i = firstRow; i < lastRow; i++) {
+                int ai = i * units;
+                int idx = i * n;
+                for (int j = j0; j < j1; j++) {
+                    int bj = j * units;
+                    int sum = 0;
+                    for (int u = 0; u < units; u++) {
+                        sum += Long.bitCount(a[ai + u] & bt[bj + u]);
+                    }
+                    elements[idx + j] = sum;
+                }
+            }
+        }
+    }
+
+    private static void countRows(long[] packed, int units, int[] rowPointers, int firstRow, int lastRow) {
+        for (int r = firstRow; r < lastRow; r++) {
+            int count = 0;
+            for (int u = r * units; u < (r + 1) * units; u++) {
+                count += Long.bitCount(packed[u]);
+            }
+            rowPointers[r + 1] = count;
+        }
+    }
+
+    private static void fillRows(long[] packed, int units, int[] rowPointers, int[] columnIndexes, int firstRow,
+            int lastRow) {
+        for (int r = firstRow; r < lastRow; r++) {
+            int p = rowPointers[r];
+            for (int u = 0; u < units; u++) {
+                long val = packed[r * units + u];
+                while (val != 0) {
+                    columnIndexes[p++] = (u << 6) + Long.numberOfTrailingZeros(val);
+                    val &= val - 1;
+                }
+            }
+        }
+    }
+
+    /*
+     * Boolean product of a, m rows of ka units, and b, k rows of nb units;
+     * returns m rows of nb units. The rows are split among the threads.
+     */
+    private static long[] multiply(final long[] a, final int m, final int ka, final long[] b, final int k,
+            final int nb) {
+        final long[] c = new long[m * nb];
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (m > 1) && ((long) m * k >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, m);
+            Future<?>[] futures = new Future[nthreads];
+            int rowsPerThread = m / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * rowsPerThread;
+                final int lastRow = (j == nthreads - 1) ? m : firstRow + rowsPerThread;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        multiply(a, ka, b, k, nb, c, firstRow, lastRow);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            multiply(a, ka, b, k, nb, c, 0, m);
+        }
+        return c;
+    }
+
+    /*
+     * Rows firstRow..lastRow-1 of the boolean product. Few rows OR the rows of
+     * b selected by their bits; many rows use the tables of the method of the
+     * Four Russians, 8 rows of b per table, as many tables at a time as fit
+     * in TABLE_UNITS.
+     */
+    private static void multiply(long[] a, int ka, long[] b, int k, int nb, long[] c, int firstRow, int lastRow) {
+        if (lastRow - firstRow < 64) {
+            for (int i = firstRow; i < lastRow; i++) {
+                int ci = i * nb;
+                for (int u = 0; u < ka; u++) {
+                    long val = a[i * ka + u];
+                    while (val != 0) {
+                        int bk = ((u << 6) + Long.numberOfTrailingZeros(val)) * nb;
+                        for (int v = 0; v < nb; v++) {
+                            c[ci + v] |= b[bk + v];
+                        }
+                        val &= val - 1;
+                    }
+                }
+            }
+            return;
+        }
+        int chunks = (k + 7) >>> 3;
+        int group = Math.min(chunks, Math.max(1, TABLE_UNITS / (256 * nb)));
+        long[] tables = new long[group * 256 * nb];
+        for (int g0 = 0; g0 < chunks; g0 += group) {
+            int g1 = Math.min(chunks, g0 + group);
+            for (int g = g0; g < g1; g++) {
+                int t = (g - g0) * 256 * nb;
+                for (int v = 0; v < nb; v++) {
+                    tables[t + v] = 0;
+                }
+                for (int x = 1; x < 256; x++) {
+                    int row = (g << 3) + Integer.numberOfTrailingZeros(x);
+                    int dst = t + x * nb;
+                    int src = t + (x & (x - 1)) * nb;
+                    if (row < k) {
+                        int bk = row * nb;
+                        for (int v = 0; v < nb; v++) {
+                            tables[dst + v] = tables[src + v] | b[bk + v];
+                        }
+                    } else {
+                        System.arraycopy(tables, src, tables, dst, nb);
+                    }
+                }
+            }
+            for (int i = firstRow; i < lastRow; i++) {
+                int ai = i * ka;
+                int ci = i * nb;
+                for (int g = g0; g < g1; g++) {
+                    int x = (int) (a[ai + (g >>> 3)] >>> ((g & 7) << 3)) & 0xFF;
+                    if (x != 0) {
+                        int t = ((g - g0) * 256 + x) * nb;
+                        for (int v = 0; v < nb; v++) {
+                            c[ci + v] |= tables[t + v];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Copies the rows into units of their own: bit [column,row] goes to bit
+     * column%64 of unit row*units(columns)+column/64, the unused bits of the
+     * last unit of a row are zero.
+     */
+    private long[] packRows() {
+        final int units = units(columns);
+        final long[] packed = new long[rows * units];
+        if ((columns & QuickBitVector.BIT_INDEX_MASK) == 0) {
+            System.arraycopy(bits, 0, packed, 0, packed.length);
+            return packed;
+        }
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (rows > 1) && ((long) rows * units >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, rows);
+            Future<?>[] futures = new Future[nthreads];
+            int k = rows / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        packRows(packed, units, firstRow, lastRow);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            packRows(packed, units, 0, rows);
+        }
+        return packed;
+    }
+
+    private void packRows(long[] packed, int units, int firstRow, int lastRow) {
+        for (int r = firstRow; r < lastRow; r++) {
+            int offset = r * columns;
+            for (int u = 0; u < units; u++) {
+                int from = offset + (u << 6);
+                int to = Math.min(from + QuickBitVector.BIT_INDEX_MASK, offset + columns - 1);
+                packed[r * units + u] = QuickBitVector.getLongFromTo(bits, from, to);
+            }
+        }
+    }
+
+    /*
+     * The rows of the transpose, packed as by packRows(). Blocks of 64 rows of
+     * the receiver fill distinct units of the transpose and are split among
+     * the threads.
+     */
+    private long[] packTranspose() {
+        final long[] packed = packRows();
+        final int units = units(columns);
+        final int tunits = units(rows);
+        final long[] transposed = new long[columns * tunits];
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (tunits > 1) && ((long) rows * units >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, tunits);
+            Future<?>[] futures = new Future[nthreads];
+            int k = tunits / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k << 6;
+                final int lastRow = (j == nthreads - 1) ? rows : (j * k + k) << 6;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        transpose(packed, units, transposed, tunits, firstRow, lastRow);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            transpose(packed, units, transposed, tunits, 0, rows);
+        }
+        return transposed;
+    }
+
+    private static void transpose(long[] packed, int units, long[] transposed, int tunits, int firstRow, int lastRow) {
+        for (int r = firstRow; r < lastRow; r++) {
+            int t = r >>> 6;
+            long mask = 1L << (r & QuickBitVector.BIT_INDEX_MASK);
+            for (int u = 0; u < units; u++) {
+                long val = packed[r * units + u];
+                while (val != 0) {
+                    int column = (u << 6) + Long.numberOfTrailingZeros(val);
+                    transposed[column * tunits + t] |= mask;
+                    val &= val - 1;
+                }
+            }
+        }
+    }
+
+    /*
+     * Inverse of packRows().
+     */
+    private void unpackRows(long[] packed) {
+        final int units = units(columns);
+        if ((columns & QuickBitVector.BIT_INDEX_MASK) == 0) {
+            System.arraycopy(packed, 0, bits, 0, packed.length);
+            return;
+        }
+        for (int r = 0; r < rows; r++) {
+            int offset = r * columns;
+            for (int u = 0; u < units; u++) {
+                int from = offset + (u << 6);
+                int to = Math.min(from + QuickBitVector.BIT_INDEX_MASK, offset + columns - 1);
+                QuickBitVector.putLongFromTo(bits, packed[r * units + u], from, to);
+            }
+        }
+    }
+
+    /*
+     * The number of units holding the given number of bits.
+     */
+    private static int units(int nbits) {
+        return (nbits + QuickBitVector.BIT_INDEX_MASK) >>> QuickBitVector.ADDRESS_BITS_PER_UNIT;
+    }
 }
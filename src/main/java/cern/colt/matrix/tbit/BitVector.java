@@ -8,6 +8,12 @@ It is provided "as is" without expressed or implied warranty.
  */
 package cern.colt.matrix.tbit;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
 /**
  * Fixed sized (non resizable) bitvector. Upon instance construction a bitvector
  * is told to hold a fixed number of bits - it's size. The size can be any
@@ -49,6 +55,9 @@ package cern.colt.matrix.tbit;
  * <li>Similar performance for
  * <tt>or, xor, andNot, not, copy, replace, partFromTo, indexOf, clear</tt> etc.
  * </ul>
+ * The logical operations and <tt>cardinality()</tt> work on whole units and
+ * split large bitvectors among several threads.
+ * <p>
  * If you need extremely quick access to individual bits: Although getting and
  * setting individual bits with methods <tt>get(...)</tt>, <tt>set(...)</tt> and
  * <tt>put(...)</tt>is quick, it is even quicker (<b>but not safe</b>) to use
@@ -72,6 +81,8 @@ public class BitVector extends cern.colt.PersistentObject {
 
     private static final long serialVersionUID = 1L;
 
+    private static final int AND = 0, AND_NOT = 1, OR = 2, XOR = 3, NOT = 4;
+
     /**
      * The bits of this object. The ith bit is stored in bits[i/64] at bit
      * position i % 64 (where bit position 0 refers to the least significant bit
@@ -143,10 +154,7 @@ public class BitVector extends cern.colt.PersistentObject {
         if (this == other)
             return;
         checkSize(other);
-        final long[] theBits = this.bits; // cached for speed.
-        final long[] otherBits = other.bits; // cached for speed.
-        for (int i = theBits.length; --i >= 0;)
-            theBits[i] &= otherBits[i];
+        apply(AND, other.bits);
     }
 
     /**
@@ -161,10 +169,7 @@ public class BitVector extends cern.colt.PersistentObject {
      */
     public void andNot(BitVector other) {
         checkSize(other);
-        final long[] theBits = this.bits; // cached for speed.
-        final long[] otherBits = other.bits; // cached for speed.
-        for (int i = theBits.length; --i >= 0;)
-            theBits[i] &= ~otherBits[i];
+        apply(AND_NOT, other.bits);
     }
 
     /**
@@ -173,33 +178,102 @@ public class BitVector extends cern.colt.PersistentObject {
      * or dense.
      */
     public int cardinality() {
-        int cardinality = 0;
-        int fullUnits = numberOfFullUnits();
-        final int bitsPerUnit = QuickBitVector.BITS_PER_UNIT;
-
-        // determine cardinality on full units
         final long[] theBits = bits;
-        for (int i = fullUnits; --i >= 0;) {
-            long val = theBits[i];
-            if (val == -1L) { // all bits set?
-                cardinality += bitsPerUnit;
-            } else if (val != 0L) { // more than one bit set?
-                for (int j = bitsPerUnit; --j >= 0;) {
-                    if ((val & (1L << j)) != 0)
-                        cardinality++;
+        final int fullUnits = numberOfFullUnits();
+        int cardinality = 0;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (fullUnits >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+            nthreads = Math.min(nthreads, fullUnits);
+            Future<?>[] futures = new Future[nthreads];
+            int k = fullUnits / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = j * k;
+                final int lastIdx = (j == nthreads - 1) ? fullUnits : firstIdx + k;
+                futures[j] = ConcurrencyUtils.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        int count = 0;
+                        for (int i = firstIdx; i < lastIdx; i++) {
+                            count += Long.bitCount(theBits[i]);
+                        }
+                        return count;
+                    }
+                });
+            }
+            try {
+                for (int j = 0; j < nthreads; j++) {
+                    cardinality += (Integer) futures[j].get();
                 }
+            } catch (ExecutionException ex) {
+                ex.printStackTrace();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        } else {
+            for (int i = 0; i < fullUnits; i++) {
+                cardinality += Long.bitCount(theBits[i]);
             }
         }
 
-        // determine cardinality on remaining partial unit, if any.
-        for (int j = numberOfBitsInPartialUnit(); --j >= 0;) {
-            if ((theBits[fullUnits] & (1L << j)) != 0)
-                cardinality++;
+        // remaining partial unit, if any.
+        int partial = numberOfBitsInPartialUnit();
+        if (partial > 0) {
+            cardinality += Long.bitCount(theBits[fullUnits] & QuickBitVector.bitMaskWithBitsSetFromTo(0, partial - 1));
         }
-
         return cardinality;
     }
 
+    /*
+     * Applies a logical operation unit by unit, in parallel for large
+     * bitvectors.
+     */
+    private void apply(final int op, final long[] otherBits) {
+        final long[] theBits = this.bits;
+        int n = theBits.length;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (n >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+            nthreads = Math.min(nthreads, n);
+            Future<?>[] futures = new Future[nthreads];
+            int k = n / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = j * k;
+                final int lastIdx = (j == nthreads - 1) ? n : firstIdx + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        apply(op, theBits, otherBits, firstIdx, lastIdx);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            apply(op, theBits, otherBits, 0, n);
+        }
+    }
+
+    private static void apply(int op, long[] theBits, long[] otherBits, int from, int to) {
+        switch (op) {
+        case AND:
+            for (int i = from; i < to; i++)
+                theBits[i] &= otherBits[i];
+            break;
+        case AND_NOT:
+            for (int i = from; i < to; i++)
+                theBits[i] &= ~otherBits[i];
+            break;
+        case OR:
+            for (int i = from; i < to; i++)
+                theBits[i] |= otherBits[i];
+            break;
+        case XOR:
+            for (int i = from; i < to; i++)
+                theBits[i] ^= otherBits[i];
+            break;
+        default:
+            for (int i = from; i < to; i++)
+                theBits[i] = ~theBits[i];
+            break;
+        }
+    }
+
     /**
      * Checks if the given range is within the contained array's bounds.
      */
@@ -645,9 +719,7 @@ public class BitVector extends cern.colt.PersistentObject {
      * Performs a logical <b>NOT</b> on the bits of the receiver (A = ~A).
      */
     public void not() {
-        final long[] theBits = this.bits;
-        for (int i = theBits.length; --i >= 0;)
-            theBits[i] = ~theBits[i];
+        apply(NOT, null);
     }
 
     /**
@@ -681,10 +753,7 @@ public class BitVector extends cern.colt.PersistentObject {
         if (this == other)
             return;
         checkSize(other);
-        final long[] theBits = this.bits; // cached for speed.
-        final long[] otherBits = other.bits; // cached for speed.
-        for (int i = theBits.length; --i >= 0;)
-            theBits[i] |= otherBits[i];
+        apply(OR, other.bits);
     }
 
     /**
@@ -1012,9 +1081,6 @@ public class BitVector extends cern.colt.PersistentObject {
      */
     public void xor(BitVector other) {
         checkSize(other);
-        final long[] theBits = this.bits; // cached for speed.
-        final long[] otherBits = other.bits; // cached for speed.
-        for (int i = theBits.length; --i >= 0;)
-            theBits[i] ^= otherBits[i];
+        apply(XOR, other.bits);
     }
 }
@@ -0,0 +1,456 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdcomplex.impl;
+
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdcomplex.DComplexMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Parallel multiplication of complex matrices of any storage,
+ * <tt>C = alpha*op(A)*op(B) + beta*C</tt>, where <tt>op(X)</tt> is
+ * <tt>X</tt> or its conjugate transpose.
+ * <p>
+ * Blocks of <tt>op(A)</tt> and <tt>op(B)</tt> are packed into contiguous
+ * buffers as in {@link cern.colt.matrix.tdouble.impl.DoubleMatrix2DMultiplication},
+ * with the real and the imaginary parts in separate buffers, so that a block
+ * of <tt>C</tt> is computed by a real <tt>4 x 4</tt> kernel. The conjugate
+ * transposes are taken while packing; they are never copied.
+ * <p>
+ * The product of the parts can be computed in two ways. The conventional one
+ * computes the four real products <tt>Ar*Br</tt>, <tt>Ai*Bi</tt>,
+ * <tt>Ar*Bi</tt> and <tt>Ai*Br</tt>. The 3M method computes three:
+ * <tt>T1 = Ar*Br</tt>, <tt>T2 = Ai*Bi</tt> and
+ * <tt>T3 = (Ar+Ai)*(Br+Bi)</tt>, then <tt>Re(A*B) = T1 - T2</tt> and
+ * <tt>Im(A*B) = T3 - T1 - T2</tt>; the sums are formed while packing. The 3M
+ * method does a quarter less operations, but the error of the imaginary part
+ * is relative to <tt>|Ar|+|Ai|</tt> times <tt>|Br|+|Bi|</tt> rather than to
+ * the parts themselves, so it is used by default only for large products.
+ * <p>
+ * Dense matrices and their views and selections are packed with indexed
+ * copies from their element arrays; all other matrices are packed with
+ * <tt>getQuick</tt>. The work is split among the threads by blocks of rows or
+ * columns of <tt>C</tt>, whichever there are more of.
+ */
+public class DComplexMatrix2DMultiplication {
+    /*
+     * Rows and columns of the blocks of C computed by the kernel.
+     */
+    private static final int MR = 4;
+
+    private static final int NR = 4;
+
+    /*
+     * Rows of the packed blocks of A, common dimension and columns of the
+     * packed blocks of B; each of them has two or three parts.
+     */
+    private static final int MC = 64;
+
+    private static final int KC = 256;
+
+    private static final int NC = 512;
+
+    /*
+     * Smallest dimension from which the 3M method is used by default.
+     */
+    private static final int THRESHOLD_3M = 256;
+
+    /**
+     * Makes this class non instantiable, but still let's others inherit from
+     * it.
+     */
+    protected DComplexMatrix2DMultiplication() {
+    }
+
+    /**
+     * Computes <tt>C = alpha*op(A)*op(B) + beta*C</tt>; the 3M method is used
+     * if all dimensions of the product are at least 256.
+     * 
+     * @param A
+     *            the first source matrix.
+     * @param B
+     *            the second source matrix.
+     * @param C
+     *            the matrix where results are to be stored; must not share
+     *            cells with <tt>A</tt> or <tt>B</tt>.
+     * @param alpha
+     *            the scale of the product.
+     * @param beta
+     *            the scale of <tt>C</tt>.
+     * @param transposeA
+     *            whether <tt>op(A)</tt> is the conjugate transpose of
+     *            <tt>A</tt>.
+     * @param transposeB
+     *            whether <tt>op(B)</tt> is the conjugate transpose of
+     *            <tt>B</tt>.
+     * @return <tt>C</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if the inner dimensions of <tt>op(A)</tt> and
+     *             <tt>op(B)</tt> differ, or if <tt>C</tt> is not
+     *             <tt>op(A).rows() x op(B).columns()</tt>.
+     */
+    public static DComplexMatrix2D zMult(DComplexMatrix2D A, DComplexMatrix2D B, DComplexMatrix2D C,
+            double[] alpha, double[] beta, boolean transposeA, boolean transposeB) {
+        int m = transposeA ? A.columns() : A.rows();
+        int n = transposeA ? A.rows() : A.columns();
+        int p = transposeB ? B.rows() : B.columns();
+        boolean threeM = Math.min(m, Math.min(n, p)) >= THRESHOLD_3M;
+        return zMult(A, B, C, alpha, beta, transposeA, transposeB, threeM);
+    }
+
+    /**
+     * Computes <tt>C = alpha*op(A)*op(B) + beta*C</tt> by the conventional or
+     * by the 3M method.
+     * 
+     * @param A
+     *            the first source matrix.
+     * @param B
+     *            the second source matrix.
+     * @param C
+     *            the matrix where results are to be stored; must not share
+     *            cells with <tt>A</tt> or <tt>B</tt>.
+     * @param alpha
+     *            the scale of the product.
+     * @param beta
+     *            the scale of <tt>C</tt>.
+     * @param transposeA
+     *            whether <tt>op(A)</tt> is the conjugate transpose of
+     *            <tt>A</tt>.
+     * @param transposeB
+     *            whether <tt>op(B)</tt> is the conjugate transpose of
+     *            <tt>B</tt>.
+     * @param threeM
+     *            whether to use the 3M method.
+     * @return <tt>C</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if the inner dimensions of <tt>op(A)</tt> and
+     *             <tt>op(B)</tt> differ, or if <tt>C</tt> is not
+     *             <tt>op(A).rows() x op(B).columns()</tt>.
+     */
+    public static DComplexMatrix2D zMult(DComplexMatrix2D A, DComplexMatrix2D B, final DComplexMatrix2D C,
+            double[] alpha, double[] beta, boolean transposeA, boolean transposeB, final boolean threeM) {
+        final Operand a = new Operand(A, transposeA);
+        final Operand b = new Operand(B, transposeB);
+        final int m = a.rows;
+        final int n = a.columns;
+        final int p = b.columns;
+        if (b.rows != n)
+            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + A.toStringShort() + ", "
+                    + B.toStringShort());
+        if (C.rows() != m || C.columns() != p)
+            throw new IllegalArgumentException("Incompatibe result matrix: " + A.toStringShort() + ", "
+                    + B.toStringShort() + ", " + C.toStringShort());
+        if (m == 0 || p == 0) {
+            return C;
+        }
+        final Operand c = new Operand(C, false);
+        final double ar = alpha[0], ai = alpha[1], br = beta[0], bi = beta[1];
+        if (n == 0) {
+            double[] value = new double[2];
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < p; j++) {
+                    c.get(i, j, value);
+                    c.set(i, j, br * value[0] - bi * value[1], bi * value[0] + br * value[1]);
+                }
+            }
+            return C;
+        }
+
+        // The threads get whole blocks of the kernel
+        final boolean splitColumns = p >= m;
+        int size = splitColumns ? p : m;
+        int unit = splitColumns ? NR : MR;
+        int blocks = (size + unit - 1) / unit;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (nthreads < 2 || 8L * m * n * p < ConcurrencyUtils.getThreadsBeginN_2D()) {
+            multiply(a, b, c, ar, ai, br, bi, threeM, 0, m, 0, p, n);
+            return C;
+        }
+        nthreads = Math.min(nthreads, blocks);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int first = Math.min(size, (int) ((long) blocks * j / nthreads) * unit);
+            final int last = (j == nthreads - 1) ? size : Math.min(size, (int) ((long) blocks * (j + 1) / nthreads)
+                    * unit);
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    if (splitColumns) {
+                        multiply(a, b, c, ar, ai, br, bi, threeM, 0, m, first, last, n);
+                    } else {
+                        multiply(a, b, c, ar, ai, br, bi, threeM, first, last, 0, p, n);
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return C;
+    }
+
+    /*
+     * Computes the rows firstRow..lastRow-1 and the columns
+     * firstColumn..lastColumn-1 of C.
+     */
+    private static void multiply(Operand a, Operand b, Operand c, double ar, double ai, double br, double bi,
+            boolean threeM, int firstRow, int lastRow, int firstColumn, int lastColumn, int n) {
+        int mc = Math.min(MC, roundUp(lastRow - firstRow, MR));
+        int kc = Math.min(KC, n);
+        int nc = Math.min(NC, roundUp(lastColumn - firstColumn, NR));
+        int parts = threeM ? 3 : 2;
+        double[][] packedA = new double[parts][mc * kc];
+        double[][] packedB = new double[parts][kc * nc];
+        double[] t1 = new double[MR * NR];
+        double[] t2 = new double[MR * NR];
+        double[] t3 = new double[MR * NR];
+        double[] t4 = new double[MR * NR];
+        double[] value = new double[2];
+        for (int jc = firstColumn; jc < lastColumn; jc += NC) {
+            int ncols = Math.min(NC, lastColumn - jc);
+            for (int pc = 0; pc < n; pc += KC) {
+                int depth = Math.min(KC, n - pc);
+                pack(b, false, jc, ncols, pc, depth, NR, packedB);
+                // beta scales C only once, with the first block of the sum
+                double sr = pc == 0 ? br : 1;
+                double si = pc == 0 ? bi : 0;
+                for (int ic = firstRow; ic < lastRow; ic += MC) {
+                    int nrows = Math.min(MC, lastRow - ic);
+                    pack(a, true, ic, nrows, pc, depth, MR, packedA);
+                    for (int jr = 0; jr < ncols; jr += NR) {
+                        int nr = Math.min(NR, ncols - jr);
+                        for (int ir = 0; ir < nrows; ir += MR) {
+                            int mr = Math.min(MR, nrows - ir);
+                            int ia = ir * depth;
+                            int ib = jr * depth;
+                            kernel(depth, packedA[0], ia, packedB[0], ib, t1);
+                            kernel(depth, packedA[1], ia, packedB[1], ib, t2);
+                            if (threeM) {
+                                kernel(depth, packedA[2], ia, packedB[2], ib, t3);
+                                for (int t = 0; t < MR * NR; t++) {
+                                    t3[t] -= t1[t] + t2[t];
+                                    t1[t] -= t2[t];
+                                }
+                            } else {
+                                kernel(depth, packedA[0], ia, packedB[1], ib, t3);
+                                kernel(depth, packedA[1], ia, packedB[0], ib, t4);
+                                for (int t = 0; t < MR * NR; t++) {
+                                    t3[t] += t4[t];
+                                    t1[t] -= t2[t];
+                                }
+                            }
+                            for (int i = 0; i < mr; i++) {
+                                for (int j = 0; j < nr; j++) {
+                                    int row = ic + ir + i;
+                                    int column = jc + jr + j;
+                                    double re = t1[i * NR + j];
+                                    double im = t3[i * NR + j];
+                                    c.get(row, column, value);
+                                    c.set(row, column, ar * re - ai * im + sr * value[0] - si * value[1], ai * re
+                                            + ar * im + si * value[0] + sr * value[1]);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Computes the 4 x 4 block of the product of a packed sliver of A and a
+     * packed sliver of B.
+     */
+    private static void kernel(int depth, double[] a, int ia, double[] b, int ib, double[] block) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+        for (int k = 0; k < depth; k++) {
+            double a0 = a[ia];
+            double a1 = a[ia + 1];
+            double a2 = a[ia + 2];
+            double a3 = a[ia + 3];
+            double b0 = b[ib];
+            double b1 = b[ib + 1];
+            double b2 = b[ib + 2];
+            double b3 = b[ib + 3];
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+            ia += MR;
+            ib += NR;
+        }
+        block[0] = c00;
+        block[1] = c01;
+        block[2] = c02;
+        block[3] = c03;
+        block[4] = c10;
+        block[5] = c11;
+        block[6] = c12;
+        block[7] = c13;
+        block[8] = c20;
+        block[9] = c21;
+        block[10] = c22;
+        block[11] = c23;
+        block[12] = c30;
+        block[13] = c31;
+        block[14] = c32;
+        block[15] = c33;
+    }
+
+    /*
+     * Packs the block of x with count slivers of width cells along the
+     * sliver direction, starting at first, and depth cells along the common
+     * dimension, starting at pc. Slivers run along the rows of x if byRows
+     * (blocks of A), along its columns otherwise (blocks of B); each holds
+     * width values per step of the common dimension, padded with zeros. The
+     * real parts go to packed[0], the imaginary parts to packed[1] and, if
+     * there is a third part, their sums to packed[2].
+     */
+    private static void pack(Operand x, boolean byRows, int first, int count, int pc, int depth, int width,
+            double[][] packed) {
+        double[] re = packed[0];
+        double[] im = packed[1];
+        double[] sum = packed.length > 2 ? packed[2] : null;
+        double[] elements = x.elements;
+        double sign = x.conjugate ? -1 : 1;
+        double[] value = new double[2];
+        int idx = 0;
+        for (int s = 0; s < count; s += width) {
+            int w = Math.min(width, count - s);
+            for (int k = 0; k < depth; k++) {
+                for (int i = 0; i < w; i++) {
+                    int row = byRows ? first + s + i : pc + k;
+                    int column = byRows ? pc + k : first + s + i;
+                    double vr, vi;
+                    if (elements != null) {
+                        int e = x.rowOffsets[row] + x.columnOffsets[column];
+                        vr = elements[e];
+                        vi = sign * elements[e + 1];
+                    } else {
+                        x.get(row, column, value);
+                        vr = value[0];
+                        vi = value[1];
+                    }
+                    re[idx + i] = vr;
+                    im[idx + i] = vi;
+                    if (sum != null) {
+                        sum[idx + i] = vr + vi;
+                    }
+                }
+                for (int i = w; i < width; i++) {
+                    re[idx + i] = 0;
+                    im[idx + i] = 0;
+                    if (sum != null) {
+                        sum[idx + i] = 0;
+                    }
+                }
+                idx += width;
+            }
+        }
+    }
+
+    private static int roundUp(int size, int unit) {
+        return (size + unit - 1) / unit * unit;
+    }
+
+    /*
+     * A matrix or its conjugate transpose, together with the offsets of its
+     * rows and columns in its element array, if it is a dense matrix, a view
+     * or a selection of one. The real part of cell (i,j) of such a matrix is
+     * elements[rowOffsets[i] + columnOffsets[j]], the imaginary part follows
+     * it.
+     */
+    private static class Operand {
+        final DComplexMatrix2D matrix;
+
+        final boolean conjugate;
+
+        final int rows;
+
+        final int columns;
+
+        final double[] elements;
+
+        final int[] rowOffsets;
+
+        final int[] columnOffsets;
+
+        Operand(DComplexMatrix2D matrix, boolean conjugate) {
+            this.matrix = matrix;
+            this.conjugate = conjugate;
+            rows = conjugate ? matrix.columns() : matrix.rows();
+            columns = conjugate ? matrix.rows() : matrix.columns();
+            double[] elements = null;
+            if (matrix instanceof DenseDComplexMatrix2D) {
+                elements = ((DenseDComplexMatrix2D) matrix).elements;
+            } else if (matrix instanceof DenseColumnDComplexMatrix2D) {
+                elements = ((DenseColumnDComplexMatrix2D) matrix).elements;
+            } else if (matrix instanceof SelectedDenseDComplexMatrix2D) {
+                elements = ((SelectedDenseDComplexMatrix2D) matrix).elements;
+            } else if (matrix instanceof SelectedDenseColumnDComplexMatrix2D) {
+                elements = ((SelectedDenseColumnDComplexMatrix2D) matrix).elements;
+            }
+            if (elements != null && rows > 0 && columns > 0) {
+                this.elements = elements;
+                rowOffsets = new int[rows];
+                columnOffsets = new int[columns];
+                long zero = matrix.index(0, 0);
+                for (int i = 0; i < rows; i++) {
+                    rowOffsets[i] = (int) (conjugate ? matrix.index(0, i) : matrix.index(i, 0));
+                }
+                for (int j = 0; j < columns; j++) {
+                    columnOffsets[j] = (int) ((conjugate ? matrix.index(j, 0) : matrix.index(0, j)) - zero);
+                }
+            } else {
+                this.elements = null;
+                rowOffsets = null;
+                columnOffsets = null;
+            }
+        }
+
+        void get(int row, int column, double[] value) {
+            if (elements != null) {
+                int idx = rowOffsets[row] + columnOffsets[column];
+                value[0] = elements[idx];
+                value[1] = conjugate ? -elements[idx + 1] : elements[idx + 1];
+            } else if (conjugate) {
+                double[] v = matrix.getQuick(column, row);
+                value[0] = v[0];
+                value[1] = -v[1];
+            } else {
+                double[] v = matrix.getQuick(row, column);
+                value[0] = v[0];
+                value[1] = v[1];
+            }
+        }
+
+        void set(int row, int column, double re, double im) {
+            if (elements != null) {
+                int idx = rowOffsets[row] + columnOffsets[column];
+                elements[idx] = re;
+                elements[idx + 1] = im;
+            } else {
+                matrix.setQuick(row, column, re, im);
+            }
+        }
+    }
+}
@@ -14,6 +14,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.DenseTranspose;
 import cern.colt.matrix.tdcomplex.DComplexMatrix1D;
 import cern.colt.matrix.tdcomplex.DComplexMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
@@ -560,6 +561,16 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
 
     public DComplexMatrix2D assign(final DComplexMatrix2D source) {
         // overriden for performance only
+        if (source instanceof DenseDComplexMatrix2D) {
+            checkShape(source);
+            DenseDComplexMatrix2D other = (DenseDComplexMatrix2D) source;
+            if (other.elements() == elements) {
+                other = (DenseDComplexMatrix2D) other.copy();
+            }
+            DenseTranspose.copyComplex(other.elements(), (int) other.index(0, 0), other.rowStride(),
+                    other.columnStride(), elements, (int) index(0, 0), rowStride, columnStride, rows, columns);
+            return this;
+        }
         if (!(source instanceof DenseColumnDComplexMatrix2D)) {
             super.assign(source);
             return this;
@@ -568,7 +579,6 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
         if (other == this)
             return this; // nothing to do
         checkShape(other);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if (this.isNoView && other.isNoView) { // quickest
             System.arraycopy(other.elements, 0, this.elements, 0, this.elements.length);
             return this;
@@ -582,52 +592,8 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
             other = (DenseColumnDComplexMatrix2D) c;
         }
 
-        final double[] elemsOther = other.elements;
-        if (elements == null || elemsOther == null)
-            throw new InternalError();
-        final int columnStrideOther = other.columnStride;
-        final int rowStrideOther = other.rowStride;
-        final int zeroOther = (int) other.index(0, 0);
-        final int zero = (int) index(0, 0);
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstColumn * columnStride;
-                        int idxOther = zeroOther + firstColumn * columnStrideOther;
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            for (int i = idx, j = idxOther, r = 0; r < rows; r++) {
-                                elements[i] = elemsOther[j];
-                                elements[i + 1] = elemsOther[j + 1];
-                                i += rowStride;
-                                j += rowStrideOther;
-                            }
-                            idx += columnStride;
-                            idxOther += columnStrideOther;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            int idxOther = zeroOther;
-            for (int c = 0; c < columns; c++) {
-                for (int i = idx, j = idxOther, r = 0; r < rows; r++) {
-                    elements[i] = elemsOther[j];
-                    elements[i + 1] = elemsOther[j + 1];
-                    i += rowStride;
-                    j += rowStrideOther;
-                }
-                idx += columnStride;
-                idxOther += columnStrideOther;
-            }
-        }
+        DenseTranspose.copyComplex(other.elements, (int) other.index(0, 0), other.rowStride, other.columnStride, elements,
+                (int) index(0, 0), rowStride, columnStride, rows, columns);
         return this;
     }
 
@@ -1584,44 +1550,27 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
 
     public double[][] toArray() {
         final double[][] values = new double[rows][2 * columns];
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        final int zero = (int) index(0, 0);
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstColumn * columnStride;
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            for (int i = idx, r = 0; r < rows; r++) {
-                                values[r][2 * c] = elements[i];
-                                values[r][2 * c + 1] = elements[i + 1];
-                                i += rowStride;
-                            }
-                            idx += columnStride;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            for (int c = 0; c < columns; c++) {
-                for (int i = idx, r = 0; r < rows; r++) {
-                    values[r][2 * c] = elements[i];
-                    values[r][2 * c + 1] = elements[i + 1];
-                    i += rowStride;
-                }
-                idx += columnStride;
-            }
-        }
+        DenseTranspose.copyComplex(elements, (int) index(0, 0), rowStride, columnStride, values, rows, columns);
         return values;
     }
 
+    /**
+     * Transposes this square matrix in place: element <tt>(r,c)</tt> is
+     * swapped with element <tt>(c,r)</tt>. The elements are not
+     * conjugated. Unlike <tt>viewDice()</tt>, this
+     * changes the elements, so all views of this matrix see the change.
+     * 
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>rows() != columns()</tt>.
+     */
+    public DenseColumnDComplexMatrix2D transposeInPlace() {
+        if (rows != columns)
+            throw new IllegalArgumentException("Matrix must be square: " + toStringShort());
+        DenseTranspose.transposeInPlaceComplex(elements, (int) index(0, 0), rowStride, columnStride, rows);
+        return this;
+    }
+
     public DComplexMatrix1D vectorize() {
         final DComplexMatrix1D v = new DenseDComplexMatrix1D((int) size());
         if (isNoView == true) {
@@ -1782,207 +1731,6 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
     //        return zz;
     //    }
 
-    public DComplexMatrix2D zMult(final DComplexMatrix2D B, DComplexMatrix2D C, final double[] alpha,
-            final double[] beta, final boolean transposeA, final boolean transposeB) {
-        final int rowsA = rows;
-        final int columnsA = columns;
-        final int rowsB = B.rows();
-        final int columnsB = B.columns();
-        final int rowsC = transposeA ? columnsA : rowsA;
-        final int columnsC = transposeB ? rowsB : columnsB;
-
-        if (C == null)
-            C = new DenseColumnDComplexMatrix2D(rowsC, columnsC);
-
-        if (transposeA)
-            return getConjugateTranspose().zMult(B, C, alpha, beta, false, transposeB);
-        if (transposeB)
-            return this.zMult(B.getConjugateTranspose(), C, alpha, beta, transposeA, false);
-        if (B.rows() != columnsA)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
-                    + B.toStringShort());
-        if (C.rows() != rowsA || C.columns() != columnsB)
-            throw new IllegalArgumentException("Incompatibe result matrix: " + toStringShort() + ", "
-                    + B.toStringShort() + ", " + C.toStringShort());
-        if (this == C || B == C)
-            throw new IllegalArgumentException("Matrices must not be identical");
-        long flops = 2L * rowsA * columnsA * columnsB;
-        int noOfTasks = (int) Math.min(flops / 30000, ConcurrencyUtils.getNumberOfThreads()); // each
-        /* thread should process at least 30000 flops */
-        boolean splitB = (columnsB >= noOfTasks);
-        int width = splitB ? columnsB : rowsA;
-        noOfTasks = Math.min(width, noOfTasks);
-
-        if (noOfTasks < 2) {
-            return this.zMultSeq(B, C, alpha, beta, transposeA, transposeB);
-        }
-        // set up concurrent tasks
-        int span = width / noOfTasks;
-        final Future<?>[] subTasks = new Future[noOfTasks];
-        for (int i = 0; i < noOfTasks; i++) {
-            final int offset = i * span;
-            if (i == noOfTasks - 1)
-                span = width - span * i; // last span may be a bit larger
-            final DComplexMatrix2D AA, BB, CC;
-            if (splitB) {
-                // split B along columns into blocks
-                AA = this;
-                BB = B.viewPart(0, offset, columnsA, span);
-                CC = C.viewPart(0, offset, rowsA, span);
-            } else {
-                // split A along rows into blocks
-                AA = this.viewPart(offset, 0, span, columnsA);
-                BB = B;
-                CC = C.viewPart(offset, 0, span, columnsB);
-            }
-
-            subTasks[i] = ConcurrencyUtils.submit(new Runnable() {
-                public void run() {
-                    ((DenseColumnDComplexMatrix2D) AA).zMultSeq(BB, CC, alpha, beta, transposeA, transposeB);
-                }
-            });
-        }
-        ConcurrencyUtils.waitForCompletion(subTasks);
-
-        return C;
-    }
-
-    protected DComplexMatrix2D zMultSeq(DComplexMatrix2D B, DComplexMatrix2D C, double[] alpha, double[] beta,
-            boolean transposeA, boolean transposeB) {
-        if (transposeA)
-            return getConjugateTranspose().zMult(B, C, alpha, beta, false, transposeB);
-        if (transposeB)
-            return this.zMult(B.getConjugateTranspose(), C, alpha, beta, transposeA, false);
-        int m = rows;
-        int n = columns;
-        int p = B.columns();
-        if (C == null)
-            C = new DenseColumnDComplexMatrix2D(m, p);
-        if (!(C instanceof DenseColumnDComplexMatrix2D))
-            return super.zMult(B, C, alpha, beta, transposeA, transposeB);
-        if (B.rows() != n)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
-                    + B.toStringShort());
-        if (C.rows() != m || C.columns() != p)
-            throw new IllegalArgumentException("Incompatibel result matrix: " + toStringShort() + ", "
-                    + B.toStringShort() + ", " + C.toStringShort());
-        if (this == C || B == C)
-            throw new IllegalArgumentException("Matrices must not be identical");
-
-        DenseColumnDComplexMatrix2D BB = (DenseColumnDComplexMatrix2D) B;
-        DenseColumnDComplexMatrix2D CC = (DenseColumnDComplexMatrix2D) C;
-        final double[] AElems = this.elements;
-        final double[] BElems = BB.elements;
-        final double[] CElems = CC.elements;
-        if (AElems == null || BElems == null || CElems == null)
-            throw new InternalError();
-
-        int cA = this.columnStride;
-        int cB = BB.columnStride;
-        int cC = CC.columnStride;
-
-        int rA = this.rowStride;
-        int rB = BB.rowStride;
-        int rC = CC.rowStride;
-
-        /*
-         * A is blocked to hide memory latency xxxxxxx B xxxxxxx xxxxxxx A xxx
-         * xxxxxxx C xxx xxxxxxx --- ------- xxx xxxxxxx xxx xxxxxxx --- -------
-         * xxx xxxxxxx
-         */
-        final int BLOCK_SIZE = 30000; // * 8 == Level 2 cache in bytes
-        int m_optimal = (BLOCK_SIZE - n) / (n + 1);
-        if (m_optimal <= 0)
-            m_optimal = 1;
-        int blocks = m / m_optimal;
-        int rr = 0;
-        if (m % m_optimal != 0)
-            blocks++;
-        double reS;
-        double imS;
-        double reA;
-        double imA;
-        double reB;
-        double imB;
-        double reC;
-        double imC;
-        for (; --blocks >= 0;) {
-            int jB = (int) BB.index(0, 0);
-            int indexA = (int) index(rr, 0);
-            int jC = (int) CC.index(rr, 0);
-            rr += m_optimal;
-            if (blocks == 0)
-                m_optimal += m - rr;
-
-            for (int j = p; --j >= 0;) {
-                int iA = indexA;
-                int iC = jC;
-                for (int i = m_optimal; --i >= 0;) {
-                    int kA = iA;
-                    int kB = jB;
-                    reS = 0;
-                    imS = 0;
-                    // loop unrolled
-                    kA -= cA;
-                    kB -= rB;
-                    for (int k = n % 4; --k >= 0;) {
-                        kA += cA;
-                        kB += rB;
-                        reA = AElems[kA];
-                        imA = AElems[kA + 1];
-                        reB = BElems[kB];
-                        imB = BElems[kB + 1];
-                        reS += reA * reB - imA * imB;
-                        imS += imA * reB + reA * imB;
-                    }
-                    for (int k = n / 4; --k >= 0;) {
-                        kA += cA;
-                        kB += rB;
-                        reA = AElems[kA];
-                        imA = AElems[kA + 1];
-                        reB = BElems[kB];
-                        imB = BElems[kB + 1];
-                        reS += reA * reB - imA * imB;
-                        imS += imA * reB + reA * imB;
-                        kA += cA;
-                        kB += rB;
-                        reA = AElems[kA];
-                        imA = AElems[kA + 1];
-                        reB = BElems[kB];
-                        imB = BElems[kB + 1];
-                        reS += reA * reB - imA * imB;
-                        imS += imA * reB + reA * imB;
-                        kA += cA;
-                        kB += rB;
-                        reA = AElems[kA];
-                        imA = AElems[kA + 1];
-                        reB = BElems[kB];
-                        imB = BElems[kB + 1];
-                        reS += reA * reB - imA * imB;
-                        imS += imA * reB + reA * imB;
-                        kA += cA;
-                        kB += rB;
-                        reA = AElems[kA];
-                        imA = AElems[kA + 1];
-                        reB = BElems[kB];
-                        imB = BElems[kB + 1];
-                        reS += reA * reB - imA * imB;
-                        imS += imA * reB + reA * imB;
-                    }
-                    reC = CElems[iC];
-                    imC = CElems[iC + 1];
-                    CElems[iC] = alpha[0] * reS - alpha[1] * imS + beta[0] * reC - beta[1] * imC;
-                    CElems[iC + 1] = alpha[1] * reS + alpha[0] * imS + beta[1] * reC + beta[0] * imC;
-                    iA += rA;
-                    iC += rC;
-                }
-                jB += cB;
-                jC += cC;
-            }
-        }
-        return C;
-    }
-
     public double[] zSum() {
         double[] sum = new double[2];
         final int zero = (int) index(0, 0);
@@ -17,6 +17,7 @@ import java.util.concurrent.Future;
 import cern.colt.list.tdouble.DoubleArrayList;
 import cern.colt.list.tint.IntArrayList;
 import cern.colt.matrix.AbstractMatrix2D;
+import cern.colt.matrix.tdouble.impl.DoubleMatrix2DMultiplication;
 import cern.jet.math.tdouble.DoubleFunctions;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
@@ -2100,7 +2101,8 @@ public abstract class DoubleMatrix2D extends AbstractMatrix2D {
      * <tt>C[i,j] = alpha*Sum(A[i,k] * B[k,j]) + beta*C[i,j], k=0..n-1</tt>. <br>
      * Matrix shapes: <tt>A(m x n), B(n x p), C(m x p)</tt>. <br>
      * Note: Matrix shape conformance is checked <i>after</i> potential
-     * transpositions.
+     * transpositions. This implementation packs the operands, whatever their
+     * storage, see {@link DoubleMatrix2DMultiplication}.
      * 
      * @param B
      *            the second source matrix.
@@ -2142,41 +2144,7 @@ public abstract class DoubleMatrix2D extends AbstractMatrix2D {
                     + B.toStringShort() + ", " + CC.toStringShort());
         if (this == CC || B == CC)
             throw new IllegalArgumentException("Matrices must not be identical");
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, p);
-            Future<?>[] futures = new Future[nthreads];
-            int k = p / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? p : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int a = firstIdx; a < lastIdx; a++) {
-                            for (int b = 0; b < m; b++) {
-                                double s = 0;
-                                for (int c = 0; c < n; c++) {
-                                    s += getQuick(b, c) * B.getQuick(c, a);
-                                }
-                                CC.setQuick(b, a, alpha * s + beta * CC.getQuick(b, a));
-                            }
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int a = 0; a < p; a++) {
-                for (int b = 0; b < m; b++) {
-                    double s = 0;
-                    for (int c = 0; c < n; c++) {
-                        s += getQuick(b, c) * B.getQuick(c, a);
-                    }
-                    CC.setQuick(b, a, alpha * s + beta * CC.getQuick(b, a));
-                }
-            }
-        }
-        return CC;
+        return DoubleMatrix2DMultiplication.zMult(this, B, CC, alpha, beta);
     }
 
     /**
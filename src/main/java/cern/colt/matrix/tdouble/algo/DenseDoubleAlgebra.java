@@ -29,6 +29,9 @@ import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix3D;
 import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
+import cern.colt.matrix.tfloat.algo.decomposition.DenseFloatLUDecomposition;
+import cern.colt.matrix.tfloat.impl.DenseFloatMatrix1D;
+import cern.colt.matrix.tfloat.impl.DenseFloatMatrix2D;
 import cern.colt.matrix.tint.IntMatrix1D;
 import cern.colt.matrix.tint.IntMatrix2D;
 import cern.colt.matrix.tint.impl.DenseIntMatrix1D;
@@ -1124,6 +1127,59 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
         }
     }
 
+    /**
+     * Solves A*x = b in mixed precision: a single precision copy of
+     * <tt>A</tt> is factored by {@link DenseFloatLUDecomposition}, which takes
+     * about half the time and the memory of the double precision
+     * factorization, and the solution is improved to double precision
+     * accuracy by iterative refinement. If the refinement stalls, which
+     * happens when <tt>A</tt> is too ill-conditioned for single precision, the
+     * system is solved with {@link DenseDoubleLUDecomposition} instead. See
+     * {@link DoubleMixedPrecisionSolution} for details.
+     * 
+     * @param A
+     *            square matrix
+     * @param b
+     *            right hand side
+     * @return the solution, the number of refinement steps and the achieved
+     *         backward error.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square or if <tt>b.size() != A.rows()</tt>.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is singular.
+     */
+    public DoubleMixedPrecisionSolution solveMixedPrecision(final DoubleMatrix2D A, DoubleMatrix1D b) {
+        property().checkSquare(A);
+        if (b.size() != A.rows()) {
+            throw new IllegalArgumentException("b.size() != A.rows()");
+        }
+        int n = A.rows();
+        double normA = normInfinity(A);
+        DoubleMixedPrecisionSolution solution = null;
+        if (normA <= Float.MAX_VALUE) {
+            DenseFloatMatrix2D Af = new DenseFloatMatrix2D(n, n);
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    Af.setQuick(r, c, (float) A.getQuick(r, c));
+                }
+            }
+            final DenseFloatLUDecomposition lu = new DenseFloatLUDecomposition(Af);
+            if (lu.isNonsingular()) {
+                solution = DoubleMixedPrecisionSolution.refine(A, b, normA, new DoubleMixedPrecisionSolution.FloatSolver() {
+                    void solve(float[] d) {
+                        lu.solve(new DenseFloatMatrix1D(d)).toArray(d);
+                    }
+                });
+            }
+        }
+        if (solution == null) {
+            DoubleMatrix1D x = new DenseDoubleMatrix1D(n).assign(lu(A).solve(b));
+            solution = new DoubleMixedPrecisionSolution(x, 0, DoubleMixedPrecisionSolution.backwardError(A, x, b,
+                    normA), true);
+        }
+        return solution;
+    }
+
     /**
      * Solves X*A = B, which is also A'*X' = B'.
      * 
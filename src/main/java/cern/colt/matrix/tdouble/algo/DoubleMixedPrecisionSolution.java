@@ -0,0 +1,178 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.algo;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+
+/**
+ * Solution of a square system <tt>A*x = b</tt> computed in mixed precision,
+ * together with the figures describing how it was obtained.
+ * <p>
+ * The system is factored in single precision and the solution is improved by
+ * iterative refinement: the residual <tt>r = b - A*x</tt> is computed in
+ * double precision, the correction <tt>A*d = r</tt> is solved with the single
+ * precision factors and <tt>x = x + d</tt>. The iteration stops when the
+ * normwise backward error
+ * 
+ * <pre>
+ * ||b - A*x|| / (||A||*||x|| + ||b||)
+ * </pre>
+ * 
+ * (infinity norms) is at most <tt>sqrt(n)*eps</tt>, <tt>eps</tt> being the
+ * double precision machine epsilon. If the error does not at least halve in a
+ * step, if the matrix is too ill-conditioned or too large in magnitude to be
+ * factored in single precision, or after {@link #MAX_ITERATIONS} steps, the
+ * system is solved again with a double precision factorization.
+ * 
+ * @see DenseDoubleAlgebra#solveMixedPrecision(DoubleMatrix2D, DoubleMatrix1D)
+ * @see SparseDoubleAlgebra#solveMixedPrecision(DoubleMatrix2D, DoubleMatrix1D)
+ */
+public class DoubleMixedPrecisionSolution {
+
+    /**
+     * The maximum number of refinement steps; the same as in the LAPACK
+     * routine <tt>DSGESV</tt>.
+     */
+    public static final int MAX_ITERATIONS = 30;
+
+    private static final double EPSILON = Math.ulp(1.0);
+
+    private final DoubleMatrix1D x;
+
+    private final int iterations;
+
+    private final double backwardError;
+
+    private final boolean fallback;
+
+    DoubleMixedPrecisionSolution(DoubleMatrix1D x, int iterations, double backwardError, boolean fallback) {
+        this.x = x;
+        this.iterations = iterations;
+        this.backwardError = backwardError;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns the normwise backward error of the solution, in the infinity
+     * norm.
+     * 
+     * @return <tt>||b - A*x|| / (||A||*||x|| + ||b||)</tt>
+     */
+    public double getBackwardError() {
+        return backwardError;
+    }
+
+    /**
+     * Returns the number of refinement steps that were applied to the single
+     * precision solution; 0 if the solution was computed with the double
+     * precision factorization.
+     * 
+     * @return the number of refinement steps.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the solution.
+     * 
+     * @return <tt>x</tt>; a new dense vector.
+     */
+    public DoubleMatrix1D getSolution() {
+        return x;
+    }
+
+    /**
+     * Returns whether the refinement failed and the solution was computed with
+     * a double precision factorization.
+     * 
+     * @return true if the system was solved in double precision.
+     */
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    /**
+     * Returns a string with the iteration count, the backward error and
+     * whether the double precision factorization was used.
+     */
+    public String toString() {
+        return "iterations: " + iterations + ", backward error: " + backwardError + ", fallback: " + fallback;
+    }
+
+    /*
+     * The single precision factors of A.
+     */
+    static abstract class FloatSolver {
+
+        /*
+         * Solves A*x = b in place.
+         */
+        abstract void solve(float[] b);
+    }
+
+    /*
+     * Returns the normwise backward error of x.
+     */
+    static double backwardError(DoubleMatrix2D A, DoubleMatrix1D x, DoubleMatrix1D b, double normA) {
+        DoubleMatrix1D r = b.copy();
+        A.zMult(x, r, -1, 1, false);
+        return backwardError(normInfinity(r), normA, normInfinity(x), normInfinity(b));
+    }
+
+    /*
+     * Refines the solution of A*x = b obtained with the given single precision
+     * factors; returns null if the refinement stalls.
+     */
+    static DoubleMixedPrecisionSolution refine(DoubleMatrix2D A, DoubleMatrix1D b, double normA, FloatSolver solver) {
+        int n = A.rows();
+        double tolerance = Math.sqrt(n) * EPSILON;
+        double normB = normInfinity(b);
+        float[] d = new float[n];
+        DoubleMatrix1D x = new DenseDoubleMatrix1D(n);
+        DoubleMatrix1D r = b.copy();
+        double previous = Double.POSITIVE_INFINITY;
+        for (int step = 0;; step++) {
+            double normR = normInfinity(r);
+            double error = backwardError(normR, normA, normInfinity(x), normB);
+            if (error <= tolerance) {
+                return new DoubleMixedPrecisionSolution(x, Math.max(step - 1, 0), error, false);
+            }
+            if (step > MAX_ITERATIONS || !(error <= 0.5 * previous)) {
+                return null; // stalled, or the factors produced NaNs
+            }
+            previous = error;
+            // scale the residual so that it neither overflows nor underflows in single precision
+            for (int i = 0; i < n; i++) {
+                d[i] = (float) (r.getQuick(i) / normR);
+            }
+            solver.solve(d);
+            for (int i = 0; i < n; i++) {
+                x.setQuick(i, x.getQuick(i) + normR * d[i]);
+            }
+            r.assign(b);
+            A.zMult(x, r, -1, 1, false);
+        }
+    }
+
+    private static double backwardError(double normR, double normA, double normX, double normB) {
+        double scale = normA * normX + normB;
+        return scale == 0 ? normR : normR / scale;
+    }
+
+    private static double normInfinity(DoubleMatrix1D x) {
+        double norm = 0;
+        for (int i = (int) x.size(); --i >= 0;) {
+            norm = Math.max(norm, Math.abs(x.getQuick(i)));
+        }
+        return norm;
+    }
+}
@@ -8,6 +8,7 @@ It is provided "as is" without expressed or implied warranty.
  */
 package cern.colt.matrix.tdouble.algo;
 
+import cern.colt.ParallelRadixSort;
 import cern.colt.function.tint.IntComparator;
 import cern.colt.matrix.AbstractFormatter;
 import cern.colt.matrix.tdouble.DoubleFactory2D;
@@ -138,47 +139,22 @@ public class DoubleSorting extends cern.colt.PersistentObject {
     }
 
     /**
-     * Sorts indexes of the <code>vector</code> into ascending order.
+     * Sorts indexes of the <code>vector</code> into ascending order. The sort
+     * is a multithreaded radix sort and is <i>stable</i>, whichever algorithm
+     * the receiver uses otherwise.
      * 
      * @param vector
      * @return sorted indexes
      */
     public int[] sortIndex(final DoubleMatrix1D vector) {
-        int[] indexes = new int[(int) vector.size()]; // row indexes to reorder
-        // instead of matrix itself
-        for (int i = indexes.length; --i >= 0;)
-            indexes[i] = i;
-        IntComparator comp = null;
+        // the natural ordering is sorted by a stable radix argsort, whatever
+        // the sort algorithm of the receiver
+        int size = (int) vector.size();
         if (vector instanceof DenseDoubleMatrix1D) {
-            final double[] velems = (double[]) vector.elements();
-            final int zero = (int) vector.index(0);
-            final int stride = vector.stride();
-            comp = new IntComparator() {
-                public int compare(int a, int b) {
-                    int idxa = zero + a * stride;
-                    int idxb = zero + b * stride;
-                    double av = velems[idxa];
-                    double bv = velems[idxb];
-                    if (av != av || bv != bv)
-                        return compareNaN(av, bv); // swap NaNs to the end
-                    return av < bv ? -1 : (av == bv ? 0 : 1);
-                }
-            };
-        } else {
-            comp = new IntComparator() {
-                public int compare(int a, int b) {
-                    double av = vector.getQuick(a);
-                    double bv = vector.getQuick(b);
-                    if (av != av || bv != bv)
-                        return compareNaN(av, bv); // swap NaNs to the end
-                    return av < bv ? -1 : (av == bv ? 0 : 1);
-                }
-            };
+            return ParallelRadixSort.sortIndex((double[]) vector.elements(), (int) vector.index(0), vector.stride(),
+                    size);
         }
-
-        runSort(indexes, 0, indexes.length, comp);
-
-        return indexes;
+        return ParallelRadixSort.sortIndex(vector.toArray(), 0, 1, size);
     }
 
     /**
@@ -449,23 +425,8 @@ public class DoubleSorting extends cern.colt.PersistentObject {
         if (column < 0 || column >= matrix.columns())
             throw new IndexOutOfBoundsException("column=" + column + ", matrix=" + AbstractFormatter.shape(matrix));
 
-        int[] rowIndexes = new int[matrix.rows()]; // row indexes to reorder
-        // instead of matrix itself
-        for (int i = rowIndexes.length; --i >= 0;)
-            rowIndexes[i] = i;
-
-        final DoubleMatrix1D col = matrix.viewColumn(column);
-        IntComparator comp = new IntComparator() {
-            public int compare(int a, int b) {
-                double av = col.getQuick(a);
-                double bv = col.getQuick(b);
-                if (av != av || bv != bv)
-                    return compareNaN(av, bv); // swap NaNs to the end
-                return av < bv ? -1 : (av == bv ? 0 : 1);
-            }
-        };
-
-        runSort(rowIndexes, 0, rowIndexes.length, comp);
+        // row indexes to reorder instead of matrix itself
+        int[] rowIndexes = sortIndex(matrix.viewColumn(column));
 
         // view the matrix according to the reordered row indexes
         // take all columns in the original order
@@ -656,24 +617,8 @@ public class DoubleSorting extends cern.colt.PersistentObject {
         if (column < 0 || column >= matrix.columns())
             throw new IndexOutOfBoundsException("column=" + column + ", matrix=" + AbstractFormatter.shape(matrix));
 
-        int[] sliceIndexes = new int[matrix.slices()]; // indexes to reorder
-        // instead of matrix
-        // itself
-        for (int i = sliceIndexes.length; --i >= 0;)
-            sliceIndexes[i] = i;
-
-        final DoubleMatrix1D sliceView = matrix.viewRow(row).viewColumn(column);
-        IntComparator comp = new IntComparator() {
-            public int compare(int a, int b) {
-                double av = sliceView.getQuick(a);
-                double bv = sliceView.getQuick(b);
-                if (av != av || bv != bv)
-                    return compareNaN(av, bv); // swap NaNs to the end
-                return av < bv ? -1 : (av == bv ? 0 : 1);
-            }
-        };
-
-        runSort(sliceIndexes, 0, sliceIndexes.length, comp);
+        // slice indexes to reorder instead of matrix itself
+        int[] sliceIndexes = sortIndex(matrix.viewRow(row).viewColumn(column));
 
         // view the matrix according to the reordered slice indexes
         // take all rows and columns in the original order
@@ -11,6 +11,7 @@ package cern.colt.matrix.tdouble.algo;
 import hep.aida.tdouble.bin.DynamicDoubleBin1D;
 
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import cern.colt.function.tdouble.DoubleDoubleFunction;
 import cern.colt.matrix.tdouble.DoubleFactory1D;
@@ -18,6 +19,8 @@ import cern.colt.matrix.tdouble.DoubleFactory2D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix3D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
 import cern.jet.math.tdouble.DoubleFunctions;
 import cern.jet.random.tdouble.engine.DoubleRandomEngine;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
@@ -60,6 +63,15 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
  </tt> <tt>&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; </tt></td>
  * </tr>
  * </table>
+ * <p>
+ * Covariance, correlation and the built-in distance functions are computed by a
+ * parallel engine: the columns are copied (and centred or scaled where
+ * applicable) in one pass, after which all pairs of columns are evaluated in
+ * cache-sized tiles. Covariance, correlation and {@link #COSINE} reduce to a
+ * symmetric rank-k update (<tt>X'*X</tt>); the other metrics are evaluated
+ * directly on the tiles. The <tt>...Packed</tt> methods store only the lower
+ * triangle of the symmetric result, see {@link #packedIndex(int, int)}. A
+ * user defined distance function is applied serially, in the calling thread.
  * 
  * @author wolfgang.hoschek@cern.ch
  * @version 1.0, 09/24/99
@@ -125,6 +137,17 @@ public class DoubleStatistic extends Object {
         }
     };
 
+    /**
+     * Cosine distance function;
+     * <tt>1 - Sum( x[i]*y[i] ) / (Sqrt(Sum( x[i]^2 )) * Sqrt(Sum( y[i]^2 )))</tt>
+     * .
+     */
+    public static final VectorVectorFunction COSINE = new VectorVectorFunction() {
+        public final double apply(DoubleMatrix1D a, DoubleMatrix1D b) {
+            return 1 - a.zDotProduct(b) / Math.sqrt(a.zDotProduct(a) * b.zDotProduct(b));
+        }
+    };
+
     /**
      * Interface that represents a function object: a function that takes two
      * argument vectors and returns a single value.
@@ -308,26 +331,92 @@ public class DoubleStatistic extends Object {
      * @return the covariance matrix (<tt>n x n, n=matrix.columns</tt>).
      */
     public static DoubleMatrix2D covariance(DoubleMatrix2D matrix) {
-        int rows = matrix.rows();
         int columns = matrix.columns();
-        DoubleMatrix2D covariance = new cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D(columns, columns);
+        DoubleMatrix2D covariance = new DenseDoubleMatrix2D(columns, columns);
+        symmetricRankK(packColumns(matrix, CENTRE), 1.0 / matrix.rows(), covariance, null);
+        return covariance;
+    }
 
-        double[] sums = new double[columns];
-        DoubleMatrix1D[] cols = new DoubleMatrix1D[columns];
-        for (int i = columns; --i >= 0;) {
-            cols[i] = matrix.viewColumn(i);
-            sums[i] = cols[i].zSum();
-        }
+    /**
+     * Constructs and returns the covariance matrix of the given matrix, storing
+     * only its lower triangle. Equivalent to {@link #covariance(DoubleMatrix2D)}
+     * but requires about half the memory.
+     * 
+     * @param matrix
+     *            any matrix; a column holds the values of a given variable.
+     * @return the lower triangle of the covariance matrix, packed as described
+     *         in {@link #packedIndex(int, int)}.
+     * @throws IllegalArgumentException
+     *             if the packed triangle does not fit into an array.
+     */
+    public static DoubleMatrix1D covariancePacked(DoubleMatrix2D matrix) {
+        double[] packed = new double[packedSize(matrix.columns())];
+        symmetricRankK(packColumns(matrix, CENTRE), 1.0 / matrix.rows(), null, packed);
+        return new DenseDoubleMatrix1D(packed);
+    }
 
-        for (int i = columns; --i >= 0;) {
-            for (int j = i + 1; --j >= 0;) {
-                double sumOfProducts = cols[i].zDotProduct(cols[j]);
-                double cov = (sumOfProducts - sums[i] * sums[j] / rows) / rows;
-                covariance.setQuick(i, j, cov);
-                covariance.setQuick(j, i, cov); // symmetric
-            }
+    /**
+     * Constructs and returns the correlation matrix of the given matrix. This
+     * is equivalent to, but faster and numerically more accurate than
+     * <tt>correlation(covariance(matrix))</tt>: the columns are centred and
+     * scaled to unit length in a single pass, so that the correlation matrix is
+     * obtained directly from their inner products.
+     * 
+     * @param matrix
+     *            any matrix; a column holds the values of a given variable.
+     * @return the correlation matrix (<tt>n x n, n=matrix.columns</tt>).
+     */
+    public static DoubleMatrix2D pearsonCorrelation(DoubleMatrix2D matrix) {
+        int columns = matrix.columns();
+        DoubleMatrix2D correlation = new DenseDoubleMatrix2D(columns, columns);
+        symmetricRankK(packColumns(matrix, CENTRE_SCALE), 1.0, correlation, null);
+        for (int i = columns; --i >= 0;)
+            correlation.setQuick(i, i, 1);
+        return correlation;
+    }
+
+    /**
+     * Constructs and returns the correlation matrix of the given matrix,
+     * storing only its lower triangle. Equivalent to
+     * {@link #pearsonCorrelation(DoubleMatrix2D)} but requires about half the
+     * memory.
+     * 
+     * @param matrix
+     *            any matrix; a column holds the values of a given variable.
+     * @return the lower triangle of the correlation matrix, packed as
+     *         described in {@link #packedIndex(int, int)}.
+     * @throws IllegalArgumentException
+     *             if the packed triangle does not fit into an array.
+     */
+    public static DoubleMatrix1D pearsonCorrelationPacked(DoubleMatrix2D matrix) {
+        int columns = matrix.columns();
+        double[] packed = new double[packedSize(columns)];
+        symmetricRankK(packColumns(matrix, CENTRE_SCALE), 1.0, null, packed);
+        for (int i = columns; --i >= 0;)
+            packed[packedIndex(i, i)] = 1;
+        return new DenseDoubleMatrix1D(packed);
+    }
+
+    /**
+     * Returns the position of element <tt>(i,j)</tt> of a symmetric
+     * <tt>n x n</tt> matrix whose lower triangle is packed row by row into a
+     * one-dimensional array of size <tt>n*(n+1)/2</tt>, as returned by the
+     * <tt>...Packed</tt> methods. The position does not depend on <tt>n</tt>
+     * and the arguments may be given in any order.
+     * 
+     * @param i
+     *            the row (or column) index.
+     * @param j
+     *            the column (or row) index.
+     * @return <tt>max(i,j)*(max(i,j)+1)/2 + min(i,j)</tt>.
+     */
+    public static int packedIndex(int i, int j) {
+        if (i < j) {
+            int tmp = i;
+            i = j;
+            j = tmp;
         }
-        return covariance;
+        return (int) ((long) i * (i + 1) / 2) + j;
     }
 
     /**
@@ -543,28 +632,64 @@ public class DoubleStatistic extends Object {
      *            (vector).
      * @param distanceFunction
      *            (EUCLID, CANBERRA, ..., or any user defined distance function
-     *            operating on two vectors).
+     *            operating on two vectors). A user defined function is
+     *            applied serially, one pair of columns at a time.
      * @return the distance matrix (<tt>n x n, n=matrix.columns</tt>).
      */
     public static DoubleMatrix2D distance(DoubleMatrix2D matrix, VectorVectorFunction distanceFunction) {
         int columns = matrix.columns();
-        DoubleMatrix2D distance = new cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D(columns, columns);
+        DoubleMatrix2D distance = new DenseDoubleMatrix2D(columns, columns);
+        distance(matrix, distanceFunction, distance, null);
+        return distance;
+    }
 
-        // cache views
-        DoubleMatrix1D[] cols = new DoubleMatrix1D[columns];
-        for (int i = columns; --i >= 0;) {
-            cols[i] = matrix.viewColumn(i);
-        }
+    /**
+     * Constructs and returns the distance matrix of the given matrix, storing
+     * only its lower triangle. Equivalent to
+     * {@link #distance(DoubleMatrix2D, VectorVectorFunction)} but requires
+     * about half the memory.
+     * 
+     * @param matrix
+     *            any matrix; a column holds the values of a given variable
+     *            (vector).
+     * @param distanceFunction
+     *            (EUCLID, CANBERRA, ..., or any user defined distance function
+     *            operating on two vectors). A user defined function is
+     *            applied serially, one pair of columns at a time.
+     * @return the lower triangle of the distance matrix, packed as described in
+     *         {@link #packedIndex(int, int)}.
+     * @throws IllegalArgumentException
+     *             if the packed triangle does not fit into an array.
+     */
+    public static DoubleMatrix1D distancePacked(DoubleMatrix2D matrix, VectorVectorFunction distanceFunction) {
+        double[] packed = new double[packedSize(matrix.columns())];
+        distance(matrix, distanceFunction, null, packed);
+        return new DenseDoubleMatrix1D(packed);
+    }
 
-        // work out all permutations
-        for (int i = columns; --i >= 0;) {
-            for (int j = i; --j >= 0;) {
-                double d = distanceFunction.apply(cols[i], cols[j]);
-                distance.setQuick(i, j, d);
-                distance.setQuick(j, i, d); // symmetric
-            }
+    private static void distance(final DoubleMatrix2D matrix, final VectorVectorFunction distanceFunction,
+            DoubleMatrix2D dense, double[] packed) {
+        if (distanceFunction == EUCLID) {
+            // sums the squared differences; the shortcut
+            // |x|^2 + |y|^2 - 2*x'*y cancels catastrophically for close columns
+            pairwise(packColumns(matrix, NONE), METRIC_EUCLID, dense, packed);
+        } else if (distanceFunction == COSINE) {
+            symmetricRankK(packColumns(matrix, SCALE), new PairFunction() {
+                public double apply(int i, int j, double dot) {
+                    return i == j ? 0 : 1 - dot;
+                }
+            }, dense, packed);
+        } else if (distanceFunction == MANHATTAN) {
+            pairwise(packColumns(matrix, NONE), METRIC_MANHATTAN, dense, packed);
+        } else if (distanceFunction == CANBERRA) {
+            pairwise(packColumns(matrix, NONE), METRIC_CANBERRA, dense, packed);
+        } else if (distanceFunction == BRAY_CURTIS) {
+            pairwise(packColumns(matrix, NONE), METRIC_BRAY_CURTIS, dense, packed);
+        } else if (distanceFunction == MAXIMUM) {
+            pairwise(packColumns(matrix, NONE), METRIC_MAXIMUM, dense, packed);
+        } else {
+            pairwise(matrix, distanceFunction, dense, packed);
         }
-        return distance;
     }
 
     /**
@@ -974,4 +1099,342 @@ public class DoubleStatistic extends Object {
 
         return matrix.viewSelection(selectedSlices, selectedRows, selectedCols);
     }
+
+    // ---------------------------------------------------------------------
+    // Parallel engine for covariance, correlation and distance matrices
+    // ---------------------------------------------------------------------
+
+    private static final int NONE = 0; // copy columns as they are
+
+    private static final int CENTRE = 1; // subtract the column means
+
+    private static final int CENTRE_SCALE = 2; // centre and scale to unit length
+
+    private static final int SCALE = 3; // scale to unit length
+
+    private static final int METRIC_EUCLID = 0;
+
+    private static final int METRIC_MANHATTAN = 1;
+
+    private static final int METRIC_CANBERRA = 2;
+
+    private static final int METRIC_BRAY_CURTIS = 3;
+
+    private static final int METRIC_MAXIMUM = 4;
+
+    private static final int TILE = 64; // number of columns in a tile
+
+    private static final int BLOCK = 1024; // number of rows in a block
+
+    /**
+     * Transforms the inner product of columns <tt>i</tt> and <tt>j</tt> into
+     * the result value.
+     */
+    private static abstract class PairFunction {
+        abstract double apply(int i, int j, double dot);
+    }
+
+    private static int packedSize(int n) {
+        long size = (long) n * (n + 1) / 2;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("packed triangle is too large: " + n + " columns");
+        return (int) size;
+    }
+
+    private static void store(DoubleMatrix2D dense, double[] packed, int i, int j, double value) {
+        if (dense != null) {
+            dense.setQuick(i, j, value);
+            dense.setQuick(j, i, value); // symmetric
+        } else {
+            packed[packedIndex(i, j)] = value;
+        }
+    }
+
+    /**
+     * Copies the columns of the given matrix into contiguous arrays,
+     * transforming them as specified by <tt>mode</tt>. Columns are processed
+     * concurrently.
+     */
+    private static double[][] packColumns(final DoubleMatrix2D matrix, final int mode) {
+        final int rows = matrix.rows();
+        final int columns = matrix.columns();
+        final double[][] x = new double[columns][rows];
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (matrix.size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, columns);
+            Future<?>[] futures = new Future[nthreads];
+            int k = columns / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstColumn = j * k;
+                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int c = firstColumn; c < lastColumn; c++) {
+                            packColumn(matrix, c, x[c], mode);
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            for (int c = 0; c < columns; c++) {
+                packColumn(matrix, c, x[c], mode);
+            }
+        }
+        return x;
+    }
+
+    private static void packColumn(DoubleMatrix2D matrix, int c, double[] x, int mode) {
+        int rows = x.length;
+        double sum = 0;
+        for (int r = 0; r < rows; r++) {
+            double v = matrix.getQuick(r, c);
+            x[r] = v;
+            sum += v;
+        }
+        if (mode == NONE)
+            return;
+        if (mode == CENTRE || mode == CENTRE_SCALE) {
+            double mean = sum / rows;
+            for (int r = 0; r < rows; r++) {
+                x[r] -= mean;
+            }
+        }
+        if (mode == CENTRE_SCALE || mode == SCALE) {
+            double sumOfSquares = 0;
+            for (int r = 0; r < rows; r++) {
+                sumOfSquares += x[r] * x[r];
+            }
+            double scale = 1 / Math.sqrt(sumOfSquares);
+            for (int r = 0; r < rows; r++) {
+                x[r] *= scale;
+            }
+        }
+    }
+
+    /**
+     * Computes <tt>alpha * x[i]'*x[j]</tt> for all <tt>j &lt;= i</tt>.
+     */
+    private static void symmetricRankK(double[][] x, final double alpha, DoubleMatrix2D dense, double[] packed) {
+        symmetricRankK(x, new PairFunction() {
+            public double apply(int i, int j, double dot) {
+                return alpha * dot;
+            }
+        }, dense, packed);
+    }
+
+    /**
+     * Computes <tt>f(i, j, x[i]'*x[j])</tt> for all <tt>j &lt;= i</tt>. The
+     * lower triangle is split into <tt>TILE x TILE</tt> tiles that are
+     * distributed dynamically among the threads. Each tile is accumulated over
+     * blocks of <tt>BLOCK</tt> rows, with four inner products computed
+     * simultaneously.
+     */
+    private static void symmetricRankK(final double[][] x, final PairFunction f, final DoubleMatrix2D dense,
+            final double[] packed) {
+        final int n = x.length;
+        final int m = n == 0 ? 0 : x[0].length;
+        forEachTile(n, (long) n * n / 2 * m, new TileProcedure() {
+            public void apply(int i0, int i1, int j0, int j1) {
+                double[] acc = new double[TILE * TILE];
+                for (int k0 = 0; k0 < m; k0 += BLOCK) {
+                    int k1 = Math.min(k0 + BLOCK, m);
+                    for (int i = i0; i < i1; i++) {
+                        double[] xi = x[i];
+                        int jmax = Math.min(j1, i + 1);
+                        int idx = (i - i0) * TILE - j0;
+                        int j = j0;
+                        for (; j + 3 < jmax; j += 4) {
+                            double[] y0 = x[j];
+                            double[] y1 = x[j + 1];
+                            double[] y2 = x[j + 2];
+                            double[] y3 = x[j + 3];
+                            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                            for (int k = k0; k < k1; k++) {
+                                double a = xi[k];
+                                s0 += a * y0[k];
+                                s1 += a * y1[k];
+                                s2 += a * y2[k];
+                                s3 += a * y3[k];
+                            }
+                            acc[idx + j] += s0;
+                            acc[idx + j + 1] += s1;
+                            acc[idx + j + 2] += s2;
+                            acc[idx + j + 3] += s3;
+                        }
+                        for (; j < jmax; j++) {
+                            double[] y = x[j];
+                            double s = 0;
+                            for (int k = k0; k < k1; k++) {
+                                s += xi[k] * y[k];
+                            }
+                            acc[idx + j] += s;
+                        }
+                    }
+                }
+                for (int i = i0; i < i1; i++) {
+                    int jmax = Math.min(j1, i + 1);
+                    for (int j = j0; j < jmax; j++) {
+                        store(dense, packed, i, j, f.apply(i, j, acc[(i - i0) * TILE + j - j0]));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Evaluates one of the built-in metrics for all <tt>j &lt; i</tt>.
+     */
+    private static void pairwise(final double[][] x, final int metric, final DoubleMatrix2D dense,
+            final double[] packed) {
+        final int n = x.length;
+        final int m = n == 0 ? 0 : x[0].length;
+        forEachTile(n, (long) n * n / 2 * m, new TileProcedure() {
+            public void apply(int i0, int i1, int j0, int j1) {
+                double[] acc = new double[TILE * TILE];
+                double[] acc2 = (metric == METRIC_BRAY_CURTIS) ? new double[TILE * TILE] : null;
+                for (int k0 = 0; k0 < m; k0 += BLOCK) {
+                    int k1 = Math.min(k0 + BLOCK, m);
+                    for (int i = i0; i < i1; i++) {
+                        double[] xi = x[i];
+                        int jmax = Math.min(j1, i);
+                        for (int j = j0; j < jmax; j++) {
+                            double[] y = x[j];
+                            int idx = (i - i0) * TILE + j - j0;
+                            switch (metric) {
+                            case METRIC_EUCLID: {
+                                double s = 0;
+                                for (int k = k0; k < k1; k++) {
+                                    double d = xi[k] - y[k];
+                                    s += d * d;
+                                }
+                                acc[idx] += s;
+                                break;
+                            }
+                            case METRIC_MANHATTAN: {
+                                double s = 0;
+                                for (int k = k0; k < k1; k++) {
+                                    s += Math.abs(xi[k] - y[k]);
+                                }
+                                acc[idx] += s;
+                                break;
+                            }
+                            case METRIC_CANBERRA: {
+                                double s = 0;
+                                for (int k = k0; k < k1; k++) {
+                                    s += Math.abs(xi[k] - y[k]) / Math.abs(xi[k] + y[k]);
+                                }
+                                acc[idx] += s;
+                                break;
+                            }
+                            case METRIC_BRAY_CURTIS: {
+                                double s = 0, t = 0;
+                                for (int k = k0; k < k1; k++) {
+                                    s += Math.abs(xi[k] - y[k]);
+                                    t += xi[k] + y[k];
+                                }
+                                acc[idx] += s;
+                                acc2[idx] += t;
+                                break;
+                            }
+                            case METRIC_MAXIMUM: {
+                                double s = (k0 == 0) ? Double.NEGATIVE_INFINITY : acc[idx];
+                                for (int k = k0; k < k1; k++) {
+                                    s = Math.max(s, Math.abs(xi[k] - y[k]));
+                                }
+                                acc[idx] = s;
+                                break;
+                            }
+                            }
+                        }
+                    }
+                }
+                for (int i = i0; i < i1; i++) {
+                    int jmax = Math.min(j1, i);
+                    for (int j = j0; j < jmax; j++) {
+                        int idx = (i - i0) * TILE + j - j0;
+                        double d = acc[idx];
+                        if (metric == METRIC_EUCLID) {
+                            d = Math.sqrt(d);
+                        } else if (metric == METRIC_BRAY_CURTIS) {
+                            d /= acc2[idx];
+                        }
+                        store(dense, packed, i, j, d);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Evaluates a user defined distance function for all <tt>j &lt; i</tt>,
+     * serially and in the same order as before the parallel engine, since the
+     * function need not be thread safe.
+     */
+    private static void pairwise(DoubleMatrix2D matrix, VectorVectorFunction distanceFunction, DoubleMatrix2D dense,
+            double[] packed) {
+        int n = matrix.columns();
+        // cache views
+        DoubleMatrix1D[] cols = new DoubleMatrix1D[n];
+        for (int i = n; --i >= 0;) {
+            cols[i] = matrix.viewColumn(i);
+        }
+        for (int i = n; --i >= 0;) {
+            for (int j = i; --j >= 0;) {
+                store(dense, packed, i, j, distanceFunction.apply(cols[i], cols[j]));
+            }
+        }
+    }
+
+    /**
+     * Procedure applied to the tile <tt>[i0,i1) x [j0,j1)</tt> of the lower
+     * triangle.
+     */
+    private static abstract class TileProcedure {
+        abstract void apply(int i0, int i1, int j0, int j1);
+    }
+
+    /**
+     * Applies the procedure to all tiles intersecting the lower triangle of an
+     * <tt>n x n</tt> matrix. The tiles are distributed dynamically among the
+     * threads if the estimated amount of work is large enough.
+     */
+    private static void forEachTile(final int n, long work, final TileProcedure procedure) {
+        final int ntiles = (n + TILE - 1) / TILE;
+        final int npairs = ntiles * (ntiles + 1) / 2;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (npairs > 1) && (work >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, npairs);
+            final AtomicInteger next = new AtomicInteger();
+            Future<?>[] futures = new Future[nthreads];
+            for (int t = 0; t < nthreads; t++) {
+                futures[t] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        int p;
+                        while ((p = next.getAndIncrement()) < npairs) {
+                            applyTile(p, n, procedure);
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            for (int p = 0; p < npairs; p++) {
+                applyTile(p, n, procedure);
+            }
+        }
+    }
+
+    private static void applyTile(int p, int n, TileProcedure procedure) {
+        // p enumerates the tile pairs (ti, tj), tj <= ti, row by row
+        int ti = (int) ((Math.sqrt(8.0 * p + 1) - 1) / 2);
+        while ((long) ti * (ti + 1) / 2 > p)
+            ti--;
+        while ((long) (ti + 1) * (ti + 2) / 2 <= p)
+            ti++;
+        int tj = p - ti * (ti + 1) / 2;
+        int i0 = ti * TILE;
+        int j0 = tj * TILE;
+        procedure.apply(i0, Math.min(i0 + TILE, n), j0, Math.min(j0 + TILE, n));
+    }
 }
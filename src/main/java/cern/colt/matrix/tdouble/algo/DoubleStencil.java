@@ -12,6 +12,8 @@ import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix2DProcedure;
 import cern.colt.matrix.tdouble.DoubleMatrix3D;
 import cern.colt.matrix.tdouble.DoubleMatrix3DProcedure;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix3D;
 
 /**
  * Stencil operations. For efficient finite difference operations. Applies a
@@ -21,6 +23,11 @@ import cern.colt.matrix.tdouble.DoubleMatrix3DProcedure;
  * shall be terminated, and how many iterations shall pass between convergence
  * checks. Always does two iterations at a time for efficiency. These class is
  * for convencience and efficiency.
+ * <p>
+ * The functions are applied serially, once per cell and iteration. Dense
+ * matrices can instead be iterated by a {@link DoubleStencilEngine}, tile by
+ * tile and several iterations per pass over the matrix, in parallel; see
+ * {@link #stencil(DenseDoubleMatrix2D, DoubleStencilEngine, int, DoubleMatrix2DProcedure, int)}.
  * 
  * @author wolfgang.hoschek@cern.ch
  * @version 1.0, 01/02/2000
@@ -58,12 +65,12 @@ public class DoubleStencil extends Object {
      */
     public static int stencil27(DoubleMatrix3D A, cern.colt.function.tdouble.Double27Function function,
             int maxIterations, DoubleMatrix3DProcedure hasConverged, int convergenceIterations) {
-        DoubleMatrix3D B = A.copy();
         if (convergenceIterations <= 1)
             convergenceIterations = 2;
         if (convergenceIterations % 2 != 0)
             convergenceIterations++; // odd -> make it even
 
+        DoubleMatrix3D B = A.copy();
         int i = 0;
         while (i < maxIterations) { // do two steps at a time for efficiency
             A.zAssign27Neighbors(B, function);
@@ -102,12 +109,12 @@ public class DoubleStencil extends Object {
      */
     public static int stencil9(DoubleMatrix2D A, cern.colt.function.tdouble.Double9Function function,
             int maxIterations, DoubleMatrix2DProcedure hasConverged, int convergenceIterations) {
-        DoubleMatrix2D B = A.copy();
         if (convergenceIterations <= 1)
             convergenceIterations = 2;
         if (convergenceIterations % 2 != 0)
             convergenceIterations++; // odd -> make it even
 
+        DoubleMatrix2D B = A.copy();
         int i = 0;
         while (i < maxIterations) { // do two steps at a time for efficiency
             A.zAssign8Neighbors(B, function);
@@ -120,4 +127,104 @@ public class DoubleStencil extends Object {
         }
         return i;
     }
+
+    /**
+     * 9 point stencil operation on a dense matrix, iterated by the given
+     * engine. Does the same iterations and convergence checks as
+     * {@link #stencil9(DoubleMatrix2D, cern.colt.function.tdouble.Double9Function, int, DoubleMatrix2DProcedure, int)};
+     * a function of the engine is called from several threads and more than
+     * once for the cells in the margins of the tiles, so it must be thread
+     * safe and free of side effects.
+     * 
+     * @param A
+     *            the matrix to operate on.
+     * @param engine
+     *            the 9 point stencil.
+     * @param maxIterations
+     *            the maximum number of times the stencil shall be applied to
+     *            the matrix. Should be a multiple of 2 because two iterations
+     *            are always done in one atomic step.
+     * @param hasConverged
+     *            Convergence condition; will return before maxIterations are
+     *            done when <tt>hasConverged.apply(A)==true</tt>. Set this
+     *            parameter to <tt>null</tt> to indicate that no convergence
+     *            checks shall be made.
+     * @param convergenceIterations
+     *            the number of iterations to pass between each convergence
+     *            check.
+     * @return the number of iterations actually executed.
+     * @throws IllegalArgumentException
+     *             if the engine is a 27 point stencil.
+     */
+    public static int stencil(DenseDoubleMatrix2D A, DoubleStencilEngine engine, int maxIterations,
+            DoubleMatrix2DProcedure hasConverged, int convergenceIterations) {
+        if (convergenceIterations <= 1)
+            convergenceIterations = 2;
+        if (convergenceIterations % 2 != 0)
+            convergenceIterations++; // odd -> make it even
+
+        double[] scratch = new double[(int) A.size()];
+        int last = maxIterations + (maxIterations & 1);
+        int i = 0;
+        while (i < last) { // up to the next convergence check
+            int steps = Math.min(convergenceIterations - i % convergenceIterations, last - i);
+            engine.apply(A, steps, -1, scratch);
+            i = i + steps;
+            if (i % convergenceIterations == 0 && hasConverged != null) {
+                if (hasConverged.apply(A))
+                    return i;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 27 point stencil operation on a dense matrix, iterated by the given
+     * engine. Does the same iterations and convergence checks as
+     * {@link #stencil27(DoubleMatrix3D, cern.colt.function.tdouble.Double27Function, int, DoubleMatrix3DProcedure, int)};
+     * a function of the engine is called from several threads and more than
+     * once for the cells in the margins of the tiles, so it must be thread
+     * safe and free of side effects.
+     * 
+     * @param A
+     *            the matrix to operate on.
+     * @param engine
+     *            the 27 point stencil.
+     * @param maxIterations
+     *            the maximum number of times the stencil shall be applied to
+     *            the matrix. Should be a multiple of 2 because two iterations
+     *            are always done in one atomic step.
+     * @param hasConverged
+     *            Convergence condition; will return before maxIterations are
+     *            done when <tt>hasConverged.apply(A)==true</tt>. Set this
+     *            parameter to <tt>null</tt> to indicate that no convergence
+     *            checks shall be made.
+     * @param convergenceIterations
+     *            the number of iterations to pass between each convergence
+     *            check.
+     * @return the number of iterations actually executed.
+     * @throws IllegalArgumentException
+     *             if the engine is a 9 point stencil.
+     */
+    public static int stencil(DenseDoubleMatrix3D A, DoubleStencilEngine engine, int maxIterations,
+            DoubleMatrix3DProcedure hasConverged, int convergenceIterations) {
+        if (convergenceIterations <= 1)
+            convergenceIterations = 2;
+        if (convergenceIterations % 2 != 0)
+            convergenceIterations++; // odd -> make it even
+
+        double[] scratch = new double[(int) A.size()];
+        int last = maxIterations + (maxIterations & 1);
+        int i = 0;
+        while (i < last) { // up to the next convergence check
+            int steps = Math.min(convergenceIterations - i % convergenceIterations, last - i);
+            engine.apply(A, steps, -1, scratch);
+            i = i + steps;
+            if (i % convergenceIterations == 0 && hasConverged != null) {
+                if (hasConverged.apply(A))
+                    return i;
+            }
+        }
+        return i;
+    }
 }
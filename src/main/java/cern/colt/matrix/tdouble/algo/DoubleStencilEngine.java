@@ -0,0 +1,830 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.algo;
+
+import java.util.concurrent.Future;
+
+import cern.colt.function.tdouble.Double27Function;
+import cern.colt.function.tdouble.Double9Function;
+import cern.colt.matrix.StencilBoundary;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix3D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Tiled, temporally blocked stencil iterations on dense 2-d and 3-d matrices.
+ * <p>
+ * A stencil is either linear, given by the <tt>3 x 3</tt> or
+ * <tt>3 x 3 x 3</tt> weights of the neighbours of a cell, or a
+ * {@link Double9Function} or {@link Double27Function} applied to the window
+ * around each cell, as by <tt>zAssign8Neighbors</tt> and
+ * <tt>zAssign27Neighbors</tt>.
+ * <p>
+ * Sweeping the whole grid once per iteration reads and writes every cell at
+ * every iteration, so large grids run at the speed of the memory. Instead, the
+ * grid is cut into tiles and each tile, together with a margin of
+ * <tt>timeBlock</tt> cells on every side, is copied into a small buffer; the
+ * buffer is iterated <tt>timeBlock</tt> times while it stays in the cache,
+ * the valid part shrinking by one cell per iteration, and only the tile is
+ * written back. The margins are computed by the neighbouring tiles as well,
+ * which costs a few redundant operations but needs no synchronization between
+ * the tiles within a time block; the tiles are processed in parallel.
+ * Unlike <tt>zAssign8Neighbors</tt> and <tt>zAssign27Neighbors</tt>, the
+ * engine therefore calls a function from several threads and more than once
+ * for the cells in the margins of the tiles; the function must be thread safe
+ * and free of side effects.
+ * <p>
+ * The convergence check is fused with the sweep: the largest change of a cell
+ * during the last iteration of a time block is computed while the tiles are
+ * still in the cache, and the iterations stop when it is not larger than the
+ * tolerance.
+ */
+public class DoubleStencilEngine {
+
+    private final boolean threeDimensional;
+
+    /*
+     * The weights of a linear stencil: weights[9*(ds+1) + 3*(dr+1) + (dc+1)]
+     * multiplies the cell at [slice+ds, row+dr, column+dc]; or null.
+     */
+    private final double[] weights;
+
+    private final Double9Function function9;
+
+    private final Double27Function function27;
+
+    /*
+     * Whether a linear stencil only has weights on the center and its face
+     * neighbours, the common 5 and 7 point stencils.
+     */
+    private boolean star;
+
+    private StencilBoundary boundary = StencilBoundary.Fixed;
+
+    private int timeBlock;
+
+    private int tileSlices, tileRows, tileColumns;
+
+    private double lastChange = Double.NaN;
+
+    /**
+     * Constructs a linear 9 point stencil; the new value of cell
+     * <tt>[row,column]</tt> is the sum of
+     * <tt>weights[1+dr][1+dc]*A[row+dr,column+dc]</tt> over
+     * <tt>-1 &lt;= dr, dc &lt;= 1</tt>.
+     * 
+     * @param weights
+     *            the <tt>3 x 3</tt> weights.
+     * @throws IllegalArgumentException
+     *             if <tt>weights</tt> is not <tt>3 x 3</tt>.
+     */
+    public DoubleStencilEngine(double[][] weights) {
+        this.weights = new double[27];
+        if (weights.length != 3) {
+            throw new IllegalArgumentException("weights must be 3 x 3");
+        }
+        for (int r = 0; r < 3; r++) {
+            if (weights[r].length != 3) {
+                throw new IllegalArgumentException("weights must be 3 x 3");
+            }
+            System.arraycopy(weights[r], 0, this.weights, 9 + 3 * r, 3);
+        }
+        this.threeDimensional = false;
+        this.function9 = null;
+        this.function27 = null;
+        setDefaults();
+    }
+
+    /**
+     * Constructs a linear 27 point stencil; the new value of cell
+     * <tt>[slice,row,column]</tt> is the sum of
+     * <tt>weights[1+ds][1+dr][1+dc]*A[slice+ds,row+dr,column+dc]</tt> over
+     * <tt>-1 &lt;= ds, dr, dc &lt;= 1</tt>.
+     * 
+     * @param weights
+     *            the <tt>3 x 3 x 3</tt> weights.
+     * @throws IllegalArgumentException
+     *             if <tt>weights</tt> is not <tt>3 x 3 x 3</tt>.
+     */
+    public DoubleStencilEngine(double[][][] weights) {
+        this.weights = new double[27];
+        if (weights.length != 3) {
+            throw new IllegalArgumentException("weights must be 3 x 3 x 3");
+        }
+        for (int s = 0; s < 3; s++) {
+            if (weights[s].length != 3) {
+                throw new IllegalArgumentException("weights must be 3 x 3 x 3");
+            }
+            for (int r = 0; r < 3; r++) {
+                if (weights[s][r].length != 3) {
+                    throw new IllegalArgumentException("weights must be 3 x 3 x 3");
+                }
+                System.arraycopy(weights[s][r], 0, this.weights, 9 * s + 3 * r, 3);
+            }
+        }
+        this.threeDimensional = true;
+        this.function9 = null;
+        this.function27 = null;
+        setDefaults();
+    }
+
+    /**
+     * Constructs a 9 point stencil applying the given function to the
+     * <tt>3 x 3</tt> window around each cell. The function is called
+     * concurrently and may be called more than once for a cell and iteration,
+     * so it must be thread safe and free of side effects.
+     * 
+     * @param function
+     *            the function to be applied to each window.
+     * @throws NullPointerException
+     *             if <tt>function==null</tt>.
+     */
+    public DoubleStencilEngine(Double9Function function) {
+        if (function == null)
+            throw new NullPointerException("function must not be null.");
+        this.threeDimensional = false;
+        this.weights = null;
+        this.function9 = function;
+        this.function27 = null;
+        setDefaults();
+    }
+
+    /**
+     * Constructs a 27 point stencil applying the given function to the
+     * <tt>3 x 3 x 3</tt> window around each cell. The function is called
+     * concurrently and may be called more than once for a cell and iteration,
+     * so it must be thread safe and free of side effects.
+     * 
+     * @param function
+     *            the function to be applied to each window.
+     * @throws NullPointerException
+     *             if <tt>function==null</tt>.
+     */
+    public DoubleStencilEngine(Double27Function function) {
+        if (function == null)
+            throw new NullPointerException("function must not be null.");
+        this.threeDimensional = true;
+        this.weights = null;
+        this.function9 = null;
+        this.function27 = function;
+        setDefaults();
+    }
+
+    /**
+     * Returns the boundary condition; <tt>StencilBoundary.Fixed</tt> by
+     * default.
+     * 
+     * @return the boundary condition
+     */
+    public StencilBoundary getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Returns the largest absolute change of a cell during the last iteration
+     * of the last call to <tt>apply</tt> with a tolerance, or <tt>NaN</tt>.
+     * 
+     * @return the last change
+     */
+    public double getLastChange() {
+        return lastChange;
+    }
+
+    /**
+     * Returns the number of iterations done on a tile between two passes over
+     * the grid.
+     * 
+     * @return the time block
+     */
+    public int getTimeBlock() {
+        return timeBlock;
+    }
+
+    /**
+     * Sets the boundary condition.
+     * 
+     * @param boundary
+     *            the boundary condition
+     * @throws NullPointerException
+     *             if <tt>boundary==null</tt>.
+     */
+    public void setBoundary(StencilBoundary boundary) {
+        if (boundary == null)
+            throw new NullPointerException("boundary must not be null.");
+        this.boundary = boundary;
+    }
+
+    /**
+     * Sets the number of iterations done on a tile between two passes over the
+     * grid. Larger blocks save memory traffic but cost more redundant
+     * operations in the margins of the tiles.
+     * 
+     * @param timeBlock
+     *            the time block
+     * @throws IllegalArgumentException
+     *             if <tt>timeBlock < 1</tt>.
+     */
+    public void setTimeBlock(int timeBlock) {
+        if (timeBlock < 1)
+            throw new IllegalArgumentException("timeBlock < 1");
+        this.timeBlock = timeBlock;
+    }
+
+    /**
+     * Sets the size of the tiles of 2-d matrices.
+     * 
+     * @param rows
+     *            the number of rows of a tile
+     * @param columns
+     *            the number of columns of a tile
+     * @throws IllegalArgumentException
+     *             if <tt>rows < 1 || columns < 1</tt>.
+     */
+    public void setTileSize(int rows, int columns) {
+        setTileSize(1, rows, columns);
+    }
+
+    /**
+     * Sets the size of the tiles of 3-d matrices.
+     * 
+     * @param slices
+     *            the number of slices of a tile
+     * @param rows
+     *            the number of rows of a tile
+     * @param columns
+     *            the number of columns of a tile
+     * @throws IllegalArgumentException
+     *             if <tt>slices < 1 || rows < 1 || columns < 1</tt>.
+     */
+    public void setTileSize(int slices, int rows, int columns) {
+        if (slices < 1 || rows < 1 || columns < 1)
+            throw new IllegalArgumentException("tile size < 1");
+        tileSlices = slices;
+        tileRows = rows;
+        tileColumns = columns;
+    }
+
+    /**
+     * Applies the 9 point stencil <tt>maxIterations</tt> times.
+     * 
+     * @param A
+     *            the matrix to operate on.
+     * @param maxIterations
+     *            the number of iterations.
+     * @return the number of iterations actually executed.
+     * @throws IllegalArgumentException
+     *             if the stencil is a 27 point stencil.
+     */
+    public int apply(DenseDoubleMatrix2D A, int maxIterations) {
+        return apply(A, maxIterations, -1);
+    }
+
+    /**
+     * Applies the 9 point stencil until the largest change of a cell during
+     * an iteration is not larger than <tt>tolerance</tt>, at most
+     * <tt>maxIterations</tt> times. The change is checked at the end of each
+     * time block.
+     * 
+     * @param A
+     *            the matrix to operate on.
+     * @param maxIterations
+     *            the maximum number of iterations.
+     * @param tolerance
+     *            the tolerance; negative for no convergence check.
+     * @return the number of iterations actually executed.
+     * @throws IllegalArgumentException
+     *             if the stencil is a 27 point stencil.
+     */
+    public int apply(DenseDoubleMatrix2D A, int maxIterations, double tolerance) {
+        return apply(A, maxIterations, tolerance, null);
+    }
+
+    /*
+     * As above, ping-ponging with the given scratch array of at least
+     * A.size() elements, or with a new one if scratch is null.
+     */
+    int apply(DenseDoubleMatrix2D A, int maxIterations, double tolerance, double[] scratch) {
+        if (threeDimensional)
+            throw new IllegalArgumentException("The stencil is a 27 point stencil");
+        lastChange = Double.NaN;
+        if (A.rows() == 0 || A.columns() == 0)
+            return 0;
+        return run(new Grid(A.elements(), (int) A.index(0, 0), 0, A.rowStride(), A.columnStride()), 1, A.rows(), A
+                .columns(), maxIterations, tolerance, scratch);
+    }
+
+    /**
+     * Applies the 27 point stencil <tt>maxIterations</tt> times.
+     * 
+     * @param A
+     *            the matrix to operate on.
+     * @param maxIterations
+     *            the number of iterations.
+     * @return the number of iterations actually executed.
+     * @throws IllegalArgumentException
+     *             if the stencil is a 9 point stencil.
+     */
+    public int apply(DenseDoubleMatrix3D A, int maxIterations) {
+        return apply(A, maxIterations, -1);
+    }
+
+    /**
+     * Applies the 27 point stencil until the largest change of a cell during
+     * an iteration is not larger than <tt>tolerance</tt>, at most
+     * <tt>maxIterations</tt> times. The change is checked at the end of each
+     * time block.
+     * 
+     * @param A
+     *            the matrix to operate on.
+     * @param maxIterations
+     *            the maximum number of iterations.
+     * @param tolerance
+     *            the tolerance; negative for no convergence check.
+     * @return the number of iterations actually executed.
+     * @throws IllegalArgumentException
+     *             if the stencil is a 9 point stencil.
+     */
+    public int apply(DenseDoubleMatrix3D A, int maxIterations, double tolerance) {
+        return apply(A, maxIterations, tolerance, null);
+    }
+
+    int apply(DenseDoubleMatrix3D A, int maxIterations, double tolerance, double[] scratch) {
+        if (!threeDimensional)
+            throw new IllegalArgumentException("The stencil is a 9 point stencil");
+        lastChange = Double.NaN;
+        if (A.slices() == 0 || A.rows() == 0 || A.columns() == 0)
+            return 0;
+        return run(new Grid(A.elements(), (int) A.index(0, 0, 0), A.sliceStride(), A.rowStride(), A.columnStride()),
+                A.slices(), A.rows(), A.columns(), maxIterations, tolerance, scratch);
+    }
+
+    private void setDefaults() {
+        if (weights != null) {
+            star = true;
+            for (int k = 0; k < 27; k++) {
+                int d = Math.abs(k / 9 - 1) + Math.abs((k / 3) % 3 - 1) + Math.abs(k % 3 - 1);
+                if (d > 1 && weights[k] != 0) {
+                    star = false;
+                }
+            }
+        }
+        if (threeDimensional) {
+            timeBlock = 2;
+            setTileSize(16, 16, 128);
+        } else {
+            timeBlock = 4;
+            setTileSize(64, 512);
+        }
+    }
+
+    /*
+     * Ping-pongs between A and a scratch grid, at most timeBlock iterations
+     * per pass. Without a convergence check, the iterations are spread over
+     * an even number of passes where possible, so that the last pass writes
+     * A and nothing has to be copied back.
+     */
+    private int run(Grid a, int slices, int rows, int columns, int maxIterations, double tolerance,
+            double[] scratch) {
+        if (maxIterations <= 0)
+            return 0;
+        if (scratch == null)
+            scratch = new double[slices * rows * columns];
+        Grid src = a;
+        Grid dst = new Grid(scratch, 0, rows * columns, columns, 1);
+        int passes = (maxIterations + timeBlock - 1) / timeBlock;
+        if (tolerance < 0 && passes % 2 != 0 && passes < maxIterations)
+            passes++;
+        int iterations = 0;
+        for (int p = 0; iterations < maxIterations; p++) {
+            int steps = tolerance < 0 ? (int) ((long) maxIterations * (p + 1) / passes - iterations) : Math.min(
+                    timeBlock, maxIterations - iterations);
+            double change = sweep(src, dst, slices, rows, columns, steps, tolerance >= 0);
+            iterations += steps;
+            Grid tmp = src;
+            src = dst;
+            dst = tmp;
+            if (tolerance >= 0) {
+                lastChange = change;
+                if (change <= tolerance)
+                    break;
+            }
+        }
+        if (src != a) {
+            copy(src, a, slices, rows, columns);
+        }
+        return iterations;
+    }
+
+    /*
+     * Copies src to dst, row by row, in parallel.
+     */
+    private void copy(final Grid src, final Grid dst, final int slices, final int rows, final int columns) {
+        final int lines = slices * rows;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        long size = (long) lines * columns;
+        int threshold = threeDimensional ? ConcurrencyUtils.getThreadsBeginN_3D() : ConcurrencyUtils
+                .getThreadsBeginN_2D();
+        if ((nthreads > 1) && (lines > 1) && (size >= threshold)) {
+            nthreads = Math.min(nthreads, lines);
+            Future<?>[] futures = new Future[nthreads];
+            int k = lines / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstLine = j * k;
+                final int lastLine = (j == nthreads - 1) ? lines : firstLine + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        copyLines(src, dst, rows, columns, firstLine, lastLine);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            copyLines(src, dst, rows, columns, 0, lines);
+        }
+    }
+
+    private void copyLines(Grid src, Grid dst, int rows, int columns, int firstLine, int lastLine) {
+        for (int l = firstLine; l < lastLine; l++) {
+            int s = l / rows;
+            int r = l % rows;
+            int idxS = src.zero + s * src.sliceStride + r * src.rowStride;
+            int idxD = dst.zero + s * dst.sliceStride + r * dst.rowStride;
+            for (int c = 0; c < columns; c++) {
+                dst.elements[idxD] = src.elements[idxS];
+                idxS += src.columnStride;
+                idxD += dst.columnStride;
+            }
+        }
+    }
+
+    /*
+     * Applies the stencil steps times to all tiles of src, writes dst and
+     * returns the largest change during the last step if check is true.
+     */
+    private double sweep(final Grid src, final Grid dst, final int slices, final int rows, final int columns,
+            final int steps, final boolean check) {
+        final int ts = Math.min(tileSlices, slices);
+        final int tr = Math.min(tileRows, rows);
+        final int tc = Math.min(tileColumns, columns);
+        final int nts = (slices + ts - 1) / ts;
+        final int ntr = (rows + tr - 1) / tr;
+        final int ntc = (columns + tc - 1) / tc;
+        final int ntiles = nts * ntr * ntc;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        long size = (long) slices * rows * columns;
+        int threshold = threeDimensional ? ConcurrencyUtils.getThreadsBeginN_3D() : ConcurrencyUtils
+                .getThreadsBeginN_2D();
+        if ((nthreads > 1) && (ntiles > 1) && (size >= threshold)) {
+            nthreads = Math.min(nthreads, ntiles);
+            final double[] changes = new double[nthreads];
+            final int stride = nthreads;
+            Future<?>[] futures = new Future[nthreads];
+            for (int j = 0; j < nthreads; j++) {
+                final int first = j;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        changes[first] = sweepTiles(src, dst, slices, rows, columns, ts, tr, tc, ntr, ntc, ntiles,
+                                first, stride, steps, check);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            double change = 0;
+            for (int j = 0; j < nthreads; j++) {
+                change = Math.max(change, changes[j]);
+            }
+            return change;
+        } else {
+            return sweepTiles(src, dst, slices, rows, columns, ts, tr, tc, ntr, ntc, ntiles, 0, 1, steps, check);
+        }
+    }
+
+    /*
+     * Processes the tiles first, first + stride, ...
+     */
+    private double sweepTiles(Grid src, Grid dst, int slices, int rows, int columns, int ts, int tr, int tc,
+            int ntr, int ntc, int ntiles, int first, int stride, int steps, boolean check) {
+        int gs = threeDimensional ? steps : 0;
+        int length = (ts + 2 * gs) * (tr + 2 * steps) * (tc + 2 * steps);
+        double[] cur = new double[length];
+        double[] nxt = new double[length];
+        double change = 0;
+        for (int t = first; t < ntiles; t += stride) {
+            int s0 = (t / (ntr * ntc)) * ts;
+            int r0 = ((t / ntc) % ntr) * tr;
+            int c0 = (t % ntc) * tc;
+            Tile tile = new Tile(s0, r0, c0, Math.min(ts, slices - s0), Math.min(tr, rows - r0), Math.min(tc,
+                    columns - c0), gs, steps, slices, rows, columns);
+            change = Math.max(change, tile.iterate(src, dst, steps, check, cur, nxt));
+        }
+        return change;
+    }
+
+    /*
+     * Wraps, clamps or drops (-1) the grid coordinates start ... start +
+     * length - 1.
+     */
+    private int[] map(int start, int length, int n) {
+        int[] map = new int[length];
+        for (int i = 0; i < length; i++) {
+            int g = start + i;
+            if (g >= 0 && g < n) {
+                map[i] = g;
+            } else if (boundary == StencilBoundary.Periodic) {
+                map[i] = ((g % n) + n) % n;
+            } else if (boundary == StencilBoundary.Clamped) {
+                map[i] = g < 0 ? 0 : n - 1;
+            } else {
+                map[i] = -1;
+            }
+        }
+        return map;
+    }
+
+    /*
+     * The elements of a matrix or a view.
+     */
+    private static class Grid {
+        final double[] elements;
+
+        final int zero, sliceStride, rowStride, columnStride;
+
+        Grid(double[] elements, int zero, int sliceStride, int rowStride, int columnStride) {
+            this.elements = elements;
+            this.zero = zero;
+            this.sliceStride = sliceStride;
+            this.rowStride = rowStride;
+            this.columnStride = columnStride;
+        }
+    }
+
+    /*
+     * A tile with its margins, in a buffer of ls x lr x lc cells.
+     */
+    private class Tile {
+        final int s0, r0, c0, hs, hr, hc, gs, g;
+
+        final int slices, rows, columns;
+
+        final int ls, lr, lc;
+
+        /*
+         * The nonzero weights of a linear stencil and the offsets of their
+         * cells in the buffer.
+         */
+        int nonZeros;
+
+        double[] nonZeroWeights;
+
+        int[] offsets;
+
+        Tile(int s0, int r0, int c0, int hs, int hr, int hc, int gs, int g, int slices, int rows, int columns) {
+            this.s0 = s0;
+            this.r0 = r0;
+            this.c0 = c0;
+            this.hs = hs;
+            this.hr = hr;
+            this.hc = hc;
+            this.gs = gs;
+            this.g = g;
+            this.slices = slices;
+            this.rows = rows;
+            this.columns = columns;
+            ls = hs + 2 * gs;
+            lr = hr + 2 * g;
+            lc = hc + 2 * g;
+            if (weights != null) {
+                nonZeroWeights = new double[27];
+                offsets = new int[27];
+                for (int k = 0; k < 27; k++) {
+                    if (weights[k] != 0) {
+                        nonZeroWeights[nonZeros] = weights[k];
+                        offsets[nonZeros++] = ((k / 9 - 1) * lr + (k / 3) % 3 - 1) * lc + k % 3 - 1;
+                    }
+                }
+            }
+        }
+
+        double iterate(Grid src, Grid dst, int steps, boolean check, double[] cur, double[] nxt) {
+            load(src, cur);
+            double change = 0;
+            for (int t = 1; t <= steps; t++) {
+                step(t, cur, nxt);
+                if (check && t == steps) {
+                    for (int p = gs; p < gs + hs; p++) {
+                        for (int q = g; q < g + hr; q++) {
+                            int x = (p * lr + q) * lc + g;
+                            for (int r = 0; r < hc; r++) {
+                                change = Math.max(change, Math.abs(nxt[x + r] - cur[x + r]));
+                            }
+                        }
+                    }
+                }
+                double[] tmp = cur;
+                cur = nxt;
+                nxt = tmp;
+            }
+            for (int p = 0; p < hs; p++) {
+                for (int q = 0; q < hr; q++) {
+                    int x = ((p + gs) * lr + q + g) * lc + g;
+                    int idx = dst.zero + (s0 + p) * dst.sliceStride + (r0 + q) * dst.rowStride + c0
+                            * dst.columnStride;
+                    for (int r = 0; r < hc; r++) {
+                        dst.elements[idx] = cur[x + r];
+                        idx += dst.columnStride;
+                    }
+                }
+            }
+            return change;
+        }
+
+        private void load(Grid src, double[] cur) {
+            int[] sliceMap = map(s0 - gs, ls, slices);
+            int[] rowMap = map(r0 - g, lr, rows);
+            int[] columnMap = map(c0 - g, lc, columns);
+            for (int p = 0; p < ls; p++) {
+                for (int q = 0; q < lr; q++) {
+                    int x = (p * lr + q) * lc;
+                    if (sliceMap[p] < 0 || rowMap[q] < 0) {
+                        for (int r = 0; r < lc; r++) {
+                            cur[x + r] = 0;
+                        }
+                    } else {
+                        int idx = src.zero + sliceMap[p] * src.sliceStride + rowMap[q] * src.rowStride;
+                        for (int r = 0; r < lc; r++) {
+                            cur[x + r] = columnMap[r] < 0 ? 0 : src.elements[idx + columnMap[r] * src.columnStride];
+                        }
+                    }
+                }
+            }
+        }
+
+        /*
+         * Iteration t computes the cells at least t cells away from the
+         * border of the buffer.
+         */
+        private void step(int t, double[] cur, double[] nxt) {
+            int ps = threeDimensional ? t : 0;
+            int pe = ls - ps;
+            int rs = t;
+            int re = lc - t;
+            // local column of global column 0
+            int c = g - c0;
+            for (int p = ps; p < pe; p++) {
+                int slice = s0 - gs + p;
+                boolean sliceInside = slice >= 0 && slice < slices;
+                boolean sliceInterior = !threeDimensional || (slice >= 1 && slice < slices - 1);
+                for (int q = t; q < lr - t; q++) {
+                    int row = r0 - g + q;
+                    boolean rowInside = row >= 0 && row < rows;
+                    boolean rowInterior = row >= 1 && row < rows - 1;
+                    int x = (p * lr + q) * lc;
+                    int from, to;
+                    switch (boundary) {
+                    case Periodic:
+                        from = rs;
+                        to = re;
+                        break;
+                    case Fixed:
+                        from = Math.max(rs, c + 1);
+                        to = (sliceInterior && rowInterior) ? Math.min(re, c + columns - 1) : from;
+                        break;
+                    default:
+                        from = Math.max(rs, c);
+                        to = (sliceInside && rowInside) ? Math.min(re, c + columns) : from;
+                        break;
+                    }
+                    if (to < from)
+                        to = from;
+                    compute(cur, nxt, x, from, to);
+                    switch (boundary) {
+                    case Fixed:
+                        for (int r = rs; r < from; r++) {
+                            nxt[x + r] = cur[x + r];
+                        }
+                        for (int r = to; r < re; r++) {
+                            nxt[x + r] = cur[x + r];
+                        }
+                        break;
+                    case Zero:
+                        for (int r = rs; r < from; r++) {
+                            nxt[x + r] = 0;
+                        }
+                        for (int r = to; r < re; r++) {
+                            nxt[x + r] = 0;
+                        }
+                        break;
+                    case Clamped:
+                        if (sliceInside && rowInside) {
+                            for (int r = rs; r < from; r++) {
+                                nxt[x + r] = nxt[x + c];
+                            }
+                            for (int r = to; r < re; r++) {
+                                nxt[x + r] = nxt[x + c + columns - 1];
+                            }
+                        }
+                        break;
+                    default:
+                        break;
+                    }
+                }
+            }
+            if (boundary == StencilBoundary.Clamped) {
+                // rows, then slices outside the grid
+                for (int p = ps; p < pe; p++) {
+                    int slice = s0 - gs + p;
+                    if (slice >= 0 && slice < slices) {
+                        for (int q = t; q < lr - t; q++) {
+                            int row = r0 - g + q;
+                            if (row < 0 || row >= rows) {
+                                int source = q + (row < 0 ? -row : rows - 1 - row);
+                                System.arraycopy(nxt, (p * lr + source) * lc + rs, nxt, (p * lr + q) * lc + rs, re
+                                        - rs);
+                            }
+                        }
+                    }
+                }
+                for (int p = ps; p < pe; p++) {
+                    int slice = s0 - gs + p;
+                    if (slice < 0 || slice >= slices) {
+                        int source = p + (slice < 0 ? -slice : slices - 1 - slice);
+                        for (int q = t; q < lr - t; q++) {
+                            System.arraycopy(nxt, (source * lr + q) * lc + rs, nxt, (p * lr + q) * lc + rs, re - rs);
+                        }
+                    }
+                }
+            }
+        }
+
+        /*
+         * nxt[x+r] = stencil at cur[x+r] for from <= r < to.
+         */
+        private void compute(double[] cur, double[] nxt, int x, int from, int to) {
+            if (from >= to)
+                return;
+            int plane = lr * lc;
+            if (weights != null) {
+                if (!star) {
+                    linear(cur, nxt, x + from, x + to);
+                } else if (threeDimensional) {
+                    linear7(cur, nxt, x + from, x + to);
+                } else {
+                    linear5(cur, nxt, x + from, x + to);
+                }
+            } else if (function9 != null) {
+                for (int r = x + from; r < x + to; r++) {
+                    int u = r - lc;
+                    int d = r + lc;
+                    nxt[r] = function9.apply(cur[u - 1], cur[u], cur[u + 1], cur[r - 1], cur[r], cur[r + 1],
+                            cur[d - 1], cur[d], cur[d + 1]);
+                }
+            } else {
+                for (int r = x + from; r < x + to; r++) {
+                    int b = r - plane;
+                    int f = r + plane;
+                    nxt[r] = function27.apply(cur[b - lc - 1], cur[b - lc], cur[b - lc + 1], cur[b - 1], cur[b],
+                            cur[b + 1], cur[b + lc - 1], cur[b + lc], cur[b + lc + 1], cur[r - lc - 1], cur[r - lc],
+                            cur[r - lc + 1], cur[r - 1], cur[r], cur[r + 1], cur[r + lc - 1], cur[r + lc],
+                            cur[r + lc + 1], cur[f - lc - 1], cur[f - lc], cur[f - lc + 1], cur[f - 1], cur[f],
+                            cur[f + 1], cur[f + lc - 1], cur[f + lc], cur[f + lc + 1]);
+                }
+            }
+        }
+
+        private void linear5(double[] cur, double[] nxt, int from, int to) {
+            double wu = weights[10], wl = weights[12], wc = weights[13], wr = weights[14], wd = weights[16];
+            for (int r = from; r < to; r++) {
+                nxt[r] = wu * cur[r - lc] + wl * cur[r - 1] + wc * cur[r] + wr * cur[r + 1] + wd * cur[r + lc];
+            }
+        }
+
+        private void linear7(double[] cur, double[] nxt, int from, int to) {
+            int plane = lr * lc;
+            double wb = weights[4], wf = weights[22];
+            double wu = weights[10], wl = weights[12], wc = weights[13], wr = weights[14], wd = weights[16];
+            for (int r = from; r < to; r++) {
+                nxt[r] = wb * cur[r - plane] + wu * cur[r - lc] + wl * cur[r - 1] + wc * cur[r] + wr * cur[r + 1]
+                        + wd * cur[r + lc] + wf * cur[r + plane];
+            }
+        }
+
+        private void linear(double[] cur, double[] nxt, int from, int to) {
+            int n = nonZeros;
+            double[] w = nonZeroWeights;
+            int[] off = offsets;
+            for (int r = from; r < to; r++) {
+                double sum = 0;
+                for (int k = 0; k < n; k++) {
+                    sum += w[k] * cur[r + off[k]];
+                }
+                nxt[r] = sum;
+            }
+        }
+    }
+}
@@ -17,6 +17,10 @@ import cern.colt.matrix.tdouble.algo.decomposition.SparseDoubleQRDecomposition;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
 import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
+import cern.colt.matrix.tfloat.algo.decomposition.SparseFloatCholeskyDecomposition;
+import cern.colt.matrix.tfloat.algo.decomposition.SparseFloatLUDecomposition;
+import cern.colt.matrix.tfloat.impl.DenseFloatMatrix1D;
+import cern.colt.matrix.tfloat.impl.SparseRCFloatMatrix2D;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_norm;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcs;
 
@@ -73,6 +77,31 @@ public class SparseDoubleAlgebra {
         return (norm);
     }
 
+    /*
+     * Returns whether A equals its transpose within the given tolerance.
+     */
+    private static boolean isSymmetric(SparseRCDoubleMatrix2D A, double tolerance) {
+        SparseRCDoubleMatrix2D T = A.getTranspose();
+        SparseRCDoubleMatrix2D S = T.getTranspose(); // A with sorted column indexes
+        int[] rowPointersS = S.getRowPointers();
+        int[] rowPointersT = T.getRowPointers();
+        int[] columnIndexesS = S.getColumnIndexes();
+        int[] columnIndexesT = T.getColumnIndexes();
+        double[] valuesS = S.getValues();
+        double[] valuesT = T.getValues();
+        for (int r = 0; r <= A.rows(); r++) {
+            if (rowPointersS[r] != rowPointersT[r]) {
+                return false;
+            }
+        }
+        for (int k = rowPointersS[A.rows()]; --k >= 0;) {
+            if (columnIndexesS[k] != columnIndexesT[k] || !(Math.abs(valuesS[k] - valuesT[k]) <= tolerance)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * The property object attached to this instance.
      */
@@ -242,4 +271,103 @@ public class SparseDoubleAlgebra {
             return x.viewPart(0, A.columns()).copy();
         }
     }
+
+    /**
+     * Solves A*x = b in mixed precision: a single precision copy of
+     * <tt>A</tt> is factored by {@link SparseFloatCholeskyDecomposition} if
+     * <tt>A</tt> is symmetric positive definite, and by
+     * {@link SparseFloatLUDecomposition} otherwise, both with the amd(A+A')
+     * ordering, and the solution is improved to double precision accuracy by
+     * iterative refinement. If the refinement stalls, which happens when
+     * <tt>A</tt> is too ill-conditioned for single precision, the system is
+     * solved with the double precision factorization instead. See
+     * {@link DoubleMixedPrecisionSolution} for details.
+     * 
+     * @param A
+     *            square sparse matrix
+     * @param b
+     *            right hand side
+     * @return the solution, the number of refinement steps and the achieved
+     *         backward error.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square or is not sparse, or if
+     *             <tt>b.size() != A.rows()</tt>.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is singular.
+     */
+    public DoubleMixedPrecisionSolution solveMixedPrecision(DoubleMatrix2D A, DoubleMatrix1D b) {
+        DoubleProperty.DEFAULT.checkSquare(A);
+        DoubleProperty.DEFAULT.checkSparse(A);
+        if (b.size() != A.rows()) {
+            throw new IllegalArgumentException("b.size() != A.rows()");
+        }
+        int n = A.rows();
+        SparseRCDoubleMatrix2D Arc;
+        if (A instanceof SparseRCDoubleMatrix2D) {
+            Arc = (SparseRCDoubleMatrix2D) A;
+        } else {
+            Arc = ((SparseCCDoubleMatrix2D) A).getRowCompressed();
+        }
+        double normA = normInfinityRC(Arc);
+        boolean symmetric = isSymmetric(Arc, property.tolerance());
+        DoubleMixedPrecisionSolution solution = null;
+        if (normA <= Float.MAX_VALUE) {
+            int[] rowPointers = Arc.getRowPointers();
+            double[] values = Arc.getValues();
+            float[] valuesF = new float[rowPointers[n]];
+            for (int k = 0; k < valuesF.length; k++) {
+                valuesF[k] = (float) values[k];
+            }
+            SparseRCFloatMatrix2D Af = new SparseRCFloatMatrix2D(n, n, rowPointers, Arc.getColumnIndexes(), valuesF);
+            DoubleMixedPrecisionSolution.FloatSolver solver = null;
+            if (symmetric) {
+                try {
+                    final SparseFloatCholeskyDecomposition chol = new SparseFloatCholeskyDecomposition(Af, 1);
+                    solver = new DoubleMixedPrecisionSolution.FloatSolver() {
+                        void solve(float[] d) {
+                            DenseFloatMatrix1D x = new DenseFloatMatrix1D(d);
+                            chol.solve(x);
+                            x.toArray(d);
+                        }
+                    };
+                } catch (IllegalArgumentException exc) {
+                    // not positive definite
+                }
+            }
+            if (solver == null) {
+                final SparseFloatLUDecomposition lu = new SparseFloatLUDecomposition(Af, 1, true);
+                if (lu.isNonsingular()) {
+                    solver = new DoubleMixedPrecisionSolution.FloatSolver() {
+                        void solve(float[] d) {
+                            DenseFloatMatrix1D x = new DenseFloatMatrix1D(d);
+                            lu.solve(x);
+                            x.toArray(d);
+                        }
+                    };
+                }
+            }
+            if (solver != null) {
+                solution = DoubleMixedPrecisionSolution.refine(A, b, normA, solver);
+            }
+        }
+        if (solution == null) {
+            DoubleMatrix1D x = new DenseDoubleMatrix1D(n).assign(b);
+            SparseDoubleCholeskyDecomposition cholesky = null;
+            if (symmetric) {
+                try {
+                    cholesky = chol(A, 1);
+                } catch (IllegalArgumentException exc) {
+                    // not positive definite
+                }
+            }
+            if (cholesky != null) {
+                cholesky.solve(x);
+            } else {
+                lu(A, 1).solve(x);
+            }
+            solution = new DoubleMixedPrecisionSolution(x, 0, DoubleMixedPrecisionSolution.backwardError(A, x, b,
+                    normA), true);
+        }
+        return solution;
+    }
 }
@@ -0,0 +1,743 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.algo;
+
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseCompressedDoubleMatrix2DConversion;
+import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseSymmetricDoubleMatrix2D;
+import edu.emory.mathcs.csparsej.tdouble.Dcs_amd;
+import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcs;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Symmetric reorderings of sparse square matrices.
+ * <p>
+ * An ordering is a permutation <tt>p</tt> of the indexes <tt>0..n-1</tt>: row
+ * and column <tt>p[k]</tt> of the original matrix become row and column
+ * <tt>k</tt> of the reordered matrix, so <tt>B = P*A*P'</tt> with
+ * <tt>B[i][j] = A[p[i]][p[j]]</tt>. The orderings only look at the pattern of
+ * <tt>A + A'</tt>, so they also apply to unsymmetric matrices.
+ * <ul>
+ * <li>{@link #reverseCuthillMcKee(DoubleMatrix2D)} reduces the bandwidth and
+ * the profile; it improves the locality of the matrix-vector product and of
+ * incomplete factorizations.</li>
+ * <li>{@link #nestedDissection(DoubleMatrix2D)} orders the vertices of
+ * separators of the graph last; it reduces the fill of direct factorizations
+ * of matrices coming from meshes.</li>
+ * <li>{@link #approximateMinimumDegree(DoubleMatrix2D)} is the fill-reducing
+ * ordering of CSparseJ.</li>
+ * </ul>
+ * The orderings are applied to matrices with
+ * {@link #permute(SparseRCDoubleMatrix2D, int[])} and
+ * {@link #permute(SparseCCDoubleMatrix2D, int[])}, and to the right-hand sides
+ * and solutions of linear systems with {@link #permute(DoubleMatrix1D, int[])}
+ * and {@link #permuteInverse(DoubleMatrix1D, int[])}. These work in parallel
+ * and never densify. {@link #bandwidth(DoubleMatrix2D, int[])} and
+ * {@link #profile(DoubleMatrix2D, int[])} measure the effect of an ordering
+ * without applying it.
+ */
+public class SparseDoubleReordering extends Object {
+
+    /*
+     * Nested dissection stops splitting subgraphs with at most this many
+     * vertices.
+     */
+    private static final int DISSECTION_LEAF_SIZE = 64;
+
+    /**
+     * Makes this class non instantiable, but still let's others inherit from
+     * it.
+     */
+    protected SparseDoubleReordering() {
+    }
+
+    /**
+     * Returns the approximate minimum degree ordering of <tt>A + A'</tt>.
+     * 
+     * @param A
+     *            a square matrix.
+     * @return the ordering.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square.
+     */
+    public static int[] approximateMinimumDegree(DoubleMatrix2D A) {
+        Pattern pattern = new Pattern(A);
+        int n = pattern.n;
+        Dcs C = new Dcs();
+        C.m = n;
+        C.n = n;
+        C.p = pattern.pointers;
+        C.i = pattern.indexes;
+        C.nzmax = pattern.indexes.length;
+        C.nz = -1;
+        int[] P = Dcs_amd.cs_amd(1, C);
+        int[] p = new int[n];
+        System.arraycopy(P, 0, p, 0, n);
+        return p;
+    }
+
+    /**
+     * Returns the bandwidth of <tt>A</tt>, the largest <tt>|i-j|</tt> over the
+     * stored cells <tt>A[i][j]</tt>.
+     * 
+     * @param A
+     *            a square matrix.
+     * @return the bandwidth.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square.
+     */
+    public static int bandwidth(DoubleMatrix2D A) {
+        return bandwidth(A, null);
+    }
+
+    /**
+     * Returns the bandwidth <tt>A</tt> would have after reordering with
+     * <tt>p</tt>. The reordered matrix is not formed.
+     * 
+     * @param A
+     *            a square matrix.
+     * @param p
+     *            the ordering, or <tt>null</tt> for the identity.
+     * @return the bandwidth.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square or <tt>p</tt> is not a
+     *             permutation of <tt>0..A.rows()-1</tt>.
+     */
+    public static int bandwidth(DoubleMatrix2D A, int[] p) {
+        Pattern pattern = new Pattern(A);
+        int[] pinv = (p == null) ? null : inverse(p, pattern.n);
+        int[] pointers = pattern.pointers;
+        int[] indexes = pattern.indexes;
+        int bandwidth = 0;
+        for (int s = 0; s < pattern.n; s++) {
+            int i = (pinv == null) ? s : pinv[s];
+            for (int k = pointers[s]; k < pointers[s + 1]; k++) {
+                int j = (pinv == null) ? indexes[k] : pinv[indexes[k]];
+                bandwidth = Math.max(bandwidth, Math.abs(i - j));
+            }
+        }
+        return bandwidth;
+    }
+
+    /**
+     * Returns the inverse of the given ordering: <tt>pinv[p[k]] = k</tt>.
+     * 
+     * @param p
+     *            the ordering.
+     * @return the inverse ordering.
+     * @throws IllegalArgumentException
+     *             if <tt>p</tt> is not a permutation of
+     *             <tt>0..p.length-1</tt>.
+     */
+    public static int[] inverse(int[] p) {
+        return inverse(p, p.length);
+    }
+
+    /**
+     * Returns the nested dissection ordering of <tt>A + A'</tt>. The graph is
+     * split recursively by the middle level of a breadth-first search from a
+     * pseudo-peripheral vertex; the two halves are ordered first and the
+     * separating vertices last. Disconnected graphs are split into their
+     * components.
+     * 
+     * @param A
+     *            a square matrix.
+     * @return the ordering.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square.
+     */
+    public static int[] nestedDissection(DoubleMatrix2D A) {
+        Graph g = new Graph(new Pattern(A));
+        int n = g.n;
+        int[] order = new int[n];
+        for (int k = 0; k < n; k++) {
+            order[k] = k;
+        }
+        int[] label = new int[n];
+        int[] buffer = new int[n];
+        int ids = 0;
+        IntArrayList stack = new IntArrayList();
+        stack.add(0);
+        stack.add(n);
+        stack.add(0);
+        while (!stack.isEmpty()) {
+            int size = stack.size();
+            int lo = stack.getQuick(size - 3);
+            int hi = stack.getQuick(size - 2);
+            int id = stack.getQuick(size - 1);
+            stack.setSize(size - 3);
+            if (hi - lo <= DISSECTION_LEAF_SIZE) {
+                Arrays.sort(order, lo, hi);
+                continue;
+            }
+            int root = g.pseudoPeripheral(order[lo], label, id);
+            int depth = g.levels(root, label, id);
+            int reached = g.levelStart[depth];
+            int idA = ++ids;
+            int idB = ++ids;
+            int idS = ++ids;
+            if (reached < hi - lo) {
+                // the subgraph is disconnected: split off the component of root
+                for (int q = 0; q < reached; q++) {
+                    label[g.queue[q]] = idA;
+                }
+                for (int k = lo; k < hi; k++) {
+                    if (label[order[k]] != idA) {
+                        label[order[k]] = idB;
+                    }
+                }
+            } else {
+                if (depth < 3) {
+                    // too dense to split
+                    Arrays.sort(order, lo, hi);
+                    continue;
+                }
+                int middle = 1;
+                while (middle < depth - 2 && 2 * g.levelStart[middle + 1] < reached) {
+                    middle++;
+                }
+                for (int q = 0; q < reached; q++) {
+                    int v = g.queue[q];
+                    int level = g.level[v];
+                    if (level < middle) {
+                        label[v] = idA;
+                    } else if (level > middle) {
+                        label[v] = idB;
+                    } else {
+                        label[v] = idA;
+                        for (int k = g.xadj[v]; k < g.xadj[v + 1]; k++) {
+                            int w = g.adj[k];
+                            if (g.stamp[w] == g.counter && g.level[w] == middle + 1) {
+                                label[v] = idS;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            int sizeA = 0;
+            int sizeB = 0;
+            for (int k = lo; k < hi; k++) {
+                int v = order[k];
+                if (label[v] == idA) {
+                    sizeA++;
+                } else if (label[v] == idB) {
+                    sizeB++;
+                }
+            }
+            int a = lo;
+            int b = lo + sizeA;
+            int s = b + sizeB;
+            for (int k = lo; k < hi; k++) {
+                int v = order[k];
+                if (label[v] == idA) {
+                    buffer[a++] = v;
+                } else if (label[v] == idB) {
+                    buffer[b++] = v;
+                } else {
+                    buffer[s++] = v;
+                }
+            }
+            System.arraycopy(buffer, lo, order, lo, hi - lo);
+            Arrays.sort(order, lo + sizeA + sizeB, hi);
+            stack.add(lo);
+            stack.add(lo + sizeA);
+            stack.add(idA);
+            stack.add(lo + sizeA);
+            stack.add(lo + sizeA + sizeB);
+            stack.add(idB);
+        }
+        return order;
+    }
+
+    /**
+     * Returns <tt>P*A*P'</tt>, the matrix with
+     * <tt>B[i][j] = A[p[i]][p[j]]</tt>. The column indexes of the result are
+     * sorted.
+     * 
+     * @param A
+     *            a square matrix.
+     * @param p
+     *            the ordering.
+     * @return the reordered matrix.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square or <tt>p</tt> is not a
+     *             permutation of <tt>0..A.rows()-1</tt>.
+     */
+    public static SparseRCDoubleMatrix2D permute(SparseRCDoubleMatrix2D A, int[] p) {
+        DoubleProperty.DEFAULT.checkSquare(A);
+        int n = A.rows();
+        int[] pointers = new int[n + 1];
+        int[] indexes = new int[A.getRowPointers()[n]];
+        double[] values = new double[indexes.length];
+        permute(n, A.getRowPointers(), A.getColumnIndexes(), A.getValues(), p, pointers, indexes, values);
+        SparseRCDoubleMatrix2D B = new SparseRCDoubleMatrix2D(n, n, pointers, indexes, values);
+        B.sortColumnIndexes();
+        return B;
+    }
+
+    /**
+     * Returns <tt>P*A*P'</tt>, the matrix with
+     * <tt>B[i][j] = A[p[i]][p[j]]</tt>. The row indexes of the result are
+     * sorted.
+     * 
+     * @param A
+     *            a square matrix.
+     * @param p
+     *            the ordering.
+     * @return the reordered matrix.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square or <tt>p</tt> is not a
+     *             permutation of <tt>0..A.rows()-1</tt>.
+     */
+    public static SparseCCDoubleMatrix2D permute(SparseCCDoubleMatrix2D A, int[] p) {
+        DoubleProperty.DEFAULT.checkSquare(A);
+        int n = A.columns();
+        int[] pointers = new int[n + 1];
+        int[] indexes = new int[A.getColumnPointers()[n]];
+        double[] values = new double[indexes.length];
+        permute(n, A.getColumnPointers(), A.getRowIndexes(), A.getValues(), p, pointers, indexes, values);
+        SparseCCDoubleMatrix2D B = new SparseCCDoubleMatrix2D(n, n, indexes, pointers, values);
+        B.sortRowIndexes();
+        return B;
+    }
+
+    /**
+     * Returns <tt>P*x</tt>, the vector with <tt>y[i] = x[p[i]]</tt>. Use it to
+     * reorder the right-hand side of a reordered system.
+     * 
+     * @param x
+     *            the vector.
+     * @param p
+     *            the ordering.
+     * @return the reordered vector.
+     * @throws IllegalArgumentException
+     *             if <tt>p</tt> is not a permutation of
+     *             <tt>0..x.size()-1</tt>.
+     */
+    public static DoubleMatrix1D permute(DoubleMatrix1D x, int[] p) {
+        return permute(x, p, false);
+    }
+
+    /**
+     * Returns <tt>P'*x</tt>, the vector with <tt>y[p[i]] = x[i]</tt>. Use it to
+     * bring the solution of a reordered system back to the original order.
+     * 
+     * @param x
+     *            the vector.
+     * @param p
+     *            the ordering.
+     * @return the vector in the original order.
+     * @throws IllegalArgumentException
+     *             if <tt>p</tt> is not a permutation of
+     *             <tt>0..x.size()-1</tt>.
+     */
+    public static DoubleMatrix1D permuteInverse(DoubleMatrix1D x, int[] p) {
+        return permute(x, p, true);
+    }
+
+    /**
+     * Returns the profile of <tt>A</tt>: the sum over the rows <tt>i</tt> of
+     * <tt>i - j</tt>, where <tt>j</tt> is the first column of row <tt>i</tt>
+     * holding a stored cell, or <tt>i</tt> if there is none left of the
+     * diagonal.
+     * 
+     * @param A
+     *            a square matrix.
+     * @return the profile.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square.
+     */
+    public static long profile(DoubleMatrix2D A) {
+        return profile(A, null);
+    }
+
+    /**
+     * Returns the profile <tt>A</tt> would have after reordering with
+     * <tt>p</tt>. The reordered matrix is not formed.
+     * 
+     * @param A
+     *            a square matrix.
+     * @param p
+     *            the ordering, or <tt>null</tt> for the identity.
+     * @return the profile.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square or <tt>p</tt> is not a
+     *             permutation of <tt>0..A.rows()-1</tt>.
+     * @see #profile(DoubleMatrix2D)
+     */
+    public static long profile(DoubleMatrix2D A, int[] p) {
+        Pattern pattern = new Pattern(A);
+        int n = pattern.n;
+        int[] pinv = (p == null) ? null : inverse(p, n);
+        int[] pointers = pattern.pointers;
+        int[] indexes = pattern.indexes;
+        int[] first = new int[n];
+        for (int i = 0; i < n; i++) {
+            first[i] = i;
+        }
+        for (int s = 0; s < n; s++) {
+            int u = (pinv == null) ? s : pinv[s];
+            for (int k = pointers[s]; k < pointers[s + 1]; k++) {
+                int v = (pinv == null) ? indexes[k] : pinv[indexes[k]];
+                int i = pattern.rowMajor ? u : v;
+                int j = pattern.rowMajor ? v : u;
+                if (j < first[i]) {
+                    first[i] = j;
+                }
+            }
+        }
+        long profile = 0;
+        for (int i = 0; i < n; i++) {
+            profile += i - first[i];
+        }
+        return profile;
+    }
+
+    /**
+     * Returns the reverse Cuthill-McKee ordering of <tt>A + A'</tt>. Every
+     * connected component is numbered by a breadth-first search from a
+     * pseudo-peripheral vertex that visits the neighbours of a vertex by
+     * increasing degree; the numbering is then reversed.
+     * 
+     * @param A
+     *            a square matrix.
+     * @return the ordering.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square.
+     */
+    public static int[] reverseCuthillMcKee(DoubleMatrix2D A) {
+        Graph g = new Graph(new Pattern(A));
+        int n = g.n;
+        int[] p = new int[n];
+        boolean[] numbered = new boolean[n];
+        int k = 0;
+        for (int v = 0; v < n; v++) {
+            if (numbered[v]) {
+                continue;
+            }
+            int root = g.pseudoPeripheral(v, null, 0);
+            numbered[root] = true;
+            p[k++] = root;
+            for (int head = k - 1; head < k; head++) {
+                int u = p[head];
+                int start = k;
+                for (int q = g.xadj[u]; q < g.xadj[u + 1]; q++) {
+                    int w = g.adj[q];
+                    if (!numbered[w]) {
+                        numbered[w] = true;
+                        p[k++] = w;
+                    }
+                }
+                // insertion sort of the new vertices by degree, stable
+                for (int i = start + 1; i < k; i++) {
+                    int w = p[i];
+                    int d = g.degree(w);
+                    int j = i - 1;
+                    while (j >= start && g.degree(p[j]) > d) {
+                        p[j + 1] = p[j];
+                        j--;
+                    }
+                    p[j + 1] = w;
+                }
+            }
+        }
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            int tmp = p[i];
+            p[i] = p[j];
+            p[j] = tmp;
+        }
+        return p;
+    }
+
+    private static int[] inverse(int[] p, int n) {
+        if (p.length != n) {
+            throw new IllegalArgumentException("p.length != " + n);
+        }
+        int[] pinv = new int[n];
+        Arrays.fill(pinv, -1);
+        for (int k = 0; k < n; k++) {
+            int i = p[k];
+            if (i < 0 || i >= n || pinv[i] != -1) {
+                throw new IllegalArgumentException("p is not a permutation");
+            }
+            pinv[i] = k;
+        }
+        return pinv;
+    }
+
+    /*
+     * Reorders the compressed slices of a square matrix: slice k of the result
+     * is slice p[k] of the source with its indexes mapped by the inverse of p.
+     */
+    private static void permute(int n, final int[] pointers, final int[] indexes, final double[] values,
+            final int[] p, final int[] pointersB, final int[] indexesB, final double[] valuesB) {
+        final int[] pinv = inverse(p, n);
+        for (int k = 0; k < n; k++) {
+            pointersB[k + 1] = pointersB[k] + pointers[p[k] + 1] - pointers[p[k]];
+        }
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (pointers[n] >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, n);
+            Future<?>[] futures = new Future[nthreads];
+            int k = n / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = j * k;
+                final int lastIdx = (j == nthreads - 1) ? n : firstIdx + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        permute(firstIdx, lastIdx, pointers, indexes, values, p, pinv, pointersB, indexesB, valuesB);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            permute(0, n, pointers, indexes, values, p, pinv, pointersB, indexesB, valuesB);
+        }
+    }
+
+    private static void permute(int firstIdx, int lastIdx, int[] pointers, int[] indexes, double[] values, int[] p,
+            int[] pinv, int[] pointersB, int[] indexesB, double[] valuesB) {
+        for (int k = firstIdx; k < lastIdx; k++) {
+            int q = pointersB[k];
+            int high = pointers[p[k] + 1];
+            for (int s = pointers[p[k]]; s < high; s++, q++) {
+                indexesB[q] = pinv[indexes[s]];
+                valuesB[q] = values[s];
+            }
+        }
+    }
+
+    private static DoubleMatrix1D permute(final DoubleMatrix1D x, final int[] p, final boolean inverse) {
+        int n = (int) x.size();
+        inverse(p, n);
+        final DoubleMatrix1D y = x.like();
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (n >= ConcurrencyUtils.getThreadsBeginN_1D()) && (y instanceof DenseDoubleMatrix1D)) {
+            nthreads = Math.min(nthreads, n);
+            Future<?>[] futures = new Future[nthreads];
+            int k = n / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = j * k;
+                final int lastIdx = (j == nthreads - 1) ? n : firstIdx + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        permute(x, y, p, inverse, firstIdx, lastIdx);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            permute(x, y, p, inverse, 0, n);
+        }
+        return y;
+    }
+
+    private static void permute(DoubleMatrix1D x, DoubleMatrix1D y, int[] p, boolean inverse, int firstIdx,
+            int lastIdx) {
+        if (inverse) {
+            for (int i = firstIdx; i < lastIdx; i++) {
+                y.setQuick(p[i], x.getQuick(i));
+            }
+        } else {
+            for (int i = firstIdx; i < lastIdx; i++) {
+                y.setQuick(i, x.getQuick(p[i]));
+            }
+        }
+    }
+
+    /*
+     * The compressed pattern of a square matrix, by rows or by columns.
+     */
+    private static class Pattern {
+        final int n;
+
+        final int[] pointers;
+
+        final int[] indexes;
+
+        final boolean rowMajor;
+
+        Pattern(DoubleMatrix2D A) {
+            DoubleProperty.DEFAULT.checkSquare(A);
+            n = A.rows();
+            if (A instanceof SparseCCDoubleMatrix2D) {
+                SparseCCDoubleMatrix2D C = (SparseCCDoubleMatrix2D) A;
+                pointers = C.getColumnPointers();
+                indexes = C.getRowIndexes();
+                rowMajor = false;
+            } else if (A instanceof SparseSymmetricDoubleMatrix2D) {
+                // the upper triangle by columns is the lower triangle by rows
+                SparseSymmetricDoubleMatrix2D S = (SparseSymmetricDoubleMatrix2D) A;
+                pointers = S.getColumnPointers();
+                indexes = S.getRowIndexes();
+                rowMajor = true;
+            } else {
+                SparseRCDoubleMatrix2D R = (A instanceof SparseRCDoubleMatrix2D) ? (SparseRCDoubleMatrix2D) A
+                        : SparseCompressedDoubleMatrix2DConversion.toRowCompressed(A);
+                pointers = R.getRowPointers();
+                indexes = R.getColumnIndexes();
+                rowMajor = true;
+            }
+        }
+    }
+
+    /*
+     * The adjacency structure of the pattern of A + A' without the diagonal,
+     * with the work arrays of the breadth-first searches.
+     */
+    private static class Graph {
+        final int n;
+
+        final int[] xadj;
+
+        final int[] adj;
+
+        /*
+         * Vertices in the order they were reached by the last search.
+         */
+        final int[] queue;
+
+        /*
+         * Start of every level of the last search in queue.
+         */
+        final int[] levelStart;
+
+        /*
+         * Level of every vertex reached by the last search.
+         */
+        final int[] level;
+
+        /*
+         * stamp[v] == counter for the vertices reached by the last search.
+         */
+        final int[] stamp;
+
+        int counter;
+
+        Graph(Pattern pattern) {
+            n = pattern.n;
+            int[] pointers = pattern.pointers;
+            int[] indexes = pattern.indexes;
+            int nnz = pointers[n];
+            int[] pointersT = new int[n + 1];
+            int[] indexesT = new int[nnz];
+            SparseCompressedDoubleMatrix2DConversion.transpose(n, n, pointers, indexes, null, pointersT, indexesT,
+                    null);
+            int[] marker = new int[n];
+            Arrays.fill(marker, -1);
+            xadj = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                int count = 0;
+                marker[v] = v;
+                for (int k = pointers[v]; k < pointers[v + 1]; k++) {
+                    if (marker[indexes[k]] != v) {
+                        marker[indexes[k]] = v;
+                        count++;
+                    }
+                }
+                for (int k = pointersT[v]; k < pointersT[v + 1]; k++) {
+                    if (marker[indexesT[k]] != v) {
+                        marker[indexesT[k]] = v;
+                        count++;
+                    }
+                }
+                xadj[v + 1] = xadj[v] + count;
+            }
+            adj = new int[xadj[n]];
+            Arrays.fill(marker, -1);
+            for (int v = 0; v < n; v++) {
+                int q = xadj[v];
+                marker[v] = v;
+                for (int k = pointers[v]; k < pointers[v + 1]; k++) {
+                    if (marker[indexes[k]] != v) {
+                        marker[indexes[k]] = v;
+                        adj[q++] = indexes[k];
+                    }
+                }
+                for (int k = pointersT[v]; k < pointersT[v + 1]; k++) {
+                    if (marker[indexesT[k]] != v) {
+                        marker[indexesT[k]] = v;
+                        adj[q++] = indexesT[k];
+                    }
+                }
+            }
+            queue = new int[n];
+            levelStart = new int[n + 1];
+            level = new int[n];
+            stamp = new int[n];
+        }
+
+        int degree(int v) {
+            return xadj[v + 1] - xadj[v];
+        }
+
+        /*
+         * Breadth-first search from root through the vertices v with label[v]
+         * == id (all vertices if label is null). Returns the number of levels.
+         */
+        int levels(int root, int[] label, int id) {
+            counter++;
+            stamp[root] = counter;
+            level[root] = 0;
+            queue[0] = root;
+            int head = 0;
+            int tail = 1;
+            int depth = 0;
+            while (head < tail) {
+                levelStart[depth] = head;
+                for (int end = tail; head < end; head++) {
+                    int u = queue[head];
+                    for (int k = xadj[u]; k < xadj[u + 1]; k++) {
+                        int w = adj[k];
+                        if (stamp[w] != counter && (label == null || label[w] == id)) {
+                            stamp[w] = counter;
+                            level[w] = depth + 1;
+                            queue[tail++] = w;
+                        }
+                    }
+                }
+                depth++;
+            }
+            levelStart[depth] = tail;
+            return depth;
+        }
+
+        /*
+         * Returns a vertex of maximal or near maximal eccentricity in the
+         * component of start, found by the method of George and Liu.
+         */
+        int pseudoPeripheral(int start, int[] label, int id) {
+            int root = start;
+            int depth = levels(root, label, id);
+            while (true) {
+                int candidate = queue[levelStart[depth - 1]];
+                for (int q = levelStart[depth - 1] + 1; q < levelStart[depth]; q++) {
+                    if (degree(queue[q]) < degree(candidate)) {
+                        candidate = queue[q];
+                    }
+                }
+                int d = levels(candidate, label, id);
+                if (d <= depth) {
+                    return root;
+                }
+                root = candidate;
+                depth = d;
+            }
+        }
+    }
+}
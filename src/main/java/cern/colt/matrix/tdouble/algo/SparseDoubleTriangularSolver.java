@@ -0,0 +1,272 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.algo;
+
+import java.util.concurrent.Future;
+
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Level-scheduled solver of sparse triangular systems.
+ * <p>
+ * The system is <tt>(D/omega + T)*x = b</tt>, where <tt>T</tt> is the strictly
+ * lower or strictly upper triangle of a sparse matrix <tt>A</tt> and <tt>D</tt>
+ * is its diagonal (or the identity, for a unit diagonal). <tt>A</tt> is given
+ * by its compressed arrays, in row- or column-compressed form, so the factors
+ * of the incomplete and of the sparse direct factorizations can be used as
+ * they are stored; the entries of the other triangle are ignored.
+ * <p>
+ * The constructor analyses the dependencies between the unknowns once: the
+ * level of row <tt>i</tt> is one more than the largest level of the rows it
+ * depends on, so all rows of one level can be solved at the same time. Every
+ * {@link #solve(double[], double[])} then runs the levels one after the other,
+ * and the rows of each level in parallel when the level is large enough.
+ * <p>
+ * Only the pattern is analysed: the values are read from the given array at
+ * every solve, so the solver stays valid when the factor is recomputed in
+ * place with the same pattern.
+ */
+public class SparseDoubleTriangularSolver {
+
+    private final int n;
+
+    private final boolean unitDiagonal;
+
+    /*
+     * The values of A; shared, not copied.
+     */
+    private final double[] values;
+
+    /*
+     * Rows of the triangular system, level by level.
+     */
+    private final int[] rowOrder;
+
+    /*
+     * First position of each level in rowOrder.
+     */
+    private final int[] levelPointers;
+
+    /*
+     * Number of entries of each level.
+     */
+    private final int[] levelSizes;
+
+    /*
+     * Off-diagonal entries of the rows, in the order of rowOrder: columns and
+     * positions in values.
+     */
+    private final int[] pointers;
+
+    private final int[] indexes;
+
+    private final int[] positions;
+
+    /*
+     * Position of the diagonal entry of each row (in the order of rowOrder) in
+     * values, or -1.
+     */
+    private final int[] diagonal;
+
+    /**
+     * Analyses the triangular system of the given matrix.
+     * 
+     * @param n
+     *            the number of rows and columns of <tt>A</tt>.
+     * @param pointers
+     *            the row pointers (column pointers if
+     *            <tt>rowCompressed</tt> is false) of <tt>A</tt>.
+     * @param indexes
+     *            the column indexes (row indexes) of <tt>A</tt>; they need not
+     *            be sorted.
+     * @param values
+     *            the numerical values of <tt>A</tt>.
+     * @param rowCompressed
+     *            true if <tt>A</tt> is in the row-compressed form, false if it
+     *            is in the column-compressed form.
+     * @param lower
+     *            true to solve with the lower triangle of <tt>A</tt>, false to
+     *            solve with the upper triangle.
+     * @param unitDiagonal
+     *            true if the diagonal is the identity; the diagonal entries of
+     *            <tt>A</tt> are then ignored.
+     * @throws IllegalArgumentException
+     *             if <tt>pointers.length != n + 1</tt>.
+     */
+    public SparseDoubleTriangularSolver(int n, int[] pointers, int[] indexes, double[] values, boolean rowCompressed,
+            boolean lower, boolean unitDiagonal) {
+        if (pointers.length != n + 1) {
+            throw new IllegalArgumentException("pointers.length != n + 1");
+        }
+        this.n = n;
+        this.values = values;
+        this.unitDiagonal = unitDiagonal;
+
+        // The rows of the system: a copy of the off-diagonal entries of the
+        // triangle, transposed if A is column-compressed
+        int[] diag = new int[n];
+        for (int i = 0; i < n; i++) {
+            diag[i] = -1;
+        }
+        int[] rowPointers = new int[n + 1];
+        for (int j = 0; j < n; j++) {
+            for (int k = pointers[j]; k < pointers[j + 1]; k++) {
+                int i = indexes[k];
+                int row = rowCompressed ? j : i;
+                int column = rowCompressed ? i : j;
+                if (row == column) {
+                    diag[row] = k;
+                } else if ((column < row) == lower) {
+                    rowPointers[row + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+        int nnz = rowPointers[n];
+        int[] columns = new int[nnz];
+        int[] valuePositions = new int[nnz];
+        int[] next = new int[n];
+        System.arraycopy(rowPointers, 0, next, 0, n);
+        for (int j = 0; j < n; j++) {
+            for (int k = pointers[j]; k < pointers[j + 1]; k++) {
+                int i = indexes[k];
+                int row = rowCompressed ? j : i;
+                int column = rowCompressed ? i : j;
+                if (row != column && (column < row) == lower) {
+                    columns[next[row]] = column;
+                    valuePositions[next[row]++] = k;
+                }
+            }
+        }
+
+        // Levels, in the order of the dependencies
+        int[] level = new int[n];
+        int nlevels = 0;
+        for (int l = 0; l < n; l++) {
+            int i = lower ? l : n - 1 - l;
+            int li = 0;
+            for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+                li = Math.max(li, level[columns[k]] + 1);
+            }
+            level[i] = li;
+            nlevels = Math.max(nlevels, li + 1);
+        }
+
+        // Sort the rows by level, keeping them in order of dependency within
+        // each level
+        levelPointers = new int[nlevels + 1];
+        levelSizes = new int[nlevels];
+        for (int i = 0; i < n; i++) {
+            levelPointers[level[i] + 1]++;
+            levelSizes[level[i]] += rowPointers[i + 1] - rowPointers[i] + 1;
+        }
+        for (int l = 0; l < nlevels; l++) {
+            levelPointers[l + 1] += levelPointers[l];
+        }
+        System.arraycopy(levelPointers, 0, next, 0, nlevels);
+        rowOrder = new int[n];
+        for (int l = 0; l < n; l++) {
+            int i = lower ? l : n - 1 - l;
+            rowOrder[next[level[i]]++] = i;
+        }
+        this.pointers = new int[n + 1];
+        this.indexes = new int[nnz];
+        this.positions = new int[nnz];
+        this.diagonal = new int[n];
+        for (int k = 0; k < n; k++) {
+            int i = rowOrder[k];
+            int length = rowPointers[i + 1] - rowPointers[i];
+            this.pointers[k + 1] = this.pointers[k] + length;
+            System.arraycopy(columns, rowPointers[i], this.indexes, this.pointers[k], length);
+            System.arraycopy(valuePositions, rowPointers[i], this.positions, this.pointers[k], length);
+            this.diagonal[k] = diag[i];
+        }
+    }
+
+    /**
+     * Returns the number of levels, that is the length of the longest chain of
+     * dependencies between the unknowns.
+     * 
+     * @return the number of levels
+     */
+    public int getNumberOfLevels() {
+        return levelSizes.length;
+    }
+
+    /**
+     * Solves <tt>(D + T)*x = b</tt>.
+     * 
+     * @param b
+     *            the right-hand side.
+     * @param x
+     *            the solution; can be the same array as <tt>b</tt>.
+     * @throws IllegalArgumentException
+     *             if <tt>b.length < n || x.length < n</tt>.
+     */
+    public void solve(double[] b, double[] x) {
+        solve(b, x, 1);
+    }
+
+    /**
+     * Solves <tt>(D/omega + T)*x = b</tt>, the forward or backward sweep of
+     * the successive overrelaxation method.
+     * 
+     * @param b
+     *            the right-hand side.
+     * @param x
+     *            the solution; can be the same array as <tt>b</tt>.
+     * @param omega
+     *            the relaxation parameter.
+     * @throws IllegalArgumentException
+     *             if <tt>b.length < n || x.length < n</tt>.
+     */
+    public void solve(final double[] b, final double[] x, final double omega) {
+        if (b.length < n || x.length < n) {
+            throw new IllegalArgumentException("b.length < n || x.length < n");
+        }
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        int nlevels = levelSizes.length;
+        for (int l = 0; l < nlevels; l++) {
+            int first = levelPointers[l];
+            int last = levelPointers[l + 1];
+            int nrows = last - first;
+            if (nthreads > 1 && nrows > 1 && levelSizes[l] >= ConcurrencyUtils.getThreadsBeginN_1D()) {
+                int nparts = Math.min(nthreads, nrows);
+                Future<?>[] futures = new Future[nparts];
+                int k = nrows / nparts;
+                for (int j = 0; j < nparts; j++) {
+                    final int firstRow = first + j * k;
+                    final int lastRow = (j == nparts - 1) ? last : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            solve(b, x, omega, firstRow, lastRow);
+                        }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                solve(b, x, omega, first, last);
+            }
+        }
+    }
+
+    private void solve(double[] b, double[] x, double omega, int firstRow, int lastRow) {
+        for (int k = firstRow; k < lastRow; k++) {
+            int i = rowOrder[k];
+            double sum = 0;
+            for (int p = pointers[k]; p < pointers[k + 1]; p++) {
+                sum += values[positions[p]] * x[indexes[p]];
+            }
+            double d = unitDiagonal ? 1 : (diagonal[k] < 0 ? 0 : values[diagonal[k]]);
+            x[i] = omega * (b[i] - sum) / d;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.algo.decomposition;
+
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.algo.DoubleProperty;
+import cern.colt.matrix.tdouble.impl.BandDoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Cholesky decomposition of a symmetric positive definite band matrix.
+ * <p>
+ * For a matrix <tt>A</tt> with <tt>kd</tt> diagonals below the main diagonal,
+ * the decomposition is a lower triangular band matrix <tt>L</tt>, with the
+ * same bandwidth, so that <tt>A = L*L'</tt>. It is computed as by the LAPACK
+ * routine <tt>DPBTF2</tt>, in <tt>O(n*kd*kd)</tt> operations. Only the lower
+ * band of <tt>A</tt> is read; if the matrix is not positive definite, the
+ * IllegalArgumentException is thrown.
+ * <p>
+ * The columns of a right-hand side matrix are solved in parallel.
+ */
+public class BandDoubleCholeskyDecomposition {
+
+    private final int n;
+
+    private final int kd;
+
+    /*
+     * L, column by column: L[i,j] is at (i-j) + j*(kd+1).
+     */
+    private final double[] L;
+
+    /**
+     * Constructs and returns a new Cholesky decomposition object for a
+     * symmetric and positive definite band matrix; <tt>A</tt> is not
+     * modified.
+     * 
+     * @param A
+     *            square, symmetric positive definite band matrix.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square or is not positive definite.
+     */
+    public BandDoubleCholeskyDecomposition(BandDoubleMatrix2D A) {
+        DoubleProperty.DEFAULT.checkSquare(A);
+        n = A.rows();
+        kd = A.getLowerBandwidth();
+        int ku = A.getUpperBandwidth();
+        int ldab = kd + 1;
+        L = new double[ldab * n];
+        double[] elementsA = A.elements();
+        for (int j = 0; j < n; j++) {
+            System.arraycopy(elementsA, ku + j * (kd + ku + 1), L, j * ldab, ldab);
+        }
+
+        for (int j = 0; j < n; j++) {
+            int col = j * ldab;
+            double ajj = L[col];
+            if (!(ajj > 0)) {
+                throw new IllegalArgumentException("Matrix is not symmetric positive definite.");
+            }
+            ajj = Math.sqrt(ajj);
+            L[col] = ajj;
+            int kn = Math.min(kd, n - 1 - j);
+            for (int r = 1; r <= kn; r++) {
+                L[col + r] /= ajj;
+            }
+            // Symmetric rank-one update of the trailing band
+            for (int c = 1; c <= kn; c++) {
+                double xc = L[col + c];
+                if (xc != 0) {
+                    int colc = (j + c) * ldab - c;
+                    for (int r = c; r <= kn; r++) {
+                        L[colc + r] -= L[col + r] * xc;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the triangular factor, <tt>L</tt>.
+     * 
+     * @return <tt>L</tt>
+     */
+    public BandDoubleMatrix2D getL() {
+        BandDoubleMatrix2D Lmatrix = new BandDoubleMatrix2D(n, n, kd, 0);
+        System.arraycopy(L, 0, Lmatrix.elements(), 0, L.length);
+        return Lmatrix;
+    }
+
+    /**
+     * Solves <tt>A*x = b</tt>; <tt>b</tt> is overwritten with the result
+     * <tt>x</tt>.
+     * 
+     * @param b
+     *            right-hand side.
+     * @throws IllegalArgumentException
+     *             if <tt>b.size() != A.rows()</tt>.
+     */
+    public void solve(DoubleMatrix1D b) {
+        if (b.size() != n) {
+            throw new IllegalArgumentException("b.size() != A.rows()");
+        }
+        double[] x = b.toArray();
+        solve(x);
+        b.assign(x);
+    }
+
+    /**
+     * Solves <tt>A*X = B</tt>; <tt>B</tt> is overwritten with the result
+     * <tt>X</tt>. The columns of <tt>B</tt> are solved in parallel.
+     * 
+     * @param B
+     *            right-hand sides.
+     * @throws IllegalArgumentException
+     *             if <tt>B.rows() != A.rows()</tt>.
+     */
+    public void solve(DoubleMatrix2D B) {
+        if (B.rows() != n) {
+            throw new IllegalArgumentException("B.rows() != A.rows()");
+        }
+        final double[][] X = B.viewDice().toArray();
+        int nrhs = X.length;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (nrhs > 1) && ((long) nrhs * n * (kd + 1) >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, nrhs);
+            Future<?>[] futures = new Future[nthreads];
+            int k = nrhs / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstColumn = j * k;
+                final int lastColumn = (j == nthreads - 1) ? nrhs : firstColumn + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int c = firstColumn; c < lastColumn; c++) {
+                            solve(X[c]);
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            for (int c = 0; c < nrhs; c++) {
+                solve(X[c]);
+            }
+        }
+        B.viewDice().assign(X);
+    }
+
+    /*
+     * Solves L*y = b and L'*x = y in place.
+     */
+    private void solve(double[] b) {
+        int ldab = kd + 1;
+        for (int j = 0; j < n; j++) {
+            int col = j * ldab;
+            double bj = b[j] / L[col];
+            b[j] = bj;
+            int kn = Math.min(kd, n - 1 - j);
+            for (int r = 1; r <= kn; r++) {
+                b[j + r] -= L[col + r] * bj;
+            }
+        }
+        for (int j = n - 1; j >= 0; j--) {
+            int col = j * ldab;
+            double sum = b[j];
+            int kn = Math.min(kd, n - 1 - j);
+            for (int r = 1; r <= kn; r++) {
+                sum -= L[col + r] * b[j + r];
+            }
+            b[j] = sum / L[col];
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.algo.decomposition;
+
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.algo.DoubleProperty;
+import cern.colt.matrix.tdouble.impl.BandDoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * LU decomposition with partial pivoting of a square band matrix.
+ * <p>
+ * For an <tt>n x n</tt> matrix <tt>A</tt> with lower bandwidth <tt>kl</tt>
+ * and upper bandwidth <tt>ku</tt>, the decomposition is <tt>P*A = L*U</tt>,
+ * where <tt>L</tt> is unit lower triangular with at most <tt>kl</tt> entries
+ * below the diagonal in each column, and <tt>U</tt> is upper triangular with
+ * upper bandwidth <tt>kl+ku</tt>, the fill-in caused by the row interchanges.
+ * The factors are computed in band storage as by the LAPACK routine
+ * <tt>DGBTF2</tt>, in <tt>O(n*kl*(kl+ku))</tt> operations; the interchanges
+ * are applied while solving, so <tt>L</tt> is not available as a band matrix.
+ * <p>
+ * The columns of a right-hand side matrix are solved in parallel.
+ */
+public class BandDoubleLUDecomposition {
+
+    private final int n;
+
+    private final int kl;
+
+    private final int ku;
+
+    /*
+     * Length of a stored column of the factors, 2*kl + ku + 1.
+     */
+    private final int ldab;
+
+    /*
+     * The factors: U in the first kl + ku + 1 rows of each column, the
+     * multipliers of L below.
+     */
+    private final double[] LU;
+
+    /*
+     * Row interchanged with row j at step j.
+     */
+    private final int[] piv;
+
+    private boolean isNonSingular = true;
+
+    /**
+     * Constructs and returns a new LU decomposition object for a square band
+     * matrix; <tt>A</tt> is not modified.
+     * 
+     * @param A
+     *            square band matrix
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square.
+     */
+    public BandDoubleLUDecomposition(BandDoubleMatrix2D A) {
+        DoubleProperty.DEFAULT.checkSquare(A);
+        n = A.rows();
+        kl = A.getLowerBandwidth();
+        ku = A.getUpperBandwidth();
+        int kv = kl + ku;
+        ldab = 2 * kl + ku + 1;
+        LU = new double[ldab * n];
+        piv = new int[n];
+
+        // The band of A goes below kl rows kept for the fill-in
+        double[] elementsA = A.elements();
+        for (int j = 0; j < n; j++) {
+            System.arraycopy(elementsA, j * (kv + 1), LU, kl + j * ldab, kv + 1);
+        }
+
+        int ju = 0;
+        for (int j = 0; j < n; j++) {
+            int km = Math.min(kl, n - 1 - j);
+            int col = j * ldab;
+
+            // Pivot
+            int jp = 0;
+            double max = Math.abs(LU[kv + col]);
+            for (int t = 1; t <= km; t++) {
+                double abs = Math.abs(LU[kv + t + col]);
+                if (abs > max) {
+                    max = abs;
+                    jp = t;
+                }
+            }
+            piv[j] = j + jp;
+            double pivot = LU[kv + jp + col];
+            if (pivot == 0) {
+                isNonSingular = false;
+                continue;
+            }
+            ju = Math.max(ju, Math.min(j + ku + jp, n - 1));
+            if (jp != 0) {
+                for (int c = j; c <= ju; c++) {
+                    int p = kv + j - c + c * ldab;
+                    double tmp = LU[p + jp];
+                    LU[p + jp] = LU[p];
+                    LU[p] = tmp;
+                }
+            }
+
+            // Multipliers and update of the trailing band
+            if (km > 0) {
+                for (int t = 1; t <= km; t++) {
+                    LU[kv + t + col] /= pivot;
+                }
+                for (int c = j + 1; c <= ju; c++) {
+                    int p = kv + j - c + c * ldab;
+                    double u = LU[p];
+                    if (u != 0) {
+                        for (int t = 1; t <= km; t++) {
+                            LU[p + t] -= LU[kv + t + col] * u;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the determinant, <tt>det(A)</tt>.
+     * 
+     * @return the determinant
+     */
+    public double det() {
+        double det = 1;
+        int kv = kl + ku;
+        for (int j = 0; j < n; j++) {
+            det *= LU[kv + j * ldab];
+            if (piv[j] != j) {
+                det = -det;
+            }
+        }
+        return det;
+    }
+
+    /**
+     * Returns a copy of the pivot vector: row <tt>piv[j]</tt> was interchanged
+     * with row <tt>j</tt> at step <tt>j</tt> of the elimination.
+     * 
+     * @return piv
+     */
+    public int[] getPivot() {
+        return piv.clone();
+    }
+
+    /**
+     * Returns the upper triangular factor, <tt>U</tt>.
+     * 
+     * @return <tt>U</tt>, with upper bandwidth <tt>kl+ku</tt>
+     */
+    public BandDoubleMatrix2D getU() {
+        int kv = kl + ku;
+        BandDoubleMatrix2D U = new BandDoubleMatrix2D(n, n, 0, kv);
+        double[] elementsU = U.elements();
+        for (int j = 0; j < n; j++) {
+            System.arraycopy(LU, j * ldab, elementsU, j * (kv + 1), kv + 1);
+        }
+        return U;
+    }
+
+    /**
+     * Returns whether the matrix is nonsingular (has an inverse).
+     * 
+     * @return true if <tt>U</tt>, and hence <tt>A</tt>, is nonsingular; false
+     *         otherwise.
+     */
+    public boolean isNonsingular() {
+        return isNonSingular;
+    }
+
+    /**
+     * Solves <tt>A*x = b</tt>; <tt>b</tt> is overwritten with the result
+     * <tt>x</tt>.
+     * 
+     * @param b
+     *            right-hand side.
+     * @throws IllegalArgumentException
+     *             if <tt>b.size() != A.rows()</tt> or if <tt>A</tt> is
+     *             singular.
+     */
+    public void solve(DoubleMatrix1D b) {
+        if (b.size() != n) {
+            throw new IllegalArgumentException("b.size() != A.rows()");
+        }
+        if (!isNonSingular) {
+            throw new IllegalArgumentException("Matrix is singular.");
+        }
+        double[] x = b.toArray();
+        solve(x);
+        b.assign(x);
+    }
+
+    /**
+     * Solves <tt>A*X = B</tt>; <tt>B</tt> is overwritten with the result
+     * <tt>X</tt>. The columns of <tt>B</tt> are solved in parallel.
+     * 
+     * @param B
+     *            right-hand sides.
+     * @throws IllegalArgumentException
+     *             if <tt>B.rows() != A.rows()</tt> or if <tt>A</tt> is
+     *             singular.
+     */
+    public void solve(DoubleMatrix2D B) {
+        if (B.rows() != n) {
+            throw new IllegalArgumentException("B.rows() != A.rows()");
+        }
+        if (!isNonSingular) {
+            throw new IllegalArgumentException("Matrix is singular.");
+        }
+        final double[][] X = B.viewDice().toArray();
+        int nrhs = X.length;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (nrhs > 1) && ((long) nrhs * n * (ldab - kl) >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, nrhs);
+            Future<?>[] futures = new Future[nthreads];
+            int k = nrhs / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstColumn = j * k;
+                final int lastColumn = (j == nthreads - 1) ? nrhs : firstColumn + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int c = firstColumn; c < lastColumn; c++) {
+                            solve(X[c]);
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            for (int c = 0; c < nrhs; c++) {
+                solve(X[c]);
+            }
+        }
+        B.viewDice().assign(X);
+    }
+
+    /*
+     * Solves in place, as DGBTRS: L*x = P*b with the interchanges applied
+     * step by step, then U*x = y.
+     */
+    void solve(double[] b) {
+        int kv = kl + ku;
+        if (kl > 0) {
+            for (int j = 0; j < n - 1; j++) {
+                int lm = Math.min(kl, n - 1 - j);
+                int l = piv[j];
+                double bj = b[l];
+                if (l != j) {
+                    b[l] = b[j];
+                    b[j] = bj;
+                }
+                if (bj != 0) {
+                    int col = kv + j * ldab;
+                    for (int t = 1; t <= lm; t++) {
+                        b[j + t] -= LU[col + t] * bj;
+                    }
+                }
+            }
+        }
+        for (int j = n - 1; j >= 0; j--) {
+            if (b[j] != 0) {
+                int col = kv + j * ldab;
+                double bj = b[j] / LU[col];
+                b[j] = bj;
+                int first = Math.max(0, j - kv);
+                for (int i = first; i < j; i++) {
+                    b[i] -= LU[col + i - j] * bj;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.algo.decomposition;
+
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.algo.DoubleProperty;
+import cern.colt.matrix.tdouble.impl.BandDoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Parallel solver of narrow band systems by the SPIKE algorithm.
+ * <p>
+ * The band LU decomposition is sequential along the band. SPIKE cuts
+ * <tt>A</tt> into one diagonal block <tt>A_j</tt> per thread and factors the
+ * blocks independently. Let <tt>k</tt> be the larger of the two bandwidths;
+ * the <tt>k x k</tt> blocks coupling a block to its neighbours give the spikes
+ * <tt>V_j</tt> and <tt>W_j</tt>, solutions of <tt>A_j*V_j = [0; B_j]</tt>
+ * and <tt>A_j*W_j = [C_j; 0]</tt>. After the local solves
+ * <tt>g_j = A_j\f_j</tt>, only the first and last <tt>k</tt> unknowns of each
+ * block are coupled; they are the solution of a reduced band system of order
+ * <tt>2*k</tt> per block, and the other unknowns follow in parallel from
+ * <tt>x_j = g_j - V_j*top(x_j+1) - W_j*bottom(x_j-1)</tt>.
+ * <p>
+ * The partition needs nonsingular diagonal blocks, which is the case for
+ * diagonally dominant and for symmetric positive definite matrices. When a
+ * block or the reduced system is singular, when there is a single thread or
+ * when <tt>n</tt> is smaller than <tt>ConcurrencyUtils.getThreadsBeginN_1D()</tt>,
+ * the whole matrix is decomposed by {@link BandDoubleLUDecomposition}
+ * instead.
+ */
+public class BandDoubleSpikeDecomposition {
+
+    private final int n;
+
+    private final int k;
+
+    /*
+     * First row of each block, and n.
+     */
+    private int[] blockPointers;
+
+    private BandDoubleLUDecomposition[] blocks;
+
+    /*
+     * The spikes, column by column: V[j][c*n_j + i] and W[j][c*n_j + i].
+     */
+    private double[][] V, W;
+
+    private BandDoubleLUDecomposition reduced;
+
+    /*
+     * The decomposition of A, if it is not partitioned.
+     */
+    private BandDoubleLUDecomposition lu;
+
+    /**
+     * Constructs and returns a new decomposition object for a square band
+     * matrix; <tt>A</tt> is not modified.
+     * 
+     * @param A
+     *            square band matrix
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square.
+     */
+    public BandDoubleSpikeDecomposition(final BandDoubleMatrix2D A) {
+        DoubleProperty.DEFAULT.checkSquare(A);
+        n = A.rows();
+        k = Math.max(A.getLowerBandwidth(), A.getUpperBandwidth());
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        int nblocks = Math.min(nthreads, n / (4 * Math.max(k, 1)));
+        if (nblocks < 2 || n < ConcurrencyUtils.getThreadsBeginN_1D()) {
+            lu = new BandDoubleLUDecomposition(A);
+            return;
+        }
+        blockPointers = new int[nblocks + 1];
+        for (int j = 0; j <= nblocks; j++) {
+            blockPointers[j] = (int) ((long) n * j / nblocks);
+        }
+        blocks = new BandDoubleLUDecomposition[nblocks];
+        V = new double[nblocks][];
+        W = new double[nblocks][];
+        Future<?>[] futures = new Future[nblocks];
+        for (int j = 0; j < nblocks; j++) {
+            final int block = j;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    factor(A, block);
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        for (int j = 0; j < nblocks; j++) {
+            if (!blocks[j].isNonsingular()) {
+                fallBack(A);
+                return;
+            }
+        }
+
+        // The reduced system couples the first and last k unknowns of the
+        // blocks: top(x_j) + V_j*top(x_j+1) + W_j*bottom(x_j-1) = top(g_j)
+        // and the same for the bottom rows
+        int m = 2 * k * nblocks;
+        BandDoubleMatrix2D R = new BandDoubleMatrix2D(m, m, Math.max(0, 3 * k - 1), Math.max(0, 3 * k - 1));
+        for (int j = 0; j < nblocks; j++) {
+            int nj = blockPointers[j + 1] - blockPointers[j];
+            for (int r = 0; r < k; r++) {
+                int top = 2 * k * j + r;
+                int bottom = top + k;
+                R.setQuick(top, top, 1);
+                R.setQuick(bottom, bottom, 1);
+                for (int c = 0; c < k; c++) {
+                    if (j < nblocks - 1) {
+                        int column = 2 * k * (j + 1) + c;
+                        R.setQuick(top, column, V[j][c * nj + r]);
+                        R.setQuick(bottom, column, V[j][c * nj + nj - k + r]);
+                    }
+                    if (j > 0) {
+                        int column = 2 * k * (j - 1) + k + c;
+                        R.setQuick(top, column, W[j][c * nj + r]);
+                        R.setQuick(bottom, column, W[j][c * nj + nj - k + r]);
+                    }
+                }
+            }
+        }
+        reduced = new BandDoubleLUDecomposition(R);
+        if (!reduced.isNonsingular()) {
+            fallBack(A);
+        }
+    }
+
+    /**
+     * Returns the number of diagonal blocks solved in parallel; <tt>1</tt> if
+     * the matrix is decomposed as a whole.
+     * 
+     * @return the number of blocks
+     */
+    public int getNumberOfBlocks() {
+        return lu != null ? 1 : blocks.length;
+    }
+
+    /**
+     * Returns whether the matrix is nonsingular.
+     * 
+     * @return true if <tt>A</tt> is nonsingular; false otherwise.
+     */
+    public boolean isNonsingular() {
+        return lu == null || lu.isNonsingular();
+    }
+
+    /**
+     * Solves <tt>A*x = b</tt>; <tt>b</tt> is overwritten with the result
+     * <tt>x</tt>.
+     * 
+     * @param b
+     *            right-hand side.
+     * @throws IllegalArgumentException
+     *             if <tt>b.size() != A.rows()</tt> or if <tt>A</tt> is
+     *             singular.
+     */
+    public void solve(DoubleMatrix1D b) {
+        if (b.size() != n) {
+            throw new IllegalArgumentException("b.size() != A.rows()");
+        }
+        if (!isNonsingular()) {
+            throw new IllegalArgumentException("Matrix is singular.");
+        }
+        double[] x = b.toArray();
+        solve(x);
+        b.assign(x);
+    }
+
+    /**
+     * Solves <tt>A*X = B</tt>; <tt>B</tt> is overwritten with the result
+     * <tt>X</tt>. The columns are solved one after the other, each in
+     * parallel.
+     * 
+     * @param B
+     *            right-hand sides.
+     * @throws IllegalArgumentException
+     *             if <tt>B.rows() != A.rows()</tt> or if <tt>A</tt> is
+     *             singular.
+     */
+    public void solve(DoubleMatrix2D B) {
+        if (B.rows() != n) {
+            throw new IllegalArgumentException("B.rows() != A.rows()");
+        }
+        if (!isNonsingular()) {
+            throw new IllegalArgumentException("Matrix is singular.");
+        }
+        for (int c = 0; c < B.columns(); c++) {
+            DoubleMatrix1D column = B.viewColumn(c);
+            double[] x = column.toArray();
+            solve(x);
+            column.assign(x);
+        }
+    }
+
+    private void solve(final double[] f) {
+        if (lu != null) {
+            lu.solve(f);
+            return;
+        }
+        int nblocks = blocks.length;
+        Future<?>[] futures = new Future[nblocks];
+
+        // g_j = A_j\f_j, in place
+        for (int j = 0; j < nblocks; j++) {
+            final int block = j;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    int first = blockPointers[block];
+                    int nj = blockPointers[block + 1] - first;
+                    double[] g = new double[nj];
+                    System.arraycopy(f, first, g, 0, nj);
+                    blocks[block].solve(g);
+                    System.arraycopy(g, 0, f, first, nj);
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+
+        final double[] y = new double[2 * k * nblocks];
+        for (int j = 0; j < nblocks; j++) {
+            int first = blockPointers[j];
+            int last = blockPointers[j + 1];
+            System.arraycopy(f, first, y, 2 * k * j, k);
+            System.arraycopy(f, last - k, y, 2 * k * j + k, k);
+        }
+        reduced.solve(y);
+
+        for (int j = 0; j < nblocks; j++) {
+            final int block = j;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    recover(block, f, y);
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+    }
+
+    /*
+     * Factors the diagonal block j and computes its spikes.
+     */
+    private void factor(BandDoubleMatrix2D A, int j) {
+        int first = blockPointers[j];
+        int nj = blockPointers[j + 1] - first;
+        int kl = A.getLowerBandwidth();
+        int ku = A.getUpperBandwidth();
+        int ldab = kl + ku + 1;
+
+        // The columns of the block, without the cells of the neighbours
+        BandDoubleMatrix2D Aj = new BandDoubleMatrix2D(nj, nj, kl, ku);
+        double[] elementsAj = Aj.elements();
+        System.arraycopy(A.elements(), first * ldab, elementsAj, 0, nj * ldab);
+        for (int c = 0; c < nj; c++) {
+            for (int r = c - ku; r <= c + kl; r++) {
+                if (r < 0 || r >= nj) {
+                    elementsAj[ku + r - c + c * ldab] = 0;
+                }
+            }
+        }
+        blocks[j] = new BandDoubleLUDecomposition(Aj);
+        if (!blocks[j].isNonsingular()) {
+            return;
+        }
+
+        int nblocks = blocks.length;
+        double[] column = new double[nj];
+        if (j < nblocks - 1) {
+            V[j] = new double[k * nj];
+            for (int c = 0; c < k; c++) {
+                Arrays.fill(column, 0);
+                for (int r = 0; r < k; r++) {
+                    column[nj - k + r] = A.getQuick(first + nj - k + r, first + nj + c);
+                }
+                blocks[j].solve(column);
+                System.arraycopy(column, 0, V[j], c * nj, nj);
+            }
+        }
+        if (j > 0) {
+            W[j] = new double[k * nj];
+            for (int c = 0; c < k; c++) {
+                Arrays.fill(column, 0);
+                for (int r = 0; r < k; r++) {
+                    column[r] = A.getQuick(first + r, first - k + c);
+                }
+                blocks[j].solve(column);
+                System.arraycopy(column, 0, W[j], c * nj, nj);
+            }
+        }
+    }
+
+    /*
+     * x_j = g_j - V_j*top(x_j+1) - W_j*bottom(x_j-1), in place.
+     */
+    private void recover(int j, double[] f, double[] y) {
+        int first = blockPointers[j];
+        int nj = blockPointers[j + 1] - first;
+        int nblocks = blocks.length;
+        for (int c = 0; c < k; c++) {
+            if (j < nblocks - 1) {
+                double yc = y[2 * k * (j + 1) + c];
+                if (yc != 0) {
+                    double[] Vj = V[j];
+                    for (int i = 0; i < nj; i++) {
+                        f[first + i] -= Vj[c * nj + i] * yc;
+                    }
+                }
+            }
+            if (j > 0) {
+                double yc = y[2 * k * (j - 1) + k + c];
+                if (yc != 0) {
+                    double[] Wj = W[j];
+                    for (int i = 0; i < nj; i++) {
+                        f[first + i] -= Wj[c * nj + i] * yc;
+                    }
+                }
+            }
+        }
+    }
+
+    private void fallBack(BandDoubleMatrix2D A) {
+        blockPointers = null;
+        blocks = null;
+        V = null;
+        W = null;
+        reduced = null;
+        lu = new BandDoubleLUDecomposition(A);
+    }
+}
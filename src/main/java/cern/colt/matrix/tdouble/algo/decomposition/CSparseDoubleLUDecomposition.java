@@ -3,14 +3,13 @@ package cern.colt.matrix.tdouble.algo.decomposition;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.algo.DoubleProperty;
+import cern.colt.matrix.tdouble.algo.SparseDoubleTriangularSolver;
 import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_dmperm;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_ipvec;
-import edu.emory.mathcs.csparsej.tdouble.Dcs_lsolve;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_lu;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_sqr;
-import edu.emory.mathcs.csparsej.tdouble.Dcs_usolve;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcs;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcsd;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcsn;
@@ -28,6 +27,16 @@ public class CSparseDoubleLUDecomposition implements SparseDoubleLUDecomposition
     private DoubleMatrix2D U;
     private boolean rcMatrix = false;
     private boolean isNonSingular = true;
+    /**
+     * Level-scheduled solvers for L and U.
+     */
+    private SparseDoubleTriangularSolver lowerSolver;
+    private SparseDoubleTriangularSolver upperSolver;
+    /**
+     * Nonzero pattern of the decomposed matrix, in the column-compressed form.
+     */
+    private int[] Ap;
+    private int[] Ai;
     /**
      * Row and column dimension (square matrix).
      */
@@ -58,23 +67,18 @@ public class CSparseDoubleLUDecomposition implements SparseDoubleLUDecomposition
         if (order < 0 || order > 3) {
             throw new IllegalArgumentException("order must be a number between 0 and 3");
         }
-        Dcs dcs;
-        if (A instanceof SparseRCDoubleMatrix2D) {
-            rcMatrix = true;
-            dcs = ((SparseRCDoubleMatrix2D) A).getColumnCompressed().elements();
-        } else {
-            dcs = (Dcs) A.elements();
-        }
+        Dcs dcs = columnCompressed(A);
         n = A.rows();
+        Ap = new int[n + 1];
+        System.arraycopy(dcs.p, 0, Ap, 0, n + 1);
+        Ai = new int[Ap[n]];
+        System.arraycopy(dcs.i, 0, Ai, 0, Ap[n]);
 
         S = Dcs_sqr.cs_sqr(order, dcs, false);
         if (S == null) {
             throw new IllegalArgumentException("Exception occured in cs_sqr()");
         }
-        N = Dcs_lu.cs_lu(dcs, S, 1);
-        if (N == null) {
-            throw new IllegalArgumentException("Exception occured in cs_lu()");
-        }
+        factor(dcs);
         if (checkIfSingular) {
             Dcsd D = Dcs_dmperm.cs_dmperm(dcs, 1); /* check if matrix is singular */
             if (D != null && D.rr[3] < n) {
@@ -168,6 +172,19 @@ public class CSparseDoubleLUDecomposition implements SparseDoubleLUDecomposition
         return isNonSingular;
     }
 
+    /* (non-Javadoc)
+	 * @see cern.colt.matrix.tdouble.algo.decomposition.SparseDoubleLUDecomposition#refactor(cern.colt.matrix.tdouble.DoubleMatrix2D)
+	 */
+    public void refactor(DoubleMatrix2D A) {
+        DoubleProperty.DEFAULT.checkSquare(A);
+        DoubleProperty.DEFAULT.checkSparse(A);
+        Dcs dcs = columnCompressed(A);
+        SparseDoublePattern.check(dcs, n, Ap, Ai);
+        factor(dcs);
+        L = null;
+        U = null;
+    }
+
     /* (non-Javadoc)
 	 * @see cern.colt.matrix.tdouble.algo.decomposition.SparseDoubleLUDecomposition#solve(cern.colt.matrix.tdouble.DoubleMatrix1D)
 	 */
@@ -187,12 +204,36 @@ public class CSparseDoubleLUDecomposition implements SparseDoubleLUDecomposition
             x = (double[]) b.elements();
         }
         Dcs_ipvec.cs_ipvec(N.pinv, x, y, n); /* y = b(p) */
-        Dcs_lsolve.cs_lsolve(N.L, y); /* y = L\y */
-        Dcs_usolve.cs_usolve(N.U, y); /* y = U\y */
+        lowerSolver.solve(y, y); /* y = L\y */
+        upperSolver.solve(y, y); /* y = U\y */
         Dcs_ipvec.cs_ipvec(S.q, y, x, n); /* b(q) = x */
 
         if (b.isView()) {
             b.assign(x);
         }
     }
+
+    private Dcs columnCompressed(DoubleMatrix2D A) {
+        if (A instanceof SparseRCDoubleMatrix2D) {
+            rcMatrix = true;
+            return ((SparseRCDoubleMatrix2D) A).getColumnCompressed().elements();
+        } else {
+            rcMatrix = false;
+            return (Dcs) A.elements();
+        }
+    }
+
+    /*
+     * Numeric factorization with the symbolic analysis S. The pivoting can
+     * change the pattern of the factors, so the solvers are set up again.
+     */
+    private void factor(Dcs dcs) {
+        Dcsn N = Dcs_lu.cs_lu(dcs, S, 1);
+        if (N == null) {
+            throw new IllegalArgumentException("Exception occured in cs_lu()");
+        }
+        this.N = N;
+        lowerSolver = new SparseDoubleTriangularSolver(n, N.L.p, N.L.i, N.L.x, false, true, false);
+        upperSolver = new SparseDoubleTriangularSolver(n, N.U.p, N.U.i, N.U.x, false, false, false);
+    }
 }
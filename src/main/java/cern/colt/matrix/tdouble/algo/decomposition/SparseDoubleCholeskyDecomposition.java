@@ -11,12 +11,12 @@ package cern.colt.matrix.tdouble.algo.decomposition;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.algo.DoubleProperty;
+import cern.colt.matrix.tdouble.algo.SparseDoubleTriangularSolver;
 import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseSymmetricDoubleMatrix2D;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_chol;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_ipvec;
-import edu.emory.mathcs.csparsej.tdouble.Dcs_lsolve;
-import edu.emory.mathcs.csparsej.tdouble.Dcs_ltsolve;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_pvec;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_schol;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcs;
@@ -36,6 +36,16 @@ public class SparseDoubleCholeskyDecomposition {
     private Dcsn N;
     private DoubleMatrix2D L;
     private boolean rcMatrix = false;
+    /**
+     * Level-scheduled solvers for L and L'.
+     */
+    private SparseDoubleTriangularSolver lowerSolver;
+    private SparseDoubleTriangularSolver upperSolver;
+    /**
+     * Nonzero pattern of the decomposed matrix, in the column-compressed form.
+     */
+    private int[] Ap;
+    private int[] Ai;
 
     /**
      * Row and column dimension (square matrix).
@@ -48,7 +58,9 @@ public class SparseDoubleCholeskyDecomposition {
      * retrieved via instance methods of the returned decomposition object.
      * 
      * @param A
-     *            Square, symmetric positive definite matrix .
+     *            Square, symmetric positive definite matrix . A
+     *            <tt>SparseSymmetricDoubleMatrix2D</tt> is factored without
+     *            expanding it.
      * @param order
      *            ordering option (0 or 1); 0: natural ordering, 1: amd(A+A')
      * @throws IllegalArgumentException
@@ -59,18 +71,18 @@ public class SparseDoubleCholeskyDecomposition {
      */
     public SparseDoubleCholeskyDecomposition(DoubleMatrix2D A, int order) {
         DoubleProperty.DEFAULT.checkSquare(A);
-        DoubleProperty.DEFAULT.checkSparse(A);
+        if (!(A instanceof SparseSymmetricDoubleMatrix2D)) {
+            DoubleProperty.DEFAULT.checkSparse(A);
+        }
         if (order < 0 || order > 1) {
             throw new IllegalArgumentException("order must be equal 0 or 1");
         }
-        Dcs dcs;
-        if (A instanceof SparseRCDoubleMatrix2D) {
-            rcMatrix = true;
-            dcs = ((SparseRCDoubleMatrix2D) A).getColumnCompressed().elements();
-        } else {
-            dcs = (Dcs) A.elements();
-        }
+        Dcs dcs = columnCompressed(A);
         n = A.rows();
+        Ap = new int[n + 1];
+        System.arraycopy(dcs.p, 0, Ap, 0, n + 1);
+        Ai = new int[Ap[n]];
+        System.arraycopy(dcs.i, 0, Ai, 0, Ap[n]);
         S = Dcs_schol.cs_schol(order, dcs);
         if (S == null) {
             throw new IllegalArgumentException("Exception occured in cs_schol()");
@@ -79,6 +91,43 @@ public class SparseDoubleCholeskyDecomposition {
         if (N == null) {
             throw new IllegalArgumentException("Matrix is not symmetric positive definite");
         }
+        lowerSolver = new SparseDoubleTriangularSolver(n, N.L.p, N.L.i, N.L.x, false, true, false);
+        // The columns of L are the rows of L'
+        upperSolver = new SparseDoubleTriangularSolver(n, N.L.p, N.L.i, N.L.x, true, false, false);
+    }
+
+    /**
+     * Computes the numeric factorization of a matrix with the same nonzero
+     * pattern as the decomposed one, reusing the ordering, the symbolic
+     * analysis and the triangular solvers. The factor is computed into new
+     * storage, and its values are then copied into the current factor. Useful
+     * when a sequence of matrices with a fixed pattern is factored, for
+     * instance at each step of a time integration.
+     * 
+     * @param A
+     *            Square, symmetric positive definite matrix with the nonzero
+     *            pattern of the decomposed matrix, stored in the same order.
+     * @throws IllegalArgumentException
+     *             if the nonzero pattern of <tt>A</tt> differs from the
+     *             pattern of the decomposed matrix, or if <tt>A</tt> is not
+     *             symmetric positive definite.
+     */
+    public void refactor(DoubleMatrix2D A) {
+        DoubleProperty.DEFAULT.checkSquare(A);
+        if (!(A instanceof SparseSymmetricDoubleMatrix2D)) {
+            DoubleProperty.DEFAULT.checkSparse(A);
+        }
+        Dcs dcs = columnCompressed(A);
+        SparseDoublePattern.check(dcs, n, Ap, Ai);
+        Dcsn N = Dcs_chol.cs_chol(dcs, S);
+        if (N == null) {
+            throw new IllegalArgumentException("Matrix is not symmetric positive definite");
+        }
+        // cs_chol allocates a new factor; the pattern of L only depends on the
+        // pattern of A, so its values can be copied into the factor the
+        // solvers were set up for
+        System.arraycopy(N.L.x, 0, this.N.L.x, 0, this.N.L.p[n]);
+        L = null;
     }
 
     /**
@@ -156,12 +205,25 @@ public class SparseDoubleCholeskyDecomposition {
             x = (double[]) b.elements();
         }
         Dcs_ipvec.cs_ipvec(S.pinv, x, y, n); /* y = P*b */
-        Dcs_lsolve.cs_lsolve(N.L, y); /* y = L\y */
-        Dcs_ltsolve.cs_ltsolve(N.L, y); /* y = L'\y */
+        lowerSolver.solve(y, y); /* y = L\y */
+        upperSolver.solve(y, y); /* y = L'\y */
         Dcs_pvec.cs_pvec(S.pinv, y, x, n); /* x = P'*y */
 
         if (b.isView()) {
             b.assign(x);
         }
     }
+
+    private Dcs columnCompressed(DoubleMatrix2D A) {
+        rcMatrix = false;
+        if (A instanceof SparseRCDoubleMatrix2D) {
+            rcMatrix = true;
+            return ((SparseRCDoubleMatrix2D) A).getColumnCompressed().elements();
+        } else if (A instanceof SparseSymmetricDoubleMatrix2D) {
+            // cs_chol only reads the upper triangle
+            return ((SparseSymmetricDoubleMatrix2D) A).getUpperTriangle().elements();
+        } else {
+            return (Dcs) A.elements();
+        }
+    }
 }
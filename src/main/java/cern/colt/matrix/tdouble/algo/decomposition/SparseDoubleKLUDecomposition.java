@@ -15,6 +15,7 @@ import static edu.ufl.cise.btf.tdouble.Dbtf_maxtrans.btf_maxtrans;
 import static edu.ufl.cise.klu.tdouble.Dklu_analyze.klu_analyze;
 import static edu.ufl.cise.klu.tdouble.Dklu_defaults.klu_defaults;
 import static edu.ufl.cise.klu.tdouble.Dklu_factor.klu_factor;
+import static edu.ufl.cise.klu.tdouble.Dklu_refactor.klu_refactor;
 import static edu.ufl.cise.klu.tdouble.Dklu_solve.klu_solve;
 import static edu.ufl.cise.klu.tdouble.Dklu_extract.klu_extract;
 
@@ -32,6 +33,11 @@ public class SparseDoubleKLUDecomposition implements SparseDoubleLUDecomposition
     private DoubleMatrix2D U;
     private boolean rcMatrix = false;
     private boolean isNonSingular = true;
+    /**
+     * Nonzero pattern of the decomposed matrix, in the column-compressed form.
+     */
+    private int[] Ap;
+    private int[] Ai;
     /**
      * Row and column dimension (square matrix).
      */
@@ -68,15 +74,12 @@ public class SparseDoubleKLUDecomposition implements SparseDoubleLUDecomposition
 		Common.ordering = order;
 		Common.btf = preOrder ? 1 : 0;
 		
-        Dcs dcs;
-        if (A instanceof SparseRCDoubleMatrix2D) {
-            rcMatrix = true;
-            dcs = ((SparseRCDoubleMatrix2D) A).getColumnCompressed().elements();
-        } else {
-            dcs = (Dcs) A.elements();
-        }
+        Dcs dcs = columnCompressed(A);
         n = A.rows();
-        int[] Ap = dcs.p, Ai = dcs.i;
+        Ap = new int[n + 1];
+        System.arraycopy(dcs.p, 0, Ap, 0, n + 1);
+        Ai = new int[Ap[n]];
+        System.arraycopy(dcs.i, 0, Ai, 0, Ap[n]);
         double[] Ax = dcs.x;
 
         S = klu_analyze(n, Ap, Ai, Common);
@@ -127,7 +130,7 @@ public class SparseDoubleKLUDecomposition implements SparseDoubleLUDecomposition
 	 */
     public DoubleMatrix2D getL() {
         if (L == null) {
-            int[] Lp = new int[N.lnz + 1];
+            int[] Lp = new int[n + 1];
             int[] Li = new int[N.lnz];
             double[] Lx = new double[N.lnz];
         	klu_extract(N, S, Lp, Li, Lx, null, null, null, null, null, null, null, null, null, null, Common);
@@ -155,7 +158,7 @@ public class SparseDoubleKLUDecomposition implements SparseDoubleLUDecomposition
 	 */
     public DoubleMatrix2D getU() {
         if (U == null) {
-            int[] Up = new int[N.unz + 1];
+            int[] Up = new int[n + 1];
             int[] Ui = new int[N.unz];
             double[] Ux = new double[N.unz];
             klu_extract(N, S, null, null, null, Up, Ui, Ux, null, null, null, null, null, null, null, Common);
@@ -198,6 +201,22 @@ public class SparseDoubleKLUDecomposition implements SparseDoubleLUDecomposition
         return isNonSingular;
     }
 
+    /* (non-Javadoc)
+	 * @see cern.colt.matrix.tdouble.algo.decomposition.SparseDoubleLUDecomposition#refactor(cern.colt.matrix.tdouble.DoubleMatrix2D)
+	 */
+    public void refactor(DoubleMatrix2D A) {
+        DoubleProperty.DEFAULT.checkSquare(A);
+        DoubleProperty.DEFAULT.checkSparse(A);
+        Dcs dcs = columnCompressed(A);
+        SparseDoublePattern.check(dcs, n, Ap, Ai);
+        // Keeps the pivots of the first factorization and reuses its storage
+        if (klu_refactor(dcs.p, dcs.i, dcs.x, S, N, Common) == 0) {
+            throw new IllegalArgumentException("Exception occured in klu_refactor()");
+        }
+        L = null;
+        U = null;
+    }
+
     /* (non-Javadoc)
 	 * @see cern.colt.matrix.tdouble.algo.decomposition.SparseDoubleLUDecomposition#solve(cern.colt.matrix.tdouble.DoubleMatrix1D)
 	 */
@@ -221,4 +240,14 @@ public class SparseDoubleKLUDecomposition implements SparseDoubleLUDecomposition
             b.assign(x);
         }
     }
+
+    private Dcs columnCompressed(DoubleMatrix2D A) {
+        if (A instanceof SparseRCDoubleMatrix2D) {
+            rcMatrix = true;
+            return ((SparseRCDoubleMatrix2D) A).getColumnCompressed().elements();
+        } else {
+            rcMatrix = false;
+            return (Dcs) A.elements();
+        }
+    }
 }
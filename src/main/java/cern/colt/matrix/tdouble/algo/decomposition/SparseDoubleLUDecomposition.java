@@ -60,6 +60,21 @@ public interface SparseDoubleLUDecomposition {
 	 */
 	public abstract boolean isNonsingular();
 
+	/**
+	 * Computes the numeric factorization of a matrix with the same nonzero
+	 * pattern as the decomposed one, reusing the ordering and the symbolic
+	 * analysis. Useful when a sequence of matrices with a fixed pattern is
+	 * factored, for instance at each step of a time integration.
+	 * 
+	 * @param A
+	 *            Square matrix with the nonzero pattern of the decomposed
+	 *            matrix, stored in the same order.
+	 * @exception IllegalArgumentException
+	 *                if the nonzero pattern of <tt>A</tt> differs from the
+	 *                pattern of the decomposed matrix.
+	 */
+	public abstract void refactor(DoubleMatrix2D A);
+
 	/**
 	 * Solves <tt>A*x = b</tt>(in-place). Upon return <tt>b</tt> is overridden
 	 * with the result <tt>x</tt>.
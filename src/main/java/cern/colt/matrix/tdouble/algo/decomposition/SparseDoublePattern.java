@@ -0,0 +1,44 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.algo.decomposition;
+
+import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcs;
+
+/**
+ * Nonzero pattern checks shared by the sparse decompositions, which keep the
+ * pattern of the decomposed matrix so that matrices with the same pattern can
+ * be refactored.
+ */
+class SparseDoublePattern {
+
+    /**
+     * Makes this class non instantiable.
+     */
+    private SparseDoublePattern() {
+    }
+
+    /**
+     * Throws an IllegalArgumentException if <tt>dcs</tt> has not the nonzero
+     * pattern of the <tt>n x n</tt> matrix with the column pointers
+     * <tt>Ap</tt> and the row indexes <tt>Ai</tt>.
+     */
+    static void check(Dcs dcs, int n, int[] Ap, int[] Ai) {
+        int nnz = Ap[n];
+        boolean same = dcs.m == n && dcs.n == n && dcs.p[n] == nnz;
+        for (int j = 0; same && j < n; j++) {
+            same = dcs.p[j] == Ap[j];
+        }
+        for (int k = 0; same && k < nnz; k++) {
+            same = dcs.i[k] == Ai[k];
+        }
+        if (!same) {
+            throw new IllegalArgumentException("The nonzero pattern of A differs from the decomposed matrix");
+        }
+    }
+}
@@ -35,9 +35,9 @@ import cern.colt.matrix.tdouble.algo.decomposition.DenseDoubleLUDecompositionQui
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
-import cern.colt.matrix.tdouble.impl.SparseCCMDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
-import cern.colt.matrix.tdouble.impl.SparseRCMDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseColumnListDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseRowListDoubleMatrix2D;
 
 /**
  * Algebraic multigrid preconditioner. Uses the smoothed aggregation method
@@ -737,7 +737,7 @@ public class DoubleAMG implements DoublePreconditioner {
         private SparseRCDoubleMatrix2D createGalerkinFast(SparseRCDoubleMatrix2D A, int[] pt, int c) {
             int n = pt.length;
 
-            SparseRCMDoubleMatrix2D Ac = new SparseRCMDoubleMatrix2D(c, c);
+            SparseRowListDoubleMatrix2D Ac = new SparseRowListDoubleMatrix2D(c, c);
 
             int[] rowptr = A.getRowPointers();
             int[] colind = A.getColumnIndexes();
@@ -749,7 +749,7 @@ public class DoubleAMG implements DoublePreconditioner {
                         if (pt[colind[j]] != -1)
                             Ac.setQuick(pt[i], pt[colind[j]], data[j]);
 
-            return (SparseRCDoubleMatrix2D) (new SparseRCDoubleMatrix2D(Ac.rows(), Ac.columns()).assign(Ac));
+            return Ac.getRowCompressed();
         }
 
         /**
@@ -790,13 +790,13 @@ public class DoubleAMG implements DoublePreconditioner {
          * non-smoothed aggregates
          */
         private SparseCCDoubleMatrix2D createInterpolationMatrix(int[] pt, int c) {
-            SparseCCMDoubleMatrix2D If = new SparseCCMDoubleMatrix2D(pt.length, c);
+            SparseColumnListDoubleMatrix2D If = new SparseColumnListDoubleMatrix2D(pt.length, c);
 
             for (int i = 0; i < pt.length; ++i)
                 if (pt[i] != -1)
                     If.setQuick(i, pt[i], 1);
 
-            return (SparseCCDoubleMatrix2D) (new SparseCCDoubleMatrix2D(If.rows(), If.columns()).assign(If));
+            return If.getColumnCompressed();
         }
 
         /**
@@ -883,7 +883,7 @@ public class DoubleAMG implements DoublePreconditioner {
          */
         private SparseRCDoubleMatrix2D createGalerkinSlow(SparseCCDoubleMatrix2D I, SparseRCDoubleMatrix2D A) {
             int n = I.rows(), c = I.columns();
-            SparseRCMDoubleMatrix2D Ac = new SparseRCMDoubleMatrix2D(c, c);
+            SparseRowListDoubleMatrix2D Ac = new SparseRowListDoubleMatrix2D(c, c);
 
             double[] aiCol = new double[n];
             double[] iCol = new double[n];
@@ -915,7 +915,7 @@ public class DoubleAMG implements DoublePreconditioner {
                         Ac.setQuick(i, k, itaiCol[i]);
             }
 
-            return (SparseRCDoubleMatrix2D) (new SparseRCDoubleMatrix2D(Ac.rows(), Ac.columns()).assign(Ac));
+            return Ac.getRowCompressed();
         }
 
         /**
@@ -25,12 +25,14 @@ import java.util.Arrays;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.algo.DoubleProperty;
+import cern.colt.matrix.tdouble.algo.SparseDoubleTriangularSolver;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
 
 /**
  * Incomplete Cholesky preconditioner without fill-in using a compressed row
- * matrix as internal storage
+ * matrix as internal storage. The triangular solves are level-scheduled, see
+ * {@link SparseDoubleTriangularSolver}.
  */
 public class DoubleICC implements DoublePreconditioner {
 
@@ -46,6 +48,11 @@ public class DoubleICC implements DoublePreconditioner {
 
     private int[] diagind;
 
+    /**
+     * Triangular solvers for R' and R
+     */
+    private SparseDoubleTriangularSolver lower, upper;
+
     private final int n;
 
     /**
@@ -64,11 +71,16 @@ public class DoubleICC implements DoublePreconditioner {
             x = b.like();
         }
 
+        double[] bd = ((DenseDoubleMatrix1D) b).elements();
+        double[] xd = ((DenseDoubleMatrix1D) x).elements();
+        double[] yd = ((DenseDoubleMatrix1D) y).elements();
+
         // R'y = b, y = R'\b
-        upperTransSolve(b, y);
+        lower.solve(bd, yd);
 
         // Rx = R'\b = y
-        return upperSolve(y, x);
+        upper.solve(yd, xd);
+        return x;
     }
 
     public DoubleMatrix1D transApply(DoubleMatrix1D b, DoubleMatrix1D x) {
@@ -90,6 +102,14 @@ public class DoubleICC implements DoublePreconditioner {
             R.sortColumnIndexes();
         }
         factor();
+
+        int[] colind = R.getColumnIndexes();
+        int[] rowptr = R.getRowPointers();
+        double[] data = R.getValues();
+
+        // The rows of R are the columns of R'
+        lower = new SparseDoubleTriangularSolver(n, rowptr, colind, data, false, true, false);
+        upper = new SparseDoubleTriangularSolver(n, rowptr, colind, data, true, false, false);
     }
 
     private void factor() {
@@ -155,48 +175,4 @@ public class DoubleICC implements DoublePreconditioner {
 
         return diagind;
     }
-
-    private DoubleMatrix1D upperSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
-        double[] bd = ((DenseDoubleMatrix1D) b).elements();
-        double[] xd = ((DenseDoubleMatrix1D) x).elements();
-        int[] colind = R.getColumnIndexes();
-        int[] rowptr = R.getRowPointers();
-        double[] data = R.getValues();
-        int rows = R.rows();
-
-        for (int i = rows - 1; i >= 0; --i) {
-
-            // xi = (bi - sum[j>i] Uij * xj) / Uii
-            double sum = 0;
-            for (int j = diagind[i] + 1; j < rowptr[i + 1]; ++j)
-                sum += data[j] * xd[colind[j]];
-
-            xd[i] = (bd[i] - sum) / data[diagind[i]];
-        }
-
-        return x;
-    }
-
-    private DoubleMatrix1D upperTransSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
-        x.assign(b);
-
-        double[] xd = ((DenseDoubleMatrix1D) x).elements();
-        int[] colind = R.getColumnIndexes();
-        int[] rowptr = R.getRowPointers();
-        double[] data = R.getValues();
-        int rows = R.rows();
-
-        for (int i = 0; i < rows; ++i) {
-
-            // Solve for the current entry
-            xd[i] /= data[diagind[i]];
-
-            // Move this known solution over to the right hand side for the
-            // remaining equations
-            for (int j = diagind[i] + 1; j < rowptr[i + 1]; ++j)
-                xd[colind[j]] -= data[j] * xd[i];
-        }
-
-        return x;
-    }
 }
@@ -22,11 +22,14 @@ package cern.colt.matrix.tdouble.algo.solver.preconditioner;
 
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.algo.SparseDoubleTriangularSolver;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
 
 /**
- * ILU(0) preconditioner using a compressed row matrix as internal storage
+ * ILU(0) preconditioner using a compressed row matrix as internal storage. The
+ * triangular solves are level-scheduled, see
+ * {@link SparseDoubleTriangularSolver}.
  */
 public class DoubleILU implements DoublePreconditioner {
 
@@ -42,6 +45,12 @@ public class DoubleILU implements DoublePreconditioner {
 
     private int[] diagind;
 
+    /**
+     * Triangular solvers for L, U and their transposes. The transposed ones
+     * are set up by the first call to transApply
+     */
+    private SparseDoubleTriangularSolver lower, upper, lowerTrans, upperTrans;
+
     private final int n;
 
     /**
@@ -60,11 +69,16 @@ public class DoubleILU implements DoublePreconditioner {
             x = b.like();
         }
 
+        double[] bd = ((DenseDoubleMatrix1D) b).elements();
+        double[] xd = ((DenseDoubleMatrix1D) x).elements();
+        double[] yd = ((DenseDoubleMatrix1D) y).elements();
+
         // Ly = b, y = L\b
-        lowerUnitSolve(b, y);
+        lower.solve(bd, yd);
 
         // Ux = L\b = y
-        return upperSolve(y, x);
+        upper.solve(yd, xd);
+        return x;
     }
 
     public DoubleMatrix1D transApply(DoubleMatrix1D b, DoubleMatrix1D x) {
@@ -72,11 +86,26 @@ public class DoubleILU implements DoublePreconditioner {
             x = b.like();
         }
 
+        if (upperTrans == null) {
+            int[] colind = LU.getColumnIndexes();
+            int[] rowptr = LU.getRowPointers();
+            double[] data = LU.getValues();
+
+            // The rows of LU are the columns of its transpose
+            upperTrans = new SparseDoubleTriangularSolver(n, rowptr, colind, data, false, true, false);
+            lowerTrans = new SparseDoubleTriangularSolver(n, rowptr, colind, data, false, false, true);
+        }
+
+        double[] bd = ((DenseDoubleMatrix1D) b).elements();
+        double[] xd = ((DenseDoubleMatrix1D) x).elements();
+        double[] yd = ((DenseDoubleMatrix1D) y).elements();
+
         // U'y = b, y = U'\b
-        upperTransSolve(b, y);
+        upperTrans.solve(bd, yd);
 
         // L'x = U'\b = y
-        return loverUnitTransSolve(y, x);
+        lowerTrans.solve(yd, xd);
+        return x;
     }
 
     public void setMatrix(DoubleMatrix2D A) {
@@ -89,6 +118,13 @@ public class DoubleILU implements DoublePreconditioner {
             LU.sortColumnIndexes();
         }
         factor();
+
+        int[] colind = LU.getColumnIndexes();
+        int[] rowptr = LU.getRowPointers();
+        double[] data = LU.getValues();
+        lower = new SparseDoubleTriangularSolver(n, rowptr, colind, data, true, true, true);
+        upper = new SparseDoubleTriangularSolver(n, rowptr, colind, data, true, false, false);
+        lowerTrans = upperTrans = null;
     }
 
     private void factor() {
@@ -141,84 +177,4 @@ public class DoubleILU implements DoublePreconditioner {
         return diagind;
     }
 
-    private DoubleMatrix1D lowerUnitSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
-        double[] bd = ((DenseDoubleMatrix1D) b).elements();
-        double[] xd = ((DenseDoubleMatrix1D) x).elements();
-        int[] colind = LU.getColumnIndexes();
-        int[] rowptr = LU.getRowPointers();
-        double[] data = LU.getValues();
-        int rows = LU.rows();
-        for (int i = 0; i < rows; ++i) {
-
-            // xi = bi - sum[j<i] Lij * xj
-            double sum = 0;
-            for (int j = rowptr[i]; j < diagind[i]; ++j)
-                sum += data[j] * xd[colind[j]];
-
-            xd[i] = bd[i] - sum;
-        }
-
-        return x;
-    }
-
-    private DoubleMatrix1D loverUnitTransSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
-        x.assign(b);
-        double[] xd = ((DenseDoubleMatrix1D) x).elements();
-        int[] colind = LU.getColumnIndexes();
-        int[] rowptr = LU.getRowPointers();
-        double[] data = LU.getValues();
-        int rows = LU.rows();
-
-        for (int i = rows - 1; i >= 0; --i)
-
-            // At this stage, x[i] is known, so move it over to the right hand
-            // side for the remaining equations
-            for (int j = rowptr[i]; j < diagind[i]; ++j)
-                xd[colind[j]] -= data[j] * xd[i];
-
-        return x;
-    }
-
-    private DoubleMatrix1D upperSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
-        double[] bd = ((DenseDoubleMatrix1D) b).elements();
-        double[] xd = ((DenseDoubleMatrix1D) x).elements();
-        int[] colind = LU.getColumnIndexes();
-        int[] rowptr = LU.getRowPointers();
-        double[] data = LU.getValues();
-        int rows = LU.rows();
-        for (int i = rows - 1; i >= 0; --i) {
-
-            // xi = (bi - sum[j>i] Uij * xj) / Uii
-            double sum = 0;
-            for (int j = diagind[i] + 1; j < rowptr[i + 1]; ++j)
-                sum += data[j] * xd[colind[j]];
-
-            xd[i] = (bd[i] - sum) / data[diagind[i]];
-        }
-
-        return x;
-    }
-
-    private DoubleMatrix1D upperTransSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
-        x.assign(b);
-        double[] xd = ((DenseDoubleMatrix1D) x).elements();
-        int[] colind = LU.getColumnIndexes();
-        int[] rowptr = LU.getRowPointers();
-        double[] data = LU.getValues();
-        int rows = LU.rows();
-
-        for (int i = 0; i < rows; ++i) {
-
-            // Solve for the current entry
-            xd[i] /= data[diagind[i]];
-
-            // Move this known solution over to the right hand side for the
-            // remaining equations
-            for (int j = diagind[i] + 1; j < rowptr[i + 1]; ++j)
-                xd[colind[j]] -= data[j] * xd[i];
-        }
-
-        return x;
-    }
-
 }
@@ -21,27 +21,41 @@
 package cern.colt.matrix.tdouble.algo.solver.preconditioner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
-import cern.colt.matrix.Norm;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
-import cern.colt.matrix.tdouble.algo.DenseDoubleAlgebra;
 import cern.colt.matrix.tdouble.algo.DoubleProperty;
+import cern.colt.matrix.tdouble.algo.SparseDoubleTriangularSolver;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
-import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix1D;
-import cern.colt.matrix.tdouble.impl.SparseRCMDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseRowListDoubleMatrix2D;
 
 /**
  * ILU preconditioner with fill-in. Uses the dual threshold approach of Saad.
+ * The triangular solves are level-scheduled on a compressed row copy of the
+ * factors, see {@link SparseDoubleTriangularSolver}.
  */
 public class DoubleILUT implements DoublePreconditioner {
 
     /**
      * Factorisation matrix
      */
-    private SparseRCMDoubleMatrix2D LU;
+    private SparseRowListDoubleMatrix2D LU;
+
+    /**
+     * Compressed row copy of the factorisation matrix, used by the solvers
+     */
+    private SparseRCDoubleMatrix2D F;
+
+    /**
+     * Triangular solvers for L, U and their transposes. The transposed ones
+     * are set up by the first call to transApply
+     */
+    private SparseDoubleTriangularSolver lowerSolver, upperSolver, lowerTransSolver, upperTransSolver;
 
     /**
      * Temporary vector for solving the factorised system
@@ -60,6 +74,11 @@ public class DoubleILUT implements DoublePreconditioner {
      */
     private final List<IntDoubleEntry> lower, upper;
 
+    /**
+     * Entries kept on the current row
+     */
+    private final List<IntDoubleEntry> kept;
+
     /**
      * Number of additional entries to keep in the lower and upper part of the
      * factored matrix. The entries of the original matrix are always kept,
@@ -88,6 +107,7 @@ public class DoubleILUT implements DoublePreconditioner {
 
         lower = new ArrayList<IntDoubleEntry>(n);
         upper = new ArrayList<IntDoubleEntry>(n);
+        kept = new ArrayList<IntDoubleEntry>(n);
         y = new DenseDoubleMatrix1D(n);
     }
 
@@ -109,11 +129,16 @@ public class DoubleILUT implements DoublePreconditioner {
             x = b.like();
         }
 
+        double[] bd = ((DenseDoubleMatrix1D) b).elements();
+        double[] xd = ((DenseDoubleMatrix1D) x).elements();
+        double[] yd = ((DenseDoubleMatrix1D) y).elements();
+
         // Ly = b, y = L\b
-        unitLowerSolve(b, y);
+        lowerSolver.solve(bd, yd);
 
         // Ux = L\b = y
-        return upperSolve(y, x);
+        upperSolver.solve(yd, xd);
+        return x;
     }
 
     public DoubleMatrix1D transApply(DoubleMatrix1D b, DoubleMatrix1D x) {
@@ -121,10 +146,25 @@ public class DoubleILUT implements DoublePreconditioner {
             x = b.like();
         }
 
+        if (upperTransSolver == null) {
+            int[] colind = F.getColumnIndexes();
+            int[] rowptr = F.getRowPointers();
+            double[] data = F.getValues();
+
+            // The rows of LU are the columns of its transpose
+            upperTransSolver = new SparseDoubleTriangularSolver(n, rowptr, colind, data, false, true, false);
+            lowerTransSolver = new SparseDoubleTriangularSolver(n, rowptr, colind, data, false, false, true);
+        }
+
+        double[] bd = ((DenseDoubleMatrix1D) b).elements();
+        double[] xd = ((DenseDoubleMatrix1D) x).elements();
+        double[] yd = ((DenseDoubleMatrix1D) y).elements();
+
         // U'y = b, y = U'\b
-        upperTransSolve(b, y);
+        upperTransSolver.solve(bd, yd);
         // L'x = U'\b = y
-        return unitLowerTransSolve(y, x);
+        lowerTransSolver.solve(yd, xd);
+        return x;
     }
 
     public void setMatrix(DoubleMatrix2D A) {
@@ -132,102 +172,200 @@ public class DoubleILUT implements DoublePreconditioner {
         if (A.rows() != n) {
             throw new IllegalArgumentException("A.rows() != n");
         }
-        LU = new SparseRCMDoubleMatrix2D(n, n);
+        LU = new SparseRowListDoubleMatrix2D(n, n);
         LU.assign(A);
         LU.trimToSize();
 
         factor();
+
+        F = LU.getRowCompressed();
+        int[] colind = F.getColumnIndexes();
+        int[] rowptr = F.getRowPointers();
+        double[] data = F.getValues();
+        lowerSolver = new SparseDoubleTriangularSolver(n, rowptr, colind, data, true, true, true);
+        upperSolver = new SparseDoubleTriangularSolver(n, rowptr, colind, data, true, false, false);
+        lowerTransSolver = upperTransSolver = null;
     }
 
     private void factor() {
         int n = LU.rows();
 
+        // Row i is expanded into w; the columns set in w are listed in nz,
+        // and the columns left of the diagonal are kept in a heap, so that
+        // they are eliminated in ascending order
+        double[] w = new double[n];
+        int[] marker = new int[n];
+        Arrays.fill(marker, -1);
+        int[] nz = new int[n];
+        int[] heap = new int[n];
+
         for (int i = 1; i < n; ++i) {
 
+            if (LU.getQuick(i - 1, i - 1) == 0)
+                throw new RuntimeException("Zero diagonal entry on row " + i + " during ILU process");
+
             // Get row i
-            SparseDoubleMatrix1D rowi = LU.viewRow(i);
+            int[] indexes = LU.getColumnIndexes(i);
+            double[] values = LU.getValues(i);
+            int size = LU.getRowSize(i);
+            int nnz = 0, heapSize = 0;
+            double norm = 0;
+            for (int q = 0; q < size; ++q) {
+                int j = indexes[q];
+                w[j] = values[q];
+                marker[j] = i;
+                nz[nnz++] = j;
+                if (j < i)
+                    heapSize = push(heap, heapSize, j);
+                norm += values[q] * values[q];
+            }
 
             // Drop tolerance on current row
-            double taui = DenseDoubleAlgebra.DEFAULT.norm(rowi, Norm.Two) * tau;
+            double taui = Math.sqrt(norm) * tau;
 
-            for (int k = 0; k < i; ++k) {
+            while (heapSize > 0) {
+                int k = heap[0];
+                heapSize = pop(heap, heapSize);
 
                 // Get row k
-                SparseDoubleMatrix1D rowk = LU.viewRow(k);
-
-                if (rowk.getQuick(k) == 0)
-                    throw new RuntimeException("Zero diagonal entry on row " + (k + 1) + " during ILU process");
+                int[] indexesk = LU.getColumnIndexes(k);
+                double[] valuesk = LU.getValues(k);
+                int sizek = LU.getRowSize(k);
+                int d = cern.colt.Sorting.binarySearchFromTo(indexesk, k, 0, sizek - 1);
 
-                double LUik = rowi.getQuick(k) / rowk.getQuick(k);
+                double LUik = w[k] / valuesk[d];
 
                 // Check for small elimination entry
                 if (Math.abs(LUik) <= taui)
                     continue;
 
                 // Traverse the sparse row k, reducing row i
-                int rowUsed = (int) rowk.size();
-                for (int j = k + 1; j < rowUsed; ++j)
-                    rowi.setQuick(j, rowi.getQuick(j) - LUik * rowk.getQuick(j));
+                for (int q = d + 1; q < sizek; ++q) {
+                    int j = indexesk[q];
+                    if (marker[j] != i) {
+                        marker[j] = i;
+                        w[j] = 0;
+                        nz[nnz++] = j;
+                        if (j < i)
+                            heapSize = push(heap, heapSize, j);
+                    }
+                    w[j] -= LUik * valuesk[q];
+                }
 
                 // The above has overwritten LUik, so remedy that
-                rowi.setQuick(k, LUik);
+                w[k] = LUik;
             }
 
             // Store back into the LU matrix, dropping as needed
-            gather(rowi, taui, i);
+            Arrays.sort(nz, 0, nnz);
+            gather(w, nz, nnz, taui, i);
         }
-        //        System.out.println(LU.toString());
     }
 
     /**
-     * Copies the dense array back into the sparse vector, applying a numerical
+     * Copies the dense array back into the sparse row, applying a numerical
      * dropping rule and keeping only a given number of entries
      */
-    private void gather(SparseDoubleMatrix1D v, double taui, int d) {
+    private void gather(double[] w, int[] nz, int nnz, double taui, int d) {
         // Number of entries in the lower and upper part of the original matrix
         int nl = 0, nu = 0;
-        long[] indexes = v.elements().keys().elements();
-        for (int i = 0; i < indexes.length; i++) {
-            if (indexes[i] < d)
-                nl++;
-            else if (indexes[i] > d)
-                nu++;
+        for (int q = 0; q < nnz; q++) {
+            if (w[nz[q]] != 0) {
+                if (nz[q] < d)
+                    nl++;
+                else if (nz[q] > d)
+                    nu++;
+            }
         }
-        double[] z = v.toArray();
-        v.assign(0);
 
-        // Entries in the L part of the vector
+        // Entries in the L and U parts of the vector
         lower.clear();
-        for (int i = 0; i < d; ++i)
-            if (Math.abs(z[i]) > taui)
-                lower.add(new IntDoubleEntry(i, z[i]));
-
-        // Entries in the U part of the vector
         upper.clear();
-        for (int i = d + 1; i < z.length; ++i)
-            if (Math.abs(z[i]) > taui)
-                upper.add(new IntDoubleEntry(i, z[i]));
+        double diagonal = 0;
+        for (int q = 0; q < nnz; q++) {
+            int i = nz[q];
+            if (i == d)
+                diagonal = w[i];
+            else if (Math.abs(w[i]) > taui)
+                (i < d ? lower : upper).add(new IntDoubleEntry(i, w[i]));
+        }
 
         // Sort in descending order
         Collections.sort(lower);
         Collections.sort(upper);
 
+        // Keep at most nl+p lower entries and nu+p upper entries
+        int nlower = Math.min(nl + p, lower.size());
+        int nupper = Math.min(nu + p, upper.size());
+        kept.clear();
+        for (int i = 0; i < nlower; ++i)
+            kept.add(lower.get(i));
+        for (int i = 0; i < nupper; ++i)
+            kept.add(upper.get(i));
+
         // Always keep the diagonal
-        v.setQuick(d, z[d]);
+        if (diagonal != 0)
+            kept.add(new IntDoubleEntry(d, diagonal));
+
+        Collections.sort(kept, BY_INDEX);
+        int size = kept.size();
+        int[] indexes = new int[size];
+        double[] values = new double[size];
+        for (int i = 0; i < size; ++i) {
+            IntDoubleEntry e = kept.get(i);
+            indexes[i] = e.index;
+            values[i] = e.value;
+        }
+        LU.setRow(d, indexes, values, size);
+    }
 
-        // Keep at most nl+p lower entries
-        for (int i = 0; i < Math.min(nl + p, lower.size()); ++i) {
-            IntDoubleEntry e = lower.get(i);
-            v.setQuick(e.index, e.value);
+    /**
+     * Adds an index to a binary min-heap, and returns the new heap size
+     */
+    private static int push(int[] heap, int size, int index) {
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent] <= index)
+                break;
+            heap[i] = heap[parent];
+            i = parent;
         }
+        heap[i] = index;
+        return size + 1;
+    }
 
-        // Keep at most nu+p upper entries
-        for (int i = 0; i < Math.min(nu + p, upper.size()); ++i) {
-            IntDoubleEntry e = upper.get(i);
-            v.setQuick(e.index, e.value);
+    /**
+     * Removes the smallest index from a binary min-heap, and returns the new
+     * heap size
+     */
+    private static int pop(int[] heap, int size) {
+        int last = heap[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && heap[child + 1] < heap[child])
+                child++;
+            if (last <= heap[child])
+                break;
+            heap[i] = heap[child];
+            i = child;
         }
+        heap[i] = last;
+        return size;
     }
 
+    /**
+     * Orders entries by ascending index
+     */
+    private static final Comparator<IntDoubleEntry> BY_INDEX = new Comparator<IntDoubleEntry>() {
+        public int compare(IntDoubleEntry a, IntDoubleEntry b) {
+            return (a.index < b.index) ? -1 : ((a.index == b.index) ? 0 : 1);
+        }
+    };
+
     /**
      * Stores an integer/value pair, sorted by descending order according to the
      * value
@@ -258,90 +396,4 @@ public class DoubleILUT implements DoublePreconditioner {
         }
     }
 
-    private DoubleMatrix1D unitLowerSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
-        double[] bd = ((DenseDoubleMatrix1D) b).elements();
-        double[] xd = ((DenseDoubleMatrix1D) x).elements();
-        int rows = LU.rows();
-        for (int i = 0; i < rows; ++i) {
-
-            // Get row i
-            SparseDoubleMatrix1D row = LU.viewRow(i);
-
-            // xi = bi - sum[j<i] Lij * xj
-            double sum = 0;
-            for (int j = 0; j < i; ++j)
-                sum += row.getQuick(j) * xd[j];
-
-            xd[i] = bd[i] - sum;
-        }
-
-        return x;
-    }
-
-    private DoubleMatrix1D unitLowerTransSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
-
-        x.assign(b);
-
-        double[] xd = ((DenseDoubleMatrix1D) x).elements();
-        int rows = LU.rows();
-
-        for (int i = rows - 1; i >= 0; --i) {
-
-            // Get row i
-            SparseDoubleMatrix1D row = LU.viewRow(i);
-
-            // At this stage, x[i] is known, so move it over to the right
-            // hand side for the remaining equations
-            for (int j = 0; j < i; ++j)
-                xd[j] -= row.getQuick(j) * xd[i];
-
-        }
-        return x;
-    }
-
-    private DoubleMatrix1D upperSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
-
-        double[] bd = ((DenseDoubleMatrix1D) b).elements();
-        double[] xd = ((DenseDoubleMatrix1D) x).elements();
-        int rows = LU.rows();
-        for (int i = rows - 1; i >= 0; --i) {
-
-            // Get row i
-            SparseDoubleMatrix1D row = LU.viewRow(i);
-            int used = (int) row.size();
-
-            // xi = (bi - sum[j>i] Uij * xj) / Uii
-            double sum = 0;
-            for (int j = i + 1; j < used; ++j)
-                sum += row.getQuick(j) * xd[j];
-
-            xd[i] = (bd[i] - sum) / row.getQuick(i);
-        }
-
-        return x;
-    }
-
-    private DoubleMatrix1D upperTransSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
-        x.assign(b);
-
-        double[] xd = ((DenseDoubleMatrix1D) x).elements();
-        int rows = LU.rows();
-        for (int i = 0; i < rows; ++i) {
-
-            // Get row i
-            SparseDoubleMatrix1D row = LU.viewRow(i);
-            int used = (int) row.size();
-
-            // Solve for the current entry
-            xd[i] /= row.getQuick(i);
-
-            // Move this known solution over to the right hand side for the
-            // remaining equations
-            for (int j = i + 1; j < used; ++j)
-                xd[j] -= row.getQuick(j) * xd[i];
-        }
-
-        return x;
-    }
-
 }
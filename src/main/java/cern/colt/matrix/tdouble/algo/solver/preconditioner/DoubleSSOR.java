@@ -22,13 +22,16 @@ package cern.colt.matrix.tdouble.algo.solver.preconditioner;
 
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.algo.SparseDoubleTriangularSolver;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
 
 /**
  * SSOR preconditioner. Uses symmetrical sucessive overrelaxation as a
  * preconditioner. Meant for symmetrical, positive definite matrices. For best
- * performance, omega must be carefully chosen (between 0 and 2).
+ * performance, omega must be carefully chosen (between 0 and 2). The sweeps
+ * are level-scheduled triangular solves, see
+ * {@link SparseDoubleTriangularSolver}.
  */
 public class DoubleSSOR implements DoublePreconditioner {
 
@@ -52,6 +55,11 @@ public class DoubleSSOR implements DoublePreconditioner {
      */
     private final int[] diagind;
 
+    /**
+     * Triangular solvers for the forward and the backward sweep
+     */
+    private SparseDoubleTriangularSolver lower, upper;
+
     /**
      * Temporary vector for holding the half-step state
      */
@@ -137,6 +145,10 @@ public class DoubleSSOR implements DoublePreconditioner {
             if (diagind[k] < 0)
                 throw new RuntimeException("Missing diagonal on row " + (k + 1));
         }
+
+        double[] data = F.getValues();
+        lower = new SparseDoubleTriangularSolver(n, rowptr, colind, data, true, true, false);
+        upper = new SparseDoubleTriangularSolver(n, rowptr, colind, data, true, false, false);
     }
 
     public DoubleMatrix1D apply(DoubleMatrix1D b, DoubleMatrix1D x) {
@@ -147,53 +159,33 @@ public class DoubleSSOR implements DoublePreconditioner {
         if (!(b instanceof DenseDoubleMatrix1D) || !(x instanceof DenseDoubleMatrix1D))
             throw new IllegalArgumentException("b and x must be a DenseDoubleMatrix1D");
 
-        int[] rowptr = F.getRowPointers();
-        int[] colind = F.getColumnIndexes();
         double[] data = F.getValues();
 
         double[] bd = ((DenseDoubleMatrix1D) b).elements();
-        //        double[] xd = ((DenseDoubleMatrix1D) x).elements();
         double[] xd = new double[(int) x.size()];
 
         int n = F.rows();
-        System.arraycopy(xd, 0, xx, 0, n);
-
-        // Forward sweep (xd oldest, xx halfiterate)
-        for (int i = 0; i < n; ++i) {
 
-            double sigma = 0;
-            for (int j = rowptr[i]; j < diagind[i]; ++j)
-                sigma += data[j] * xx[colind[j]];
-
-            for (int j = diagind[i] + 1; j < rowptr[i + 1]; ++j)
-                sigma += data[j] * xd[colind[j]];
-
-            sigma = (bd[i] - sigma) / data[diagind[i]];
-
-            xx[i] = xd[i] + omegaF * (sigma - xd[i]);
-        }
+        // Forward sweep from a zero initial guess: (D/omegaF + L)xx = b
+        lower.solve(bd, xx, omegaF);
 
         // Stop here if the reverse sweep was not requested
-        if (!reverse) {
+        if (!reverse || omegaR == 0) {
             System.arraycopy(xx, 0, xd, 0, n);
             x.assign(xd);
             return x;
         }
 
-        // Backward sweep (xx oldest, xd halfiterate)
-        for (int i = n - 1; i >= 0; --i) {
-
-            double sigma = 0;
-            for (int j = rowptr[i]; j < diagind[i]; ++j)
-                sigma += data[j] * xx[colind[j]];
-
-            for (int j = diagind[i] + 1; j < rowptr[i + 1]; ++j)
-                sigma += data[j] * xd[colind[j]];
-
-            sigma = (bd[i] - sigma) / data[diagind[i]];
-
-            xd[i] = xx[i] + omegaR * (sigma - xx[i]);
+        // Backward sweep: (D/omegaR + U)xd = (1/omegaF + 1/omegaR - 1)D*xx,
+        // which is b - L*xx + (1/omegaR - 1)D*xx
+        if (omegaF == 0) {
+            System.arraycopy(bd, 0, xd, 0, n);
+        } else {
+            double scale = 1 / omegaF + 1 / omegaR - 1;
+            for (int i = 0; i < n; ++i)
+                xd[i] = scale * data[diagind[i]] * xx[i];
         }
+        upper.solve(xd, xd, omegaR);
         x.assign(xd);
         return x;
     }
@@ -0,0 +1,429 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Band 2-d matrix holding <tt>double</tt> elements. First see the <a
+ * href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * Only the cells with <tt>-kl &lt;= column - row &lt;= ku</tt> are stored,
+ * where <tt>kl</tt> is the lower and <tt>ku</tt> the upper bandwidth; all
+ * other cells are zero. Setting a cell outside the band has no effect. The
+ * storage is the one of the LAPACK band routines: the band is kept column by
+ * column in an array of <tt>(kl+ku+1)*columns</tt> elements, and cell
+ * <tt>[row,column]</tt> is at <tt>(ku+row-column) + column*(kl+ku+1)</tt>.
+ * The positions of a column that fall outside the matrix are not used.
+ * <p>
+ * Band matrices are decomposed by the classes <tt>BandDoubleLUDecomposition</tt>,
+ * <tt>BandDoubleCholeskyDecomposition</tt> and
+ * <tt>BandDoubleSpikeDecomposition</tt> of
+ * <tt>cern.colt.matrix.tdouble.algo.decomposition</tt>.
+ */
+public class BandDoubleMatrix2D extends WrapperDoubleMatrix2D {
+    private static final long serialVersionUID = 1L;
+
+    /*
+     * The band, column by column.
+     */
+    protected double[] elements;
+
+    /*
+     * Number of diagonals below and above the main diagonal.
+     */
+    protected int lowerBandwidth, upperBandwidth;
+
+    /*
+     * Length of a stored column, lowerBandwidth + upperBandwidth + 1.
+     */
+    protected int ldab;
+
+    /**
+     * Constructs a matrix with a copy of the given values. <tt>values</tt> is
+     * required to have the form <tt>values[row][column]</tt> and have exactly
+     * the same number of columns in every row. Only the values in the band are
+     * used.
+     * <p>
+     * The values are copied. So subsequent changes in <tt>values</tt> are not
+     * reflected in the matrix, and vice-versa.
+     * 
+     * @param values
+     *            The values to be filled into the new matrix.
+     * @param lowerBandwidth
+     *            the number of diagonals below the main diagonal.
+     * @param upperBandwidth
+     *            the number of diagonals above the main diagonal.
+     * @throws IllegalArgumentException
+     *             if
+     *             <tt>for any 1 &lt;= row &lt; values.length: values[row].length != values[row-1].length</tt>
+     *             or if a bandwidth is negative.
+     */
+    public BandDoubleMatrix2D(double[][] values, int lowerBandwidth, int upperBandwidth) {
+        this(values.length, values.length == 0 ? 0 : values[0].length, lowerBandwidth, upperBandwidth);
+        assign(values);
+    }
+
+    /**
+     * Constructs a matrix with a given number of rows and columns and given
+     * bandwidths. All entries are initially <tt>0</tt>.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param lowerBandwidth
+     *            the number of diagonals below the main diagonal.
+     * @param upperBandwidth
+     *            the number of diagonals above the main diagonal.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0</tt>, if a bandwidth is negative
+     *             or if the band has more than <tt>Integer.MAX_VALUE</tt>
+     *             cells.
+     */
+    public BandDoubleMatrix2D(int rows, int columns, int lowerBandwidth, int upperBandwidth) {
+        super(null);
+        try {
+            setUp(rows, columns);
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        if (lowerBandwidth < 0 || upperBandwidth < 0) {
+            throw new IllegalArgumentException("bandwidth is negative");
+        }
+        this.lowerBandwidth = lowerBandwidth;
+        this.upperBandwidth = upperBandwidth;
+        this.ldab = lowerBandwidth + upperBandwidth + 1;
+        if ((long) ldab * columns > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("matrix too large");
+        }
+        elements = new double[ldab * columns];
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (alpha == 1)
+                return this;
+            if (alpha == 0)
+                return assign(0);
+            if (alpha != alpha)
+                return assign(alpha); // the funny definition of isNaN(). This should better not happen.
+            for (int j = elements.length; --j >= 0;) {
+                elements[j] *= alpha;
+            }
+        } else {
+            for (int c = 0; c < columns; c++) {
+                int last = lastRow(c);
+                for (int r = firstRow(c); r <= last; r++) {
+                    int idx = upperBandwidth + r - c + c * ldab;
+                    elements[idx] = function.apply(elements[idx]);
+                }
+            }
+        }
+        return this;
+    }
+
+    public DoubleMatrix2D assign(double value) {
+        for (int c = 0; c < columns; c++) {
+            int last = lastRow(c);
+            for (int r = firstRow(c); r <= last; r++) {
+                elements[upperBandwidth + r - c + c * ldab] = value;
+            }
+        }
+        return this;
+    }
+
+    public DoubleMatrix2D assign(final double[][] values) {
+        if (values.length != rows)
+            throw new IllegalArgumentException("Must have same number of rows: rows=" + values.length + "rows()="
+                    + rows());
+        for (int r = 0; r < rows; r++) {
+            double[] currentRow = values[r];
+            if (currentRow.length != columns)
+                throw new IllegalArgumentException("Must have same number of columns in every row: columns="
+                        + currentRow.length + "columns()=" + columns());
+        }
+        for (int c = 0; c < columns; c++) {
+            int last = lastRow(c);
+            for (int r = firstRow(c); r <= last; r++) {
+                elements[upperBandwidth + r - c + c * ldab] = values[r][c];
+            }
+        }
+        return this;
+    }
+
+    public DoubleMatrix2D copy() {
+        BandDoubleMatrix2D copy = new BandDoubleMatrix2D(rows, columns, lowerBandwidth, upperBandwidth);
+        System.arraycopy(elements, 0, copy.elements, 0, elements.length);
+        return copy;
+    }
+
+    public double[] elements() {
+        return elements;
+    }
+
+    /**
+     * Returns the number of diagonals below the main diagonal.
+     * 
+     * @return the lower bandwidth
+     */
+    public int getLowerBandwidth() {
+        return lowerBandwidth;
+    }
+
+    /**
+     * Returns the number of diagonals above the main diagonal.
+     * 
+     * @return the upper bandwidth
+     */
+    public int getUpperBandwidth() {
+        return upperBandwidth;
+    }
+
+    public double getQuick(int row, int column) {
+        int d = column - row;
+        if (d > upperBandwidth || -d > lowerBandwidth) {
+            return 0;
+        }
+        return elements[upperBandwidth - d + column * ldab];
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        return new SparseDoubleMatrix2D(rows, columns);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new SparseDoubleMatrix1D(size);
+    }
+
+    public void setQuick(int row, int column, double value) {
+        int d = column - row;
+        if (d > upperBandwidth || -d > lowerBandwidth) {
+            // do nothing
+        } else {
+            elements[upperBandwidth - d + column * ldab] = value;
+        }
+    }
+
+    public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, final double alpha, final double beta,
+            final boolean transposeA) {
+        final int rowsA = transposeA ? columns : rows;
+        final int columnsA = transposeA ? rows : columns;
+
+        final boolean ignore = (z == null);
+        if (z == null)
+            z = new DenseDoubleMatrix1D(rowsA);
+
+        if (!(y instanceof DenseDoubleMatrix1D && z instanceof DenseDoubleMatrix1D)) {
+            return super.zMult(y, z, alpha, beta, transposeA);
+        }
+
+        if (columnsA != y.size() || rowsA > z.size())
+            throw new IllegalArgumentException("Incompatible args: "
+                    + ((transposeA ? viewDice() : this).toStringShort()) + ", " + y.toStringShort() + ", "
+                    + z.toStringShort());
+
+        DenseDoubleMatrix1D zz = (DenseDoubleMatrix1D) z;
+        final double[] elementsZ = zz.elements;
+        final int strideZ = zz.stride();
+        final int zeroZ = (int) z.index(0);
+
+        DenseDoubleMatrix1D yy = (DenseDoubleMatrix1D) y;
+        final double[] elementsY = yy.elements;
+        final int strideY = yy.stride();
+        final int zeroY = (int) y.index(0);
+
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && ((long) rowsA * ldab >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, rowsA);
+            Future<?>[] futures = new Future[nthreads];
+            int k = rowsA / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nthreads - 1) ? rowsA : firstRow + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        multiply(firstRow, lastRow, alpha, beta, ignore, transposeA, elementsY, zeroY, strideY,
+                                elementsZ, zeroZ, strideZ);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            multiply(0, rowsA, alpha, beta, ignore, transposeA, elementsY, zeroY, strideY, elementsZ, zeroZ, strideZ);
+        }
+        return z;
+    }
+
+    public DoubleMatrix2D zMult(DoubleMatrix2D B, DoubleMatrix2D C, final double alpha, final double beta,
+            final boolean transposeA, boolean transposeB) {
+        if (transposeB)
+            B = B.viewDice();
+        final int rowsA = transposeA ? columns : rows;
+        final int columnsA = transposeA ? rows : columns;
+        final int p = B.columns();
+
+        final boolean ignore = (C == null);
+        if (C == null)
+            C = new DenseDoubleMatrix2D(rowsA, p);
+
+        if (B.rows() != columnsA)
+            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:"
+                    + ((transposeA ? viewDice() : this).toStringShort()) + ", " + B.toStringShort());
+        if (C.rows() != rowsA || C.columns() != p)
+            throw new IllegalArgumentException("Incompatibe result matrix: "
+                    + ((transposeA ? viewDice() : this).toStringShort()) + ", " + B.toStringShort() + ", "
+                    + C.toStringShort());
+        if (this == C || B == C)
+            throw new IllegalArgumentException("Matrices must not be identical");
+
+        if (!(B instanceof DenseDoubleMatrix2D && C instanceof DenseDoubleMatrix2D)) {
+            // sequential, setQuick of the other matrices is not thread safe
+            for (int i = 0; i < rowsA; i++) {
+                int first = transposeA ? Math.max(0, i - upperBandwidth) : Math.max(0, i - lowerBandwidth);
+                int last = transposeA ? Math.min(rows - 1, i + lowerBandwidth) : Math.min(columns - 1, i
+                        + upperBandwidth);
+                for (int c = 0; c < p; c++) {
+                    double sum = 0;
+                    for (int j = first; j <= last; j++) {
+                        sum += (transposeA ? getQuick(j, i) : getQuick(i, j)) * B.getQuick(j, c);
+                    }
+                    C.setQuick(i, c, ignore ? alpha * sum : alpha * sum + beta * C.getQuick(i, c));
+                }
+            }
+            return C;
+        }
+
+        final double[] elementsB = (double[]) B.elements();
+        final int zeroB = (int) B.index(0, 0);
+        final int rowStrideB = B.rowStride();
+        final int columnStrideB = B.columnStride();
+        final double[] elementsC = (double[]) C.elements();
+        final int zeroC = (int) C.index(0, 0);
+        final int rowStrideC = C.rowStride();
+        final int columnStrideC = C.columnStride();
+
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && ((long) rowsA * ldab * p >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, rowsA);
+            Future<?>[] futures = new Future[nthreads];
+            int k = rowsA / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nthreads - 1) ? rowsA : firstRow + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        multiply(firstRow, lastRow, p, alpha, beta, ignore, transposeA, elementsB, zeroB,
+                                rowStrideB, columnStrideB, elementsC, zeroC, rowStrideC, columnStrideC);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            multiply(0, rowsA, p, alpha, beta, ignore, transposeA, elementsB, zeroB, rowStrideB, columnStrideB,
+                    elementsC, zeroC, rowStrideC, columnStrideC);
+        }
+        return C;
+    }
+
+    protected DoubleMatrix2D getContent() {
+        return this;
+    }
+
+    /*
+     * First row of the band in the given column.
+     */
+    private int firstRow(int column) {
+        return Math.max(0, column - upperBandwidth);
+    }
+
+    /*
+     * Last row of the band in the given column.
+     */
+    private int lastRow(int column) {
+        return Math.min(rows - 1, column + lowerBandwidth);
+    }
+
+    /*
+     * z[i] = alpha * op(A)[i,:] * y + beta * z[i] for firstRow <= i < lastRow.
+     */
+    private void multiply(int firstRow, int lastRow, double alpha, double beta, boolean ignore, boolean transposeA,
+            double[] y, int zeroY, int strideY, double[] z, int zeroZ, int strideZ) {
+        for (int i = firstRow; i < lastRow; i++) {
+            double sum = 0;
+            if (transposeA) {
+                // column i of A is contiguous
+                int first = Math.max(0, i - upperBandwidth);
+                int last = Math.min(rows - 1, i + lowerBandwidth);
+                int idx = upperBandwidth + first - i + i * ldab;
+                for (int j = first; j <= last; j++) {
+                    sum += elements[idx++] * y[zeroY + strideY * j];
+                }
+            } else {
+                // consecutive cells of row i are ldab - 1 apart
+                int first = Math.max(0, i - lowerBandwidth);
+                int last = Math.min(columns - 1, i + upperBandwidth);
+                int idx = upperBandwidth + i - first + first * ldab;
+                for (int j = first; j <= last; j++) {
+                    sum += elements[idx] * y[zeroY + strideY * j];
+                    idx += ldab - 1;
+                }
+            }
+            int iz = zeroZ + strideZ * i;
+            z[iz] = ignore ? alpha * sum : alpha * sum + beta * z[iz];
+        }
+    }
+
+    /*
+     * C[i,:] = alpha * op(A)[i,:] * B + beta * C[i,:] for firstRow <= i <
+     * lastRow; each row of B in the band of row i is added to the row of C.
+     */
+    private void multiply(int firstRow, int lastRow, int p, double alpha, double beta, boolean ignore,
+            boolean transposeA, double[] B, int zeroB, int rowStrideB, int columnStrideB, double[] C, int zeroC,
+            int rowStrideC, int columnStrideC) {
+        for (int i = firstRow; i < lastRow; i++) {
+            int rowC = zeroC + i * rowStrideC;
+            if (ignore || beta == 0) {
+                for (int c = 0; c < p; c++) {
+                    C[rowC + c * columnStrideC] = 0;
+                }
+            } else if (beta != 1) {
+                for (int c = 0; c < p; c++) {
+                    C[rowC + c * columnStrideC] *= beta;
+                }
+            }
+            int first, last;
+            if (transposeA) {
+                first = Math.max(0, i - upperBandwidth);
+                last = Math.min(rows - 1, i + lowerBandwidth);
+            } else {
+                first = Math.max(0, i - lowerBandwidth);
+                last = Math.min(columns - 1, i + upperBandwidth);
+            }
+            for (int j = first; j <= last; j++) {
+                double a = alpha
+                        * (transposeA ? elements[upperBandwidth + j - i + i * ldab] : elements[upperBandwidth + i
+                                - j + j * ldab]);
+                if (a != 0) {
+                    int rowB = zeroB + j * rowStrideB;
+                    for (int c = 0; c < p; c++) {
+                        C[rowC + c * columnStrideC] += a * B[rowB + c * columnStrideB];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+/**
+ * A sparse matrix that converts itself to the row- and column-compressed
+ * formats faster than by enumerating its nonzeros one at a time.
+ * {@link SparseRCDoubleMatrix2D#assign(cern.colt.matrix.tdouble.DoubleMatrix2D)}
+ * and
+ * {@link SparseCCDoubleMatrix2D#assign(cern.colt.matrix.tdouble.DoubleMatrix2D)}
+ * take the storage of the returned matrices, so both methods must return new
+ * matrices that do not share arrays with the source.
+ */
+interface CompressedDoubleMatrix2DSource {
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, but is
+     * in a row-compressed form.
+     * 
+     * @return this matrix in a row-compressed form
+     */
+    SparseRCDoubleMatrix2D getRowCompressed();
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, but is
+     * in a column-compressed form.
+     * 
+     * @return this matrix in a column-compressed form
+     */
+    SparseCCDoubleMatrix2D getColumnCompressed();
+}
@@ -0,0 +1,181 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.map.tdouble.ConcurrentLongDoubleHashMap;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+/**
+ * Thread-safe sparse hashed 1-d matrix (aka <i>vector</i>) holding
+ * <tt>double</tt> elements. First see the <a
+ * href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * Uses a {@link cern.colt.map.tdouble.ConcurrentLongDoubleHashMap}, so that
+ * <tt>getQuick</tt> does not lock and any number of threads may call
+ * <tt>setQuick</tt> and <tt>addQuick</tt> on the vector and its views
+ * concurrently. <tt>addQuick</tt> adds to a cell atomically. Cells whose
+ * accumulated value cancels out to zero remain stored until
+ * {@link #trimToSize()} is called.
+ * 
+ * @see SparseDoubleMatrix1D
+ */
+public class ConcurrentSparseDoubleMatrix1D extends SparseDoubleMatrix1D {
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a matrix with a copy of the given values.
+     * 
+     * @param values
+     *            The values to be filled into the new matrix.
+     */
+    public ConcurrentSparseDoubleMatrix1D(double[] values) {
+        this(values.length);
+        assign(values);
+    }
+
+    /**
+     * Constructs a matrix with a given number of cells. All entries are
+     * initially <tt>0</tt>.
+     * 
+     * @param size
+     *            the number of cells the matrix shall have.
+     * @throws IllegalArgumentException
+     *             if <tt>size<0</tt>.
+     */
+    public ConcurrentSparseDoubleMatrix1D(int size) {
+        this(size, size / 1000, 0.2, 0.5);
+    }
+
+    /**
+     * Constructs a matrix with a given number of parameters. All entries are
+     * initially <tt>0</tt>. For details related to memory usage see
+     * {@link cern.colt.map.tdouble.ConcurrentLongDoubleHashMap}.
+     * 
+     * @param size
+     *            the number of cells the matrix shall have.
+     * @param initialCapacity
+     *            the initial capacity of the hash map. If not known, set
+     *            <tt>initialCapacity=0</tt> or small.
+     * @param minLoadFactor
+     *            the minimum load factor of the hash map.
+     * @param maxLoadFactor
+     *            the maximum load factor of the hash map.
+     * @throws IllegalArgumentException
+     *             if
+     * 
+     *             <tt>initialCapacity < 0 || (minLoadFactor < 0.0 || minLoadFactor >= 1.0) || (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) || (minLoadFactor >= maxLoadFactor)</tt>
+     *             .
+     * @throws IllegalArgumentException
+     *             if <tt>size<0</tt>.
+     */
+    public ConcurrentSparseDoubleMatrix1D(int size, int initialCapacity, double minLoadFactor, double maxLoadFactor) {
+        this(size, new ConcurrentLongDoubleHashMap(initialCapacity, minLoadFactor, maxLoadFactor), 0, 1);
+        this.isNoView = true;
+    }
+
+    /**
+     * Constructs a matrix view with a given number of parameters.
+     * 
+     * @param size
+     *            the number of cells the matrix shall have.
+     * @param elements
+     *            the cells.
+     * @param offset
+     *            the index of the first element.
+     * @param stride
+     *            the number of indexes between any two elements, i.e.
+     *            <tt>index(i+1)-index(i)</tt>.
+     * @throws IllegalArgumentException
+     *             if <tt>size<0</tt>.
+     */
+    protected ConcurrentSparseDoubleMatrix1D(int size, ConcurrentLongDoubleHashMap elements, int offset, int stride) {
+        super(size, elements, offset, stride);
+    }
+
+    /**
+     * Atomically adds the given value to the specified cell.
+     * 
+     * @param index
+     *            the index of the cell.
+     * @param value
+     *            the value to be added.
+     * @throws IndexOutOfBoundsException
+     *             if <tt>index&lt;0 || index&gt;=size()</tt>.
+     */
+    public void add(int index, double value) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Attempted to access " + toStringShort() + " at index=" + index);
+        addQuick(index, value);
+    }
+
+    /**
+     * Atomically adds the given value to the specified cell. Provided with
+     * invalid parameters this method may access illegal indexes without
+     * throwing any exception.
+     * 
+     * @param index
+     *            the index of the cell.
+     * @param value
+     *            the value to be added.
+     */
+    public void addQuick(int index, double value) {
+        if (value == 0)
+            return;
+        long i = (long) zero + (long) index * (long) stride;
+        ((ConcurrentLongDoubleHashMap) this.elements).adjustOrPutValue(i, value, value);
+    }
+
+    public double getQuick(int index) {
+        return this.elements.get((long) zero + (long) index * (long) stride);
+    }
+
+    public DoubleMatrix1D like(int size) {
+        return new ConcurrentSparseDoubleMatrix1D(size);
+    }
+
+    public DoubleMatrix2D like2D(int rows, int columns) {
+        return new ConcurrentSparseDoubleMatrix2D(rows, columns);
+    }
+
+    public void setQuick(int index, double value) {
+        long i = (long) zero + (long) index * (long) stride;
+        if (value == 0)
+            this.elements.removeKey(i);
+        else
+            this.elements.put(i, value);
+    }
+
+    /**
+     * Removes the cells whose accumulated value is zero and releases any
+     * superfluous internal memory. Must not be called concurrently with
+     * <tt>addQuick</tt>.
+     */
+    public void trimToSize() {
+        final ConcurrentLongDoubleHashMap map = (ConcurrentLongDoubleHashMap) this.elements;
+        final cern.colt.list.tlong.LongArrayList zeros = new cern.colt.list.tlong.LongArrayList();
+        map.forEachPair(new cern.colt.function.tdouble.LongDoubleProcedure() {
+            public boolean apply(long key, double value) {
+                if (value == 0)
+                    zeros.add(key);
+                return true;
+            }
+        });
+        for (int i = zeros.size(); --i >= 0;) {
+            map.removeKey(zeros.getQuick(i));
+        }
+        map.trimToSize();
+    }
+}
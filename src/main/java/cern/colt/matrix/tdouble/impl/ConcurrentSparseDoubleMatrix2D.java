@@ -0,0 +1,216 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.map.tdouble.ConcurrentLongDoubleHashMap;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+/**
+ * Thread-safe sparse hashed 2-d matrix holding <tt>double</tt> elements. First
+ * see the <a href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * Uses a {@link cern.colt.map.tdouble.ConcurrentLongDoubleHashMap}, so that
+ * <tt>getQuick</tt> does not lock and any number of threads may call
+ * <tt>setQuick</tt> and <tt>addQuick</tt> on the matrix and its views
+ * concurrently. <tt>addQuick</tt> adds to a cell atomically, which makes this
+ * class suitable as a shared accumulator for parallel scatter-add (for example
+ * finite element assembly). Cells whose accumulated value cancels out to zero
+ * remain stored until {@link #trimToSize()} is called.
+ * <p>
+ * Bulk operations, such as <tt>assign</tt> or <tt>zMult</tt>, are not atomic
+ * with respect to concurrent updates.
+ * 
+ * @see SparseDoubleMatrix2D
+ */
+public class ConcurrentSparseDoubleMatrix2D extends SparseDoubleMatrix2D {
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a matrix with a copy of the given values. <tt>values</tt> is
+     * required to have the form <tt>values[row][column]</tt> and have exactly
+     * the same number of columns in every row.
+     * 
+     * @param values
+     *            The values to be filled into the new matrix.
+     * @throws IllegalArgumentException
+     *             if
+     *             <tt>for any 1 &lt;= row &lt; values.length: values[row].length != values[row-1].length</tt>
+     *             .
+     */
+    public ConcurrentSparseDoubleMatrix2D(double[][] values) {
+        this(values.length, values.length == 0 ? 0 : values[0].length);
+        assign(values);
+    }
+
+    /**
+     * Constructs a matrix with a given number of rows and columns and default
+     * memory usage. All entries are initially <tt>0</tt>.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0</tt>.
+     */
+    public ConcurrentSparseDoubleMatrix2D(int rows, int columns) {
+        this(rows, columns, rows * (columns / 1000), 0.2, 0.5);
+    }
+
+    /**
+     * Constructs a matrix with a given number of rows and columns using memory
+     * as specified. All entries are initially <tt>0</tt>. For details related
+     * to memory usage see
+     * {@link cern.colt.map.tdouble.ConcurrentLongDoubleHashMap}.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param initialCapacity
+     *            the initial capacity of the hash map. If not known, set
+     *            <tt>initialCapacity=0</tt> or small.
+     * @param minLoadFactor
+     *            the minimum load factor of the hash map.
+     * @param maxLoadFactor
+     *            the maximum load factor of the hash map.
+     * @throws IllegalArgumentException
+     *             if
+     * 
+     *             <tt>initialCapacity < 0 || (minLoadFactor < 0.0 || minLoadFactor >= 1.0) || (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) || (minLoadFactor >= maxLoadFactor)</tt>
+     *             .
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0</tt>.
+     */
+    public ConcurrentSparseDoubleMatrix2D(int rows, int columns, int initialCapacity, double minLoadFactor,
+            double maxLoadFactor) {
+        this(rows, columns, new ConcurrentLongDoubleHashMap(initialCapacity, minLoadFactor, maxLoadFactor), 0, 0,
+                columns, 1);
+        this.isNoView = true;
+    }
+
+    /**
+     * Constructs a view with the given parameters.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param elements
+     *            the cells.
+     * @param rowZero
+     *            the position of the first element.
+     * @param columnZero
+     *            the position of the first element.
+     * @param rowStride
+     *            the number of elements between two rows, i.e.
+     *            <tt>index(i+1,j)-index(i,j)</tt>.
+     * @param columnStride
+     *            the number of elements between two columns, i.e.
+     *            <tt>index(i,j+1)-index(i,j)</tt>.
+     */
+    protected ConcurrentSparseDoubleMatrix2D(int rows, int columns, ConcurrentLongDoubleHashMap elements,
+            int rowZero, int columnZero, int rowStride, int columnStride) {
+        super(rows, columns, elements, rowZero, columnZero, rowStride, columnStride);
+    }
+
+    /**
+     * Atomically adds the given value to the specified cell.
+     * 
+     * @param row
+     *            the index of the row-coordinate.
+     * @param column
+     *            the index of the column-coordinate.
+     * @param value
+     *            the value to be added.
+     * @throws IndexOutOfBoundsException
+     *             if
+     *             <tt>row&lt;0 || row&gt;=rows() || column&lt;0 || column&gt;=columns()</tt>
+     *             .
+     */
+    public void add(int row, int column, double value) {
+        if (column < 0 || column >= columns || row < 0 || row >= rows)
+            throw new IndexOutOfBoundsException("row:" + row + ", column:" + column);
+        addQuick(row, column, value);
+    }
+
+    /**
+     * Atomically adds the given value to the specified cell. Provided with
+     * invalid parameters this method may access illegal indexes without
+     * throwing any exception.
+     * 
+     * @param row
+     *            the index of the row-coordinate.
+     * @param column
+     *            the index of the column-coordinate.
+     * @param value
+     *            the value to be added.
+     */
+    public void addQuick(int row, int column, double value) {
+        if (value == 0)
+            return;
+        long index = (long) rowZero + (long) row * (long) rowStride + (long) columnZero + (long) column
+                * (long) columnStride;
+        ((ConcurrentLongDoubleHashMap) this.elements).adjustOrPutValue(index, value, value);
+    }
+
+    public double getQuick(int row, int column) {
+        return this.elements.get((long) rowZero + (long) row * (long) rowStride + (long) columnZero + (long) column
+                * (long) columnStride);
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        return new ConcurrentSparseDoubleMatrix2D(rows, columns);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new ConcurrentSparseDoubleMatrix1D(size);
+    }
+
+    public void setQuick(int row, int column, double value) {
+        long index = (long) rowZero + (long) row * (long) rowStride + (long) columnZero + (long) column
+                * (long) columnStride;
+        if (value == 0)
+            this.elements.removeKey(index);
+        else
+            this.elements.put(index, value);
+    }
+
+    /**
+     * Removes the cells whose accumulated value is zero and releases any
+     * superfluous internal memory. Must not be called concurrently with
+     * <tt>addQuick</tt>.
+     */
+    public void trimToSize() {
+        final ConcurrentLongDoubleHashMap map = (ConcurrentLongDoubleHashMap) this.elements;
+        final cern.colt.list.tlong.LongArrayList zeros = new cern.colt.list.tlong.LongArrayList();
+        map.forEachPair(new cern.colt.function.tdouble.LongDoubleProcedure() {
+            public boolean apply(long key, double value) {
+                if (value == 0)
+                    zeros.add(key);
+                return true;
+            }
+        });
+        for (int i = zeros.size(); --i >= 0;) {
+            map.removeKey(zeros.getQuick(i));
+        }
+        map.trimToSize();
+    }
+
+    protected DoubleMatrix1D like1D(int size, int offset, int stride) {
+        return new ConcurrentSparseDoubleMatrix1D(size, (ConcurrentLongDoubleHashMap) this.elements, offset, stride);
+    }
+}
@@ -0,0 +1,558 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Dense 2-d matrix holding <tt>double</tt> elements in square tiles that are
+ * shared between copies until they are written. First see the <a
+ * href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * Internally holds one array per tile of <tt>tileSize x tileSize</tt>
+ * elements (smaller at the last row and column of tiles), addressed in row
+ * major. {@link #copy()} returns a snapshot that shares all the tiles of this
+ * matrix, in time proportional to the number of tiles. The first write to a
+ * shared tile, through <tt>set</tt>, <tt>setQuick</tt> or <tt>assign</tt>,
+ * gives the written matrix its own copy of that tile only; the other matrices
+ * sharing it are not affected. A method that overwrites a whole tile, such as
+ * <tt>assign(double)</tt>, does not copy it. Tiles of zeros are not allocated.
+ * {@link #getSharedBytes()} and {@link #getPrivateBytes()} tell how much of
+ * the storage is shared. A matrix gives up its tiles when {@link #release()}
+ * is called, so that the other owners can write them without copying. A
+ * snapshot that is dropped without being released still counts as an owner
+ * of its tiles: the results stay correct, but the other owners copy each of
+ * those tiles on their first write to it.
+ * <p>
+ * Snapshots can be read and written by different threads: a tile is never
+ * written while it is shared. As for the other matrices, a single matrix and
+ * its views must not be written by several threads at once. Views are
+ * wrappers around the matrix.
+ * <p>
+ * This data structure allows to store more than 2^31 elements.
+ * <p>
+ * <b>Time complexity:</b>
+ * <p>
+ * <tt>O(1)</tt> (i.e. constant time) for the basic operations <tt>get</tt>,
+ * <tt>getQuick</tt>, <tt>set</tt>, <tt>setQuick</tt> and <tt>size</tt>; a
+ * write to a shared tile costs the copy of the tile.
+ */
+public class CopyOnWriteDoubleMatrix2D extends WrapperDoubleMatrix2D {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default number of rows and columns of a tile; a tile of
+     * <tt>64 x 64</tt> doubles is 32 KB.
+     */
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    /*
+     * A tile and the number of matrices holding it.
+     */
+    private static final class Tile implements java.io.Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final double[] elements;
+
+        final AtomicInteger owners = new AtomicInteger(1);
+
+        Tile(double[] elements) {
+            this.elements = elements;
+        }
+    }
+
+    private final int tileSize;
+
+    private final int tileShift;
+
+    private final int tileMask;
+
+    private final int tileRows;
+
+    private final int tileColumns;
+
+    private Tile[] tiles;
+
+    /**
+     * Constructs a matrix with a given number of rows and columns and tiles of
+     * {@link #DEFAULT_TILE_SIZE}. All entries are initially <tt>0</tt>.
+     *
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0</tt>.
+     */
+    public CopyOnWriteDoubleMatrix2D(int rows, int columns) {
+        this(rows, columns, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Constructs a matrix with a given number of rows and columns and a given
+     * tile size. All entries are initially <tt>0</tt>.
+     *
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param tileSize
+     *            the number of rows and columns of a tile, rounded up to a
+     *            power of 2.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0 || tileSize<1 || tileSize>32768</tt>.
+     */
+    public CopyOnWriteDoubleMatrix2D(int rows, int columns, int tileSize) {
+        super(null);
+        try {
+            setUp(rows, columns);
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        if (tileSize < 1 || tileSize > 32768)
+            throw new IllegalArgumentException("tileSize must be between 1 and 32768: " + tileSize);
+        this.tileSize = ConcurrencyUtils.nextPow2(tileSize);
+        this.tileShift = Integer.numberOfTrailingZeros(this.tileSize);
+        this.tileMask = this.tileSize - 1;
+        this.tileRows = (rows + this.tileMask) >> tileShift;
+        this.tileColumns = (columns + this.tileMask) >> tileShift;
+        if ((long) tileRows * tileColumns > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many tiles, use a larger tileSize");
+        tiles = new Tile[tileRows * tileColumns];
+        content = this;
+    }
+
+    /**
+     * Constructs a matrix with the same values as the given matrix and tiles
+     * of {@link #DEFAULT_TILE_SIZE}.
+     *
+     * @param A
+     *            the values to be filled into the new matrix.
+     */
+    public CopyOnWriteDoubleMatrix2D(DoubleMatrix2D A) {
+        this(A.rows(), A.columns());
+        assign(A);
+    }
+
+    public DoubleMatrix2D assign(final double value) {
+        forEachTile(new TileProcedure() {
+            public void apply(int t) {
+                if (value == 0) {
+                    release(t);
+                } else {
+                    java.util.Arrays.fill(writableTile(t, false), value);
+                }
+            }
+        });
+        return this;
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction f) {
+        forEachTile(new TileProcedure() {
+            public void apply(int t) {
+                double[] elems = writableTile(t, true);
+                for (int i = 0; i < elems.length; i++) {
+                    elems[i] = f.apply(elems[i]);
+                }
+            }
+        });
+        return this;
+    }
+
+    public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        if (source == this)
+            return this;
+        checkShape(source);
+        if (source instanceof CopyOnWriteDoubleMatrix2D && ((CopyOnWriteDoubleMatrix2D) source).tileSize == tileSize) {
+            Tile[] tilesOther = ((CopyOnWriteDoubleMatrix2D) source).tiles;
+            for (int t = 0; t < tiles.length; t++) {
+                Tile tile = tilesOther[t];
+                if (tile != tiles[t]) {
+                    release(t);
+                    if (tile != null) {
+                        tile.owners.incrementAndGet();
+                        tiles[t] = tile;
+                    }
+                }
+            }
+            return this;
+        }
+        if (haveSharedCells(source)) {
+            source = source.copy();
+        }
+        if (source instanceof DenseDoubleMatrix2D) {
+            final DenseDoubleMatrix2D other = (DenseDoubleMatrix2D) source;
+            final double[] elemsOther = other.elements();
+            final int zeroOther = (int) other.index(0, 0);
+            final int rowStrideOther = other.rowStride();
+            final int columnStrideOther = other.columnStride();
+            forEachTile(new TileProcedure() {
+                public void apply(int t) {
+                    double[] elems = writableTile(t, false);
+                    int width = tileWidthOf(t);
+                    int idxOther = zeroOther + tileFirstRow(t) * rowStrideOther + tileFirstColumn(t)
+                            * columnStrideOther;
+                    for (int i = 0; i < elems.length; idxOther += rowStrideOther) {
+                        for (int j = idxOther, c = 0; c < width; c++) {
+                            elems[i++] = elemsOther[j];
+                            j += columnStrideOther;
+                        }
+                    }
+                }
+            });
+        } else {
+            final DoubleMatrix2D other = source;
+            forEachTile(new TileProcedure() {
+                public void apply(int t) {
+                    double[] elems = writableTile(t, false);
+                    int width = tileWidthOf(t);
+                    int firstColumn = tileFirstColumn(t);
+                    for (int i = 0, r = tileFirstRow(t); i < elems.length; r++) {
+                        for (int c = firstColumn; c < firstColumn + width; c++) {
+                            elems[i++] = other.getQuick(r, c);
+                        }
+                    }
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * Returns a snapshot of this matrix that shares all its tiles. Writing to
+     * a tile of either matrix copies that tile first, so changes in the
+     * returned matrix are NOT reflected in this matrix, and vice-versa.
+     *
+     * @return a snapshot of this matrix.
+     */
+    public DoubleMatrix2D copy() {
+        CopyOnWriteDoubleMatrix2D copy = new CopyOnWriteDoubleMatrix2D(rows, columns, tileSize);
+        copy.assign(this);
+        return copy;
+    }
+
+    /**
+     * Returns the tiles of this matrix, row of tiles by row of tiles, each one
+     * addressed in row major; <tt>null</tt> stands for a tile of zeros. The
+     * tiles may be shared with other matrices and must not be modified.
+     *
+     * @return the tiles of this matrix.
+     */
+    public double[][] elements() {
+        double[][] elems = new double[tiles.length][];
+        for (int t = 0; t < tiles.length; t++) {
+            Tile tile = tiles[t];
+            elems[t] = tile == null ? null : tile.elements;
+        }
+        return elems;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, in a
+     * single array.
+     *
+     * @return this matrix as a <tt>DenseDoubleMatrix2D</tt>
+     */
+    public DenseDoubleMatrix2D getDense() {
+        final DenseDoubleMatrix2D dense = new DenseDoubleMatrix2D(rows, columns);
+        final double[] elemsDense = dense.elements();
+        forEachTile(new TileProcedure() {
+            public void apply(int t) {
+                Tile tile = tiles[t];
+                if (tile == null)
+                    return;
+                double[] elems = tile.elements;
+                int width = tileWidthOf(t);
+                for (int i = 0, idx = tileFirstRow(t) * columns + tileFirstColumn(t); i < elems.length; idx += columns) {
+                    System.arraycopy(elems, i, elemsDense, idx, width);
+                    i += width;
+                }
+            }
+        });
+        return dense;
+    }
+
+    /**
+     * Returns the number of bytes of the tiles that this matrix shares with
+     * other matrices.
+     *
+     * @return the number of shared bytes.
+     */
+    public long getSharedBytes() {
+        long bytes = 0;
+        for (int t = 0; t < tiles.length; t++) {
+            Tile tile = tiles[t];
+            if (tile != null && tile.owners.get() > 1) {
+                bytes += 8L * tile.elements.length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the number of tiles that this matrix shares with other
+     * matrices.
+     *
+     * @return the number of shared tiles.
+     */
+    public int getSharedTileCount() {
+        int count = 0;
+        for (int t = 0; t < tiles.length; t++) {
+            Tile tile = tiles[t];
+            if (tile != null && tile.owners.get() > 1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes of the tiles that only this matrix holds,
+     * that is, the memory that would be freed with this matrix.
+     *
+     * @return the number of private bytes.
+     */
+    public long getPrivateBytes() {
+        long bytes = 0;
+        for (int t = 0; t < tiles.length; t++) {
+            Tile tile = tiles[t];
+            if (tile != null && tile.owners.get() <= 1) {
+                bytes += 8L * tile.elements.length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the number of tiles of this matrix, allocated or not.
+     *
+     * @return the number of tiles.
+     */
+    public int getTileCount() {
+        return tiles.length;
+    }
+
+    /**
+     * Returns the number of rows and columns of a tile.
+     *
+     * @return the tile size.
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public double getQuick(int row, int column) {
+        int tileColumn = column >> tileShift;
+        Tile tile = tiles[(row >> tileShift) * tileColumns + tileColumn];
+        if (tile == null)
+            return 0;
+        return tile.elements[(row & tileMask) * tileWidth(tileColumn) + (column & tileMask)];
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        return new CopyOnWriteDoubleMatrix2D(rows, columns, tileSize);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new DenseDoubleMatrix1D(size);
+    }
+
+    /**
+     * Gives up the storage of this matrix, which becomes a matrix of zeros.
+     * The other matrices sharing its tiles can then write them without
+     * copying. Should be called once a snapshot is no longer needed.
+     */
+    public void release() {
+        for (int t = 0; t < tiles.length; t++) {
+            release(t);
+        }
+    }
+
+    public void setQuick(int row, int column, double value) {
+        int tileColumn = column >> tileShift;
+        int t = (row >> tileShift) * tileColumns + tileColumn;
+        Tile tile = tiles[t];
+        double[] elems;
+        if (tile != null && tile.owners.get() == 1) {
+            elems = tile.elements;
+        } else {
+            if (tile == null && value == 0)
+                return;
+            elems = writableTile(t, true);
+        }
+        elems[(row & tileMask) * tileWidth(tileColumn) + (column & tileMask)] = value;
+    }
+
+    public double zSum() {
+        final int ntiles = tiles.length;
+        double sum = 0;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (ntiles > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, ntiles);
+            Future<?>[] futures = new Future[nthreads];
+            int k = ntiles / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstTile = j * k;
+                final int lastTile = (j == nthreads - 1) ? ntiles : firstTile + k;
+                futures[j] = ConcurrencyUtils.submit(new Callable<Double>() {
+
+                    public Double call() throws Exception {
+                        return sum(firstTile, lastTile);
+                    }
+                });
+            }
+            try {
+                for (int j = 0; j < nthreads; j++) {
+                    sum += (Double) futures[j].get();
+                }
+            } catch (ExecutionException ex) {
+                ex.printStackTrace();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        } else {
+            sum = sum(0, ntiles);
+        }
+        return sum;
+    }
+
+    protected DoubleMatrix2D getContent() {
+        return this;
+    }
+
+    protected boolean haveSharedCellsRaw(DoubleMatrix2D other) {
+        // views are wrappers, possibly of other views, around this matrix
+        while (other instanceof WrapperDoubleMatrix2D) {
+            if (other == this)
+                return true;
+            DoubleMatrix2D content = ((WrapperDoubleMatrix2D) other).content;
+            if (content == other)
+                return false;
+            other = content;
+        }
+        return false;
+    }
+
+    /*
+     * A procedure applied to each tile by forEachTile.
+     */
+    private interface TileProcedure {
+        void apply(int t);
+    }
+
+    /*
+     * Applies the procedure to every tile, splitting the tiles among threads.
+     */
+    private void forEachTile(final TileProcedure procedure) {
+        final int ntiles = tiles.length;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (ntiles > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, ntiles);
+            Future<?>[] futures = new Future[nthreads];
+            int k = ntiles / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstTile = j * k;
+                final int lastTile = (j == nthreads - 1) ? ntiles : firstTile + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int t = firstTile; t < lastTile; t++) {
+                            procedure.apply(t);
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            for (int t = 0; t < ntiles; t++) {
+                procedure.apply(t);
+            }
+        }
+    }
+
+    /*
+     * Drops tile t, which becomes a tile of zeros.
+     */
+    private void release(int t) {
+        Tile tile = tiles[t];
+        if (tile != null) {
+            tile.owners.decrementAndGet();
+            tiles[t] = null;
+        }
+    }
+
+    private double sum(int firstTile, int lastTile) {
+        double sum = 0;
+        for (int t = firstTile; t < lastTile; t++) {
+            Tile tile = tiles[t];
+            if (tile != null) {
+                double[] elems = tile.elements;
+                for (int i = 0; i < elems.length; i++) {
+                    sum += elems[i];
+                }
+            }
+        }
+        return sum;
+    }
+
+    private int tileFirstColumn(int t) {
+        return (t % tileColumns) << tileShift;
+    }
+
+    private int tileFirstRow(int t) {
+        return (t / tileColumns) << tileShift;
+    }
+
+    /*
+     * Returns the number of columns of the tiles in the given column of tiles.
+     */
+    private int tileWidth(int tileColumn) {
+        return (tileColumn == tileColumns - 1) ? columns - (tileColumn << tileShift) : tileSize;
+    }
+
+    /*
+     * Returns the number of columns of tile t.
+     */
+    private int tileWidthOf(int t) {
+        return tileWidth(t % tileColumns);
+    }
+
+    /*
+     * Returns the elements of tile t, owned by this matrix only, allocating
+     * or copying the tile if needed; keepValues tells whether the caller
+     * reads the current values of the tile or overwrites all of them.
+     */
+    private double[] writableTile(int t, boolean keepValues) {
+        Tile tile = tiles[t];
+        if (tile == null) {
+            int tileColumn = t % tileColumns;
+            int height = (t / tileColumns == tileRows - 1) ? rows - ((t / tileColumns) << tileShift) : tileSize;
+            tile = new Tile(new double[height * tileWidth(tileColumn)]);
+            tiles[t] = tile;
+        } else if (tile.owners.get() > 1) {
+            double[] elems = keepValues ? tile.elements.clone() : new double[tile.elements.length];
+            tile.owners.decrementAndGet();
+            tile = new Tile(elems);
+            tiles[t] = tile;
+        }
+        return tile.elements;
+    }
+}
@@ -15,6 +15,7 @@ import java.util.concurrent.Future;
 
 import cern.colt.list.tdouble.DoubleArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.DenseTranspose;
 import cern.colt.matrix.io.MatrixInfo;
 import cern.colt.matrix.io.MatrixSize;
 import cern.colt.matrix.io.MatrixVectorReader;
@@ -750,6 +751,16 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
 
     public DoubleMatrix2D assign(final DoubleMatrix2D source) {
         // overriden for performance only
+        if (source instanceof DenseColumnDoubleMatrix2D) {
+            checkShape(source);
+            DenseColumnDoubleMatrix2D other = (DenseColumnDoubleMatrix2D) source;
+            if (other.elements() == elements) {
+                other = (DenseColumnDoubleMatrix2D) other.copy();
+            }
+            DenseTranspose.copy(other.elements(), (int) other.index(0, 0), other.rowStride(),
+                    other.columnStride(), elements, (int) index(0, 0), rowStride, columnStride, rows, columns);
+            return this;
+        }
         if (!(source instanceof DenseDoubleMatrix2D)) {
             super.assign(source);
             return this;
@@ -758,7 +769,6 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
         if (other == this)
             return this; // nothing to do
         checkShape(other);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if (this.isNoView && other.isNoView) { // quickest
             System.arraycopy(other.elements, 0, this.elements, 0, this.elements.length);
             return this;
@@ -772,50 +782,8 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
             other = (DenseDoubleMatrix2D) c;
         }
 
-        final double[] elementsOther = other.elements;
-        if (elements == null || elementsOther == null)
-            throw new InternalError();
-        final int zeroOther = (int) other.index(0, 0);
-        final int zero = (int) index(0, 0);
-        final int columnStrideOther = other.columnStride;
-        final int rowStrideOther = other.rowStride;
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        int idxOther = zeroOther + firstRow * rowStrideOther;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                elements[i] = elementsOther[j];
-                                i += columnStride;
-                                j += columnStrideOther;
-                            }
-                            idx += rowStride;
-                            idxOther += rowStrideOther;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            int idxOther = zeroOther;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                    elements[i] = elementsOther[j];
-                    i += columnStride;
-                    j += columnStrideOther;
-                }
-                idx += rowStride;
-                idxOther += rowStrideOther;
-            }
-        }
+        DenseTranspose.copy(other.elements, (int) other.index(0, 0), other.rowStride, other.columnStride, elements,
+                (int) index(0, 0), rowStride, columnStride, rows, columns);
         return this;
     }
 
@@ -1577,50 +1545,8 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      */
     public DenseColumnDoubleMatrix2D getColumnMajor() {
         DenseColumnDoubleMatrix2D R = new DenseColumnDoubleMatrix2D(rows, columns);
-        final int zeroR = (int) R.index(0, 0);
-        final int rowStrideR = R.rowStride();
-        final int columnStrideR = R.columnStride();
-        final double[] elementsR = R.elements();
-        final int zero = (int) index(0, 0);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == (nthreads - 1)) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        int idx = zero + (firstRow - 1) * rowStride;
-                        int idxR = zeroR + (firstRow - 1) * rowStrideR;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, j = idxR, c = 0; r < columns; c++) {
-                                elementsR[j] = elements[i];
-                                i += rowStride;
-                                j += rowStrideR;
-                            }
-                            idx += columnStride;
-                            idxR += columnStrideR;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            int idxR = zeroR;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, j = idxR, c = 0; r < columns; c++) {
-                    elementsR[j] = elements[i];
-                    i += rowStride;
-                    j += rowStrideR;
-                }
-                idx += columnStride;
-                idxR += columnStrideR;
-            }
-        }
+        DenseTranspose.copy(elements, (int) index(0, 0), rowStride, columnStride, R.elements(), (int) R.index(0, 0),
+                R.rowStride(), R.columnStride(), rows, columns);
         return R;
     }
 
@@ -2477,44 +2403,26 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
 
     public double[][] toArray() {
         final double[][] values = new double[rows][columns];
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        final int zero = (int) index(0, 0);
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            double[] currentRow = values[r];
-                            for (int i = idx, c = 0; c < columns; c++) {
-                                currentRow[c] = elements[i];
-                                i += columnStride;
-                            }
-                            idx += rowStride;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            for (int r = 0; r < rows; r++) {
-                double[] currentRow = values[r];
-                for (int i = idx, c = 0; c < columns; c++) {
-                    currentRow[c] = elements[i];
-                    i += columnStride;
-                }
-                idx += rowStride;
-            }
-        }
+        DenseTranspose.copy(elements, (int) index(0, 0), rowStride, columnStride, values, rows, columns);
         return values;
     }
 
+    /**
+     * Transposes this square matrix in place: element <tt>(r,c)</tt> is
+     * swapped with element <tt>(c,r)</tt>. Unlike <tt>viewDice()</tt>, this
+     * changes the elements, so all views of this matrix see the change.
+     * 
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>rows() != columns()</tt>.
+     */
+    public DenseDoubleMatrix2D transposeInPlace() {
+        if (rows != columns)
+            throw new IllegalArgumentException("Matrix must be square: " + toStringShort());
+        DenseTranspose.transposeInPlace(elements, (int) index(0, 0), rowStride, columnStride, rows);
+        return this;
+    }
+
     public DoubleMatrix1D vectorize() {
         final DenseDoubleMatrix1D v = new DenseDoubleMatrix1D((int) size());
         final int zero = (int) index(0, 0);
@@ -2714,32 +2622,10 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
 
     public DoubleMatrix2D zMult(final DoubleMatrix2D B, DoubleMatrix2D C, final double alpha, final double beta,
             final boolean transposeA, final boolean transposeB) {
-        final int rowsA = rows;
-        final int columnsA = columns;
-        final int rowsB = B.rows();
-        final int columnsB = B.columns();
-        final int rowsC = transposeA ? columnsA : rowsA;
-        final int columnsC = transposeB ? rowsB : columnsB;
-
-        if (C == null) {
-            C = new DenseDoubleMatrix2D(rowsC, columnsC);
-        }
-
-        /*
-        * determine how to split and parallelize best into blocks if more
-        * B.columns than tasks --> split B.columns, as follows:
-        * 
-        * xx|xx|xxx B xx|xx|xxx xx|xx|xxx A xxx xx|xx|xxx C xxx xx|xx|xxx xxx
-        * xx|xx|xxx xxx xx|xx|xxx xxx xx|xx|xxx
-        * 
-        * if less B.columns than tasks --> split A.rows, as follows:
-        * 
-        * xxxxxxx B xxxxxxx xxxxxxx A xxx xxxxxxx C xxx xxxxxxx --- ------- xxx
-        * xxxxxxx xxx xxxxxxx --- ------- xxx xxxxxxx
-        */
         if (transposeA)
             return viewDice().zMult(B, C, alpha, beta, false, transposeB);
-        if (B instanceof SparseDoubleMatrix2D || B instanceof SparseRCDoubleMatrix2D) {
+        if (B instanceof SparseDoubleMatrix2D || B instanceof SparseRCDoubleMatrix2D
+                || B instanceof SparseCCDoubleMatrix2D) {
             // exploit quick sparse mult
             // A*B = (B' * A')'
             if (C == null) {
@@ -2749,62 +2635,9 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
                 return C;
             }
         }
-        if (transposeB)
-            return this.zMult(B.viewDice(), C, alpha, beta, transposeA, false);
-
-        if (!(C instanceof DenseDoubleMatrix2D))
-            return super.zMult(B, C, alpha, beta, transposeA, transposeB);
-
-        if (B.rows() != columnsA)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + this.toStringShort() + ", "
-                    + B.toStringShort());
-        if (C.rows() != rowsA || C.columns() != columnsB)
-            throw new IllegalArgumentException("Incompatibe result matrix: " + this.toStringShort() + ", "
-                    + B.toStringShort() + ", " + C.toStringShort());
-        if (this == C || B == C)
-            throw new IllegalArgumentException("Matrices must not be identical");
-
-        long flops = 2L * rowsA * columnsA * columnsB;
-        int noOfTasks = (int) Math.min(flops / 30000, ConcurrencyUtils.getNumberOfThreads()); // each
-        /* thread should process at least 30000 flops */
-        boolean splitB = (columnsB >= noOfTasks);
-        int width = splitB ? columnsB : rowsA;
-        noOfTasks = Math.min(width, noOfTasks);
-
-        if (noOfTasks < 2) { //parallelization doesn't pay off (too much start up overhead)
-            return this.zMultSequential(B, C, alpha, beta, transposeA, transposeB);
-        }
-
-        // set up concurrent tasks
-        int span = width / noOfTasks;
-        final Future<?>[] subTasks = new Future[noOfTasks];
-        for (int i = 0; i < noOfTasks; i++) {
-            final int offset = i * span;
-            if (i == noOfTasks - 1)
-                span = width - span * i; // last span may be a bit larger
-
-            final DoubleMatrix2D AA, BB, CC;
-            if (splitB) {
-                // split B along columns into blocks
-                AA = this;
-                BB = B.viewPart(0, offset, columnsA, span);
-                CC = C.viewPart(0, offset, rowsA, span);
-            } else {
-                // split A along rows into blocks
-                AA = this.viewPart(offset, 0, span, columnsA);
-                BB = B;
-                CC = C.viewPart(offset, 0, span, columnsB);
-            }
-
-            subTasks[i] = ConcurrencyUtils.submit(new Runnable() {
-                public void run() {
-                    ((DenseDoubleMatrix2D) AA).zMultSequential(BB, CC, alpha, beta, transposeA, transposeB);
-                }
-            });
-        }
-
-        ConcurrencyUtils.waitForCompletion(subTasks);
-        return C;
+        // dense operands of any layout, views and selections are packed and
+        // multiplied in parallel, see DoubleMatrix2DMultiplication
+        return super.zMult(B, C, alpha, beta, transposeA, transposeB);
     }
 
     public double zSum() {
@@ -2858,109 +2691,6 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
         return sum;
     }
 
-    private DoubleMatrix2D zMultSequential(DoubleMatrix2D B, DoubleMatrix2D C, double alpha, double beta,
-            boolean transposeA, boolean transposeB) {
-        if (transposeA)
-            return viewDice().zMult(B, C, alpha, beta, false, transposeB);
-        if (B instanceof SparseDoubleMatrix2D || B instanceof SparseRCDoubleMatrix2D
-                || B instanceof SparseCCDoubleMatrix2D) {
-            // exploit quick sparse mult
-            // A*B = (B' * A')'
-            if (C == null) {
-                return B.zMult(this, null, alpha, beta, !transposeB, true).viewDice();
-            } else {
-                B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
-                return C;
-            }
-        }
-        if (transposeB)
-            return this.zMult(B.viewDice(), C, alpha, beta, transposeA, false);
-
-        int rowsA = rows;
-        int columnsA = columns;
-        int p = B.columns();
-        if (C == null) {
-            C = new DenseDoubleMatrix2D(rowsA, p);
-        }
-        if (!(B instanceof DenseDoubleMatrix2D) || !(C instanceof DenseDoubleMatrix2D))
-            return super.zMult(B, C, alpha, beta, transposeA, transposeB);
-        if (B.rows() != columnsA)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
-                    + B.toStringShort());
-        if (C.rows() != rowsA || C.columns() != p)
-            throw new IllegalArgumentException("Incompatibel result matrix: " + toStringShort() + ", "
-                    + B.toStringShort() + ", " + C.toStringShort());
-        if (this == C || B == C)
-            throw new IllegalArgumentException("Matrices must not be identical");
-
-        DenseDoubleMatrix2D BB = (DenseDoubleMatrix2D) B;
-        DenseDoubleMatrix2D CC = (DenseDoubleMatrix2D) C;
-        final double[] AElems = this.elements;
-        final double[] BElems = BB.elements;
-        final double[] CElems = CC.elements;
-        if (AElems == null || BElems == null || CElems == null)
-            throw new InternalError();
-
-        int cA = this.columnStride;
-        int cB = BB.columnStride;
-        int cC = CC.columnStride;
-
-        int rA = this.rowStride;
-        int rB = BB.rowStride;
-        int rC = CC.rowStride;
-
-        /*
-         * A is blocked to hide memory latency xxxxxxx B xxxxxxx xxxxxxx A xxx
-         * xxxxxxx C xxx xxxxxxx --- ------- xxx xxxxxxx xxx xxxxxxx --- -------
-         * xxx xxxxxxx
-         */
-        final int BLOCK_SIZE = 30000; // * 8 == Level 2 cache in bytes
-        int m_optimal = (BLOCK_SIZE - columnsA) / (columnsA + 1);
-        if (m_optimal <= 0)
-            m_optimal = 1;
-        int blocks = rowsA / m_optimal;
-        int rr = 0;
-        if (rowsA % m_optimal != 0)
-            blocks++;
-        for (; --blocks >= 0;) {
-            int jB = (int) BB.index(0, 0);
-            int indexA = (int) index(rr, 0);
-            int jC = (int) CC.index(rr, 0);
-            rr += m_optimal;
-            if (blocks == 0)
-                m_optimal += rowsA - rr;
-
-            for (int j = p; --j >= 0;) {
-                int iA = indexA;
-                int iC = jC;
-                for (int i = m_optimal; --i >= 0;) {
-                    int kA = iA;
-                    int kB = jB;
-                    double s = 0;
-
-                    // loop unrolled
-                    kA -= cA;
-                    kB -= rB;
-
-                    for (int k = columnsA % 4; --k >= 0;) {
-                        s += AElems[kA += cA] * BElems[kB += rB];
-                    }
-                    for (int k = columnsA / 4; --k >= 0;) {
-                        s += AElems[kA += cA] * BElems[kB += rB] + AElems[kA += cA] * BElems[kB += rB]
-                                + AElems[kA += cA] * BElems[kB += rB] + AElems[kA += cA] * BElems[kB += rB];
-                    }
-
-                    CElems[iC] = alpha * s + beta * CElems[iC];
-                    iA += rA;
-                    iC += rC;
-                }
-                jB += cB;
-                jC += cC;
-            }
-        }
-        return C;
-    }
-
     protected boolean haveSharedCellsRaw(DoubleMatrix2D other) {
         if (other instanceof SelectedDenseDoubleMatrix2D) {
             SelectedDenseDoubleMatrix2D otherMatrix = (SelectedDenseDoubleMatrix2D) other;
@@ -0,0 +1,360 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Parallel multiplication of matrices of any storage,
+ * <tt>C = alpha*A*B + beta*C</tt>.
+ * <p>
+ * The operands are not read in place. Blocks of <tt>B</tt> and of <tt>A</tt>
+ * are copied (packed) into contiguous buffers, in the order in which a small
+ * register-blocked kernel reads them, and the kernel computes
+ * <tt>4 x 4</tt> blocks of <tt>C</tt> from the buffers. The blocks are sized
+ * so that the packed block of <tt>A</tt> stays in the level 2 cache while a
+ * packed sliver of <tt>B</tt> is streamed through it. Packing costs
+ * <tt>O(m*n + n*p)</tt> reads against the <tt>O(m*n*p)</tt> operations of the
+ * product, so views, selections, column-major and mixed-layout operands are
+ * all multiplied by the same kernel.
+ * <p>
+ * Dense matrices and their views and selections are packed with indexed
+ * copies from their element arrays; all other matrices are packed with
+ * <tt>getQuick</tt>. The work is split among the threads by blocks of rows or
+ * columns of <tt>C</tt>, whichever there are more of.
+ */
+public class DoubleMatrix2DMultiplication {
+    /*
+     * Rows and columns of the blocks of C computed by the kernel.
+     */
+    private static final int MR = 4;
+
+    private static final int NR = 4;
+
+    /*
+     * Rows of the packed blocks of A, common dimension and columns of the
+     * packed blocks of B.
+     */
+    private static final int MC = 128;
+
+    private static final int KC = 256;
+
+    private static final int NC = 1024;
+
+    /**
+     * Makes this class non instantiable, but still let's others inherit from
+     * it.
+     */
+    protected DoubleMatrix2DMultiplication() {
+    }
+
+    /**
+     * Computes <tt>C = alpha*A*B + beta*C</tt>. The matrices can have any
+     * storage, be views or selections.
+     * 
+     * @param A
+     *            the first source matrix.
+     * @param B
+     *            the second source matrix.
+     * @param C
+     *            the matrix where results are to be stored; must not share
+     *            cells with <tt>A</tt> or <tt>B</tt>.
+     * @param alpha
+     *            the scale of the product.
+     * @param beta
+     *            the scale of <tt>C</tt>.
+     * @return <tt>C</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>B.rows() != A.columns()</tt> or
+     *             <tt>C.rows() != A.rows() || C.columns() != B.columns()</tt>.
+     */
+    public static DoubleMatrix2D zMult(DoubleMatrix2D A, DoubleMatrix2D B, final DoubleMatrix2D C,
+            final double alpha, final double beta) {
+        final int m = A.rows();
+        final int n = A.columns();
+        final int p = B.columns();
+        if (B.rows() != n)
+            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + A.toStringShort() + ", "
+                    + B.toStringShort());
+        if (C.rows() != m || C.columns() != p)
+            throw new IllegalArgumentException("Incompatibe result matrix: " + A.toStringShort() + ", "
+                    + B.toStringShort() + ", " + C.toStringShort());
+        if (m == 0 || p == 0) {
+            return C;
+        }
+        final Operand c = new Operand(C);
+        if (n == 0) {
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < p; j++) {
+                    c.set(i, j, beta * c.get(i, j));
+                }
+            }
+            return C;
+        }
+        final Operand a = new Operand(A);
+        final Operand b = new Operand(B);
+
+        // The threads get whole blocks of the kernel
+        final boolean splitColumns = p >= m;
+        int size = splitColumns ? p : m;
+        int unit = splitColumns ? NR : MR;
+        int blocks = (size + unit - 1) / unit;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (nthreads < 2 || 2L * m * n * p < ConcurrencyUtils.getThreadsBeginN_2D()) {
+            multiply(a, b, c, alpha, beta, 0, m, 0, p, n);
+            return C;
+        }
+        nthreads = Math.min(nthreads, blocks);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int first = Math.min(size, (int) ((long) blocks * j / nthreads) * unit);
+            final int last = (j == nthreads - 1) ? size : Math.min(size, (int) ((long) blocks * (j + 1) / nthreads)
+                    * unit);
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    if (splitColumns) {
+                        multiply(a, b, c, alpha, beta, 0, m, first, last, n);
+                    } else {
+                        multiply(a, b, c, alpha, beta, first, last, 0, p, n);
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return C;
+    }
+
+    /*
+     * Computes the rows firstRow..lastRow-1 and the columns
+     * firstColumn..lastColumn-1 of C.
+     */
+    private static void multiply(Operand a, Operand b, Operand c, double alpha, double beta, int firstRow,
+            int lastRow, int firstColumn, int lastColumn, int n) {
+        int mc = Math.min(MC, roundUp(lastRow - firstRow, MR));
+        int kc = Math.min(KC, n);
+        int nc = Math.min(NC, roundUp(lastColumn - firstColumn, NR));
+        double[] packedA = new double[mc * kc];
+        double[] packedB = new double[kc * nc];
+        double[] block = new double[MR * NR];
+        for (int jc = firstColumn; jc < lastColumn; jc += NC) {
+            int ncols = Math.min(NC, lastColumn - jc);
+            for (int pc = 0; pc < n; pc += KC) {
+                int depth = Math.min(KC, n - pc);
+                packB(b, pc, depth, jc, ncols, packedB);
+                // beta scales C only once, with the first block of the sum
+                double scale = pc == 0 ? beta : 1;
+                for (int ic = firstRow; ic < lastRow; ic += MC) {
+                    int nrows = Math.min(MC, lastRow - ic);
+                    packA(a, ic, nrows, pc, depth, packedA);
+                    for (int jr = 0; jr < ncols; jr += NR) {
+                        int nr = Math.min(NR, ncols - jr);
+                        for (int ir = 0; ir < nrows; ir += MR) {
+                            int mr = Math.min(MR, nrows - ir);
+                            kernel(depth, packedA, ir * depth, packedB, jr * depth, block);
+                            for (int i = 0; i < mr; i++) {
+                                for (int j = 0; j < nr; j++) {
+                                    int row = ic + ir + i;
+                                    int column = jc + jr + j;
+                                    c.set(row, column, alpha * block[i * NR + j] + scale * c.get(row, column));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Computes the 4 x 4 block of the product of a packed sliver of A and a
+     * packed sliver of B.
+     */
+    private static void kernel(int depth, double[] a, int ia, double[] b, int ib, double[] block) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+        for (int k = 0; k < depth; k++) {
+            double a0 = a[ia];
+            double a1 = a[ia + 1];
+            double a2 = a[ia + 2];
+            double a3 = a[ia + 3];
+            double b0 = b[ib];
+            double b1 = b[ib + 1];
+            double b2 = b[ib + 2];
+            double b3 = b[ib + 3];
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+            ia += MR;
+            ib += NR;
+        }
+        block[0] = c00;
+        block[1] = c01;
+        block[2] = c02;
+        block[3] = c03;
+        block[4] = c10;
+        block[5] = c11;
+        block[6] = c12;
+        block[7] = c13;
+        block[8] = c20;
+        block[9] = c21;
+        block[10] = c22;
+        block[11] = c23;
+        block[12] = c30;
+        block[13] = c31;
+        block[14] = c32;
+        block[15] = c33;
+    }
+
+    /*
+     * Packs A(firstRow..firstRow+nrows-1, pc..pc+depth-1) into slivers of MR
+     * rows; each sliver holds MR values per column, padded with zeros.
+     */
+    private static void packA(Operand a, int firstRow, int nrows, int pc, int depth, double[] packed) {
+        int idx = 0;
+        for (int ir = 0; ir < nrows; ir += MR) {
+            int mr = Math.min(MR, nrows - ir);
+            if (a.elements != null) {
+                double[] elements = a.elements;
+                int[] columnOffsets = a.columnOffsets;
+                for (int k = 0; k < depth; k++) {
+                    int offset = columnOffsets[pc + k];
+                    for (int i = 0; i < mr; i++) {
+                        packed[idx + i] = elements[a.rowOffsets[firstRow + ir + i] + offset];
+                    }
+                    for (int i = mr; i < MR; i++) {
+                        packed[idx + i] = 0;
+                    }
+                    idx += MR;
+                }
+            } else {
+                for (int k = 0; k < depth; k++) {
+                    for (int i = 0; i < mr; i++) {
+                        packed[idx + i] = a.matrix.getQuick(firstRow + ir + i, pc + k);
+                    }
+                    for (int i = mr; i < MR; i++) {
+                        packed[idx + i] = 0;
+                    }
+                    idx += MR;
+                }
+            }
+        }
+    }
+
+    /*
+     * Packs B(pc..pc+depth-1, firstColumn..firstColumn+ncols-1) into slivers
+     * of NR columns; each sliver holds NR values per row, padded with zeros.
+     */
+    private static void packB(Operand b, int pc, int depth, int firstColumn, int ncols, double[] packed) {
+        int idx = 0;
+        for (int jr = 0; jr < ncols; jr += NR) {
+            int nr = Math.min(NR, ncols - jr);
+            if (b.elements != null) {
+                double[] elements = b.elements;
+                int[] columnOffsets = b.columnOffsets;
+                for (int k = 0; k < depth; k++) {
+                    int offset = b.rowOffsets[pc + k];
+                    for (int j = 0; j < nr; j++) {
+                        packed[idx + j] = elements[offset + columnOffsets[firstColumn + jr + j]];
+                    }
+                    for (int j = nr; j < NR; j++) {
+                        packed[idx + j] = 0;
+                    }
+                    idx += NR;
+                }
+            } else {
+                for (int k = 0; k < depth; k++) {
+                    for (int j = 0; j < nr; j++) {
+                        packed[idx + j] = b.matrix.getQuick(pc + k, firstColumn + jr + j);
+                    }
+                    for (int j = nr; j < NR; j++) {
+                        packed[idx + j] = 0;
+                    }
+                    idx += NR;
+                }
+            }
+        }
+    }
+
+    private static int roundUp(int size, int unit) {
+        return (size + unit - 1) / unit * unit;
+    }
+
+    /*
+     * A matrix together with the offsets of its rows and columns in its
+     * element array, if it is a dense matrix, a view or a selection of one.
+     * Cell (i,j) of such a matrix is elements[rowOffsets[i] +
+     * columnOffsets[j]].
+     */
+    private static class Operand {
+        final DoubleMatrix2D matrix;
+
+        final double[] elements;
+
+        final int[] rowOffsets;
+
+        final int[] columnOffsets;
+
+        Operand(DoubleMatrix2D matrix) {
+            this.matrix = matrix;
+            int rows = matrix.rows();
+            int columns = matrix.columns();
+            if ((matrix instanceof DenseDoubleMatrix2D || matrix instanceof DenseColumnDoubleMatrix2D
+                    || matrix instanceof SelectedDenseDoubleMatrix2D || matrix instanceof SelectedDenseColumnDoubleMatrix2D)
+                    && rows > 0 && columns > 0) {
+                elements = (double[]) matrix.elements();
+                rowOffsets = new int[rows];
+                columnOffsets = new int[columns];
+                long zero = matrix.index(0, 0);
+                for (int i = 0; i < rows; i++) {
+                    rowOffsets[i] = (int) matrix.index(i, 0);
+                }
+                for (int j = 0; j < columns; j++) {
+                    columnOffsets[j] = (int) (matrix.index(0, j) - zero);
+                }
+            } else {
+                elements = null;
+                rowOffsets = null;
+                columnOffsets = null;
+            }
+        }
+
+        double get(int row, int column) {
+            if (elements != null) {
+                return elements[rowOffsets[row] + columnOffsets[column]];
+            }
+            return matrix.getQuick(row, column);
+        }
+
+        void set(int row, int column, double value) {
+            if (elements != null) {
+                elements[rowOffsets[row] + columnOffsets[column]] = value;
+            } else {
+                matrix.setQuick(row, column, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,565 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Immutable sparse row-compressed 2-d matrix holding <tt>double</tt> elements.
+ * First see the <a href="package-summary.html">package summary</a> and javadoc
+ * <a href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * A snapshot of another matrix, taken by
+ * {@link SparseRCDoubleMatrix2D#freeze()},
+ * {@link SparseCCDoubleMatrix2D#freeze()} or one of the constructors. The cells
+ * are kept in the row-compressed format with sorted column indexes, without
+ * duplicates and without zeros. Nothing is ever written after construction, so
+ * no method synchronizes: any number of threads can read cells and compute
+ * matrix-vector products at the same time, once the matrix has been safely
+ * published (e.g. through a final or volatile field or a concurrent
+ * collection). Every attempt to change a cell throws an
+ * <tt>IllegalArgumentException</tt>; {@link #getRowCompressed()} returns a
+ * mutable copy.
+ * <p>
+ * The partition of the rows among the threads of the matrix-vector product is
+ * balanced by the number of non-zeros and computed once, at construction.
+ * Single cells are found by one of the lookups of {@link Index}.
+ * <p>
+ * <b>Time complexity:</b>
+ * <p>
+ * Getting a cell takes time <tt>O(log nzr)</tt> with {@link Index#NONE}, where
+ * <tt>nzr</tt> is the number of non-zeros in its row, and expected constant
+ * time with the other indexes.
+ */
+public class FrozenSparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D implements CompressedDoubleMatrix2DSource {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The lookup used by {@link FrozenSparseRCDoubleMatrix2D#getQuick(int, int)}
+     * .
+     */
+    public enum Index {
+        /**
+         * Binary search in the row; no additional memory.
+         */
+        NONE,
+        /**
+         * Open-addressing hash table from cells to positions; 24 to 48 bytes
+         * per non-zero.
+         */
+        HASH,
+        /**
+         * One bit per cell and one rank per 64 cells; about
+         * <tt>3*rows*columns/16</tt> bytes, so only for matrices that are not
+         * too sparse.
+         */
+        BITMAP
+    }
+
+    /*
+     * Marks an empty slot of the hash table.
+     */
+    private static final long EMPTY = -1L;
+
+    private final int[] rowPointers;
+
+    private final int[] columnIndexes;
+
+    private final double[] values;
+
+    private final Index index;
+
+    /*
+     * Hash table: the key (row * columns + column) and the position in values
+     * of every slot.
+     */
+    private final long[] keys;
+
+    private final int[] slots;
+
+    private final int shift;
+
+    /*
+     * Bitmap: bit (row * columns + column) is set for every stored cell, and
+     * ranks[w] is the number of bits set in the words before bits[w].
+     */
+    private final long[] bits;
+
+    private final int[] ranks;
+
+    /*
+     * First row of every thread of zMult.
+     */
+    private final int[] firstRows;
+
+    /**
+     * Constructs an immutable copy of the given matrix with the lookup chosen
+     * by {@link #chooseIndex(int, int, int)}.
+     * 
+     * @param A
+     *            the matrix to copy.
+     */
+    public FrozenSparseRCDoubleMatrix2D(DoubleMatrix2D A) {
+        this(null, rowCompressed(A));
+    }
+
+    /**
+     * Constructs an immutable copy of the given matrix.
+     * 
+     * @param A
+     *            the matrix to copy.
+     * @param index
+     *            the lookup of single cells, or <tt>null</tt> for the one
+     *            chosen by {@link #chooseIndex(int, int, int)}.
+     * @throws IllegalArgumentException
+     *             if the matrix is too large for the given index.
+     */
+    public FrozenSparseRCDoubleMatrix2D(DoubleMatrix2D A, Index index) {
+        this(index, rowCompressed(A));
+    }
+
+    private FrozenSparseRCDoubleMatrix2D(Index index, SparseRCDoubleMatrix2D A) {
+        super(null);
+        try {
+            setUp(A.rows(), A.columns());
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        // A is a private copy, sorted by rowCompressed
+        int[] rowPointersA = A.rowPointers;
+        int[] columnIndexesA = A.columnIndexes;
+        double[] valuesA = A.values;
+        int nz = 0;
+        for (int i = 0; i < rows; i++) {
+            int p = rowPointersA[i];
+            rowPointersA[i] = nz;
+            int low = nz;
+            for (; p < rowPointersA[i + 1]; p++) {
+                if (nz > low && columnIndexesA[nz - 1] == columnIndexesA[p]) {
+                    valuesA[nz - 1] += valuesA[p]; // duplicate
+                } else {
+                    columnIndexesA[nz] = columnIndexesA[p];
+                    valuesA[nz++] = valuesA[p];
+                }
+            }
+            // drop the zeros of the row
+            int q = low;
+            for (int k = low; k < nz; k++) {
+                if (valuesA[k] != 0) {
+                    columnIndexesA[q] = columnIndexesA[k];
+                    valuesA[q++] = valuesA[k];
+                }
+            }
+            nz = q;
+        }
+        rowPointersA[rows] = nz;
+        this.rowPointers = rowPointersA;
+        if (columnIndexesA.length == nz) {
+            this.columnIndexes = columnIndexesA;
+            this.values = valuesA;
+        } else {
+            this.columnIndexes = new int[nz];
+            this.values = new double[nz];
+            System.arraycopy(columnIndexesA, 0, columnIndexes, 0, nz);
+            System.arraycopy(valuesA, 0, values, 0, nz);
+        }
+        if (index == null)
+            index = chooseIndex(rows, columns, nz);
+        this.index = index;
+
+        if (index == Index.HASH) {
+            if (nz > (1 << 29))
+                throw new IllegalArgumentException("matrix too large for a hash index");
+            int capacity = 2;
+            int log = 1;
+            while (capacity < 2 * nz) {
+                capacity <<= 1;
+                log++;
+            }
+            shift = 64 - log;
+            keys = new long[capacity];
+            slots = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            int mask = capacity - 1;
+            for (int i = 0; i < rows; i++) {
+                for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+                    long key = (long) i * columns + columnIndexes[k];
+                    int h = hash(key);
+                    while (keys[h] != EMPTY) {
+                        h = (h + 1) & mask;
+                    }
+                    keys[h] = key;
+                    slots[h] = k;
+                }
+            }
+        } else {
+            shift = 0;
+            keys = null;
+            slots = null;
+        }
+
+        if (index == Index.BITMAP) {
+            long nwords = ((long) rows * columns + 63) >>> 6;
+            if (nwords > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("matrix too large for a bitmap index");
+            bits = new long[(int) nwords];
+            ranks = new int[(int) nwords];
+            for (int i = 0; i < rows; i++) {
+                for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+                    long b = (long) i * columns + columnIndexes[k];
+                    bits[(int) (b >>> 6)] |= 1L << b;
+                }
+            }
+            int rank = 0;
+            for (int w = 0; w < bits.length; w++) {
+                ranks[w] = rank;
+                rank += Long.bitCount(bits[w]);
+            }
+        } else {
+            bits = null;
+            ranks = null;
+        }
+
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(nz, rows);
+        firstRows = SparseCompressedDoubleMatrix2DConversion.split(rowPointers, rows, nthreads);
+    }
+
+    /**
+     * Chooses the lookup for a matrix of the given shape and number of
+     * non-zeros: the bitmap if it takes no more memory than the hash table,
+     * and the hash table otherwise.
+     * 
+     * @param rows
+     *            the number of rows.
+     * @param columns
+     *            the number of columns.
+     * @param nnz
+     *            the number of non-zeros.
+     * @return the lookup
+     */
+    public static Index chooseIndex(int rows, int columns, int nnz) {
+        // 3/16 bytes per cell against 2 * 12 bytes per non-zero
+        if ((long) rows * columns <= 128L * nnz) {
+            return Index.BITMAP;
+        }
+        return (nnz > (1 << 29)) ? Index.NONE : Index.HASH;
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleProcedure cond,
+            final cern.colt.function.tdouble.DoubleFunction function) {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleProcedure cond, final double value) {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public DoubleMatrix2D assign(double value) {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public DoubleMatrix2D assign(final double[] values) {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public DoubleMatrix2D assign(final double[][] values) {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        if (source == this)
+            return this; // nothing to do
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public DoubleMatrix2D assign(final DoubleMatrix2D y, final cern.colt.function.tdouble.DoubleDoubleFunction function) {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public DoubleMatrix2D assign(final DoubleMatrix2D y,
+            final cern.colt.function.tdouble.DoubleDoubleFunction function, IntArrayList rowList,
+            IntArrayList columnList) {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public DoubleMatrix2D assign(final float[] values) {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public int cardinality() {
+        return rowPointers[rows];
+    }
+
+    /**
+     * Returns a copy of the non-zero values, row by row.
+     * 
+     * @return the non-zero values
+     */
+    public double[] elements() {
+        return values.clone();
+    }
+
+    public DoubleMatrix2D forEachNonZero(final cern.colt.function.tdouble.IntIntDoubleFunction function) {
+        for (int i = 0; i < rows; i++) {
+            for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+                double value = values[k];
+                // compares the bits, so that returning a stored NaN is no
+                // modification
+                if (Double.doubleToLongBits(function.apply(i, columnIndexes[k], value)) != Double
+                        .doubleToLongBits(value))
+                    throw new IllegalArgumentException("Attempted to modify immutable object.");
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the lookup of single cells.
+     * 
+     * @return the lookup
+     */
+    public Index getIndex() {
+        return index;
+    }
+
+    public double getQuick(int row, int column) {
+        switch (index) {
+        case HASH:
+            long key = (long) row * columns + column;
+            int mask = keys.length - 1;
+            int h = hash(key);
+            while (true) {
+                long stored = keys[h];
+                if (stored == key)
+                    return values[slots[h]];
+                if (stored == EMPTY)
+                    return 0;
+                h = (h + 1) & mask;
+            }
+        case BITMAP:
+            long b = (long) row * columns + column;
+            int w = (int) (b >>> 6);
+            long bit = 1L << b;
+            long word = bits[w];
+            if ((word & bit) == 0)
+                return 0;
+            return values[ranks[w] + Long.bitCount(word & (bit - 1))];
+        default:
+            int k = cern.colt.Sorting.binarySearchFromTo(columnIndexes, column, rowPointers[row],
+                    rowPointers[row + 1] - 1);
+            return (k >= 0) ? values[k] : 0;
+        }
+    }
+
+    /**
+     * Returns a new mutable matrix that has the same elements as this matrix,
+     * in a column-compressed form.
+     * 
+     * @return this matrix in a column-compressed form
+     */
+    public SparseCCDoubleMatrix2D getColumnCompressed() {
+        // the transposition only reads the arrays, which need not be copied
+        return new SparseRCDoubleMatrix2D(rows, columns, rowPointers, columnIndexes, values).getColumnCompressed();
+    }
+
+    /**
+     * Returns a new mutable matrix that has the same elements as this matrix.
+     * 
+     * @return this matrix in a row-compressed form
+     */
+    public SparseRCDoubleMatrix2D getRowCompressed() {
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(rows, columns, rowPointers.clone(), columnIndexes
+                .clone(), values.clone());
+        R.columnIndexesSorted = true;
+        return R;
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        return new SparseRCDoubleMatrix2D(rows, columns);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new SparseDoubleMatrix1D(size);
+    }
+
+    public void normalize() {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public void setQuick(int row, int column, double value) {
+        throw new IllegalArgumentException("Attempted to modify immutable object.");
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(rows).append(" x ").append(columns).append(" frozen sparse matrix, nnz = ").append(
+                cardinality()).append('\n');
+        for (int i = 0; i < rows; i++) {
+            int high = rowPointers[i + 1];
+            for (int j = rowPointers[i]; j < high; j++) {
+                builder.append('(').append(i).append(',').append(columnIndexes[j]).append(')').append('\t').append(
+                        values[j]).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, final double alpha, final double beta,
+            final boolean transposeA) {
+        final int rowsA = transposeA ? columns : rows;
+        final int columnsA = transposeA ? rows : columns;
+
+        boolean ignore = (z == null || !transposeA);
+        if (z == null)
+            z = new DenseDoubleMatrix1D(rowsA);
+
+        if (!(y instanceof DenseDoubleMatrix1D && z instanceof DenseDoubleMatrix1D)) {
+            return super.zMult(y, z, alpha, beta, transposeA);
+        }
+
+        if (columnsA != y.size() || rowsA > z.size())
+            throw new IllegalArgumentException("Incompatible args: "
+                    + ((transposeA ? viewDice() : this).toStringShort()) + ", " + y.toStringShort() + ", "
+                    + z.toStringShort());
+
+        DenseDoubleMatrix1D zz = (DenseDoubleMatrix1D) z;
+        final double[] elementsZ = zz.elements;
+        final int strideZ = zz.stride();
+        final int zeroZ = (int) z.index(0);
+
+        DenseDoubleMatrix1D yy = (DenseDoubleMatrix1D) y;
+        final double[] elementsY = yy.elements;
+        final int strideY = yy.stride();
+        final int zeroY = (int) y.index(0);
+
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(rowPointers[rows], rows);
+        final int[] first = (nthreads == firstRows.length - 1) ? firstRows : SparseCompressedDoubleMatrix2DConversion
+                .split(rowPointers, rows, nthreads);
+
+        if (transposeA) {
+            if ((!ignore) && (beta != 1.0))
+                z.assign(cern.jet.math.tdouble.DoubleFunctions.mult(beta));
+            if (nthreads == 1) {
+                for (int i = 0; i < rows; i++) {
+                    double yElem = alpha * elementsY[zeroY + strideY * i];
+                    for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+                        elementsZ[zeroZ + strideZ * columnIndexes[k]] += values[k] * yElem;
+                    }
+                }
+                return z;
+            }
+            Future<?>[] futures = new Future[nthreads];
+            final double[][] results = new double[nthreads][];
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = first[j];
+                final int lastRow = first[j + 1];
+                final int threadID = j;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        double[] result = new double[columns];
+                        for (int i = firstRow; i < lastRow; i++) {
+                            double yElem = alpha * elementsY[zeroY + strideY * i];
+                            for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+                                result[columnIndexes[k]] += values[k] * yElem;
+                            }
+                        }
+                        results[threadID] = result;
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            int k = columns / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstColumn = j * k;
+                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int i = firstColumn; i < lastColumn; i++) {
+                            double sum = 0;
+                            for (int t = 0; t < results.length; t++) {
+                                sum += results[t][i];
+                            }
+                            elementsZ[zeroZ + strideZ * i] += sum;
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            return z;
+        }
+
+        if (nthreads == 1) {
+            multiply(0, rows, alpha, beta, elementsY, zeroY, strideY, elementsZ, zeroZ, strideZ);
+            return z;
+        }
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstRow = first[j];
+            final int lastRow = first[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    multiply(firstRow, lastRow, alpha, beta, elementsY, zeroY, strideY, elementsZ, zeroZ, strideZ);
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return z;
+    }
+
+    /*
+     * z[row] = alpha * A[row,:] * y + beta * z[row] for the given rows.
+     */
+    private void multiply(int firstRow, int lastRow, double alpha, double beta, double[] y, int zeroY, int strideY,
+            double[] z, int zeroZ, int strideZ) {
+        int k = rowPointers[firstRow];
+        for (int i = firstRow; i < lastRow; i++) {
+            int high = rowPointers[i + 1];
+            double sum = 0;
+            for (; k < high; k++) {
+                sum += values[k] * y[zeroY + strideY * columnIndexes[k]];
+            }
+            int idx = zeroZ + strideZ * i;
+            if (beta == 0.0) {
+                z[idx] = alpha * sum;
+            } else {
+                z[idx] = alpha * sum + beta * z[idx];
+            }
+        }
+    }
+
+    private int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /*
+     * Returns a private row-compressed copy of A with sorted column indexes.
+     */
+    private static SparseRCDoubleMatrix2D rowCompressed(DoubleMatrix2D A) {
+        int rows = A.rows();
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(rows, A.columns(), new int[rows + 1], new int[0],
+                new double[0]);
+        R.assign(A);
+        if (!R.columnIndexesSorted)
+            R.sortColumnIndexes();
+        return R;
+    }
+}
@@ -0,0 +1,724 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Sparse block row-compressed 2-d matrix holding <tt>double</tt> elements.
+ * First see the <a href="package-summary.html">package summary</a> and javadoc
+ * <a href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * The matrix is tiled into blocks of <tt>r x c</tt> cells, and every block
+ * holding at least one non-zero is stored as a small dense row-major block. The
+ * blocks are kept in the row-compressed format: block row pointers and, for
+ * every block, the index of its block column, sorted within a block row. One
+ * column index thus serves <tt>r*c</tt> values, and the matrix-vector product
+ * keeps <tt>r</tt> partial sums in registers and reuses every loaded element
+ * of the vector <tt>r</tt> times. Zeros inside stored blocks cost memory and
+ * time, so the block size should match the structure of the matrix;
+ * {@link #chooseBlockSize(SparseRCDoubleMatrix2D)} picks one from a sample of
+ * the block rows.
+ * <p>
+ * This format is meant for matrices whose structure is fixed, typically the
+ * operator of an iterative solver. It is created from a
+ * {@link SparseRCDoubleMatrix2D}. Cells inside stored blocks can be changed in
+ * place; making a cell outside the stored blocks non-zero rebuilds the whole
+ * matrix.
+ * <p>
+ * <b>Time complexity:</b>
+ * <p>
+ * Getting or setting a cell inside a stored block takes time
+ * <tt>O(log nbr)</tt>, where <tt>nbr</tt> is the number of blocks in its block
+ * row. Making a cell outside the stored blocks non-zero takes time
+ * <tt>O(nnz)</tt>.
+ */
+public class SparseBlockRCDoubleMatrix2D extends WrapperDoubleMatrix2D implements CompressedDoubleMatrix2DSource {
+    private static final long serialVersionUID = 1L;
+
+    /*
+     * Largest block height and width tried by chooseBlockSize.
+     */
+    private static final int MAX_BLOCK_SIZE = 4;
+
+    /*
+     * Number of block rows examined by chooseBlockSize.
+     */
+    private static final int SAMPLE_SIZE = 1024;
+
+    protected int blockHeight;
+
+    protected int blockWidth;
+
+    /*
+     * Start of every block row in blockColumnIndexes.
+     */
+    protected int[] blockRowPointers;
+
+    /*
+     * Block column of every block.
+     */
+    protected int[] blockColumnIndexes;
+
+    /*
+     * Cells of every block, row by row; block k starts at k * blockHeight *
+     * blockWidth.
+     */
+    protected double[] values;
+
+    /**
+     * Constructs a matrix with a given number of rows and columns and
+     * <tt>1 x 1</tt> blocks. All entries are initially <tt>0</tt>.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0</tt> .
+     */
+    public SparseBlockRCDoubleMatrix2D(int rows, int columns) {
+        this(rows, columns, 1, 1);
+    }
+
+    /**
+     * Constructs a matrix with a given number of rows and columns. All entries
+     * are initially <tt>0</tt>.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param blockHeight
+     *            the number of rows of a block.
+     * @param blockWidth
+     *            the number of columns of a block.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0 || blockHeight<1 || blockWidth<1</tt>
+     *             .
+     */
+    public SparseBlockRCDoubleMatrix2D(int rows, int columns, int blockHeight, int blockWidth) {
+        this(new SparseRCDoubleMatrix2D(rows, columns, new int[rows + 1], new int[0], new double[0]), blockHeight,
+                blockWidth);
+    }
+
+    /**
+     * Constructs a matrix with the same cells as the given row-compressed
+     * matrix, with the block size chosen by
+     * {@link #chooseBlockSize(SparseRCDoubleMatrix2D)}.
+     * 
+     * @param A
+     *            the matrix to convert.
+     */
+    public SparseBlockRCDoubleMatrix2D(SparseRCDoubleMatrix2D A) {
+        this(A, chooseBlockSize(A));
+    }
+
+    /**
+     * Constructs a matrix with the same cells as the given row-compressed
+     * matrix.
+     * 
+     * @param A
+     *            the matrix to convert.
+     * @param blockHeight
+     *            the number of rows of a block.
+     * @param blockWidth
+     *            the number of columns of a block.
+     * @throws IllegalArgumentException
+     *             if <tt>blockHeight<1 || blockWidth<1</tt>.
+     */
+    public SparseBlockRCDoubleMatrix2D(SparseRCDoubleMatrix2D A, int blockHeight, int blockWidth) {
+        super(null);
+        try {
+            setUp(A.rows(), A.columns());
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        if (blockHeight < 1 || blockWidth < 1) {
+            throw new IllegalArgumentException("blockHeight<1 || blockWidth<1");
+        }
+        this.blockHeight = blockHeight;
+        this.blockWidth = blockWidth;
+        store(A);
+    }
+
+    private SparseBlockRCDoubleMatrix2D(SparseRCDoubleMatrix2D A, int[] blockSize) {
+        this(A, blockSize[0], blockSize[1]);
+    }
+
+    /**
+     * Chooses the block size for the given matrix. Every block size up to
+     * <tt>4 x 4</tt> is tried on a sample of the block rows, and the one with
+     * the least estimated work per matrix-vector product wins; the estimate
+     * counts the stored cells (zeros included), the loads of the vector and the
+     * block column indexes.
+     * 
+     * @param A
+     *            the matrix.
+     * @return <tt>{blockHeight, blockWidth}</tt>
+     */
+    public static int[] chooseBlockSize(SparseRCDoubleMatrix2D A) {
+        int rows = A.rows();
+        int columns = A.columns();
+        int[] rowPointers = A.rowPointers;
+        int[] columnIndexes = A.columnIndexes;
+        int[] best = new int[] { 1, 1 };
+        double bestCost = Double.MAX_VALUE;
+        for (int r = 1; r <= MAX_BLOCK_SIZE; r++) {
+            int nbr = (rows + r - 1) / r;
+            int step = Math.max(1, nbr / SAMPLE_SIZE);
+            for (int c = 1; c <= MAX_BLOCK_SIZE; c++) {
+                int[] marker = new int[(columns + c - 1) / c];
+                Arrays.fill(marker, -1);
+                long nblocks = 0;
+                long nnz = 0;
+                for (int br = 0; br < nbr; br += step) {
+                    int lastRow = Math.min(rows, (br + 1) * r);
+                    for (int i = br * r; i < lastRow; i++) {
+                        for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                            int bc = columnIndexes[p] / c;
+                            if (marker[bc] != br) {
+                                marker[bc] = br;
+                                nblocks++;
+                            }
+                        }
+                        nnz += rowPointers[i + 1] - rowPointers[i];
+                    }
+                }
+                if (nnz == 0) {
+                    return best;
+                }
+                double cost = (double) nblocks * (r * c + c + 1) / nnz;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best[0] = r;
+                    best[1] = c;
+                }
+            }
+        }
+        return best;
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (alpha == 1)
+                return this;
+            if (alpha != alpha)
+                return super.assign(function); // the funny definition of isNaN(). This should better not happen.
+            for (int k = 0; k < values.length; k++) {
+                values[k] *= alpha;
+            }
+            return this;
+        }
+        return super.assign(function);
+    }
+
+    public DoubleMatrix2D assign(double value) {
+        if (value == 0) {
+            Arrays.fill(values, 0);
+            return this;
+        }
+        return super.assign(value);
+    }
+
+    public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        if (source == this)
+            return this; // nothing to do
+        checkShape(source);
+        SparseRCDoubleMatrix2D A = new SparseRCDoubleMatrix2D(rows, columns);
+        A.assign(source);
+        store(A);
+        return this;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int k = 0; k < values.length; k++) {
+            if (values[k] != 0) {
+                cardinality++;
+            }
+        }
+        return cardinality;
+    }
+
+    public double[] elements() {
+        return values;
+    }
+
+    public DoubleMatrix2D forEachNonZero(final cern.colt.function.tdouble.IntIntDoubleFunction function) {
+        int nbr = blockRowPointers.length - 1;
+        int rc = blockHeight * blockWidth;
+        for (int br = 0; br < nbr; br++) {
+            for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                int v = k * rc;
+                for (int ii = 0; ii < blockHeight; ii++) {
+                    for (int jj = 0; jj < blockWidth; jj++, v++) {
+                        double value = values[v];
+                        if (value != 0) {
+                            double r = function.apply(br * blockHeight + ii, blockColumnIndexes[k] * blockWidth + jj,
+                                    value);
+                            if (r != value)
+                                values[v] = r;
+                        }
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of rows of a block.
+     * 
+     * @return the block height
+     */
+    public int getBlockHeight() {
+        return blockHeight;
+    }
+
+    /**
+     * Returns the number of columns of a block.
+     * 
+     * @return the block width
+     */
+    public int getBlockWidth() {
+        return blockWidth;
+    }
+
+    public synchronized double getQuick(int row, int column) {
+        int k = search(row, column);
+        return (k >= 0) ? values[k] : 0;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, but is in
+     * a column-compressed form. This method creates a new object (not a view),
+     * so changes in the returned matrix are NOT reflected in this matrix.
+     * 
+     * @return this matrix in a column-compressed form
+     */
+    public SparseCCDoubleMatrix2D getColumnCompressed() {
+        return getRowCompressed().getColumnCompressed();
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, but is in
+     * a row-compressed form. Zeros inside the blocks are not stored. This
+     * method creates a new object (not a view), so changes in the returned
+     * matrix are NOT reflected in this matrix.
+     * 
+     * @return this matrix in a row-compressed form
+     */
+    public SparseRCDoubleMatrix2D getRowCompressed() {
+        final int nbr = blockRowPointers.length - 1;
+        final int rc = blockHeight * blockWidth;
+        final int[] rowPointers = new int[rows + 1];
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(values.length, nbr);
+        final int[] firstBlockRow = SparseCompressedDoubleMatrix2DConversion.split(blockRowPointers, nbr, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstBlockRow[j];
+            final int lastIdx = firstBlockRow[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int br = firstIdx; br < lastIdx; br++) {
+                        int nrows = Math.min(blockHeight, rows - br * blockHeight);
+                        for (int ii = 0; ii < nrows; ii++) {
+                            int count = 0;
+                            for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                                int v = k * rc + ii * blockWidth;
+                                for (int jj = 0; jj < blockWidth; jj++) {
+                                    if (values[v + jj] != 0) {
+                                        count++;
+                                    }
+                                }
+                            }
+                            rowPointers[br * blockHeight + ii + 1] = count;
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        for (int i = 0; i < rows; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+        final int[] columnIndexesR = new int[rowPointers[rows]];
+        final double[] valuesR = new double[rowPointers[rows]];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstBlockRow[j];
+            final int lastIdx = firstBlockRow[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int br = firstIdx; br < lastIdx; br++) {
+                        int nrows = Math.min(blockHeight, rows - br * blockHeight);
+                        for (int ii = 0; ii < nrows; ii++) {
+                            int p = rowPointers[br * blockHeight + ii];
+                            for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                                int v = k * rc + ii * blockWidth;
+                                int column = blockColumnIndexes[k] * blockWidth;
+                                for (int jj = 0; jj < blockWidth; jj++) {
+                                    double value = values[v + jj];
+                                    if (value != 0) {
+                                        columnIndexesR[p] = column + jj;
+                                        valuesR[p++] = value;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(rows, columns, rowPointers, columnIndexesR, valuesR);
+        R.columnIndexesSorted = true;
+        return R;
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        return new SparseRCDoubleMatrix2D(rows, columns);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new SparseDoubleMatrix1D(size);
+    }
+
+    public synchronized void setQuick(int row, int column, double value) {
+        int k = search(row, column);
+        if (k >= 0) {
+            values[k] = value;
+        } else if (value != 0) {
+            SparseRCDoubleMatrix2D A = getRowCompressed();
+            A.setQuick(row, column, value);
+            store(A);
+        }
+    }
+
+    public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, final double alpha, final double beta,
+            final boolean transposeA) {
+        final int rowsA = transposeA ? columns : rows;
+        final int columnsA = transposeA ? rows : columns;
+
+        boolean ignore = (z == null || !transposeA);
+        if (z == null)
+            z = new DenseDoubleMatrix1D(rowsA);
+
+        if (!(y instanceof DenseDoubleMatrix1D && z instanceof DenseDoubleMatrix1D)) {
+            return super.zMult(y, z, alpha, beta, transposeA);
+        }
+
+        if (columnsA != y.size() || rowsA > z.size())
+            throw new IllegalArgumentException("Incompatible args: "
+                    + ((transposeA ? viewDice() : this).toStringShort()) + ", " + y.toStringShort() + ", "
+                    + z.toStringShort());
+
+        DenseDoubleMatrix1D zz = (DenseDoubleMatrix1D) z;
+        final double[] elementsZ = zz.elements;
+        final int strideZ = zz.stride();
+        final int zeroZ = (int) z.index(0);
+
+        DenseDoubleMatrix1D yy = (DenseDoubleMatrix1D) y;
+        final int nbr = blockRowPointers.length - 1;
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(values.length, nbr);
+        final int[] firstBlockRow = SparseCompressedDoubleMatrix2DConversion.split(blockRowPointers, nbr, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+
+        if (transposeA) {
+            if ((!ignore) && (beta != 1.0))
+                z.assign(cern.jet.math.tdouble.DoubleFunctions.mult(beta));
+            final double[] elementsY = yy.elements;
+            final int strideY = yy.stride();
+            final int zeroY = (int) y.index(0);
+            final int length = ((columns + blockWidth - 1) / blockWidth) * blockWidth;
+            final double[][] results = new double[nthreads][];
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = firstBlockRow[j];
+                final int lastIdx = firstBlockRow[j + 1];
+                final int threadID = j;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        double[] result = new double[length];
+                        multiplyTransposed(firstIdx, lastIdx, alpha, elementsY, zeroY, strideY, result);
+                        results[threadID] = result;
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            int k = columns / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstColumn = j * k;
+                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int i = firstColumn; i < lastColumn; i++) {
+                            double sum = 0;
+                            for (int t = 0; t < results.length; t++) {
+                                sum += results[t][i];
+                            }
+                            elementsZ[zeroZ + strideZ * i] += sum;
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            return z;
+        }
+
+        // the kernels read whole blocks of y, so y must be contiguous and padded to full blocks
+        final double[] elementsY;
+        final int zeroY;
+        if (yy.stride() == 1 && columns % blockWidth == 0) {
+            elementsY = yy.elements;
+            zeroY = (int) y.index(0);
+        } else {
+            elementsY = new double[((columns + blockWidth - 1) / blockWidth) * blockWidth];
+            for (int i = 0; i < columns; i++) {
+                elementsY[i] = y.getQuick(i);
+            }
+            zeroY = 0;
+        }
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstBlockRow[j];
+            final int lastIdx = firstBlockRow[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    multiply(firstIdx, lastIdx, alpha, beta, elementsY, zeroY, elementsZ, zeroZ, strideZ);
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return z;
+    }
+
+    /*
+     * z[row] = alpha * A[row,:] * y + beta * z[row] for the rows of the given
+     * block rows. y is contiguous and padded to a multiple of blockWidth.
+     */
+    private void multiply(int firstBlockRow, int lastBlockRow, double alpha, double beta, double[] y, int zeroY,
+            double[] z, int zeroZ, int strideZ) {
+        final int r = blockHeight;
+        final int c = blockWidth;
+        double[] sum = new double[r];
+        for (int br = firstBlockRow; br < lastBlockRow; br++) {
+            int low = blockRowPointers[br];
+            int high = blockRowPointers[br + 1];
+            if (r == 2 && c == 2) {
+                double s0 = 0, s1 = 0;
+                for (int k = low; k < high; k++) {
+                    int x = zeroY + 2 * blockColumnIndexes[k];
+                    int v = 4 * k;
+                    double y0 = y[x];
+                    double y1 = y[x + 1];
+                    s0 += values[v] * y0 + values[v + 1] * y1;
+                    s1 += values[v + 2] * y0 + values[v + 3] * y1;
+                }
+                sum[0] = s0;
+                sum[1] = s1;
+            } else if (r == 3 && c == 3) {
+                double s0 = 0, s1 = 0, s2 = 0;
+                for (int k = low; k < high; k++) {
+                    int x = zeroY + 3 * blockColumnIndexes[k];
+                    int v = 9 * k;
+                    double y0 = y[x];
+                    double y1 = y[x + 1];
+                    double y2 = y[x + 2];
+                    s0 += values[v] * y0 + values[v + 1] * y1 + values[v + 2] * y2;
+                    s1 += values[v + 3] * y0 + values[v + 4] * y1 + values[v + 5] * y2;
+                    s2 += values[v + 6] * y0 + values[v + 7] * y1 + values[v + 8] * y2;
+                }
+                sum[0] = s0;
+                sum[1] = s1;
+                sum[2] = s2;
+            } else if (r == 4 && c == 4) {
+                double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                for (int k = low; k < high; k++) {
+                    int x = zeroY + 4 * blockColumnIndexes[k];
+                    int v = 16 * k;
+                    double y0 = y[x];
+                    double y1 = y[x + 1];
+                    double y2 = y[x + 2];
+                    double y3 = y[x + 3];
+                    s0 += values[v] * y0 + values[v + 1] * y1 + values[v + 2] * y2 + values[v + 3] * y3;
+                    s1 += values[v + 4] * y0 + values[v + 5] * y1 + values[v + 6] * y2 + values[v + 7] * y3;
+                    s2 += values[v + 8] * y0 + values[v + 9] * y1 + values[v + 10] * y2 + values[v + 11] * y3;
+                    s3 += values[v + 12] * y0 + values[v + 13] * y1 + values[v + 14] * y2 + values[v + 15] * y3;
+                }
+                sum[0] = s0;
+                sum[1] = s1;
+                sum[2] = s2;
+                sum[3] = s3;
+            } else {
+                for (int ii = 0; ii < r; ii++) {
+                    sum[ii] = 0;
+                }
+                for (int k = low; k < high; k++) {
+                    int x = zeroY + c * blockColumnIndexes[k];
+                    int v = r * c * k;
+                    for (int ii = 0; ii < r; ii++) {
+                        double s = 0;
+                        for (int jj = 0; jj < c; jj++) {
+                            s += values[v++] * y[x + jj];
+                        }
+                        sum[ii] += s;
+                    }
+                }
+            }
+            int firstRow = br * r;
+            int nrows = Math.min(r, rows - firstRow);
+            for (int ii = 0; ii < nrows; ii++) {
+                int idx = zeroZ + strideZ * (firstRow + ii);
+                if (beta == 0.0) {
+                    z[idx] = alpha * sum[ii];
+                } else {
+                    z[idx] = alpha * sum[ii] + beta * z[idx];
+                }
+            }
+        }
+    }
+
+    /*
+     * z += alpha * A[rows of the given block rows,:]' * y[rows of the given
+     * block rows]. z is contiguous and padded to a multiple of blockWidth.
+     */
+    private void multiplyTransposed(int firstBlockRow, int lastBlockRow, double alpha, double[] y, int zeroY,
+            int strideY, double[] z) {
+        final int r = blockHeight;
+        final int c = blockWidth;
+        double[] ay = new double[r];
+        for (int br = firstBlockRow; br < lastBlockRow; br++) {
+            int firstRow = br * r;
+            for (int ii = 0; ii < r; ii++) {
+                ay[ii] = (firstRow + ii < rows) ? alpha * y[zeroY + strideY * (firstRow + ii)] : 0;
+            }
+            for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                int x = c * blockColumnIndexes[k];
+                int v = r * c * k;
+                for (int ii = 0; ii < r; ii++) {
+                    double a = ay[ii];
+                    for (int jj = 0; jj < c; jj++) {
+                        z[x + jj] += values[v++] * a;
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns the position of cell (row, column) in values, or -1 if its block
+     * is not stored.
+     */
+    private int search(int row, int column) {
+        int br = row / blockHeight;
+        int bc = column / blockWidth;
+        int k = cern.colt.Sorting.binarySearchFromTo(blockColumnIndexes, bc, blockRowPointers[br],
+                blockRowPointers[br + 1] - 1);
+        if (k < 0)
+            return -1;
+        return (k * blockHeight + row - br * blockHeight) * blockWidth + column - bc * blockWidth;
+    }
+
+    /*
+     * Fills the internal storage with the cells of A.
+     */
+    private void store(SparseRCDoubleMatrix2D A) {
+        final int[] rowPointersA = A.rowPointers;
+        final int[] columnIndexesA = A.columnIndexes;
+        final double[] valuesA = A.values;
+        final int r = blockHeight;
+        final int c = blockWidth;
+        final int nbr = (rows + r - 1) / r;
+        final int nbc = (columns + c - 1) / c;
+        blockRowPointers = new int[nbr + 1];
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(rowPointersA[rows], nbr);
+        Future<?>[] futures = new Future[nthreads];
+        int k = nbr / nthreads;
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = j * k;
+            final int lastIdx = (j == nthreads - 1) ? nbr : firstIdx + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    int[] marker = new int[nbc];
+                    Arrays.fill(marker, -1);
+                    for (int br = firstIdx; br < lastIdx; br++) {
+                        int count = 0;
+                        int lastRow = Math.min(rows, (br + 1) * r);
+                        for (int i = br * r; i < lastRow; i++) {
+                            for (int p = rowPointersA[i]; p < rowPointersA[i + 1]; p++) {
+                                int bc = columnIndexesA[p] / c;
+                                if (marker[bc] != br) {
+                                    marker[bc] = br;
+                                    count++;
+                                }
+                            }
+                        }
+                        blockRowPointers[br + 1] = count;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        long size = 0;
+        for (int br = 0; br < nbr; br++) {
+            size += blockRowPointers[br + 1];
+            blockRowPointers[br + 1] = (int) size;
+        }
+        if (size * r * c > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("matrix too large");
+        blockColumnIndexes = new int[(int) size];
+        values = new double[(int) size * r * c];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = j * k;
+            final int lastIdx = (j == nthreads - 1) ? nbr : firstIdx + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    int[] marker = new int[nbc];
+                    int[] position = new int[nbc];
+                    Arrays.fill(marker, -1);
+                    for (int br = firstIdx; br < lastIdx; br++) {
+                        int low = blockRowPointers[br];
+                        int high = low;
+                        int firstRow = br * r;
+                        int lastRow = Math.min(rows, firstRow + r);
+                        for (int i = firstRow; i < lastRow; i++) {
+                            for (int p = rowPointersA[i]; p < rowPointersA[i + 1]; p++) {
+                                int bc = columnIndexesA[p] / c;
+                                if (marker[bc] != br) {
+                                    marker[bc] = br;
+                                    blockColumnIndexes[high++] = bc;
+                                }
+                            }
+                        }
+                        Arrays.sort(blockColumnIndexes, low, high);
+                        for (int q = low; q < high; q++) {
+                            position[blockColumnIndexes[q]] = q;
+                        }
+                        for (int i = firstRow; i < lastRow; i++) {
+                            for (int p = rowPointersA[i]; p < rowPointersA[i + 1]; p++) {
+                                int column = columnIndexesA[p];
+                                int bc = column / c;
+                                values[(position[bc] * r + i - firstRow) * c + column - bc * c] += valuesA[p];
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+    }
+}
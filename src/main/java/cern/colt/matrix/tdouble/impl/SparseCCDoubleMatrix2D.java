@@ -20,7 +20,6 @@ import edu.emory.mathcs.csparsej.tdouble.Dcs_cumsum;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_dropzeros;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_dupl;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_multiply;
-import edu.emory.mathcs.csparsej.tdouble.Dcs_transpose;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_util;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcs;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
@@ -81,7 +80,10 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
  * If for whatever reasons you can't iterate properly, consider to create an
  * empty dense matrix, store your non-zeros in it, then call
  * <tt>sparse.assign(dense)</tt>. Under the circumstances, this is still rather
- * quick.
+ * quick. Large matrices, for instance from a finite-element assembly, are best
+ * assembled from coordinate triplets with
+ * {@link SparseCompressedDoubleMatrix2DBuilder}, which also accepts triplets
+ * from many threads at the same time.
  * <p>
  * Fast iteration over non-zeros can be done via {@link #forEachNonZero}, which
  * supplies your function with row, column and value of each nonzero. Although
@@ -306,13 +308,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
             }
         }
         if (sortRowIndexes) {
-            //sort row indexes
-            dcs = Dcs_transpose.cs_transpose(dcs, true);
-            dcs = Dcs_transpose.cs_transpose(dcs, true);
-            if (dcs == null) {
-                throw new IllegalArgumentException("Exception occured in cs_transpose()!");
-            }
-            rowIndexesSorted = true;
+            sortRowIndexes();
         }
     }
 
@@ -376,12 +372,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         }
         //sort row indexes
         if (sortRowIndexes) {
-            dcs = Dcs_transpose.cs_transpose(dcs, true);
-            dcs = Dcs_transpose.cs_transpose(dcs, true);
-            if (dcs == null) {
-                throw new IllegalArgumentException("Exception occured in cs_transpose()!");
-            }
-            rowIndexesSorted = true;
+            sortRowIndexes();
         }
     }
 
@@ -447,6 +438,14 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
             this.dcs.x = other.getValues();
             this.dcs.nzmax = this.dcs.x.length;
             rowIndexesSorted = true;
+        } else if (source instanceof DenseDoubleMatrix2D) {
+            SparseCCDoubleMatrix2D other = SparseCompressedDoubleMatrix2DConversion.toColumnCompressed(source);
+            this.dcs = other.dcs;
+            rowIndexesSorted = true;
+        } else if (source instanceof CompressedDoubleMatrix2DSource) {
+            SparseCCDoubleMatrix2D other = ((CompressedDoubleMatrix2DSource) source).getColumnCompressed();
+            this.dcs = other.dcs;
+            rowIndexesSorted = other.rowIndexesSorted;
         } else {
             assign(0);
             source.forEachNonZero(new cern.colt.function.tdouble.IntIntDoubleFunction() {
@@ -554,6 +553,18 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         return this;
     }
 
+    /**
+     * Returns an immutable copy of this matrix that can be read and multiplied
+     * by any number of threads without synchronization. The copy is
+     * row-compressed.
+     * 
+     * @return an immutable copy of this matrix
+     * @see FrozenSparseRCDoubleMatrix2D
+     */
+    public FrozenSparseRCDoubleMatrix2D freeze() {
+        return new FrozenSparseRCDoubleMatrix2D(this);
+    }
+
     /**
      * Returns column pointers
      * 
@@ -571,14 +582,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * @return this matrix in a dense form
      */
     public DenseDoubleMatrix2D getDense() {
-        final DenseDoubleMatrix2D dense = new DenseDoubleMatrix2D(rows, columns);
-        forEachNonZero(new cern.colt.function.tdouble.IntIntDoubleFunction() {
-            public double apply(int i, int j, double value) {
-                dense.setQuick(i, j, getQuick(i, j));
-                return value;
-            }
-        });
-        return dense;
+        return SparseCompressedDoubleMatrix2DConversion.toDense(this);
     }
 
     public synchronized double getQuick(int row, int column) {
@@ -598,13 +602,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * @return this matrix in a row-compressed form
      */
     public SparseRCDoubleMatrix2D getRowCompressed() {
-        Dcs dcst = Dcs_transpose.cs_transpose(dcs, true);
-        SparseRCDoubleMatrix2D rc = new SparseRCDoubleMatrix2D(rows, columns);
-        rc.columnIndexes = dcst.i;
-        rc.rowPointers = dcst.p;
-        rc.values = dcst.x;
-        rc.columnIndexesSorted = true;
-        return rc;
+        return SparseCompressedDoubleMatrix2DConversion.toRowCompressed(this);
     }
 
     /**
@@ -624,9 +622,14 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * @return the transpose of this matrix
      */
     public SparseCCDoubleMatrix2D getTranspose() {
-        Dcs dcst = Dcs_transpose.cs_transpose(dcs, true);
-        SparseCCDoubleMatrix2D tr = new SparseCCDoubleMatrix2D(columns, rows);
-        tr.dcs = dcst;
+        int nnz = dcs.p[columns];
+        int[] columnPointersT = new int[rows + 1];
+        int[] rowIndexesT = new int[nnz];
+        double[] valuesT = new double[nnz];
+        SparseCompressedDoubleMatrix2DConversion.transpose(columns, rows, dcs.p, dcs.i, dcs.x, columnPointersT, rowIndexesT,
+                valuesT);
+        SparseCCDoubleMatrix2D tr = new SparseCCDoubleMatrix2D(columns, rows, rowIndexesT, columnPointersT, valuesT);
+        tr.rowIndexesSorted = true;
         return tr;
     }
 
@@ -678,11 +681,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * Sorts row indexes
      */
     public void sortRowIndexes() {
-        dcs = Dcs_transpose.cs_transpose(dcs, true);
-        dcs = Dcs_transpose.cs_transpose(dcs, true);
-        if (dcs == null) {
-            throw new IllegalArgumentException("Exception occured in cs_transpose()!");
-        }
+        SparseCompressedDoubleMatrix2DConversion.sortIndexes(columns, rows, dcs.p, dcs.i, dcs.x);
         rowIndexesSorted = true;
     }
 
@@ -6,9 +6,13 @@ import cern.colt.matrix.tdouble.DoubleMatrix2D;
  * Sparse column-compressed-modified 2-d matrix holding <tt>double</tt>
  * elements. Each column is stored as SparseDoubleMatrix1D.
  * 
+ * @deprecated Use {@link SparseColumnListDoubleMatrix2D}, which keeps each
+ *             column as a sorted array of indexes and values.
+ * 
  * @author Piotr Wendykier (piotr.wendykier@gmail.com)
  * 
  */
+@Deprecated
 public class SparseCCMDoubleMatrix2D extends WrapperDoubleMatrix2D {
 
     private static final long serialVersionUID = 1L;
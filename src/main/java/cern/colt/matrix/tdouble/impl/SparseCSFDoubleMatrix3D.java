@@ -0,0 +1,1206 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.concurrent.Future;
+
+import cern.colt.Sorting;
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tint.IntArrayList;
+import cern.colt.list.tlong.LongArrayList;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix3D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Sparse 3-d matrix holding <tt>double</tt> elements in the compressed sparse
+ * fiber (CSF) format. First see the <a href="package-summary.html">package
+ * summary</a> and javadoc <a href="package-tree.html">tree view</a> to get the
+ * broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * The non-zero cells are kept sorted by slice, row and column, and compressed
+ * level by level, in the same way a row-compressed matrix compresses its rows:
+ * <ul>
+ * <li><tt>sliceIndexes[0..n)</tt> are the non-empty slices and
+ * <tt>slicePointers</tt> point to their first fiber;
+ * <li><tt>rowIndexes[f]</tt> is the row of fiber <tt>f</tt> and
+ * <tt>fiberPointers</tt> point to its first cell;
+ * <li><tt>columnIndexes</tt> and <tt>values</tt> hold the column and the value
+ * of each cell.
+ * </ul>
+ * A fiber is the set of non-zero cells of one row of one slice. Slices and
+ * fibers without non-zero cells are not stored.
+ * <p>
+ * Slice-by-slice and fiber-by-fiber traversals are sequential scans, which
+ * makes this class suitable for the kernels of sparse tensor algebra: see
+ * {@link #modeProduct(DoubleMatrix1D, int)},
+ * {@link #modeProduct(DoubleMatrix2D, int)} and
+ * {@link #mttkrp(DoubleMatrix2D[], int)}. Construction from the coordinate
+ * format is done with a parallel counting sort.
+ * <p>
+ * <b>Memory requirements:</b>
+ * <p>
+ * <tt>memory [bytes] = 12 * nonZeros + 8 * fibers + 8 * nonEmptySlices</tt>.
+ * <p>
+ * <b>Time complexity:</b>
+ * <p>
+ * <tt>getQuick</tt> takes <tt>O(log nonEmptySlices + log fibers + log
+ * nonZeros)</tt>. <tt>setQuick</tt> of a new non-zero cell takes
+ * <tt>O(nonZeros)</tt>, like {@link SparseRCDoubleMatrix2D}. Large tensors
+ * should be built from the coordinate format instead.
+ * 
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public class SparseCSFDoubleMatrix3D extends WrapperDoubleMatrix3D {
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    /*
+     * Non-empty slices.
+     */
+    protected int[] sliceIndexes;
+
+    /*
+     * First fiber of each non-empty slice.
+     */
+    protected int[] slicePointers;
+
+    /*
+     * Row of each fiber.
+     */
+    protected int[] rowIndexes;
+
+    /*
+     * First cell of each fiber.
+     */
+    protected int[] fiberPointers;
+
+    /*
+     * Column of each cell.
+     */
+    protected int[] columnIndexes;
+
+    /*
+     * Value of each cell.
+     */
+    protected double[] values;
+
+    /*
+     * Number of non-empty slices.
+     */
+    protected int nslices;
+
+    /**
+     * Constructs a matrix with a copy of the given values. <tt>values</tt> is
+     * required to have the form <tt>values[slice][row][column]</tt> and have
+     * exactly the same number of rows in in every slice and exactly the same
+     * number of columns in in every row.
+     * <p>
+     * The values are copied. So subsequent changes in <tt>values</tt> are not
+     * reflected in the matrix, and vice-versa.
+     * 
+     * @param values
+     *            The values to be filled into the new matrix.
+     * @throws IllegalArgumentException
+     *             if
+     *             <tt>for any 1 &lt;= slice &lt; values.length: values[slice].length != values[slice-1].length</tt>
+     *             .
+     * @throws IllegalArgumentException
+     *             if
+     *             <tt>for any 1 &lt;= row &lt; values[0].length: values[slice][row].length != values[slice][row-1].length</tt>
+     *             .
+     */
+    public SparseCSFDoubleMatrix3D(double[][][] values) {
+        this(values.length, (values.length == 0 ? 0 : values[0].length), (values.length == 0 ? 0
+                : values[0].length == 0 ? 0 : values[0][0].length));
+        IntArrayList sliceList = new IntArrayList();
+        IntArrayList rowList = new IntArrayList();
+        IntArrayList columnList = new IntArrayList();
+        DoubleArrayList valueList = new DoubleArrayList();
+        for (int s = 0; s < slices; s++) {
+            double[][] currentSlice = values[s];
+            if (currentSlice.length != rows)
+                throw new IllegalArgumentException("Must have same number of rows in every slice: rows="
+                        + currentSlice.length + "rows()=" + rows);
+            for (int r = 0; r < rows; r++) {
+                double[] currentRow = currentSlice[r];
+                if (currentRow.length != columns)
+                    throw new IllegalArgumentException("Must have same number of columns in every row: columns="
+                            + currentRow.length + "columns()=" + columns);
+                for (int c = 0; c < columns; c++) {
+                    if (currentRow[c] != 0) {
+                        sliceList.add(s);
+                        rowList.add(r);
+                        columnList.add(c);
+                        valueList.add(currentRow[c]);
+                    }
+                }
+            }
+        }
+        build(sliceList.elements(), rowList.elements(), columnList.elements(), valueList.elements(), sliceList.size());
+    }
+
+    /**
+     * Constructs a matrix with a given number of slices, rows and columns. All
+     * entries are initially <tt>0</tt>.
+     * 
+     * @param slices
+     *            the number of slices the matrix shall have.
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @throws IllegalArgumentException
+     *             if <tt>slices<0 || rows<0 || columns<0</tt>.
+     */
+    public SparseCSFDoubleMatrix3D(int slices, int rows, int columns) {
+        super(null);
+        try {
+            setUp(slices, rows, columns);
+        } catch (IllegalArgumentException exc) { // we can hold slices*rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        clear();
+    }
+
+    /**
+     * Constructs a matrix with indexes and values given in the coordinate
+     * format. The triplets may come in any order; duplicates are summed and
+     * zeros are dropped. The arrays are not modified.
+     * 
+     * @param slices
+     *            the number of slices the matrix shall have.
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param sliceIndexes
+     *            slice indexes
+     * @param rowIndexes
+     *            row indexes
+     * @param columnIndexes
+     *            column indexes
+     * @param values
+     *            numerical values
+     * @throws IllegalArgumentException
+     *             if the arrays have different lengths or an index is out of
+     *             bounds.
+     */
+    public SparseCSFDoubleMatrix3D(int slices, int rows, int columns, int[] sliceIndexes, int[] rowIndexes,
+            int[] columnIndexes, double[] values) {
+        this(slices, rows, columns);
+        if (sliceIndexes.length != rowIndexes.length) {
+            throw new IllegalArgumentException("sliceIndexes.length != rowIndexes.length");
+        } else if (sliceIndexes.length != columnIndexes.length) {
+            throw new IllegalArgumentException("sliceIndexes.length != columnIndexes.length");
+        } else if (sliceIndexes.length != values.length) {
+            throw new IllegalArgumentException("sliceIndexes.length != values.length");
+        }
+        build(sliceIndexes, rowIndexes, columnIndexes, values, values.length);
+    }
+
+    /**
+     * Constructs a matrix with the same size and values as the given matrix.
+     * 
+     * @param source
+     *            the matrix to copy.
+     */
+    public SparseCSFDoubleMatrix3D(DoubleMatrix3D source) {
+        this(source.slices(), source.rows(), source.columns());
+        assign(source);
+    }
+
+    public DoubleMatrix3D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (alpha == 1)
+                return this;
+            if (alpha == 0)
+                return assign(0);
+            if (alpha != alpha)
+                return super.assign(function); // the funny definition of isNaN(). This should better not happen.
+
+            int nnz = cardinality();
+            for (int k = 0; k < nnz; k++) {
+                values[k] *= alpha;
+            }
+            return this;
+        }
+        return super.assign(function);
+    }
+
+    public DoubleMatrix3D assign(double value) {
+        if (value == 0)
+            clear();
+        else
+            super.assign(value);
+        return this;
+    }
+
+    public DoubleMatrix3D assign(DoubleMatrix3D source) {
+        if (source == this)
+            return this;
+        checkShape(source);
+        if (source instanceof SparseCSFDoubleMatrix3D) {
+            SparseCSFDoubleMatrix3D other = (SparseCSFDoubleMatrix3D) source;
+            int nfibers = other.slicePointers[other.nslices];
+            int nnz = other.fiberPointers[nfibers];
+            nslices = other.nslices;
+            sliceIndexes = copy(other.sliceIndexes, nslices);
+            slicePointers = copy(other.slicePointers, nslices + 1);
+            rowIndexes = copy(other.rowIndexes, nfibers);
+            fiberPointers = copy(other.fiberPointers, nfibers + 1);
+            columnIndexes = copy(other.columnIndexes, nnz);
+            values = new double[nnz];
+            System.arraycopy(other.values, 0, values, 0, nnz);
+            return this;
+        }
+        if (haveSharedCells(source)) {
+            source = source.copy();
+        }
+        if (source instanceof SparseDoubleMatrix3D && !source.isView()) {
+            LongArrayList keys = ((SparseDoubleMatrix3D) source).elements().keys();
+            DoubleArrayList valueList = ((SparseDoubleMatrix3D) source).elements().values();
+            int nnz = keys.size();
+            long[] k = keys.elements();
+            long sliceStride = (long) rows * columns;
+            int[] s = new int[nnz];
+            int[] r = new int[nnz];
+            int[] c = new int[nnz];
+            for (int i = 0; i < nnz; i++) {
+                s[i] = (int) (k[i] / sliceStride);
+                r[i] = (int) ((k[i] % sliceStride) / columns);
+                c[i] = (int) (k[i] % columns);
+            }
+            build(s, r, c, valueList.elements(), nnz);
+        } else {
+            IntArrayList sliceList = new IntArrayList();
+            IntArrayList rowList = new IntArrayList();
+            IntArrayList columnList = new IntArrayList();
+            DoubleArrayList valueList = new DoubleArrayList();
+            source.getNonZeros(sliceList, rowList, columnList, valueList);
+            build(sliceList.elements(), rowList.elements(), columnList.elements(), valueList.elements(), sliceList
+                    .size());
+        }
+        return this;
+    }
+
+    public int cardinality() {
+        return fiberPointers[slicePointers[nslices]];
+    }
+
+    /**
+     * Returns the numerical values, in the order of the column indexes.
+     * 
+     * @return numerical values
+     */
+    public double[] elements() {
+        return values;
+    }
+
+    /**
+     * Returns column indexes
+     * 
+     * @return column indexes
+     */
+    public int[] getColumnIndexes() {
+        return columnIndexes;
+    }
+
+    /**
+     * Returns fiber pointers
+     * 
+     * @return fiber pointers
+     */
+    public int[] getFiberPointers() {
+        return fiberPointers;
+    }
+
+    public void getNonZeros(final IntArrayList sliceList, final IntArrayList rowList, final IntArrayList columnList,
+            final DoubleArrayList valueList) {
+        sliceList.clear();
+        rowList.clear();
+        columnList.clear();
+        valueList.clear();
+        for (int i = 0; i < nslices; i++) {
+            int s = sliceIndexes[i];
+            for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+                int r = rowIndexes[f];
+                for (int k = fiberPointers[f]; k < fiberPointers[f + 1]; k++) {
+                    sliceList.add(s);
+                    rowList.add(r);
+                    columnList.add(columnIndexes[k]);
+                    valueList.add(values[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of non-empty slices
+     * 
+     * @return the number of non-empty slices
+     */
+    public int getNonEmptySlices() {
+        return nslices;
+    }
+
+    public synchronized double getQuick(int slice, int row, int column) {
+        int i = Sorting.binarySearchFromTo(sliceIndexes, slice, 0, nslices - 1);
+        if (i < 0)
+            return 0;
+        int f = Sorting.binarySearchFromTo(rowIndexes, row, slicePointers[i], slicePointers[i + 1] - 1);
+        if (f < 0)
+            return 0;
+        int k = Sorting.binarySearchFromTo(columnIndexes, column, fiberPointers[f], fiberPointers[f + 1] - 1);
+        return k < 0 ? 0 : values[k];
+    }
+
+    /**
+     * Returns row indexes
+     * 
+     * @return row indexes
+     */
+    public int[] getRowIndexes() {
+        return rowIndexes;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as the given slice of
+     * this matrix, in a row-compressed form. This method creates a new object
+     * (not a view) in time proportional to the number of non-zero cells of the
+     * slice.
+     * 
+     * @param slice
+     *            the index of the slice.
+     * @return the slice in a row-compressed form
+     * @throws IndexOutOfBoundsException
+     *             if <tt>slice < 0 || slice >= slices()</tt>.
+     */
+    public SparseRCDoubleMatrix2D getSlice(int slice) {
+        checkSlice(slice);
+        int[] rowPointers = new int[rows + 1];
+        int i = Sorting.binarySearchFromTo(sliceIndexes, slice, 0, nslices - 1);
+        if (i < 0) {
+            return new SparseRCDoubleMatrix2D(rows, columns, rowPointers, new int[0], new double[0]);
+        }
+        int first = fiberPointers[slicePointers[i]];
+        int nnz = fiberPointers[slicePointers[i + 1]] - first;
+        for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+            rowPointers[rowIndexes[f] + 1] = fiberPointers[f + 1] - first;
+        }
+        for (int r = 0; r < rows; r++) {
+            rowPointers[r + 1] = Math.max(rowPointers[r + 1], rowPointers[r]);
+        }
+        int[] columnIndexesSlice = new int[nnz];
+        double[] valuesSlice = new double[nnz];
+        System.arraycopy(columnIndexes, first, columnIndexesSlice, 0, nnz);
+        System.arraycopy(values, first, valuesSlice, 0, nnz);
+        SparseRCDoubleMatrix2D A = new SparseRCDoubleMatrix2D(rows, columns, rowPointers, columnIndexesSlice,
+                valuesSlice);
+        A.columnIndexesSorted = true;
+        return A;
+    }
+
+    /**
+     * Returns slice indexes
+     * 
+     * @return slice indexes
+     */
+    public int[] getSliceIndexes() {
+        return sliceIndexes;
+    }
+
+    /**
+     * Returns slice pointers
+     * 
+     * @return slice pointers
+     */
+    public int[] getSlicePointers() {
+        return slicePointers;
+    }
+
+    /**
+     * Returns numerical values
+     * 
+     * @return numerical values
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    public DoubleMatrix3D like(int slices, int rows, int columns) {
+        return new SparseCSFDoubleMatrix3D(slices, rows, columns);
+    }
+
+    public DoubleMatrix2D like2D(int rows, int columns) {
+        return new SparseDoubleMatrix2D(rows, columns);
+    }
+
+    /**
+     * Computes the mode-<tt>n</tt> product of this matrix with a vector,
+     * <tt>Y = X &times;<sub>n</sub> v</tt>. The result has the two remaining
+     * modes of this matrix, in their order: for <tt>mode == 0</tt> it is
+     * <tt>Y[r][c] = Sum(X[s][r][c] * v[s])</tt>, for <tt>mode == 1</tt> it is
+     * <tt>Y[s][c] = Sum(X[s][r][c] * v[r])</tt> and for <tt>mode == 2</tt> it
+     * is <tt>Y[s][r] = Sum(X[s][r][c] * v[c])</tt>.
+     * 
+     * @param v
+     *            the vector, of the size of the given mode.
+     * @param mode
+     *            0 (slices), 1 (rows) or 2 (columns).
+     * @return the product
+     * @throws IllegalArgumentException
+     *             if <tt>mode</tt> is not 0, 1 or 2 or if the size of
+     *             <tt>v</tt> does not match.
+     */
+    public DenseDoubleMatrix2D modeProduct(DoubleMatrix1D v, final int mode) {
+        final int n = dimension(mode);
+        if (v.size() != n)
+            throw new IllegalArgumentException("Incompatible args: " + toStringShort() + ", " + v.toStringShort()
+                    + ", mode=" + mode);
+        final double[] x = toArray(v);
+        final int ncolumns = (mode == 2) ? rows : columns;
+        final DenseDoubleMatrix2D Y = new DenseDoubleMatrix2D((mode == 0) ? rows : slices, ncolumns);
+        final double[] y = Y.elements();
+        if (mode == 0) {
+            // each thread owns a range of rows of the result
+            int nthreads = numberOfThreads(cardinality(), rows);
+            Future<?>[] futures = new Future[nthreads];
+            int k = rows / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int i = 0; i < nslices; i++) {
+                            double xs = x[sliceIndexes[i]];
+                            for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+                                int r = rowIndexes[f];
+                                if (r < firstRow || r >= lastRow)
+                                    continue;
+                                int idx = r * ncolumns;
+                                for (int p = fiberPointers[f]; p < fiberPointers[f + 1]; p++) {
+                                    y[idx + columnIndexes[p]] += xs * values[p];
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            forEachSliceRange(new SliceRangeProcedure() {
+                public void apply(int firstSlice, int lastSlice) {
+                    for (int i = firstSlice; i < lastSlice; i++) {
+                        int idx = sliceIndexes[i] * ncolumns;
+                        for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+                            int r = rowIndexes[f];
+                            if (mode == 1) {
+                                double xr = x[r];
+                                for (int p = fiberPointers[f]; p < fiberPointers[f + 1]; p++) {
+                                    y[idx + columnIndexes[p]] += values[p] * xr;
+                                }
+                            } else {
+                                double sum = 0;
+                                for (int p = fiberPointers[f]; p < fiberPointers[f + 1]; p++) {
+                                    sum += values[p] * x[columnIndexes[p]];
+                                }
+                                y[idx + r] = sum;
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        return Y;
+    }
+
+    /**
+     * Computes the mode-<tt>n</tt> product of this matrix with a matrix,
+     * <tt>Y = X &times;<sub>n</sub> U</tt>, where <tt>U</tt> has as many
+     * columns as this matrix has entries along the given mode. The result has
+     * the size of this matrix, except along the given mode, where it has
+     * <tt>U.rows()</tt> entries. For example, for <tt>mode == 2</tt> it is
+     * <tt>Y[s][r][j] = Sum(X[s][r][c] * U[j][c])</tt>.
+     * 
+     * @param U
+     *            the matrix.
+     * @param mode
+     *            0 (slices), 1 (rows) or 2 (columns).
+     * @return the product
+     * @throws IllegalArgumentException
+     *             if <tt>mode</tt> is not 0, 1 or 2 or if
+     *             <tt>U.columns()</tt> does not match.
+     */
+    public DenseDoubleMatrix3D modeProduct(DoubleMatrix2D U, final int mode) {
+        final int n = dimension(mode);
+        if (U.columns() != n)
+            throw new IllegalArgumentException("Incompatible args: " + toStringShort() + ", " + U.toStringShort()
+                    + ", mode=" + mode);
+        final int m = U.rows();
+        final double[] u = toArray(U);
+        final int rowsY = (mode == 1) ? m : rows;
+        final int columnsY = (mode == 2) ? m : columns;
+        final DenseDoubleMatrix3D Y = new DenseDoubleMatrix3D((mode == 0) ? m : slices, rowsY, columnsY);
+        final double[] y = Y.elements();
+        if (mode == 0) {
+            // each thread owns a range of slices of the result
+            int nthreads = numberOfThreads((long) cardinality() * m, m);
+            Future<?>[] futures = new Future[nthreads];
+            int k = m / nthreads;
+            for (int t = 0; t < nthreads; t++) {
+                final int firstIdx = t * k;
+                final int lastIdx = (t == nthreads - 1) ? m : firstIdx + k;
+                futures[t] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int i = 0; i < nslices; i++) {
+                            int s = sliceIndexes[i];
+                            for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+                                int idx = rowIndexes[f] * columnsY;
+                                for (int p = fiberPointers[f]; p < fiberPointers[f + 1]; p++) {
+                                    int c = idx + columnIndexes[p];
+                                    double value = values[p];
+                                    for (int j = firstIdx; j < lastIdx; j++) {
+                                        y[j * rowsY * columnsY + c] += u[j * n + s] * value;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            final double[] ut = (mode == 2) ? transpose(u, m, n) : null;
+            forEachSliceRange(new SliceRangeProcedure() {
+                public void apply(int firstSlice, int lastSlice) {
+                    for (int i = firstSlice; i < lastSlice; i++) {
+                        int idxSlice = sliceIndexes[i] * rowsY * columnsY;
+                        for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+                            int r = rowIndexes[f];
+                            if (mode == 1) {
+                                for (int p = fiberPointers[f]; p < fiberPointers[f + 1]; p++) {
+                                    int c = idxSlice + columnIndexes[p];
+                                    double value = values[p];
+                                    for (int j = 0; j < m; j++) {
+                                        y[c + j * columnsY] += u[j * n + r] * value;
+                                    }
+                                }
+                            } else {
+                                int idx = idxSlice + r * columnsY;
+                                for (int p = fiberPointers[f]; p < fiberPointers[f + 1]; p++) {
+                                    int c = columnIndexes[p] * m;
+                                    double value = values[p];
+                                    for (int j = 0; j < m; j++) {
+                                        y[idx + j] += value * ut[c + j];
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        return Y;
+    }
+
+    /**
+     * Computes the matricized tensor times Khatri-Rao product (MTTKRP), the
+     * kernel of the alternating least squares algorithm for the CP
+     * decomposition. Given one factor matrix per mode, each with <tt>R</tt>
+     * columns, it computes for <tt>mode == 0</tt>
+     * <tt>M[s][j] = Sum(X[s][r][c] * B[r][j] * C[c][j])</tt>, and likewise
+     * for the other modes, where <tt>A</tt>, <tt>B</tt> and <tt>C</tt> are the
+     * factors of the slices, the rows and the columns.
+     * 
+     * @param factors
+     *            the factor matrices of the three modes;
+     *            <tt>factors[mode]</tt> is not used and can be <tt>null</tt>.
+     * @param mode
+     *            0 (slices), 1 (rows) or 2 (columns).
+     * @return the <tt>dimension(mode) x R</tt> result
+     * @throws IllegalArgumentException
+     *             if <tt>mode</tt> is not 0, 1 or 2 or if the factors have
+     *             incompatible sizes.
+     */
+    public DenseDoubleMatrix2D mttkrp(DoubleMatrix2D[] factors, final int mode) {
+        dimension(mode);
+        if (factors.length != 3)
+            throw new IllegalArgumentException("factors.length != 3");
+        int R = -1;
+        final double[][] a = new double[3][];
+        for (int d = 0; d < 3; d++) {
+            if (d == mode)
+                continue;
+            if (factors[d].rows() != dimension(d) || (R >= 0 && factors[d].columns() != R))
+                throw new IllegalArgumentException("Incompatible args: " + toStringShort() + ", "
+                        + factors[d].toStringShort() + ", mode=" + d);
+            R = factors[d].columns();
+            a[d] = toArray(factors[d]);
+        }
+        final int rank = R;
+        final DenseDoubleMatrix2D M = new DenseDoubleMatrix2D(dimension(mode), rank);
+        final double[] m = M.elements();
+        if (mode == 1) {
+            // each thread owns a range of rows of the result
+            int nthreads = numberOfThreads((long) cardinality() * rank, rows);
+            Future<?>[] futures = new Future[nthreads];
+            int k = rows / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        double[] t = new double[rank];
+                        for (int i = 0; i < nslices; i++) {
+                            int idxs = sliceIndexes[i] * rank;
+                            for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+                                int r = rowIndexes[f];
+                                if (r < firstRow || r >= lastRow)
+                                    continue;
+                                fiberTimesFactor(f, a[2], rank, t);
+                                int idxr = r * rank;
+                                for (int q = 0; q < rank; q++) {
+                                    m[idxr + q] += a[0][idxs + q] * t[q];
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else if (mode == 0) {
+            forEachSliceRange(new SliceRangeProcedure() {
+                public void apply(int firstSlice, int lastSlice) {
+                    double[] t = new double[rank];
+                    for (int i = firstSlice; i < lastSlice; i++) {
+                        int idxs = sliceIndexes[i] * rank;
+                        for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+                            fiberTimesFactor(f, a[2], rank, t);
+                            int idxr = rowIndexes[f] * rank;
+                            for (int q = 0; q < rank; q++) {
+                                m[idxs + q] += a[1][idxr + q] * t[q];
+                            }
+                        }
+                    }
+                }
+            });
+        } else {
+            // columns are shared by all slices, so every thread accumulates
+            // into its own buffer
+            final int size = columns * rank;
+            int nthreads = numberOfThreads((long) cardinality() * rank, nslices);
+            final double[][] buffers = new double[nthreads][];
+            buffers[0] = m;
+            for (int j = 1; j < nthreads; j++) {
+                buffers[j] = new double[size];
+            }
+            final int[] first = splitSlices(nthreads);
+            Future<?>[] futures = new Future[nthreads];
+            for (int j = 0; j < nthreads; j++) {
+                final double[] buffer = buffers[j];
+                final int firstSlice = first[j];
+                final int lastSlice = first[j + 1];
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        double[] w = new double[rank];
+                        for (int i = firstSlice; i < lastSlice; i++) {
+                            int idxs = sliceIndexes[i] * rank;
+                            for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+                                int idxr = rowIndexes[f] * rank;
+                                for (int q = 0; q < rank; q++) {
+                                    w[q] = a[0][idxs + q] * a[1][idxr + q];
+                                }
+                                for (int p = fiberPointers[f]; p < fiberPointers[f + 1]; p++) {
+                                    int idxc = columnIndexes[p] * rank;
+                                    double value = values[p];
+                                    for (int q = 0; q < rank; q++) {
+                                        buffer[idxc + q] += value * w[q];
+                                    }
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            if (nthreads > 1) {
+                int k = size / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstIdx = j * k;
+                    final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int b = 1; b < buffers.length; b++) {
+                                double[] buffer = buffers[b];
+                                for (int i = firstIdx; i < lastIdx; i++) {
+                                    m[i] += buffer[i];
+                                }
+                            }
+                        }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            }
+        }
+        return M;
+    }
+
+    public synchronized void setQuick(int slice, int row, int column, double value) {
+        int i = Sorting.binarySearchFromTo(sliceIndexes, slice, 0, nslices - 1);
+        if (i < 0) {
+            if (value != 0) {
+                i = -i - 1;
+                int f = slicePointers[i];
+                insert(i, true, f, true, fiberPointers[f], slice, row, column, value);
+            }
+            return;
+        }
+        int f = Sorting.binarySearchFromTo(rowIndexes, row, slicePointers[i], slicePointers[i + 1] - 1);
+        if (f < 0) {
+            if (value != 0) {
+                f = -f - 1;
+                insert(i, false, f, true, fiberPointers[f], slice, row, column, value);
+            }
+            return;
+        }
+        int k = Sorting.binarySearchFromTo(columnIndexes, column, fiberPointers[f], fiberPointers[f + 1] - 1);
+        if (k >= 0) {
+            if (value == 0)
+                remove(i, f, k);
+            else
+                values[k] = value;
+        } else if (value != 0) {
+            insert(i, false, f, false, -k - 1, slice, row, column, value);
+        }
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(slices).append(" x ").append(rows).append(" x ").append(columns).append(
+                " sparse matrix, nnz = ").append(cardinality()).append('\n');
+        for (int i = 0; i < nslices; i++) {
+            for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+                for (int k = fiberPointers[f]; k < fiberPointers[f + 1]; k++) {
+                    builder.append('(').append(sliceIndexes[i]).append(',').append(rowIndexes[f]).append(',')
+                            .append(columnIndexes[k]).append(')').append('\t').append(values[k]).append('\n');
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    public void trimToSize() {
+        int nfibers = slicePointers[nslices];
+        int nnz = fiberPointers[nfibers];
+        sliceIndexes = copy(sliceIndexes, nslices);
+        slicePointers = copy(slicePointers, nslices + 1);
+        rowIndexes = copy(rowIndexes, nfibers);
+        fiberPointers = copy(fiberPointers, nfibers + 1);
+        columnIndexes = copy(columnIndexes, nnz);
+        double[] valuesNew = new double[nnz];
+        System.arraycopy(values, 0, valuesNew, 0, nnz);
+        values = valuesNew;
+    }
+
+    public DoubleMatrix1D vectorize() {
+        DoubleMatrix1D v = new SparseDoubleMatrix1D((int) size());
+        int length = rows * columns;
+        for (int i = 0; i < nslices; i++) {
+            int idx = sliceIndexes[i] * length;
+            for (int f = slicePointers[i]; f < slicePointers[i + 1]; f++) {
+                int r = rowIndexes[f];
+                for (int k = fiberPointers[f]; k < fiberPointers[f + 1]; k++) {
+                    v.setQuick(idx + columnIndexes[k] * rows + r, values[k]);
+                }
+            }
+        }
+        return v;
+    }
+
+    public double zSum() {
+        double sum = 0;
+        int nnz = cardinality();
+        for (int k = 0; k < nnz; k++) {
+            sum += values[k];
+        }
+        return sum;
+    }
+
+    protected DoubleMatrix3D getContent() {
+        return this;
+    }
+
+    /*
+     * Procedure applied to a range of non-empty slices [firstSlice,
+     * lastSlice).
+     */
+    private interface SliceRangeProcedure {
+        void apply(int firstSlice, int lastSlice);
+    }
+
+    /*
+     * Sorts the given triplets with three passes of a parallel, stable
+     * counting sort (columns, rows, then slices), sums the duplicates, drops
+     * the zeros and compresses the result.
+     */
+    private void build(final int[] s, final int[] r, final int[] c, final double[] v, int nnz) {
+        final int[] slicePtr = new int[slices + 1];
+        int[] perm = countingSort(c, null, nnz, columns, new int[columns + 1]);
+        perm = countingSort(r, perm, nnz, rows, new int[rows + 1]);
+        final int[] order = countingSort(s, perm, nnz, slices, slicePtr);
+
+        // gather the sorted cells
+        final int[] rowSorted = new int[nnz];
+        final int[] columnSorted = new int[nnz];
+        final double[] valueSorted = new double[nnz];
+        int nthreads = numberOfThreads(nnz, nnz);
+        Future<?>[] futures = new Future[nthreads];
+        int k = nnz / Math.max(nthreads, 1);
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = j * k;
+            final int lastIdx = (j == nthreads - 1) ? nnz : firstIdx + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int p = firstIdx; p < lastIdx; p++) {
+                        int q = order[p];
+                        rowSorted[p] = r[q];
+                        columnSorted[p] = c[q];
+                        valueSorted[p] = v[q];
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+
+        // sum the duplicates and drop the zeros of each slice, in place
+        nthreads = numberOfThreads(nnz, slices);
+        final int[] first = SparseCompressedDoubleMatrix2DConversion.split(slicePtr, slices, nthreads);
+        final int[] sliceCounts = new int[slices];
+        final int[][] counts = new int[nthreads][3];
+        futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstSlice = first[j];
+            final int lastSlice = first[j + 1];
+            final int[] count = counts[j];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    int w = slicePtr[firstSlice];
+                    for (int i = firstSlice; i < lastSlice; i++) {
+                        int start = w;
+                        int p = slicePtr[i];
+                        int end = slicePtr[i + 1];
+                        while (p < end) {
+                            int row = rowSorted[p];
+                            int column = columnSorted[p];
+                            double value = valueSorted[p++];
+                            while (p < end && rowSorted[p] == row && columnSorted[p] == column) {
+                                value += valueSorted[p++];
+                            }
+                            if (value != 0) {
+                                if (w == start || rowSorted[w - 1] != row) {
+                                    count[1]++;
+                                }
+                                rowSorted[w] = row;
+                                columnSorted[w] = column;
+                                valueSorted[w++] = value;
+                            }
+                        }
+                        sliceCounts[i] = w - start;
+                        if (w > start) {
+                            count[2]++;
+                        }
+                    }
+                    count[0] = w - slicePtr[firstSlice];
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+
+        // compress
+        int[] total = new int[3];
+        final int[][] offsets = new int[nthreads][3];
+        for (int j = 0; j < nthreads; j++) {
+            for (int l = 0; l < 3; l++) {
+                offsets[j][l] = total[l];
+                total[l] += counts[j][l];
+            }
+        }
+        columnIndexes = new int[total[0]];
+        values = new double[total[0]];
+        rowIndexes = new int[total[1]];
+        fiberPointers = new int[total[1] + 1];
+        sliceIndexes = new int[total[2]];
+        slicePointers = new int[total[2] + 1];
+        nslices = total[2];
+        fiberPointers[total[1]] = total[0];
+        slicePointers[total[2]] = total[1];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstSlice = first[j];
+            final int lastSlice = first[j + 1];
+            final int[] offset = offsets[j];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    int p = slicePtr[firstSlice];
+                    int cell = offset[0];
+                    int fiber = offset[1];
+                    int slice = offset[2];
+                    for (int i = firstSlice; i < lastSlice; i++) {
+                        int count = sliceCounts[i];
+                        if (count == 0) {
+                            continue;
+                        }
+                        sliceIndexes[slice] = i;
+                        slicePointers[slice++] = fiber;
+                        System.arraycopy(columnSorted, p, columnIndexes, cell, count);
+                        System.arraycopy(valueSorted, p, values, cell, count);
+                        for (int end = p + count; p < end; p++, cell++) {
+                            if (p == end - count || rowSorted[p - 1] != rowSorted[p]) {
+                                rowIndexes[fiber] = rowSorted[p];
+                                fiberPointers[fiber++] = cell;
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+    }
+
+    private void clear() {
+        nslices = 0;
+        sliceIndexes = new int[0];
+        slicePointers = new int[1];
+        rowIndexes = new int[0];
+        fiberPointers = new int[1];
+        columnIndexes = new int[0];
+        values = new double[0];
+    }
+
+    /*
+     * Stable counting sort of the cells perm[0..nnz) (the identity if null) by
+     * keys[cell] in [0, n). Fills in the bucket pointers and returns the
+     * sorted cells.
+     */
+    private static int[] countingSort(final int[] keys, final int[] perm, int nnz, int n, int[] pointers) {
+        int nthreads = numberOfThreads(nnz, nnz);
+        final int[][] counts = new int[nthreads][n];
+        final boolean[] outOfBounds = new boolean[nthreads];
+        final int[] sorted = new int[nnz];
+        final int nbuckets = n;
+        Future<?>[] futures = new Future[nthreads];
+        int k = nnz / Math.max(nthreads, 1);
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = j * k;
+            final int lastIdx = (j == nthreads - 1) ? nnz : firstIdx + k;
+            final int threadID = j;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    int[] count = counts[threadID];
+                    for (int p = firstIdx; p < lastIdx; p++) {
+                        int key = keys[perm == null ? p : perm[p]];
+                        if (key < 0 || key >= nbuckets) {
+                            outOfBounds[threadID] = true;
+                            return;
+                        }
+                        count[key]++;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        for (int j = 0; j < nthreads; j++) {
+            if (outOfBounds[j])
+                throw new IllegalArgumentException("index out of bounds");
+        }
+        SparseCompressedDoubleMatrix2DConversion.offsets(counts, pointers);
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = j * k;
+            final int lastIdx = (j == nthreads - 1) ? nnz : firstIdx + k;
+            final int[] position = counts[j];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int p = firstIdx; p < lastIdx; p++) {
+                        int cell = perm == null ? p : perm[p];
+                        sorted[position[keys[cell]]++] = cell;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return sorted;
+    }
+
+    private static int[] copy(int[] list, int size) {
+        int[] copy = new int[size];
+        System.arraycopy(list, 0, copy, 0, size);
+        return copy;
+    }
+
+    private int dimension(int mode) {
+        switch (mode) {
+        case 0:
+            return slices;
+        case 1:
+            return rows;
+        case 2:
+            return columns;
+        default:
+            throw new IllegalArgumentException("mode must be 0, 1 or 2: " + mode);
+        }
+    }
+
+    /*
+     * t = Sum(X[f][c] * C[c][:]) over the cells of fiber f.
+     */
+    private void fiberTimesFactor(int f, double[] factor, int rank, double[] t) {
+        for (int q = 0; q < rank; q++) {
+            t[q] = 0;
+        }
+        for (int p = fiberPointers[f]; p < fiberPointers[f + 1]; p++) {
+            int idx = columnIndexes[p] * rank;
+            double value = values[p];
+            for (int q = 0; q < rank; q++) {
+                t[q] += value * factor[idx + q];
+            }
+        }
+    }
+
+    /*
+     * Runs the procedure on consecutive ranges of non-empty slices holding
+     * about the same number of cells, in parallel.
+     */
+    private void forEachSliceRange(final SliceRangeProcedure procedure) {
+        int nthreads = numberOfThreads(cardinality(), nslices);
+        int[] first = splitSlices(nthreads);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstSlice = first[j];
+            final int lastSlice = first[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    procedure.apply(firstSlice, lastSlice);
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+    }
+
+    private void insert(int i, boolean newSlice, int f, boolean newFiber, int k, int slice, int row, int column,
+            double value) {
+        int nfibers = slicePointers[nslices];
+        int nnz = fiberPointers[nfibers];
+        columnIndexes = insert(columnIndexes, nnz, k, column);
+        values = insert(values, nnz, k, value);
+        if (newFiber) {
+            rowIndexes = insert(rowIndexes, nfibers, f, row);
+            fiberPointers = insert(fiberPointers, nfibers + 1, f, k);
+            nfibers++;
+            if (newSlice) {
+                sliceIndexes = insert(sliceIndexes, nslices, i, slice);
+                slicePointers = insert(slicePointers, nslices + 1, i, f);
+                nslices++;
+            }
+            for (int j = i + 1; j <= nslices; j++)
+                slicePointers[j]++;
+        }
+        for (int j = f + 1; j <= nfibers; j++)
+            fiberPointers[j]++;
+    }
+
+    private static int[] insert(int[] list, int size, int index, int element) {
+        IntArrayList elements = new IntArrayList(list);
+        elements.setSizeRaw(size);
+        elements.beforeInsert(index, element);
+        return elements.elements();
+    }
+
+    private static double[] insert(double[] list, int size, int index, double element) {
+        DoubleArrayList elements = new DoubleArrayList(list);
+        elements.setSizeRaw(size);
+        elements.beforeInsert(index, element);
+        return elements.elements();
+    }
+
+    /*
+     * Number of threads for work of the given size, split into at most
+     * maxParts parts.
+     */
+    private static int numberOfThreads(long size, int maxParts) {
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (nthreads <= 1 || size < ConcurrencyUtils.getThreadsBeginN_3D()) {
+            return 1;
+        }
+        return Math.max(1, Math.min(nthreads, maxParts));
+    }
+
+    private void remove(int i, int f, int k) {
+        int nfibers = slicePointers[nslices];
+        int nnz = fiberPointers[nfibers];
+        System.arraycopy(columnIndexes, k + 1, columnIndexes, k, nnz - k - 1);
+        System.arraycopy(values, k + 1, values, k, nnz - k - 1);
+        for (int j = f + 1; j <= nfibers; j++)
+            fiberPointers[j]--;
+        if (fiberPointers[f] == fiberPointers[f + 1]) { // the fiber is empty
+            System.arraycopy(rowIndexes, f + 1, rowIndexes, f, nfibers - f - 1);
+            System.arraycopy(fiberPointers, f + 1, fiberPointers, f, nfibers - f);
+            for (int j = i + 1; j <= nslices; j++)
+                slicePointers[j]--;
+            if (slicePointers[i] == slicePointers[i + 1]) { // the slice is empty
+                System.arraycopy(sliceIndexes, i + 1, sliceIndexes, i, nslices - i - 1);
+                System.arraycopy(slicePointers, i + 1, slicePointers, i, nslices - i);
+                nslices--;
+            }
+        }
+    }
+
+    /*
+     * Splits the non-empty slices into nthreads ranges holding about the same
+     * number of cells.
+     */
+    private int[] splitSlices(int nthreads) {
+        int[] pointers = new int[nslices + 1];
+        for (int i = 0; i <= nslices; i++) {
+            pointers[i] = fiberPointers[slicePointers[i]];
+        }
+        return SparseCompressedDoubleMatrix2DConversion.split(pointers, nslices, nthreads);
+    }
+
+    private static double[] toArray(DoubleMatrix1D v) {
+        if (v instanceof DenseDoubleMatrix1D && !v.isView())
+            return ((DenseDoubleMatrix1D) v).elements();
+        return v.toArray();
+    }
+
+    /*
+     * The cells of the given matrix, row by row.
+     */
+    private static double[] toArray(DoubleMatrix2D A) {
+        if (A instanceof DenseDoubleMatrix2D && !A.isView())
+            return ((DenseDoubleMatrix2D) A).elements();
+        return (double[]) new DenseDoubleMatrix2D(A.rows(), A.columns()).assign(A).elements();
+    }
+
+    private static double[] transpose(double[] a, int rows, int columns) {
+        double[] t = new double[rows * columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                t[c * rows + r] = a[r * columns + c];
+            }
+        }
+        return t;
+    }
+}
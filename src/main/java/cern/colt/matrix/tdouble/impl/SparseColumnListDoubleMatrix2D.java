@@ -0,0 +1,569 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Dynamic sparse column-list 2-d matrix holding <tt>double</tt> elements.
+ * First see the <a href="package-summary.html">package summary</a> and javadoc
+ * <a href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * The column counterpart of {@link SparseRowListDoubleMatrix2D}: every column
+ * is kept in its own pair of growable arrays, the sorted row indexes of its
+ * non-zeros and their values. Different threads can set cells of different
+ * columns at the same time. {@link #getColumnCompressed()} copies the columns
+ * into a {@link SparseCCDoubleMatrix2D} in time <tt>O(nnz)</tt>.
+ * <p>
+ * <b>Time complexity:</b>
+ * <p>
+ * Getting a cell takes time <tt>O(log nzc)</tt>, where <tt>nzc</tt> is the
+ * number of non-zeros in its column. Setting a cell takes time <tt>O(nzc)</tt>
+ * in the worst case, when a cell is inserted at the beginning of the column.
+ */
+public class SparseColumnListDoubleMatrix2D extends WrapperDoubleMatrix2D implements CompressedDoubleMatrix2DSource {
+    private static final long serialVersionUID = 1L;
+
+    /*
+     * Capacity of a column when its first cell is set.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /*
+     * Sorted row indexes of every column; null for a column that was never
+     * written.
+     */
+    protected int[][] rowIndexes;
+
+    protected double[][] values;
+
+    /*
+     * Number of cells stored in every column.
+     */
+    protected int[] columnSizes;
+
+    /**
+     * Constructs a matrix with a given number of rows and columns. All entries
+     * are initially <tt>0</tt>.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0</tt> .
+     */
+    public SparseColumnListDoubleMatrix2D(int rows, int columns) {
+        super(null);
+        try {
+            setUp(rows, columns);
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        rowIndexes = new int[columns][];
+        values = new double[columns][];
+        columnSizes = new int[columns];
+    }
+
+    /**
+     * Constructs a matrix with the same cells as the given matrix.
+     * 
+     * @param A
+     *            the matrix to copy.
+     */
+    public SparseColumnListDoubleMatrix2D(DoubleMatrix2D A) {
+        this(A.rows(), A.columns());
+        assign(A);
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (alpha == 1)
+                return this;
+            if (alpha == 0)
+                return assign(0);
+            if (alpha != alpha)
+                return super.assign(function); // the funny definition of isNaN(). This should better not happen.
+            for (int c = 0; c < columns; c++) {
+                double[] v = values[c];
+                for (int k = columnSizes[c]; --k >= 0;) {
+                    v[k] *= alpha;
+                }
+            }
+            return this;
+        }
+        return super.assign(function);
+    }
+
+    public DoubleMatrix2D assign(double value) {
+        if (value == 0) {
+            for (int c = 0; c < columns; c++) {
+                columnSizes[c] = 0;
+            }
+            return this;
+        }
+        return super.assign(value);
+    }
+
+    public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        if (source == this)
+            return this; // nothing to do
+        checkShape(source);
+
+        if (source instanceof SparseColumnListDoubleMatrix2D) {
+            SparseColumnListDoubleMatrix2D other = (SparseColumnListDoubleMatrix2D) source;
+            for (int c = 0; c < columns; c++) {
+                setColumn(c, other.rowIndexes[c], other.values[c], other.columnSizes[c]);
+            }
+        } else if (source instanceof SparseRCDoubleMatrix2D || source instanceof SparseCCDoubleMatrix2D
+                || source instanceof DenseDoubleMatrix2D || source instanceof SparseRowListDoubleMatrix2D
+                || source instanceof SparseSymmetricDoubleMatrix2D || source instanceof FrozenSparseRCDoubleMatrix2D) {
+            SparseCCDoubleMatrix2D C;
+            if (source instanceof SparseCCDoubleMatrix2D && ((SparseCCDoubleMatrix2D) source).rowIndexesSorted) {
+                C = (SparseCCDoubleMatrix2D) source;
+            } else if (source instanceof SparseRowListDoubleMatrix2D) {
+                C = ((SparseRowListDoubleMatrix2D) source).getColumnCompressed();
+            } else {
+                C = new SparseCCDoubleMatrix2D(rows, columns, 0);
+                C.assign(source);
+                if (!C.rowIndexesSorted)
+                    C.sortRowIndexes();
+            }
+            load(C);
+        } else {
+            assign(0);
+            source.forEachNonZero(new cern.colt.function.tdouble.IntIntDoubleFunction() {
+                public double apply(int i, int j, double value) {
+                    setQuick(i, j, value);
+                    return value;
+                }
+            });
+        }
+        return this;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int c = 0; c < columns; c++) {
+            cardinality += columnSizes[c];
+        }
+        return cardinality;
+    }
+
+    /**
+     * Returns the values of every column. Column <tt>c</tt> holds
+     * <tt>getColumnSize(c)</tt> values, or is <tt>null</tt> if no cell of it
+     * was ever set.
+     * 
+     * @return the values of every column
+     */
+    public double[][] elements() {
+        return values;
+    }
+
+    public DoubleMatrix2D forEachNonZero(final cern.colt.function.tdouble.IntIntDoubleFunction function) {
+        for (int c = 0; c < columns; c++) {
+            int[] indexes = rowIndexes[c];
+            double[] v = values[c];
+            for (int k = 0; k < columnSizes[c]; k++) {
+                double value = v[k];
+                double result = function.apply(indexes[k], c, value);
+                if (result != value)
+                    v[k] = result;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, but is in
+     * a column-compressed form. This method creates a new object (not a view),
+     * so changes in the returned matrix are NOT reflected in this matrix.
+     * 
+     * @return this matrix in a column-compressed form
+     */
+    public SparseCCDoubleMatrix2D getColumnCompressed() {
+        final int[] columnPointers = pointers();
+        final int[] rowIndexesC = new int[columnPointers[columns]];
+        final double[] valuesC = new double[columnPointers[columns]];
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(columnPointers[columns], columns);
+        final int[] firstColumn = SparseCompressedDoubleMatrix2DConversion.split(columnPointers, columns, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstColumn[j];
+            final int lastIdx = firstColumn[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int c = firstIdx; c < lastIdx; c++) {
+                        int size = columnSizes[c];
+                        if (size > 0) {
+                            System.arraycopy(rowIndexes[c], 0, rowIndexesC, columnPointers[c], size);
+                            System.arraycopy(values[c], 0, valuesC, columnPointers[c], size);
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        SparseCCDoubleMatrix2D C = new SparseCCDoubleMatrix2D(rows, columns, rowIndexesC, columnPointers, valuesC);
+        C.rowIndexesSorted = true;
+        return C;
+    }
+
+    /**
+     * Returns the number of cells stored in the given column.
+     * 
+     * @param column
+     *            the index of the column.
+     * @return the number of cells stored in the column
+     */
+    public int getColumnSize(int column) {
+        return columnSizes[column];
+    }
+
+    public double getQuick(int row, int column) {
+        int size = columnSizes[column];
+        if (size == 0)
+            return 0;
+        int k = cern.colt.Sorting.binarySearchFromTo(rowIndexes[column], row, 0, size - 1);
+        return (k >= 0) ? values[column][k] : 0;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, but is in
+     * a row-compressed form. This method creates a new object (not a view), so
+     * changes in the returned matrix are NOT reflected in this matrix.
+     * 
+     * @return this matrix in a row-compressed form
+     */
+    public SparseRCDoubleMatrix2D getRowCompressed() {
+        return getColumnCompressed().getRowCompressed();
+    }
+
+    /**
+     * Returns the row indexes of the given column, in ascending order. Only the
+     * first <tt>getColumnSize(column)</tt> of them are valid. The array is
+     * replaced when the column grows.
+     * 
+     * @param column
+     *            the index of the column.
+     * @return the row indexes of the column, or <tt>null</tt> if no cell of it
+     *         was ever set
+     */
+    public int[] getRowIndexes(int column) {
+        return rowIndexes[column];
+    }
+
+    /**
+     * Returns the values of the given column, in the order of
+     * {@link #getRowIndexes(int)}. Only the first
+     * <tt>getColumnSize(column)</tt> of them are valid. The array is replaced
+     * when the column grows.
+     * 
+     * @param column
+     *            the index of the column.
+     * @return the values of the column, or <tt>null</tt> if no cell of it was
+     *         ever set
+     */
+    public double[] getValues(int column) {
+        return values[column];
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        return new SparseColumnListDoubleMatrix2D(rows, columns);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new SparseDoubleMatrix1D(size);
+    }
+
+    /**
+     * Replaces all cells of the given column. The arrays are copied.
+     * 
+     * @param column
+     *            the index of the column.
+     * @param indexes
+     *            the row indexes of the cells, in ascending order.
+     * @param values
+     *            the values of the cells.
+     * @param size
+     *            the number of cells.
+     * @throws IllegalArgumentException
+     *             if the row indexes are not in ascending order or out of
+     *             bounds.
+     */
+    public void setColumn(int column, int[] indexes, double[] values, int size) {
+        for (int k = 0; k < size; k++) {
+            if (indexes[k] < 0 || indexes[k] >= rows || (k > 0 && indexes[k] <= indexes[k - 1]))
+                throw new IllegalArgumentException("row indexes not in ascending order or out of bounds");
+        }
+        columnSizes[column] = 0;
+        if (size > 0 && (rowIndexes[column] == null || rowIndexes[column].length < size)) {
+            realloc(column, size);
+        }
+        if (size > 0) {
+            System.arraycopy(indexes, 0, rowIndexes[column], 0, size);
+            System.arraycopy(values, 0, this.values[column], 0, size);
+        }
+        columnSizes[column] = size;
+    }
+
+    public void setQuick(int row, int column, double value) {
+        int size = columnSizes[column];
+        int k = (size == 0) ? -1 : cern.colt.Sorting.binarySearchFromTo(rowIndexes[column], row, 0, size - 1);
+        if (k >= 0) {
+            if (value != 0) {
+                values[column][k] = value;
+            } else { // delete
+                int[] indexes = rowIndexes[column];
+                double[] v = values[column];
+                System.arraycopy(indexes, k + 1, indexes, k, size - k - 1);
+                System.arraycopy(v, k + 1, v, k, size - k - 1);
+                columnSizes[column] = size - 1;
+            }
+        } else if (value != 0) { // insert
+            k = -k - 1;
+            if (rowIndexes[column] == null || size == rowIndexes[column].length) {
+                realloc(column, Math.max(INITIAL_CAPACITY, size + size / 2 + 1));
+            }
+            int[] indexes = rowIndexes[column];
+            double[] v = values[column];
+            System.arraycopy(indexes, k, indexes, k + 1, size - k);
+            System.arraycopy(v, k, v, k + 1, size - k);
+            indexes[k] = row;
+            v[k] = value;
+            columnSizes[column] = size + 1;
+        }
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(rows).append(" x ").append(columns).append(" sparse matrix, nnz = ").append(cardinality())
+                .append('\n');
+        for (int c = 0; c < columns; c++) {
+            for (int k = 0; k < columnSizes[c]; k++) {
+                builder.append('(').append(rowIndexes[c][k]).append(',').append(c).append(')').append('\t')
+                        .append(values[c][k]).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    public void trimToSize() {
+        for (int c = 0; c < columns; c++) {
+            if (columnSizes[c] == 0) {
+                rowIndexes[c] = null;
+                values[c] = null;
+            } else if (columnSizes[c] < rowIndexes[c].length) {
+                realloc(c, columnSizes[c]);
+            }
+        }
+    }
+
+    public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, final double alpha, final double beta,
+            final boolean transposeA) {
+        final int rowsA = transposeA ? columns : rows;
+        final int columnsA = transposeA ? rows : columns;
+
+        boolean ignore = (z == null || transposeA);
+        if (z == null)
+            z = new DenseDoubleMatrix1D(rowsA);
+
+        if (!(y instanceof DenseDoubleMatrix1D && z instanceof DenseDoubleMatrix1D)) {
+            return super.zMult(y, z, alpha, beta, transposeA);
+        }
+
+        if (columnsA != y.size() || rowsA > z.size())
+            throw new IllegalArgumentException("Incompatible args: "
+                    + ((transposeA ? viewDice() : this).toStringShort()) + ", " + y.toStringShort() + ", "
+                    + z.toStringShort());
+
+        DenseDoubleMatrix1D zz = (DenseDoubleMatrix1D) z;
+        final double[] elementsZ = zz.elements;
+        final int strideZ = zz.stride();
+        final int zeroZ = (int) z.index(0);
+
+        DenseDoubleMatrix1D yy = (DenseDoubleMatrix1D) y;
+        final double[] elementsY = yy.elements;
+        final int strideY = yy.stride();
+        final int zeroY = (int) y.index(0);
+
+        int[] columnPointers = pointers();
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(columnPointers[columns], columns);
+        final int[] firstColumn = SparseCompressedDoubleMatrix2DConversion.split(columnPointers, columns, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+
+        if (!transposeA) {
+            if ((!ignore) && (beta != 1.0))
+                z.assign(cern.jet.math.tdouble.DoubleFunctions.mult(beta));
+            if (nthreads == 1) {
+                for (int c = 0; c < columns; c++) {
+                    int[] indexes = rowIndexes[c];
+                    double[] v = values[c];
+                    double yElem = alpha * elementsY[zeroY + strideY * c];
+                    for (int k = 0; k < columnSizes[c]; k++) {
+                        elementsZ[zeroZ + strideZ * indexes[k]] += v[k] * yElem;
+                    }
+                }
+                return z;
+            }
+            final double[][] results = new double[nthreads][];
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = firstColumn[j];
+                final int lastIdx = firstColumn[j + 1];
+                final int threadID = j;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        double[] result = new double[rows];
+                        for (int c = firstIdx; c < lastIdx; c++) {
+                            int[] indexes = rowIndexes[c];
+                            double[] v = values[c];
+                            double yElem = alpha * elementsY[zeroY + strideY * c];
+                            for (int k = 0; k < columnSizes[c]; k++) {
+                                result[indexes[k]] += v[k] * yElem;
+                            }
+                        }
+                        results[threadID] = result;
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            int k = rows / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int r = firstRow; r < lastRow; r++) {
+                            double sum = 0;
+                            for (int t = 0; t < results.length; t++) {
+                                sum += results[t][r];
+                            }
+                            elementsZ[zeroZ + strideZ * r] += sum;
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            return z;
+        }
+
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstColumn[j];
+            final int lastIdx = firstColumn[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int c = firstIdx; c < lastIdx; c++) {
+                        int[] indexes = rowIndexes[c];
+                        double[] v = values[c];
+                        double sum = 0;
+                        for (int k = 0; k < columnSizes[c]; k++) {
+                            sum += v[k] * elementsY[zeroY + strideY * indexes[k]];
+                        }
+                        int idx = zeroZ + strideZ * c;
+                        if (beta == 0.0) {
+                            elementsZ[idx] = alpha * sum;
+                        } else {
+                            elementsZ[idx] = alpha * sum + beta * elementsZ[idx];
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return z;
+    }
+
+    /*
+     * Fills the columns with the cells of A, whose row indexes are sorted.
+     * Duplicates are summed and zeros are dropped.
+     */
+    private void load(SparseCCDoubleMatrix2D A) {
+        final int[] columnPointersA = A.dcs.p;
+        final int[] rowIndexesA = A.dcs.i;
+        final double[] valuesA = A.dcs.x;
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(columnPointersA[columns], columns);
+        final int[] firstColumn = SparseCompressedDoubleMatrix2DConversion.split(columnPointersA, columns, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstColumn[j];
+            final int lastIdx = firstColumn[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int c = firstIdx; c < lastIdx; c++) {
+                        int low = columnPointersA[c];
+                        int high = columnPointersA[c + 1];
+                        columnSizes[c] = 0;
+                        if (rowIndexes[c] == null || rowIndexes[c].length < high - low) {
+                            realloc(c, high - low);
+                        }
+                        int[] indexes = rowIndexes[c];
+                        double[] v = values[c];
+                        int size = 0;
+                        for (int p = low; p < high; p++) {
+                            if (size > 0 && indexes[size - 1] == rowIndexesA[p]) {
+                                v[size - 1] += valuesA[p];
+                            } else {
+                                indexes[size] = rowIndexesA[p];
+                                v[size++] = valuesA[p];
+                            }
+                        }
+                        int nz = 0;
+                        for (int k = 0; k < size; k++) {
+                            if (v[k] != 0) {
+                                indexes[nz] = indexes[k];
+                                v[nz++] = v[k];
+                            }
+                        }
+                        columnSizes[c] = nz;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+    }
+
+    /*
+     * Returns the start of every column in the column-compressed form.
+     */
+    private int[] pointers() {
+        int[] columnPointers = new int[columns + 1];
+        long nnz = 0;
+        for (int c = 0; c < columns; c++) {
+            nnz += columnSizes[c];
+            columnPointers[c + 1] = (int) nnz;
+        }
+        if (nnz > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("matrix too large");
+        return columnPointers;
+    }
+
+    /*
+     * Changes the capacity of the given column, keeping its cells.
+     */
+    private void realloc(int column, int capacity) {
+        int[] indexes = new int[capacity];
+        double[] v = new double[capacity];
+        int size = columnSizes[column];
+        if (size > 0) {
+            System.arraycopy(rowIndexes[column], 0, indexes, 0, size);
+            System.arraycopy(values[column], 0, v, 0, size);
+        }
+        rowIndexes[column] = indexes;
+        values[column] = v;
+    }
+}
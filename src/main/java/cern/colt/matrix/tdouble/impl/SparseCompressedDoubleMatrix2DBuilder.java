@@ -0,0 +1,458 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.concurrent.Future;
+
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Assembles sparse compressed matrices from coordinate (row, column, value)
+ * triplets. Triplets can be added concurrently from any number of threads;
+ * every thread appends to its own buffer, so adding takes constant time and
+ * does not block. Once all triplets have been added, the buffers are converted
+ * into a {@link SparseRCDoubleMatrix2D} or a {@link SparseCCDoubleMatrix2D}
+ * with two parallel counting-sort passes. Triplets with the same coordinates
+ * are summed, the indexes within every row (column) come out sorted and,
+ * optionally, entries that sum to zero are dropped. The whole conversion takes
+ * time <tt>O(nnz + rows + columns)</tt>.
+ * <p>
+ * Example:
+ * <table>
+ * <td class="PRE">
+ * 
+ * <pre>
+ * final SparseCompressedDoubleMatrix2DBuilder builder = new SparseCompressedDoubleMatrix2DBuilder(n, n);
+ * // each worker thread, for each of its elements
+ * builder.add(row, column, value);
+ * // after all workers have finished
+ * SparseRCDoubleMatrix2D A = builder.buildRowCompressed(true);
+ * </pre>
+ * 
+ * </td>
+ * </table>
+ * <p>
+ * <b>Thread safety:</b> <tt>add</tt> may be called from many threads at the
+ * same time. The other methods must not run concurrently with <tt>add</tt>;
+ * the threads that added the triplets have to be joined (for example with
+ * {@link ConcurrencyUtils#waitForCompletion(Future[])}) before the matrix is
+ * built.
+ * <p>
+ * <b>Memory:</b> the triplets are kept by the builder until {@link #clear()}
+ * is called or the builder itself becomes unreachable. The threads that added
+ * them, such as the threads of a pool, do not keep them alive.
+ */
+public class SparseCompressedDoubleMatrix2DBuilder {
+    /*
+     * Number of triplets per buffer block.
+     */
+    private static final int BLOCK_SIZE = 1 << 13;
+
+    private final int rows;
+
+    private final int columns;
+
+    /*
+     * All buffers ever handed out, guarded by this.
+     */
+    private final ArrayList<Buffer> buffers = new ArrayList<Buffer>();
+
+    /*
+     * The buffer of the current thread. Only weakly referenced, since the
+     * thread-local values of pool threads outlive the builder; the buffers are
+     * kept alive by the list above.
+     */
+    private final ThreadLocal<WeakReference<Buffer>> localBuffer = new ThreadLocal<WeakReference<Buffer>>() {
+        protected WeakReference<Buffer> initialValue() {
+            Buffer buffer = new Buffer();
+            synchronized (SparseCompressedDoubleMatrix2DBuilder.this) {
+                buffers.add(buffer);
+            }
+            return new WeakReference<Buffer>(buffer);
+        }
+    };
+
+    /**
+     * Constructs a builder for matrices with a given number of rows and
+     * columns.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0</tt> .
+     */
+    public SparseCompressedDoubleMatrix2DBuilder(int rows, int columns) {
+        if (rows < 0 || columns < 0)
+            throw new IllegalArgumentException("negative size");
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Adds the triplet <tt>(row, column, value)</tt>. Values added to the same
+     * cell are summed when the matrix is built. This method can be called from
+     * many threads at the same time.
+     * 
+     * @param row
+     *            the index of the row.
+     * @param column
+     *            the index of the column.
+     * @param value
+     *            the value to be added.
+     * @throws IndexOutOfBoundsException
+     *             if <tt>row<0 || row>=rows() || column<0 || column>=columns()</tt>.
+     */
+    public void add(int row, int column, double value) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns)
+            throw new IndexOutOfBoundsException("row:" + row + ", column:" + column);
+        localBuffer.get().get().add(row, column, value);
+    }
+
+    /**
+     * Adds the triplets <tt>(rowIndexes[i], columnIndexes[i], values[i])</tt>.
+     * This method can be called from many threads at the same time.
+     * 
+     * @param rowIndexes
+     *            row indexes
+     * @param columnIndexes
+     *            column indexes
+     * @param values
+     *            numerical values
+     * @throws IllegalArgumentException
+     *             if the arrays do not have the same length.
+     * @throws IndexOutOfBoundsException
+     *             if any of the indexes is out of bounds.
+     */
+    public void add(int[] rowIndexes, int[] columnIndexes, double[] values) {
+        int size = rowIndexes.length;
+        if (columnIndexes.length != size || values.length != size)
+            throw new IllegalArgumentException("rowIndexes.length != columnIndexes.length || rowIndexes.length != values.length");
+        Buffer buffer = localBuffer.get().get();
+        for (int i = 0; i < size; i++) {
+            int row = rowIndexes[i];
+            int column = columnIndexes[i];
+            if (row < 0 || row >= rows || column < 0 || column >= columns)
+                throw new IndexOutOfBoundsException("row:" + row + ", column:" + column);
+            buffer.add(row, column, values[i]);
+        }
+    }
+
+    /**
+     * Removes all triplets added so far and releases the memory they use.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < buffers.size(); i++) {
+            buffers.get(i).clear();
+        }
+    }
+
+    /**
+     * Returns the number of columns of the matrices built.
+     * 
+     * @return the number of columns.
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of rows of the matrices built.
+     * 
+     * @return the number of rows.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of triplets added so far, duplicates included.
+     * 
+     * @return the number of triplets.
+     */
+    public synchronized long size() {
+        long size = 0;
+        for (int i = 0; i < buffers.size(); i++) {
+            size += buffers.get(i).size();
+        }
+        return size;
+    }
+
+    /**
+     * Builds a column-compressed matrix holding the sum of all triplets added
+     * so far. The row indexes of every column are sorted. The builder is left
+     * unchanged.
+     * 
+     * @param removeZeroes
+     *            if true, then cells whose triplets sum to zero are not stored.
+     * @return a new column-compressed matrix.
+     * @throws IllegalArgumentException
+     *             if more than <tt>Integer.MAX_VALUE</tt> triplets have been
+     *             added.
+     */
+    public SparseCCDoubleMatrix2D buildColumnCompressed(boolean removeZeroes) {
+        Compressed c = build(false, removeZeroes);
+        SparseCCDoubleMatrix2D A = new SparseCCDoubleMatrix2D(rows, columns, c.indexes, c.pointers, c.values);
+        A.rowIndexesSorted = true;
+        return A;
+    }
+
+    /**
+     * Builds a row-compressed matrix holding the sum of all triplets added so
+     * far. The column indexes of every row are sorted. The builder is left
+     * unchanged.
+     * 
+     * @param removeZeroes
+     *            if true, then cells whose triplets sum to zero are not stored.
+     * @return a new row-compressed matrix.
+     * @throws IllegalArgumentException
+     *             if more than <tt>Integer.MAX_VALUE</tt> triplets have been
+     *             added.
+     */
+    public SparseRCDoubleMatrix2D buildRowCompressed(boolean removeZeroes) {
+        Compressed c = build(true, removeZeroes);
+        SparseRCDoubleMatrix2D A = new SparseRCDoubleMatrix2D(rows, columns, c.pointers, c.indexes, c.values);
+        A.columnIndexesSorted = true;
+        return A;
+    }
+
+    /*
+     * Bucket sorts the triplets first by their minor index and then, stably, by
+     * their major index, so that the minor indexes of every major slice come
+     * out sorted with duplicates next to each other. Duplicates are then summed
+     * slice by slice.
+     */
+    private Compressed build(final boolean byRow, final boolean removeZeroes) {
+        final Block[] blocks = blocks();
+        long size = 0;
+        for (int b = 0; b < blocks.length; b++) {
+            size += blocks[b].size;
+        }
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many triplets");
+        final int nz = (int) size;
+        final int major = byRow ? rows : columns;
+        final int minor = byRow ? columns : rows;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (nz < ConcurrencyUtils.getThreadsBeginN_2D()) {
+            nthreads = 1;
+        }
+
+        // pass 1: scatter the blocks into minor buckets
+        final int nthreads1 = Math.max(1, Math.min(nthreads, blocks.length));
+        final int[][] minorOffsets = new int[nthreads1][minor];
+        int k = blocks.length / nthreads1;
+        final int[] firstBlock = new int[nthreads1 + 1];
+        for (int j = 0; j < nthreads1; j++) {
+            firstBlock[j] = j * k;
+        }
+        firstBlock[nthreads1] = blocks.length;
+        Future<?>[] futures = new Future[nthreads1];
+        for (int j = 0; j < nthreads1; j++) {
+            final int[] count = minorOffsets[j];
+            final int firstIdx = firstBlock[j];
+            final int lastIdx = firstBlock[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int b = firstIdx; b < lastIdx; b++) {
+                        Block block = blocks[b];
+                        int[] minorIndexes = byRow ? block.columnIndexes : block.rowIndexes;
+                        for (int i = 0; i < block.size; i++) {
+                            count[minorIndexes[i]]++;
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        final int[] minorPointers = new int[minor + 1];
+        SparseCompressedDoubleMatrix2DConversion.offsets(minorOffsets, minorPointers);
+        final int[] tmpIndexes = new int[nz];
+        final double[] tmpValues = new double[nz];
+        for (int j = 0; j < nthreads1; j++) {
+            final int[] offset = minorOffsets[j];
+            final int firstIdx = firstBlock[j];
+            final int lastIdx = firstBlock[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int b = firstIdx; b < lastIdx; b++) {
+                        Block block = blocks[b];
+                        int[] majorIndexes = byRow ? block.rowIndexes : block.columnIndexes;
+                        int[] minorIndexes = byRow ? block.columnIndexes : block.rowIndexes;
+                        double[] values = block.values;
+                        for (int i = 0; i < block.size; i++) {
+                            int pos = offset[minorIndexes[i]]++;
+                            tmpIndexes[pos] = majorIndexes[i];
+                            tmpValues[pos] = values[i];
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+
+        // pass 2: scatter the minor buckets, in order, into major buckets
+        final int[] pointers = new int[major + 1];
+        final int[] indexes = new int[nz];
+        final double[] values = new double[nz];
+        SparseCompressedDoubleMatrix2DConversion.transpose(minor, major, minorPointers, tmpIndexes, tmpValues,
+                pointers, indexes, values);
+
+        // pass 3: sum duplicates (and drop zeroes) in place within every slice
+        final int nthreads3 = Math.max(1, Math.min(nthreads, major));
+        final int[] sizes = new int[major];
+        final int[] totals = new int[nthreads3];
+        k = major / nthreads3;
+        futures = new Future[nthreads3];
+        for (int j = 0; j < nthreads3; j++) {
+            final int jj = j;
+            final int firstIdx = j * k;
+            final int lastIdx = (j == nthreads3 - 1) ? major : (j + 1) * k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    int total = 0;
+                    for (int m = firstIdx; m < lastIdx; m++) {
+                        int low = pointers[m];
+                        int high = pointers[m + 1];
+                        int w = low;
+                        for (int i = low; i < high; i++) {
+                            if (w > low && indexes[w - 1] == indexes[i]) {
+                                values[w - 1] += values[i];
+                            } else {
+                                indexes[w] = indexes[i];
+                                values[w++] = values[i];
+                            }
+                        }
+                        if (removeZeroes) {
+                            int end = w;
+                            w = low;
+                            for (int i = low; i < end; i++) {
+                                if (values[i] != 0) {
+                                    indexes[w] = indexes[i];
+                                    values[w++] = values[i];
+                                }
+                            }
+                        }
+                        sizes[m] = w - low;
+                        total += w - low;
+                    }
+                    totals[jj] = total;
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        int nnz = 0;
+        for (int j = 0; j < nthreads3; j++) {
+            nnz += totals[j];
+        }
+        if (nnz == nz) {
+            return new Compressed(pointers, indexes, values);
+        }
+
+        // pass 4: compact the slices into arrays of the final size
+        final int[] newPointers = new int[major + 1];
+        for (int m = 0; m < major; m++) {
+            newPointers[m + 1] = newPointers[m] + sizes[m];
+        }
+        final int[] newIndexes = new int[nnz];
+        final double[] newValues = new double[nnz];
+        for (int j = 0; j < nthreads3; j++) {
+            final int firstIdx = j * k;
+            final int lastIdx = (j == nthreads3 - 1) ? major : (j + 1) * k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int m = firstIdx; m < lastIdx; m++) {
+                        System.arraycopy(indexes, pointers[m], newIndexes, newPointers[m], sizes[m]);
+                        System.arraycopy(values, pointers[m], newValues, newPointers[m], sizes[m]);
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return new Compressed(newPointers, newIndexes, newValues);
+    }
+
+    /*
+     * Returns the non-empty blocks of all buffers.
+     */
+    private synchronized Block[] blocks() {
+        ArrayList<Block> blocks = new ArrayList<Block>();
+        for (int i = 0; i < buffers.size(); i++) {
+            ArrayList<Block> list = buffers.get(i).blocks;
+            for (int b = 0; b < list.size(); b++) {
+                if (list.get(b).size > 0) {
+                    blocks.add(list.get(b));
+                }
+            }
+        }
+        return blocks.toArray(new Block[blocks.size()]);
+    }
+
+    private static final class Block {
+        final int[] rowIndexes = new int[BLOCK_SIZE];
+
+        final int[] columnIndexes = new int[BLOCK_SIZE];
+
+        final double[] values = new double[BLOCK_SIZE];
+
+        int size;
+    }
+
+    /*
+     * Triplets added by a single thread.
+     */
+    private static final class Buffer {
+        final ArrayList<Block> blocks = new ArrayList<Block>();
+
+        Block current;
+
+        void add(int row, int column, double value) {
+            Block block = current;
+            if (block == null || block.size == BLOCK_SIZE) {
+                block = new Block();
+                blocks.add(block);
+                current = block;
+            }
+            int i = block.size++;
+            block.rowIndexes[i] = row;
+            block.columnIndexes[i] = column;
+            block.values[i] = value;
+        }
+
+        void clear() {
+            blocks.clear();
+            current = null;
+        }
+
+        long size() {
+            long size = 0;
+            for (int b = 0; b < blocks.size(); b++) {
+                size += blocks.get(b).size;
+            }
+            return size;
+        }
+    }
+
+    private static final class Compressed {
+        final int[] pointers;
+
+        final int[] indexes;
+
+        final double[] values;
+
+        Compressed(int[] pointers, int[] indexes, double[] values) {
+            this.pointers = pointers;
+            this.indexes = indexes;
+            this.values = values;
+        }
+    }
+}
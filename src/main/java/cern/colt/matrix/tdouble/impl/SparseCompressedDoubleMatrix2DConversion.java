@@ -0,0 +1,513 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Parallel conversions between the compressed sparse formats and dense
+ * matrices. The compressed formats are described by three arrays: slice
+ * pointers, minor indexes and values. For a row-compressed matrix the slices
+ * are rows and the minor indexes are column indexes; for a column-compressed
+ * matrix the slices are columns and the minor indexes are row indexes. Hence
+ * the transpose of one format is the other format of the same matrix, and the
+ * same routine converts row-compressed to column-compressed storage,
+ * column-compressed to row-compressed storage and transposes either.
+ * <p>
+ * Transposition is a counting sort: every thread builds a histogram of the
+ * minor indexes of its share of the slices, the histograms are turned into
+ * starting positions, and every thread then scatters its entries. The minor
+ * indexes of the result always come out sorted. Sorting the minor indexes of a
+ * matrix in place is done with two transpositions.
+ */
+public class SparseCompressedDoubleMatrix2DConversion {
+    /**
+     * Makes this class non instantiable, but still let's others inherit from
+     * it.
+     */
+    protected SparseCompressedDoubleMatrix2DConversion() {
+    }
+
+    /**
+     * Returns a new column-compressed matrix with the non-zero cells of the
+     * given matrix. Except for row-compressed matrices, every cell of <tt>A</tt>
+     * is read once or twice, so this method is meant for dense matrices. The
+     * row indexes of the result are sorted.
+     * 
+     * @param A
+     *            the matrix to convert.
+     * @return a new column-compressed matrix.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> has more than <tt>Integer.MAX_VALUE</tt>
+     *             non-zero cells.
+     */
+    public static SparseCCDoubleMatrix2D toColumnCompressed(final DoubleMatrix2D A) {
+        if (A instanceof SparseRCDoubleMatrix2D) {
+            return toColumnCompressed((SparseRCDoubleMatrix2D) A);
+        }
+        final int rows = A.rows();
+        final int columns = A.columns();
+        final int[] columnPointers = new int[columns + 1];
+        int nthreads = numberOfThreads((long) rows * columns, columns);
+        Future<?>[] futures = new Future[nthreads];
+        int k = columns / nthreads;
+        for (int j = 0; j < nthreads; j++) {
+            final int firstColumn = j * k;
+            final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int c = firstColumn; c < lastColumn; c++) {
+                        int count = 0;
+                        for (int r = 0; r < rows; r++) {
+                            if (A.getQuick(r, c) != 0) {
+                                count++;
+                            }
+                        }
+                        columnPointers[c + 1] = count;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        int nnz = cumsum(columnPointers);
+        final int[] rowIndexes = new int[nnz];
+        final double[] values = new double[nnz];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstColumn = j * k;
+            final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    int p = columnPointers[firstColumn];
+                    for (int c = firstColumn; c < lastColumn; c++) {
+                        for (int r = 0; r < rows; r++) {
+                            double value = A.getQuick(r, c);
+                            if (value != 0) {
+                                rowIndexes[p] = r;
+                                values[p++] = value;
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        SparseCCDoubleMatrix2D C = new SparseCCDoubleMatrix2D(rows, columns, rowIndexes, columnPointers, values);
+        C.rowIndexesSorted = true;
+        return C;
+    }
+
+    /**
+     * Returns a new column-compressed matrix with the same cells as the given
+     * row-compressed matrix. The row indexes of the result are sorted.
+     * 
+     * @param A
+     *            the matrix to convert.
+     * @return a new column-compressed matrix.
+     */
+    public static SparseCCDoubleMatrix2D toColumnCompressed(SparseRCDoubleMatrix2D A) {
+        int rows = A.rows();
+        int columns = A.columns();
+        int nnz = A.rowPointers[rows];
+        int[] columnPointers = new int[columns + 1];
+        int[] rowIndexes = new int[nnz];
+        double[] values = new double[nnz];
+        transpose(rows, columns, A.rowPointers, A.columnIndexes, A.values, columnPointers, rowIndexes, values);
+        SparseCCDoubleMatrix2D C = new SparseCCDoubleMatrix2D(rows, columns, rowIndexes, columnPointers, values);
+        C.rowIndexesSorted = true;
+        return C;
+    }
+
+    /**
+     * Returns a new dense matrix with the same cells as the given
+     * column-compressed matrix.
+     * 
+     * @param A
+     *            the matrix to convert.
+     * @return a new dense matrix.
+     */
+    public static DenseDoubleMatrix2D toDense(SparseCCDoubleMatrix2D A) {
+        final int rows = A.rows();
+        final int columns = A.columns();
+        final int[] columnPointers = A.dcs.p;
+        final int[] rowIndexes = A.dcs.i;
+        final double[] values = A.dcs.x;
+        DenseDoubleMatrix2D D = new DenseDoubleMatrix2D(rows, columns);
+        final double[] elements = D.elements;
+        int nthreads = numberOfThreads((long) rows * columns, columns);
+        Future<?>[] futures = new Future[nthreads];
+        int k = columns / nthreads;
+        for (int j = 0; j < nthreads; j++) {
+            final int firstColumn = j * k;
+            final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int c = firstColumn; c < lastColumn; c++) {
+                        for (int p = columnPointers[c]; p < columnPointers[c + 1]; p++) {
+                            elements[rowIndexes[p] * columns + c] = values[p];
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return D;
+    }
+
+    /**
+     * Returns a new dense matrix with the same cells as the given
+     * row-compressed matrix.
+     * 
+     * @param A
+     *            the matrix to convert.
+     * @return a new dense matrix.
+     */
+    public static DenseDoubleMatrix2D toDense(SparseRCDoubleMatrix2D A) {
+        final int rows = A.rows();
+        final int columns = A.columns();
+        final int[] rowPointers = A.rowPointers;
+        final int[] columnIndexes = A.columnIndexes;
+        final double[] values = A.values;
+        DenseDoubleMatrix2D D = new DenseDoubleMatrix2D(rows, columns);
+        final double[] elements = D.elements;
+        int nthreads = numberOfThreads((long) rows * columns, rows);
+        Future<?>[] futures = new Future[nthreads];
+        int k = rows / nthreads;
+        for (int j = 0; j < nthreads; j++) {
+            final int firstRow = j * k;
+            final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int r = firstRow; r < lastRow; r++) {
+                        int offset = r * columns;
+                        for (int p = rowPointers[r]; p < rowPointers[r + 1]; p++) {
+                            elements[offset + columnIndexes[p]] = values[p];
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return D;
+    }
+
+    /**
+     * Returns a new row-compressed matrix with the non-zero cells of the given
+     * matrix. Except for column-compressed matrices, every cell of <tt>A</tt> is
+     * read once or twice, so this method is meant for dense matrices. The
+     * column indexes of the result are sorted.
+     * 
+     * @param A
+     *            the matrix to convert.
+     * @return a new row-compressed matrix.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> has more than <tt>Integer.MAX_VALUE</tt>
+     *             non-zero cells.
+     */
+    public static SparseRCDoubleMatrix2D toRowCompressed(final DoubleMatrix2D A) {
+        if (A instanceof SparseCCDoubleMatrix2D) {
+            return toRowCompressed((SparseCCDoubleMatrix2D) A);
+        }
+        final int rows = A.rows();
+        final int columns = A.columns();
+        final int[] rowPointers = new int[rows + 1];
+        int nthreads = numberOfThreads((long) rows * columns, rows);
+        Future<?>[] futures = new Future[nthreads];
+        int k = rows / nthreads;
+        for (int j = 0; j < nthreads; j++) {
+            final int firstRow = j * k;
+            final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int r = firstRow; r < lastRow; r++) {
+                        int count = 0;
+                        for (int c = 0; c < columns; c++) {
+                            if (A.getQuick(r, c) != 0) {
+                                count++;
+                            }
+                        }
+                        rowPointers[r + 1] = count;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        int nnz = cumsum(rowPointers);
+        final int[] columnIndexes = new int[nnz];
+        final double[] values = new double[nnz];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstRow = j * k;
+            final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    int p = rowPointers[firstRow];
+                    for (int r = firstRow; r < lastRow; r++) {
+                        for (int c = 0; c < columns; c++) {
+                            double value = A.getQuick(r, c);
+                            if (value != 0) {
+                                columnIndexes[p] = c;
+                                values[p++] = value;
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(rows, columns, rowPointers, columnIndexes, values);
+        R.columnIndexesSorted = true;
+        return R;
+    }
+
+    /**
+     * Returns a new row-compressed matrix with the same cells as the given
+     * column-compressed matrix. The column indexes of the result are sorted.
+     * 
+     * @param A
+     *            the matrix to convert.
+     * @return a new row-compressed matrix.
+     */
+    public static SparseRCDoubleMatrix2D toRowCompressed(SparseCCDoubleMatrix2D A) {
+        int rows = A.rows();
+        int columns = A.columns();
+        int nnz = A.dcs.p[columns];
+        int[] rowPointers = new int[rows + 1];
+        int[] columnIndexes = new int[nnz];
+        double[] values = new double[nnz];
+        transpose(columns, rows, A.dcs.p, A.dcs.i, A.dcs.x, rowPointers, columnIndexes, values);
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(rows, columns, rowPointers, columnIndexes, values);
+        R.columnIndexesSorted = true;
+        return R;
+    }
+
+    /**
+     * Sorts the minor indexes of every slice of a compressed matrix in place,
+     * keeping the values attached to their indexes.
+     * 
+     * @param n
+     *            the number of slices.
+     * @param m
+     *            the minor dimension; all indexes are in <tt>[0, m)</tt>.
+     * @param pointers
+     *            slice pointers, of length at least <tt>n + 1</tt>.
+     * @param indexes
+     *            minor indexes.
+     * @param values
+     *            values, or <tt>null</tt> for a pattern-only matrix.
+     */
+    public static void sortIndexes(int n, int m, int[] pointers, int[] indexes, double[] values) {
+        int nnz = pointers[n];
+        int[] pointersT = new int[m + 1];
+        int[] indexesT = new int[nnz];
+        double[] valuesT = (values == null) ? null : new double[nnz];
+        transpose(n, m, pointers, indexes, values, pointersT, indexesT, valuesT);
+        transpose(m, n, pointersT, indexesT, valuesT, pointers, indexes, values);
+    }
+
+    /**
+     * Transposes a compressed matrix: slice <tt>s</tt> holding minor index
+     * <tt>i</tt> becomes slice <tt>i</tt> of the result holding minor index
+     * <tt>s</tt>. The minor indexes of the result are sorted. The result
+     * arrays must not be the source arrays.
+     * 
+     * @param n
+     *            the number of slices of the source.
+     * @param m
+     *            the minor dimension of the source; all indexes are in
+     *            <tt>[0, m)</tt>.
+     * @param pointers
+     *            slice pointers of the source, of length at least
+     *            <tt>n + 1</tt>.
+     * @param indexes
+     *            minor indexes of the source.
+     * @param values
+     *            values of the source, or <tt>null</tt> for a pattern-only
+     *            matrix.
+     * @param pointersT
+     *            slice pointers of the result, of length at least
+     *            <tt>m + 1</tt>.
+     * @param indexesT
+     *            minor indexes of the result, of length at least
+     *            <tt>pointers[n]</tt>.
+     * @param valuesT
+     *            values of the result, of length at least <tt>pointers[n]</tt>;
+     *            ignored if <tt>values</tt> is <tt>null</tt>.
+     */
+    public static void transpose(int n, final int m, final int[] pointers, final int[] indexes, final double[] values,
+            int[] pointersT, final int[] indexesT, final double[] valuesT) {
+        int nnz = pointers[n];
+        // each thread needs a histogram of length m, so keep their total size within O(nnz)
+        int nthreads = numberOfThreads(nnz, (int) Math.min(n, Math.max(1, (long) nnz / Math.max(1, m))));
+        if (nthreads == 1) {
+            int[] w = new int[m];
+            for (int p = 0; p < nnz; p++) {
+                w[indexes[p]]++;
+            }
+            pointersT[0] = 0;
+            for (int i = 0; i < m; i++) {
+                int count = w[i];
+                w[i] = pointersT[i];
+                pointersT[i + 1] = pointersT[i] + count;
+            }
+            for (int s = 0; s < n; s++) {
+                for (int p = pointers[s]; p < pointers[s + 1]; p++) {
+                    int q = w[indexes[p]]++;
+                    indexesT[q] = s;
+                    if (values != null) {
+                        valuesT[q] = values[p];
+                    }
+                }
+            }
+            return;
+        }
+        final int[] firstSlice = split(pointers, n, nthreads);
+        final int[][] offsets = new int[nthreads][m];
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int[] count = offsets[j];
+            final int firstIdx = pointers[firstSlice[j]];
+            final int lastIdx = pointers[firstSlice[j + 1]];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int p = firstIdx; p < lastIdx; p++) {
+                        count[indexes[p]]++;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        offsets(offsets, pointersT);
+        for (int j = 0; j < nthreads; j++) {
+            final int[] offset = offsets[j];
+            final int firstIdx = firstSlice[j];
+            final int lastIdx = firstSlice[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int s = firstIdx; s < lastIdx; s++) {
+                        for (int p = pointers[s]; p < pointers[s + 1]; p++) {
+                            int q = offset[indexes[p]]++;
+                            indexesT[q] = s;
+                            if (values != null) {
+                                valuesT[q] = values[p];
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+    }
+
+    /**
+     * Turns per-thread bucket counts into per-thread starting positions, thread
+     * by thread within every bucket, and fills in the bucket pointers.
+     * 
+     * @param counts
+     *            <tt>counts[j][b]</tt> is the number of entries of thread
+     *            <tt>j</tt> in bucket <tt>b</tt>; replaced by the position of
+     *            the first of them.
+     * @param pointers
+     *            bucket pointers, of length number of buckets + 1.
+     */
+    static void offsets(final int[][] counts, final int[] pointers) {
+        final int nbuckets = pointers.length - 1;
+        int nthreads = numberOfThreads((long) nbuckets * counts.length, nbuckets);
+        Future<?>[] futures = new Future[nthreads];
+        int k = nbuckets / nthreads;
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = j * k;
+            final int lastIdx = (j == nthreads - 1) ? nbuckets : firstIdx + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int b = firstIdx; b < lastIdx; b++) {
+                        int pos = 0;
+                        for (int t = 0; t < counts.length; t++) {
+                            int count = counts[t][b];
+                            counts[t][b] = pos;
+                            pos += count;
+                        }
+                        pointers[b + 1] = pos;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        cumsum(pointers);
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = j * k;
+            final int lastIdx = (j == nthreads - 1) ? nbuckets : firstIdx + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int b = firstIdx; b < lastIdx; b++) {
+                        int base = pointers[b];
+                        for (int t = 0; t < counts.length; t++) {
+                            counts[t][b] += base;
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+    }
+
+    /*
+     * Replaces pointers[1..n] (counts) by their running sums, with
+     * pointers[0] = 0, and returns the total.
+     */
+    private static int cumsum(int[] pointers) {
+        long sum = 0;
+        pointers[0] = 0;
+        for (int i = 1; i < pointers.length; i++) {
+            sum += pointers[i];
+            if (sum > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("too many non-zeros");
+            pointers[i] = (int) sum;
+        }
+        return (int) sum;
+    }
+
+    /*
+     * Number of threads for work of the given size, split into at most
+     * maxParts parts.
+     */
+    static int numberOfThreads(long size, int maxParts) {
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (nthreads <= 1 || size < ConcurrencyUtils.getThreadsBeginN_2D()) {
+            return 1;
+        }
+        return Math.max(1, Math.min(nthreads, maxParts));
+    }
+
+    /*
+     * Splits n slices into nthreads consecutive ranges holding about the same
+     * number of entries. Range j is [first[j], first[j + 1]).
+     */
+    static int[] split(int[] pointers, int n, int nthreads) {
+        int[] first = new int[nthreads + 1];
+        long nnz = pointers[n];
+        for (int j = 1; j < nthreads; j++) {
+            long target = nnz * j / nthreads;
+            int low = first[j - 1];
+            int high = n;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (pointers[mid] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            first[j] = low;
+        }
+        first[nthreads] = n;
+        return first;
+    }
+}
@@ -172,6 +172,37 @@ public class SparseDoubleMatrix2D extends DoubleMatrix2D {
         this.elements = new OpenLongDoubleHashMap(initialCapacity, minLoadFactor, maxLoadFactor);
     }
 
+    /**
+     * Constructs a matrix with a given number of rows and columns that stores
+     * its non-zero cells in the given map, for example a
+     * {@link cern.colt.map.tdouble.RobinHoodLongDoubleHashMap}. All entries are
+     * initially <tt>0</tt>.
+     *
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param elements
+     *            an empty map to hold the cells.
+     * @throws IllegalArgumentException
+     *             if <tt>!elements.isEmpty()</tt>.
+     * @throws IllegalArgumentException
+     *             if
+     *             <tt>rows<0 || columns<0 || (double)columns*rows > Integer.MAX_VALUE</tt>
+     *             .
+     */
+    public SparseDoubleMatrix2D(int rows, int columns, AbstractLongDoubleMap elements) {
+        if (!elements.isEmpty())
+            throw new IllegalArgumentException("elements must be empty");
+        try {
+            setUp(rows, columns);
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        this.elements = elements;
+    }
+
     /**
      * Constructs a matrix with a copy of the given indexes and a single value.
      * 
@@ -548,7 +579,9 @@ public class SparseDoubleMatrix2D extends DoubleMatrix2D {
      * matrix.
      * 
      * @return this matrix in a column-compressed modified form
+     * @deprecated Use <tt>new SparseColumnListDoubleMatrix2D(this)</tt>.
      */
+    @Deprecated
     public SparseCCMDoubleMatrix2D getColumnCompressedModified() {
         SparseCCMDoubleMatrix2D A = new SparseCCMDoubleMatrix2D(rows, columns);
         int nnz = cardinality();
@@ -595,7 +628,9 @@ public class SparseDoubleMatrix2D extends DoubleMatrix2D {
      * matrix.
      * 
      * @return this matrix in a row-compressed modified form
+     * @deprecated Use <tt>new SparseRowListDoubleMatrix2D(this)</tt>.
      */
+    @Deprecated
     public SparseRCMDoubleMatrix2D getRowCompressedModified() {
         SparseRCMDoubleMatrix2D A = new SparseRCMDoubleMatrix2D(rows, columns);
         int nnz = cardinality();
@@ -81,7 +81,10 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
  * If for whatever reasons you can't iterate properly, consider to create an
  * empty dense matrix, store your non-zeros in it, then call
  * <tt>sparse.assign(dense)</tt>. Under the circumstances, this is still rather
- * quick.
+ * quick. Large matrices, for instance from a finite-element assembly, are best
+ * assembled from coordinate triplets with
+ * {@link SparseCompressedDoubleMatrix2DBuilder}, which also accepts triplets
+ * from many threads at the same time.
  * <p>
  * Fast iteration over non-zeros can be done via {@link #forEachNonZero}, which
  * supplies your function with row, column and value of each nonzero. Although
@@ -427,6 +430,18 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
             columnIndexes = other.getRowIndexes();
             values = other.getValues();
             columnIndexesSorted = true;
+        } else if (source instanceof DenseDoubleMatrix2D) {
+            SparseRCDoubleMatrix2D other = SparseCompressedDoubleMatrix2DConversion.toRowCompressed(source);
+            rowPointers = other.rowPointers;
+            columnIndexes = other.columnIndexes;
+            values = other.values;
+            columnIndexesSorted = true;
+        } else if (source instanceof CompressedDoubleMatrix2DSource) {
+            SparseRCDoubleMatrix2D other = ((CompressedDoubleMatrix2DSource) source).getRowCompressed();
+            rowPointers = other.rowPointers;
+            columnIndexes = other.columnIndexes;
+            values = other.values;
+            columnIndexesSorted = other.columnIndexesSorted;
         } else {
             assign(0);
             source.forEachNonZero(new cern.colt.function.tdouble.IntIntDoubleFunction() {
@@ -581,6 +596,17 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         return this;
     }
 
+    /**
+     * Returns an immutable copy of this matrix that can be read and multiplied
+     * by any number of threads without synchronization.
+     * 
+     * @return an immutable copy of this matrix
+     * @see FrozenSparseRCDoubleMatrix2D
+     */
+    public FrozenSparseRCDoubleMatrix2D freeze() {
+        return new FrozenSparseRCDoubleMatrix2D(this);
+    }
+
     /**
      * Returns a new matrix that has the same elements as this matrix, but is in
      * a column-compressed form. This method creates a new object (not a view),
@@ -589,14 +615,7 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * @return this matrix in a column-compressed form
      */
     public SparseCCDoubleMatrix2D getColumnCompressed() {
-        SparseRCDoubleMatrix2D tr = getTranspose();
-        SparseCCDoubleMatrix2D cc = new SparseCCDoubleMatrix2D(rows, columns);
-        cc.dcs.i = tr.columnIndexes;
-        cc.dcs.p = tr.rowPointers;
-        cc.dcs.x = tr.values;
-        cc.dcs.nzmax = tr.values.length;
-        cc.rowIndexesSorted = true;
-        return cc;
+        return SparseCompressedDoubleMatrix2DConversion.toColumnCompressed(this);
     }
 
     /**
@@ -616,14 +635,7 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * @return this matrix in a dense form
      */
     public DenseDoubleMatrix2D getDense() {
-        final DenseDoubleMatrix2D dense = new DenseDoubleMatrix2D(rows, columns);
-        forEachNonZero(new cern.colt.function.tdouble.IntIntDoubleFunction() {
-            public double apply(int i, int j, double value) {
-                dense.setQuick(i, j, getQuick(i, j));
-                return value;
-            }
-        });
-        return dense;
+        return SparseCompressedDoubleMatrix2DConversion.toDense(this);
     }
 
     public synchronized double getQuick(int row, int column) {
@@ -654,27 +666,13 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
     public SparseRCDoubleMatrix2D getTranspose() {
         int nnz = rowPointers[rows];
-        int[] w = new int[columns];
         int[] rowPointersT = new int[columns + 1];
         int[] columnIndexesT = new int[nnz];
         double[] valuesT = new double[nnz];
-
-        for (int p = 0; p < nnz; p++) {
-            w[columnIndexes[p]]++;
-        }
-        cumsum(rowPointersT, w, columns);
-        int q;
-        for (int j = 0; j < rows; j++) {
-            int high = rowPointers[j + 1];
-            for (int p = rowPointers[j]; p < high; p++) {
-                columnIndexesT[q = w[columnIndexes[p]]++] = j;
-                valuesT[q] = values[p];
-            }
-        }
-        SparseRCDoubleMatrix2D T = new SparseRCDoubleMatrix2D(columns, rows);
-        T.rowPointers = rowPointersT;
-        T.columnIndexes = columnIndexesT;
-        T.values = valuesT;
+        SparseCompressedDoubleMatrix2DConversion.transpose(rows, columns, rowPointers, columnIndexes, values, rowPointersT,
+                columnIndexesT, valuesT);
+        SparseRCDoubleMatrix2D T = new SparseRCDoubleMatrix2D(columns, rows, rowPointersT, columnIndexesT, valuesT);
+        T.columnIndexesSorted = true;
         return T;
     }
 
@@ -771,25 +769,8 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * Sorts column indexes
      */
     public void sortColumnIndexes() {
-        SparseRCDoubleMatrix2D T = getTranspose();
-        this.rows = T.rows;
-        this.columns = T.columns;
-        this.columnIndexes = T.columnIndexes;
-        this.rowPointers = T.rowPointers;
-        this.values = T.values;
-        //        System.arraycopy(T.columnIndexes, 0, this.columnIndexes, 0, T.columnIndexes.length);
-        //        System.arraycopy(T.rowPointers, 0, this.rowPointers, 0, T.rowPointers.length);
-        //        System.arraycopy(T.values, 0, this.values, 0, T.values.length);
-        T = getTranspose();
-        this.rows = T.rows;
-        this.columns = T.columns;
-        this.columnIndexes = T.columnIndexes;
-        this.rowPointers = T.rowPointers;
-        this.values = T.values;
+        SparseCompressedDoubleMatrix2DConversion.sortIndexes(rows, columns, rowPointers, columnIndexes, values);
         columnIndexesSorted = true;
-        //        System.arraycopy(T.columnIndexes, 0, this.columnIndexes, 0, T.columnIndexes.length);
-        //        System.arraycopy(T.rowPointers, 0, this.rowPointers, 0, T.rowPointers.length);
-        //        System.arraycopy(T.values, 0, this.values, 0, T.values.length);
     }
 
     public String toString() {
@@ -6,9 +6,13 @@ import cern.colt.matrix.tdouble.DoubleMatrix2D;
  * Sparse row-compressed-modified 2-d matrix holding <tt>double</tt> elements.
  * Each row is stored as SparseDoubleMatrix1D.
  * 
+ * @deprecated Use {@link SparseRowListDoubleMatrix2D}, which keeps each
+ *             row as a sorted array of indexes and values.
+ * 
  * @author Piotr Wendykier (piotr.wendykier@gmail.com)
  * 
  */
+@Deprecated
 public class SparseRCMDoubleMatrix2D extends WrapperDoubleMatrix2D {
 
     private static final long serialVersionUID = 1L;
@@ -0,0 +1,575 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Dynamic sparse row-list 2-d matrix holding <tt>double</tt> elements. First
+ * see the <a href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * Every row is kept in its own pair of growable arrays: the sorted column
+ * indexes of its non-zeros and their values. A full row grows by half its
+ * capacity, so cells can be inserted anywhere at an amortized cost, without
+ * moving the other rows. The rows are independent, so different threads can
+ * set cells of different rows at the same time, and a row is traversed in the
+ * order of its columns. A non-zero takes 12 bytes plus the free capacity of
+ * its row, several times less than a hash map per row. The format is meant
+ * for matrices built or updated incrementally; once the structure is settled,
+ * {@link #getRowCompressed()} copies the rows into a
+ * {@link SparseRCDoubleMatrix2D} in time <tt>O(nnz)</tt>.
+ * <p>
+ * <b>Time complexity:</b>
+ * <p>
+ * Getting a cell takes time <tt>O(log nzr)</tt>, where <tt>nzr</tt> is the
+ * number of non-zeros in its row. Setting a cell takes time <tt>O(nzr)</tt> in
+ * the worst case, when a cell is inserted at the beginning of the row.
+ * 
+ * @see SparseColumnListDoubleMatrix2D
+ */
+public class SparseRowListDoubleMatrix2D extends WrapperDoubleMatrix2D implements CompressedDoubleMatrix2DSource {
+    private static final long serialVersionUID = 1L;
+
+    /*
+     * Capacity of a row when its first cell is set.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /*
+     * Sorted column indexes of every row; null for a row that was never
+     * written.
+     */
+    protected int[][] columnIndexes;
+
+    protected double[][] values;
+
+    /*
+     * Number of cells stored in every row.
+     */
+    protected int[] rowSizes;
+
+    /**
+     * Constructs a matrix with a given number of rows and columns. All entries
+     * are initially <tt>0</tt>.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0</tt> .
+     */
+    public SparseRowListDoubleMatrix2D(int rows, int columns) {
+        super(null);
+        try {
+            setUp(rows, columns);
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        columnIndexes = new int[rows][];
+        values = new double[rows][];
+        rowSizes = new int[rows];
+    }
+
+    /**
+     * Constructs a matrix with the same cells as the given matrix.
+     * 
+     * @param A
+     *            the matrix to copy.
+     */
+    public SparseRowListDoubleMatrix2D(DoubleMatrix2D A) {
+        this(A.rows(), A.columns());
+        assign(A);
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (alpha == 1)
+                return this;
+            if (alpha == 0)
+                return assign(0);
+            if (alpha != alpha)
+                return super.assign(function); // the funny definition of isNaN(). This should better not happen.
+            for (int r = 0; r < rows; r++) {
+                double[] v = values[r];
+                for (int k = rowSizes[r]; --k >= 0;) {
+                    v[k] *= alpha;
+                }
+            }
+            return this;
+        }
+        return super.assign(function);
+    }
+
+    public DoubleMatrix2D assign(double value) {
+        if (value == 0) {
+            for (int r = 0; r < rows; r++) {
+                rowSizes[r] = 0;
+            }
+            return this;
+        }
+        return super.assign(value);
+    }
+
+    public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        if (source == this)
+            return this; // nothing to do
+        checkShape(source);
+
+        if (source instanceof SparseRowListDoubleMatrix2D) {
+            final SparseRowListDoubleMatrix2D other = (SparseRowListDoubleMatrix2D) source;
+            for (int r = 0; r < rows; r++) {
+                setRow(r, other.columnIndexes[r], other.values[r], other.rowSizes[r]);
+            }
+        } else if (source instanceof SparseRCDoubleMatrix2D || source instanceof SparseCCDoubleMatrix2D
+                || source instanceof DenseDoubleMatrix2D || source instanceof SparseColumnListDoubleMatrix2D
+                || source instanceof SparseSymmetricDoubleMatrix2D || source instanceof FrozenSparseRCDoubleMatrix2D) {
+            SparseRCDoubleMatrix2D R;
+            if (source instanceof SparseRCDoubleMatrix2D && ((SparseRCDoubleMatrix2D) source).columnIndexesSorted) {
+                R = (SparseRCDoubleMatrix2D) source;
+            } else if (source instanceof SparseColumnListDoubleMatrix2D) {
+                R = ((SparseColumnListDoubleMatrix2D) source).getColumnCompressed().getRowCompressed();
+            } else {
+                R = new SparseRCDoubleMatrix2D(rows, columns, new int[rows + 1], new int[0], new double[0]);
+                R.assign(source);
+                if (!R.columnIndexesSorted)
+                    R.sortColumnIndexes();
+            }
+            load(R);
+        } else {
+            assign(0);
+            source.forEachNonZero(new cern.colt.function.tdouble.IntIntDoubleFunction() {
+                public double apply(int i, int j, double value) {
+                    setQuick(i, j, value);
+                    return value;
+                }
+            });
+        }
+        return this;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int r = 0; r < rows; r++) {
+            cardinality += rowSizes[r];
+        }
+        return cardinality;
+    }
+
+    /**
+     * Returns the values of every row. Row <tt>r</tt> holds
+     * <tt>getRowSize(r)</tt> values, or is <tt>null</tt> if no cell of it was
+     * ever set.
+     * 
+     * @return the values of every row
+     */
+    public double[][] elements() {
+        return values;
+    }
+
+    public DoubleMatrix2D forEachNonZero(final cern.colt.function.tdouble.IntIntDoubleFunction function) {
+        for (int r = 0; r < rows; r++) {
+            int[] indexes = columnIndexes[r];
+            double[] v = values[r];
+            for (int k = 0; k < rowSizes[r]; k++) {
+                double value = v[k];
+                double result = function.apply(r, indexes[k], value);
+                if (result != value)
+                    v[k] = result;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, but is in
+     * a column-compressed form. This method creates a new object (not a view),
+     * so changes in the returned matrix are NOT reflected in this matrix.
+     * 
+     * @return this matrix in a column-compressed form
+     */
+    public SparseCCDoubleMatrix2D getColumnCompressed() {
+        return getRowCompressed().getColumnCompressed();
+    }
+
+    /**
+     * Returns the column indexes of the given row, in ascending order. Only the
+     * first <tt>getRowSize(row)</tt> of them are valid. The array is replaced
+     * when the row grows.
+     * 
+     * @param row
+     *            the index of the row.
+     * @return the column indexes of the row, or <tt>null</tt> if no cell of it
+     *         was ever set
+     */
+    public int[] getColumnIndexes(int row) {
+        return columnIndexes[row];
+    }
+
+    public double getQuick(int row, int column) {
+        int size = rowSizes[row];
+        if (size == 0)
+            return 0;
+        int k = cern.colt.Sorting.binarySearchFromTo(columnIndexes[row], column, 0, size - 1);
+        return (k >= 0) ? values[row][k] : 0;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, but is in
+     * a row-compressed form. This method creates a new object (not a view), so
+     * changes in the returned matrix are NOT reflected in this matrix.
+     * 
+     * @return this matrix in a row-compressed form
+     */
+    public SparseRCDoubleMatrix2D getRowCompressed() {
+        final int[] rowPointers = pointers();
+        final int[] columnIndexesR = new int[rowPointers[rows]];
+        final double[] valuesR = new double[rowPointers[rows]];
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(rowPointers[rows], rows);
+        final int[] firstRow = SparseCompressedDoubleMatrix2DConversion.split(rowPointers, rows, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstRow[j];
+            final int lastIdx = firstRow[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int r = firstIdx; r < lastIdx; r++) {
+                        int size = rowSizes[r];
+                        if (size > 0) {
+                            System.arraycopy(columnIndexes[r], 0, columnIndexesR, rowPointers[r], size);
+                            System.arraycopy(values[r], 0, valuesR, rowPointers[r], size);
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(rows, columns, rowPointers, columnIndexesR, valuesR);
+        R.columnIndexesSorted = true;
+        return R;
+    }
+
+    /**
+     * Returns the number of cells stored in the given row.
+     * 
+     * @param row
+     *            the index of the row.
+     * @return the number of cells stored in the row
+     */
+    public int getRowSize(int row) {
+        return rowSizes[row];
+    }
+
+    /**
+     * Returns the values of the given row, in the order of
+     * {@link #getColumnIndexes(int)}. Only the first <tt>getRowSize(row)</tt>
+     * of them are valid. The array is replaced when the row grows.
+     * 
+     * @param row
+     *            the index of the row.
+     * @return the values of the row, or <tt>null</tt> if no cell of it was ever
+     *         set
+     */
+    public double[] getValues(int row) {
+        return values[row];
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        return new SparseRowListDoubleMatrix2D(rows, columns);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new SparseDoubleMatrix1D(size);
+    }
+
+    public void setQuick(int row, int column, double value) {
+        int size = rowSizes[row];
+        int k = (size == 0) ? -1 : cern.colt.Sorting.binarySearchFromTo(columnIndexes[row], column, 0, size - 1);
+        if (k >= 0) {
+            if (value != 0) {
+                values[row][k] = value;
+            } else { // delete
+                int[] indexes = columnIndexes[row];
+                double[] v = values[row];
+                System.arraycopy(indexes, k + 1, indexes, k, size - k - 1);
+                System.arraycopy(v, k + 1, v, k, size - k - 1);
+                rowSizes[row] = size - 1;
+            }
+        } else if (value != 0) { // insert
+            k = -k - 1;
+            if (columnIndexes[row] == null || size == columnIndexes[row].length) {
+                realloc(row, Math.max(INITIAL_CAPACITY, size + size / 2 + 1));
+            }
+            int[] indexes = columnIndexes[row];
+            double[] v = values[row];
+            System.arraycopy(indexes, k, indexes, k + 1, size - k);
+            System.arraycopy(v, k, v, k + 1, size - k);
+            indexes[k] = column;
+            v[k] = value;
+            rowSizes[row] = size + 1;
+        }
+    }
+
+    /**
+     * Replaces all cells of the given row. The arrays are copied.
+     * 
+     * @param row
+     *            the index of the row.
+     * @param indexes
+     *            the column indexes of the cells, in ascending order.
+     * @param values
+     *            the values of the cells.
+     * @param size
+     *            the number of cells.
+     * @throws IllegalArgumentException
+     *             if the column indexes are not in ascending order or out of
+     *             bounds.
+     */
+    public void setRow(int row, int[] indexes, double[] values, int size) {
+        for (int k = 0; k < size; k++) {
+            if (indexes[k] < 0 || indexes[k] >= columns || (k > 0 && indexes[k] <= indexes[k - 1]))
+                throw new IllegalArgumentException("column indexes not in ascending order or out of bounds");
+        }
+        rowSizes[row] = 0;
+        if (size > 0 && (columnIndexes[row] == null || columnIndexes[row].length < size)) {
+            realloc(row, size);
+        }
+        if (size > 0) {
+            System.arraycopy(indexes, 0, columnIndexes[row], 0, size);
+            System.arraycopy(values, 0, this.values[row], 0, size);
+        }
+        rowSizes[row] = size;
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(rows).append(" x ").append(columns).append(" sparse matrix, nnz = ").append(cardinality())
+                .append('\n');
+        for (int r = 0; r < rows; r++) {
+            for (int k = 0; k < rowSizes[r]; k++) {
+                builder.append('(').append(r).append(',').append(columnIndexes[r][k]).append(')').append('\t')
+                        .append(values[r][k]).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    public void trimToSize() {
+        for (int r = 0; r < rows; r++) {
+            if (rowSizes[r] == 0) {
+                columnIndexes[r] = null;
+                values[r] = null;
+            } else if (rowSizes[r] < columnIndexes[r].length) {
+                realloc(r, rowSizes[r]);
+            }
+        }
+    }
+
+    public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, final double alpha, final double beta,
+            final boolean transposeA) {
+        final int rowsA = transposeA ? columns : rows;
+        final int columnsA = transposeA ? rows : columns;
+
+        boolean ignore = (z == null || !transposeA);
+        if (z == null)
+            z = new DenseDoubleMatrix1D(rowsA);
+
+        if (!(y instanceof DenseDoubleMatrix1D && z instanceof DenseDoubleMatrix1D)) {
+            return super.zMult(y, z, alpha, beta, transposeA);
+        }
+
+        if (columnsA != y.size() || rowsA > z.size())
+            throw new IllegalArgumentException("Incompatible args: "
+                    + ((transposeA ? viewDice() : this).toStringShort()) + ", " + y.toStringShort() + ", "
+                    + z.toStringShort());
+
+        DenseDoubleMatrix1D zz = (DenseDoubleMatrix1D) z;
+        final double[] elementsZ = zz.elements;
+        final int strideZ = zz.stride();
+        final int zeroZ = (int) z.index(0);
+
+        DenseDoubleMatrix1D yy = (DenseDoubleMatrix1D) y;
+        final double[] elementsY = yy.elements;
+        final int strideY = yy.stride();
+        final int zeroY = (int) y.index(0);
+
+        int[] rowPointers = pointers();
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(rowPointers[rows], rows);
+        final int[] firstRow = SparseCompressedDoubleMatrix2DConversion.split(rowPointers, rows, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+
+        if (transposeA) {
+            if ((!ignore) && (beta != 1.0))
+                z.assign(cern.jet.math.tdouble.DoubleFunctions.mult(beta));
+            if (nthreads == 1) {
+                for (int r = 0; r < rows; r++) {
+                    int[] indexes = columnIndexes[r];
+                    double[] v = values[r];
+                    double yElem = alpha * elementsY[zeroY + strideY * r];
+                    for (int k = 0; k < rowSizes[r]; k++) {
+                        elementsZ[zeroZ + strideZ * indexes[k]] += v[k] * yElem;
+                    }
+                }
+                return z;
+            }
+            final double[][] results = new double[nthreads][];
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = firstRow[j];
+                final int lastIdx = firstRow[j + 1];
+                final int threadID = j;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        double[] result = new double[columns];
+                        for (int r = firstIdx; r < lastIdx; r++) {
+                            int[] indexes = columnIndexes[r];
+                            double[] v = values[r];
+                            double yElem = alpha * elementsY[zeroY + strideY * r];
+                            for (int k = 0; k < rowSizes[r]; k++) {
+                                result[indexes[k]] += v[k] * yElem;
+                            }
+                        }
+                        results[threadID] = result;
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            int k = columns / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstColumn = j * k;
+                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int c = firstColumn; c < lastColumn; c++) {
+                            double sum = 0;
+                            for (int t = 0; t < results.length; t++) {
+                                sum += results[t][c];
+                            }
+                            elementsZ[zeroZ + strideZ * c] += sum;
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            return z;
+        }
+
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstRow[j];
+            final int lastIdx = firstRow[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int r = firstIdx; r < lastIdx; r++) {
+                        int[] indexes = columnIndexes[r];
+                        double[] v = values[r];
+                        double sum = 0;
+                        for (int k = 0; k < rowSizes[r]; k++) {
+                            sum += v[k] * elementsY[zeroY + strideY * indexes[k]];
+                        }
+                        int idx = zeroZ + strideZ * r;
+                        if (beta == 0.0) {
+                            elementsZ[idx] = alpha * sum;
+                        } else {
+                            elementsZ[idx] = alpha * sum + beta * elementsZ[idx];
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return z;
+    }
+
+    /*
+     * Fills the rows with the cells of A, whose column indexes are sorted.
+     * Duplicates are summed and zeros are dropped.
+     */
+    private void load(SparseRCDoubleMatrix2D A) {
+        final int[] rowPointersA = A.rowPointers;
+        final int[] columnIndexesA = A.columnIndexes;
+        final double[] valuesA = A.values;
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(rowPointersA[rows], rows);
+        final int[] firstRow = SparseCompressedDoubleMatrix2DConversion.split(rowPointersA, rows, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstRow[j];
+            final int lastIdx = firstRow[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int r = firstIdx; r < lastIdx; r++) {
+                        int low = rowPointersA[r];
+                        int high = rowPointersA[r + 1];
+                        rowSizes[r] = 0;
+                        if (columnIndexes[r] == null || columnIndexes[r].length < high - low) {
+                            realloc(r, high - low);
+                        }
+                        int[] indexes = columnIndexes[r];
+                        double[] v = values[r];
+                        int size = 0;
+                        for (int p = low; p < high; p++) {
+                            if (size > 0 && indexes[size - 1] == columnIndexesA[p]) {
+                                v[size - 1] += valuesA[p];
+                            } else {
+                                indexes[size] = columnIndexesA[p];
+                                v[size++] = valuesA[p];
+                            }
+                        }
+                        int nz = 0;
+                        for (int k = 0; k < size; k++) {
+                            if (v[k] != 0) {
+                                indexes[nz] = indexes[k];
+                                v[nz++] = v[k];
+                            }
+                        }
+                        rowSizes[r] = nz;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+    }
+
+    /*
+     * Returns the start of every row in the row-compressed form.
+     */
+    private int[] pointers() {
+        int[] rowPointers = new int[rows + 1];
+        long nnz = 0;
+        for (int r = 0; r < rows; r++) {
+            nnz += rowSizes[r];
+            rowPointers[r + 1] = (int) nnz;
+        }
+        if (nnz > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("matrix too large");
+        return rowPointers;
+    }
+
+    /*
+     * Changes the capacity of the given row, keeping its cells.
+     */
+    private void realloc(int row, int capacity) {
+        int[] indexes = new int[capacity];
+        double[] v = new double[capacity];
+        int size = rowSizes[row];
+        if (size > 0) {
+            System.arraycopy(columnIndexes[row], 0, indexes, 0, size);
+            System.arraycopy(values[row], 0, v, 0, size);
+        }
+        columnIndexes[row] = indexes;
+        values[row] = v;
+    }
+}
@@ -0,0 +1,588 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Sparse 2-d matrix holding <tt>double</tt> elements in the sliced ELLPACK
+ * format SELL-C-&sigma;. First see the <a
+ * href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * The rows are cut into windows of &sigma; rows, and the rows of every window
+ * are sorted by decreasing number of non-zeros. The sorted rows are then
+ * grouped into chunks of <tt>C</tt> rows. A chunk is stored as a dense
+ * <tt>C x w</tt> block in column-major order, where <tt>w</tt> is the length of
+ * its longest row; shorter rows are padded. The matrix-vector product
+ * therefore works on <tt>C</tt> rows at a time with unit-stride loads of
+ * values and column indexes, and sorting keeps the padding small. Since the
+ * rows of a chunk are sorted, the padding is never read.
+ * <p>
+ * This format is meant for matrices whose structure is fixed, typically the
+ * operator of an iterative solver. It is created from a
+ * {@link SparseRCDoubleMatrix2D}. Cells in the pattern can be changed in
+ * place; making a new cell non-zero rebuilds the whole matrix.
+ * <p>
+ * <b>Time complexity:</b>
+ * <p>
+ * Getting or setting a cell in the pattern takes time <tt>O(nzr)</tt>, where
+ * <tt>nzr</tt> is the number of non-zeros of the row. Making a new cell
+ * non-zero takes time <tt>O(nnz)</tt>.
+ */
+public class SparseSELLDoubleMatrix2D extends WrapperDoubleMatrix2D implements CompressedDoubleMatrix2DSource {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default chunk height <tt>C</tt>.
+     */
+    public static final int DEFAULT_CHUNK_HEIGHT = 8;
+
+    /**
+     * The default sorting window &sigma;.
+     */
+    public static final int DEFAULT_SORTING_WINDOW = 256;
+
+    /*
+     * Number of rows per chunk.
+     */
+    protected int chunkHeight;
+
+    /*
+     * Number of rows per sorting window, a multiple of chunkHeight.
+     */
+    protected int sortingWindow;
+
+    /*
+     * Start of every chunk in columnIndexes and values.
+     */
+    protected int[] chunkPointers;
+
+    /*
+     * Number of non-zeros of the row in every slot, a slot being the position
+     * of a row after sorting.
+     */
+    protected int[] rowLengths;
+
+    /*
+     * The row in every slot.
+     */
+    protected int[] rowPermutation;
+
+    /*
+     * The slot of every row.
+     */
+    protected int[] rowSlots;
+
+    protected int[] columnIndexes;
+
+    protected double[] values;
+
+    protected boolean columnIndexesSorted;
+
+    /**
+     * Constructs a matrix with a given number of rows and columns. All entries
+     * are initially <tt>0</tt>.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0</tt> .
+     */
+    public SparseSELLDoubleMatrix2D(int rows, int columns) {
+        this(new SparseRCDoubleMatrix2D(rows, columns, new int[rows + 1], new int[0], new double[0]));
+    }
+
+    /**
+     * Constructs a matrix with the same cells as the given row-compressed
+     * matrix, using the default chunk height and sorting window.
+     * 
+     * @param A
+     *            the matrix to convert.
+     */
+    public SparseSELLDoubleMatrix2D(SparseRCDoubleMatrix2D A) {
+        this(A, DEFAULT_CHUNK_HEIGHT, DEFAULT_SORTING_WINDOW);
+    }
+
+    /**
+     * Constructs a matrix with the same cells as the given row-compressed
+     * matrix.
+     * 
+     * @param A
+     *            the matrix to convert.
+     * @param chunkHeight
+     *            the number of rows per chunk (<tt>C</tt>).
+     * @param sortingWindow
+     *            the number of rows within which rows are sorted by length
+     *            (&sigma;).
+     * @throws IllegalArgumentException
+     *             if <tt>chunkHeight < 1</tt> or <tt>sortingWindow</tt> is not
+     *             a positive multiple of <tt>chunkHeight</tt>.
+     */
+    public SparseSELLDoubleMatrix2D(SparseRCDoubleMatrix2D A, int chunkHeight, int sortingWindow) {
+        super(null);
+        try {
+            setUp(A.rows(), A.columns());
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        if (chunkHeight < 1 || sortingWindow < chunkHeight || sortingWindow % chunkHeight != 0) {
+            throw new IllegalArgumentException("sortingWindow must be a positive multiple of chunkHeight");
+        }
+        this.chunkHeight = chunkHeight;
+        this.sortingWindow = sortingWindow;
+        store(A);
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (alpha == 1)
+                return this;
+            if (alpha != alpha)
+                return super.assign(function); // the funny definition of isNaN(). This should better not happen.
+            for (int k = 0; k < values.length; k++) {
+                values[k] *= alpha;
+            }
+            return this;
+        }
+        return super.assign(function);
+    }
+
+    public DoubleMatrix2D assign(double value) {
+        if (value == 0) {
+            Arrays.fill(values, 0);
+            return this;
+        }
+        return super.assign(value);
+    }
+
+    public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        if (source == this)
+            return this; // nothing to do
+        checkShape(source);
+        SparseRCDoubleMatrix2D A = new SparseRCDoubleMatrix2D(rows, columns);
+        A.assign(source);
+        store(A);
+        return this;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int k = 0; k < values.length; k++) {
+            if (values[k] != 0) {
+                cardinality++;
+            }
+        }
+        return cardinality;
+    }
+
+    public double[] elements() {
+        return values;
+    }
+
+    public DoubleMatrix2D forEachNonZero(final cern.colt.function.tdouble.IntIntDoubleFunction function) {
+        int nchunks = chunkPointers.length - 1;
+        for (int c = 0; c < nchunks; c++) {
+            int slot0 = c * chunkHeight;
+            int nlanes = Math.min(chunkHeight, rows - slot0);
+            for (int l = 0; l < nlanes; l++) {
+                int row = rowPermutation[slot0 + l];
+                int k = chunkPointers[c] + l;
+                for (int j = rowLengths[slot0 + l]; --j >= 0; k += chunkHeight) {
+                    double value = values[k];
+                    if (value != 0) {
+                        double r = function.apply(row, columnIndexes[k], value);
+                        if (r != value)
+                            values[k] = r;
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of rows per chunk.
+     * 
+     * @return the chunk height <tt>C</tt>
+     */
+    public int getChunkHeight() {
+        return chunkHeight;
+    }
+
+    public synchronized double getQuick(int row, int column) {
+        int k = search(row, column);
+        return (k >= 0) ? values[k] : 0;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, but is in
+     * a column-compressed form. This method creates a new object (not a view),
+     * so changes in the returned matrix are NOT reflected in this matrix.
+     * 
+     * @return this matrix in a column-compressed form
+     */
+    public SparseCCDoubleMatrix2D getColumnCompressed() {
+        return getRowCompressed().getColumnCompressed();
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, but is in
+     * a row-compressed form. This method creates a new object (not a view), so
+     * changes in the returned matrix are NOT reflected in this matrix.
+     * 
+     * @return this matrix in a row-compressed form
+     */
+    public SparseRCDoubleMatrix2D getRowCompressed() {
+        final int[] rowPointers = new int[rows + 1];
+        for (int r = 0; r < rows; r++) {
+            rowPointers[r + 1] = rowPointers[r] + rowLengths[rowSlots[r]];
+        }
+        final int[] columnIndexesR = new int[rowPointers[rows]];
+        final double[] valuesR = new double[rowPointers[rows]];
+        int nchunks = chunkPointers.length - 1;
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(valuesR.length, nchunks);
+        final int[] firstChunk = SparseCompressedDoubleMatrix2DConversion.split(chunkPointers, nchunks, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstChunk[j];
+            final int lastIdx = firstChunk[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int c = firstIdx; c < lastIdx; c++) {
+                        int slot0 = c * chunkHeight;
+                        int nlanes = Math.min(chunkHeight, rows - slot0);
+                        for (int l = 0; l < nlanes; l++) {
+                            int p = rowPointers[rowPermutation[slot0 + l]];
+                            int k = chunkPointers[c] + l;
+                            for (int j = rowLengths[slot0 + l]; --j >= 0; k += chunkHeight) {
+                                columnIndexesR[p] = columnIndexes[k];
+                                valuesR[p++] = values[k];
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(rows, columns, rowPointers, columnIndexesR, valuesR);
+        R.columnIndexesSorted = columnIndexesSorted;
+        return R;
+    }
+
+    /**
+     * Returns the number of rows within which rows are sorted by length.
+     * 
+     * @return the sorting window &sigma;
+     */
+    public int getSortingWindow() {
+        return sortingWindow;
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        return new SparseRCDoubleMatrix2D(rows, columns);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new SparseDoubleMatrix1D(size);
+    }
+
+    public synchronized void setQuick(int row, int column, double value) {
+        int k = search(row, column);
+        if (k >= 0) {
+            values[k] = value;
+        } else if (value != 0) {
+            SparseRCDoubleMatrix2D A = getRowCompressed();
+            A.setQuick(row, column, value);
+            store(A);
+        }
+    }
+
+    public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, final double alpha, final double beta,
+            final boolean transposeA) {
+        final int rowsA = transposeA ? columns : rows;
+        final int columnsA = transposeA ? rows : columns;
+
+        boolean ignore = (z == null || !transposeA);
+        if (z == null)
+            z = new DenseDoubleMatrix1D(rowsA);
+
+        if (!(y instanceof DenseDoubleMatrix1D && z instanceof DenseDoubleMatrix1D)) {
+            return super.zMult(y, z, alpha, beta, transposeA);
+        }
+
+        if (columnsA != y.size() || rowsA > z.size())
+            throw new IllegalArgumentException("Incompatible args: "
+                    + ((transposeA ? viewDice() : this).toStringShort()) + ", " + y.toStringShort() + ", "
+                    + z.toStringShort());
+
+        DenseDoubleMatrix1D zz = (DenseDoubleMatrix1D) z;
+        final double[] elementsZ = zz.elements;
+        final int strideZ = zz.stride();
+        final int zeroZ = (int) z.index(0);
+
+        DenseDoubleMatrix1D yy = (DenseDoubleMatrix1D) y;
+        final double[] elementsY = yy.elements;
+        final int strideY = yy.stride();
+        final int zeroY = (int) y.index(0);
+
+        final int nchunks = chunkPointers.length - 1;
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(values.length, nchunks);
+        final int[] firstChunk = SparseCompressedDoubleMatrix2DConversion.split(chunkPointers, nchunks, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+
+        if (transposeA) {
+            if ((!ignore) && (beta != 1.0))
+                z.assign(cern.jet.math.tdouble.DoubleFunctions.mult(beta));
+            if (nthreads == 1) {
+                multiplyTransposed(0, nchunks, alpha, elementsY, zeroY, strideY, elementsZ, zeroZ, strideZ);
+                return z;
+            }
+            final double[][] results = new double[nthreads][];
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = firstChunk[j];
+                final int lastIdx = firstChunk[j + 1];
+                final int threadID = j;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        double[] result = new double[columns];
+                        multiplyTransposed(firstIdx, lastIdx, alpha, elementsY, zeroY, strideY, result, 0, 1);
+                        results[threadID] = result;
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            int k = columns / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstColumn = j * k;
+                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int i = firstColumn; i < lastColumn; i++) {
+                            double sum = 0;
+                            for (int t = 0; t < results.length; t++) {
+                                sum += results[t][i];
+                            }
+                            elementsZ[zeroZ + strideZ * i] += sum;
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+            return z;
+        }
+
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstChunk[j];
+            final int lastIdx = firstChunk[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    multiply(firstIdx, lastIdx, alpha, beta, elementsY, zeroY, strideY, elementsZ, zeroZ, strideZ);
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return z;
+    }
+
+    /*
+     * z[row] = alpha * A[row,:] * y + beta * z[row] for the rows of the given
+     * chunks. The rows of a chunk are sorted by decreasing length, so the
+     * lanes still active in column j of a chunk are always a prefix.
+     */
+    private void multiply(int firstChunk, int lastChunk, double alpha, double beta, double[] y, int zeroY,
+            int strideY, double[] z, int zeroZ, int strideZ) {
+        final int C = chunkHeight;
+        double[] sum = new double[C];
+        for (int c = firstChunk; c < lastChunk; c++) {
+            int slot0 = c * C;
+            int nlanes = Math.min(C, rows - slot0);
+            int base = chunkPointers[c];
+            int width = (chunkPointers[c + 1] - base) / C;
+            for (int l = 0; l < nlanes; l++) {
+                sum[l] = 0;
+            }
+            int j = 0;
+            if (C == 8 && nlanes == 8) {
+                // all eight lanes are active up to the length of the shortest row
+                int full = rowLengths[slot0 + 7];
+                double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+                for (int off = base; j < full; j++, off += 8) {
+                    s0 += values[off] * y[zeroY + strideY * columnIndexes[off]];
+                    s1 += values[off + 1] * y[zeroY + strideY * columnIndexes[off + 1]];
+                    s2 += values[off + 2] * y[zeroY + strideY * columnIndexes[off + 2]];
+                    s3 += values[off + 3] * y[zeroY + strideY * columnIndexes[off + 3]];
+                    s4 += values[off + 4] * y[zeroY + strideY * columnIndexes[off + 4]];
+                    s5 += values[off + 5] * y[zeroY + strideY * columnIndexes[off + 5]];
+                    s6 += values[off + 6] * y[zeroY + strideY * columnIndexes[off + 6]];
+                    s7 += values[off + 7] * y[zeroY + strideY * columnIndexes[off + 7]];
+                }
+                sum[0] = s0;
+                sum[1] = s1;
+                sum[2] = s2;
+                sum[3] = s3;
+                sum[4] = s4;
+                sum[5] = s5;
+                sum[6] = s6;
+                sum[7] = s7;
+            }
+            int lanes = nlanes;
+            for (; j < width; j++) {
+                while (rowLengths[slot0 + lanes - 1] <= j) {
+                    lanes--;
+                }
+                int off = base + j * C;
+                for (int l = 0; l < lanes; l++) {
+                    sum[l] += values[off + l] * y[zeroY + strideY * columnIndexes[off + l]];
+                }
+            }
+            for (int l = 0; l < nlanes; l++) {
+                int idx = zeroZ + strideZ * rowPermutation[slot0 + l];
+                if (beta == 0.0) {
+                    z[idx] = alpha * sum[l];
+                } else {
+                    z[idx] = alpha * sum[l] + beta * z[idx];
+                }
+            }
+        }
+    }
+
+    /*
+     * z += alpha * A[rows of the given chunks,:]' * y[rows of the given
+     * chunks].
+     */
+    private void multiplyTransposed(int firstChunk, int lastChunk, double alpha, double[] y, int zeroY,
+            int strideY, double[] z, int zeroZ, int strideZ) {
+        final int C = chunkHeight;
+        double[] ay = new double[C];
+        for (int c = firstChunk; c < lastChunk; c++) {
+            int slot0 = c * C;
+            int nlanes = Math.min(C, rows - slot0);
+            int base = chunkPointers[c];
+            int width = (chunkPointers[c + 1] - base) / C;
+            for (int l = 0; l < nlanes; l++) {
+                ay[l] = alpha * y[zeroY + strideY * rowPermutation[slot0 + l]];
+            }
+            int lanes = nlanes;
+            for (int j = 0; j < width; j++) {
+                while (rowLengths[slot0 + lanes - 1] <= j) {
+                    lanes--;
+                }
+                int off = base + j * C;
+                for (int l = 0; l < lanes; l++) {
+                    z[zeroZ + strideZ * columnIndexes[off + l]] += values[off + l] * ay[l];
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns the position of cell (row, column), or -1 if it is not stored.
+     */
+    private int search(int row, int column) {
+        int slot = rowSlots[row];
+        int c = slot / chunkHeight;
+        int k = chunkPointers[c] + slot - c * chunkHeight;
+        for (int j = rowLengths[slot]; --j >= 0; k += chunkHeight) {
+            if (columnIndexes[k] == column)
+                return k;
+        }
+        return -1;
+    }
+
+    /*
+     * Fills the internal storage with the cells of A.
+     */
+    private void store(SparseRCDoubleMatrix2D A) {
+        final int[] rowPointersA = A.rowPointers;
+        final int[] columnIndexesA = A.columnIndexes;
+        final double[] valuesA = A.values;
+        final int C = chunkHeight;
+        final int nchunks = (rows + C - 1) / C;
+        final int nwindows = (rows + sortingWindow - 1) / sortingWindow;
+        rowLengths = new int[rows];
+        rowPermutation = new int[rows];
+        rowSlots = new int[rows];
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(rowPointersA[rows], nwindows);
+        Future<?>[] futures = new Future[nthreads];
+        int k = nwindows / nthreads;
+        for (int j = 0; j < nthreads; j++) {
+            final int firstWindow = j * k;
+            final int lastWindow = (j == nthreads - 1) ? nwindows : firstWindow + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    long[] keys = new long[sortingWindow];
+                    for (int w = firstWindow; w < lastWindow; w++) {
+                        int first = w * sortingWindow;
+                        int n = Math.min(sortingWindow, rows - first);
+                        for (int i = 0; i < n; i++) {
+                            int row = first + i;
+                            // longest rows first, then by row index
+                            keys[i] = ((long) ~(rowPointersA[row + 1] - rowPointersA[row]) << 32) | row;
+                        }
+                        Arrays.sort(keys, 0, n);
+                        for (int i = 0; i < n; i++) {
+                            int row = (int) keys[i];
+                            rowPermutation[first + i] = row;
+                            rowSlots[row] = first + i;
+                            rowLengths[first + i] = rowPointersA[row + 1] - rowPointersA[row];
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        chunkPointers = new int[nchunks + 1];
+        long size = 0;
+        for (int c = 0; c < nchunks; c++) {
+            size += (long) rowLengths[c * C] * C;
+            if (size > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("matrix too large");
+            chunkPointers[c + 1] = (int) size;
+        }
+        columnIndexes = new int[(int) size];
+        values = new double[(int) size];
+        nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(size, nchunks);
+        final int[] firstChunk = SparseCompressedDoubleMatrix2DConversion.split(chunkPointers, nchunks, nthreads);
+        futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstChunk[j];
+            final int lastIdx = firstChunk[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int c = firstIdx; c < lastIdx; c++) {
+                        int slot0 = c * C;
+                        int nlanes = Math.min(C, rows - slot0);
+                        for (int l = 0; l < nlanes; l++) {
+                            int p = rowPointersA[rowPermutation[slot0 + l]];
+                            int q = chunkPointers[c] + l;
+                            for (int j = rowLengths[slot0 + l]; --j >= 0; q += C) {
+                                columnIndexes[q] = columnIndexesA[p];
+                                values[q] = valuesA[p++];
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        columnIndexesSorted = A.columnIndexesSorted;
+    }
+}
@@ -0,0 +1,642 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.concurrent.Future;
+
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Sparse symmetric 2-d matrix holding <tt>double</tt> elements. First see the
+ * <a href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * Only the upper triangle is stored, in the column-compressed format: column
+ * <tt>j</tt> holds the cells <tt>A[i][j]</tt> with <tt>i <= j</tt>, with the
+ * row indexes sorted. Setting <tt>A[i][j]</tt> also sets <tt>A[j][i]</tt>. This
+ * is the input expected by the sparse Cholesky factorization, so
+ * {@link cern.colt.matrix.tdouble.algo.decomposition.SparseDoubleCholeskyDecomposition}
+ * factors this matrix without expanding it; the same arrays read by rows are
+ * the lower triangle.
+ * <p>
+ * The matrix-vector product reads every stored cell once and uses it for both
+ * triangles. Threads work on ranges of columns and accumulate into a buffer
+ * per thread that only spans the rows the range touches; the buffers are
+ * summed at the end.
+ * <p>
+ * <b>Time complexity:</b>
+ * <p>
+ * Getting a cell takes time <tt>O(log nzc)</tt>, where <tt>nzc</tt> is the
+ * number of stored cells of its column. Setting a cell that is not stored
+ * takes time <tt>O(nnz)</tt>.
+ */
+public class SparseSymmetricDoubleMatrix2D extends WrapperDoubleMatrix2D implements CompressedDoubleMatrix2DSource {
+    private static final long serialVersionUID = 1L;
+
+    protected int[] columnPointers;
+
+    protected int[] rowIndexes;
+
+    protected double[] values;
+
+    /**
+     * Constructs a matrix with a given number of rows and columns. All entries
+     * are initially <tt>0</tt>.
+     * 
+     * @param n
+     *            the number of rows and columns the matrix shall have.
+     * @throws IllegalArgumentException
+     *             if <tt>n<0</tt>.
+     */
+    public SparseSymmetricDoubleMatrix2D(int n) {
+        this(n, new int[n + 1], new int[0], new double[0]);
+    }
+
+    /**
+     * Constructs a matrix with the upper triangle of the given matrix. The
+     * strictly lower triangle of <tt>A</tt> is ignored.
+     * 
+     * @param A
+     *            a square matrix.
+     * @throws IllegalArgumentException
+     *             if <tt>A</tt> is not square.
+     */
+    public SparseSymmetricDoubleMatrix2D(DoubleMatrix2D A) {
+        this(A.rows(), new int[A.rows() + 1], new int[0], new double[0]);
+        assign(A);
+    }
+
+    /**
+     * Constructs a matrix with given parameters. The arrays are not copied.
+     * The row indexes of every column are sorted if they are not.
+     * 
+     * @param n
+     *            the number of rows and columns the matrix shall have.
+     * @param columnPointers
+     *            column pointers
+     * @param rowIndexes
+     *            row indexes; a row index must not exceed the index of its
+     *            column
+     * @param values
+     *            numerical values
+     * @throws IllegalArgumentException
+     *             if <tt>columnPointers.length != n + 1</tt> or a row index
+     *             exceeds the index of its column.
+     */
+    public SparseSymmetricDoubleMatrix2D(int n, int[] columnPointers, int[] rowIndexes, double[] values) {
+        super(null);
+        try {
+            setUp(n, n);
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        if (columnPointers.length != n + 1) {
+            throw new IllegalArgumentException("columnPointers.length != n + 1");
+        }
+        boolean sorted = true;
+        for (int j = 0; j < n; j++) {
+            for (int k = columnPointers[j]; k < columnPointers[j + 1]; k++) {
+                if (rowIndexes[k] > j) {
+                    throw new IllegalArgumentException("row index > column index");
+                }
+                if (k > columnPointers[j] && rowIndexes[k - 1] >= rowIndexes[k]) {
+                    sorted = false;
+                }
+            }
+        }
+        if (!sorted) {
+            SparseCompressedDoubleMatrix2DConversion.sortIndexes(n, n, columnPointers, rowIndexes, values);
+        }
+        this.columnPointers = columnPointers;
+        this.rowIndexes = rowIndexes;
+        this.values = values;
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (alpha == 1)
+                return this;
+            if (alpha == 0)
+                return assign(0);
+            if (alpha != alpha)
+                return super.assign(function); // the funny definition of isNaN(). This should better not happen.
+            int nnz = columnPointers[columns];
+            for (int k = 0; k < nnz; k++) {
+                values[k] *= alpha;
+            }
+            return this;
+        }
+        return super.assign(function);
+    }
+
+    public DoubleMatrix2D assign(double value) {
+        if (value == 0) {
+            columnPointers = new int[columns + 1];
+            rowIndexes = new int[0];
+            values = new double[0];
+            return this;
+        }
+        return super.assign(value);
+    }
+
+    /**
+     * Replaces the cells of this matrix with the upper triangle of the given
+     * matrix; its strictly lower triangle is ignored.
+     * 
+     * @param source
+     *            the source matrix to copy from (may be identical to the
+     *            receiver).
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>columns() != source.columns() || rows() != source.rows()</tt>
+     */
+    public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        if (source == this)
+            return this; // nothing to do
+        checkShape(source);
+        if (source instanceof SparseSymmetricDoubleMatrix2D) {
+            SparseSymmetricDoubleMatrix2D other = (SparseSymmetricDoubleMatrix2D) source;
+            int nnz = other.columnPointers[columns];
+            columnPointers = other.columnPointers.clone();
+            rowIndexes = new int[nnz];
+            values = new double[nnz];
+            System.arraycopy(other.rowIndexes, 0, rowIndexes, 0, nnz);
+            System.arraycopy(other.values, 0, values, 0, nnz);
+            return this;
+        }
+        SparseCCDoubleMatrix2D C;
+        if (source instanceof SparseCCDoubleMatrix2D) {
+            C = (SparseCCDoubleMatrix2D) source;
+        } else if (source instanceof SparseRCDoubleMatrix2D) {
+            C = ((SparseRCDoubleMatrix2D) source).getColumnCompressed();
+        } else {
+            C = SparseCompressedDoubleMatrix2DConversion.toColumnCompressed(source);
+        }
+        upperTriangle(C.getColumnPointers(), C.getRowIndexes(), C.getValues());
+        if (!C.hasRowIndexesSorted()) {
+            SparseCompressedDoubleMatrix2DConversion.sortIndexes(columns, rows, columnPointers, rowIndexes, values);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of non-zero cells of the whole matrix; cells of the
+     * strictly upper triangle are counted twice.
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int j = 0; j < columns; j++) {
+            for (int k = columnPointers[j]; k < columnPointers[j + 1]; k++) {
+                if (values[k] != 0) {
+                    cardinality += (rowIndexes[k] == j) ? 1 : 2;
+                }
+            }
+        }
+        return cardinality;
+    }
+
+    public double[] elements() {
+        return values;
+    }
+
+    /**
+     * Applies the function to every non-zero cell of the whole matrix, first
+     * to <tt>A[i][j]</tt> and then to <tt>A[j][i]</tt>; the value returned for
+     * <tt>A[i][j]</tt>, <tt>i <= j</tt>, is stored.
+     */
+    public DoubleMatrix2D forEachNonZero(final cern.colt.function.tdouble.IntIntDoubleFunction function) {
+        for (int j = 0; j < columns; j++) {
+            for (int k = columnPointers[j]; k < columnPointers[j + 1]; k++) {
+                int i = rowIndexes[k];
+                double value = values[k];
+                if (value != 0) {
+                    double r = function.apply(i, j, value);
+                    if (i != j) {
+                        function.apply(j, i, value);
+                    }
+                    if (r != value)
+                        values[k] = r;
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns column pointers of the upper triangle
+     * 
+     * @return column pointers
+     */
+    public int[] getColumnPointers() {
+        return columnPointers;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, with
+     * both triangles, in a column-compressed form. This method creates a new
+     * object (not a view), so changes in the returned matrix are NOT reflected
+     * in this matrix.
+     * 
+     * @return this matrix in a column-compressed form
+     */
+    public SparseCCDoubleMatrix2D getColumnCompressed() {
+        int[][] full = expand();
+        // the expanded matrix is symmetric, so its rows are its columns
+        SparseCCDoubleMatrix2D C = new SparseCCDoubleMatrix2D(rows, columns, full[1], full[0], expandValues(full[2]));
+        C.rowIndexesSorted = true;
+        return C;
+    }
+
+    public synchronized double getQuick(int row, int column) {
+        int k = search(row, column);
+        return (k >= 0) ? values[k] : 0;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, with
+     * both triangles, in a row-compressed form. This method creates a new
+     * object (not a view), so changes in the returned matrix are NOT reflected
+     * in this matrix.
+     * 
+     * @return this matrix in a row-compressed form
+     */
+    public SparseRCDoubleMatrix2D getRowCompressed() {
+        int[][] full = expand();
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(rows, columns, full[0], full[1], expandValues(full[2]));
+        R.columnIndexesSorted = true;
+        return R;
+    }
+
+    /**
+     * Returns row indexes of the upper triangle
+     * 
+     * @return row indexes
+     */
+    public int[] getRowIndexes() {
+        return rowIndexes;
+    }
+
+    /**
+     * Returns the upper triangle as a column-compressed matrix. The arrays are
+     * shared, so changes in the returned matrix are reflected in this matrix
+     * until either is restructured.
+     * 
+     * @return the upper triangle
+     */
+    public SparseCCDoubleMatrix2D getUpperTriangle() {
+        SparseCCDoubleMatrix2D U = new SparseCCDoubleMatrix2D(rows, columns, rowIndexes, columnPointers, values);
+        U.rowIndexesSorted = true;
+        return U;
+    }
+
+    /**
+     * Returns numerical values of the upper triangle
+     * 
+     * @return numerical values
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        return new SparseCCDoubleMatrix2D(rows, columns);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new SparseDoubleMatrix1D(size);
+    }
+
+    /**
+     * Sets <tt>A[row][column]</tt> and <tt>A[column][row]</tt> to the given
+     * value.
+     */
+    public synchronized void setQuick(int row, int column, double value) {
+        if (row > column) {
+            int tmp = row;
+            row = column;
+            column = tmp;
+        }
+        int k = search(row, column);
+        if (k >= 0) { // found
+            if (value == 0)
+                remove(column, k);
+            else
+                values[k] = value;
+            return;
+        }
+        if (value != 0) {
+            insert(row, column, -k - 1, value);
+        }
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(rows).append(" x ").append(columns).append(" symmetric sparse matrix, nnz = ").append(
+                columnPointers[columns]).append(" (upper triangle)\n");
+        for (int j = 0; j < columns; j++) {
+            for (int k = columnPointers[j]; k < columnPointers[j + 1]; k++) {
+                builder.append('(').append(rowIndexes[k]).append(',').append(j).append(')').append('\t').append(
+                        values[k]).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Computes <tt>z = alpha * A * y + beta * z</tt>; <tt>transposeA</tt> has
+     * no effect.
+     */
+    public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, final double alpha, final double beta,
+            final boolean transposeA) {
+        if (z == null)
+            z = new DenseDoubleMatrix1D(rows);
+
+        if (!(y instanceof DenseDoubleMatrix1D && z instanceof DenseDoubleMatrix1D)) {
+            return super.zMult(y, z, alpha, beta, transposeA);
+        }
+
+        if (columns != y.size() || rows > z.size())
+            throw new IllegalArgumentException("Incompatible args: " + toStringShort() + ", " + y.toStringShort()
+                    + ", " + z.toStringShort());
+
+        DenseDoubleMatrix1D yy = (DenseDoubleMatrix1D) y;
+        final double[] elementsY = yy.elements;
+        final int strideY = yy.stride();
+        final int zeroY = (int) y.index(0);
+        DenseDoubleMatrix1D zz = (DenseDoubleMatrix1D) z;
+        final double[] elementsZ = zz.elements;
+        final int strideZ = zz.stride();
+        final int zeroZ = (int) z.index(0);
+
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(columnPointers[columns], columns);
+        final int[] firstColumn = SparseCompressedDoubleMatrix2DConversion.split(columnPointers, columns, nthreads);
+        if (nthreads == 1) {
+            for (int i = 0, idx = zeroZ; i < rows; i++, idx += strideZ) {
+                elementsZ[idx] = (beta == 0.0) ? 0 : beta * elementsZ[idx];
+            }
+            multiply(0, columns, alpha, elementsY, zeroY, strideY, elementsZ, zeroZ, strideZ);
+            return z;
+        }
+        // buffers[t][i - low[t]] = alpha * A[i][columns of t] * y[columns of t]
+        final double[][] buffers = new double[nthreads][];
+        final int[] low = new int[nthreads];
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstColumn[j];
+            final int lastIdx = firstColumn[j + 1];
+            final int threadID = j;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    int lowest = lowestRow(firstIdx, lastIdx);
+                    double[] buffer = new double[lastIdx - lowest];
+                    multiply(firstIdx, lastIdx, alpha, elementsY, zeroY, strideY, buffer, -lowest, 1);
+                    low[threadID] = lowest;
+                    buffers[threadID] = buffer;
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+
+        int nreduce = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(columnPointers[columns], rows);
+        if (nreduce == 1) {
+            reduce(0, rows, beta, buffers, low, firstColumn, elementsZ, zeroZ, strideZ);
+        } else {
+            futures = new Future[nreduce];
+            int k = rows / nreduce;
+            for (int j = 0; j < nreduce; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nreduce - 1) ? rows : firstRow + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        reduce(firstRow, lastRow, beta, buffers, low, firstColumn, elementsZ, zeroZ, strideZ);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        }
+        return z;
+    }
+
+    protected void insert(int row, int column, int index, double value) {
+        IntArrayList rowIndexList = new IntArrayList(rowIndexes);
+        rowIndexList.setSizeRaw(columnPointers[columns]);
+        DoubleArrayList valueList = new DoubleArrayList(values);
+        valueList.setSizeRaw(columnPointers[columns]);
+        rowIndexList.beforeInsert(index, row);
+        valueList.beforeInsert(index, value);
+        for (int i = columnPointers.length; --i > column;)
+            columnPointers[i]++;
+        rowIndexes = rowIndexList.elements();
+        values = valueList.elements();
+    }
+
+    protected void remove(int column, int index) {
+        IntArrayList rowIndexList = new IntArrayList(rowIndexes);
+        rowIndexList.setSizeRaw(columnPointers[columns]);
+        DoubleArrayList valueList = new DoubleArrayList(values);
+        valueList.setSizeRaw(columnPointers[columns]);
+        rowIndexList.remove(index);
+        valueList.remove(index);
+        for (int i = columnPointers.length; --i > column;)
+            columnPointers[i]--;
+        rowIndexes = rowIndexList.elements();
+        values = valueList.elements();
+    }
+
+    /*
+     * Returns the pointers and indexes of the whole matrix by rows: row i is
+     * column i of the upper triangle followed by row i of the strictly upper
+     * triangle. The third array maps every cell to its position in values.
+     */
+    private int[][] expand() {
+        final int n = columns;
+        final int nnz = columnPointers[n];
+        final int[] pointersT = new int[n + 1];
+        final int[] indexesT = new int[nnz];
+        final double[] positions = new double[nnz];
+        for (int k = 0; k < nnz; k++) {
+            positions[k] = k;
+        }
+        // positionsT[k] is the position in values of the k-th cell of the transpose
+        final double[] positionsT = new double[nnz];
+        SparseCompressedDoubleMatrix2DConversion.transpose(n, n, columnPointers, rowIndexes, positions, pointersT,
+                indexesT, positionsT);
+        final int[] pointers = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            int diagonal = (pointersT[i] < pointersT[i + 1] && indexesT[pointersT[i]] == i) ? 1 : 0;
+            pointers[i + 1] = pointers[i] + columnPointers[i + 1] - columnPointers[i] + pointersT[i + 1]
+                    - pointersT[i] - diagonal;
+        }
+        final int[] indexes = new int[pointers[n]];
+        final int[] source = new int[pointers[n]];
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(pointers[n], n);
+        final int[] firstRow = SparseCompressedDoubleMatrix2DConversion.split(pointers, n, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstRow[j];
+            final int lastIdx = firstRow[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int i = firstIdx; i < lastIdx; i++) {
+                        int q = pointers[i];
+                        for (int k = columnPointers[i]; k < columnPointers[i + 1]; k++, q++) {
+                            indexes[q] = rowIndexes[k];
+                            source[q] = k;
+                        }
+                        for (int k = pointersT[i]; k < pointersT[i + 1]; k++) {
+                            if (indexesT[k] != i) {
+                                indexes[q] = indexesT[k];
+                                source[q++] = (int) positionsT[k];
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        return new int[][] { pointers, indexes, source };
+    }
+
+    private double[] expandValues(int[] source) {
+        double[] x = new double[source.length];
+        for (int q = 0; q < x.length; q++) {
+            x[q] = values[source[q]];
+        }
+        return x;
+    }
+
+    /*
+     * Returns the smallest row index stored in the given columns, or firstIdx
+     * if it is smaller.
+     */
+    private int lowestRow(int firstIdx, int lastIdx) {
+        int lowest = firstIdx;
+        for (int j = firstIdx; j < lastIdx; j++) {
+            if (columnPointers[j] < columnPointers[j + 1] && rowIndexes[columnPointers[j]] < lowest) {
+                lowest = rowIndexes[columnPointers[j]];
+            }
+        }
+        return lowest;
+    }
+
+    /*
+     * z[zeroZ + strideZ * i] += alpha * A[i][j] * y[j] for the given columns j
+     * and all rows i; every stored cell is read once and used for both
+     * triangles.
+     */
+    private void multiply(int firstIdx, int lastIdx, double alpha, double[] y, int zeroY, int strideY, double[] z,
+            int zeroZ, int strideZ) {
+        for (int j = firstIdx; j < lastIdx; j++) {
+            double yj = alpha * y[zeroY + strideY * j];
+            double sum = 0;
+            int high = columnPointers[j + 1];
+            // the row indexes are sorted, so the diagonal comes last
+            if (high > columnPointers[j] && rowIndexes[high - 1] == j) {
+                high--;
+                sum = values[high] * y[zeroY + strideY * j];
+            }
+            for (int k = columnPointers[j]; k < high; k++) {
+                int i = rowIndexes[k];
+                double a = values[k];
+                sum += a * y[zeroY + strideY * i];
+                z[zeroZ + strideZ * i] += a * yj;
+            }
+            z[zeroZ + strideZ * j] += alpha * sum;
+        }
+    }
+
+    private void reduce(int firstRow, int lastRow, double beta, double[][] buffers, int[] low,
+            int[] firstColumn, double[] z, int zeroZ, int strideZ) {
+        for (int i = firstRow, idx = zeroZ + strideZ * firstRow; i < lastRow; i++, idx += strideZ) {
+            z[idx] = (beta == 0.0) ? 0 : beta * z[idx];
+        }
+        for (int t = 0; t < buffers.length; t++) {
+            double[] buffer = buffers[t];
+            int from = Math.max(firstRow, low[t]);
+            int to = Math.min(lastRow, firstColumn[t + 1]);
+            for (int i = from, idx = zeroZ + strideZ * from; i < to; i++, idx += strideZ) {
+                z[idx] += buffer[i - low[t]];
+            }
+        }
+    }
+
+    private int search(int row, int column) {
+        if (row > column) {
+            int tmp = row;
+            row = column;
+            column = tmp;
+        }
+        return cern.colt.Sorting.binarySearchFromTo(rowIndexes, row, columnPointers[column],
+                columnPointers[column + 1] - 1);
+    }
+
+    /*
+     * Replaces the cells with the upper triangle of the given
+     * column-compressed matrix.
+     */
+    private void upperTriangle(final int[] pointers, final int[] indexes, final double[] x) {
+        final int n = columns;
+        final int[] counts = new int[n + 1];
+        int nthreads = SparseCompressedDoubleMatrix2DConversion.numberOfThreads(pointers[n], n);
+        final int[] firstColumn = SparseCompressedDoubleMatrix2DConversion.split(pointers, n, nthreads);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstColumn[j];
+            final int lastIdx = firstColumn[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int c = firstIdx; c < lastIdx; c++) {
+                        int count = 0;
+                        for (int k = pointers[c]; k < pointers[c + 1]; k++) {
+                            if (indexes[k] <= c && x[k] != 0) {
+                                count++;
+                            }
+                        }
+                        counts[c + 1] = count;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        for (int c = 0; c < n; c++) {
+            counts[c + 1] += counts[c];
+        }
+        final int[] rowIndexesU = new int[counts[n]];
+        final double[] valuesU = new double[counts[n]];
+        for (int j = 0; j < nthreads; j++) {
+            final int firstIdx = firstColumn[j];
+            final int lastIdx = firstColumn[j + 1];
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int c = firstIdx; c < lastIdx; c++) {
+                        int q = counts[c];
+                        for (int k = pointers[c]; k < pointers[c + 1]; k++) {
+                            if (indexes[k] <= c && x[k] != 0) {
+                                rowIndexesU[q] = indexes[k];
+                                valuesU[q++] = x[k];
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        columnPointers = counts;
+        rowIndexes = rowIndexesU;
+        values = valuesU;
+    }
+}
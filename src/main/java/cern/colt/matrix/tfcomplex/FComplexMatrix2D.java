@@ -15,6 +15,7 @@ import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
 import cern.colt.matrix.AbstractMatrix2D;
+import cern.colt.matrix.tfcomplex.impl.FComplexMatrix2DMultiplication;
 import cern.colt.matrix.tfloat.FloatMatrix2D;
 import cern.jet.math.tfcomplex.FComplex;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
@@ -1607,7 +1608,8 @@ public abstract class FComplexMatrix2D extends AbstractMatrix2D {
      * <tt>C = alpha * A x B + beta*C</tt>. Matrix shapes:
      * <tt>A(m x n), B(n x p), C(m x p)</tt>. <br>
      * Note: Matrix shape conformance is checked <i>after</i> potential
-     * transpositions.
+     * transpositions. This implementation packs the operands, whatever their
+     * storage, see {@link FComplexMatrix2DMultiplication}.
      * 
      * @param B
      *            the second source matrix.
@@ -1627,67 +1629,14 @@ public abstract class FComplexMatrix2D extends AbstractMatrix2D {
      */
     public FComplexMatrix2D zMult(final FComplexMatrix2D B, FComplexMatrix2D C, final float[] alpha,
             final float[] beta, boolean transposeA, boolean transposeB) {
-        if (transposeA)
-            return getConjugateTranspose().zMult(B, C, alpha, beta, false, transposeB);
-        if (transposeB)
-            return this.zMult(B.getConjugateTranspose(), C, alpha, beta, transposeA, false);
-        final int m = rows;
-        final int n = columns;
-        final int p = B.columns;
-        final FComplexMatrix2D CC;
+        final int m = transposeA ? columns : rows;
+        final int p = transposeB ? B.rows : B.columns;
         if (C == null) {
-            CC = like(m, p);
-        } else {
-            CC = C;
+            C = like(m, p);
         }
-        if (B.rows != n)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
-                    + B.toStringShort());
-        if (CC.rows != m || CC.columns != p)
-            throw new IllegalArgumentException("Incompatibe result matrix: " + toStringShort() + ", "
-                    + B.toStringShort() + ", " + CC.toStringShort());
-        if (this == CC || B == CC)
+        if (this == C || B == C)
             throw new IllegalArgumentException("Matrices must not be identical");
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, p);
-            Future<?>[] futures = new Future[nthreads];
-            int k = p / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? p : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        float[] s = new float[2];
-                        for (int a = firstIdx; a < lastIdx; a++) {
-                            for (int b = 0; b < m; b++) {
-                                s[0] = 0;
-                                s[1] = 0;
-                                for (int c = 0; c < n; c++) {
-                                    s = FComplex.plus(s, FComplex.mult(getQuick(b, c), B.getQuick(c, a)));
-                                }
-                                CC.setQuick(b, a, FComplex.plus(FComplex.mult(s, alpha), FComplex.mult(CC
-                                        .getQuick(b, a), beta)));
-                            }
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            float[] s = new float[2];
-            for (int a = 0; a < p; a++) {
-                for (int b = 0; b < m; b++) {
-                    s[0] = 0;
-                    s[1] = 0;
-                    for (int c = 0; c < n; c++) {
-                        s = FComplex.plus(s, FComplex.mult(getQuick(b, c), B.getQuick(c, a)));
-                    }
-                    CC.setQuick(b, a, FComplex.plus(FComplex.mult(s, alpha), FComplex.mult(CC.getQuick(b, a), beta)));
-                }
-            }
-        }
-        return CC;
+        return FComplexMatrix2DMultiplication.zMult(this, B, C, alpha, beta, transposeA, transposeB);
     }
 
     /**
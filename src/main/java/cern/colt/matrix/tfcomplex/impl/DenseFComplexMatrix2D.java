@@ -14,6 +14,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.DenseTranspose;
 import cern.colt.matrix.tfcomplex.FComplexMatrix1D;
 import cern.colt.matrix.tfcomplex.FComplexMatrix2D;
 import cern.colt.matrix.tfloat.FloatMatrix2D;
@@ -559,6 +560,16 @@ public class DenseFComplexMatrix2D extends FComplexMatrix2D {
 
     public FComplexMatrix2D assign(final FComplexMatrix2D source) {
         // overriden for performance only
+        if (source instanceof DenseColumnFComplexMatrix2D) {
+            checkShape(source);
+            DenseColumnFComplexMatrix2D other = (DenseColumnFComplexMatrix2D) source;
+            if (other.elements() == elements) {
+                other = (DenseColumnFComplexMatrix2D) other.copy();
+            }
+            DenseTranspose.copyComplex(other.elements(), (int) other.index(0, 0), other.rowStride(),
+                    other.columnStride(), elements, (int) index(0, 0), rowStride, columnStride, rows, columns);
+            return this;
+        }
         if (!(source instanceof DenseFComplexMatrix2D)) {
             super.assign(source);
             return this;
@@ -567,7 +578,6 @@ public class DenseFComplexMatrix2D extends FComplexMatrix2D {
         if (other == this)
             return this; // nothing to do
         checkShape(other);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if (this.isNoView && other.isNoView) { // quickest
             System.arraycopy(other.elements, 0, this.elements, 0, this.elements.length);
             return this;
@@ -581,52 +591,8 @@ public class DenseFComplexMatrix2D extends FComplexMatrix2D {
             other = (DenseFComplexMatrix2D) c;
         }
 
-        final float[] elemsOther = other.elements;
-        if (elements == null || elemsOther == null)
-            throw new InternalError();
-        final int columnStrideOther = other.columnStride;
-        final int rowStrideOther = other.rowStride;
-        final int zeroOther = (int) other.index(0, 0);
-        final int zero = (int) index(0, 0);
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        int idxOther = zeroOther + firstRow * rowStrideOther;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                elements[i] = elemsOther[j];
-                                elements[i + 1] = elemsOther[j + 1];
-                                i += columnStride;
-                                j += columnStrideOther;
-                            }
-                            idx += rowStride;
-                            idxOther += rowStrideOther;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            int idxOther = zeroOther;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                    elements[i] = elemsOther[j];
-                    elements[i + 1] = elemsOther[j + 1];
-                    i += columnStride;
-                    j += columnStrideOther;
-                }
-                idx += rowStride;
-                idxOther += rowStrideOther;
-            }
-        }
+        DenseTranspose.copyComplex(other.elements, (int) other.index(0, 0), other.rowStride, other.columnStride, elements,
+                (int) index(0, 0), rowStride, columnStride, rows, columns);
         return this;
     }
 
@@ -1547,44 +1513,27 @@ public class DenseFComplexMatrix2D extends FComplexMatrix2D {
 
     public float[][] toArray() {
         final float[][] values = new float[rows][2 * columns];
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        final int zero = (int) index(0, 0);
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, c = 0; c < columns; c++) {
-                                values[r][2 * c] = elements[i];
-                                values[r][2 * c + 1] = elements[i + 1];
-                                i += columnStride;
-                            }
-                            idx += rowStride;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, c = 0; c < columns; c++) {
-                    values[r][2 * c] = elements[i];
-                    values[r][2 * c + 1] = elements[i + 1];
-                    i += columnStride;
-                }
-                idx += rowStride;
-            }
-        }
+        DenseTranspose.copyComplex(elements, (int) index(0, 0), rowStride, columnStride, values, rows, columns);
         return values;
     }
 
+    /**
+     * Transposes this square matrix in place: element <tt>(r,c)</tt> is
+     * swapped with element <tt>(c,r)</tt>. The elements are not
+     * conjugated. Unlike <tt>viewDice()</tt>, this
+     * changes the elements, so all views of this matrix see the change.
+     * 
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>rows() != columns()</tt>.
+     */
+    public DenseFComplexMatrix2D transposeInPlace() {
+        if (rows != columns)
+            throw new IllegalArgumentException("Matrix must be square: " + toStringShort());
+        DenseTranspose.transposeInPlaceComplex(elements, (int) index(0, 0), rowStride, columnStride, rows);
+        return this;
+    }
+
     public FComplexMatrix1D vectorize() {
         final FComplexMatrix1D v = new DenseFComplexMatrix1D((int) size());
         final int zero = (int) index(0, 0);
@@ -1741,207 +1690,6 @@ public class DenseFComplexMatrix2D extends FComplexMatrix2D {
         return zz;
     }
 
-    public FComplexMatrix2D zMult(final FComplexMatrix2D B, FComplexMatrix2D C, final float[] alpha,
-            final float[] beta, final boolean transposeA, final boolean transposeB) {
-        final int rowsA = rows;
-        final int columnsA = columns;
-        final int rowsB = B.rows();
-        final int columnsB = B.columns();
-        final int rowsC = transposeA ? columnsA : rowsA;
-        final int columnsC = transposeB ? rowsB : columnsB;
-
-        if (C == null)
-            C = new DenseFComplexMatrix2D(rowsC, columnsC);
-
-        if (transposeA)
-            return getConjugateTranspose().zMult(B, C, alpha, beta, false, transposeB);
-        if (transposeB)
-            return this.zMult(B.getConjugateTranspose(), C, alpha, beta, transposeA, false);
-        if (B.rows() != columnsA)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
-                    + B.toStringShort());
-        if (C.rows() != rowsA || C.columns() != columnsB)
-            throw new IllegalArgumentException("Incompatibe result matrix: " + toStringShort() + ", "
-                    + B.toStringShort() + ", " + C.toStringShort());
-        if (this == C || B == C)
-            throw new IllegalArgumentException("Matrices must not be identical");
-        long flops = 2L * rowsA * columnsA * columnsB;
-        int noOfTasks = (int) Math.min(flops / 30000, ConcurrencyUtils.getNumberOfThreads()); // each
-        /* thread should process at least 30000 flops */
-        boolean splitB = (columnsB >= noOfTasks);
-        int width = splitB ? columnsB : rowsA;
-        noOfTasks = Math.min(width, noOfTasks);
-
-        if (noOfTasks < 2) {
-            return this.zMultSeq(B, C, alpha, beta, transposeA, transposeB);
-        }
-        // set up concurrent tasks
-        int span = width / noOfTasks;
-        final Future<?>[] subTasks = new Future[noOfTasks];
-        for (int i = 0; i < noOfTasks; i++) {
-            final int offset = i * span;
-            if (i == noOfTasks - 1)
-                span = width - span * i; // last span may be a bit larger
-            final FComplexMatrix2D AA, BB, CC;
-            if (splitB) {
-                // split B along columns into blocks
-                AA = this;
-                BB = B.viewPart(0, offset, columnsA, span);
-                CC = C.viewPart(0, offset, rowsA, span);
-            } else {
-                // split A along rows into blocks
-                AA = this.viewPart(offset, 0, span, columnsA);
-                BB = B;
-                CC = C.viewPart(offset, 0, span, columnsB);
-            }
-
-            subTasks[i] = ConcurrencyUtils.submit(new Runnable() {
-                public void run() {
-                    ((DenseFComplexMatrix2D) AA).zMultSeq(BB, CC, alpha, beta, transposeA, transposeB);
-                }
-            });
-        }
-        ConcurrencyUtils.waitForCompletion(subTasks);
-
-        return C;
-    }
-
-    protected FComplexMatrix2D zMultSeq(FComplexMatrix2D B, FComplexMatrix2D C, float[] alpha, float[] beta,
-            boolean transposeA, boolean transposeB) {
-        if (transposeA)
-            return getConjugateTranspose().zMult(B, C, alpha, beta, false, transposeB);
-        if (transposeB)
-            return this.zMult(B.getConjugateTranspose(), C, alpha, beta, transposeA, false);
-        int m = rows;
-        int n = columns;
-        int p = B.columns();
-        if (C == null)
-            C = new DenseFComplexMatrix2D(m, p);
-        if (!(C instanceof DenseFComplexMatrix2D))
-            return super.zMult(B, C, alpha, beta, transposeA, transposeB);
-        if (B.rows() != n)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
-                    + B.toStringShort());
-        if (C.rows() != m || C.columns() != p)
-            throw new IllegalArgumentException("Incompatibel result matrix: " + toStringShort() + ", "
-                    + B.toStringShort() + ", " + C.toStringShort());
-        if (this == C || B == C)
-            throw new IllegalArgumentException("Matrices must not be identical");
-
-        DenseFComplexMatrix2D BB = (DenseFComplexMatrix2D) B;
-        DenseFComplexMatrix2D CC = (DenseFComplexMatrix2D) C;
-        final float[] AElems = this.elements;
-        final float[] BElems = BB.elements;
-        final float[] CElems = CC.elements;
-        if (AElems == null || BElems == null || CElems == null)
-            throw new InternalError();
-
-        int cA = this.columnStride;
-        int cB = BB.columnStride;
-        int cC = CC.columnStride;
-
-        int rA = this.rowStride;
-        int rB = BB.rowStride;
-        int rC = CC.rowStride;
-
-        /*
-         * A is blocked to hide memory latency xxxxxxx B xxxxxxx xxxxxxx A xxx
-         * xxxxxxx C xxx xxxxxxx --- ------- xxx xxxxxxx xxx xxxxxxx --- -------
-         * xxx xxxxxxx
-         */
-        final int BLOCK_SIZE = 30000; // * 8 == Level 2 cache in bytes
-        int m_optimal = (BLOCK_SIZE - n) / (n + 1);
-        if (m_optimal <= 0)
-            m_optimal = 1;
-        int blocks = m / m_optimal;
-        int rr = 0;
-        if (m % m_optimal != 0)
-            blocks++;
-        float reS;
-        float imS;
-        float reA;
-        float imA;
-        float reB;
-        float imB;
-        float reC;
-        float imC;
-        for (; --blocks >= 0;) {
-            int jB = (int) BB.index(0, 0);
-            int indexA = (int) index(rr, 0);
-            int jC = (int) CC.index(rr, 0);
-            rr += m_optimal;
-            if (blocks == 0)
-                m_optimal += m - rr;
-
-            for (int j = p; --j >= 0;) {
-                int iA = indexA;
-                int iC = jC;
-                for (int i = m_optimal; --i >= 0;) {
-                    int kA = iA;
-                    int kB = jB;
-                    reS = 0;
-                    imS = 0;
-                    // loop unrolled
-                    kA -= cA;
-                    kB -= rB;
-                    for (int k = n % 4; --k >= 0;) {
-                        kA += cA;
-                        kB += rB;
-                        reA = AElems[kA];
-                        imA = AElems[kA + 1];
-                        reB = BElems[kB];
-                        imB = BElems[kB + 1];
-                        reS += reA * reB - imA * imB;
-                        imS += imA * reB + reA * imB;
-                    }
-                    for (int k = n / 4; --k >= 0;) {
-                        kA += cA;
-                        kB += rB;
-                        reA = AElems[kA];
-                        imA = AElems[kA + 1];
-                        reB = BElems[kB];
-                        imB = BElems[kB + 1];
-                        reS += reA * reB - imA * imB;
-                        imS += imA * reB + reA * imB;
-                        kA += cA;
-                        kB += rB;
-                        reA = AElems[kA];
-                        imA = AElems[kA + 1];
-                        reB = BElems[kB];
-                        imB = BElems[kB + 1];
-                        reS += reA * reB - imA * imB;
-                        imS += imA * reB + reA * imB;
-                        kA += cA;
-                        kB += rB;
-                        reA = AElems[kA];
-                        imA = AElems[kA + 1];
-                        reB = BElems[kB];
-                        imB = BElems[kB + 1];
-                        reS += reA * reB - imA * imB;
-                        imS += imA * reB + reA * imB;
-                        kA += cA;
-                        kB += rB;
-                        reA = AElems[kA];
-                        imA = AElems[kA + 1];
-                        reB = BElems[kB];
-                        imB = BElems[kB + 1];
-                        reS += reA * reB - imA * imB;
-                        imS += imA * reB + reA * imB;
-                    }
-                    reC = CElems[iC];
-                    imC = CElems[iC + 1];
-                    CElems[iC] = alpha[0] * reS - alpha[1] * imS + beta[0] * reC - beta[1] * imC;
-                    CElems[iC + 1] = alpha[1] * reS + alpha[0] * imS + beta[1] * reC + beta[0] * imC;
-                    iA += rA;
-                    iC += rC;
-                }
-                jB += cB;
-                jC += cC;
-            }
-        }
-        return C;
-    }
-
     public float[] zSum() {
         float[] sum = new float[2];
         final int zero = (int) index(0, 0);
@@ -20,6 +20,7 @@ import cern.colt.function.tfloat.FloatFunction;
 import cern.colt.function.tfloat.FloatProcedure;
 import cern.colt.list.tfloat.FloatArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.DenseTranspose;
 import cern.colt.matrix.Transpose;
 import cern.colt.matrix.io.MatrixInfo;
 import cern.colt.matrix.io.MatrixSize;
@@ -703,6 +704,16 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
 
     public FloatMatrix2D assign(final FloatMatrix2D source) {
         // overriden for performance only
+        if (source instanceof DenseFloatMatrix2D) {
+            checkShape(source);
+            DenseFloatMatrix2D other = (DenseFloatMatrix2D) source;
+            if (other.elements() == elements) {
+                other = (DenseFloatMatrix2D) other.copy();
+            }
+            DenseTranspose.copy(other.elements(), (int) other.index(0, 0), other.rowStride(),
+                    other.columnStride(), elements, (int) index(0, 0), rowStride, columnStride, rows, columns);
+            return this;
+        }
         if (!(source instanceof DenseColumnFloatMatrix2D)) {
             super.assign(source);
             return this;
@@ -711,7 +722,6 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
         if (other == this)
             return this; // nothing to do
         checkShape(other);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if (this.isNoView && other.isNoView) { // quickest
             System.arraycopy(other.elements, 0, elements, 0, elements.length);
             return this;
@@ -725,48 +735,8 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
             other = (DenseColumnFloatMatrix2D) c;
         }
 
-        final int zeroOther = (int) other.index(0, 0);
-        final int zero = (int) index(0, 0);
-        final int columnStrideOther = other.columnStride;
-        final int rowStrideOther = other.rowStride;
-        final float[] otherElements = other.elements;
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        int idxOther = zeroOther + (rows - 1) * rowStrideOther + (firstColumn - 1) * columnStrideOther;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                                elements[i] = otherElements[j];
-                                i -= rowStride;
-                                j -= rowStrideOther;
-                            }
-                            idx -= columnStride;
-                            idxOther -= columnStrideOther;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            int idxOther = zeroOther + (rows - 1) * rowStrideOther + (columns - 1) * columnStrideOther;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                    elements[i] = otherElements[j];
-                    i -= rowStride;
-                    j -= rowStrideOther;
-                }
-                idx -= columnStride;
-                idxOther -= columnStrideOther;
-            }
-        }
+        DenseTranspose.copy(other.elements, (int) other.index(0, 0), other.rowStride, other.columnStride, elements,
+                (int) index(0, 0), rowStride, columnStride, rows, columns);
         return this;
     }
 
@@ -1517,50 +1487,8 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      */
     public DenseFloatMatrix2D getRowMajor() {
         DenseFloatMatrix2D R = new DenseFloatMatrix2D(rows, columns);
-        final int zeroR = (int) R.index(0, 0);
-        final int rowStrideR = R.rowStride();
-        final int columnStrideR = R.columnStride();
-        final float[] elementsR = R.elements();
-        final int zero = (int) index(0, 0);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        int idxR = zeroR + (rows - 1) * rowStrideR + (firstColumn - 1) * columnStrideR;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, j = idxR, r = rows; --r >= 0;) {
-                                elementsR[j] = elements[i];
-                                i -= rowStride;
-                                j -= rowStrideR;
-                            }
-                            idx -= columnStride;
-                            idxR -= columnStrideR;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            int idxR = zeroR + (rows - 1) * rowStrideR + (columns - 1) * columnStrideR;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, j = idxR, r = rows; --r >= 0;) {
-                    elementsR[j] = elements[i];
-                    i -= rowStride;
-                    j -= rowStrideR;
-                }
-                idx -= columnStride;
-                idxR -= columnStrideR;
-            }
-        }
+        DenseTranspose.copy(elements, (int) index(0, 0), rowStride, columnStride, R.elements(), (int) R.index(0, 0),
+                R.rowStride(), R.columnStride(), rows, columns);
         return R;
     }
 
@@ -2429,42 +2357,26 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
 
     public float[][] toArray() {
         final float[][] values = new float[rows][columns];
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        final int zero = (int) index(0, 0);
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, r = rows; --r >= 0;) {
-                                values[r][c] = elements[i];
-                                i -= rowStride;
-                            }
-                            idx -= columnStride;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, r = rows; --r >= 0;) {
-                    values[r][c] = elements[i];
-                    i -= rowStride;
-                }
-                idx -= columnStride;
-            }
-        }
+        DenseTranspose.copy(elements, (int) index(0, 0), rowStride, columnStride, values, rows, columns);
         return values;
     }
 
+    /**
+     * Transposes this square matrix in place: element <tt>(r,c)</tt> is
+     * swapped with element <tt>(c,r)</tt>. Unlike <tt>viewDice()</tt>, this
+     * changes the elements, so all views of this matrix see the change.
+     * 
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>rows() != columns()</tt>.
+     */
+    public DenseColumnFloatMatrix2D transposeInPlace() {
+        if (rows != columns)
+            throw new IllegalArgumentException("Matrix must be square: " + toStringShort());
+        DenseTranspose.transposeInPlace(elements, (int) index(0, 0), rowStride, columnStride, rows);
+        return this;
+    }
+
     public FloatMatrix1D vectorize() {
         final int size = (int) size();
         FloatMatrix1D v = new DenseFloatMatrix1D(size);
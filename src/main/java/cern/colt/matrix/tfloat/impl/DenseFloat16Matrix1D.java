@@ -0,0 +1,321 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tfloat.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.Float16Format;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tfloat.FloatMatrix1D;
+import cern.colt.matrix.tfloat.FloatMatrix2D;
+import cern.colt.matrix.tfloat.FloatMatrix3D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Dense 1-d matrix (aka <i>vector</i>) holding <tt>float</tt> elements in 16
+ * bits. First see the <a href="package-summary.html">package summary</a> and
+ * javadoc <a href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * Internally holds one single contiguous one-dimensional <tt>short</tt> array,
+ * with the elements encoded in a {@link Float16Format}; see
+ * {@link DenseFloat16Matrix2D}. <tt>aggregate</tt>, <tt>zSum</tt> and
+ * <tt>zDotProduct</tt> decode the elements on the fly; sums and dot products
+ * are accumulated in double. Views are wrappers around the vector. Note that
+ * this implementation is not synchronized.
+ * <p>
+ * <b>Time complexity:</b>
+ * <p>
+ * <tt>O(1)</tt> (i.e. constant time) for the basic operations <tt>get</tt>,
+ * <tt>getQuick</tt>, <tt>set</tt>, <tt>setQuick</tt> and <tt>size</tt>.
+ */
+public class DenseFloat16Matrix1D extends WrapperFloatMatrix1D {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Float16Format format;
+
+    private final short[] elements;
+
+    /**
+     * Constructs a matrix with a given number of cells. All entries are
+     * initially <tt>0</tt>.
+     * 
+     * @param size
+     *            the number of cells the matrix shall have.
+     * @param format
+     *            the encoding of the elements.
+     * @throws IllegalArgumentException
+     *             if <tt>size<0</tt>.
+     */
+    public DenseFloat16Matrix1D(int size, Float16Format format) {
+        super(null);
+        setUp(size);
+        this.format = format;
+        elements = new short[size];
+        content = this;
+    }
+
+    /**
+     * Constructs a matrix with the values of the given vector, rounded to the
+     * given format.
+     * 
+     * @param x
+     *            the values to be filled into the new matrix.
+     * @param format
+     *            the encoding of the elements.
+     */
+    public DenseFloat16Matrix1D(FloatMatrix1D x, Float16Format format) {
+        this((int) x.size(), format);
+        for (int i = 0; i < size; i++) {
+            elements[i] = format.encode(x.getQuick(i));
+        }
+    }
+
+    /**
+     * Constructs a matrix with the values of the given vector, rounded to the
+     * given format.
+     * 
+     * @param x
+     *            the values to be filled into the new matrix.
+     * @param format
+     *            the encoding of the elements.
+     */
+    public DenseFloat16Matrix1D(DoubleMatrix1D x, Float16Format format) {
+        this((int) x.size(), format);
+        for (int i = 0; i < size; i++) {
+            elements[i] = format.encode((float) x.getQuick(i));
+        }
+    }
+
+    public float aggregate(final cern.colt.function.tfloat.FloatFloatFunction aggr,
+            final cern.colt.function.tfloat.FloatFunction f) {
+        if (size == 0)
+            return Float.NaN;
+        float a;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+            nthreads = Math.min(nthreads, size);
+            Future<?>[] futures = new Future[nthreads];
+            int k = size / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = j * k;
+                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
+                futures[j] = ConcurrencyUtils.submit(new Callable<Float>() {
+
+                    public Float call() throws Exception {
+                        float a = f.apply(format.decode(elements[firstIdx]));
+                        for (int i = firstIdx + 1; i < lastIdx; i++) {
+                            a = aggr.apply(a, f.apply(format.decode(elements[i])));
+                        }
+                        return a;
+                    }
+                });
+            }
+            a = ConcurrencyUtils.waitForCompletion(futures, aggr);
+        } else {
+            a = f.apply(format.decode(elements[0]));
+            for (int i = 1; i < size; i++) {
+                a = aggr.apply(a, f.apply(format.decode(elements[i])));
+            }
+        }
+        return a;
+    }
+
+    public short[] elements() {
+        return elements;
+    }
+
+    /**
+     * Returns a new vector that has the same elements as this vector, in
+     * single precision.
+     * 
+     * @return this vector as a <tt>DenseFloatMatrix1D</tt>
+     */
+    public DenseFloatMatrix1D getDense() {
+        DenseFloatMatrix1D dense = new DenseFloatMatrix1D(size);
+        float[] elementsDense = dense.elements();
+        for (int i = 0; i < size; i++) {
+            elementsDense[i] = format.decode(elements[i]);
+        }
+        return dense;
+    }
+
+    /**
+     * Returns a new vector that has the same elements as this vector, in
+     * double precision.
+     * 
+     * @return this vector as a <tt>DenseDoubleMatrix1D</tt>
+     */
+    public DenseDoubleMatrix1D getDenseDouble() {
+        DenseDoubleMatrix1D dense = new DenseDoubleMatrix1D(size);
+        double[] elementsDense = dense.elements();
+        for (int i = 0; i < size; i++) {
+            elementsDense[i] = format.decode(elements[i]);
+        }
+        return dense;
+    }
+
+    /**
+     * Returns the encoding of the elements.
+     * 
+     * @return the format of this vector
+     */
+    public Float16Format getFormat() {
+        return format;
+    }
+
+    public float getQuick(int index) {
+        return format.decode(elements[index]);
+    }
+
+    public FloatMatrix1D like(int size) {
+        return new DenseFloat16Matrix1D(size, format);
+    }
+
+    public FloatMatrix2D like2D(int rows, int columns) {
+        return new DenseFloat16Matrix2D(rows, columns, format);
+    }
+
+    public FloatMatrix2D reshape(int rows, int columns) {
+        if (rows * columns != size) {
+            throw new IllegalArgumentException("rows*columns != size");
+        }
+        DenseFloat16Matrix2D M = new DenseFloat16Matrix2D(rows, columns, format);
+        short[] elementsOther = M.elements();
+        int idx = 0;
+        for (int c = 0; c < columns; c++) {
+            for (int r = 0; r < rows; r++) {
+                elementsOther[r * columns + c] = elements[idx++];
+            }
+        }
+        return M;
+    }
+
+    /**
+     * Returns new DenseFloatMatrix3D of dimensions slices x rows x columns
+     * whose elements are taken column-wise from this matrix.
+     * 
+     * @param slices
+     *            number of slices
+     * @param rows
+     *            number of rows
+     * @param columns
+     *            number of columns
+     * @return new 3D matrix with columns being the elements of this matrix.
+     */
+    public FloatMatrix3D reshape(int slices, int rows, int columns) {
+        if (slices * rows * columns != size) {
+            throw new IllegalArgumentException("slices*rows*columns != size");
+        }
+        FloatMatrix3D M = new DenseFloatMatrix3D(slices, rows, columns);
+        int idx = 0;
+        for (int s = 0; s < slices; s++) {
+            for (int c = 0; c < columns; c++) {
+                for (int r = 0; r < rows; r++) {
+                    M.setQuick(s, r, c, format.decode(elements[idx++]));
+                }
+            }
+        }
+        return M;
+    }
+
+    public void setQuick(int index, float value) {
+        elements[index] = format.encode(value);
+    }
+
+    /**
+     * Returns the dot product of two vectors x and y, accumulated in double
+     * precision. Operates on cells at indexes <tt>from .. Min(size(),
+     * y.size(),from+length)-1</tt>.
+     * 
+     * @param y
+     *            the second vector.
+     * @param from
+     *            the first index to be considered.
+     * @param length
+     *            the number of cells to be considered.
+     * @return the sum of products; zero if <tt>from<0 || length<0</tt>.
+     */
+    public float zDotProduct(FloatMatrix1D y, int from, int length) {
+        if (from < 0 || length <= 0)
+            return 0;
+        int tail = from + length;
+        if (size < tail)
+            tail = size;
+        if (y.size() < tail)
+            tail = (int) y.size();
+        double sum = 0;
+        for (int i = from; i < tail; i++) {
+            sum += format.decode(elements[i]) * y.getQuick(i);
+        }
+        return (float) sum;
+    }
+
+    /**
+     * Returns the sum of all cells, accumulated in double precision.
+     * 
+     * @return the sum.
+     */
+    public float zSum() {
+        double sum = 0;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+            nthreads = Math.min(nthreads, size);
+            Future<?>[] futures = new Future[nthreads];
+            int k = size / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = j * k;
+                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
+                futures[j] = ConcurrencyUtils.submit(new Callable<Double>() {
+
+                    public Double call() throws Exception {
+                        return sum(firstIdx, lastIdx);
+                    }
+                });
+            }
+            try {
+                for (int j = 0; j < nthreads; j++) {
+                    sum += (Double) futures[j].get();
+                }
+            } catch (ExecutionException ex) {
+                ex.printStackTrace();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        } else {
+            sum = sum(0, size);
+        }
+        return (float) sum;
+    }
+
+    protected FloatMatrix1D getContent() {
+        return this;
+    }
+
+    /*
+     * Returns the sum of elements[first:last], decoded a chunk at a time.
+     */
+    private double sum(int first, int last) {
+        float[] chunk = new float[Math.min(DenseFloat16Matrix2D.CHUNK, last - first)];
+        double sum = 0;
+        for (int i = first; i < last; i += chunk.length) {
+            int length = Math.min(chunk.length, last - i);
+            format.decode(elements, i, chunk, 0, length);
+            for (int k = 0; k < length; k++) {
+                sum += chunk[k];
+            }
+        }
+        return sum;
+    }
+}
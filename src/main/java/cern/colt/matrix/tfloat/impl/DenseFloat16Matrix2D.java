@@ -0,0 +1,477 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tfloat.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.Float16Format;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tfloat.FloatMatrix1D;
+import cern.colt.matrix.tfloat.FloatMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Dense 2-d matrix holding <tt>float</tt> elements in 16 bits. First see the <a
+ * href="package-summary.html">package summary</a> and javadoc <a
+ * href="package-tree.html">tree view</a> to get the broad picture.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * Internally holds one single contiguous one-dimensional <tt>short</tt> array,
+ * addressed in row major, with the elements encoded in a {@link Float16Format}.
+ * The matrix takes half the memory of a {@link DenseFloatMatrix2D}, at the
+ * price of the precision of its elements, which are rounded to the format when
+ * they are set. <tt>aggregate</tt>, <tt>zSum</tt> and <tt>zMult</tt> decode
+ * the elements on the fly, so that bandwidth-bound operations read half the
+ * bytes; sums and the products with vectors are accumulated in double, matrix
+ * products in float. Views are wrappers around the matrix. Note that this
+ * implementation is not synchronized.
+ * <p>
+ * <b>Time complexity:</b>
+ * <p>
+ * <tt>O(1)</tt> (i.e. constant time) for the basic operations <tt>get</tt>,
+ * <tt>getQuick</tt>, <tt>set</tt>, <tt>setQuick</tt> and <tt>size</tt>.
+ */
+public class DenseFloat16Matrix2D extends WrapperFloatMatrix2D {
+
+    private static final long serialVersionUID = 1L;
+
+    /*
+     * The number of rows of A decoded at a time by the matrix product.
+     */
+    private static final int BLOCK = 32;
+
+    /*
+     * The number of elements decoded at a time by the sums.
+     */
+    static final int CHUNK = 1024;
+
+    private final Float16Format format;
+
+    private final short[] elements;
+
+    /**
+     * Constructs a matrix with a given number of rows and columns. All entries
+     * are initially <tt>0</tt>.
+     * 
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param format
+     *            the encoding of the elements.
+     * @throws IllegalArgumentException
+     *             if <tt>rows<0 || columns<0 || (float)columns*rows > Integer.MAX_VALUE</tt>.
+     */
+    public DenseFloat16Matrix2D(int rows, int columns, Float16Format format) {
+        super(null);
+        setUp(rows, columns);
+        this.format = format;
+        elements = new short[rows * columns];
+        content = this;
+    }
+
+    /**
+     * Constructs a matrix with the values of the given matrix, rounded to the
+     * given format.
+     * 
+     * @param A
+     *            the values to be filled into the new matrix.
+     * @param format
+     *            the encoding of the elements.
+     */
+    public DenseFloat16Matrix2D(FloatMatrix2D A, Float16Format format) {
+        this(A.rows(), A.columns(), format);
+        int idx = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                elements[idx++] = format.encode(A.getQuick(r, c));
+            }
+        }
+    }
+
+    /**
+     * Constructs a matrix with the values of the given matrix, rounded to the
+     * given format.
+     * 
+     * @param A
+     *            the values to be filled into the new matrix.
+     * @param format
+     *            the encoding of the elements.
+     */
+    public DenseFloat16Matrix2D(DoubleMatrix2D A, Float16Format format) {
+        this(A.rows(), A.columns(), format);
+        int idx = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                elements[idx++] = format.encode((float) A.getQuick(r, c));
+            }
+        }
+    }
+
+    public float aggregate(final cern.colt.function.tfloat.FloatFloatFunction aggr,
+            final cern.colt.function.tfloat.FloatFunction f) {
+        if (size() == 0)
+            return Float.NaN;
+        final int size = elements.length;
+        float a;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, size);
+            Future<?>[] futures = new Future[nthreads];
+            int k = size / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = j * k;
+                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
+                futures[j] = ConcurrencyUtils.submit(new Callable<Float>() {
+
+                    public Float call() throws Exception {
+                        float a = f.apply(format.decode(elements[firstIdx]));
+                        for (int i = firstIdx + 1; i < lastIdx; i++) {
+                            a = aggr.apply(a, f.apply(format.decode(elements[i])));
+                        }
+                        return a;
+                    }
+                });
+            }
+            a = ConcurrencyUtils.waitForCompletion(futures, aggr);
+        } else {
+            a = f.apply(format.decode(elements[0]));
+            for (int i = 1; i < size; i++) {
+                a = aggr.apply(a, f.apply(format.decode(elements[i])));
+            }
+        }
+        return a;
+    }
+
+    public short[] elements() {
+        return elements;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, in
+     * single precision.
+     * 
+     * @return this matrix as a <tt>DenseFloatMatrix2D</tt>
+     */
+    public DenseFloatMatrix2D getDense() {
+        DenseFloatMatrix2D dense = new DenseFloatMatrix2D(rows, columns);
+        float[] elementsDense = dense.elements();
+        for (int i = 0; i < elements.length; i++) {
+            elementsDense[i] = format.decode(elements[i]);
+        }
+        return dense;
+    }
+
+    /**
+     * Returns a new matrix that has the same elements as this matrix, in
+     * double precision.
+     * 
+     * @return this matrix as a <tt>DenseDoubleMatrix2D</tt>
+     */
+    public DenseDoubleMatrix2D getDenseDouble() {
+        DenseDoubleMatrix2D dense = new DenseDoubleMatrix2D(rows, columns);
+        double[] elementsDense = dense.elements();
+        for (int i = 0; i < elements.length; i++) {
+            elementsDense[i] = format.decode(elements[i]);
+        }
+        return dense;
+    }
+
+    /**
+     * Returns the encoding of the elements.
+     * 
+     * @return the format of this matrix
+     */
+    public Float16Format getFormat() {
+        return format;
+    }
+
+    public float getQuick(int row, int column) {
+        return format.decode(elements[row * columns + column]);
+    }
+
+    public FloatMatrix2D like(int rows, int columns) {
+        return new DenseFloat16Matrix2D(rows, columns, format);
+    }
+
+    public FloatMatrix1D like1D(int size) {
+        return new DenseFloat16Matrix1D(size, format);
+    }
+
+    public void setQuick(int row, int column, float value) {
+        elements[row * columns + column] = format.encode(value);
+    }
+
+    /**
+     * Linear algebraic matrix-vector multiplication;
+     * <tt>z = alpha * A * y + beta*z</tt>, computed in double precision.
+     * 
+     * @param y
+     *            the source vector.
+     * @param z
+     *            the vector where results are to be stored. Set this parameter
+     *            to <tt>null</tt> to indicate that a new result vector shall
+     *            be constructed.
+     * @param alpha
+     *            the scale of the product.
+     * @param beta
+     *            the scale of <tt>z</tt>.
+     * @param transposeA
+     *            whether <tt>A</tt> must be transposed.
+     * @return z (for convenience only).
+     * 
+     * @throws IllegalArgumentException
+     *             if <tt>A.columns() != y.size() || A.rows() > z.size())</tt>.
+     */
+    public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, double alpha, double beta, boolean transposeA) {
+        int rowsA = transposeA ? columns : rows;
+        int columnsA = transposeA ? rows : columns;
+        if (z == null) {
+            z = new DenseDoubleMatrix1D(rowsA);
+        }
+        if (columnsA != y.size() || rowsA > z.size())
+            throw new IllegalArgumentException("Incompatible args: " + toStringShort() + ", " + y.toStringShort()
+                    + ", " + z.toStringShort());
+        double[] elemsZ = z.viewPart(0, rowsA).toArray();
+        multiply(y.toArray(), elemsZ, alpha, beta, transposeA);
+        z.viewPart(0, rowsA).assign(elemsZ);
+        return z;
+    }
+
+    public FloatMatrix1D zMult(FloatMatrix1D y, FloatMatrix1D z, float alpha, float beta, boolean transposeA) {
+        int rowsA = transposeA ? columns : rows;
+        int columnsA = transposeA ? rows : columns;
+        if (z == null) {
+            z = new DenseFloatMatrix1D(rowsA);
+        }
+        if (columnsA != y.size() || rowsA > z.size())
+            throw new IllegalArgumentException("Incompatible args: " + toStringShort() + ", " + y.toStringShort()
+                    + ", " + z.toStringShort());
+        double[] elemsY = new double[columnsA];
+        double[] elemsZ = new double[rowsA];
+        for (int i = 0; i < columnsA; i++) {
+            elemsY[i] = y.getQuick(i);
+        }
+        for (int i = 0; i < rowsA; i++) {
+            elemsZ[i] = z.getQuick(i);
+        }
+        multiply(elemsY, elemsZ, alpha, beta, transposeA);
+        for (int i = 0; i < rowsA; i++) {
+            z.setQuick(i, (float) elemsZ[i]);
+        }
+        return z;
+    }
+
+    public FloatMatrix2D zMult(final FloatMatrix2D B, FloatMatrix2D C, final float alpha, final float beta,
+            final boolean transposeA, final boolean transposeB) {
+        final int rowsC = transposeA ? columns : rows;
+        final int depth = transposeA ? rows : columns;
+        final int columnsC = transposeB ? B.rows() : B.columns();
+        if ((transposeB ? B.columns() : B.rows()) != depth)
+            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + this.toStringShort() + ", "
+                    + B.toStringShort());
+        if (C == null) {
+            C = new DenseFloatMatrix2D(rowsC, columnsC);
+        }
+        if (C.rows() != rowsC || C.columns() != columnsC)
+            throw new IllegalArgumentException("Incompatibe result matrix: " + this.toStringShort() + ", "
+                    + B.toStringShort() + ", " + C.toStringShort());
+        if (this == C || B == C)
+            throw new IllegalArgumentException("Matrices must not be identical");
+
+        // the columns of op(B), one after the other
+        final float[] columnsB = new float[columnsC * depth];
+        FloatMatrix2D Bt = transposeB ? B : B.viewDice();
+        for (int j = 0, idx = 0; j < columnsC; j++) {
+            for (int k = 0; k < depth; k++) {
+                columnsB[idx++] = Bt.getQuick(j, k);
+            }
+        }
+        final FloatMatrix2D CC = C;
+        final int blocks = (rowsC + BLOCK - 1) / BLOCK;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (blocks > 1) && ((long) rowsC * columnsC >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, blocks);
+            Future<?>[] futures = new Future[nthreads];
+            int k = blocks / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstBlock = j * k;
+                final int lastBlock = (j == nthreads - 1) ? blocks : firstBlock + k;
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        multiply(columnsB, CC, alpha, beta, transposeA, firstBlock * BLOCK, Math.min(lastBlock
+                                * BLOCK, rowsC));
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            multiply(columnsB, CC, alpha, beta, transposeA, 0, rowsC);
+        }
+        return C;
+    }
+
+    /**
+     * Returns the sum of all cells, accumulated in double precision.
+     * 
+     * @return the sum.
+     */
+    public float zSum() {
+        final int size = elements.length;
+        double sum = 0;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, size);
+            Future<?>[] futures = new Future[nthreads];
+            int k = size / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = j * k;
+                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
+                futures[j] = ConcurrencyUtils.submit(new Callable<Double>() {
+
+                    public Double call() throws Exception {
+                        return sum(firstIdx, lastIdx);
+                    }
+                });
+            }
+            try {
+                for (int j = 0; j < nthreads; j++) {
+                    sum += (Double) futures[j].get();
+                }
+            } catch (ExecutionException ex) {
+                ex.printStackTrace();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        } else {
+            sum = sum(0, size);
+        }
+        return (float) sum;
+    }
+
+    protected FloatMatrix2D getContent() {
+        return this;
+    }
+
+    /*
+     * Returns the sum of elements[first:last], decoded CHUNK at a time.
+     */
+    private double sum(int first, int last) {
+        float[] chunk = new float[Math.min(CHUNK, last - first)];
+        double sum = 0;
+        for (int i = first; i < last; i += CHUNK) {
+            int length = Math.min(CHUNK, last - i);
+            format.decode(elements, i, chunk, 0, length);
+            for (int k = 0; k < length; k++) {
+                sum += chunk[k];
+            }
+        }
+        return sum;
+    }
+
+    /*
+     * z = alpha*op(A)*y + beta*z, in place.
+     */
+    private void multiply(final double[] y, final double[] z, final double alpha, final double beta,
+            boolean transposeA) {
+        final int length = z.length;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        boolean parallel = (nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D()) && (length > 1);
+        nthreads = parallel ? Math.min(nthreads, length) : 1;
+        Future<?>[] futures = new Future[nthreads];
+        int k = length / nthreads;
+        for (int j = 0; j < nthreads; j++) {
+            final int first = j * k;
+            final int last = (j == nthreads - 1) ? length : first + k;
+            Runnable task;
+            if (transposeA) {
+                // z[first:last] gathers the columns first:last of A
+                task = new Runnable() {
+                    public void run() {
+                        double[] sums = new double[last - first];
+                        float[] row = new float[last - first];
+                        for (int r = 0; r < rows; r++) {
+                            double yr = y[r];
+                            format.decode(elements, r * columns + first, row, 0, row.length);
+                            for (int c = 0; c < row.length; c++) {
+                                sums[c] += row[c] * yr;
+                            }
+                        }
+                        for (int c = first; c < last; c++) {
+                            z[c] = alpha * sums[c - first] + beta * z[c];
+                        }
+                    }
+                };
+            } else {
+                task = new Runnable() {
+                    public void run() {
+                        float[] row = new float[columns];
+                        for (int r = first; r < last; r++) {
+                            double sum = 0;
+                            format.decode(elements, r * columns, row, 0, columns);
+                            for (int c = 0; c < columns; c++) {
+                                sum += row[c] * y[c];
+                            }
+                            z[r] = alpha * sum + beta * z[r];
+                        }
+                    }
+                };
+            }
+            if (parallel) {
+                futures[j] = ConcurrencyUtils.submit(task);
+            } else {
+                task.run();
+            }
+        }
+        if (parallel) {
+            ConcurrencyUtils.waitForCompletion(futures);
+        }
+    }
+
+    /*
+     * Computes the rows firstRow:lastRow of C = alpha*op(A)*B + beta*C, given
+     * the columns of B; the rows of op(A) are decoded BLOCK at a time.
+     */
+    private void multiply(float[] columnsB, FloatMatrix2D C, float alpha, float beta, boolean transposeA,
+            int firstRow, int lastRow) {
+        int depth = transposeA ? rows : columns;
+        int columnsC = C.columns();
+        float[] a = new float[BLOCK * depth];
+        for (int i0 = firstRow; i0 < lastRow; i0 += BLOCK) {
+            int height = Math.min(BLOCK, lastRow - i0);
+            for (int i = 0, idx = 0; i < height; i++) {
+                if (transposeA) {
+                    for (int k = 0, idxA = i0 + i; k < depth; k++, idxA += columns) {
+                        a[idx++] = format.decode(elements[idxA]);
+                    }
+                } else {
+                    format.decode(elements, (i0 + i) * columns, a, idx, depth);
+                    idx += depth;
+                }
+            }
+            for (int j = 0; j < columnsC; j++) {
+                int idxB = j * depth;
+                for (int i = 0; i < height; i++) {
+                    int idxA = i * depth;
+                    float sum = 0;
+                    for (int k = 0; k < depth; k++) {
+                        sum += a[idxA + k] * columnsB[idxB + k];
+                    }
+                    C.setQuick(i0 + i, j, alpha * sum + beta * C.getQuick(i0 + i, j));
+                }
+            }
+        }
+    }
+}
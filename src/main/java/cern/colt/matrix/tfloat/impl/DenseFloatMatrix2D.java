@@ -15,6 +15,7 @@ import java.util.concurrent.Future;
 
 import cern.colt.list.tfloat.FloatArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.DenseTranspose;
 import cern.colt.matrix.io.MatrixInfo;
 import cern.colt.matrix.io.MatrixSize;
 import cern.colt.matrix.io.MatrixVectorReader;
@@ -750,6 +751,16 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
 
     public FloatMatrix2D assign(final FloatMatrix2D source) {
         // overriden for performance only
+        if (source instanceof DenseColumnFloatMatrix2D) {
+            checkShape(source);
+            DenseColumnFloatMatrix2D other = (DenseColumnFloatMatrix2D) source;
+            if (other.elements() == elements) {
+                other = (DenseColumnFloatMatrix2D) other.copy();
+            }
+            DenseTranspose.copy(other.elements(), (int) other.index(0, 0), other.rowStride(),
+                    other.columnStride(), elements, (int) index(0, 0), rowStride, columnStride, rows, columns);
+            return this;
+        }
         if (!(source instanceof DenseFloatMatrix2D)) {
             super.assign(source);
             return this;
@@ -758,7 +769,6 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
         if (other == this)
             return this; // nothing to do
         checkShape(other);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if (this.isNoView && other.isNoView) { // quickest
             System.arraycopy(other.elements, 0, this.elements, 0, this.elements.length);
             return this;
@@ -772,50 +782,8 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
             other = (DenseFloatMatrix2D) c;
         }
 
-        final float[] elementsOther = other.elements;
-        if (elements == null || elementsOther == null)
-            throw new InternalError();
-        final int zeroOther = (int) other.index(0, 0);
-        final int zero = (int) index(0, 0);
-        final int columnStrideOther = other.columnStride;
-        final int rowStrideOther = other.rowStride;
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        int idxOther = zeroOther + firstRow * rowStrideOther;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                elements[i] = elementsOther[j];
-                                i += columnStride;
-                                j += columnStrideOther;
-                            }
-                            idx += rowStride;
-                            idxOther += rowStrideOther;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            int idxOther = zeroOther;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                    elements[i] = elementsOther[j];
-                    i += columnStride;
-                    j += columnStrideOther;
-                }
-                idx += rowStride;
-                idxOther += rowStrideOther;
-            }
-        }
+        DenseTranspose.copy(other.elements, (int) other.index(0, 0), other.rowStride, other.columnStride, elements,
+                (int) index(0, 0), rowStride, columnStride, rows, columns);
         return this;
     }
 
@@ -1533,50 +1501,8 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      */
     public DenseColumnFloatMatrix2D getColumnMajor() {
         DenseColumnFloatMatrix2D R = new DenseColumnFloatMatrix2D(rows, columns);
-        final int zeroR = (int) R.index(0, 0);
-        final int rowStrideR = R.rowStride();
-        final int columnStrideR = R.columnStride();
-        final float[] elementsR = R.elements();
-        final int zero = (int) index(0, 0);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == (nthreads - 1)) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        int idx = zero + (firstRow - 1) * rowStride;
-                        int idxR = zeroR + (firstRow - 1) * rowStrideR;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, j = idxR, c = 0; r < columns; c++) {
-                                elementsR[j] = elements[i];
-                                i += rowStride;
-                                j += rowStrideR;
-                            }
-                            idx += columnStride;
-                            idxR += columnStrideR;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            int idxR = zeroR;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, j = idxR, c = 0; r < columns; c++) {
-                    elementsR[j] = elements[i];
-                    i += rowStride;
-                    j += rowStrideR;
-                }
-                idx += columnStride;
-                idxR += columnStrideR;
-            }
-        }
+        DenseTranspose.copy(elements, (int) index(0, 0), rowStride, columnStride, R.elements(), (int) R.index(0, 0),
+                R.rowStride(), R.columnStride(), rows, columns);
         return R;
     }
 
@@ -2433,44 +2359,26 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
 
     public float[][] toArray() {
         final float[][] values = new float[rows][columns];
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        final int zero = (int) index(0, 0);
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            float[] currentRow = values[r];
-                            for (int i = idx, c = 0; c < columns; c++) {
-                                currentRow[c] = elements[i];
-                                i += columnStride;
-                            }
-                            idx += rowStride;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            for (int r = 0; r < rows; r++) {
-                float[] currentRow = values[r];
-                for (int i = idx, c = 0; c < columns; c++) {
-                    currentRow[c] = elements[i];
-                    i += columnStride;
-                }
-                idx += rowStride;
-            }
-        }
+        DenseTranspose.copy(elements, (int) index(0, 0), rowStride, columnStride, values, rows, columns);
         return values;
     }
 
+    /**
+     * Transposes this square matrix in place: element <tt>(r,c)</tt> is
+     * swapped with element <tt>(c,r)</tt>. Unlike <tt>viewDice()</tt>, this
+     * changes the elements, so all views of this matrix see the change.
+     * 
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>rows() != columns()</tt>.
+     */
+    public DenseFloatMatrix2D transposeInPlace() {
+        if (rows != columns)
+            throw new IllegalArgumentException("Matrix must be square: " + toStringShort());
+        DenseTranspose.transposeInPlace(elements, (int) index(0, 0), rowStride, columnStride, rows);
+        return this;
+    }
+
     public FloatMatrix1D vectorize() {
         final DenseFloatMatrix1D v = new DenseFloatMatrix1D((int) size());
         final int zero = (int) index(0, 0);
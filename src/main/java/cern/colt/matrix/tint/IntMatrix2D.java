@@ -16,8 +16,10 @@ import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
 import cern.colt.matrix.AbstractMatrix2D;
+import cern.colt.matrix.IntegerOverflow;
 import cern.colt.matrix.tint.impl.DenseIntMatrix1D;
 import cern.colt.matrix.tint.impl.DenseIntMatrix2D;
+import cern.colt.matrix.tint.impl.IntMatrix2DMultiplication;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -1942,7 +1944,8 @@ public abstract class IntMatrix2D extends AbstractMatrix2D {
      * <tt>z[i] = alpha*Sum(A[i,j] * y[j]) + beta*z[i], i=0..A.rows()-1, j=0..y.size()-1</tt>
      * . Where <tt>A == this</tt>. <br>
      * Note: Matrix shape conformance is checked <i>after</i> potential
-     * transpositions.
+     * transpositions. The sums wrap around on overflow, see
+     * {@link IntMatrix2DMultiplication} for checked or saturated results.
      * 
      * @param y
      *            the source vector.
@@ -1965,42 +1968,7 @@ public abstract class IntMatrix2D extends AbstractMatrix2D {
         } else {
             z_loc = z;
         }
-        if (columns != y.size() || rows > z_loc.size())
-            throw new IllegalArgumentException("Incompatible args: " + toStringShort() + ", " + y.toStringShort()
-                    + ", " + z_loc.toStringShort());
-
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            int s = 0;
-                            for (int c = 0; c < columns; c++) {
-                                s += getQuick(r, c) * y.getQuick(c);
-                            }
-                            z_loc.setQuick(r, alpha * s + beta * z_loc.getQuick(r));
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int r = 0; r < rows; r++) {
-                int s = 0;
-                for (int c = 0; c < columns; c++) {
-                    s += getQuick(r, c) * y.getQuick(c);
-                }
-                z_loc.setQuick(r, alpha * s + beta * z_loc.getQuick(r));
-            }
-        }
-        return z_loc;
+        return IntMatrix2DMultiplication.zMult(this, y, z_loc, alpha, beta, IntegerOverflow.Wrap);
     }
 
     /**
@@ -2017,7 +1985,8 @@ public abstract class IntMatrix2D extends AbstractMatrix2D {
      * <tt>C[i,j] = alpha*Sum(A[i,k] * B[k,j]) + beta*C[i,j], k=0..n-1</tt>. <br>
      * Matrix shapes: <tt>A(m x n), B(n x p), C(m x p)</tt>. <br>
      * Note: Matrix shape conformance is checked <i>after</i> potential
-     * transpositions.
+     * transpositions. The sums wrap around on overflow, see
+     * {@link IntMatrix2DMultiplication} for checked or saturated results.
      * 
      * @param B
      *            the second source matrix.
@@ -2059,41 +2028,7 @@ public abstract class IntMatrix2D extends AbstractMatrix2D {
                     + B.toStringShort() + ", " + C_loc.toStringShort());
         if (this == C_loc || B == C_loc)
             throw new IllegalArgumentException("Matrices must not be identical");
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, p);
-            Future<?>[] futures = new Future[nthreads];
-            int k = p / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? p : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int a = firstIdx; a < lastIdx; a++) {
-                            for (int b = 0; b < m; b++) {
-                                int s = 0;
-                                for (int c = 0; c < n; c++) {
-                                    s += getQuick(b, c) * B.getQuick(c, a);
-                                }
-                                C_loc.setQuick(b, a, alpha * s + beta * C_loc.getQuick(b, a));
-                            }
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int a = 0; a < p; a++) {
-                for (int b = 0; b < m; b++) {
-                    int s = 0;
-                    for (int c = 0; c < n; c++) {
-                        s += getQuick(b, c) * B.getQuick(c, a);
-                    }
-                    C_loc.setQuick(b, a, alpha * s + beta * C_loc.getQuick(b, a));
-                }
-            }
-        }
-        return C_loc;
+        return IntMatrix2DMultiplication.zMult(this, B, C_loc, alpha, beta, IntegerOverflow.Wrap);
     }
 
     /**
@@ -17,6 +17,7 @@ import cern.colt.function.tint.IntFunction;
 import cern.colt.function.tint.IntIntFunction;
 import cern.colt.function.tint.IntProcedure;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.DenseTranspose;
 import cern.colt.matrix.io.MatrixInfo;
 import cern.colt.matrix.io.MatrixSize;
 import cern.colt.matrix.io.MatrixVectorReader;
@@ -684,6 +685,16 @@ public class DenseColumnIntMatrix2D extends IntMatrix2D {
 
     public IntMatrix2D assign(final IntMatrix2D source) {
         // overriden for performance only
+        if (source instanceof DenseIntMatrix2D) {
+            checkShape(source);
+            DenseIntMatrix2D other = (DenseIntMatrix2D) source;
+            if (other.elements() == elements) {
+                other = (DenseIntMatrix2D) other.copy();
+            }
+            DenseTranspose.copy(other.elements(), (int) other.index(0, 0), other.rowStride(),
+                    other.columnStride(), elements, (int) index(0, 0), rowStride, columnStride, rows, columns);
+            return this;
+        }
         if (!(source instanceof DenseColumnIntMatrix2D)) {
             super.assign(source);
             return this;
@@ -692,7 +703,6 @@ public class DenseColumnIntMatrix2D extends IntMatrix2D {
         if (other == this)
             return this; // nothing to do
         checkShape(other);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if (this.isNoView && other.isNoView) { // quickest
             System.arraycopy(other.elements, 0, elements, 0, elements.length);
             return this;
@@ -706,48 +716,8 @@ public class DenseColumnIntMatrix2D extends IntMatrix2D {
             other = (DenseColumnIntMatrix2D) c;
         }
 
-        final int zeroOther = (int) other.index(0, 0);
-        final int zero = (int) index(0, 0);
-        final int columnStrideOther = other.columnStride;
-        final int rowStrideOther = other.rowStride;
-        final int[] otherElements = other.elements;
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        int idxOther = zeroOther + (rows - 1) * rowStrideOther + (firstColumn - 1) * columnStrideOther;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                                elements[i] = otherElements[j];
-                                i -= rowStride;
-                                j -= rowStrideOther;
-                            }
-                            idx -= columnStride;
-                            idxOther -= columnStrideOther;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            int idxOther = zeroOther + (rows - 1) * rowStrideOther + (columns - 1) * columnStrideOther;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                    elements[i] = otherElements[j];
-                    i -= rowStride;
-                    j -= rowStrideOther;
-                }
-                idx -= columnStride;
-                idxOther -= columnStrideOther;
-            }
-        }
+        DenseTranspose.copy(other.elements, (int) other.index(0, 0), other.rowStride, other.columnStride, elements,
+                (int) index(0, 0), rowStride, columnStride, rows, columns);
         return this;
     }
 
@@ -1174,50 +1144,8 @@ public class DenseColumnIntMatrix2D extends IntMatrix2D {
      */
     public DenseIntMatrix2D getRowMajor() {
         DenseIntMatrix2D R = new DenseIntMatrix2D(rows, columns);
-        final int zeroR = (int) R.index(0, 0);
-        final int rowStrideR = R.rowStride();
-        final int columnStrideR = R.columnStride();
-        final int[] elementsR = R.elements();
-        final int zero = (int) index(0, 0);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        int idxR = zeroR + (rows - 1) * rowStrideR + (firstColumn - 1) * columnStrideR;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, j = idxR, r = rows; --r >= 0;) {
-                                elementsR[j] = elements[i];
-                                i -= rowStride;
-                                j -= rowStrideR;
-                            }
-                            idx -= columnStride;
-                            idxR -= columnStrideR;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            int idxR = zeroR + (rows - 1) * rowStrideR + (columns - 1) * columnStrideR;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, j = idxR, r = rows; --r >= 0;) {
-                    elementsR[j] = elements[i];
-                    i -= rowStride;
-                    j -= rowStrideR;
-                }
-                idx -= columnStride;
-                idxR -= columnStrideR;
-            }
-        }
+        DenseTranspose.copy(elements, (int) index(0, 0), rowStride, columnStride, R.elements(), (int) R.index(0, 0),
+                R.rowStride(), R.columnStride(), rows, columns);
         return R;
     }
 
@@ -1458,42 +1386,26 @@ public class DenseColumnIntMatrix2D extends IntMatrix2D {
 
     public int[][] toArray() {
         final int[][] values = new int[rows][columns];
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        final int zero = (int) index(0, 0);
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, r = rows; --r >= 0;) {
-                                values[r][c] = elements[i];
-                                i -= rowStride;
-                            }
-                            idx -= columnStride;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, r = rows; --r >= 0;) {
-                    values[r][c] = elements[i];
-                    i -= rowStride;
-                }
-                idx -= columnStride;
-            }
-        }
+        DenseTranspose.copy(elements, (int) index(0, 0), rowStride, columnStride, values, rows, columns);
         return values;
     }
 
+    /**
+     * Transposes this square matrix in place: element <tt>(r,c)</tt> is
+     * swapped with element <tt>(c,r)</tt>. Unlike <tt>viewDice()</tt>, this
+     * changes the elements, so all views of this matrix see the change.
+     * 
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>rows() != columns()</tt>.
+     */
+    public DenseColumnIntMatrix2D transposeInPlace() {
+        if (rows != columns)
+            throw new IllegalArgumentException("Matrix must be square: " + toStringShort());
+        DenseTranspose.transposeInPlace(elements, (int) index(0, 0), rowStride, columnStride, rows);
+        return this;
+    }
+
     public IntMatrix1D vectorize() {
         final int size = (int) size();
         IntMatrix1D v = new DenseIntMatrix1D(size);
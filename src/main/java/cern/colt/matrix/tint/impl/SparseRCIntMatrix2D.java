@@ -12,9 +12,9 @@ import java.util.Arrays;
 import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.IntegerOverflow;
 import cern.colt.matrix.tint.IntMatrix1D;
 import cern.colt.matrix.tint.IntMatrix2D;
-import cern.jet.math.tint.IntFunctions;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -1051,38 +1051,11 @@ public class SparseRCIntMatrix2D extends WrapperIntMatrix2D {
         if (this == C || B == C)
             throw new IllegalArgumentException("Matrices must not be identical");
 
-        if (!ignore && beta != 1.0) {
-            C.assign(cern.jet.math.tint.IntFunctions.mult(beta));
-        }
-
-        if ((B instanceof DenseIntMatrix2D) && (C instanceof DenseIntMatrix2D)) {
-            SparseRCIntMatrix2D AA;
-            if (transposeA) {
-                AA = getTranspose();
-            } else {
-                AA = this;
+        if ((B instanceof SparseRCIntMatrix2D) && (C instanceof SparseRCIntMatrix2D)) {
+            if (!ignore && beta != 1.0) {
+                C.assign(cern.jet.math.tint.IntFunctions.mult(beta));
             }
-            DenseIntMatrix2D BB;
-            if (transposeB) {
-                BB = (DenseIntMatrix2D) B.viewDice();
-            } else {
-                BB = (DenseIntMatrix2D) B;
-            }
-
-            DenseIntMatrix2D CC = (DenseIntMatrix2D) C;
-            int[] rowPointersA = AA.rowPointers;
-            int[] columnIndexesA = AA.columnIndexes;
-            int[] valuesA = AA.values;
 
-            for (int ii = 0; ii < rowsA; ii++) {
-                int highA = rowPointersA[ii + 1];
-                for (int ka = rowPointersA[ii]; ka < highA; ka++) {
-                    int scal = valuesA[ka] * alpha;
-                    int jj = columnIndexesA[ka];
-                    CC.viewRow(ii).assign(BB.viewRow(jj), IntFunctions.plusMultSecond(scal));
-                }
-            }
-        } else if ((B instanceof SparseRCIntMatrix2D) && (C instanceof SparseRCIntMatrix2D)) {
             SparseRCIntMatrix2D AA;
             SparseRCIntMatrix2D BB;
             SparseRCIntMatrix2D CC = (SparseRCIntMatrix2D) C;
@@ -1155,32 +1128,10 @@ public class SparseRCIntMatrix2D extends WrapperIntMatrix2D {
             //            CC.values.elements((int[]) valuesC.elements());
             //            CC.values.setSize(columnIndexesSize);
         } else {
-            if (transposeB) {
-                B = B.viewDice();
-            }
-            // cache views
-            final IntMatrix1D[] Brows = new IntMatrix1D[columnsA];
-            for (int i = columnsA; --i >= 0;)
-                Brows[i] = B.viewRow(i);
-            final IntMatrix1D[] Crows = new IntMatrix1D[rowsA];
-            for (int i = rowsA; --i >= 0;)
-                Crows[i] = C.viewRow(i);
-
-            final cern.jet.math.tint.IntPlusMultSecond fun = cern.jet.math.tint.IntPlusMultSecond.plusMult(0);
-
-            final int[] columnIndexesA = columnIndexes;
-            final int[] valuesA = values;
-            for (int i = rows; --i >= 0;) {
-                int low = rowPointers[i];
-                for (int k = rowPointers[i + 1]; --k >= low;) {
-                    int j = columnIndexesA[k];
-                    fun.multiplicator = valuesA[k] * alpha;
-                    if (!transposeA)
-                        Crows[i].assign(Brows[j], fun);
-                    else
-                        Crows[j].assign(Brows[i], fun);
-                }
-            }
+            // the rows of B are scaled by the nonzeros of the rows of A and
+            // summed in parallel, see IntMatrix2DMultiplication
+            IntMatrix2DMultiplication.zMult(transposeA ? getTranspose() : this, transposeB ? B.viewDice() : B, C,
+                    alpha, beta, IntegerOverflow.Wrap);
         }
         return C;
     }
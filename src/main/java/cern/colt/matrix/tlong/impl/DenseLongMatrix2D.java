@@ -14,6 +14,7 @@ import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
 import cern.colt.list.tlong.LongArrayList;
+import cern.colt.matrix.DenseTranspose;
 import cern.colt.matrix.tlong.LongMatrix1D;
 import cern.colt.matrix.tlong.LongMatrix2D;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
@@ -743,6 +744,16 @@ public class DenseLongMatrix2D extends LongMatrix2D {
 
     public LongMatrix2D assign(final LongMatrix2D source) {
         // overriden for performance only
+        if (source instanceof DenseColumnLongMatrix2D) {
+            checkShape(source);
+            DenseColumnLongMatrix2D other = (DenseColumnLongMatrix2D) source;
+            if (other.elements() == elements) {
+                other = (DenseColumnLongMatrix2D) other.copy();
+            }
+            DenseTranspose.copy(other.elements(), (int) other.index(0, 0), other.rowStride(),
+                    other.columnStride(), elements, (int) index(0, 0), rowStride, columnStride, rows, columns);
+            return this;
+        }
         if (!(source instanceof DenseLongMatrix2D)) {
             super.assign(source);
             return this;
@@ -751,7 +762,6 @@ public class DenseLongMatrix2D extends LongMatrix2D {
         if (other_final == this)
             return this; // nothing to do
         checkShape(other_final);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if (this.isNoView && other_final.isNoView) { // quickest
             System.arraycopy(other_final.elements, 0, this.elements, 0, this.elements.length);
             return this;
@@ -766,51 +776,8 @@ public class DenseLongMatrix2D extends LongMatrix2D {
             other = (DenseLongMatrix2D) c;
         }
 
-        final long[] elemsOther = other.elements;
-        if (elements == null || elemsOther == null)
-            throw new InternalError();
-        final int zeroOther = (int) other.index(0, 0);
-        final int zero = (int) index(0, 0);
-        final int columnStrideOther = other.columnStride;
-        final int rowStrideOther = other.rowStride;
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        int idxOther = zeroOther + firstRow * rowStrideOther;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                elements[i] = elemsOther[j];
-                                i += columnStride;
-                                j += columnStrideOther;
-                            }
-                            idx += rowStride;
-                            idxOther += rowStrideOther;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            int idxOther = zeroOther;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                    elements[i] = elemsOther[j];
-                    i += columnStride;
-                    j += columnStrideOther;
-                }
-                idx += rowStride;
-                idxOther += rowStrideOther;
-            }
-        }
+        DenseTranspose.copy(other.elements, (int) other.index(0, 0), other.rowStride, other.columnStride, elements,
+                (int) index(0, 0), rowStride, columnStride, rows, columns);
         return this;
     }
 
@@ -1409,45 +1376,26 @@ public class DenseLongMatrix2D extends LongMatrix2D {
 
     public long[][] toArray() {
         final long[][] values = new long[rows][columns];
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        final int zero = (int) index(0, 0);
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            long[] currentRow = values[r];
-                            for (int i = idx, c = 0; c < columns; c++) {
-                                currentRow[c] = elements[i];
-                                i += columnStride;
-                            }
-                            idx += rowStride;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            for (int r = 0; r < rows; r++) {
-                long[] currentRow = values[r];
-                for (int i = idx, c = 0; c < columns; c++) {
-                    currentRow[c] = elements[i];
-                    i += columnStride;
-                }
-                idx += rowStride;
-            }
-        }
+        DenseTranspose.copy(elements, (int) index(0, 0), rowStride, columnStride, values, rows, columns);
         return values;
     }
 
+    /**
+     * Transposes this square matrix in place: element <tt>(r,c)</tt> is
+     * swapped with element <tt>(c,r)</tt>. Unlike <tt>viewDice()</tt>, this
+     * changes the elements, so all views of this matrix see the change.
+     * 
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>rows() != columns()</tt>.
+     */
+    public DenseLongMatrix2D transposeInPlace() {
+        if (rows != columns)
+            throw new IllegalArgumentException("Matrix must be square: " + toStringShort());
+        DenseTranspose.transposeInPlace(elements, (int) index(0, 0), rowStride, columnStride, rows);
+        return this;
+    }
+
     public LongMatrix1D vectorize() {
         final DenseLongMatrix1D v = new DenseLongMatrix1D((int) size());
         final int zero = (int) index(0, 0);
@@ -1496,103 +1444,8 @@ public class DenseLongMatrix2D extends LongMatrix2D {
         return v;
     }
 
-    public LongMatrix1D zMult(final LongMatrix1D y, LongMatrix1D z, final long alpha, final long beta,
-            final boolean transposeA) {
-        if (transposeA)
-            return viewDice().zMult(y, z, alpha, beta, false);
-        if (z == null) {
-            z = new DenseLongMatrix1D(rows);
-        }
-        if (!(y instanceof DenseLongMatrix1D && z instanceof DenseLongMatrix1D))
-            return super.zMult(y, z, alpha, beta, transposeA);
-
-        if (columns != y.size() || rows > z.size())
-            throw new IllegalArgumentException("Incompatible args: " + toStringShort() + ", " + y.toStringShort()
-                    + ", " + z.toStringShort());
-
-        final long[] elemsY = (long[]) y.elements();
-        final long[] elemsZ = (long[]) z.elements();
-        if (elements == null || elemsY == null || elemsZ == null)
-            throw new InternalError();
-        final int strideY = y.stride();
-        final int strideZ = z.stride();
-        final int zero = (int) index(0, 0);
-        final int zeroY = (int) y.index(0);
-        final int zeroZ = (int) z.index(0);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idxZero = zero + firstRow * rowStride;
-                        int idxZeroZ = zeroZ + firstRow * strideZ;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            long sum = 0;
-                            int idx = idxZero;
-                            int idxY = zeroY;
-                            for (int c = 0; c < columns; c++) {
-                                sum += elements[idx] * elemsY[idxY];
-                                idx += columnStride;
-                                idxY += strideY;
-                            }
-                            elemsZ[idxZeroZ] = alpha * sum + beta * elemsZ[idxZeroZ];
-                            idxZero += rowStride;
-                            idxZeroZ += strideZ;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idxZero = zero;
-            int idxZeroZ = zeroZ;
-            for (int r = 0; r < rows; r++) {
-                long sum = 0;
-                int idx = idxZero;
-                int idxY = zeroY;
-                for (int c = 0; c < columns; c++) {
-                    sum += elements[idx] * elemsY[idxY];
-                    idx += columnStride;
-                    idxY += strideY;
-                }
-                elemsZ[idxZeroZ] = alpha * sum + beta * elemsZ[idxZeroZ];
-                idxZero += rowStride;
-                idxZeroZ += strideZ;
-            }
-        }
-        return z;
-    }
-
     public LongMatrix2D zMult(final LongMatrix2D B, LongMatrix2D C, final long alpha, final long beta,
             final boolean transposeA, final boolean transposeB) {
-        final int rowsA = rows;
-        final int columnsA = columns;
-        final int rowsB = B.rows();
-        final int columnsB = B.columns();
-        final int rowsC = transposeA ? columnsA : rowsA;
-        final int columnsC = transposeB ? rowsB : columnsB;
-
-        if (C == null) {
-            C = new DenseLongMatrix2D(rowsC, columnsC);
-        }
-
-        /*
-        * determine how to split and parallelize best into blocks if more
-        * B.columns than tasks --> split B.columns, as follows:
-        * 
-        * xx|xx|xxx B xx|xx|xxx xx|xx|xxx A xxx xx|xx|xxx C xxx xx|xx|xxx xxx
-        * xx|xx|xxx xxx xx|xx|xxx xxx xx|xx|xxx
-        * 
-        * if less B.columns than tasks --> split A.rows, as follows:
-        * 
-        * xxxxxxx B xxxxxxx xxxxxxx A xxx xxxxxxx C xxx xxxxxxx --- ------- xxx
-        * xxxxxxx xxx xxxxxxx --- ------- xxx xxxxxxx
-        */
         if (transposeA)
             return viewDice().zMult(B, C, alpha, beta, false, transposeB);
         if (B instanceof SparseLongMatrix2D || B instanceof SparseRCLongMatrix2D) {
@@ -1605,62 +1458,9 @@ public class DenseLongMatrix2D extends LongMatrix2D {
                 return C;
             }
         }
-        if (transposeB)
-            return this.zMult(B.viewDice(), C, alpha, beta, transposeA, false);
-
-        if (!(C instanceof DenseLongMatrix2D))
-            return super.zMult(B, C, alpha, beta, transposeA, transposeB);
-
-        if (B.rows() != columnsA)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + this.toStringShort() + ", "
-                    + B.toStringShort());
-        if (C.rows() != rowsA || C.columns() != columnsB)
-            throw new IllegalArgumentException("Incompatibe result matrix: " + this.toStringShort() + ", "
-                    + B.toStringShort() + ", " + C.toStringShort());
-        if (this == C || B == C)
-            throw new IllegalArgumentException("Matrices must not be identical");
-
-        long flops = 2L * rowsA * columnsA * columnsB;
-        int noOfTasks = (int) Math.min(flops / 30000, ConcurrencyUtils.getNumberOfThreads()); // each
-        /* thread should process at least 30000 flops */
-        boolean splitB = (columnsB >= noOfTasks);
-        int width = splitB ? columnsB : rowsA;
-        noOfTasks = Math.min(width, noOfTasks);
-
-        if (noOfTasks < 2) { //parallelization doesn't pay off (too much start up overhead)
-            return this.zMultSequential(B, C, alpha, beta, transposeA, transposeB);
-        }
-
-        // set up concurrent tasks
-        int span = width / noOfTasks;
-        final Future<?>[] subTasks = new Future[noOfTasks];
-        for (int i = 0; i < noOfTasks; i++) {
-            final int offset = i * span;
-            if (i == noOfTasks - 1)
-                span = width - span * i; // last span may be a bit larger
-
-            final LongMatrix2D AA, BB, CC;
-            if (splitB) {
-                // split B along columns into blocks
-                AA = this;
-                BB = B.viewPart(0, offset, columnsA, span);
-                CC = C.viewPart(0, offset, rowsA, span);
-            } else {
-                // split A along rows into blocks
-                AA = this.viewPart(offset, 0, span, columnsA);
-                BB = B;
-                CC = C.viewPart(offset, 0, span, columnsB);
-            }
-
-            subTasks[i] = ConcurrencyUtils.submit(new Runnable() {
-                public void run() {
-                    ((DenseLongMatrix2D) AA).zMultSequential(BB, CC, alpha, beta, transposeA, transposeB);
-                }
-            });
-        }
-
-        ConcurrencyUtils.waitForCompletion(subTasks);
-        return C;
+        // dense operands of any layout, views and selections are packed and
+        // multiplied in parallel, see LongMatrix2DMultiplication
+        return super.zMult(B, C, alpha, beta, transposeA, transposeB);
     }
 
     public long zSum() {
@@ -1714,108 +1514,6 @@ public class DenseLongMatrix2D extends LongMatrix2D {
         return sum;
     }
 
-    private LongMatrix2D zMultSequential(LongMatrix2D B, LongMatrix2D C, long alpha, long beta, boolean transposeA,
-            boolean transposeB) {
-        if (transposeA)
-            return viewDice().zMult(B, C, alpha, beta, false, transposeB);
-        if (B instanceof SparseLongMatrix2D || B instanceof SparseRCLongMatrix2D || B instanceof SparseCCLongMatrix2D) {
-            // exploit quick sparse mult
-            // A*B = (B' * A')'
-            if (C == null) {
-                return B.zMult(this, null, alpha, beta, !transposeB, true).viewDice();
-            } else {
-                B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
-                return C;
-            }
-        }
-        if (transposeB)
-            return this.zMult(B.viewDice(), C, alpha, beta, transposeA, false);
-
-        int rowsA = rows;
-        int columnsA = columns;
-        int p = B.columns();
-        if (C == null) {
-            C = new DenseLongMatrix2D(rowsA, p);
-        }
-        if (!(B instanceof DenseLongMatrix2D) || !(C instanceof DenseLongMatrix2D))
-            return super.zMult(B, C, alpha, beta, transposeA, transposeB);
-        if (B.rows() != columnsA)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
-                    + B.toStringShort());
-        if (C.rows() != rowsA || C.columns() != p)
-            throw new IllegalArgumentException("Incompatibel result matrix: " + toStringShort() + ", "
-                    + B.toStringShort() + ", " + C.toStringShort());
-        if (this == C || B == C)
-            throw new IllegalArgumentException("Matrices must not be identical");
-
-        DenseLongMatrix2D BB = (DenseLongMatrix2D) B;
-        DenseLongMatrix2D CC = (DenseLongMatrix2D) C;
-        final long[] AElems = this.elements;
-        final long[] BElems = BB.elements;
-        final long[] CElems = CC.elements;
-        if (AElems == null || BElems == null || CElems == null)
-            throw new InternalError();
-
-        int cA = this.columnStride;
-        int cB = BB.columnStride;
-        int cC = CC.columnStride;
-
-        int rA = this.rowStride;
-        int rB = BB.rowStride;
-        int rC = CC.rowStride;
-
-        /*
-         * A is blocked to hide memory latency xxxxxxx B xxxxxxx xxxxxxx A xxx
-         * xxxxxxx C xxx xxxxxxx --- ------- xxx xxxxxxx xxx xxxxxxx --- -------
-         * xxx xxxxxxx
-         */
-        final int BLOCK_SIZE = 30000; // * 8 == Level 2 cache in bytes
-        int m_optimal = (BLOCK_SIZE - columnsA) / (columnsA + 1);
-        if (m_optimal <= 0)
-            m_optimal = 1;
-        int blocks = rowsA / m_optimal;
-        int rr = 0;
-        if (rowsA % m_optimal != 0)
-            blocks++;
-        for (; --blocks >= 0;) {
-            int jB = (int) BB.index(0, 0);
-            int indexA = (int) index(rr, 0);
-            int jC = (int) CC.index(rr, 0);
-            rr += m_optimal;
-            if (blocks == 0)
-                m_optimal += rowsA - rr;
-
-            for (int j = p; --j >= 0;) {
-                int iA = indexA;
-                int iC = jC;
-                for (int i = m_optimal; --i >= 0;) {
-                    int kA = iA;
-                    int kB = jB;
-                    long s = 0;
-
-                    // loop unrolled
-                    kA -= cA;
-                    kB -= rB;
-
-                    for (int k = columnsA % 4; --k >= 0;) {
-                        s += AElems[kA += cA] * BElems[kB += rB];
-                    }
-                    for (int k = columnsA / 4; --k >= 0;) {
-                        s += AElems[kA += cA] * BElems[kB += rB] + AElems[kA += cA] * BElems[kB += rB]
-                                + AElems[kA += cA] * BElems[kB += rB] + AElems[kA += cA] * BElems[kB += rB];
-                    }
-
-                    CElems[iC] = alpha * s + beta * CElems[iC];
-                    iA += rA;
-                    iC += rC;
-                }
-                jB += cB;
-                jC += cC;
-            }
-        }
-        return C;
-    }
-
     protected boolean haveSharedCellsRaw(LongMatrix2D other) {
         if (other instanceof SelectedDenseLongMatrix2D) {
             SelectedDenseLongMatrix2D otherMatrix = (SelectedDenseLongMatrix2D) other;
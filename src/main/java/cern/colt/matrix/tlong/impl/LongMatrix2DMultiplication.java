@@ -0,0 +1,734 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tlong.impl;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.IntegerOverflow;
+import cern.colt.matrix.tlong.LongMatrix1D;
+import cern.colt.matrix.tlong.LongMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Parallel multiplication of long matrices of any storage,
+ * <tt>C = alpha*A*B + beta*C</tt> and <tt>z = alpha*A*y + beta*z</tt>.
+ * <p>
+ * An {@link IntegerOverflow} tells what happens to the results that do not
+ * fit into a long: they wrap around like the long arithmetic of Java, an
+ * <tt>ArithmeticException</tt> is thrown, or they are clamped. In the two
+ * latter cases every product and sum is checked, and the results of which an
+ * intermediate value overflowed are computed again with
+ * <tt>BigInteger</tt>, so that a result is exact whenever it fits into a
+ * long.
+ * <p>
+ * Matrix products are blocked like those of
+ * {@link cern.colt.matrix.tdouble.impl.DoubleMatrix2DMultiplication}: blocks
+ * of <tt>A</tt> and <tt>B</tt> are packed into contiguous buffers and a
+ * register-blocked kernel sums <tt>4 x 4</tt> blocks of the product into a
+ * buffer, which holds a block of <tt>C</tt> until the whole common
+ * dimension has been summed. The work is split among the threads by blocks
+ * of rows or columns of <tt>C</tt>, whichever there are more of. When
+ * <tt>A</tt> is a {@link SparseRCLongMatrix2D}, the rows of <tt>B</tt> are
+ * instead scaled by the nonzeros of each row of <tt>A</tt> and summed, the
+ * threads getting bands of rows with about the same number of nonzeros.
+ */
+public class LongMatrix2DMultiplication {
+    /*
+     * Rows and columns of the blocks of C computed by the kernel.
+     */
+    private static final int MR = 4;
+
+    private static final int NR = 4;
+
+    /*
+     * Rows of the packed blocks of A, common dimension and columns of the
+     * packed blocks of B.
+     */
+    private static final int MC = 128;
+
+    private static final int KC = 256;
+
+    private static final int NC = 512;
+
+    /**
+     * Makes this class non instantiable, but still let's others inherit from
+     * it.
+     */
+    protected LongMatrix2DMultiplication() {
+    }
+
+    /**
+     * Computes <tt>C = alpha*A*B + beta*C</tt>. The matrices can have any
+     * storage, be views or selections.
+     *
+     * @param A
+     *            the first source matrix.
+     * @param B
+     *            the second source matrix.
+     * @param C
+     *            the matrix where results are to be stored; must not share
+     *            cells with <tt>A</tt> or <tt>B</tt>.
+     * @param alpha
+     *            the scale of the product.
+     * @param beta
+     *            the scale of <tt>C</tt>.
+     * @param overflow
+     *            what to do with results that do not fit into a long.
+     * @return <tt>C</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>B.rows() != A.columns()</tt> or
+     *             <tt>C.rows() != A.rows() || C.columns() != B.columns()</tt>.
+     * @throws ArithmeticException
+     *             if a result does not fit into a long and
+     *             <tt>overflow == IntegerOverflow.Checked</tt>; the values
+     *             of <tt>C</tt> are then undefined.
+     */
+    public static LongMatrix2D zMult(LongMatrix2D A, LongMatrix2D B, LongMatrix2D C, long alpha, long beta,
+            IntegerOverflow overflow) {
+        checkShapes(A, B, C);
+        zMult(A, B, new Operand(C), alpha, beta, overflow);
+        return C;
+    }
+
+    /**
+     * Computes <tt>z = alpha*A*y + beta*z</tt>. The matrix and the vectors can
+     * have any storage, be views or selections.
+     *
+     * @param A
+     *            the source matrix.
+     * @param y
+     *            the source vector.
+     * @param z
+     *            the vector where results are to be stored; must not share
+     *            cells with <tt>A</tt> or <tt>y</tt>.
+     * @param alpha
+     *            the scale of the product.
+     * @param beta
+     *            the scale of <tt>z</tt>.
+     * @param overflow
+     *            what to do with results that do not fit into a long.
+     * @return <tt>z</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>A.columns() != y.size() || A.rows() > z.size()</tt>.
+     * @throws ArithmeticException
+     *             if a result does not fit into a long and
+     *             <tt>overflow == IntegerOverflow.Checked</tt>; the values
+     *             of <tt>z</tt> are then undefined.
+     */
+    public static LongMatrix1D zMult(LongMatrix2D A, LongMatrix1D y, final LongMatrix1D z, final long alpha,
+            final long beta, final IntegerOverflow overflow) {
+        final int m = A.rows();
+        final int n = A.columns();
+        if (n != y.size() || m > z.size())
+            throw new IllegalArgumentException("Incompatible args: " + A.toStringShort() + ", " + y.toStringShort()
+                    + ", " + z.toStringShort());
+        final Operand a = new Operand(A);
+        final long[] values = y.toArray();
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (nthreads < 2 || (long) m * n < ConcurrencyUtils.getThreadsBeginN_2D() || m < 2) {
+            multiply(a, values, z, alpha, beta, overflow, 0, m);
+            return z;
+        }
+        nthreads = Math.min(nthreads, m);
+        Future<?>[] futures = new Future[nthreads];
+        int k = m / nthreads;
+        for (int j = 0; j < nthreads; j++) {
+            final int firstRow = j * k;
+            final int lastRow = (j == nthreads - 1) ? m : firstRow + k;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    multiply(a, values, z, alpha, beta, overflow, firstRow, lastRow);
+                }
+            });
+        }
+        waitForCompletion(futures);
+        return z;
+    }
+
+    private static void checkShapes(LongMatrix2D A, LongMatrix2D B, LongMatrix2D C) {
+        if (B.rows() != A.columns())
+            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + A.toStringShort() + ", "
+                    + B.toStringShort());
+        if (C.rows() != A.rows() || C.columns() != B.columns())
+            throw new IllegalArgumentException("Incompatibe result matrix: " + A.toStringShort() + ", "
+                    + B.toStringShort() + ", " + C.toStringShort());
+    }
+
+    /*
+     * Waits for all the threads and rethrows the first exception thrown by
+     * one of them, such as the ArithmeticException of a checked product. The
+     * threads are waited for even when the caller is interrupted, so that
+     * none of them still writes the result after this method returns.
+     */
+    private static void waitForCompletion(Future<?>[] futures) {
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (int j = 0; j < futures.length; j++) {
+            while (true) {
+                try {
+                    futures[j].get();
+                    break;
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw new RuntimeException(failure);
+    }
+
+    private static void zMult(LongMatrix2D A, LongMatrix2D B, final Operand c, final long alpha, final long beta,
+            final IntegerOverflow overflow) {
+        final int m = A.rows();
+        final int n = A.columns();
+        final int p = B.columns();
+        if (m == 0 || p == 0) {
+            return;
+        }
+        if (A instanceof SparseRCLongMatrix2D) {
+            zMult((SparseRCLongMatrix2D) A, B, c, alpha, beta, overflow);
+            return;
+        }
+        final Operand a = new Operand(A);
+        final Operand b = new Operand(B);
+
+        // The threads get whole blocks of the kernel
+        final boolean splitColumns = p >= m;
+        int size = splitColumns ? p : m;
+        int unit = splitColumns ? NR : MR;
+        int blocks = (size + unit - 1) / unit;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (nthreads < 2 || 2L * m * n * p < ConcurrencyUtils.getThreadsBeginN_2D() || !c.concurrent) {
+            multiply(a, b, c, alpha, beta, overflow, 0, m, 0, p, n);
+            return;
+        }
+        nthreads = Math.min(nthreads, blocks);
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int first = Math.min(size, (int) ((long) blocks * j / nthreads) * unit);
+            final int last = (j == nthreads - 1) ? size : Math.min(size, (int) ((long) blocks * (j + 1) / nthreads)
+                    * unit);
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    if (splitColumns) {
+                        multiply(a, b, c, alpha, beta, overflow, 0, m, first, last, n);
+                    } else {
+                        multiply(a, b, c, alpha, beta, overflow, first, last, 0, p, n);
+                    }
+                }
+            });
+        }
+        waitForCompletion(futures);
+    }
+
+    private static void zMult(SparseRCLongMatrix2D A, LongMatrix2D B, final Operand c, final long alpha,
+            final long beta, final IntegerOverflow overflow) {
+        final int m = A.rows();
+        final int p = B.columns();
+        if (m == 0 || p == 0) {
+            return;
+        }
+        final int[] rowPointers = A.getRowPointers();
+        final int[] columnIndexes = A.getColumnIndexes();
+        final long[] values = A.getValues();
+        final Operand b = new Operand(B);
+        long nnz = rowPointers[m];
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (nthreads < 2 || 2 * nnz * p < ConcurrencyUtils.getThreadsBeginN_2D() || m < 2 || !c.concurrent) {
+            multiply(rowPointers, columnIndexes, values, b, c, alpha, beta, overflow, 0, m);
+            return;
+        }
+        // bands of rows with about the same number of nonzeros
+        nthreads = Math.min(nthreads, m);
+        Future<?>[] futures = new Future[nthreads];
+        int firstRow = 0;
+        for (int j = 0; j < nthreads; j++) {
+            int lastRow = m;
+            if (j < nthreads - 1) {
+                int target = (int) (nnz * (j + 1) / nthreads);
+                lastRow = Arrays.binarySearch(rowPointers, firstRow, m + 1, target);
+                if (lastRow < 0) {
+                    lastRow = -lastRow - 1;
+                }
+                lastRow = Math.max(firstRow, Math.min(m, lastRow));
+            }
+            final int first = firstRow;
+            final int last = lastRow;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    multiply(rowPointers, columnIndexes, values, b, c, alpha, beta, overflow, first, last);
+                }
+            });
+            firstRow = lastRow;
+        }
+        waitForCompletion(futures);
+    }
+
+    /*
+     * Computes the rows firstRow..lastRow-1 and the columns
+     * firstColumn..lastColumn-1 of C.
+     */
+    private static void multiply(Operand a, Operand b, Operand c, long alpha, long beta, IntegerOverflow overflow,
+            int firstRow, int lastRow, int firstColumn, int lastColumn, int n) {
+        int mc = Math.min(MC, roundUp(lastRow - firstRow, MR));
+        int kc = Math.min(KC, n);
+        int nc = Math.min(NC, roundUp(lastColumn - firstColumn, NR));
+        long[] packedA = new long[mc * kc];
+        long[] packedB = new long[kc * nc];
+        long[] sums = new long[mc * nc];
+        boolean[] overflowed = overflow == IntegerOverflow.Wrap ? null : new boolean[mc * nc];
+        for (int jc = firstColumn; jc < lastColumn; jc += NC) {
+            int ncols = Math.min(NC, lastColumn - jc);
+            for (int ic = firstRow; ic < lastRow; ic += MC) {
+                int nrows = Math.min(MC, lastRow - ic);
+                Arrays.fill(sums, 0);
+                if (overflowed != null) {
+                    Arrays.fill(overflowed, false);
+                }
+                for (int pc = 0; pc < n; pc += KC) {
+                    int depth = Math.min(KC, n - pc);
+                    // a single block of B along the common dimension is packed once
+                    if (ic == firstRow || n > KC) {
+                        packB(b, pc, depth, jc, ncols, packedB);
+                    }
+                    packA(a, ic, nrows, pc, depth, packedA);
+                    for (int jr = 0; jr < ncols; jr += NR) {
+                        for (int ir = 0; ir < nrows; ir += MR) {
+                            int offset = ir * nc + jr;
+                            if (overflowed == null) {
+                                kernel(depth, packedA, ir * depth, packedB, jr * depth, sums, offset, nc);
+                            } else if (kernelChecked(depth, packedA, ir * depth, packedB, jr * depth, sums, offset,
+                                    nc)) {
+                                for (int i = 0; i < MR; i++) {
+                                    for (int j = 0; j < NR; j++) {
+                                        overflowed[offset + i * nc + j] = true;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+                for (int i = 0; i < nrows; i++) {
+                    int row = ic + i;
+                    for (int j = 0; j < ncols; j++) {
+                        int column = jc + j;
+                        int idx = i * nc + j;
+                        if (overflowed == null) {
+                            c.set(row, column, alpha * sums[idx] + beta * c.get(row, column));
+                        } else if (overflowed[idx]) {
+                            c.set(row, column, narrow(BigInteger.valueOf(alpha).multiply(sum(a, b, row, column, n))
+                                    .add(BigInteger.valueOf(beta).multiply(BigInteger.valueOf(c.get(row, column)))),
+                                    overflow));
+                        } else {
+                            c.set(row, column, combine(alpha, sums[idx], beta, c.get(row, column), overflow));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Computes the rows firstRow..lastRow-1 of C = alpha*A*B + beta*C, A in
+     * compressed row storage.
+     */
+    private static void multiply(int[] rowPointers, int[] columnIndexes, long[] values, Operand b, Operand c,
+            long alpha, long beta, IntegerOverflow overflow, int firstRow, int lastRow) {
+        int p = b.matrix.columns();
+        long[] sums = new long[p];
+        for (int r = firstRow; r < lastRow; r++) {
+            Arrays.fill(sums, 0);
+            long overflowed = 0;
+            int high = rowPointers[r + 1];
+            for (int k = rowPointers[r]; k < high; k++) {
+                long value = values[k];
+                int row = columnIndexes[k];
+                if (b.elements != null) {
+                    long[] elements = b.elements;
+                    int[] columnOffsets = b.columnOffsets;
+                    int offset = b.rowOffsets[row];
+                    for (int j = 0; j < p; j++) {
+                        long y = elements[offset + columnOffsets[j]];
+                        long x = value * y;
+                        long s = sums[j] + x;
+                        overflowed |= (sums[j] ^ s) & (x ^ s) | overflows(value, y, x);
+                        sums[j] = s;
+                    }
+                } else {
+                    for (int j = 0; j < p; j++) {
+                        long y = b.matrix.getQuick(row, j);
+                        long x = value * y;
+                        long s = sums[j] + x;
+                        overflowed |= (sums[j] ^ s) & (x ^ s) | overflows(value, y, x);
+                        sums[j] = s;
+                    }
+                }
+            }
+            if (overflow == IntegerOverflow.Wrap) {
+                for (int j = 0; j < p; j++) {
+                    c.set(r, j, alpha * sums[j] + beta * c.get(r, j));
+                }
+            } else if (overflowed < 0) {
+                // some sum of the row overflowed, the whole row is summed again
+                for (int j = 0; j < p; j++) {
+                    BigInteger sum = BigInteger.ZERO;
+                    for (int k = rowPointers[r]; k < high; k++) {
+                        sum = sum.add(BigInteger.valueOf(values[k]).multiply(
+                                BigInteger.valueOf(b.get(columnIndexes[k], j))));
+                    }
+                    c.set(r, j, narrow(BigInteger.valueOf(alpha).multiply(sum).add(
+                            BigInteger.valueOf(beta).multiply(BigInteger.valueOf(c.get(r, j)))), overflow));
+                }
+            } else {
+                for (int j = 0; j < p; j++) {
+                    c.set(r, j, combine(alpha, sums[j], beta, c.get(r, j), overflow));
+                }
+            }
+        }
+    }
+
+    /*
+     * Computes the rows firstRow..lastRow-1 of z = alpha*A*y + beta*z.
+     */
+    private static void multiply(Operand a, long[] y, LongMatrix1D z, long alpha, long beta,
+            IntegerOverflow overflow, int firstRow, int lastRow) {
+        int n = y.length;
+        for (int r = firstRow; r < lastRow; r++) {
+            long sum = 0;
+            long overflowed = 0;
+            if (a.elements != null) {
+                long[] elements = a.elements;
+                int[] columnOffsets = a.columnOffsets;
+                int offset = a.rowOffsets[r];
+                for (int k = 0; k < n; k++) {
+                    long v = elements[offset + columnOffsets[k]];
+                    long x = v * y[k];
+                    long s = sum + x;
+                    overflowed |= (sum ^ s) & (x ^ s) | overflows(v, y[k], x);
+                    sum = s;
+                }
+            } else {
+                for (int k = 0; k < n; k++) {
+                    long v = a.matrix.getQuick(r, k);
+                    long x = v * y[k];
+                    long s = sum + x;
+                    overflowed |= (sum ^ s) & (x ^ s) | overflows(v, y[k], x);
+                    sum = s;
+                }
+            }
+            long value;
+            if (overflow == IntegerOverflow.Wrap) {
+                value = alpha * sum + beta * z.getQuick(r);
+            } else if (overflowed < 0) {
+                BigInteger exact = BigInteger.ZERO;
+                for (int k = 0; k < n; k++) {
+                    exact = exact.add(BigInteger.valueOf(a.get(r, k)).multiply(BigInteger.valueOf(y[k])));
+                }
+                value = narrow(BigInteger.valueOf(alpha).multiply(exact).add(
+                        BigInteger.valueOf(beta).multiply(BigInteger.valueOf(z.getQuick(r)))), overflow);
+            } else {
+                value = combine(alpha, sum, beta, z.getQuick(r), overflow);
+            }
+            z.setQuick(r, value);
+        }
+    }
+
+    /*
+     * Adds the 4 x 4 block of the product of a packed sliver of A and a packed
+     * sliver of B to sums, at offset, with ld sums per row.
+     */
+    private static void kernel(int depth, long[] a, int ia, long[] b, int ib, long[] sums, int offset, int ld) {
+        long c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        long c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        long c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        long c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+        for (int k = 0; k < depth; k++) {
+            long a0 = a[ia];
+            long a1 = a[ia + 1];
+            long a2 = a[ia + 2];
+            long a3 = a[ia + 3];
+            long b0 = b[ib];
+            long b1 = b[ib + 1];
+            long b2 = b[ib + 2];
+            long b3 = b[ib + 3];
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+            ia += MR;
+            ib += NR;
+        }
+        sums[offset] += c00;
+        sums[offset + 1] += c01;
+        sums[offset + 2] += c02;
+        sums[offset + 3] += c03;
+        offset += ld;
+        sums[offset] += c10;
+        sums[offset + 1] += c11;
+        sums[offset + 2] += c12;
+        sums[offset + 3] += c13;
+        offset += ld;
+        sums[offset] += c20;
+        sums[offset + 1] += c21;
+        sums[offset + 2] += c22;
+        sums[offset + 3] += c23;
+        offset += ld;
+        sums[offset] += c30;
+        sums[offset + 1] += c31;
+        sums[offset + 2] += c32;
+        sums[offset + 3] += c33;
+    }
+
+    /*
+     * Like kernel, but returns true if a product or a sum overflowed. The sign
+     * bit of (s ^ (s + x)) & (x ^ (s + x)) is set if s + x overflows.
+     */
+    private static boolean kernelChecked(int depth, long[] a, int ia, long[] b, int ib, long[] sums, int offset,
+            int ld) {
+        long[] c = new long[MR * NR];
+        long overflowed = 0;
+        for (int k = 0; k < depth; k++) {
+            for (int i = 0; i < MR; i++) {
+                long ai = a[ia + i];
+                for (int j = 0; j < NR; j++) {
+                    long x = ai * b[ib + j];
+                    long s = c[i * NR + j] + x;
+                    overflowed |= (c[i * NR + j] ^ s) & (x ^ s) | overflows(ai, b[ib + j], x);
+                    c[i * NR + j] = s;
+                }
+            }
+            ia += MR;
+            ib += NR;
+        }
+        for (int i = 0; i < MR; i++) {
+            for (int j = 0; j < NR; j++) {
+                long x = c[i * NR + j];
+                long s = sums[offset + j] + x;
+                overflowed |= (sums[offset + j] ^ s) & (x ^ s);
+                sums[offset + j] = s;
+            }
+            offset += ld;
+        }
+        return overflowed < 0;
+    }
+
+    /*
+     * Returns the exact sum of A(row,k)*B(k,column), k = 0..n-1.
+     */
+    private static BigInteger sum(Operand a, Operand b, int row, int column, int n) {
+        BigInteger sum = BigInteger.ZERO;
+        for (int k = 0; k < n; k++) {
+            sum = sum.add(BigInteger.valueOf(a.get(row, k)).multiply(BigInteger.valueOf(b.get(k, column))));
+        }
+        return sum;
+    }
+
+    /*
+     * Returns alpha*sum + beta*c, or the exact value narrowed to a long if it
+     * overflows.
+     */
+    private static long combine(long alpha, long sum, long beta, long c, IntegerOverflow overflow) {
+        long x = alpha * sum;
+        long y = beta * c;
+        long value = x + y;
+        if ((overflows(alpha, sum, x) | overflows(beta, c, y) | ((x ^ value) & (y ^ value))) >= 0) {
+            return value;
+        }
+        return narrow(BigInteger.valueOf(alpha).multiply(BigInteger.valueOf(sum)).add(
+                BigInteger.valueOf(beta).multiply(BigInteger.valueOf(c))), overflow);
+    }
+
+    /*
+     * Returns -1 if product, the product x * y, overflowed and 0 otherwise.
+     * The product cannot overflow if both factors fit into 31 bits.
+     */
+    private static long overflows(long x, long y, long product) {
+        if (((Math.abs(x) | Math.abs(y)) >>> 31) == 0) {
+            return 0;
+        }
+        return (y != 0 && product / y != x) || (x == Long.MIN_VALUE && y == -1) ? -1 : 0;
+    }
+
+    private static long narrow(BigInteger value, IntegerOverflow overflow) {
+        if (value.bitLength() < 64) {
+            return value.longValue();
+        }
+        if (overflow == IntegerOverflow.Checked) {
+            throw new ArithmeticException("Long overflow: " + value);
+        }
+        return value.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+
+    /*
+     * Packs A(firstRow..firstRow+nrows-1, pc..pc+depth-1) into slivers of MR
+     * rows; each sliver holds MR values per column, padded with zeros.
+     */
+    private static void packA(Operand a, int firstRow, int nrows, int pc, int depth, long[] packed) {
+        int idx = 0;
+        for (int ir = 0; ir < nrows; ir += MR) {
+            int mr = Math.min(MR, nrows - ir);
+            if (a.elements != null) {
+                long[] elements = a.elements;
+                int[] columnOffsets = a.columnOffsets;
+                for (int k = 0; k < depth; k++) {
+                    int offset = columnOffsets[pc + k];
+                    for (int i = 0; i < mr; i++) {
+                        packed[idx + i] = elements[a.rowOffsets[firstRow + ir + i] + offset];
+                    }
+                    for (int i = mr; i < MR; i++) {
+                        packed[idx + i] = 0;
+                    }
+                    idx += MR;
+                }
+            } else {
+                for (int k = 0; k < depth; k++) {
+                    for (int i = 0; i < mr; i++) {
+                        packed[idx + i] = a.matrix.getQuick(firstRow + ir + i, pc + k);
+                    }
+                    for (int i = mr; i < MR; i++) {
+                        packed[idx + i] = 0;
+                    }
+                    idx += MR;
+                }
+            }
+        }
+    }
+
+    /*
+     * Packs B(pc..pc+depth-1, firstColumn..firstColumn+ncols-1) into slivers
+     * of NR columns; each sliver holds NR values per row, padded with zeros.
+     */
+    private static void packB(Operand b, int pc, int depth, int firstColumn, int ncols, long[] packed) {
+        int idx = 0;
+        for (int jr = 0; jr < ncols; jr += NR) {
+            int nr = Math.min(NR, ncols - jr);
+            if (b.elements != null) {
+                long[] elements = b.elements;
+                int[] columnOffsets = b.columnOffsets;
+                for (int k = 0; k < depth; k++) {
+                    int offset = b.rowOffsets[pc + k];
+                    for (int j = 0; j < nr; j++) {
+                        packed[idx + j] = elements[offset + columnOffsets[firstColumn + jr + j]];
+                    }
+                    for (int j = nr; j < NR; j++) {
+                        packed[idx + j] = 0;
+                    }
+                    idx += NR;
+                }
+            } else {
+                for (int k = 0; k < depth; k++) {
+                    for (int j = 0; j < nr; j++) {
+                        packed[idx + j] = b.matrix.getQuick(pc + k, firstColumn + jr + j);
+                    }
+                    for (int j = nr; j < NR; j++) {
+                        packed[idx + j] = 0;
+                    }
+                    idx += NR;
+                }
+            }
+        }
+    }
+
+    private static int roundUp(int size, int unit) {
+        return (size + unit - 1) / unit * unit;
+    }
+
+    /*
+     * A matrix together with the offsets of its rows and columns in its
+     * element array, if it is a dense matrix, a view or a selection of one.
+     * Cell (i,j) of such a matrix is elements[rowOffsets[i] +
+     * columnOffsets[j]]. The cells of a dense matrix can be set by several
+     * threads at once.
+     */
+    private static class Operand {
+        final LongMatrix2D matrix;
+
+        final long[] elements;
+
+        final int[] rowOffsets;
+
+        final int[] columnOffsets;
+
+        final boolean concurrent;
+
+        Operand(LongMatrix2D matrix) {
+            this.matrix = matrix;
+            int rows = matrix.rows();
+            int columns = matrix.columns();
+            long[] values = null;
+            if (matrix instanceof DenseLongMatrix2D || matrix instanceof DenseColumnLongMatrix2D) {
+                values = (long[]) matrix.elements();
+            } else if (matrix instanceof SelectedDenseLongMatrix2D) {
+                // selections do not give away their elements
+                values = ((SelectedDenseLongMatrix2D) matrix).elements;
+            } else if (matrix instanceof SelectedDenseColumnLongMatrix2D) {
+                values = ((SelectedDenseColumnLongMatrix2D) matrix).elements;
+            }
+            if (values != null && rows > 0 && columns > 0) {
+                elements = values;
+                rowOffsets = new int[rows];
+                columnOffsets = new int[columns];
+                long zero = matrix.index(0, 0);
+                for (int i = 0; i < rows; i++) {
+                    rowOffsets[i] = (int) matrix.index(i, 0);
+                }
+                for (int j = 0; j < columns; j++) {
+                    columnOffsets[j] = (int) (matrix.index(0, j) - zero);
+                }
+            } else {
+                elements = null;
+                rowOffsets = null;
+                columnOffsets = null;
+            }
+            concurrent = elements != null || matrix instanceof DenseLargeLongMatrix2D;
+        }
+
+        long get(int row, int column) {
+            if (elements != null) {
+                return elements[rowOffsets[row] + columnOffsets[column]];
+            }
+            return matrix.getQuick(row, column);
+        }
+
+        void set(int row, int column, long value) {
+            if (elements != null) {
+                elements[rowOffsets[row] + columnOffsets[column]] = value;
+            } else {
+                matrix.setQuick(row, column, value);
+            }
+        }
+    }
+}
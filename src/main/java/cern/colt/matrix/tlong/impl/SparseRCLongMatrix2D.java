@@ -12,10 +12,10 @@ import java.util.Arrays;
 import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.IntegerOverflow;
 import cern.colt.list.tlong.LongArrayList;
 import cern.colt.matrix.tlong.LongMatrix1D;
 import cern.colt.matrix.tlong.LongMatrix2D;
-import cern.jet.math.tlong.LongFunctions;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -1054,38 +1054,11 @@ public class SparseRCLongMatrix2D extends WrapperLongMatrix2D {
         if (this == C || B == C)
             throw new IllegalArgumentException("Matrices must not be identical");
 
-        if (!ignore && beta != 1.0) {
-            C.assign(cern.jet.math.tlong.LongFunctions.mult(beta));
-        }
-
-        if ((B instanceof DenseLongMatrix2D) && (C instanceof DenseLongMatrix2D)) {
-            SparseRCLongMatrix2D AA;
-            if (transposeA) {
-                AA = getTranspose();
-            } else {
-                AA = this;
+        if ((B instanceof SparseRCLongMatrix2D) && (C instanceof SparseRCLongMatrix2D)) {
+            if (!ignore && beta != 1.0) {
+                C.assign(cern.jet.math.tlong.LongFunctions.mult(beta));
             }
-            DenseLongMatrix2D BB;
-            if (transposeB) {
-                BB = (DenseLongMatrix2D) B.viewDice();
-            } else {
-                BB = (DenseLongMatrix2D) B;
-            }
-
-            DenseLongMatrix2D CC = (DenseLongMatrix2D) C;
-            int[] rowPointersA = AA.rowPointers;
-            int[] columnIndexesA = AA.columnIndexes;
-            long[] valuesA = AA.values;
 
-            for (int ii = 0; ii < rowsA; ii++) {
-                int highA = rowPointersA[ii + 1];
-                for (int ka = rowPointersA[ii]; ka < highA; ka++) {
-                    long scal = valuesA[ka] * alpha;
-                    int jj = columnIndexesA[ka];
-                    CC.viewRow(ii).assign(BB.viewRow(jj), LongFunctions.plusMultSecond(scal));
-                }
-            }
-        } else if ((B instanceof SparseRCLongMatrix2D) && (C instanceof SparseRCLongMatrix2D)) {
             SparseRCLongMatrix2D AA;
             SparseRCLongMatrix2D BB;
             SparseRCLongMatrix2D CC = (SparseRCLongMatrix2D) C;
@@ -1158,32 +1131,10 @@ public class SparseRCLongMatrix2D extends WrapperLongMatrix2D {
             //            CC.values.elements((long[]) valuesC.elements());
             //            CC.values.setSize(columnIndexesSize);
         } else {
-            if (transposeB) {
-                B = B.viewDice();
-            }
-            // cache views
-            final LongMatrix1D[] Brows = new LongMatrix1D[columnsA];
-            for (int i = columnsA; --i >= 0;)
-                Brows[i] = B.viewRow(i);
-            final LongMatrix1D[] Crows = new LongMatrix1D[rowsA];
-            for (int i = rowsA; --i >= 0;)
-                Crows[i] = C.viewRow(i);
-
-            final cern.jet.math.tlong.LongPlusMultSecond fun = cern.jet.math.tlong.LongPlusMultSecond.plusMult(0);
-
-            final int[] columnIndexesA = columnIndexes;
-            final long[] valuesA = values;
-            for (int i = rows; --i >= 0;) {
-                int low = rowPointers[i];
-                for (int k = rowPointers[i + 1]; --k >= low;) {
-                    int j = columnIndexesA[k];
-                    fun.multiplicator = valuesA[k] * alpha;
-                    if (!transposeA)
-                        Crows[i].assign(Brows[j], fun);
-                    else
-                        Crows[j].assign(Brows[i], fun);
-                }
-            }
+            // the rows of B are scaled by the nonzeros of the rows of A and
+            // summed in parallel, see LongMatrix2DMultiplication
+            LongMatrix2DMultiplication.zMult(transposeA ? getTranspose() : this, transposeB ? B.viewDice() : B, C,
+                    alpha, beta, IntegerOverflow.Wrap);
         }
         return C;
     }
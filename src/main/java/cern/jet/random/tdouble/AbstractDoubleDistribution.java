@@ -8,13 +8,31 @@ It is provided "as is" without expressed or implied warranty.
  */
 package cern.jet.random.tdouble;
 
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix3D;
+import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix3D;
+import cern.jet.random.tdouble.engine.DoubleMersenneTwister;
 import cern.jet.random.tdouble.engine.DoubleRandomEngine;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
  * Abstract base class for all random distributions.
  * 
  * A subclass of this class need to override method <tt>nextDouble()</tt> and,
- * in rare cases, also <tt>nextInt()</tt>.
+ * in rare cases, also <tt>nextInt()</tt>. Subclasses with a faster batch
+ * algorithm may also override <tt>fill(double[], int, int)</tt>.
+ * <p>
+ * The <tt>fill</tt> methods taking a matrix generate their values in parallel.
+ * Each concurrent chunk is sampled by a copy of the receiver equipped with its
+ * own {@link cern.jet.random.tdouble.engine.DoubleMersenneTwister}, seeded
+ * from the receiver's generator, so that the chunks are independent streams
+ * and the result is reproducible for a given seed and number of threads.
  * <p>
  * Currently all subclasses use a uniform pseudo-random number generation engine
  * and transform its results to the target distribution. Thus, they expect such
@@ -115,6 +133,212 @@ public abstract class AbstractDoubleDistribution extends cern.colt.PersistentObj
         return copy;
     }
 
+    /**
+     * Fills the given range of an array with random numbers from the
+     * distribution. The default implementation calls <tt>nextDouble()</tt>
+     * once per element; subclasses may override it with a batch-optimized
+     * algorithm.
+     * 
+     * @param values
+     *            the array to fill.
+     * @param from
+     *            the index of the first element (inclusive) to be filled.
+     * @param to
+     *            the index of the last element (exclusive) to be filled.
+     * @throws IndexOutOfBoundsException
+     *             if <tt>from &lt; 0 || from &gt; to || to &gt; values.length</tt>.
+     */
+    public void fill(double[] values, int from, int to) {
+        checkRange(values.length, from, to);
+        for (int i = from; i < to; i++) {
+            values[i] = nextDouble();
+        }
+    }
+
+    /**
+     * Fills all cells of the given matrix with random numbers from the
+     * distribution. Large matrices are filled concurrently using independent
+     * streams.
+     * 
+     * @param A
+     *            the matrix to fill.
+     */
+    public void fill(final DoubleMatrix1D A) {
+        final int size = (int) A.size();
+        if (size == 0)
+            return;
+        final double[] elems = (!A.isView() && A instanceof DenseDoubleMatrix1D) ? (double[]) A.elements() : null;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+            nthreads = Math.min(nthreads, size);
+            final AbstractDoubleDistribution[] streams = split(nthreads);
+            Future<?>[] futures = new Future[nthreads];
+            int k = size / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstIdx = j * k;
+                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
+                final AbstractDoubleDistribution stream = streams[j];
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        if (elems != null) {
+                            stream.fill(elems, firstIdx, lastIdx);
+                        } else {
+                            double[] buffer = new double[lastIdx - firstIdx];
+                            stream.fill(buffer, 0, buffer.length);
+                            for (int i = firstIdx; i < lastIdx; i++) {
+                                A.setQuick(i, buffer[i - firstIdx]);
+                            }
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            if (elems != null) {
+                fill(elems, 0, size);
+            } else {
+                double[] buffer = new double[size];
+                fill(buffer, 0, size);
+                for (int i = 0; i < size; i++) {
+                    A.setQuick(i, buffer[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills all cells of the given matrix with random numbers from the
+     * distribution. Large matrices are filled concurrently using independent
+     * streams.
+     * 
+     * @param A
+     *            the matrix to fill.
+     */
+    public void fill(final DoubleMatrix2D A) {
+        if (!A.isView() && (A instanceof DenseDoubleMatrix2D || A instanceof DenseColumnDoubleMatrix2D)) {
+            fill(new DenseDoubleMatrix1D((int) A.size(), (double[]) A.elements(), 0, 1, false));
+            return;
+        }
+        final int rows = A.rows();
+        final int columns = A.columns();
+        if (rows == 0 || columns == 0)
+            return;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (A.size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = Math.min(nthreads, rows);
+            final AbstractDoubleDistribution[] streams = split(nthreads);
+            Future<?>[] futures = new Future[nthreads];
+            int k = rows / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstRow = j * k;
+                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                final AbstractDoubleDistribution stream = streams[j];
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        stream.fillRows(A, firstRow, lastRow);
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            fillRows(A, 0, rows);
+        }
+    }
+
+    /**
+     * Fills all cells of the given matrix with random numbers from the
+     * distribution. Large matrices are filled concurrently using independent
+     * streams.
+     * 
+     * @param A
+     *            the matrix to fill.
+     */
+    public void fill(final DoubleMatrix3D A) {
+        if (!A.isView() && A instanceof DenseDoubleMatrix3D) {
+            fill(new DenseDoubleMatrix1D((int) A.size(), (double[]) A.elements(), 0, 1, false));
+            return;
+        }
+        final int slices = A.slices();
+        if (A.size() == 0)
+            return;
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (A.size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = Math.min(nthreads, slices);
+            final AbstractDoubleDistribution[] streams = split(nthreads);
+            Future<?>[] futures = new Future[nthreads];
+            int k = slices / nthreads;
+            for (int j = 0; j < nthreads; j++) {
+                final int firstSlice = j * k;
+                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                final AbstractDoubleDistribution stream = streams[j];
+                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                    public void run() {
+                        for (int s = firstSlice; s < lastSlice; s++) {
+                            DoubleMatrix2D slice = A.viewSlice(s);
+                            stream.fillRows(slice, 0, slice.rows());
+                        }
+                    }
+                });
+            }
+            ConcurrencyUtils.waitForCompletion(futures);
+        } else {
+            for (int s = 0; s < slices; s++) {
+                DoubleMatrix2D slice = A.viewSlice(s);
+                fillRows(slice, 0, slice.rows());
+            }
+        }
+    }
+
+    /**
+     * Fills the rows <tt>[firstRow, lastRow)</tt> of the given matrix using a
+     * row-sized buffer.
+     */
+    private void fillRows(DoubleMatrix2D A, int firstRow, int lastRow) {
+        int columns = A.columns();
+        double[] buffer = new double[columns];
+        for (int r = firstRow; r < lastRow; r++) {
+            fill(buffer, 0, columns);
+            for (int c = 0; c < columns; c++) {
+                A.setQuick(r, c, buffer[c]);
+            }
+        }
+    }
+
+    /**
+     * Returns <tt>n</tt> copies of the receiver, each equipped with its own
+     * uniform random number generator seeded from the receiver's generator.
+     * The copies can be used concurrently to produce independent streams.
+     * 
+     * @param n
+     *            the number of streams.
+     * @return independent copies of the receiver.
+     */
+    protected AbstractDoubleDistribution[] split(int n) {
+        AbstractDoubleDistribution[] streams = new AbstractDoubleDistribution[n];
+        DoubleRandomEngine generator = this.randomGenerator;
+        try {
+            for (int i = 0; i < n; i++) {
+                // clone() wires nested distributions to the copied generator
+                this.randomGenerator = new DoubleMersenneTwister(generator.nextInt());
+                AbstractDoubleDistribution copy = (AbstractDoubleDistribution) clone();
+                copy.setRandomGenerator(copy.getRandomGenerator()); // resets caches
+                streams[i] = copy;
+            }
+        } finally {
+            this.randomGenerator = generator;
+        }
+        return streams;
+    }
+
+    /**
+     * Checks that <tt>[from, to)</tt> is a valid range of an array of the
+     * given length.
+     */
+    protected static void checkRange(int length, int from, int to) {
+        if (from < 0 || from > to || to > length)
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length);
+    }
+
     /**
      * Returns the used uniform random number generator;
      */
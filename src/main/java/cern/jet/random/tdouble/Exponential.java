@@ -26,6 +26,10 @@ import cern.jet.random.tdouble.engine.DoubleRandomEngine;
  * <dt>Static methods operate on a default uniform random number generator; they
  * are synchronized.
  * <p>
+ * <b>Implementation:</b> Inversion. The bulk method <tt>fill</tt> uses the
+ * Ziggurat method instead. See G. Marsaglia, W.W. Tsang (2000): The Ziggurat
+ * Method for Generating Random Variables, Journal of Statistical Software 5(8).
+ * <p>
  * 
  * @author wolfgang.hoschek@cern.ch
  * @version 1.0, 09/24/99
@@ -38,6 +42,36 @@ public class Exponential extends AbstractContinousDoubleDistribution {
 
     protected double lambda;
 
+    // Ziggurat tables (256 layers)
+    private static final long[] ke = new long[256];
+
+    private static final double[] we = new double[256];
+
+    private static final double[] fe = new double[256];
+
+    private static final double ZIGGURAT_R = 7.697117470131487;
+
+    static {
+        final double m2 = 4294967296.0;
+        final double ve = 3.949659822581572e-3;
+        double de = ZIGGURAT_R;
+        double te = de;
+        double q = ve / Math.exp(-de);
+        ke[0] = (long) ((de / q) * m2);
+        ke[1] = 0;
+        we[0] = q / m2;
+        we[255] = de / m2;
+        fe[0] = 1.0;
+        fe[255] = Math.exp(-de);
+        for (int i = 254; i >= 1; i--) {
+            de = -Math.log(ve / de + Math.exp(-de));
+            ke[i + 1] = (long) ((de / te) * m2);
+            te = de;
+            fe[i] = Math.exp(-de);
+            we[i] = de / m2;
+        }
+    }
+
     // The uniform random number generated shared by all <b>static</b> methods.
     protected static Exponential shared = new Exponential(1.0, makeDefaultGenerator());
 
@@ -74,6 +108,48 @@ public class Exponential extends AbstractContinousDoubleDistribution {
         return -Math.log(randomGenerator.raw()) / lambda;
     }
 
+    /**
+     * Fills the given range of an array with random numbers from the
+     * distribution, using the Ziggurat method.
+     */
+    public void fill(double[] values, int from, int to) {
+        checkRange(values.length, from, to);
+        final DoubleRandomEngine gen = this.randomGenerator;
+        final double invLambda = 1.0 / this.lambda;
+        for (int i = from; i < to; i++) {
+            long jz = gen.nextInt() & 0xffffffffL;
+            int iz = (int) (jz & 255);
+            double x;
+            if (jz < ke[iz]) {
+                x = jz * we[iz];
+            } else {
+                x = efix(gen, jz, iz);
+            }
+            values[i] = x * invLambda;
+        }
+    }
+
+    /**
+     * Handles the rejection part of the Ziggurat method for a standard
+     * exponential deviate.
+     */
+    private static double efix(DoubleRandomEngine gen, long jz, int iz) {
+        for (;;) {
+            if (iz == 0) { // sample from the tail
+                return ZIGGURAT_R - Math.log(gen.raw());
+            }
+            double x = jz * we[iz];
+            if (fe[iz] + gen.raw() * (fe[iz - 1] - fe[iz]) < Math.exp(-x)) {
+                return x;
+            }
+            jz = gen.nextInt() & 0xffffffffL;
+            iz = (int) (jz & 255);
+            if (jz < ke[iz]) {
+                return jz * we[iz];
+            }
+        }
+    }
+
     /**
      * Returns the probability distribution function.
      */
@@ -42,7 +42,9 @@ import cern.jet.stat.tdouble.Probability;
  * <p>
  * <b>Implementation:</b> Polar Box-Muller transformation. See G.E.P. Box, M.E.
  * Muller (1958): A note on the generation of random normal deviates, Annals
- * Math. Statist. 29, 610-611.
+ * Math. Statist. 29, 610-611. The bulk method <tt>fill</tt> uses the Ziggurat
+ * method instead. See G. Marsaglia, W.W. Tsang (2000): The Ziggurat Method for
+ * Generating Random Variables, Journal of Statistical Software 5(8).
  * <p>
  * 
  * @author wolfgang.hoschek@cern.ch
@@ -66,6 +68,36 @@ public class Normal extends AbstractContinousDoubleDistribution {
 
     protected double SQRT_INV; // performance cache
 
+    // Ziggurat tables (128 layers)
+    private static final int[] kn = new int[128];
+
+    private static final double[] wn = new double[128];
+
+    private static final double[] fn = new double[128];
+
+    private static final double ZIGGURAT_R = 3.442619855899;
+
+    static {
+        final double m1 = 2147483648.0;
+        final double vn = 9.91256303526217e-3;
+        double dn = ZIGGURAT_R;
+        double tn = dn;
+        double q = vn / Math.exp(-0.5 * dn * dn);
+        kn[0] = (int) ((dn / q) * m1);
+        kn[1] = 0;
+        wn[0] = q / m1;
+        wn[127] = dn / m1;
+        fn[0] = 1.0;
+        fn[127] = Math.exp(-0.5 * dn * dn);
+        for (int i = 126; i >= 1; i--) {
+            dn = Math.sqrt(-2.0 * Math.log(vn / dn + Math.exp(-0.5 * dn * dn)));
+            kn[i + 1] = (int) ((dn / tn) * m1);
+            tn = dn;
+            fn[i] = Math.exp(-0.5 * dn * dn);
+            wn[i] = dn / m1;
+        }
+    }
+
     // The uniform random number generated shared by all <b>static</b> methods.
     protected static Normal shared = new Normal(0.0, 1.0, makeDefaultGenerator());
 
@@ -120,6 +152,54 @@ public class Normal extends AbstractContinousDoubleDistribution {
         return mean + standardDeviation * y * z;
     }
 
+    /**
+     * Fills the given range of an array with random numbers from the
+     * distribution, using the Ziggurat method.
+     */
+    public void fill(double[] values, int from, int to) {
+        checkRange(values.length, from, to);
+        final DoubleRandomEngine gen = this.randomGenerator;
+        final double mean = this.mean;
+        final double standardDeviation = this.standardDeviation;
+        for (int i = from; i < to; i++) {
+            int hz = gen.nextInt();
+            int iz = hz & 127;
+            double z;
+            if (Math.abs((long) hz) < kn[iz]) {
+                z = hz * wn[iz];
+            } else {
+                z = nfix(gen, hz, iz);
+            }
+            values[i] = mean + standardDeviation * z;
+        }
+    }
+
+    /**
+     * Handles the rejection part of the Ziggurat method for a standard normal
+     * deviate.
+     */
+    private static double nfix(DoubleRandomEngine gen, int hz, int iz) {
+        for (;;) {
+            double x = hz * wn[iz];
+            if (iz == 0) { // sample from the tail
+                double y;
+                do {
+                    x = -Math.log(gen.raw()) / ZIGGURAT_R;
+                    y = -Math.log(gen.raw());
+                } while (y + y < x * x);
+                return (hz > 0) ? ZIGGURAT_R + x : -ZIGGURAT_R - x;
+            }
+            if (fn[iz] + gen.raw() * (fn[iz - 1] - fn[iz]) < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+            hz = gen.nextInt();
+            iz = hz & 127;
+            if (Math.abs((long) hz) < kn[iz]) {
+                return hz * wn[iz];
+            }
+        }
+    }
+
     /**
      * Returns the probability distribution function.
      */
@@ -2,12 +2,15 @@ package cern.colt;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import cern.colt.map.tdouble.RobinHoodIntDoubleHashMapTest;
+import cern.colt.map.tint.RobinHoodIntIntHashMapTest;
 import cern.colt.matrix.tdcomplex.AllDComplexMatrixTests;
 import cern.colt.matrix.tdouble.AllDoubleMatrixTests;
 import cern.colt.matrix.tfcomplex.AllFComplexMatrixTests;
 import cern.colt.matrix.tfloat.AllFloatMatrixTests;
 import cern.colt.matrix.tint.AllIntMatrixTests;
 import cern.colt.matrix.tlong.AllLongMatrixTests;
+import cern.jet.random.tdouble.DoubleDistributionFillTest;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 public class AllTests {
@@ -24,6 +27,10 @@ public class AllTests {
         suite.addTest(AllFComplexMatrixTests.suite());
         suite.addTest(AllLongMatrixTests.suite());
         suite.addTest(AllIntMatrixTests.suite());
+        suite.addTestSuite(ParallelRadixSortTest.class);
+        suite.addTestSuite(RobinHoodIntDoubleHashMapTest.class);
+        suite.addTestSuite(RobinHoodIntIntHashMapTest.class);
+        suite.addTestSuite(DoubleDistributionFillTest.class);
         return suite;
     }
 
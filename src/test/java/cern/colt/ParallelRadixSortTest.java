@@ -0,0 +1,293 @@
+package cern.colt;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tfloat.FloatArrayList;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.algo.DoubleSorting;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix1D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class ParallelRadixSortTest extends TestCase {
+
+    // below and above the size at which the value sorts use the radix sort
+    private static final int[] SIZES = { 0, 1, 100, 511, 512, 3000, 100000 };
+
+    private static final double[] SPECIAL = { Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY,
+            Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE,
+            Double.longBitsToDouble(0x7ff8000000000123L), 1, -1 };
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private Random random;
+
+    public ParallelRadixSortTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_1D();
+        ConcurrencyUtils.setThreadsBeginN_1D(1);
+        random = new Random(0);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_1D(oldThreadsBeginN);
+    }
+
+    public void testDouble() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 4) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int s = 0; s < SIZES.length; s++) {
+                double[] a = randomDoubles(SIZES[s]);
+                int from = a.length / 7;
+                int to = a.length - a.length / 5;
+                double[] expected = a.clone();
+                Arrays.sort(expected, from, to);
+                Sorting.radixSort(a, from, to);
+                for (int i = 0; i < a.length; i++) {
+                    // compares -0.0 and 0.0 as different values
+                    assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(a[i]));
+                }
+            }
+        }
+    }
+
+    public void testFloat() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 4) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int s = 0; s < SIZES.length; s++) {
+                double[] d = randomDoubles(SIZES[s]);
+                float[] a = new float[d.length];
+                for (int i = 0; i < a.length; i++) {
+                    a[i] = (float) d[i];
+                }
+                int from = a.length / 7;
+                int to = a.length - a.length / 5;
+                float[] expected = a.clone();
+                Arrays.sort(expected, from, to);
+                Sorting.radixSort(a, from, to);
+                for (int i = 0; i < a.length; i++) {
+                    assertEquals(Float.floatToIntBits(expected[i]), Float.floatToIntBits(a[i]));
+                }
+            }
+        }
+    }
+
+    public void testInt() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 4) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int s = 0; s < SIZES.length; s++) {
+                int[] a = new int[SIZES[s]];
+                for (int i = 0; i < a.length; i++) {
+                    // duplicates, small values sharing their high bytes, and
+                    // the extremes
+                    int kind = random.nextInt(4);
+                    a[i] = kind == 0 ? random.nextInt() : kind == 1 ? random.nextInt(50) - 25
+                            : kind == 2 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+                }
+                int from = a.length / 7;
+                int to = a.length - a.length / 5;
+                int[] expected = a.clone();
+                Arrays.sort(expected, from, to);
+                Sorting.radixSort(a, from, to);
+                assertTrue(Arrays.equals(expected, a));
+            }
+        }
+    }
+
+    public void testLong() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 4) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int s = 0; s < SIZES.length; s++) {
+                long[] a = new long[SIZES[s]];
+                for (int i = 0; i < a.length; i++) {
+                    int kind = random.nextInt(4);
+                    a[i] = kind == 0 ? random.nextLong() : kind == 1 ? random.nextInt(50) - 25
+                            : kind == 2 ? Long.MIN_VALUE : Long.MAX_VALUE;
+                }
+                int from = a.length / 7;
+                int to = a.length - a.length / 5;
+                long[] expected = a.clone();
+                Arrays.sort(expected, from, to);
+                Sorting.radixSort(a, from, to);
+                assertTrue(Arrays.equals(expected, a));
+            }
+        }
+    }
+
+    public void testRangeChecks() {
+        double[] a = new double[10];
+        try {
+            Sorting.radixSort(a, 5, 4);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            Sorting.radixSort(a, -1, 4);
+            fail();
+        } catch (ArrayIndexOutOfBoundsException e) {
+        }
+        try {
+            Sorting.radixSort(new long[10], 0, 11);
+            fail();
+        } catch (ArrayIndexOutOfBoundsException e) {
+        }
+    }
+
+    public void testSortIndex() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 4) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int s = 0; s < SIZES.length; s++) {
+                int size = SIZES[s];
+                // a strided part of a larger array
+                int offset = 3, stride = 2;
+                double[] a = randomDoubles(offset + size * stride);
+                int[] indexes = ParallelRadixSort.sortIndex(a, offset, stride, size);
+                double[] values = new double[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = a[offset + i * stride];
+                }
+                assertTrue(Arrays.equals(stableSortIndex(values), indexes));
+
+                float[] f = new float[a.length];
+                long[] l = new long[a.length];
+                int[] n = new int[a.length];
+                for (int i = 0; i < a.length; i++) {
+                    f[i] = (float) a[i];
+                    l[i] = (long) a[i] / 1000;
+                    n[i] = (int) l[i];
+                }
+                for (int i = 0; i < size; i++) {
+                    values[i] = f[offset + i * stride];
+                }
+                assertTrue(Arrays.equals(stableSortIndex(values), ParallelRadixSort.sortIndex(f, offset, stride,
+                        size)));
+                for (int i = 0; i < size; i++) {
+                    values[i] = l[offset + i * stride];
+                }
+                assertTrue(Arrays.equals(stableSortIndex(values), ParallelRadixSort.sortIndex(l, offset, stride,
+                        size)));
+                for (int i = 0; i < size; i++) {
+                    values[i] = n[offset + i * stride];
+                }
+                assertTrue(Arrays.equals(stableSortIndex(values), ParallelRadixSort.sortIndex(n, offset, stride,
+                        size)));
+            }
+        }
+    }
+
+    public void testDoubleSorting() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        double[] values = randomDoubles(20000);
+        int[] expected = stableSortIndex(values);
+        DoubleMatrix1D dense = new DenseDoubleMatrix1D(values);
+        DoubleMatrix1D sparse = new SparseDoubleMatrix1D(values);
+        // quickSort and mergeSort agree since the argsort is stable
+        assertTrue(Arrays.equals(expected, DoubleSorting.quickSort.sortIndex(dense)));
+        assertTrue(Arrays.equals(expected, DoubleSorting.mergeSort.sortIndex(dense)));
+        assertTrue(Arrays.equals(expected, DoubleSorting.quickSort.sortIndex(sparse)));
+        // a flipped view has a negative stride
+        int[] flipped = DoubleSorting.quickSort.sortIndex(dense.viewFlip());
+        assertTrue(Arrays.equals(stableSortIndex(dense.viewFlip().toArray()), flipped));
+
+        DoubleMatrix1D sorted = DoubleSorting.quickSort.sort(dense);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.doubleToLongBits(values[expected[i]]), Double.doubleToLongBits(sorted.getQuick(i)));
+        }
+
+        DoubleMatrix2D matrix = new DenseDoubleMatrix2D(values.length / 4, 4);
+        for (int r = 0; r < matrix.rows(); r++) {
+            for (int c = 0; c < 4; c++) {
+                matrix.setQuick(r, c, values[r * 4 + c]);
+            }
+        }
+        int[] rows = stableSortIndex(matrix.viewColumn(2).toArray());
+        DoubleMatrix2D sortedRows = DoubleSorting.quickSort.sort(matrix, 2);
+        for (int r = 0; r < rows.length; r++) {
+            assertEquals(matrix.viewRow(rows[r]), sortedRows.viewRow(r));
+        }
+    }
+
+    public void testArrayLists() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        double[] values = randomDoubles(10000);
+        double[] expected = values.clone();
+        Arrays.sort(expected, 100, 9001);
+        DoubleArrayList list = new DoubleArrayList(values.clone());
+        list.sortFromTo(100, 9000);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(list.getQuick(i)));
+        }
+
+        float[] f = new float[values.length];
+        for (int i = 0; i < f.length; i++) {
+            f[i] = (float) values[i];
+        }
+        float[] fexpected = f.clone();
+        Arrays.sort(fexpected, 100, 9001);
+        FloatArrayList flist = new FloatArrayList(f);
+        flist.sortFromTo(100, 9000);
+        for (int i = 0; i < f.length; i++) {
+            assertEquals(Float.floatToIntBits(fexpected[i]), Float.floatToIntBits(flist.getQuick(i)));
+        }
+        new DoubleArrayList().sortFromTo(0, -1);
+    }
+
+    /**
+     * Returns doubles with many duplicates, both zeros and several kinds of
+     * NaN.
+     */
+    private double[] randomDoubles(int size) {
+        double[] a = new double[size];
+        for (int i = 0; i < size; i++) {
+            switch (random.nextInt(4)) {
+            case 0:
+                a[i] = SPECIAL[random.nextInt(SPECIAL.length)];
+                break;
+            case 1:
+                a[i] = random.nextInt(20) - 10;
+                break;
+            default:
+                a[i] = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Sorts the indexes with a stable merge sort; <tt>-0.0</tt> equals
+     * <tt>0.0</tt> and NaNs come last.
+     */
+    private static int[] stableSortIndex(final double[] values) {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < boxed.length; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                double av = values[a];
+                double bv = values[b];
+                if (av != av || bv != bv)
+                    return (av != av ? 1 : 0) - (bv != bv ? 1 : 0);
+                return av < bv ? -1 : (av == bv ? 0 : 1);
+            }
+        });
+        int[] indexes = new int[boxed.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = boxed[i];
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,214 @@
+package cern.colt.map.tint;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.function.tint.IntIntProcedure;
+import cern.colt.list.tint.IntArrayList;
+
+public class RobinHoodIntIntHashMapTest extends TestCase {
+
+    public RobinHoodIntIntHashMapTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testPutGet() {
+        RobinHoodIntIntHashMap map = new RobinHoodIntIntHashMap();
+        assertTrue(map.isEmpty());
+        assertTrue(map.put(5, 15));
+        assertFalse(map.put(5, 25));
+        assertTrue(map.put(-7, 35));
+        assertEquals(2, map.size());
+        assertEquals(25, map.get(5));
+        assertEquals(35, map.get(-7));
+        assertEquals(0, map.get(6));
+        assertTrue(map.containsKey(-7));
+        assertFalse(map.containsKey(7));
+        assertTrue(map.containsValue(35));
+        assertFalse(map.containsValue(15));
+        assertEquals(-7, map.keyOf(35));
+        assertEquals(Integer.MIN_VALUE, map.keyOf(15));
+    }
+
+    public void testFreeKey() {
+        // the key 0 marks free slots and is kept outside of the table
+        RobinHoodIntIntHashMap map = new RobinHoodIntIntHashMap();
+        assertFalse(map.containsKey(0));
+        assertFalse(map.removeKey(0));
+        assertTrue(map.put(0, 4));
+        assertFalse(map.put(0, 5));
+        assertTrue(map.put(Integer.MIN_VALUE, 6));
+        assertTrue(map.put(Integer.MAX_VALUE, 7));
+        assertEquals(3, map.size());
+        assertEquals(5, map.get(0));
+        assertEquals(0, map.keyOf(5));
+        IntArrayList keys = map.keys();
+        keys.sort();
+        assertEquals(new IntArrayList(new int[] { Integer.MIN_VALUE, 0, Integer.MAX_VALUE }), keys);
+        assertTrue(map.removeKey(0));
+        assertFalse(map.containsKey(0));
+        assertEquals(2, map.size());
+        checkTable(map);
+    }
+
+    public void testRehash() {
+        RobinHoodIntIntHashMap map = new RobinHoodIntIntHashMap(0);
+        int n = 100000;
+        for (int i = 0; i < n; i++) {
+            assertTrue(map.put(i * 1024, i));
+        }
+        assertEquals(n, map.size());
+        assertEquals(0, map.table.length & (map.table.length - 1));
+        checkTable(map);
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, map.get(i * 1024));
+        }
+        // shrink again
+        for (int i = 0; i < n; i += 2) {
+            assertTrue(map.removeKey(i * 1024));
+        }
+        int capacity = map.table.length;
+        for (int i = 1; i < n - 10; i += 2) {
+            assertTrue(map.removeKey(i * 1024));
+        }
+        assertTrue(map.table.length < capacity);
+        assertEquals(5, map.size());
+        checkTable(map);
+        for (int i = n - 10; i < n; i++) {
+            assertEquals(i % 2 == 1, map.containsKey(i * 1024));
+        }
+        map.ensureCapacity(1000);
+        assertTrue(map.table.length >= 1000);
+        map.trimToSize();
+        assertTrue(map.table.length <= 16);
+        checkTable(map);
+        for (int i = n - 9; i < n; i += 2) {
+            assertEquals(i, map.get(i * 1024));
+        }
+    }
+
+    public void testRemoveChurn() {
+        // many removals must leave neither tombstones nor broken clusters
+        RobinHoodIntIntHashMap map = new RobinHoodIntIntHashMap(16, 0.0, 0.9);
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        Random random = new Random(0);
+        for (int step = 0; step < 200000; step++) {
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.removeKey(key));
+            } else {
+                int value = random.nextInt();
+                assertEquals(expected.put(key, value) == null, map.put(key, value));
+            }
+            if (step % 10000 == 0) {
+                check(expected, map);
+            }
+        }
+        check(expected, map);
+        for (Iterator<Integer> it = expected.keySet().iterator(); it.hasNext();) {
+            assertTrue(map.removeKey(it.next()));
+        }
+        assertTrue(map.isEmpty());
+        checkTable(map);
+    }
+
+    public void testCloneAndClear() {
+        RobinHoodIntIntHashMap map = new RobinHoodIntIntHashMap();
+        for (int i = -50; i < 50; i++) {
+            map.put(i, i * 3);
+        }
+        RobinHoodIntIntHashMap copy = (RobinHoodIntIntHashMap) map.clone();
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0));
+        checkTable(map);
+        assertEquals(100, copy.size());
+        for (int i = -50; i < 50; i++) {
+            assertEquals(i * 3, copy.get(i));
+        }
+        map.assign(copy);
+        assertEquals(copy, map);
+        map.assign(cern.jet.math.tint.IntFunctions.mult(2));
+        for (int i = -50; i < 50; i++) {
+            assertEquals(i * 6, map.get(i));
+        }
+    }
+
+    public void testIteration() {
+        final RobinHoodIntIntHashMap map = new RobinHoodIntIntHashMap();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 3, i);
+        }
+        IntArrayList keys = new IntArrayList();
+        IntArrayList values = new IntArrayList();
+        map.keys(keys);
+        map.values(values);
+        assertEquals(1000, keys.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(map.get(keys.get(i)), values.get(i));
+        }
+        final int[] count = new int[1];
+        assertFalse(map.forEachPair(new IntIntProcedure() {
+            public boolean apply(int key, int value) {
+                assertEquals(key, 3 * value);
+                return ++count[0] < 10;
+            }
+        }));
+        assertEquals(10, count[0]);
+        IntArrayList keyList = new IntArrayList();
+        IntArrayList valueList = new IntArrayList();
+        map.pairsMatching(new IntIntProcedure() {
+            public boolean apply(int key, int value) {
+                return key % 2 == 0;
+            }
+        }, keyList, valueList);
+        assertEquals(500, keyList.size());
+        for (int i = 0; i < keyList.size(); i++) {
+            assertEquals(0, keyList.get(i) % 2);
+            assertEquals(map.get(keyList.get(i)), valueList.get(i));
+        }
+    }
+
+    private static void check(Map<Integer, Integer> expected, RobinHoodIntIntHashMap map) {
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+            assertTrue(map.containsKey(e.getKey()));
+            assertEquals(e.getValue().intValue(), map.get(e.getKey()));
+        }
+        checkTable(map);
+    }
+
+    /**
+     * Checks that every key in the table can be reached from its home slot
+     * without crossing a free slot, that the probe distances never increase by
+     * more than one along a cluster, and that no slot holds a removed key.
+     */
+    private static void checkTable(RobinHoodIntIntHashMap map) {
+        int[] table = map.table;
+        int mask = map.mask;
+        assertEquals(table.length - 1, mask);
+        int used = 0;
+        for (int i = 0; i < table.length; i++) {
+            int key = table[i];
+            if (key == RobinHoodIntIntHashMap.FREE) {
+                assertEquals(0, map.values[i]);
+                continue;
+            }
+            used++;
+            int home = RobinHoodIntIntHashMap.hash(key) & mask;
+            for (int j = home; j != i; j = (j + 1) & mask) {
+                assertTrue(table[j] != RobinHoodIntIntHashMap.FREE);
+            }
+            int previous = (i - 1) & mask;
+            if (table[previous] != RobinHoodIntIntHashMap.FREE) {
+                int dist = (i - home) & mask;
+                int previousDist = (previous - RobinHoodIntIntHashMap.hash(table[previous])) & mask;
+                assertTrue(dist <= previousDist + 1);
+            }
+        }
+        assertEquals(map.size() - (map.containsKey(0) ? 1 : 0), used);
+    }
+}
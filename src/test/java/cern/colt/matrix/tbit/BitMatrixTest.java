@@ -0,0 +1,165 @@
+package cern.colt.matrix.tbit;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tint.IntMatrix2D;
+import cern.colt.matrix.tint.impl.SparseRCIntMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class BitMatrixTest extends TestCase {
+
+    private static final int[] SIZES = { 1, 63, 64, 65, 130, 200 };
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN1D;
+
+    private int oldThreadsBeginN2D;
+
+    private Random random;
+
+    public BitMatrixTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN1D = ConcurrencyUtils.getThreadsBeginN_1D();
+        oldThreadsBeginN2D = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setThreadsBeginN_1D(1);
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        random = new Random(0);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_1D(oldThreadsBeginN1D);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN2D);
+    }
+
+    public void testLogical() {
+        for (int nthreads = 1; nthreads <= 3; nthreads += 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            BitMatrix A = random(130, 70, 0.5);
+            BitMatrix B = random(130, 70, 0.5);
+            int cardinality = 0;
+            for (int row = 0; row < A.rows(); row++) {
+                for (int column = 0; column < A.columns(); column++) {
+                    if (A.getQuick(column, row))
+                        cardinality++;
+                }
+            }
+            assertEquals(cardinality, A.cardinality());
+            BitMatrix C = A.copy();
+            C.xor(B);
+            C.not();
+            for (int row = 0; row < A.rows(); row++) {
+                for (int column = 0; column < A.columns(); column++) {
+                    assertEquals(A.getQuick(column, row) == B.getQuick(column, row), C.getQuick(column, row));
+                }
+            }
+        }
+    }
+
+    public void testZMult() {
+        for (int nthreads = 1; nthreads <= 3; nthreads += 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int m = 0; m < SIZES.length; m++) {
+                for (int k = 0; k < SIZES.length; k++) {
+                    BitMatrix A = random(SIZES[k], SIZES[m], 0.1);
+                    BitMatrix B = random(77, SIZES[k], 0.1);
+                    BitMatrix C = A.zMult(B);
+                    IntMatrix2D D = A.zMultCount(B);
+                    assertEquals(77, C.columns());
+                    assertEquals(SIZES[m], C.rows());
+                    for (int i = 0; i < A.rows(); i++) {
+                        for (int j = 0; j < B.columns(); j++) {
+                            int count = 0;
+                            for (int l = 0; l < A.columns(); l++) {
+                                if (A.getQuick(l, i) && B.getQuick(j, l))
+                                    count++;
+                            }
+                            assertEquals(count > 0, C.getQuick(j, i));
+                            assertEquals(count, D.getQuick(i, j));
+                        }
+                    }
+                }
+            }
+        }
+        try {
+            new BitMatrix(3, 4).zMult(new BitMatrix(3, 4));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testTranspose() {
+        BitMatrix A = random(65, 130, 0.3);
+        BitMatrix T = A.transpose();
+        assertEquals(130, T.columns());
+        assertEquals(65, T.rows());
+        for (int row = 0; row < A.rows(); row++) {
+            for (int column = 0; column < A.columns(); column++) {
+                assertEquals(A.getQuick(column, row), T.getQuick(row, column));
+            }
+        }
+    }
+
+    public void testTransitiveClosure() {
+        ConcurrencyUtils.setNumberOfThreads(3);
+        for (int s = 0; s < SIZES.length; s++) {
+            int n = SIZES[s];
+            BitMatrix A = random(n, n, 1.5 / n);
+            BitMatrix R = A.transitiveClosure();
+            boolean[][] path = new boolean[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    path[i][j] = A.getQuick(j, i);
+                }
+            }
+            for (int k = 0; k < n; k++) {
+                for (int i = 0; i < n; i++) {
+                    if (path[i][k]) {
+                        for (int j = 0; j < n; j++) {
+                            path[i][j] |= path[k][j];
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    assertEquals(path[i][j], R.getQuick(j, i));
+                }
+            }
+        }
+    }
+
+    public void testSparseRC() {
+        for (int nthreads = 1; nthreads <= 3; nthreads += 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            BitMatrix A = random(130, 65, 0.1);
+            SparseRCIntMatrix2D S = A.toSparseRC();
+            assertEquals(A.rows(), S.rows());
+            assertEquals(A.columns(), S.columns());
+            assertEquals(A.cardinality(), S.cardinality());
+            for (int row = 0; row < A.rows(); row++) {
+                for (int column = 0; column < A.columns(); column++) {
+                    assertEquals(A.getQuick(column, row) ? 1 : 0, S.getQuick(row, column));
+                }
+            }
+            assertEquals(A, new BitMatrix(130, 65, S.getRowPointers(), S.getColumnIndexes()));
+        }
+    }
+
+    private BitMatrix random(int columns, int rows, double density) {
+        BitMatrix A = new BitMatrix(columns, rows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (random.nextDouble() < density)
+                    A.putQuick(column, row, true);
+            }
+        }
+        return A;
+    }
+}
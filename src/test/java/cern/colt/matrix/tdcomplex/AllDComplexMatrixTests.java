@@ -2,6 +2,7 @@ package cern.colt.matrix.tdcomplex;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import cern.colt.matrix.tdcomplex.impl.DComplexMatrix2DMultiplicationTest;
 import cern.colt.matrix.tdcomplex.impl.DenseColumnDComplexMatrix2DTest;
 import cern.colt.matrix.tdcomplex.impl.DenseColumnDComplexMatrix2DViewTest;
 import cern.colt.matrix.tdcomplex.impl.DenseDComplexMatrix1DTest;
@@ -58,6 +59,7 @@ public class AllDComplexMatrixTests {
         suite.addTestSuite(SparseRCMDComplexMatrix2DViewTest.class);
         suite.addTestSuite(DiagonalDComplexMatrix2DTest.class);
         suite.addTestSuite(DiagonalDComplexMatrix2DViewTest.class);
+        suite.addTestSuite(DComplexMatrix2DMultiplicationTest.class);
 
         suite.addTestSuite(DenseDComplexMatrix3DTest.class);
         suite.addTestSuite(DenseDComplexMatrix3DViewTest.class);
@@ -0,0 +1,155 @@
+package cern.colt.matrix.tdcomplex.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdcomplex.DComplexMatrix2D;
+import cern.jet.math.tdcomplex.DComplexFunctions;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class DComplexMatrix2DMultiplicationTest extends TestCase {
+
+    // not multiples of the kernel and of the blocks
+    private static final int M = 71;
+
+    private static final int N = 263;
+
+    private static final int P = 517;
+
+    private static final double TOL = 1e-10;
+
+    private static final double[] ALPHA = { 1.5, -0.5 };
+
+    private static final double[] BETA = { 0.25, 2 };
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private Random random;
+
+    public DComplexMatrix2DMultiplicationTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        random = new Random(0);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testLayouts() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int method = 0; method < 2; method++) {
+                boolean threeM = method == 1;
+                check(random(new DenseDComplexMatrix2D(M, N)), random(new DenseColumnDComplexMatrix2D(N, P)),
+                        random(new DenseDComplexMatrix2D(M, P)), false, false, threeM);
+                check(random(new DenseLargeDComplexMatrix2D(M, N)), random(new DenseDComplexMatrix2D(N, P)),
+                        random(new DenseColumnDComplexMatrix2D(M, P)), false, false, threeM);
+                check(random(new DenseDComplexMatrix2D(M, N)), random(new SparseDComplexMatrix2D(N, P)),
+                        random(new SparseDComplexMatrix2D(M, P)), false, false, threeM);
+            }
+        }
+    }
+
+    public void testConjugateTranspose() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        for (int method = 0; method < 2; method++) {
+            boolean threeM = method == 1;
+            check(random(new DenseColumnDComplexMatrix2D(N, M)), random(new DenseDComplexMatrix2D(N, P)),
+                    random(new DenseDComplexMatrix2D(M, P)), true, false, threeM);
+            check(random(new DenseDComplexMatrix2D(M, N)), random(new DenseDComplexMatrix2D(P, N)),
+                    random(new DenseDComplexMatrix2D(M, P)), false, true, threeM);
+            check(random(new DenseLargeDComplexMatrix2D(N, M)), random(new DenseDComplexMatrix2D(P, N)).viewRowFlip(),
+                    random(new DenseDComplexMatrix2D(M, P)), true, true, threeM);
+        }
+        // through zMult
+        DComplexMatrix2D A = random(new DenseDComplexMatrix2D(N, M));
+        DComplexMatrix2D B = random(new DenseColumnDComplexMatrix2D(P, N));
+        DComplexMatrix2D C = random(new DenseDComplexMatrix2D(M, P));
+        DComplexMatrix2D expected = expected(A.getConjugateTranspose(), B.getConjugateTranspose(), C);
+        A.zMult(B, C, ALPHA, BETA, true, true);
+        assertEquals(expected, C);
+    }
+
+    public void testViews() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        int[] rows = reverse(M);
+        int[] middle = reverse(N);
+        int[] columns = reverse(P);
+        DComplexMatrix2D large = new DenseDComplexMatrix2D(M + 2, P + 3);
+        check(random(new DenseDComplexMatrix2D(M, N)).viewSelection(rows, middle), random(
+                new DenseColumnDComplexMatrix2D(N, P)).viewSelection(middle, columns), random(large.viewPart(2, 3,
+                M, P)), false, false, true);
+    }
+
+    public void testEmpty() {
+        DComplexMatrix2D C = random(new DenseDComplexMatrix2D(M, P));
+        DComplexMatrix2D expected = C.copy().assign(DComplexFunctions.mult(BETA));
+        DComplexMatrix2DMultiplication.zMult(new DenseDComplexMatrix2D(M, 0), new DenseDComplexMatrix2D(0, P), C,
+                ALPHA, BETA, false, false);
+        assertEquals(expected, C);
+    }
+
+    private void check(DComplexMatrix2D A, DComplexMatrix2D B, DComplexMatrix2D C, boolean transposeA,
+            boolean transposeB, boolean threeM) {
+        DComplexMatrix2D expected = expected(transposeA ? A.getConjugateTranspose() : A,
+                transposeB ? B.getConjugateTranspose() : B, C);
+        DComplexMatrix2DMultiplication.zMult(A, B, C, ALPHA, BETA, transposeA, transposeB, threeM);
+        assertEquals(expected, C);
+    }
+
+    private DComplexMatrix2D expected(DComplexMatrix2D A, DComplexMatrix2D B, DComplexMatrix2D C) {
+        DComplexMatrix2D expected = new DenseDComplexMatrix2D(C.rows(), C.columns());
+        for (int i = 0; i < C.rows(); i++) {
+            for (int j = 0; j < C.columns(); j++) {
+                double re = 0, im = 0;
+                for (int k = 0; k < A.columns(); k++) {
+                    double[] a = A.getQuick(i, k);
+                    double[] b = B.getQuick(k, j);
+                    re += a[0] * b[0] - a[1] * b[1];
+                    im += a[0] * b[1] + a[1] * b[0];
+                }
+                double[] c = C.getQuick(i, j);
+                expected.setQuick(i, j, ALPHA[0] * re - ALPHA[1] * im + BETA[0] * c[0] - BETA[1] * c[1], ALPHA[1]
+                        * re + ALPHA[0] * im + BETA[1] * c[0] + BETA[0] * c[1]);
+            }
+        }
+        return expected;
+    }
+
+    private void assertEquals(DComplexMatrix2D expected, DComplexMatrix2D actual) {
+        for (int i = 0; i < expected.rows(); i++) {
+            for (int j = 0; j < expected.columns(); j++) {
+                double[] e = expected.getQuick(i, j);
+                double[] a = actual.getQuick(i, j);
+                assertEquals(e[0], a[0], TOL);
+                assertEquals(e[1], a[1], TOL);
+            }
+        }
+    }
+
+    private DComplexMatrix2D random(DComplexMatrix2D A) {
+        for (int i = 0; i < A.rows(); i++) {
+            for (int j = 0; j < A.columns(); j++) {
+                A.setQuick(i, j, random.nextDouble() - 0.5, random.nextDouble() - 0.5);
+            }
+        }
+        return A;
+    }
+
+    private static int[] reverse(int size) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = size - 1 - i;
+        }
+        return indexes;
+    }
+}
@@ -2,7 +2,16 @@ package cern.colt.matrix.tdouble;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import cern.colt.matrix.tdouble.algo.DoubleStatisticTest;
+import cern.colt.matrix.tdouble.algo.SparseDoubleReorderingTest;
 import cern.colt.matrix.tdouble.algo.solver.AllDoubleMatrixSolverTests;
+import cern.colt.matrix.tdouble.impl.BandDoubleMatrix2DTest;
+import cern.colt.matrix.tdouble.impl.ConcurrentSparseDoubleMatrix1DTest;
+import cern.colt.matrix.tdouble.impl.ConcurrentSparseDoubleMatrix1DViewTest;
+import cern.colt.matrix.tdouble.impl.ConcurrentSparseDoubleMatrix2DTest;
+import cern.colt.matrix.tdouble.impl.ConcurrentSparseDoubleMatrix2DViewTest;
+import cern.colt.matrix.tdouble.impl.CopyOnWriteDoubleMatrix2DTest;
+import cern.colt.matrix.tdouble.impl.CopyOnWriteDoubleMatrix2DViewTest;
 import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2DViewTest;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1DTest;
@@ -17,12 +26,23 @@ import cern.colt.matrix.tdouble.impl.DenseLargeDoubleMatrix3DTest;
 import cern.colt.matrix.tdouble.impl.DenseLargeDoubleMatrix3DViewTest;
 import cern.colt.matrix.tdouble.impl.DiagonalDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.DiagonalDoubleMatrix2DViewTest;
+import cern.colt.matrix.tdouble.impl.DoubleMatrix2DMultiplicationTest;
+import cern.colt.matrix.tdouble.impl.FrozenSparseRCDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2DViewTest;
 import cern.colt.matrix.tdouble.impl.SparseCCMDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.SparseCCMDoubleMatrix2DViewTest;
+import cern.colt.matrix.tdouble.impl.SparseCSFDoubleMatrix3DTest;
+import cern.colt.matrix.tdouble.impl.SparseCSFDoubleMatrix3DViewTest;
+import cern.colt.matrix.tdouble.impl.SparseBlockRCDoubleMatrix2DTest;
+import cern.colt.matrix.tdouble.impl.SparseBlockRCDoubleMatrix2DViewTest;
+import cern.colt.matrix.tdouble.impl.SparseColumnListDoubleMatrix2DTest;
+import cern.colt.matrix.tdouble.impl.SparseColumnListDoubleMatrix2DViewTest;
+import cern.colt.matrix.tdouble.impl.SparseCompressedDoubleMatrix2DBuilderTest;
+import cern.colt.matrix.tdouble.impl.SparseCompressedDoubleMatrix2DConversionTest;
 import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix1DTest;
 import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix1DViewTest;
+import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix2DRobinHoodTest;
 import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix2DViewTest;
 import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix3DTest;
@@ -31,6 +51,11 @@ import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2DViewTest;
 import cern.colt.matrix.tdouble.impl.SparseRCMDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.SparseRCMDoubleMatrix2DViewTest;
+import cern.colt.matrix.tdouble.impl.SparseRowListDoubleMatrix2DTest;
+import cern.colt.matrix.tdouble.impl.SparseRowListDoubleMatrix2DViewTest;
+import cern.colt.matrix.tdouble.impl.SparseSELLDoubleMatrix2DTest;
+import cern.colt.matrix.tdouble.impl.SparseSELLDoubleMatrix2DViewTest;
+import cern.colt.matrix.tdouble.impl.SparseSymmetricDoubleMatrix2DTest;
 
 public class AllDoubleMatrixTests {
 
@@ -40,6 +65,8 @@ public class AllDoubleMatrixTests {
         suite.addTestSuite(DenseDoubleMatrix1DViewTest.class);
         suite.addTestSuite(SparseDoubleMatrix1DTest.class);
         suite.addTestSuite(SparseDoubleMatrix1DViewTest.class);
+        suite.addTestSuite(ConcurrentSparseDoubleMatrix1DTest.class);
+        suite.addTestSuite(ConcurrentSparseDoubleMatrix1DViewTest.class);
 
         suite.addTestSuite(DenseDoubleMatrix2DTest.class);
         suite.addTestSuite(DenseDoubleMatrix2DViewTest.class);
@@ -47,29 +74,53 @@ public class AllDoubleMatrixTests {
         suite.addTestSuite(DenseColumnDoubleMatrix2DViewTest.class);
         suite.addTestSuite(DenseLargeDoubleMatrix2DTest.class);
         suite.addTestSuite(DenseLargeDoubleMatrix2DViewTest.class);
+        suite.addTestSuite(CopyOnWriteDoubleMatrix2DTest.class);
+        suite.addTestSuite(CopyOnWriteDoubleMatrix2DViewTest.class);
 
         suite.addTestSuite(SparseDoubleMatrix2DTest.class);
         suite.addTestSuite(SparseDoubleMatrix2DViewTest.class);
+        suite.addTestSuite(SparseDoubleMatrix2DRobinHoodTest.class);
+        suite.addTestSuite(ConcurrentSparseDoubleMatrix2DTest.class);
+        suite.addTestSuite(ConcurrentSparseDoubleMatrix2DViewTest.class);
         suite.addTestSuite(DiagonalDoubleMatrix2DTest.class);
         suite.addTestSuite(DiagonalDoubleMatrix2DViewTest.class);
+        suite.addTestSuite(BandDoubleMatrix2DTest.class);
 
         suite.addTestSuite(SparseRCDoubleMatrix2DTest.class);
         suite.addTestSuite(SparseRCDoubleMatrix2DViewTest.class);
         suite.addTestSuite(SparseRCMDoubleMatrix2DTest.class);
         suite.addTestSuite(SparseRCMDoubleMatrix2DViewTest.class);
+        suite.addTestSuite(SparseRowListDoubleMatrix2DTest.class);
+        suite.addTestSuite(SparseRowListDoubleMatrix2DViewTest.class);
+        suite.addTestSuite(SparseSELLDoubleMatrix2DTest.class);
+        suite.addTestSuite(SparseSELLDoubleMatrix2DViewTest.class);
+        suite.addTestSuite(SparseBlockRCDoubleMatrix2DTest.class);
+        suite.addTestSuite(SparseBlockRCDoubleMatrix2DViewTest.class);
+        suite.addTestSuite(SparseSymmetricDoubleMatrix2DTest.class);
+        suite.addTestSuite(FrozenSparseRCDoubleMatrix2DTest.class);
 
         suite.addTestSuite(SparseCCDoubleMatrix2DTest.class);
         suite.addTestSuite(SparseCCDoubleMatrix2DViewTest.class);
         suite.addTestSuite(SparseCCMDoubleMatrix2DTest.class);
         suite.addTestSuite(SparseCCMDoubleMatrix2DViewTest.class);
+        suite.addTestSuite(SparseColumnListDoubleMatrix2DTest.class);
+        suite.addTestSuite(SparseColumnListDoubleMatrix2DViewTest.class);
+        suite.addTestSuite(SparseCompressedDoubleMatrix2DBuilderTest.class);
+        suite.addTestSuite(SparseCompressedDoubleMatrix2DConversionTest.class);
+        suite.addTestSuite(DoubleMatrix2DMultiplicationTest.class);
 
         suite.addTestSuite(DenseDoubleMatrix3DTest.class);
         suite.addTestSuite(DenseDoubleMatrix3DViewTest.class);
         suite.addTestSuite(SparseDoubleMatrix3DTest.class);
         suite.addTestSuite(SparseDoubleMatrix3DViewTest.class);
+        suite.addTestSuite(SparseCSFDoubleMatrix3DTest.class);
+        suite.addTestSuite(SparseCSFDoubleMatrix3DViewTest.class);
         suite.addTestSuite(DenseLargeDoubleMatrix3DTest.class);
         suite.addTestSuite(DenseLargeDoubleMatrix3DViewTest.class);
 
+        suite.addTestSuite(SparseDoubleReorderingTest.class);
+        suite.addTestSuite(DoubleStatisticTest.class);
+
         suite.addTest(AllDoubleMatrixSolverTests.suite());
 
         return suite;
@@ -0,0 +1,116 @@
+package cern.colt.matrix.tdouble.algo;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
+
+public class DoubleMixedPrecisionSolutionTest extends TestCase {
+
+    private static final int N = 200;
+
+    private static final double TOL = Math.sqrt(N) * Math.ulp(1.0);
+
+    private DoubleMatrix2D A;
+
+    private DoubleMatrix1D b;
+
+    public DoubleMixedPrecisionSolutionTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        // A random sparse nonsymmetric matrix with a dominant diagonal
+        Random r = new Random(0);
+        A = new DenseDoubleMatrix2D(N, N);
+        for (int i = 0; i < N; i++) {
+            for (int k = 0; k < 5; k++) {
+                A.setQuick(i, r.nextInt(N), r.nextDouble() - 0.5);
+            }
+            A.setQuick(i, i, 3 + r.nextDouble());
+        }
+        b = new DenseDoubleMatrix1D(N);
+        for (int i = 0; i < N; i++) {
+            b.setQuick(i, r.nextDouble() - 0.5);
+        }
+    }
+
+    public void testDense() {
+        DoubleMixedPrecisionSolution solution = DenseDoubleAlgebra.DEFAULT.solveMixedPrecision(A, b);
+        assertFalse(solution.isFallback());
+        assertTrue(solution.getIterations() > 0);
+        assertTrue(solution.getIterations() <= DoubleMixedPrecisionSolution.MAX_ITERATIONS);
+        check(A, b, solution);
+        DoubleMatrix1D x = DenseDoubleAlgebra.DEFAULT.solve(A, b);
+        for (int i = 0; i < N; i++) {
+            assertEquals(x.getQuick(i), solution.getSolution().getQuick(i), 1e-12);
+        }
+    }
+
+    public void testSparse() {
+        DoubleMatrix2D[] matrices = { new SparseRCDoubleMatrix2D(A.toArray()), new SparseCCDoubleMatrix2D(A.toArray()) };
+        for (int m = 0; m < matrices.length; m++) {
+            DoubleMixedPrecisionSolution solution = SparseDoubleAlgebra.DEFAULT.solveMixedPrecision(matrices[m], b);
+            assertFalse(solution.isFallback());
+            check(A, b, solution);
+        }
+
+        // symmetric positive definite: factored by Cholesky
+        DoubleMatrix2D S = A.like();
+        A.zMult(A, S, 1, 0, false, true);
+        DoubleMixedPrecisionSolution solution = SparseDoubleAlgebra.DEFAULT.solveMixedPrecision(
+                new SparseRCDoubleMatrix2D(S.toArray()), b);
+        assertFalse(solution.isFallback());
+        check(S, b, solution);
+    }
+
+    public void testFallback() {
+        // the Hilbert matrix is too ill-conditioned for single precision
+        int n = 12;
+        DoubleMatrix2D H = new DenseDoubleMatrix2D(n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                H.setQuick(i, j, 1.0 / (i + j + 1));
+            }
+        }
+        DoubleMatrix1D c = new DenseDoubleMatrix1D(n).assign(1);
+        DoubleMixedPrecisionSolution solution = DenseDoubleAlgebra.DEFAULT.solveMixedPrecision(H, c);
+        assertTrue(solution.isFallback());
+        assertEquals(0, solution.getIterations());
+        check(H, c, solution);
+        solution = SparseDoubleAlgebra.DEFAULT.solveMixedPrecision(new SparseCCDoubleMatrix2D(H.toArray()), c);
+        assertTrue(solution.isFallback());
+        check(H, c, solution);
+
+        // the entries overflow in single precision
+        DoubleMatrix2D B = A.copy().assign(cern.jet.math.tdouble.DoubleFunctions.mult(1e300));
+        solution = DenseDoubleAlgebra.DEFAULT.solveMixedPrecision(B, b);
+        assertTrue(solution.isFallback());
+        check(B, b, solution);
+    }
+
+    public void testZeroRightHandSide() {
+        DoubleMixedPrecisionSolution solution = DenseDoubleAlgebra.DEFAULT.solveMixedPrecision(A,
+                new DenseDoubleMatrix1D(N));
+        assertFalse(solution.isFallback());
+        assertEquals(0, solution.getIterations());
+        assertEquals(0.0, solution.getBackwardError(), 0);
+        assertEquals(0.0, DenseDoubleAlgebra.DEFAULT.normInfinity(solution.getSolution()), 0);
+    }
+
+    private void check(DoubleMatrix2D M, DoubleMatrix1D c, DoubleMixedPrecisionSolution solution) {
+        DoubleMatrix1D x = solution.getSolution();
+        DoubleMatrix1D r = c.copy();
+        M.zMult(x, r, -1, 1, false);
+        double error = DenseDoubleAlgebra.DEFAULT.normInfinity(r)
+                / (DenseDoubleAlgebra.DEFAULT.normInfinity(M) * DenseDoubleAlgebra.DEFAULT.normInfinity(x) + DenseDoubleAlgebra.DEFAULT
+                        .normInfinity(c));
+        assertEquals(error, solution.getBackwardError(), TOL);
+        assertTrue(solution.getBackwardError() <= TOL);
+    }
+}
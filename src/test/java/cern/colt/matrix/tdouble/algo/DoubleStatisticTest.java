@@ -0,0 +1,151 @@
+package cern.colt.matrix.tdouble.algo;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class DoubleStatisticTest extends TestCase {
+
+    // more rows than a block and more columns than a tile
+    private static final int ROWS = 1100;
+
+    private static final int COLUMNS = 150;
+
+    private static final double TOL = 1e-10;
+
+    private static final DoubleStatistic.VectorVectorFunction[] METRICS = { DoubleStatistic.EUCLID,
+            DoubleStatistic.MANHATTAN, DoubleStatistic.CANBERRA, DoubleStatistic.BRAY_CURTIS,
+            DoubleStatistic.MAXIMUM, DoubleStatistic.COSINE };
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private DoubleMatrix2D A;
+
+    public DoubleStatisticTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        Random random = new Random(0);
+        A = new DenseDoubleMatrix2D(ROWS, COLUMNS);
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                // positive values keep Canberra and Bray-Curtis well defined
+                A.setQuick(r, c, 1 + random.nextDouble() * (c + 1));
+            }
+        }
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testDistance() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 4) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int m = 0; m < METRICS.length; m++) {
+                DoubleMatrix2D D = DoubleStatistic.distance(A, METRICS[m]);
+                DoubleMatrix1D packed = DoubleStatistic.distancePacked(A, METRICS[m]);
+                for (int i = 0; i < COLUMNS; i++) {
+                    assertEquals(0, D.getQuick(i, i), TOL);
+                    for (int j = 0; j < i; j++) {
+                        double expected = METRICS[m].apply(A.viewColumn(i), A.viewColumn(j));
+                        assertEquals(expected, D.getQuick(i, j), TOL * Math.max(1, expected));
+                        assertEquals(expected, D.getQuick(j, i), TOL * Math.max(1, expected));
+                        assertEquals(expected, packed.getQuick(DoubleStatistic.packedIndex(i, j)), TOL
+                                * Math.max(1, expected));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testEuclidCloseColumns() {
+        // the columns differ by 1e-3 on top of a large offset
+        Random random = new Random(1);
+        DoubleMatrix2D B = new DenseDoubleMatrix2D(1000, 3);
+        for (int r = 0; r < 1000; r++) {
+            double x = 1e8 + random.nextDouble();
+            B.setQuick(r, 0, x);
+            B.setQuick(r, 1, x + 1e-3);
+            B.setQuick(r, 2, 2 * x);
+        }
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 4) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            DoubleMatrix2D D = DoubleStatistic.distance(B, DoubleStatistic.EUCLID);
+            double expected = DoubleStatistic.EUCLID.apply(B.viewColumn(0), B.viewColumn(1));
+            assertEquals(Math.sqrt(1000) * 1e-3, expected, 1e-6);
+            assertEquals(expected, D.getQuick(1, 0), 1e-12);
+        }
+    }
+
+    public void testUserFunction() {
+        // a function with state, which is only correct when applied serially
+        final Thread caller = Thread.currentThread();
+        final int[] calls = new int[1];
+        DoubleStatistic.VectorVectorFunction sum = new DoubleStatistic.VectorVectorFunction() {
+            public double apply(DoubleMatrix1D x, DoubleMatrix1D y) {
+                assertSame(caller, Thread.currentThread());
+                calls[0]++;
+                return x.zSum() + y.zSum();
+            }
+        };
+        ConcurrencyUtils.setNumberOfThreads(4);
+        DoubleMatrix2D D = DoubleStatistic.distance(A, sum);
+        assertEquals(COLUMNS * (COLUMNS - 1) / 2, calls[0]);
+        DoubleStatistic.distancePacked(A, sum);
+        assertEquals(COLUMNS * (COLUMNS - 1), calls[0]);
+        for (int i = 0; i < COLUMNS; i++) {
+            for (int j = 0; j < i; j++) {
+                double expected = A.viewColumn(i).zSum() + A.viewColumn(j).zSum();
+                assertEquals(expected, D.getQuick(i, j), TOL * expected);
+                assertEquals(expected, D.getQuick(j, i), TOL * expected);
+            }
+        }
+    }
+
+    public void testCovariance() {
+        double[] means = new double[COLUMNS];
+        for (int c = 0; c < COLUMNS; c++) {
+            means[c] = A.viewColumn(c).zSum() / ROWS;
+        }
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 4) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            DoubleMatrix2D covariance = DoubleStatistic.covariance(A);
+            DoubleMatrix1D packed = DoubleStatistic.covariancePacked(A);
+            DoubleMatrix2D correlation = DoubleStatistic.pearsonCorrelation(A);
+            DoubleMatrix1D correlationPacked = DoubleStatistic.pearsonCorrelationPacked(A);
+            for (int i = 0; i < COLUMNS; i++) {
+                for (int j = 0; j <= i; j++) {
+                    double expected = 0;
+                    for (int r = 0; r < ROWS; r++) {
+                        expected += (A.getQuick(r, i) - means[i]) * (A.getQuick(r, j) - means[j]);
+                    }
+                    expected /= ROWS;
+                    assertEquals(expected, covariance.getQuick(i, j), TOL * Math.max(1, Math.abs(expected)));
+                    assertEquals(expected, covariance.getQuick(j, i), TOL * Math.max(1, Math.abs(expected)));
+                    assertEquals(expected, packed.getQuick(DoubleStatistic.packedIndex(i, j)), TOL
+                            * Math.max(1, Math.abs(expected)));
+                }
+            }
+            DoubleStatistic.correlation(covariance);
+            for (int i = 0; i < COLUMNS; i++) {
+                for (int j = 0; j <= i; j++) {
+                    assertEquals(covariance.getQuick(i, j), correlation.getQuick(i, j), TOL);
+                    assertEquals(covariance.getQuick(i, j), correlationPacked.getQuick(DoubleStatistic
+                            .packedIndex(i, j)), TOL);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package cern.colt.matrix.tdouble.algo;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.function.tdouble.Double27Function;
+import cern.colt.function.tdouble.Double9Function;
+import cern.colt.matrix.StencilBoundary;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix2DProcedure;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix3D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class DoubleStencilEngineTest extends TestCase {
+
+    private static final int SLICES = 11;
+
+    private static final int ROWS = 37;
+
+    private static final int COLUMNS = 29;
+
+    private static final double TOL = 1e-12;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN2D;
+
+    private int oldThreadsBeginN3D;
+
+    private double[][] w2;
+
+    private double[][][] w3;
+
+    public DoubleStencilEngineTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN2D = ConcurrencyUtils.getThreadsBeginN_2D();
+        oldThreadsBeginN3D = ConcurrencyUtils.getThreadsBeginN_3D();
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        ConcurrencyUtils.setThreadsBeginN_3D(1);
+        Random random = new Random(0);
+        w2 = new double[3][3];
+        w3 = new double[3][3][3];
+        for (int s = 0; s < 3; s++) {
+            for (int r = 0; r < 3; r++) {
+                w2[s][r] = random.nextDouble() / 9;
+                for (int c = 0; c < 3; c++) {
+                    w3[s][r][c] = random.nextDouble() / 27;
+                }
+            }
+        }
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN2D);
+        ConcurrencyUtils.setThreadsBeginN_3D(oldThreadsBeginN3D);
+    }
+
+    public void testLinear2D() {
+        StencilBoundary[] boundaries = StencilBoundary.values();
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int b = 0; b < boundaries.length; b++) {
+                DoubleStencilEngine engine = new DoubleStencilEngine(w2);
+                engine.setBoundary(boundaries[b]);
+                engine.setTimeBlock(3);
+                engine.setTileSize(8, 5);
+                double[][][] expected = { random2D(1) };
+                for (int i = 0; i < 7; i++) {
+                    expected[0] = step(expected, boundaries[b])[0];
+                }
+                DenseDoubleMatrix2D A = new DenseDoubleMatrix2D(random2D(1));
+                assertEquals(7, engine.apply(A, 7));
+                checkEquals(expected[0], A.toArray());
+            }
+        }
+    }
+
+    public void testLinear3D() {
+        StencilBoundary[] boundaries = StencilBoundary.values();
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int b = 0; b < boundaries.length; b++) {
+                DoubleStencilEngine engine = new DoubleStencilEngine(w3);
+                engine.setBoundary(boundaries[b]);
+                engine.setTileSize(4, 8, 16);
+                double[][][] expected = random3D(2);
+                for (int i = 0; i < 5; i++) {
+                    expected = step(expected, boundaries[b]);
+                }
+                DenseDoubleMatrix3D A = new DenseDoubleMatrix3D(random3D(2));
+                assertEquals(5, engine.apply(A, 5));
+                checkEquals(expected, A.toArray());
+            }
+        }
+    }
+
+    public void testFunction() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        Double9Function f9 = new Double9Function() {
+            public double apply(double a00, double a01, double a02, double a10, double a11, double a12, double a20,
+                    double a21, double a22) {
+                return w2[0][0] * a00 + w2[0][1] * a01 + w2[0][2] * a02 + w2[1][0] * a10 + w2[1][1] * a11 + w2[1][2]
+                        * a12 + w2[2][0] * a20 + w2[2][1] * a21 + w2[2][2] * a22;
+            }
+        };
+        DoubleStencilEngine engine = new DoubleStencilEngine(f9);
+        engine.setTileSize(6, 7);
+        engine.setBoundary(StencilBoundary.Periodic);
+        DenseDoubleMatrix2D A = new DenseDoubleMatrix2D(random2D(3));
+        DenseDoubleMatrix2D B = new DenseDoubleMatrix2D(random2D(3));
+        engine.apply(A, 6);
+        DoubleStencilEngine linear = new DoubleStencilEngine(w2);
+        linear.setBoundary(StencilBoundary.Periodic);
+        linear.apply(B, 6);
+        checkEquals(B.toArray(), A.toArray());
+
+        Double27Function f27 = new Double27Function() {
+            public double apply(double a000, double a001, double a002, double a010, double a011, double a012,
+                    double a020, double a021, double a022, double a100, double a101, double a102, double a110,
+                    double a111, double a112, double a120, double a121, double a122, double a200, double a201,
+                    double a202, double a210, double a211, double a212, double a220, double a221, double a222) {
+                return (a011 + a101 + a110 + a112 + a121 + a211) / 12 - a111 / 2;
+            }
+        };
+        double[][][] w = new double[3][3][3];
+        for (int s = 0; s < 3; s++) {
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 3; c++) {
+                    int d = Math.abs(s - 1) + Math.abs(r - 1) + Math.abs(c - 1);
+                    w[s][r][c] = d == 1 ? 1.0 / 12 : (d == 0 ? -0.5 : 0);
+                }
+            }
+        }
+        engine = new DoubleStencilEngine(f27);
+        engine.setTileSize(3, 5, 7);
+        engine.setBoundary(StencilBoundary.Clamped);
+        DenseDoubleMatrix3D C = new DenseDoubleMatrix3D(random3D(4));
+        engine.apply(C, 4);
+        double[][][] expected = random3D(4);
+        w3 = w;
+        for (int i = 0; i < 4; i++) {
+            expected = step(expected, StencilBoundary.Clamped);
+        }
+        checkEquals(expected, C.toArray());
+
+        engine = new DoubleStencilEngine(w);
+        engine.setTileSize(3, 5, 7);
+        engine.setBoundary(StencilBoundary.Clamped);
+        C = new DenseDoubleMatrix3D(random3D(4));
+        engine.apply(C, 4);
+        checkEquals(expected, C.toArray());
+    }
+
+    public void testView() {
+        ConcurrencyUtils.setNumberOfThreads(2);
+        DoubleStencilEngine engine = new DoubleStencilEngine(w2);
+        engine.setBoundary(StencilBoundary.Zero);
+        engine.setTileSize(10, 10);
+        DenseDoubleMatrix2D large = new DenseDoubleMatrix2D(COLUMNS + 4, ROWS + 3);
+        DoubleMatrix2D view = large.viewPart(1, 2, COLUMNS, ROWS).viewDice();
+        view.assign(random2D(5));
+        engine.apply((DenseDoubleMatrix2D) view, 5);
+        double[][][] expected = { random2D(5) };
+        for (int i = 0; i < 5; i++) {
+            expected = step(expected, StencilBoundary.Zero);
+        }
+        checkEquals(expected[0], view.toArray());
+        // cells around the view are untouched
+        assertEquals(0, large.getQuick(0, 0), 0);
+        assertEquals(0, large.getQuick(COLUMNS + 3, ROWS + 2), 0);
+    }
+
+    public void testConvergence() {
+        // averaging with fixed borders converges to the harmonic function
+        double[][] average = { { 0, 0.25, 0 }, { 0.25, 0, 0.25 }, { 0, 0.25, 0 } };
+        DoubleStencilEngine engine = new DoubleStencilEngine(average);
+        engine.setTileSize(8, 8);
+        DenseDoubleMatrix2D A = new DenseDoubleMatrix2D(20, 20);
+        for (int i = 0; i < 20; i++) {
+            A.setQuick(0, i, 1);
+        }
+        int iterations = engine.apply(A, 100000, 1e-10);
+        assertTrue(iterations < 100000);
+        assertEquals(0, iterations % engine.getTimeBlock());
+        assertTrue(engine.getLastChange() <= 1e-10);
+        // one more iteration hardly changes anything
+        DenseDoubleMatrix2D B = (DenseDoubleMatrix2D) A.copy();
+        engine.apply(B, 1);
+        for (int r = 0; r < 20; r++) {
+            for (int c = 0; c < 20; c++) {
+                assertEquals(A.getQuick(r, c), B.getQuick(r, c), 1e-10);
+            }
+        }
+        try {
+            engine.apply(new DenseDoubleMatrix3D(3, 3, 3), 1);
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    public void testStencil9() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        final Thread caller = Thread.currentThread();
+        final int[] calls = new int[1];
+        Double9Function f = new Double9Function() {
+            public double apply(double a00, double a01, double a02, double a10, double a11, double a12, double a20,
+                    double a21, double a22) {
+                assertSame(caller, Thread.currentThread());
+                calls[0]++;
+                return 0.5 * a11 + 0.125 * (a01 + a10 + a12 + a21);
+            }
+        };
+        final int[] checks = new int[1];
+        DoubleMatrix2DProcedure never = new DoubleMatrix2DProcedure() {
+            public boolean apply(DoubleMatrix2D A) {
+                checks[0]++;
+                return false;
+            }
+        };
+        // the same iterations on a dense and on a sparse matrix
+        DoubleMatrix2D A = new DenseDoubleMatrix2D(random2D(6));
+        DoubleMatrix2D B = new cern.colt.matrix.tdouble.impl.SparseDoubleMatrix2D(random2D(6));
+        assertEquals(10, DoubleStencil.stencil9(A, f, 9, never, 4));
+        assertEquals(2, checks[0]);
+        // the function is applied serially, once per inner cell and iteration
+        assertEquals(10 * (ROWS - 2) * (COLUMNS - 2), calls[0]);
+        assertEquals(10, DoubleStencil.stencil9(B, f, 9, null, 4));
+        checkEquals(B.toArray(), A.toArray());
+    }
+
+    public void testStencilEngine() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        Double9Function f9 = new Double9Function() {
+            public double apply(double a00, double a01, double a02, double a10, double a11, double a12, double a20,
+                    double a21, double a22) {
+                return 0.5 * a11 + 0.125 * (a01 + a10 + a12 + a21);
+            }
+        };
+        for (int timeBlock = 1; timeBlock <= 4; timeBlock++) {
+            DoubleStencilEngine engine = new DoubleStencilEngine(f9);
+            engine.setTimeBlock(timeBlock);
+            engine.setTileSize(8, 8);
+            DenseDoubleMatrix2D A = new DenseDoubleMatrix2D(random2D(7));
+            DenseDoubleMatrix2D B = new DenseDoubleMatrix2D(random2D(7));
+            assertEquals(12, DoubleStencil.stencil(A, engine, 11, null, 6));
+            assertEquals(12, DoubleStencil.stencil9(B, f9, 11, null, 6));
+            checkEquals(B.toArray(), A.toArray());
+        }
+
+        Double27Function f27 = new Double27Function() {
+            public double apply(double a000, double a001, double a002, double a010, double a011, double a012,
+                    double a020, double a021, double a022, double a100, double a101, double a102, double a110,
+                    double a111, double a112, double a120, double a121, double a122, double a200, double a201,
+                    double a202, double a210, double a211, double a212, double a220, double a221, double a222) {
+                return (a011 + a101 + a110 + a112 + a121 + a211) / 12 + a111 / 2;
+            }
+        };
+        for (int timeBlock = 1; timeBlock <= 3; timeBlock++) {
+            DoubleStencilEngine engine = new DoubleStencilEngine(f27);
+            engine.setTimeBlock(timeBlock);
+            engine.setTileSize(4, 8, 8);
+            DenseDoubleMatrix3D A = new DenseDoubleMatrix3D(random3D(8));
+            DenseDoubleMatrix3D B = new DenseDoubleMatrix3D(random3D(8));
+            assertEquals(6, DoubleStencil.stencil(A, engine, 5, null, 2));
+            assertEquals(6, DoubleStencil.stencil27(B, f27, 5, null, 2));
+            checkEquals(B.toArray(), A.toArray());
+        }
+    }
+
+    /*
+     * One iteration, the reference implementation.
+     */
+    private double[][][] step(double[][][] a, StencilBoundary boundary) {
+        int slices = a.length;
+        int rows = a[0].length;
+        int columns = a[0][0].length;
+        boolean threeDimensional = slices > 1;
+        double[][][] b = new double[slices][rows][columns];
+        for (int s = 0; s < slices; s++) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    if (boundary == StencilBoundary.Fixed
+                            && ((threeDimensional && (s == 0 || s == slices - 1)) || r == 0 || r == rows - 1
+                                    || c == 0 || c == columns - 1)) {
+                        b[s][r][c] = a[s][r][c];
+                        continue;
+                    }
+                    double sum = 0;
+                    for (int ds = -1; ds <= 1; ds++) {
+                        if (!threeDimensional && ds != 0)
+                            continue;
+                        for (int dr = -1; dr <= 1; dr++) {
+                            for (int dc = -1; dc <= 1; dc++) {
+                                double w = threeDimensional ? w3[ds + 1][dr + 1][dc + 1] : w2[dr + 1][dc + 1];
+                                sum += w * get(a, s + ds, r + dr, c + dc, boundary);
+                            }
+                        }
+                    }
+                    b[s][r][c] = sum;
+                }
+            }
+        }
+        return b;
+    }
+
+    private double get(double[][][] a, int s, int r, int c, StencilBoundary boundary) {
+        int slices = a.length;
+        int rows = a[0].length;
+        int columns = a[0][0].length;
+        if (boundary == StencilBoundary.Periodic) {
+            return a[(s + slices) % slices][(r + rows) % rows][(c + columns) % columns];
+        } else if (boundary == StencilBoundary.Clamped) {
+            return a[clamp(s, slices)][clamp(r, rows)][clamp(c, columns)];
+        } else if (s < 0 || s >= slices || r < 0 || r >= rows || c < 0 || c >= columns) {
+            return 0;
+        }
+        return a[s][r][c];
+    }
+
+    private int clamp(int i, int n) {
+        return Math.max(0, Math.min(n - 1, i));
+    }
+
+    private void checkEquals(double[][] expected, double[][] actual) {
+        for (int r = 0; r < expected.length; r++) {
+            for (int c = 0; c < expected[0].length; c++) {
+                assertEquals(expected[r][c], actual[r][c], TOL);
+            }
+        }
+    }
+
+    private void checkEquals(double[][][] expected, double[][][] actual) {
+        for (int s = 0; s < expected.length; s++) {
+            checkEquals(expected[s], actual[s]);
+        }
+    }
+
+    private double[][] random2D(long seed) {
+        Random random = new Random(seed);
+        double[][] a = new double[ROWS][COLUMNS];
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                a[r][c] = random.nextDouble();
+            }
+        }
+        return a;
+    }
+
+    private double[][][] random3D(long seed) {
+        Random random = new Random(seed);
+        double[][][] a = new double[SLICES][ROWS][COLUMNS];
+        for (int s = 0; s < SLICES; s++) {
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    a[s][r][c] = random.nextDouble();
+                }
+            }
+        }
+        return a;
+    }
+}
@@ -0,0 +1,195 @@
+package cern.colt.matrix.tdouble.algo;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.algo.decomposition.SparseDoubleCholeskyDecomposition;
+import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SparseDoubleReorderingTest extends TestCase {
+
+    private static final int SIDE = 30;
+
+    private static final double TOL = 1e-10;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private int oldThreadsBeginN1D;
+
+    public SparseDoubleReorderingTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        oldThreadsBeginN1D = ConcurrencyUtils.getThreadsBeginN_1D();
+        ConcurrencyUtils.setNumberOfThreads(4);
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        ConcurrencyUtils.setThreadsBeginN_1D(1);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+        ConcurrencyUtils.setThreadsBeginN_1D(oldThreadsBeginN1D);
+    }
+
+    public void testReverseCuthillMcKee() {
+        SparseRCDoubleMatrix2D A = scrambledLaplacian();
+        int[] p = SparseDoubleReordering.reverseCuthillMcKee(A);
+        checkPermutation(p, A.rows());
+        int bandwidth = SparseDoubleReordering.bandwidth(A, p);
+        assertTrue(bandwidth <= 2 * SIDE);
+        assertTrue(bandwidth < SparseDoubleReordering.bandwidth(A) / 4);
+        assertTrue(SparseDoubleReordering.profile(A, p) < SparseDoubleReordering.profile(A) / 4);
+        SparseRCDoubleMatrix2D B = SparseDoubleReordering.permute(A, p);
+        assertEquals(bandwidth, SparseDoubleReordering.bandwidth(B));
+        assertEquals(SparseDoubleReordering.profile(A, p), SparseDoubleReordering.profile(B));
+    }
+
+    public void testNestedDissection() {
+        SparseCCDoubleMatrix2D A = laplacian().getColumnCompressed();
+        int[] p = SparseDoubleReordering.nestedDissection(A);
+        checkPermutation(p, A.rows());
+        int natural = new SparseDoubleCholeskyDecomposition(A, 0).getL().cardinality();
+        SparseCCDoubleMatrix2D B = SparseDoubleReordering.permute(A, p);
+        int dissected = new SparseDoubleCholeskyDecomposition(B, 0).getL().cardinality();
+        assertTrue(dissected < natural);
+    }
+
+    public void testApproximateMinimumDegree() {
+        SparseRCDoubleMatrix2D A = scrambledLaplacian();
+        int[] p = SparseDoubleReordering.approximateMinimumDegree(A);
+        checkPermutation(p, A.rows());
+        SparseCCDoubleMatrix2D C = A.getColumnCompressed();
+        int scrambled = new SparseDoubleCholeskyDecomposition(C, 0).getL().cardinality();
+        int amd = new SparseDoubleCholeskyDecomposition(SparseDoubleReordering.permute(C, p), 0).getL()
+                .cardinality();
+        assertTrue(amd < scrambled);
+    }
+
+    public void testDisconnected() {
+        // two grids, an isolated vertex and an unsymmetric coupling
+        int n = 2 * SIDE * SIDE + 1;
+        SparseRCDoubleMatrix2D A = new SparseRCDoubleMatrix2D(n, n);
+        SparseRCDoubleMatrix2D L = laplacian();
+        for (int i = 0; i < SIDE * SIDE; i++) {
+            for (int j = 0; j < SIDE * SIDE; j++) {
+                double value = L.getQuick(i, j);
+                if (value != 0) {
+                    A.setQuick(i, j, value);
+                    A.setQuick(n - 1 - i, n - 1 - j, value);
+                }
+            }
+        }
+        A.setQuick(0, SIDE * SIDE - 1, 1);
+        checkPermutation(SparseDoubleReordering.reverseCuthillMcKee(A), n);
+        checkPermutation(SparseDoubleReordering.nestedDissection(A), n);
+        checkPermutation(SparseDoubleReordering.approximateMinimumDegree(A), n);
+    }
+
+    public void testPermute() {
+        Random random = new Random(0);
+        int n = 41;
+        SparseRCDoubleMatrix2D A = new SparseRCDoubleMatrix2D(n, n);
+        for (int k = 0; k < 5 * n; k++) {
+            A.setQuick(random.nextInt(n), random.nextInt(n), random.nextDouble());
+        }
+        int[] p = randomPermutation(n, random);
+        SparseRCDoubleMatrix2D B = SparseDoubleReordering.permute(A, p);
+        SparseCCDoubleMatrix2D C = SparseDoubleReordering.permute(A.getColumnCompressed(), p);
+        assertTrue(B.hasColumnIndexesSorted());
+        assertTrue(C.hasRowIndexesSorted());
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                assertEquals(A.getQuick(p[i], p[j]), B.getQuick(i, j), TOL);
+                assertEquals(A.getQuick(p[i], p[j]), C.getQuick(i, j), TOL);
+            }
+        }
+        assertEquals(SparseDoubleReordering.bandwidth(A, p), SparseDoubleReordering.bandwidth(C));
+        assertEquals(SparseDoubleReordering.profile(A, p), SparseDoubleReordering.profile(C));
+        assertEquals(SparseDoubleReordering.profile(A.getColumnCompressed(), p), SparseDoubleReordering.profile(B));
+
+        // (P*A*P') * (P*x) = P * (A*x)
+        DoubleMatrix1D x = DoubleFactory1D.dense.random(n);
+        DoubleMatrix1D Px = SparseDoubleReordering.permute(x, p);
+        DoubleMatrix1D expected = SparseDoubleReordering.permute(A.zMult(x, null), p);
+        DoubleMatrix1D actual = B.zMult(Px, null);
+        for (int i = 0; i < n; i++) {
+            assertEquals(expected.getQuick(i), actual.getQuick(i), TOL);
+        }
+        DoubleMatrix1D y = SparseDoubleReordering.permuteInverse(Px, p);
+        for (int i = 0; i < n; i++) {
+            assertEquals(x.getQuick(i), y.getQuick(i), TOL);
+        }
+        int[] pinv = SparseDoubleReordering.inverse(p);
+        for (int k = 0; k < n; k++) {
+            assertEquals(k, pinv[p[k]]);
+        }
+
+        p[0] = p[1];
+        try {
+            SparseDoubleReordering.permute(A, p);
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    /*
+     * Returns the 5-point Laplacian of a SIDE x SIDE grid.
+     */
+    private SparseRCDoubleMatrix2D laplacian() {
+        int n = SIDE * SIDE;
+        SparseRCDoubleMatrix2D A = new SparseRCDoubleMatrix2D(n, n);
+        for (int i = 0; i < SIDE; i++) {
+            for (int j = 0; j < SIDE; j++) {
+                int k = i * SIDE + j;
+                A.setQuick(k, k, 4);
+                if (i > 0)
+                    A.setQuick(k, k - SIDE, -1);
+                if (i < SIDE - 1)
+                    A.setQuick(k, k + SIDE, -1);
+                if (j > 0)
+                    A.setQuick(k, k - 1, -1);
+                if (j < SIDE - 1)
+                    A.setQuick(k, k + 1, -1);
+            }
+        }
+        return A;
+    }
+
+    private SparseRCDoubleMatrix2D scrambledLaplacian() {
+        SparseRCDoubleMatrix2D A = laplacian();
+        return SparseDoubleReordering.permute(A, randomPermutation(A.rows(), new Random(1)));
+    }
+
+    private int[] randomPermutation(int n, Random random) {
+        int[] p = new int[n];
+        for (int k = 0; k < n; k++) {
+            p[k] = k;
+        }
+        for (int k = n - 1; k > 0; k--) {
+            int r = random.nextInt(k + 1);
+            int tmp = p[k];
+            p[k] = p[r];
+            p[r] = tmp;
+        }
+        return p;
+    }
+
+    private void checkPermutation(int[] p, int n) {
+        assertEquals(n, p.length);
+        boolean[] seen = new boolean[n];
+        for (int k = 0; k < n; k++) {
+            assertFalse(seen[p[k]]);
+            seen[p[k]] = true;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package cern.colt.matrix.tdouble.algo;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SparseDoubleTriangularSolverTest extends TestCase {
+
+    private static final int N = 300;
+
+    private static final double TOL = 1e-10;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN1D;
+
+    private SparseRCDoubleMatrix2D A;
+
+    public SparseDoubleTriangularSolverTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN1D = ConcurrencyUtils.getThreadsBeginN_1D();
+        ConcurrencyUtils.setThreadsBeginN_1D(1);
+
+        // A random sparse matrix with a dominant diagonal
+        Random r = new Random(0);
+        DoubleMatrix2D D = new DenseDoubleMatrix2D(N, N);
+        for (int i = 0; i < N; i++) {
+            D.setQuick(i, i, 4 + r.nextDouble());
+            for (int k = 0; k < 4; k++) {
+                D.setQuick(i, r.nextInt(N), r.nextDouble() - 0.5);
+            }
+            D.setQuick(i, i, 4 + r.nextDouble());
+        }
+        A = new SparseRCDoubleMatrix2D(D.toArray());
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_1D(oldThreadsBeginN1D);
+    }
+
+    public void testRowCompressed() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int t = 0; t < 4; t++) {
+                boolean lower = (t & 1) == 0;
+                boolean unit = (t & 2) != 0;
+                SparseDoubleTriangularSolver solver = new SparseDoubleTriangularSolver(N, A.getRowPointers(), A
+                        .getColumnIndexes(), A.getValues(), true, lower, unit);
+                check(solver, A, lower, unit, 1);
+                check(solver, A, lower, unit, 1.5);
+            }
+        }
+    }
+
+    public void testColumnCompressed() {
+        SparseCCDoubleMatrix2D C = A.getColumnCompressed();
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int t = 0; t < 4; t++) {
+                boolean lower = (t & 1) == 0;
+                boolean unit = (t & 2) != 0;
+                SparseDoubleTriangularSolver solver = new SparseDoubleTriangularSolver(N, C.getColumnPointers(), C
+                        .getRowIndexes(), C.getValues(), false, lower, unit);
+                check(solver, A, lower, unit, 1);
+                check(solver, A, lower, unit, 0.7);
+            }
+        }
+    }
+
+    public void testLevels() {
+        // A bidiagonal matrix is a single chain, a diagonal one a single level
+        DoubleMatrix2D D = new DenseDoubleMatrix2D(N, N);
+        for (int i = 0; i < N; i++) {
+            D.setQuick(i, i, 2);
+        }
+        SparseRCDoubleMatrix2D B = new SparseRCDoubleMatrix2D(D.toArray());
+        SparseDoubleTriangularSolver solver = new SparseDoubleTriangularSolver(N, B.getRowPointers(), B
+                .getColumnIndexes(), B.getValues(), true, true, false);
+        assertEquals(1, solver.getNumberOfLevels());
+        for (int i = 1; i < N; i++) {
+            D.setQuick(i, i - 1, 1);
+        }
+        B = new SparseRCDoubleMatrix2D(D.toArray());
+        solver = new SparseDoubleTriangularSolver(N, B.getRowPointers(), B.getColumnIndexes(), B.getValues(), true,
+                true, false);
+        assertEquals(N, solver.getNumberOfLevels());
+        solver = new SparseDoubleTriangularSolver(N, B.getRowPointers(), B.getColumnIndexes(), B.getValues(), true,
+                false, false);
+        assertEquals(1, solver.getNumberOfLevels());
+    }
+
+    public void testInPlace() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        SparseDoubleTriangularSolver solver = new SparseDoubleTriangularSolver(N, A.getRowPointers(), A
+                .getColumnIndexes(), A.getValues(), true, false, false);
+        double[] b = randomVector(1);
+        double[] x = new double[N];
+        solver.solve(b, x);
+        solver.solve(b, b);
+        for (int i = 0; i < N; i++) {
+            assertEquals(x[i], b[i], 0);
+        }
+    }
+
+    private void check(SparseDoubleTriangularSolver solver, SparseRCDoubleMatrix2D A, boolean lower, boolean unit,
+            double omega) {
+        double[] b = randomVector(2);
+        double[] x = new double[N];
+        solver.solve(b, x, omega);
+
+        // (D/omega + T)*x must be b
+        for (int i = 0; i < N; i++) {
+            double sum = 0;
+            for (int j = 0; j < N; j++) {
+                double aij = A.getQuick(i, j);
+                if (i == j) {
+                    sum += (unit ? 1 : aij) / omega * x[j];
+                } else if ((j < i) == lower) {
+                    sum += aij * x[j];
+                }
+            }
+            assertEquals(b[i], sum, TOL);
+        }
+    }
+
+    private double[] randomVector(long seed) {
+        Random r = new Random(seed);
+        double[] b = new double[N];
+        for (int i = 0; i < N; i++) {
+            b[i] = r.nextDouble();
+        }
+        return b;
+    }
+}
@@ -0,0 +1,220 @@
+package cern.colt.matrix.tdouble.algo.decomposition;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.BandDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class BandDoubleDecompositionTest extends TestCase {
+
+    private static final int N = 200;
+
+    private static final int NRHS = 5;
+
+    private static final double TOL = 1e-10;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN1D;
+
+    private int oldThreadsBeginN2D;
+
+    public BandDoubleDecompositionTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN1D = ConcurrencyUtils.getThreadsBeginN_1D();
+        oldThreadsBeginN2D = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setThreadsBeginN_1D(1);
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_1D(oldThreadsBeginN1D);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN2D);
+    }
+
+    public void testLU() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            // a weak diagonal forces row interchanges
+            BandDoubleMatrix2D A = matrix(2, 3, 0.1, false);
+            BandDoubleLUDecomposition lu = new BandDoubleLUDecomposition(A);
+            assertTrue(lu.isNonsingular());
+            double det = new DenseDoubleLUDecomposition(new DenseDoubleMatrix2D(A.toArray())).det();
+            assertEquals(1, lu.det() / det, 1e-8);
+            assertEquals(5, lu.getU().getUpperBandwidth());
+
+            DoubleMatrix1D b = rhs(1);
+            DoubleMatrix1D x = b.copy();
+            lu.solve(x);
+            checkResidual(A, x, b);
+
+            DoubleMatrix2D B = rhs(NRHS, 2);
+            DoubleMatrix2D X = B.copy();
+            lu.solve(X);
+            checkResidual(A, X, B);
+        }
+    }
+
+    public void testSingular() {
+        BandDoubleMatrix2D A = matrix(1, 1, 1, false);
+        for (int i = 0; i < N; i++) {
+            A.setQuick(i, 0, 0);
+        }
+        BandDoubleLUDecomposition lu = new BandDoubleLUDecomposition(A);
+        assertFalse(lu.isNonsingular());
+        assertEquals(0, lu.det(), 0);
+        try {
+            lu.solve(rhs(1));
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    public void testCholesky() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            BandDoubleMatrix2D A = matrix(4, 4, 10, true);
+            BandDoubleCholeskyDecomposition chol = new BandDoubleCholeskyDecomposition(A);
+            BandDoubleMatrix2D L = chol.getL();
+            DoubleMatrix2D LLt = L.zMult(L, null, 1, 0, false, true);
+            for (int i = 0; i < N; i++) {
+                for (int j = 0; j < N; j++) {
+                    assertEquals(A.getQuick(i, j), LLt.getQuick(i, j), TOL);
+                }
+            }
+
+            DoubleMatrix1D b = rhs(1);
+            DoubleMatrix1D x = b.copy();
+            chol.solve(x);
+            checkResidual(A, x, b);
+
+            DoubleMatrix2D B = rhs(NRHS, 2);
+            DoubleMatrix2D X = B.copy();
+            chol.solve(X);
+            checkResidual(A, X, B);
+        }
+        try {
+            new BandDoubleCholeskyDecomposition(matrix(4, 4, -10, true));
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    public void testSpike() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        int[][] bandwidths = { { 1, 1 }, { 2, 5 }, { 4, 1 }, { 0, 3 } };
+        for (int t = 0; t < bandwidths.length; t++) {
+            BandDoubleMatrix2D A = matrix(bandwidths[t][0], bandwidths[t][1], 2 * N, false);
+            BandDoubleSpikeDecomposition spike = new BandDoubleSpikeDecomposition(A);
+            assertEquals(4, spike.getNumberOfBlocks());
+
+            DoubleMatrix1D b = rhs(1);
+            DoubleMatrix1D x = b.copy();
+            spike.solve(x);
+            checkResidual(A, x, b);
+
+            DoubleMatrix2D B = rhs(NRHS, 2);
+            DoubleMatrix2D X = B.copy();
+            spike.solve(X);
+            checkResidual(A, X, B);
+        }
+    }
+
+    public void testSpikeFallBack() {
+        ConcurrencyUtils.setNumberOfThreads(1);
+        BandDoubleMatrix2D A = matrix(2, 2, 1, false);
+        assertEquals(1, new BandDoubleSpikeDecomposition(A).getNumberOfBlocks());
+
+        // a singular diagonal block: rows N/2-1 and N/2 only couple to each
+        // other, across the two blocks
+        ConcurrencyUtils.setNumberOfThreads(2);
+        A = new BandDoubleMatrix2D(N, N, 1, 1);
+        for (int i = 0; i < N; i++) {
+            A.setQuick(i, i, 4);
+            if (i > 0) {
+                A.setQuick(i, i - 1, 1);
+                A.setQuick(i - 1, i, 1);
+            }
+        }
+        int m = N / 2;
+        A.setQuick(m - 1, m - 1, 0);
+        A.setQuick(m, m, 0);
+        A.setQuick(m - 1, m - 2, 0);
+        A.setQuick(m - 2, m - 1, 0);
+        A.setQuick(m, m + 1, 0);
+        A.setQuick(m + 1, m, 0);
+        BandDoubleSpikeDecomposition spike = new BandDoubleSpikeDecomposition(A);
+        assertEquals(1, spike.getNumberOfBlocks());
+        DoubleMatrix1D b = rhs(1);
+        DoubleMatrix1D x = b.copy();
+        spike.solve(x);
+        checkResidual(A, x, b);
+    }
+
+    private void checkResidual(DoubleMatrix2D A, DoubleMatrix1D x, DoubleMatrix1D b) {
+        DoubleMatrix1D Ax = A.zMult(x, null);
+        for (int i = 0; i < N; i++) {
+            assertEquals(b.getQuick(i), Ax.getQuick(i), TOL);
+        }
+    }
+
+    private void checkResidual(DoubleMatrix2D A, DoubleMatrix2D X, DoubleMatrix2D B) {
+        DoubleMatrix2D AX = A.zMult(X, null);
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < B.columns(); j++) {
+                assertEquals(B.getQuick(i, j), AX.getQuick(i, j), TOL);
+            }
+        }
+    }
+
+    /*
+     * A random band matrix with the given diagonal shift.
+     */
+    private BandDoubleMatrix2D matrix(int kl, int ku, double diagonal, boolean symmetric) {
+        Random random = new Random(kl * 10 + ku);
+        BandDoubleMatrix2D A = new BandDoubleMatrix2D(N, N, kl, ku);
+        for (int j = 0; j < N; j++) {
+            for (int i = Math.max(0, j - ku); i <= Math.min(N - 1, j + kl); i++) {
+                if (!symmetric || i >= j) {
+                    double v = random.nextDouble() - 0.5;
+                    A.setQuick(i, j, v);
+                    if (symmetric) {
+                        A.setQuick(j, i, v);
+                    }
+                }
+            }
+            A.setQuick(j, j, A.getQuick(j, j) + diagonal);
+        }
+        return A;
+    }
+
+    private DoubleMatrix1D rhs(long seed) {
+        Random random = new Random(seed);
+        DoubleMatrix1D b = new DenseDoubleMatrix1D(N);
+        for (int i = 0; i < N; i++) {
+            b.setQuick(i, random.nextDouble());
+        }
+        return b;
+    }
+
+    private DoubleMatrix2D rhs(int columns, long seed) {
+        Random random = new Random(seed);
+        DoubleMatrix2D B = new DenseDoubleMatrix2D(N, columns);
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < columns; j++) {
+                B.setQuick(i, j, random.nextDouble());
+            }
+        }
+        return B;
+    }
+}
@@ -0,0 +1,137 @@
+package cern.colt.matrix.tdouble.algo.decomposition;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
+
+public class SparseDoubleRefactorTest extends TestCase {
+
+    private static final int N = 100;
+
+    private static final double TOL = 1e-10;
+
+    public SparseDoubleRefactorTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testCSparseLU() {
+        SparseDoubleLUDecomposition lu = new CSparseDoubleLUDecomposition(matrix(0, false), 1, true);
+        checkRefactor(lu);
+    }
+
+    public void testKLU() {
+        SparseDoubleLUDecomposition lu = new SparseDoubleKLUDecomposition(matrix(0, false), 0, true);
+        checkRefactor(lu);
+    }
+
+    public void testCholesky() {
+        SparseDoubleCholeskyDecomposition chol = new SparseDoubleCholeskyDecomposition(matrix(0, true), 1);
+        for (int step = 1; step <= 3; step++) {
+            DoubleMatrix2D A = matrix(step, true);
+            chol.refactor(A);
+            checkEquals(A, new SparseDoubleCholeskyDecomposition(A, 1).getL(), chol.getL());
+            DoubleMatrix1D b = rhs(step);
+            DoubleMatrix1D x = b.copy();
+            chol.solve(x);
+            checkResidual(A, x, b);
+        }
+        try {
+            chol.refactor(pattern());
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    public void testRowCompressed() {
+        SparseDoubleLUDecomposition lu = new SparseDoubleKLUDecomposition(matrix(0, false).getRowCompressed(), 0,
+                true);
+        DoubleMatrix2D A = matrix(1, false).getRowCompressed();
+        lu.refactor(A);
+        assertTrue(lu.getL() instanceof SparseRCDoubleMatrix2D);
+        DoubleMatrix1D b = rhs(1);
+        DoubleMatrix1D x = b.copy();
+        lu.solve(x);
+        checkResidual(A, x, b);
+    }
+
+    private void checkRefactor(SparseDoubleLUDecomposition lu) {
+        for (int step = 1; step <= 3; step++) {
+            DoubleMatrix2D A = matrix(step, false);
+            lu.refactor(A);
+            DoubleMatrix1D b = rhs(step);
+            DoubleMatrix1D x = b.copy();
+            lu.solve(x);
+            checkResidual(A, x, b);
+        }
+        try {
+            lu.refactor(pattern());
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    private void checkEquals(DoubleMatrix2D A, DoubleMatrix2D expected, DoubleMatrix2D actual) {
+        for (int i = 0; i < A.rows(); i++) {
+            for (int j = 0; j < A.columns(); j++) {
+                assertEquals(expected.getQuick(i, j), actual.getQuick(i, j), TOL);
+            }
+        }
+    }
+
+    private void checkResidual(DoubleMatrix2D A, DoubleMatrix1D x, DoubleMatrix1D b) {
+        DoubleMatrix1D Ax = A.zMult(x, null);
+        for (int i = 0; i < N; i++) {
+            assertEquals(b.getQuick(i), Ax.getQuick(i), TOL);
+        }
+    }
+
+    /*
+     * A matrix with a fixed pattern and values depending on the step.
+     */
+    private SparseCCDoubleMatrix2D matrix(long step, boolean symmetric) {
+        Random pattern = new Random(1);
+        Random values = new Random(step);
+        DoubleMatrix2D D = new DenseDoubleMatrix2D(N, N);
+        for (int i = 0; i < N; i++) {
+            for (int k = 0; k < 3; k++) {
+                int j = pattern.nextInt(N);
+                double v = values.nextDouble() - 0.5;
+                D.setQuick(i, j, v);
+                if (symmetric) {
+                    D.setQuick(j, i, v);
+                }
+            }
+        }
+        for (int i = 0; i < N; i++) {
+            D.setQuick(i, i, 4 + values.nextDouble());
+        }
+        return new SparseRCDoubleMatrix2D(D.toArray()).getColumnCompressed();
+    }
+
+    private SparseCCDoubleMatrix2D pattern() {
+        // One more entry in the first row and column
+        SparseRCDoubleMatrix2D B = matrix(0, true).getRowCompressed();
+        int j = 1;
+        while (B.getQuick(0, j) != 0) {
+            j++;
+        }
+        B.setQuick(0, j, 1);
+        B.setQuick(j, 0, 1);
+        return B.getColumnCompressed();
+    }
+
+    private DoubleMatrix1D rhs(long step) {
+        Random r = new Random(10 + step);
+        DoubleMatrix1D b = new DenseDoubleMatrix1D(N);
+        for (int i = 0; i < N; i++) {
+            b.setQuick(i, r.nextDouble());
+        }
+        return b;
+    }
+}
@@ -0,0 +1,157 @@
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.jet.math.tdouble.DoubleFunctions;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class BandDoubleMatrix2DTest extends TestCase {
+
+    private static final int ROWS = 57;
+
+    private static final int COLUMNS = 43;
+
+    private static final int KL = 3;
+
+    private static final int KU = 5;
+
+    private static final double TOL = 1e-10;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private double[][] a;
+
+    private BandDoubleMatrix2D A;
+
+    public BandDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        Random random = new Random(0);
+        a = new double[ROWS][COLUMNS];
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = Math.max(0, r - KL); c <= Math.min(COLUMNS - 1, r + KU); c++) {
+                a[r][c] = random.nextDouble() - 0.5;
+            }
+        }
+        A = new BandDoubleMatrix2D(a, KL, KU);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testGetSet() {
+        checkEquals(a, A);
+        // only the band is stored
+        assertEquals((KL + KU + 1) * COLUMNS, A.elements().length);
+        A.setQuick(0, KU + 1, 1);
+        A.setQuick(KL + 1, 0, 1);
+        assertEquals(0, A.getQuick(0, KU + 1), 0);
+        assertEquals(0, A.getQuick(KL + 1, 0), 0);
+        A.setQuick(KL, 0, 2);
+        assertEquals(2, A.getQuick(KL, 0), 0);
+        try {
+            new BandDoubleMatrix2D(ROWS, COLUMNS, -1, KU);
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    public void testAssign() {
+        DoubleMatrix2D B = A.copy();
+        assertTrue(B instanceof BandDoubleMatrix2D);
+        checkEquals(a, B);
+        B.assign(DoubleFunctions.mult(2));
+        B.assign(DoubleFunctions.plus(1));
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                boolean inBand = c - r <= KU && r - c <= KL;
+                assertEquals(inBand ? 2 * a[r][c] + 1 : 0, B.getQuick(r, c), TOL);
+            }
+        }
+        B.assign(3);
+        assertEquals(3, B.getQuick(COLUMNS - 1, COLUMNS - 1), 0);
+        assertEquals(0, B.getQuick(ROWS - 1, 0), 0);
+    }
+
+    public void testZMult1D() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            DoubleMatrix2D D = new DenseDoubleMatrix2D(a);
+            DoubleMatrix1D y = random(COLUMNS, 1);
+            DoubleMatrix1D z = random(ROWS, 2);
+            checkEquals(D.zMult(y, z.copy(), 1.5, -0.5, false), A.zMult(y, z.copy(), 1.5, -0.5, false));
+            checkEquals(D.zMult(y, null), A.zMult(y, null));
+            // strided views
+            DoubleMatrix1D yt = random(2 * ROWS, 3).viewStrides(2);
+            DoubleMatrix1D zt = random(2 * COLUMNS, 4).viewStrides(2);
+            checkEquals(D.zMult(yt, zt.copy(), 0.5, 2, true), A.zMult(yt, zt.copy(), 0.5, 2, true));
+        }
+    }
+
+    public void testZMult2D() {
+        int p = 17;
+        DoubleMatrix2D D = new DenseDoubleMatrix2D(a);
+        DoubleMatrix2D B = new DenseDoubleMatrix2D(COLUMNS, p).assign(random(COLUMNS * p, 5).toArray());
+        DoubleMatrix2D Bt = new DenseDoubleMatrix2D(ROWS, p).assign(random(ROWS * p, 6).toArray());
+        DoubleMatrix2D C = new DenseDoubleMatrix2D(ROWS, p).assign(random(ROWS * p, 7).toArray());
+        DoubleMatrix2D Ct = new DenseDoubleMatrix2D(COLUMNS, p).assign(random(COLUMNS * p, 8).toArray());
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            checkEquals(D.zMult(B, C.copy(), 1.5, -0.5, false, false), A.zMult(B, C.copy(), 1.5, -0.5, false,
+                    false));
+            checkEquals(D.zMult(B, null), A.zMult(B, null));
+            checkEquals(D.zMult(Bt, Ct.copy(), 2, 1, true, false), A.zMult(Bt, Ct.copy(), 2, 1, true, false));
+            checkEquals(D.zMult(B.viewDice().copy(), C.copy(), 1, 1, false, true), A.zMult(B.viewDice().copy(), C
+                    .copy(), 1, 1, false, true));
+            // other storage of B and C
+            checkEquals(D.zMult(B, C.copy(), 1.5, -0.5, false, false), A.zMult(new SparseDoubleMatrix2D(B
+                    .toArray()), new DenseColumnDoubleMatrix2D(C.toArray()), 1.5, -0.5, false, false));
+        }
+    }
+
+    private void checkEquals(double[][] expected, DoubleMatrix2D actual) {
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                assertEquals(expected[r][c], actual.getQuick(r, c), 0);
+            }
+        }
+    }
+
+    private void checkEquals(DoubleMatrix1D expected, DoubleMatrix1D actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getQuick(i), actual.getQuick(i), TOL);
+        }
+    }
+
+    private void checkEquals(DoubleMatrix2D expected, DoubleMatrix2D actual) {
+        assertEquals(expected.rows(), actual.rows());
+        assertEquals(expected.columns(), actual.columns());
+        for (int r = 0; r < expected.rows(); r++) {
+            for (int c = 0; c < expected.columns(); c++) {
+                assertEquals(expected.getQuick(r, c), actual.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    private DoubleMatrix1D random(int size, long seed) {
+        Random random = new Random(seed);
+        DoubleMatrix1D x = new DenseDoubleMatrix1D(size);
+        for (int i = 0; i < size; i++) {
+            x.setQuick(i, random.nextDouble() - 0.5);
+        }
+        return x;
+    }
+}
@@ -0,0 +1,15 @@
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1DTest;
+
+public class ConcurrentSparseDoubleMatrix1DTest extends DoubleMatrix1DTest {
+
+    public ConcurrentSparseDoubleMatrix1DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new ConcurrentSparseDoubleMatrix1D(SIZE);
+        B = new ConcurrentSparseDoubleMatrix1D(SIZE);
+    }
+}
@@ -0,0 +1,13 @@
+package cern.colt.matrix.tdouble.impl;
+
+public class ConcurrentSparseDoubleMatrix1DViewTest extends ConcurrentSparseDoubleMatrix1DTest {
+
+    public ConcurrentSparseDoubleMatrix1DViewTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new ConcurrentSparseDoubleMatrix1D(SIZE).viewFlip();
+        B = new ConcurrentSparseDoubleMatrix1D(SIZE).viewFlip();
+    }
+}
@@ -0,0 +1,48 @@
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.concurrent.Future;
+
+import cern.colt.matrix.tdouble.DoubleMatrix2DTest;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class ConcurrentSparseDoubleMatrix2DTest extends DoubleMatrix2DTest {
+
+    public ConcurrentSparseDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new ConcurrentSparseDoubleMatrix2D(NROWS, NCOLUMNS);
+        B = new ConcurrentSparseDoubleMatrix2D(NROWS, NCOLUMNS);
+        Bt = new ConcurrentSparseDoubleMatrix2D(NCOLUMNS, NROWS);
+    }
+
+    public void testAddQuick() {
+        final ConcurrentSparseDoubleMatrix2D S = new ConcurrentSparseDoubleMatrix2D(A.rows(), A.columns());
+        final int rows = S.rows();
+        final int columns = S.columns();
+        int nthreads = 4;
+        final int rounds = 50;
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    for (int k = 0; k < rounds; k++) {
+                        for (int r = 0; r < rows; r++) {
+                            for (int c = 0; c < columns; c++) {
+                                S.addQuick(r, c, r + c + 1);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                assertEquals(nthreads * rounds * (r + c + 1), S.getQuick(r, c), TOL);
+            }
+        }
+        assertEquals(rows * columns, S.cardinality());
+    }
+}
@@ -0,0 +1,14 @@
+package cern.colt.matrix.tdouble.impl;
+
+public class ConcurrentSparseDoubleMatrix2DViewTest extends ConcurrentSparseDoubleMatrix2DTest {
+
+    public ConcurrentSparseDoubleMatrix2DViewTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new ConcurrentSparseDoubleMatrix2D(NCOLUMNS, NROWS).viewDice();
+        B = new ConcurrentSparseDoubleMatrix2D(NCOLUMNS, NROWS).viewDice();
+        Bt = new ConcurrentSparseDoubleMatrix2D(NROWS, NCOLUMNS).viewDice();
+    }
+}
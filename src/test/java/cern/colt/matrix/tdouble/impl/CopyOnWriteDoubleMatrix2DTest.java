@@ -0,0 +1,126 @@
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix2DTest;
+import cern.jet.math.tdouble.DoubleFunctions;
+
+public class CopyOnWriteDoubleMatrix2DTest extends DoubleMatrix2DTest {
+
+    /**
+     * Tile size giving several tiles, some of them partial, on the test
+     * matrices
+     */
+    protected static final int TILE_SIZE = 4;
+
+    public CopyOnWriteDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new CopyOnWriteDoubleMatrix2D(NROWS, NCOLUMNS, TILE_SIZE);
+        B = new CopyOnWriteDoubleMatrix2D(NROWS, NCOLUMNS, TILE_SIZE);
+        Bt = new CopyOnWriteDoubleMatrix2D(NCOLUMNS, NROWS, TILE_SIZE);
+    }
+
+    public void testCopySharesTiles() {
+        CopyOnWriteDoubleMatrix2D M = newMatrix();
+        long bytes = 8L * NROWS * NCOLUMNS;
+        assertEquals(0, M.getSharedBytes());
+        assertEquals(bytes, M.getPrivateBytes());
+        CopyOnWriteDoubleMatrix2D S = (CopyOnWriteDoubleMatrix2D) M.copy();
+        assertEquals(bytes, M.getSharedBytes());
+        assertEquals(bytes, S.getSharedBytes());
+        assertEquals(0, S.getPrivateBytes());
+        assertEquals(M.getTileCount(), S.getSharedTileCount());
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                assertEquals(M.getQuick(r, c), S.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    public void testSetQuickCopiesOneTile() {
+        CopyOnWriteDoubleMatrix2D M = newMatrix();
+        DoubleMatrix2D expected = M.getDense();
+        CopyOnWriteDoubleMatrix2D S = (CopyOnWriteDoubleMatrix2D) M.copy();
+        // the last tile of the 13 x 17 matrix is 1 x 1
+        S.setQuick(NROWS - 1, NCOLUMNS - 1, -1);
+        assertEquals(M.getTileCount() - 1, S.getSharedTileCount());
+        assertEquals(M.getTileCount() - 1, M.getSharedTileCount());
+        assertEquals(8, S.getPrivateBytes());
+        S.setQuick(0, 0, -2);
+        assertEquals(M.getTileCount() - 2, S.getSharedTileCount());
+        assertEquals(8 + 8L * TILE_SIZE * TILE_SIZE, S.getPrivateBytes());
+        assertEquals(-1, S.getQuick(NROWS - 1, NCOLUMNS - 1), TOL);
+        assertEquals(-2, S.getQuick(0, 0), TOL);
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                assertEquals(expected.getQuick(r, c), M.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    public void testAssignCopiesWrittenTiles() {
+        CopyOnWriteDoubleMatrix2D M = newMatrix();
+        DoubleMatrix2D expected = M.getDense();
+        CopyOnWriteDoubleMatrix2D S = (CopyOnWriteDoubleMatrix2D) M.copy();
+        S.viewPart(0, 0, TILE_SIZE, TILE_SIZE).assign(DoubleFunctions.neg);
+        assertEquals(M.getTileCount() - 1, S.getSharedTileCount());
+        S.assign(DoubleFunctions.neg);
+        assertEquals(0, S.getSharedTileCount());
+        assertEquals(0, M.getSharedTileCount());
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                double sign = (r < TILE_SIZE && c < TILE_SIZE) ? 1 : -1;
+                assertEquals(sign * expected.getQuick(r, c), S.getQuick(r, c), TOL);
+                assertEquals(expected.getQuick(r, c), M.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    public void testRelease() {
+        CopyOnWriteDoubleMatrix2D M = newMatrix();
+        CopyOnWriteDoubleMatrix2D S = (CopyOnWriteDoubleMatrix2D) M.copy();
+        S.release();
+        assertEquals(0, M.getSharedBytes());
+        assertEquals(8L * NROWS * NCOLUMNS, M.getPrivateBytes());
+        assertEquals(0, S.getPrivateBytes());
+        assertEquals(0, S.zSum(), TOL);
+    }
+
+    public void testZeroTilesAreNotAllocated() {
+        CopyOnWriteDoubleMatrix2D M = new CopyOnWriteDoubleMatrix2D(NROWS, NCOLUMNS, TILE_SIZE);
+        M.setQuick(0, 0, 0);
+        assertEquals(0, M.getPrivateBytes());
+        M.setQuick(0, 0, 1);
+        assertEquals(8L * TILE_SIZE * TILE_SIZE, M.getPrivateBytes());
+        M.assign(0);
+        assertEquals(0, M.getPrivateBytes());
+    }
+
+    public void testGetDense() {
+        CopyOnWriteDoubleMatrix2D M = newMatrix();
+        DenseDoubleMatrix2D D = M.getDense();
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                assertEquals(M.getQuick(r, c), D.getQuick(r, c), TOL);
+            }
+        }
+        CopyOnWriteDoubleMatrix2D C = new CopyOnWriteDoubleMatrix2D(D.viewDice());
+        for (int r = 0; r < NCOLUMNS; r++) {
+            for (int c = 0; c < NROWS; c++) {
+                assertEquals(D.getQuick(c, r), C.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    private CopyOnWriteDoubleMatrix2D newMatrix() {
+        CopyOnWriteDoubleMatrix2D M = new CopyOnWriteDoubleMatrix2D(NROWS, NCOLUMNS, TILE_SIZE);
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                M.setQuick(r, c, 1 + random.nextDouble());
+            }
+        }
+        return M;
+    }
+}
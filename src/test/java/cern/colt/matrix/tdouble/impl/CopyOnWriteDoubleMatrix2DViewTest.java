@@ -0,0 +1,15 @@
+package cern.colt.matrix.tdouble.impl;
+
+public class CopyOnWriteDoubleMatrix2DViewTest extends CopyOnWriteDoubleMatrix2DTest {
+
+    public CopyOnWriteDoubleMatrix2DViewTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new CopyOnWriteDoubleMatrix2D(NCOLUMNS, NROWS, TILE_SIZE).viewDice();
+        B = new CopyOnWriteDoubleMatrix2D(NCOLUMNS, NROWS, TILE_SIZE).viewDice();
+        Bt = new CopyOnWriteDoubleMatrix2D(NROWS, NCOLUMNS, TILE_SIZE).viewDice();
+    }
+
+}
@@ -227,4 +227,43 @@ public class DenseColumnDoubleMatrix2DTest extends DoubleMatrix2DTest {
         }
     }
 
+    public void testAssignDense() {
+        DenseDoubleMatrix2D C = new DenseDoubleMatrix2D(A.rows(), A.columns());
+        C.assign(B);
+        A.assign(C);
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(B.getQuick(r, c), A.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    public void testGetRowMajor() {
+        DenseDoubleMatrix2D C = ((DenseColumnDoubleMatrix2D) A).getRowMajor();
+        assertEquals(A.rows(), C.rows());
+        assertEquals(A.columns(), C.columns());
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(A.getQuick(r, c), C.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    public void testTransposeInPlace() {
+        int n = Math.min(A.rows(), A.columns());
+        DenseColumnDoubleMatrix2D S = (DenseColumnDoubleMatrix2D) A.viewPart(0, 0, n, n);
+        DoubleMatrix2D Scopy = S.copy();
+        S.transposeInPlace();
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                assertEquals(Scopy.getQuick(c, r), S.getQuick(r, c), TOL);
+            }
+        }
+        try {
+            ((DenseColumnDoubleMatrix2D) A).transposeInPlace();
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
 }
@@ -238,4 +238,43 @@ public class DenseDoubleMatrix2DTest extends DoubleMatrix2DTest {
         }
     }
 
+    public void testAssignDenseColumn() {
+        DenseColumnDoubleMatrix2D C = new DenseColumnDoubleMatrix2D(A.rows(), A.columns());
+        C.assign(B);
+        A.assign(C);
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(B.getQuick(r, c), A.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    public void testGetColumnMajor() {
+        DenseColumnDoubleMatrix2D C = ((DenseDoubleMatrix2D) A).getColumnMajor();
+        assertEquals(A.rows(), C.rows());
+        assertEquals(A.columns(), C.columns());
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(A.getQuick(r, c), C.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    public void testTransposeInPlace() {
+        int n = Math.min(A.rows(), A.columns());
+        DenseDoubleMatrix2D S = (DenseDoubleMatrix2D) A.viewPart(0, 0, n, n);
+        DoubleMatrix2D Scopy = S.copy();
+        S.transposeInPlace();
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                assertEquals(Scopy.getQuick(c, r), S.getQuick(r, c), TOL);
+            }
+        }
+        try {
+            ((DenseDoubleMatrix2D) A).transposeInPlace();
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
 }
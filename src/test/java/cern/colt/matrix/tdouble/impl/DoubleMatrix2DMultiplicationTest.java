@@ -0,0 +1,135 @@
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class DoubleMatrix2DMultiplicationTest extends TestCase {
+
+    // not multiples of the kernel and of the blocks
+    private static final int M = 141;
+
+    private static final int N = 263;
+
+    private static final int P = 1031;
+
+    private static final double TOL = 1e-10;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private double[][] a, b, c;
+
+    public DoubleMatrix2DMultiplicationTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        Random random = new Random(0);
+        a = random(random, M, N);
+        b = random(random, N, P);
+        c = random(random, M, P);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testLayouts() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            check(new DenseDoubleMatrix2D(a), new DenseColumnDoubleMatrix2D(b), new DenseDoubleMatrix2D(c));
+            check(new DenseColumnDoubleMatrix2D(a), new DenseDoubleMatrix2D(b), new DenseColumnDoubleMatrix2D(c));
+            check(new DenseLargeDoubleMatrix2D(M, N).assign(a), new DenseDoubleMatrix2D(b),
+                    new DenseLargeDoubleMatrix2D(M, P).assign(c));
+            check(new DenseDoubleMatrix2D(a), new SparseDoubleMatrix2D(b), new SparseDoubleMatrix2D(c));
+        }
+    }
+
+    public void testViews() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        // transposed storage
+        check(new DenseDoubleMatrix2D(transpose(a)).viewDice(), new DenseColumnDoubleMatrix2D(transpose(b))
+                .viewDice(), new DenseDoubleMatrix2D(c));
+        // selections with reversed rows and columns
+        int[] rows = reverse(M);
+        int[] middle = reverse(N);
+        int[] columns = reverse(P);
+        check(new DenseDoubleMatrix2D(reverse(a)).viewSelection(rows, middle), new DenseColumnDoubleMatrix2D(
+                reverse(b)).viewSelection(middle, columns), new DenseDoubleMatrix2D(reverse(c)).viewSelection(rows,
+                columns));
+        // a part of a larger matrix
+        DoubleMatrix2D large = new DenseDoubleMatrix2D(M + 2, P + 3);
+        large.viewPart(2, 3, M, P).assign(c);
+        check(new DenseDoubleMatrix2D(a), new DenseDoubleMatrix2D(b), large.viewPart(2, 3, M, P));
+    }
+
+    public void testEmpty() {
+        DoubleMatrix2D C = new DenseDoubleMatrix2D(c);
+        DoubleMatrix2DMultiplication.zMult(new DenseDoubleMatrix2D(M, 0), new DenseDoubleMatrix2D(0, P), C, 2, 3);
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < P; j++) {
+                assertEquals(3 * c[i][j], C.getQuick(i, j), TOL);
+            }
+        }
+    }
+
+    private void check(DoubleMatrix2D A, DoubleMatrix2D B, DoubleMatrix2D C) {
+        double alpha = 1.5, beta = -0.5;
+        double[][] expected = new double[M][P];
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < P; j++) {
+                double s = 0;
+                for (int k = 0; k < N; k++) {
+                    s += A.getQuick(i, k) * B.getQuick(k, j);
+                }
+                expected[i][j] = alpha * s + beta * C.getQuick(i, j);
+            }
+        }
+        A.zMult(B, C, alpha, beta, false, false);
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < P; j++) {
+                assertEquals(expected[i][j], C.getQuick(i, j), TOL);
+            }
+        }
+    }
+
+    private static double[][] random(Random random, int rows, int columns) {
+        double[][] values = new double[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                values[r][c] = random.nextDouble() - 0.5;
+            }
+        }
+        return values;
+    }
+
+    private static double[][] transpose(double[][] values) {
+        double[][] transposed = new double[values[0].length][values.length];
+        for (int r = 0; r < values.length; r++) {
+            for (int c = 0; c < values[0].length; c++) {
+                transposed[c][r] = values[r][c];
+            }
+        }
+        return transposed;
+    }
+
+    private static double[][] reverse(double[][] values) {
+        return new DenseDoubleMatrix2D(values).viewRowFlip().viewColumnFlip().toArray();
+    }
+
+    private static int[] reverse(int size) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = size - 1 - i;
+        }
+        return indexes;
+    }
+}
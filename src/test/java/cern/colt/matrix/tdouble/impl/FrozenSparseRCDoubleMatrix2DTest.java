@@ -0,0 +1,222 @@
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Random;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class FrozenSparseRCDoubleMatrix2DTest extends TestCase {
+
+    private static final int ROWS = 83;
+
+    private static final int COLUMNS = 61;
+
+    private static final double TOL = 1e-10;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private double[][] expected;
+
+    public FrozenSparseRCDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setNumberOfThreads(4);
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        Random random = new Random(0);
+        expected = new double[ROWS][COLUMNS];
+        for (int k = 0; k < 3 * ROWS; k++) {
+            expected[random.nextInt(ROWS)][random.nextInt(COLUMNS)] = random.nextDouble();
+        }
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testConstructors() {
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(expected);
+        DoubleMatrix2D[] sources = { R, R.getColumnCompressed(), new DenseDoubleMatrix2D(expected),
+                new SparseDoubleMatrix2D(expected) };
+        FrozenSparseRCDoubleMatrix2D.Index[] indexes = FrozenSparseRCDoubleMatrix2D.Index.values();
+        for (int s = 0; s < sources.length; s++) {
+            for (int i = 0; i < indexes.length; i++) {
+                FrozenSparseRCDoubleMatrix2D A = new FrozenSparseRCDoubleMatrix2D(sources[s], indexes[i]);
+                assertEquals(indexes[i], A.getIndex());
+                assertEquals(R.cardinality(), A.cardinality());
+                assertEquals(expected, A.toArray());
+                assertEquals(expected, A.viewDice().viewDice().toArray());
+            }
+        }
+        assertEquals(expected, R.freeze().toArray());
+        assertEquals(expected, R.getColumnCompressed().freeze().toArray());
+        assertEquals(expected, new SparseRCDoubleMatrix2D(ROWS, COLUMNS).assign(R.freeze()).toArray());
+        assertEquals(expected, new SparseCCDoubleMatrix2D(ROWS, COLUMNS).assign(R.freeze()).toArray());
+        assertEquals(expected, R.freeze().getRowCompressed().toArray());
+
+        // unsorted column indexes, duplicates and zeros
+        SparseRCDoubleMatrix2D U = new SparseRCDoubleMatrix2D(2, 3, new int[] { 0, 4, 6 }, new int[] { 2, 0, 2, 1,
+                1, 0 }, new double[] { 1, 2, 3, 0, 4, 5 });
+        for (int i = 0; i < indexes.length; i++) {
+            FrozenSparseRCDoubleMatrix2D A = new FrozenSparseRCDoubleMatrix2D(U, indexes[i]);
+            assertEquals(new double[][] { { 2, 0, 4 }, { 5, 4, 0 } }, A.toArray());
+            assertEquals(4, A.cardinality());
+        }
+    }
+
+    public void testChooseIndex() {
+        assertEquals(FrozenSparseRCDoubleMatrix2D.Index.BITMAP, FrozenSparseRCDoubleMatrix2D.chooseIndex(100, 100,
+                1000));
+        assertEquals(FrozenSparseRCDoubleMatrix2D.Index.HASH, FrozenSparseRCDoubleMatrix2D.chooseIndex(100000,
+                100000, 500000));
+        assertEquals(FrozenSparseRCDoubleMatrix2D.Index.BITMAP, new SparseRCDoubleMatrix2D(expected).freeze()
+                .getIndex());
+        try {
+            new FrozenSparseRCDoubleMatrix2D(new SparseRCDoubleMatrix2D(1 << 20, 1 << 20),
+                    FrozenSparseRCDoubleMatrix2D.Index.BITMAP);
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    public void testImmutable() {
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(expected);
+        FrozenSparseRCDoubleMatrix2D A = R.freeze();
+        R.setQuick(0, 0, 42);
+        assertEquals(expected[0][0], A.getQuick(0, 0), TOL);
+        A.elements()[0] = 42;
+        A.getRowCompressed().setQuick(0, 0, 42);
+        assertEquals(expected, A.toArray());
+        try {
+            A.setQuick(0, 0, 1);
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+        try {
+            A.assign(1);
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+        try {
+            A.assign(new DenseDoubleMatrix2D(ROWS, COLUMNS));
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+        try {
+            A.viewPart(1, 1, 2, 2).setQuick(0, 0, 1);
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+        assertEquals(expected, A.toArray());
+    }
+
+    public void testForEachNonZero() {
+        double[][] values = { { 1, Double.NaN }, { 0, -2 } };
+        FrozenSparseRCDoubleMatrix2D A = new SparseRCDoubleMatrix2D(values).freeze();
+        final int[] count = new int[1];
+        // returning the stored values, NaN included, is allowed
+        A.forEachNonZero(new cern.colt.function.tdouble.IntIntDoubleFunction() {
+            public double apply(int row, int column, double value) {
+                count[0]++;
+                return value;
+            }
+        });
+        assertEquals(3, count[0]);
+        try {
+            A.forEachNonZero(new cern.colt.function.tdouble.IntIntDoubleFunction() {
+                public double apply(int row, int column, double value) {
+                    return value != value ? 0 : value;
+                }
+            });
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+        assertTrue(Double.isNaN(A.getQuick(0, 1)));
+    }
+
+    public void testZMult() {
+        DenseDoubleMatrix2D D = new DenseDoubleMatrix2D(expected);
+        FrozenSparseRCDoubleMatrix2D A = new SparseRCDoubleMatrix2D(expected).freeze();
+        double[][] alphaBeta = { { 1, 0 }, { 2.5, 0 }, { -1, 1 }, { 0.5, -3 } };
+        for (int nthreads = 1; nthreads <= 8; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int t = 0; t <= 1; t++) {
+                boolean transposeA = (t == 1);
+                int m = transposeA ? COLUMNS : ROWS;
+                int n = transposeA ? ROWS : COLUMNS;
+                DoubleMatrix1D y = DoubleFactory1D.dense.random(2 * n).viewStrides(2);
+                DoubleMatrix1D z = DoubleFactory1D.dense.random(2 * m + 1).viewPart(1, 2 * m).viewStrides(2);
+                for (int k = 0; k < alphaBeta.length; k++) {
+                    double alpha = alphaBeta[k][0];
+                    double beta = alphaBeta[k][1];
+                    DoubleMatrix1D zExpected = D.zMult(y, z.copy(), alpha, beta, transposeA);
+                    DoubleMatrix1D zActual = A.zMult(y, z.copy(), alpha, beta, transposeA);
+                    for (int i = 0; i < m; i++) {
+                        assertEquals(zExpected.getQuick(i), zActual.getQuick(i), TOL);
+                    }
+                }
+            }
+        }
+    }
+
+    public void testConcurrentReads() {
+        final DenseDoubleMatrix2D D = new DenseDoubleMatrix2D(expected);
+        final FrozenSparseRCDoubleMatrix2D.Index[] indexes = FrozenSparseRCDoubleMatrix2D.Index.values();
+        final FrozenSparseRCDoubleMatrix2D[] frozen = new FrozenSparseRCDoubleMatrix2D[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            frozen[i] = new FrozenSparseRCDoubleMatrix2D(D, indexes[i]);
+        }
+        final DoubleMatrix1D y = DoubleFactory1D.dense.random(COLUMNS);
+        final DoubleMatrix1D zExpected = D.zMult(y, null);
+        int nthreads = 8;
+        final boolean[] failed = new boolean[nthreads];
+        Future<?>[] futures = new Future[nthreads];
+        for (int j = 0; j < nthreads; j++) {
+            final int threadID = j;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    Random random = new Random(threadID);
+                    for (int iter = 0; iter < 20; iter++) {
+                        FrozenSparseRCDoubleMatrix2D A = frozen[random.nextInt(frozen.length)];
+                        for (int k = 0; k < 1000; k++) {
+                            int r = random.nextInt(ROWS);
+                            int c = random.nextInt(COLUMNS);
+                            if (A.getQuick(r, c) != expected[r][c]) {
+                                failed[threadID] = true;
+                            }
+                        }
+                        DoubleMatrix1D z = A.zMult(y, null);
+                        for (int i = 0; i < ROWS; i++) {
+                            if (Math.abs(z.getQuick(i) - zExpected.getQuick(i)) > TOL) {
+                                failed[threadID] = true;
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        for (int j = 0; j < nthreads; j++) {
+            assertFalse(failed[j]);
+        }
+    }
+
+    private void assertEquals(double[][] expected, double[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int r = 0; r < expected.length; r++) {
+            for (int c = 0; c < expected[r].length; c++) {
+                assertEquals(expected[r][c], actual[r][c], TOL);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Random;
+
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix2DTest;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SparseBlockRCDoubleMatrix2DTest extends DoubleMatrix2DTest {
+
+    public SparseBlockRCDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseBlockRCDoubleMatrix2D(NROWS, NCOLUMNS, 3, 2);
+        B = new SparseBlockRCDoubleMatrix2D(NROWS, NCOLUMNS, 3, 2);
+        Bt = new SparseBlockRCDoubleMatrix2D(NCOLUMNS, NROWS, 3, 2);
+    }
+
+    public void testZMultKernels() {
+        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        int oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setNumberOfThreads(4);
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        try {
+            SparseRCDoubleMatrix2D R = SparseSELLDoubleMatrix2DTest.randomRowCompressed(301, 203);
+            DoubleMatrix2D D = R.getDense();
+            for (int r = 1; r <= 4; r++) {
+                for (int c = 1; c <= 4; c++) {
+                    SparseBlockRCDoubleMatrix2D S = new SparseBlockRCDoubleMatrix2D(R, r, c);
+                    assertEquals(R.cardinality(), S.cardinality());
+                    SparseSELLDoubleMatrix2DTest.assertEquals(D.toArray(), S.getRowCompressed().toArray());
+                    SparseSELLDoubleMatrix2DTest.checkZMult(D, S);
+                }
+            }
+        } finally {
+            ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+            ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+        }
+    }
+
+    public void testChooseBlockSize() {
+        // dense 2 x 2 blocks
+        Random rand = new Random(1);
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(200, 200);
+        for (int r = 0; r < 200; r += 2) {
+            for (int k = 0; k < 3; k++) {
+                int c = 2 * rand.nextInt(100);
+                R.setQuick(r, c, 1);
+                R.setQuick(r, c + 1, 2);
+                R.setQuick(r + 1, c, 3);
+                R.setQuick(r + 1, c + 1, 4);
+            }
+        }
+        int[] blockSize = SparseBlockRCDoubleMatrix2D.chooseBlockSize(R);
+        assertEquals(2, blockSize[0]);
+        assertEquals(2, blockSize[1]);
+        SparseBlockRCDoubleMatrix2D S = new SparseBlockRCDoubleMatrix2D(R);
+        assertEquals(2, S.getBlockHeight());
+        assertEquals(2, S.getBlockWidth());
+        SparseSELLDoubleMatrix2DTest.checkZMult(R.getDense(), S);
+        // row-compressed matrices accept the blocked format
+        SparseRCDoubleMatrix2D C = new SparseRCDoubleMatrix2D(200, 200);
+        C.assign(S);
+        SparseSELLDoubleMatrix2DTest.assertEquals(R.toArray(), C.toArray());
+        // a diagonal matrix gains nothing from blocking
+        DoubleMatrix2D I = new SparseRCDoubleMatrix2D(50, 50);
+        for (int i = 0; i < 50; i++) {
+            I.setQuick(i, i, 1);
+        }
+        blockSize = SparseBlockRCDoubleMatrix2D.chooseBlockSize((SparseRCDoubleMatrix2D) I);
+        assertEquals(1, blockSize[0]);
+        assertEquals(1, blockSize[1]);
+    }
+}
@@ -0,0 +1,15 @@
+package cern.colt.matrix.tdouble.impl;
+
+public class SparseBlockRCDoubleMatrix2DViewTest extends SparseBlockRCDoubleMatrix2DTest {
+
+    public SparseBlockRCDoubleMatrix2DViewTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseBlockRCDoubleMatrix2D(NCOLUMNS, NROWS, 3, 2).viewDice();
+        B = new SparseBlockRCDoubleMatrix2D(NCOLUMNS, NROWS, 3, 2).viewDice();
+        Bt = new SparseBlockRCDoubleMatrix2D(NROWS, NCOLUMNS, 3, 2).viewDice();
+    }
+
+}
@@ -0,0 +1,205 @@
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Random;
+
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleFactory2D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix3D;
+import cern.colt.matrix.tdouble.DoubleMatrix3DTest;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SparseCSFDoubleMatrix3DTest extends DoubleMatrix3DTest {
+
+    public SparseCSFDoubleMatrix3DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseCSFDoubleMatrix3D(NSLICES, NROWS, NCOLUMNS);
+        B = new SparseCSFDoubleMatrix3D(NSLICES, NROWS, NCOLUMNS);
+    }
+
+    public void testCoordinateConstructor() {
+        int[] s = { 2, 0, 2, 0, 4, 2, 0 };
+        int[] r = { 1, 3, 1, 3, 0, 5, 2 };
+        int[] c = { 7, 1, 7, 1, 0, 2, 9 };
+        double[] v = { 1, 2, 3, -2, 5, 6, 7 };
+        SparseCSFDoubleMatrix3D X = new SparseCSFDoubleMatrix3D(NSLICES, NROWS, NCOLUMNS, s, r, c, v);
+        assertEquals(4, X.cardinality());
+        assertEquals(3, X.getNonEmptySlices());
+        assertEquals(4, X.getQuick(2, 1, 7), TOL);
+        assertEquals(0, X.getQuick(0, 3, 1), TOL);
+        assertEquals(5, X.getQuick(4, 0, 0), TOL);
+        assertEquals(6, X.getQuick(2, 5, 2), TOL);
+        assertEquals(7, X.getQuick(0, 2, 9), TOL);
+        try {
+            new SparseCSFDoubleMatrix3D(NSLICES, NROWS, NCOLUMNS, new int[] { NSLICES }, new int[] { 0 },
+                    new int[] { 0 }, new double[] { 1 });
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+
+        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        try {
+            for (int nthreads = 1; nthreads <= 8; nthreads *= 2) {
+                ConcurrencyUtils.setNumberOfThreads(nthreads);
+                DoubleMatrix3D Y = new SparseCSFDoubleMatrix3D(A);
+                assertEquals(A.cardinality(), Y.cardinality());
+                assertEquals(A.toArray(), Y.toArray());
+                assertEquals(A.toArray(), new SparseCSFDoubleMatrix3D(A.toArray()).toArray());
+                assertEquals(A.toArray(), new SparseCSFDoubleMatrix3D(new SparseDoubleMatrix3D(A.toArray()))
+                        .toArray());
+            }
+        } finally {
+            ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        }
+    }
+
+    public void testSetQuickRemove() {
+        SparseCSFDoubleMatrix3D X = new SparseCSFDoubleMatrix3D(NSLICES, NROWS, NCOLUMNS);
+        X.setQuick(3, 4, 5, 1);
+        X.setQuick(1, 4, 5, 2);
+        X.setQuick(3, 2, 5, 3);
+        X.setQuick(3, 4, 1, 4);
+        assertEquals(4, X.cardinality());
+        assertEquals(2, X.getNonEmptySlices());
+        X.setQuick(1, 4, 5, 0);
+        X.setQuick(3, 2, 5, 0);
+        assertEquals(2, X.cardinality());
+        assertEquals(1, X.getNonEmptySlices());
+        assertEquals(2, X.getFiberPointers()[1] - X.getFiberPointers()[0]);
+        assertEquals(1, X.getQuick(3, 4, 5), TOL);
+        assertEquals(4, X.getQuick(3, 4, 1), TOL);
+        X.trimToSize();
+        assertEquals(2, X.getValues().length);
+    }
+
+    public void testGetSlice() {
+        SparseCSFDoubleMatrix3D X = new SparseCSFDoubleMatrix3D(A);
+        for (int s = 0; s < NSLICES; s++) {
+            SparseRCDoubleMatrix2D S = X.getSlice(s);
+            for (int r = 0; r < NROWS; r++) {
+                for (int c = 0; c < NCOLUMNS; c++) {
+                    assertEquals(A.getQuick(s, r, c), S.getQuick(r, c), TOL);
+                }
+            }
+        }
+    }
+
+    public void testModeProduct() {
+        SparseCSFDoubleMatrix3D X = sparseRandom();
+        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        try {
+            for (int nthreads = 1; nthreads <= 8; nthreads *= 2) {
+                ConcurrencyUtils.setNumberOfThreads(nthreads);
+                for (int mode = 0; mode < 3; mode++) {
+                    int n = mode == 0 ? NSLICES : mode == 1 ? NROWS : NCOLUMNS;
+                    DoubleMatrix1D v = DoubleFactory1D.dense.random(2 * n).viewStrides(2);
+                    DoubleMatrix2D Yv = X.modeProduct(v, mode);
+                    DoubleMatrix2D U = DoubleFactory2D.dense.random(4, n);
+                    DoubleMatrix3D YU = X.modeProduct(U, mode);
+                    for (int s = 0; s < NSLICES; s++) {
+                        for (int r = 0; r < NROWS; r++) {
+                            for (int c = 0; c < NCOLUMNS; c++) {
+                                double x = X.getQuick(s, r, c);
+                                int i = mode == 0 ? s : mode == 1 ? r : c;
+                                if (mode == 0) {
+                                    Yv.setQuick(r, c, Yv.getQuick(r, c) - x * v.getQuick(i));
+                                } else if (mode == 1) {
+                                    Yv.setQuick(s, c, Yv.getQuick(s, c) - x * v.getQuick(i));
+                                } else {
+                                    Yv.setQuick(s, r, Yv.getQuick(s, r) - x * v.getQuick(i));
+                                }
+                                for (int j = 0; j < 4; j++) {
+                                    int s2 = mode == 0 ? j : s, r2 = mode == 1 ? j : r, c2 = mode == 2 ? j : c;
+                                    YU.setQuick(s2, r2, c2, YU.getQuick(s2, r2, c2) - x * U.getQuick(j, i));
+                                }
+                            }
+                        }
+                    }
+                    assertEquals(0, Yv.aggregate(cern.jet.math.tdouble.DoubleFunctions.max,
+                            cern.jet.math.tdouble.DoubleFunctions.abs), TOL);
+                    assertEquals(0, YU.aggregate(cern.jet.math.tdouble.DoubleFunctions.max,
+                            cern.jet.math.tdouble.DoubleFunctions.abs), TOL);
+                }
+            }
+        } finally {
+            ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        }
+        try {
+            X.modeProduct(DoubleFactory1D.dense.make(NROWS), 0);
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    public void testMttkrp() {
+        SparseCSFDoubleMatrix3D X = sparseRandom();
+        int rank = 3;
+        DoubleMatrix2D[] factors = { DoubleFactory2D.dense.random(NSLICES, rank),
+                DoubleFactory2D.dense.random(NROWS, rank),
+                DoubleFactory2D.dense.random(rank, NCOLUMNS).viewDice() };
+        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        try {
+            for (int nthreads = 1; nthreads <= 8; nthreads *= 2) {
+                ConcurrencyUtils.setNumberOfThreads(nthreads);
+                for (int mode = 0; mode < 3; mode++) {
+                    DoubleMatrix2D M = X.mttkrp(factors, mode);
+                    for (int s = 0; s < NSLICES; s++) {
+                        for (int r = 0; r < NROWS; r++) {
+                            for (int c = 0; c < NCOLUMNS; c++) {
+                                int[] index = { s, r, c };
+                                for (int j = 0; j < rank; j++) {
+                                    double product = X.getQuick(s, r, c);
+                                    for (int d = 0; d < 3; d++) {
+                                        if (d != mode)
+                                            product *= factors[d].getQuick(index[d], j);
+                                    }
+                                    M.setQuick(index[mode], j, M.getQuick(index[mode], j) - product);
+                                }
+                            }
+                        }
+                    }
+                    assertEquals(0, M.aggregate(cern.jet.math.tdouble.DoubleFunctions.max,
+                            cern.jet.math.tdouble.DoubleFunctions.abs), TOL);
+                }
+            }
+        } finally {
+            ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        }
+    }
+
+    private SparseCSFDoubleMatrix3D sparseRandom() {
+        Random random = new Random(0);
+        IntArrayList s = new IntArrayList();
+        IntArrayList r = new IntArrayList();
+        IntArrayList c = new IntArrayList();
+        DoubleArrayList v = new DoubleArrayList();
+        for (int k = 0; k < NSLICES * NROWS * NCOLUMNS / 4; k++) {
+            s.add(random.nextInt(NSLICES));
+            r.add(random.nextInt(NROWS));
+            c.add(random.nextInt(NCOLUMNS));
+            v.add(random.nextDouble());
+        }
+        s.trimToSize();
+        r.trimToSize();
+        c.trimToSize();
+        v.trimToSize();
+        return new SparseCSFDoubleMatrix3D(NSLICES, NROWS, NCOLUMNS, s.elements(), r.elements(), c.elements(), v
+                .elements());
+    }
+
+    private void assertEquals(double[][][] expected, double[][][] actual) {
+        for (int s = 0; s < expected.length; s++) {
+            for (int r = 0; r < expected[s].length; r++) {
+                for (int c = 0; c < expected[s][r].length; c++) {
+                    assertEquals(expected[s][r][c], actual[s][r][c], TOL);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.matrix.tdouble.DoubleMatrix2DTest;
+
+public class SparseColumnListDoubleMatrix2DTest extends DoubleMatrix2DTest {
+
+    public SparseColumnListDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseColumnListDoubleMatrix2D(NROWS, NCOLUMNS);
+        B = new SparseColumnListDoubleMatrix2D(NROWS, NCOLUMNS);
+        Bt = new SparseColumnListDoubleMatrix2D(NCOLUMNS, NROWS);
+    }
+
+}
@@ -0,0 +1,15 @@
+package cern.colt.matrix.tdouble.impl;
+
+public class SparseColumnListDoubleMatrix2DViewTest extends SparseColumnListDoubleMatrix2DTest {
+
+    public SparseColumnListDoubleMatrix2DViewTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseColumnListDoubleMatrix2D(NCOLUMNS, NROWS).viewDice();
+        B = new SparseColumnListDoubleMatrix2D(NCOLUMNS, NROWS).viewDice();
+        Bt = new SparseColumnListDoubleMatrix2D(NROWS, NCOLUMNS).viewDice();
+    }
+
+}
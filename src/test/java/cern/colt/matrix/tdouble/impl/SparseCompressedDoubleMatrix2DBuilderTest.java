@@ -0,0 +1,174 @@
+package cern.colt.matrix.tdouble.impl;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SparseCompressedDoubleMatrix2DBuilderTest extends TestCase {
+
+    private static final int NROWS = 37;
+
+    private static final int NCOLUMNS = 53;
+
+    private static final int NTHREADS = 4;
+
+    private static final int NTRIPLETS = 20000;
+
+    private static final double TOL = 1e-10;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    public SparseCompressedDoubleMatrix2DBuilderTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setNumberOfThreads(NTHREADS);
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testBuildRowCompressed() {
+        SparseCompressedDoubleMatrix2DBuilder builder = new SparseCompressedDoubleMatrix2DBuilder(NROWS, NCOLUMNS);
+        double[][] expected = fill(builder);
+        assertEquals(NTHREADS * NTRIPLETS, builder.size());
+        SparseRCDoubleMatrix2D A = builder.buildRowCompressed(false);
+        assertEquals(expected, A.toArray());
+        int[] rowPointers = A.getRowPointers();
+        int[] columnIndexes = A.getColumnIndexes();
+        assertEquals(rowPointers[NROWS], A.getValues().length);
+        for (int r = 0; r < NROWS; r++) {
+            for (int k = rowPointers[r] + 1; k < rowPointers[r + 1]; k++) {
+                assertTrue(columnIndexes[k - 1] < columnIndexes[k]);
+            }
+        }
+        // building leaves the triplets in place
+        assertEquals(expected, builder.buildRowCompressed(false).toArray());
+    }
+
+    public void testBuildColumnCompressed() {
+        SparseCompressedDoubleMatrix2DBuilder builder = new SparseCompressedDoubleMatrix2DBuilder(NROWS, NCOLUMNS);
+        double[][] expected = fill(builder);
+        SparseCCDoubleMatrix2D A = builder.buildColumnCompressed(false);
+        assertEquals(expected, A.toArray());
+        int[] columnPointers = A.getColumnPointers();
+        int[] rowIndexes = A.getRowIndexes();
+        assertEquals(columnPointers[NCOLUMNS], A.getValues().length);
+        for (int c = 0; c < NCOLUMNS; c++) {
+            for (int k = columnPointers[c] + 1; k < columnPointers[c + 1]; k++) {
+                assertTrue(rowIndexes[k - 1] < rowIndexes[k]);
+            }
+        }
+    }
+
+    public void testRemoveZeroes() {
+        SparseCompressedDoubleMatrix2DBuilder builder = new SparseCompressedDoubleMatrix2DBuilder(3, 4);
+        builder.add(new int[] { 2, 0, 2, 1, 0 }, new int[] { 3, 1, 3, 2, 1 }, new double[] { 1, 2, -1, 0, 5 });
+        SparseRCDoubleMatrix2D A = builder.buildRowCompressed(false);
+        assertEquals(3, A.getRowPointers()[3]);
+        assertEquals(7, A.getQuick(0, 1), TOL);
+        assertEquals(0, A.getQuick(2, 3), TOL);
+        A = builder.buildRowCompressed(true);
+        assertEquals(1, A.getRowPointers()[3]);
+        assertEquals(1, A.getValues().length);
+        assertEquals(7, A.getQuick(0, 1), TOL);
+        SparseCCDoubleMatrix2D B = builder.buildColumnCompressed(true);
+        assertEquals(1, B.getColumnPointers()[4]);
+        assertEquals(7, B.getQuick(0, 1), TOL);
+        builder.clear();
+        assertEquals(0, builder.size());
+        assertEquals(0, builder.buildColumnCompressed(true).cardinality());
+    }
+
+    public void testAddOutOfBounds() {
+        SparseCompressedDoubleMatrix2DBuilder builder = new SparseCompressedDoubleMatrix2DBuilder(NROWS, NCOLUMNS);
+        try {
+            builder.add(NROWS, 0, 1);
+            fail();
+        } catch (IndexOutOfBoundsException exc) {
+        }
+        try {
+            builder.add(0, -1, 1);
+            fail();
+        } catch (IndexOutOfBoundsException exc) {
+        }
+    }
+
+    public void testPoolThreadsReleaseTriplets() throws Exception {
+        SparseCompressedDoubleMatrix2DBuilder builder = new SparseCompressedDoubleMatrix2DBuilder(NROWS, NCOLUMNS);
+        fill(builder);
+        builder.buildRowCompressed(false);
+        Field field = SparseCompressedDoubleMatrix2DBuilder.class.getDeclaredField("buffers");
+        field.setAccessible(true);
+        List<?> buffers = (List<?>) field.get(builder);
+        WeakReference<?>[] references = new WeakReference[buffers.size()];
+        for (int i = 0; i < references.length; i++) {
+            references[i] = new WeakReference<Object>(buffers.get(i));
+        }
+        buffers = null;
+        builder = null;
+        // the pool threads are still alive, but must not keep the triplets
+        for (int i = 0; i < references.length; i++) {
+            for (int k = 0; k < 20 && references[i].get() != null; k++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertNull(references[i].get());
+        }
+    }
+
+    /*
+     * Adds random triplets from several threads and returns their dense sum.
+     */
+    private double[][] fill(final SparseCompressedDoubleMatrix2DBuilder builder) {
+        final double[][][] sums = new double[NTHREADS][NROWS][NCOLUMNS];
+        Future<?>[] futures = new Future[NTHREADS];
+        for (int j = 0; j < NTHREADS; j++) {
+            final double[][] sum = sums[j];
+            final long seed = j;
+            futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                public void run() {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < NTRIPLETS; i++) {
+                        int r = random.nextInt(NROWS);
+                        int c = random.nextInt(NCOLUMNS / 2) * 2;
+                        double value = random.nextInt(7) - 3;
+                        builder.add(r, c, value);
+                        sum[r][c] += value;
+                    }
+                }
+            });
+        }
+        ConcurrencyUtils.waitForCompletion(futures);
+        double[][] expected = new double[NROWS][NCOLUMNS];
+        for (int j = 0; j < NTHREADS; j++) {
+            for (int r = 0; r < NROWS; r++) {
+                for (int c = 0; c < NCOLUMNS; c++) {
+                    expected[r][c] += sums[j][r][c];
+                }
+            }
+        }
+        return expected;
+    }
+
+    private void assertEquals(double[][] expected, double[][] actual) {
+        for (int r = 0; r < expected.length; r++) {
+            for (int c = 0; c < expected[r].length; c++) {
+                assertEquals(expected[r][c], actual[r][c], TOL);
+            }
+        }
+    }
+}
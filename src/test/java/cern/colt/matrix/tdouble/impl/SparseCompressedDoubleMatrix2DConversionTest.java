@@ -0,0 +1,184 @@
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SparseCompressedDoubleMatrix2DConversionTest extends TestCase {
+
+    private static final int NROWS = 61;
+
+    private static final int NCOLUMNS = 29;
+
+    private static final double TOL = 1e-10;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private double[][] expected;
+
+    public SparseCompressedDoubleMatrix2DConversionTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setNumberOfThreads(4);
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        Random random = new Random(0);
+        expected = new double[NROWS][NCOLUMNS];
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                if (random.nextInt(3) == 0) {
+                    expected[r][c] = random.nextDouble();
+                }
+            }
+        }
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testDense() {
+        DenseDoubleMatrix2D D = new DenseDoubleMatrix2D(expected);
+        SparseRCDoubleMatrix2D R = SparseCompressedDoubleMatrix2DConversion.toRowCompressed(D);
+        assertTrue(R.hasColumnIndexesSorted());
+        assertEquals(expected, R.toArray());
+        assertEquals(expected, R.getDense().toArray());
+        SparseCCDoubleMatrix2D C = SparseCompressedDoubleMatrix2DConversion.toColumnCompressed(D);
+        assertTrue(C.hasRowIndexesSorted());
+        assertEquals(expected, C.toArray());
+        assertEquals(expected, C.getDense().toArray());
+        assertEquals(R.cardinality(), C.cardinality());
+        // views go through getQuick
+        double[][] transposed = D.viewDice().toArray();
+        assertEquals(transposed, SparseCompressedDoubleMatrix2DConversion.toRowCompressed(D.viewDice()).toArray());
+    }
+
+    public void testTranspose() {
+        SparseRCDoubleMatrix2D R = unsortedRowCompressed();
+        SparseCCDoubleMatrix2D C = R.getColumnCompressed();
+        assertEquals(expected, C.toArray());
+        checkSorted(C.getColumnPointers(), C.getRowIndexes(), NCOLUMNS);
+        SparseRCDoubleMatrix2D RR = C.getRowCompressed();
+        assertEquals(expected, RR.toArray());
+        checkSorted(RR.getRowPointers(), RR.getColumnIndexes(), NROWS);
+        double[][] transposed = new DenseDoubleMatrix2D(expected).viewDice().toArray();
+        assertEquals(transposed, R.getTranspose().toArray());
+        assertEquals(transposed, C.getTranspose().toArray());
+        assertEquals(expected, C.getTranspose().getTranspose().toArray());
+    }
+
+    public void testSortIndexes() {
+        SparseRCDoubleMatrix2D R = unsortedRowCompressed();
+        R.sortColumnIndexes();
+        assertTrue(R.hasColumnIndexesSorted());
+        checkSorted(R.getRowPointers(), R.getColumnIndexes(), NROWS);
+        assertEquals(expected, R.toArray());
+        SparseCCDoubleMatrix2D C = R.getColumnCompressed();
+        // reverse the row indexes of every column
+        int[] p = C.getColumnPointers();
+        int[] i = C.getRowIndexes();
+        double[] x = C.getValues();
+        for (int c = 0; c < NCOLUMNS; c++) {
+            for (int lo = p[c], hi = p[c + 1] - 1; lo < hi; lo++, hi--) {
+                int ti = i[lo];
+                i[lo] = i[hi];
+                i[hi] = ti;
+                double tx = x[lo];
+                x[lo] = x[hi];
+                x[hi] = tx;
+            }
+        }
+        C.sortRowIndexes();
+        checkSorted(p, i, NCOLUMNS);
+        assertEquals(expected, C.toArray());
+    }
+
+    /*
+     * Builds the expected matrix with the column indexes of every row in
+     * decreasing order.
+     */
+    public void testAssignCompressedSources() {
+        DenseDoubleMatrix2D D = new DenseDoubleMatrix2D(expected);
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(expected);
+        DoubleMatrix2D[] sources = { new SparseSELLDoubleMatrix2D(R), new SparseBlockRCDoubleMatrix2D(R, 2, 3),
+                new SparseRowListDoubleMatrix2D(D), new SparseColumnListDoubleMatrix2D(D),
+                new FrozenSparseRCDoubleMatrix2D(D) };
+        for (int i = 0; i < sources.length; i++) {
+            assertTrue(sources[i] instanceof CompressedDoubleMatrix2DSource);
+            checkAssign(sources[i], expected);
+        }
+        // a symmetric matrix needs a square source
+        DoubleMatrix2D S = new DenseDoubleMatrix2D(NCOLUMNS, NCOLUMNS);
+        S.assign(D.viewPart(0, 0, NCOLUMNS, NCOLUMNS));
+        S.assign(S.copy().viewDice(), cern.jet.math.tdouble.DoubleFunctions.plus);
+        checkAssign(new SparseSymmetricDoubleMatrix2D(S), S.toArray());
+    }
+
+    /**
+     * Assigns the source to row- and column-compressed matrices, which must
+     * not share storage with it.
+     */
+    private void checkAssign(DoubleMatrix2D source, double[][] values) {
+        int rows = values.length;
+        int columns = values[0].length;
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(rows, columns);
+        R.assign(source);
+        assertEquals(values, R.toArray());
+        SparseCCDoubleMatrix2D C = new SparseCCDoubleMatrix2D(rows, columns);
+        C.assign(source);
+        assertEquals(values, C.toArray());
+        R.assign(cern.jet.math.tdouble.DoubleFunctions.neg);
+        C.assign(cern.jet.math.tdouble.DoubleFunctions.neg);
+        assertEquals(values, source.toArray());
+    }
+
+    private SparseRCDoubleMatrix2D unsortedRowCompressed() {
+        int[] rowPointers = new int[NROWS + 1];
+        int nnz = 0;
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                if (expected[r][c] != 0) {
+                    nnz++;
+                }
+            }
+            rowPointers[r + 1] = nnz;
+        }
+        int[] columnIndexes = new int[nnz];
+        double[] values = new double[nnz];
+        int k = 0;
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = NCOLUMNS; --c >= 0;) {
+                if (expected[r][c] != 0) {
+                    columnIndexes[k] = c;
+                    values[k++] = expected[r][c];
+                }
+            }
+        }
+        return new SparseRCDoubleMatrix2D(NROWS, NCOLUMNS, rowPointers, columnIndexes, values);
+    }
+
+    private void checkSorted(int[] pointers, int[] indexes, int n) {
+        for (int s = 0; s < n; s++) {
+            for (int k = pointers[s] + 1; k < pointers[s + 1]; k++) {
+                assertTrue(indexes[k - 1] < indexes[k]);
+            }
+        }
+    }
+
+    private void assertEquals(double[][] expected, double[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int r = 0; r < expected.length; r++) {
+            for (int c = 0; c < expected[r].length; c++) {
+                assertEquals(expected[r][c], actual[r][c], TOL);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.map.tdouble.RobinHoodLongDoubleHashMap;
+
+public class SparseDoubleMatrix2DRobinHoodTest extends SparseDoubleMatrix2DTest {
+
+    public SparseDoubleMatrix2DRobinHoodTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseDoubleMatrix2D(NROWS, NCOLUMNS, new RobinHoodLongDoubleHashMap());
+        B = new SparseDoubleMatrix2D(NROWS, NCOLUMNS, new RobinHoodLongDoubleHashMap());
+        Bt = new SparseDoubleMatrix2D(NCOLUMNS, NROWS, new RobinHoodLongDoubleHashMap());
+    }
+}
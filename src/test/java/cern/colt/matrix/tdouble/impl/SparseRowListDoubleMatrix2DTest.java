@@ -0,0 +1,54 @@
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.matrix.tdouble.DoubleMatrix2DTest;
+
+public class SparseRowListDoubleMatrix2DTest extends DoubleMatrix2DTest {
+
+    public SparseRowListDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseRowListDoubleMatrix2D(NROWS, NCOLUMNS);
+        B = new SparseRowListDoubleMatrix2D(NROWS, NCOLUMNS);
+        Bt = new SparseRowListDoubleMatrix2D(NCOLUMNS, NROWS);
+    }
+
+    public void testSetQuickOrder() {
+        SparseRowListDoubleMatrix2D M = new SparseRowListDoubleMatrix2D(3, 50);
+        for (int c = 49; c >= 0; c -= 3) {
+            M.setQuick(1, c, c + 1);
+        }
+        assertEquals(17, M.getRowSize(1));
+        int[] indexes = M.getColumnIndexes(1);
+        for (int k = 1; k < M.getRowSize(1); k++) {
+            assertTrue(indexes[k - 1] < indexes[k]);
+        }
+        M.setQuick(1, 1, 0);
+        M.setQuick(1, 2, 0);
+        assertEquals(16, M.getRowSize(1));
+        assertEquals(0, M.getQuick(1, 1), TOL);
+        assertEquals(5, M.getQuick(1, 4), TOL);
+        M.trimToSize();
+        assertEquals(16, M.getColumnIndexes(1).length);
+        assertNull(M.getColumnIndexes(0));
+
+        SparseRCDoubleMatrix2D R = M.getRowCompressed();
+        assertTrue(R.hasColumnIndexesSorted());
+        assertEquals(16, R.cardinality());
+        for (int c = 0; c < 50; c++) {
+            assertEquals(M.getQuick(1, c), R.getQuick(1, c), TOL);
+        }
+        assertEquals(16, new SparseRowListDoubleMatrix2D(R).cardinality());
+        assertEquals(16, new SparseRowListDoubleMatrix2D(M.getColumnCompressed()).cardinality());
+
+        M.setRow(2, new int[] { 3, 7 }, new double[] { 1, 2 }, 2);
+        assertEquals(2, M.getQuick(2, 7), TOL);
+        try {
+            M.setRow(2, new int[] { 7, 3 }, new double[] { 1, 2 }, 2);
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+}
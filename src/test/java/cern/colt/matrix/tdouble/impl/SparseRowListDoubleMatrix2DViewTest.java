@@ -0,0 +1,15 @@
+package cern.colt.matrix.tdouble.impl;
+
+public class SparseRowListDoubleMatrix2DViewTest extends SparseRowListDoubleMatrix2DTest {
+
+    public SparseRowListDoubleMatrix2DViewTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseRowListDoubleMatrix2D(NCOLUMNS, NROWS).viewDice();
+        B = new SparseRowListDoubleMatrix2D(NCOLUMNS, NROWS).viewDice();
+        Bt = new SparseRowListDoubleMatrix2D(NROWS, NCOLUMNS).viewDice();
+    }
+
+}
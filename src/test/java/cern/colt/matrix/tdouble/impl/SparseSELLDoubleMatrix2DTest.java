@@ -0,0 +1,103 @@
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Random;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix2DTest;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SparseSELLDoubleMatrix2DTest extends DoubleMatrix2DTest {
+
+    public SparseSELLDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseSELLDoubleMatrix2D(NROWS, NCOLUMNS);
+        B = new SparseSELLDoubleMatrix2D(NROWS, NCOLUMNS);
+        Bt = new SparseSELLDoubleMatrix2D(NCOLUMNS, NROWS);
+    }
+
+    public void testZMultKernels() {
+        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        int oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setNumberOfThreads(4);
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        try {
+            SparseRCDoubleMatrix2D R = randomRowCompressed(301, 203);
+            DoubleMatrix2D D = R.getDense();
+            int[][] sizes = { { 1, 1 }, { 4, 4 }, { 8, 256 }, { 3, 12 }, { 32, 64 } };
+            for (int s = 0; s < sizes.length; s++) {
+                SparseSELLDoubleMatrix2D S = new SparseSELLDoubleMatrix2D(R, sizes[s][0], sizes[s][1]);
+                assertEquals(R.cardinality(), S.cardinality());
+                assertEquals(D.toArray(), S.getRowCompressed().toArray());
+                checkZMult(D, S);
+            }
+            // row-compressed matrices accept the sliced format
+            SparseRCDoubleMatrix2D C = new SparseRCDoubleMatrix2D(R.rows(), R.columns());
+            C.assign(new SparseSELLDoubleMatrix2D(R));
+            assertEquals(D.toArray(), C.toArray());
+            try {
+                new SparseSELLDoubleMatrix2D(R, 8, 12);
+                fail();
+            } catch (IllegalArgumentException exc) {
+            }
+        } finally {
+            ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+            ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+        }
+    }
+
+    /*
+     * Returns a random matrix with a few long rows, so that the row lengths
+     * are uneven.
+     */
+    static SparseRCDoubleMatrix2D randomRowCompressed(int rows, int columns) {
+        Random rand = new Random(1);
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(rows, columns);
+        for (int r = 0; r < rows; r++) {
+            int nz = (r % 37 == 0) ? columns / 2 : rand.nextInt(12);
+            for (int k = 0; k < nz; k++) {
+                R.setQuick(r, rand.nextInt(columns), rand.nextDouble());
+            }
+        }
+        return R;
+    }
+
+    /*
+     * Compares zMult of both matrices for both transposes, several alpha and
+     * beta and strided vectors.
+     */
+    static void checkZMult(DoubleMatrix2D expected, DoubleMatrix2D actual) {
+        double[][] alphaBeta = { { 1, 0 }, { 2.5, 0 }, { -1, 1 }, { 0.5, -3 } };
+        for (int t = 0; t < 2; t++) {
+            boolean transposeA = (t == 1);
+            int n = transposeA ? expected.rows() : expected.columns();
+            int m = transposeA ? expected.columns() : expected.rows();
+            DoubleMatrix1D y = DoubleFactory1D.dense.random(2 * n).viewStrides(2);
+            DoubleMatrix1D z = DoubleFactory1D.dense.random(2 * m + 1).viewPart(1, 2 * m).viewStrides(2);
+            for (int k = 0; k < alphaBeta.length; k++) {
+                double alpha = alphaBeta[k][0];
+                double beta = alphaBeta[k][1];
+                DoubleMatrix1D zExpected = expected.zMult(y, z.copy(), alpha, beta, transposeA);
+                DoubleMatrix1D zStrided = actual.zMult(y, z.copy(), alpha, beta, transposeA);
+                DoubleMatrix1D zContiguous = actual.zMult(y.copy(), z.copy(), alpha, beta, transposeA);
+                for (int i = 0; i < m; i++) {
+                    assertEquals(zExpected.getQuick(i), zStrided.getQuick(i), 1e-10);
+                    assertEquals(zExpected.getQuick(i), zContiguous.getQuick(i), 1e-10);
+                }
+            }
+        }
+    }
+
+    static void assertEquals(double[][] expected, double[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int r = 0; r < expected.length; r++) {
+            for (int c = 0; c < expected[r].length; c++) {
+                assertEquals(expected[r][c], actual[r][c], 1e-10);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package cern.colt.matrix.tdouble.impl;
+
+public class SparseSELLDoubleMatrix2DViewTest extends SparseSELLDoubleMatrix2DTest {
+
+    public SparseSELLDoubleMatrix2DViewTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseSELLDoubleMatrix2D(NCOLUMNS, NROWS).viewDice();
+        B = new SparseSELLDoubleMatrix2D(NCOLUMNS, NROWS).viewDice();
+        Bt = new SparseSELLDoubleMatrix2D(NROWS, NCOLUMNS).viewDice();
+    }
+
+}
@@ -0,0 +1,202 @@
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.algo.decomposition.SparseDoubleCholeskyDecomposition;
+import cern.colt.matrix.tdouble.algo.solver.DoubleCG;
+import cern.colt.matrix.tdouble.algo.solver.preconditioner.DoubleICC;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SparseSymmetricDoubleMatrix2DTest extends TestCase {
+
+    private static final int N = 97;
+
+    private static final double TOL = 1e-10;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private double[][] expected;
+
+    public SparseSymmetricDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setNumberOfThreads(4);
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        Random random = new Random(0);
+        expected = new double[N][N];
+        for (int k = 0; k < 4 * N; k++) {
+            int i = random.nextInt(N);
+            int j = random.nextInt(N);
+            expected[i][j] = expected[j][i] = random.nextDouble();
+        }
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testConstructors() {
+        DenseDoubleMatrix2D D = new DenseDoubleMatrix2D(expected);
+        SparseRCDoubleMatrix2D R = new SparseRCDoubleMatrix2D(expected);
+        DoubleMatrix2D[] sources = { D, R, R.getColumnCompressed() };
+        for (int s = 0; s < sources.length; s++) {
+            SparseSymmetricDoubleMatrix2D A = new SparseSymmetricDoubleMatrix2D(sources[s]);
+            assertEquals(expected, A.toArray());
+            assertEquals(R.cardinality(), A.cardinality());
+            checkUpperTriangle(A);
+        }
+        SparseSymmetricDoubleMatrix2D A = new SparseSymmetricDoubleMatrix2D(R);
+        assertEquals(expected, A.getRowCompressed().toArray());
+        assertEquals(expected, A.getColumnCompressed().toArray());
+        assertEquals(expected, new SparseRCDoubleMatrix2D(N, N).assign(A).toArray());
+        assertEquals(expected, new SparseCCDoubleMatrix2D(N, N).assign(A).toArray());
+        assertEquals(expected, new SparseSymmetricDoubleMatrix2D(N).assign(A).toArray());
+        // the strictly lower triangle is ignored
+        DenseDoubleMatrix2D lower = new DenseDoubleMatrix2D(N, N);
+        lower.setQuick(5, 2, 1);
+        assertEquals(0, new SparseSymmetricDoubleMatrix2D(lower).cardinality());
+
+        // unsorted row indexes are sorted
+        A = new SparseSymmetricDoubleMatrix2D(3, new int[] { 0, 1, 3, 5 }, new int[] { 0, 1, 0, 2, 1 }, new double[] {
+                1, 2, 3, 4, 5 });
+        checkUpperTriangle(A);
+        assertEquals(3, A.getQuick(1, 0), TOL);
+        assertEquals(5, A.getQuick(2, 1), TOL);
+        try {
+            new SparseSymmetricDoubleMatrix2D(2, new int[] { 0, 1, 1 }, new int[] { 1 }, new double[] { 1 });
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    public void testSetQuick() {
+        SparseSymmetricDoubleMatrix2D A = new SparseSymmetricDoubleMatrix2D(N);
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                if (expected[i][j] != 0) {
+                    A.setQuick(i, j, expected[i][j]);
+                }
+            }
+        }
+        assertEquals(expected, A.toArray());
+        checkUpperTriangle(A);
+        A.setQuick(7, 3, 0);
+        assertEquals(0, A.getQuick(3, 7), TOL);
+        A.setQuick(7, 3, 2);
+        assertEquals(2, A.getQuick(3, 7), TOL);
+        checkUpperTriangle(A);
+    }
+
+    public void testZMult() {
+        SparseSymmetricDoubleMatrix2D A = new SparseSymmetricDoubleMatrix2D(new DenseDoubleMatrix2D(expected));
+        DenseDoubleMatrix2D D = new DenseDoubleMatrix2D(expected);
+        double[][] alphaBeta = { { 1, 0 }, { 2.5, 0 }, { -1, 1 }, { 0.5, -3 } };
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            DoubleMatrix1D y = DoubleFactory1D.dense.random(2 * N).viewStrides(2);
+            DoubleMatrix1D z = DoubleFactory1D.dense.random(2 * N + 1).viewPart(1, 2 * N).viewStrides(2);
+            for (int k = 0; k < alphaBeta.length; k++) {
+                double alpha = alphaBeta[k][0];
+                double beta = alphaBeta[k][1];
+                DoubleMatrix1D zExpected = D.zMult(y, z.copy(), alpha, beta, false);
+                DoubleMatrix1D zActual = A.zMult(y, z.copy(), alpha, beta, false);
+                DoubleMatrix1D zTransposed = A.zMult(y.copy(), z.copy(), alpha, beta, true);
+                for (int i = 0; i < N; i++) {
+                    assertEquals(zExpected.getQuick(i), zActual.getQuick(i), TOL);
+                    assertEquals(zExpected.getQuick(i), zTransposed.getQuick(i), TOL);
+                }
+            }
+        }
+    }
+
+    public void testCholesky() {
+        SparseRCDoubleMatrix2D R = laplacian(6);
+        SparseSymmetricDoubleMatrix2D A = new SparseSymmetricDoubleMatrix2D(R);
+        assertEquals(R.cardinality(), A.cardinality());
+        DoubleMatrix1D b = DoubleFactory1D.dense.random(R.rows());
+        for (int order = 0; order <= 1; order++) {
+            DoubleMatrix1D expected = b.copy();
+            new SparseDoubleCholeskyDecomposition(R, order).solve(expected);
+            DoubleMatrix1D actual = b.copy();
+            new SparseDoubleCholeskyDecomposition(A, order).solve(actual);
+            for (int i = 0; i < b.size(); i++) {
+                assertEquals(expected.getQuick(i), actual.getQuick(i), TOL);
+            }
+        }
+    }
+
+    public void testSolver() throws Exception {
+        SparseSymmetricDoubleMatrix2D A = new SparseSymmetricDoubleMatrix2D(laplacian(6));
+        int n = A.rows();
+        DoubleMatrix1D b = DoubleFactory1D.dense.random(n);
+        DoubleCG solver = new DoubleCG(new DenseDoubleMatrix1D(n));
+        DoubleICC M = new DoubleICC(n);
+        M.setMatrix(A);
+        solver.setPreconditioner(M);
+        DoubleMatrix1D x = solver.solve(A, b, new DenseDoubleMatrix1D(n));
+        DoubleMatrix1D r = A.zMult(x, b.copy(), 1, -1, false);
+        assertTrue(Math.sqrt(r.zDotProduct(r)) < 1e-3 * Math.sqrt(b.zDotProduct(b)));
+    }
+
+    /*
+     * Returns the 7-point Laplacian of a side x side x side grid.
+     */
+    private SparseRCDoubleMatrix2D laplacian(int side) {
+        int n = side * side * side;
+        SparseRCDoubleMatrix2D A = new SparseRCDoubleMatrix2D(n, n);
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                for (int l = 0; l < side; l++) {
+                    int k = (i * side + j) * side + l;
+                    A.setQuick(k, k, 6);
+                    if (i > 0) {
+                        A.setQuick(k, k - side * side, -1);
+                        A.setQuick(k - side * side, k, -1);
+                    }
+                    if (j > 0) {
+                        A.setQuick(k, k - side, -1);
+                        A.setQuick(k - side, k, -1);
+                    }
+                    if (l > 0) {
+                        A.setQuick(k, k - 1, -1);
+                        A.setQuick(k - 1, k, -1);
+                    }
+                }
+            }
+        }
+        return A;
+    }
+
+    private void checkUpperTriangle(SparseSymmetricDoubleMatrix2D A) {
+        int[] p = A.getColumnPointers();
+        int[] i = A.getRowIndexes();
+        for (int j = 0; j < A.columns(); j++) {
+            for (int k = p[j]; k < p[j + 1]; k++) {
+                assertTrue(i[k] <= j);
+                if (k > p[j]) {
+                    assertTrue(i[k - 1] < i[k]);
+                }
+            }
+        }
+    }
+
+    private void assertEquals(double[][] expected, double[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int r = 0; r < expected.length; r++) {
+            for (int c = 0; c < expected[r].length; c++) {
+                assertEquals(expected[r][c], actual[r][c], TOL);
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@ import cern.colt.matrix.tfcomplex.impl.DenseFComplexMatrix3DTest;
 import cern.colt.matrix.tfcomplex.impl.DenseFComplexMatrix3DViewTest;
 import cern.colt.matrix.tfcomplex.impl.DiagonalFComplexMatrix2DTest;
 import cern.colt.matrix.tfcomplex.impl.DiagonalFComplexMatrix2DViewTest;
+import cern.colt.matrix.tfcomplex.impl.FComplexMatrix2DMultiplicationTest;
 import cern.colt.matrix.tfcomplex.impl.LargeDenseFComplexMatrix2DTest;
 import cern.colt.matrix.tfcomplex.impl.LargeDenseFComplexMatrix2DViewTest;
 import cern.colt.matrix.tfcomplex.impl.LargeDenseFComplexMatrix3DTest;
@@ -59,6 +60,7 @@ public class AllFComplexMatrixTests {
         suite.addTestSuite(SparseFComplexMatrix2DViewTest.class);
         suite.addTestSuite(DiagonalFComplexMatrix2DTest.class);
         suite.addTestSuite(DiagonalFComplexMatrix2DViewTest.class);
+        suite.addTestSuite(FComplexMatrix2DMultiplicationTest.class);
 
         suite.addTestSuite(DenseFComplexMatrix3DTest.class);
         suite.addTestSuite(DenseFComplexMatrix3DViewTest.class);
@@ -80,4 +80,57 @@ public class DenseColumnFComplexMatrix2DTest extends FComplexMatrix2DTest {
             }
         }
     }
+
+    public void testAssignDenseFComplexMatrix2D() {
+        DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(A.rows(), A.columns());
+        C.assign(B);
+        A.assign(C);
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(B.getQuick(r, c), A.getQuick(r, c), TOL);
+            }
+        }
+        // views of a larger matrix of the other layout, in both directions
+        DenseFComplexMatrix2D D = new DenseFComplexMatrix2D(A.rows() + 3, A.columns() + 2);
+        FComplexMatrix2D V = D.viewPart(2, 1, A.rows(), A.columns());
+        V.assign(Bt.viewDice());
+        A.viewDice().assign(V.viewDice());
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(Bt.getQuick(c, r), V.getQuick(r, c), TOL);
+                assertEquals(Bt.getQuick(c, r), A.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    public void testToArrayView() {
+        FComplexMatrix2D V = Bt.viewDice().viewPart(1, 2, A.rows() - 3, A.columns() - 4);
+        float[][] array = V.toArray();
+        assertEquals(V.rows(), array.length);
+        for (int r = 0; r < V.rows(); r++) {
+            assertEquals(2 * V.columns(), array[r].length);
+            for (int c = 0; c < V.columns(); c++) {
+                assertEquals(V.getQuick(r, c)[0], array[r][2 * c], TOL);
+                assertEquals(V.getQuick(r, c)[1], array[r][2 * c + 1], TOL);
+            }
+        }
+    }
+
+    public void testTransposeInPlace() {
+        int n = Math.min(A.rows(), A.columns());
+        DenseColumnFComplexMatrix2D S = (DenseColumnFComplexMatrix2D) A.viewPart(1, 0, n - 1, n - 1);
+        FComplexMatrix2D Scopy = S.copy();
+        S.transposeInPlace();
+        for (int r = 0; r < n - 1; r++) {
+            for (int c = 0; c < n - 1; c++) {
+                assertEquals(Scopy.getQuick(c, r), S.getQuick(r, c), TOL);
+            }
+        }
+        try {
+            ((DenseColumnFComplexMatrix2D) A).transposeInPlace();
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
 }
@@ -0,0 +1,155 @@
+package cern.colt.matrix.tfcomplex.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tfcomplex.FComplexMatrix2D;
+import cern.jet.math.tfcomplex.FComplexFunctions;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class FComplexMatrix2DMultiplicationTest extends TestCase {
+
+    // not multiples of the kernel and of the blocks
+    private static final int M = 71;
+
+    private static final int N = 263;
+
+    private static final int P = 517;
+
+    private static final float TOL = 1e-3f;
+
+    private static final float[] ALPHA = { 1.5f, -0.5f };
+
+    private static final float[] BETA = { 0.25f, 2 };
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private Random random;
+
+    public FComplexMatrix2DMultiplicationTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        random = new Random(0);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testLayouts() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            for (int method = 0; method < 2; method++) {
+                boolean threeM = method == 1;
+                check(random(new DenseFComplexMatrix2D(M, N)), random(new DenseColumnFComplexMatrix2D(N, P)),
+                        random(new DenseFComplexMatrix2D(M, P)), false, false, threeM);
+                check(random(new DenseLargeFComplexMatrix2D(M, N)), random(new DenseFComplexMatrix2D(N, P)),
+                        random(new DenseColumnFComplexMatrix2D(M, P)), false, false, threeM);
+                check(random(new DenseFComplexMatrix2D(M, N)), random(new SparseFComplexMatrix2D(N, P)),
+                        random(new SparseFComplexMatrix2D(M, P)), false, false, threeM);
+            }
+        }
+    }
+
+    public void testConjugateTranspose() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        for (int method = 0; method < 2; method++) {
+            boolean threeM = method == 1;
+            check(random(new DenseColumnFComplexMatrix2D(N, M)), random(new DenseFComplexMatrix2D(N, P)),
+                    random(new DenseFComplexMatrix2D(M, P)), true, false, threeM);
+            check(random(new DenseFComplexMatrix2D(M, N)), random(new DenseFComplexMatrix2D(P, N)),
+                    random(new DenseFComplexMatrix2D(M, P)), false, true, threeM);
+            check(random(new DenseLargeFComplexMatrix2D(N, M)), random(new DenseFComplexMatrix2D(P, N)).viewRowFlip(),
+                    random(new DenseFComplexMatrix2D(M, P)), true, true, threeM);
+        }
+        // through zMult
+        FComplexMatrix2D A = random(new DenseFComplexMatrix2D(N, M));
+        FComplexMatrix2D B = random(new DenseColumnFComplexMatrix2D(P, N));
+        FComplexMatrix2D C = random(new DenseFComplexMatrix2D(M, P));
+        FComplexMatrix2D expected = expected(A.getConjugateTranspose(), B.getConjugateTranspose(), C);
+        A.zMult(B, C, ALPHA, BETA, true, true);
+        assertEquals(expected, C);
+    }
+
+    public void testViews() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        int[] rows = reverse(M);
+        int[] middle = reverse(N);
+        int[] columns = reverse(P);
+        FComplexMatrix2D large = new DenseFComplexMatrix2D(M + 2, P + 3);
+        check(random(new DenseFComplexMatrix2D(M, N)).viewSelection(rows, middle), random(
+                new DenseColumnFComplexMatrix2D(N, P)).viewSelection(middle, columns), random(large.viewPart(2, 3,
+                M, P)), false, false, true);
+    }
+
+    public void testEmpty() {
+        FComplexMatrix2D C = random(new DenseFComplexMatrix2D(M, P));
+        FComplexMatrix2D expected = C.copy().assign(FComplexFunctions.mult(BETA));
+        FComplexMatrix2DMultiplication.zMult(new DenseFComplexMatrix2D(M, 0), new DenseFComplexMatrix2D(0, P), C,
+                ALPHA, BETA, false, false);
+        assertEquals(expected, C);
+    }
+
+    private void check(FComplexMatrix2D A, FComplexMatrix2D B, FComplexMatrix2D C, boolean transposeA,
+            boolean transposeB, boolean threeM) {
+        FComplexMatrix2D expected = expected(transposeA ? A.getConjugateTranspose() : A,
+                transposeB ? B.getConjugateTranspose() : B, C);
+        FComplexMatrix2DMultiplication.zMult(A, B, C, ALPHA, BETA, transposeA, transposeB, threeM);
+        assertEquals(expected, C);
+    }
+
+    private FComplexMatrix2D expected(FComplexMatrix2D A, FComplexMatrix2D B, FComplexMatrix2D C) {
+        FComplexMatrix2D expected = new DenseFComplexMatrix2D(C.rows(), C.columns());
+        for (int i = 0; i < C.rows(); i++) {
+            for (int j = 0; j < C.columns(); j++) {
+                float re = 0, im = 0;
+                for (int k = 0; k < A.columns(); k++) {
+                    float[] a = A.getQuick(i, k);
+                    float[] b = B.getQuick(k, j);
+                    re += a[0] * b[0] - a[1] * b[1];
+                    im += a[0] * b[1] + a[1] * b[0];
+                }
+                float[] c = C.getQuick(i, j);
+                expected.setQuick(i, j, ALPHA[0] * re - ALPHA[1] * im + BETA[0] * c[0] - BETA[1] * c[1], ALPHA[1]
+                        * re + ALPHA[0] * im + BETA[1] * c[0] + BETA[0] * c[1]);
+            }
+        }
+        return expected;
+    }
+
+    private void assertEquals(FComplexMatrix2D expected, FComplexMatrix2D actual) {
+        for (int i = 0; i < expected.rows(); i++) {
+            for (int j = 0; j < expected.columns(); j++) {
+                float[] e = expected.getQuick(i, j);
+                float[] a = actual.getQuick(i, j);
+                assertEquals(e[0], a[0], TOL);
+                assertEquals(e[1], a[1], TOL);
+            }
+        }
+    }
+
+    private FComplexMatrix2D random(FComplexMatrix2D A) {
+        for (int i = 0; i < A.rows(); i++) {
+            for (int j = 0; j < A.columns(); j++) {
+                A.setQuick(i, j, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+            }
+        }
+        return A;
+    }
+
+    private static int[] reverse(int size) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = size - 1 - i;
+        }
+        return indexes;
+    }
+}
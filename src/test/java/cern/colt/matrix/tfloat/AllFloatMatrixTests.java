@@ -5,6 +5,9 @@ import junit.framework.TestSuite;
 import cern.colt.matrix.tfloat.algo.solver.AllFloatMatrixSolverTests;
 import cern.colt.matrix.tfloat.impl.DenseColumnFloatMatrix2DTest;
 import cern.colt.matrix.tfloat.impl.DenseColumnFloatMatrix2DViewTest;
+import cern.colt.matrix.tfloat.impl.DenseFloat16Matrix1DTest;
+import cern.colt.matrix.tfloat.impl.DenseFloat16Matrix2DTest;
+import cern.colt.matrix.tfloat.impl.DenseFloat16Matrix2DViewTest;
 import cern.colt.matrix.tfloat.impl.DenseFloatMatrix1DTest;
 import cern.colt.matrix.tfloat.impl.DenseFloatMatrix1DViewTest;
 import cern.colt.matrix.tfloat.impl.DenseFloatMatrix2DTest;
@@ -38,6 +41,7 @@ public class AllFloatMatrixTests {
         TestSuite suite = new TestSuite("cern.colt.matrix.tfloat tests");
         suite.addTestSuite(DenseFloatMatrix1DTest.class);
         suite.addTestSuite(DenseFloatMatrix1DViewTest.class);
+        suite.addTestSuite(DenseFloat16Matrix1DTest.class);
         suite.addTestSuite(SparseFloatMatrix1DTest.class);
         suite.addTestSuite(SparseFloatMatrix1DViewTest.class);
 
@@ -47,6 +51,8 @@ public class AllFloatMatrixTests {
         suite.addTestSuite(DenseColumnFloatMatrix2DViewTest.class);
         suite.addTestSuite(DenseLargeFloatMatrix2DTest.class);
         suite.addTestSuite(DenseLargeFloatMatrix2DViewTest.class);
+        suite.addTestSuite(DenseFloat16Matrix2DTest.class);
+        suite.addTestSuite(DenseFloat16Matrix2DViewTest.class);
 
         suite.addTestSuite(SparseFloatMatrix2DTest.class);
         suite.addTestSuite(SparseFloatMatrix2DViewTest.class);
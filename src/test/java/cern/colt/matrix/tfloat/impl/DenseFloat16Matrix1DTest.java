@@ -0,0 +1,89 @@
+package cern.colt.matrix.tfloat.impl;
+
+import cern.colt.list.tfloat.FloatArrayList;
+import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.Float16Format;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tfloat.FloatMatrix1DTest;
+import cern.jet.math.tfloat.FloatFunctions;
+
+public class DenseFloat16Matrix1DTest extends FloatMatrix1DTest {
+
+    public DenseFloat16Matrix1DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new DenseFloat16Matrix1D(SIZE, Float16Format.Half);
+        B = new DenseFloat16Matrix1D(SIZE, Float16Format.Half);
+    }
+
+    protected void populateMatrices() {
+        super.populateMatrices();
+        // half precision keeps about 3 significant digits; keep the quotients
+        // of the elements small
+        A.assign(FloatFunctions.plus(0.5f));
+        B.assign(FloatFunctions.plus(0.5f));
+        TOL = 1e-2f;
+    }
+
+    public void testGetNegativeValuesIntArrayListFloatArrayList() {
+        // values that half precision holds exactly
+        A.assign(0);
+        A.setQuick((int) A.size() / 3, -0.75f);
+        A.setQuick((int) A.size() / 2, -0.125f);
+        IntArrayList indexList = new IntArrayList();
+        FloatArrayList valueList = new FloatArrayList();
+        A.getNegativeValues(indexList, valueList);
+        assertEquals(2, valueList.size());
+        assertTrue(indexList.contains((int) A.size() / 3));
+        assertTrue(indexList.contains((int) A.size() / 2));
+        assertTrue(valueList.contains(-0.75f));
+        assertTrue(valueList.contains(-0.125f));
+    }
+
+    public void testGetNonZerosIntArrayListFloatArrayList() {
+        // values that half precision holds exactly
+        A.assign(0);
+        A.setQuick((int) A.size() / 3, 0.75f);
+        A.setQuick((int) A.size() / 2, 0.125f);
+        IntArrayList indexList = new IntArrayList();
+        FloatArrayList valueList = new FloatArrayList();
+        A.getNonZeros(indexList, valueList);
+        assertEquals(2, valueList.size());
+        assertTrue(indexList.contains((int) A.size() / 3));
+        assertTrue(indexList.contains((int) A.size() / 2));
+        assertTrue(valueList.contains(0.75f));
+        assertTrue(valueList.contains(0.125f));
+    }
+
+    public void testGetPositiveValuesIntArrayListFloatArrayList() {
+        // values that half precision holds exactly
+        A.assign(0);
+        A.setQuick((int) A.size() / 3, 0.75f);
+        A.setQuick((int) A.size() / 2, 0.125f);
+        IntArrayList indexList = new IntArrayList();
+        FloatArrayList valueList = new FloatArrayList();
+        A.getPositiveValues(indexList, valueList);
+        assertEquals(2, valueList.size());
+        assertTrue(indexList.contains((int) A.size() / 3));
+        assertTrue(indexList.contains((int) A.size() / 2));
+        assertTrue(valueList.contains(0.75f));
+        assertTrue(valueList.contains(0.125f));
+    }
+
+    public void testConversions() {
+        DenseFloat16Matrix1D H = new DenseFloat16Matrix1D(A, Float16Format.Half);
+        DenseFloatMatrix1D F = H.getDense();
+        DenseDoubleMatrix1D D = H.getDenseDouble();
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(A.getQuick(i), F.getQuick(i), 0);
+            assertEquals(A.getQuick(i), D.getQuick(i), 0);
+        }
+        assertEquals(A, new DenseFloat16Matrix1D(D, Float16Format.Half));
+        DenseFloat16Matrix1D G = new DenseFloat16Matrix1D(F, Float16Format.BFloat16);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(F.getQuick(i), G.getQuick(i), 0x1p-8f);
+        }
+    }
+}
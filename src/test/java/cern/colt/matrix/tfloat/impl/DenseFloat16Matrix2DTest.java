@@ -0,0 +1,192 @@
+package cern.colt.matrix.tfloat.impl;
+
+import cern.colt.list.tfloat.FloatArrayList;
+import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.Float16Format;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tfloat.FloatMatrix1D;
+import cern.colt.matrix.tfloat.FloatMatrix2D;
+import cern.colt.matrix.tfloat.FloatMatrix2DTest;
+import cern.jet.math.tfloat.FloatFunctions;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class DenseFloat16Matrix2DTest extends FloatMatrix2DTest {
+
+    public DenseFloat16Matrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new DenseFloat16Matrix2D(NROWS, NCOLUMNS, Float16Format.Half);
+        B = new DenseFloat16Matrix2D(NROWS, NCOLUMNS, Float16Format.Half);
+        Bt = new DenseFloat16Matrix2D(NCOLUMNS, NROWS, Float16Format.Half);
+    }
+
+    protected void populateMatrices() {
+        super.populateMatrices();
+        // half precision keeps about 3 significant digits; keep the quotients
+        // of the elements small
+        A.assign(FloatFunctions.plus(0.5f));
+        B.assign(FloatFunctions.plus(0.5f));
+        Bt.assign(FloatFunctions.plus(0.5f));
+        TOL = 1e-2f;
+    }
+
+    public void testGetNegativeValues() {
+        // values that half precision holds exactly
+        A.assign(0);
+        A.setQuick(A.rows() / 3, A.columns() / 3, -0.75f);
+        A.setQuick(A.rows() / 2, A.columns() / 2, -0.125f);
+        IntArrayList rowList = new IntArrayList();
+        IntArrayList columnList = new IntArrayList();
+        FloatArrayList valueList = new FloatArrayList();
+        A.getNegativeValues(rowList, columnList, valueList);
+        assertEquals(2, valueList.size());
+        assertTrue(rowList.contains(A.rows() / 3));
+        assertTrue(columnList.contains(A.columns() / 2));
+        assertTrue(valueList.contains(-0.75f));
+        assertTrue(valueList.contains(-0.125f));
+    }
+
+    public void testGetNonZeros() {
+        // values that half precision holds exactly
+        A.assign(0);
+        A.setQuick(A.rows() / 3, A.columns() / 3, 0.75f);
+        A.setQuick(A.rows() / 2, A.columns() / 2, 0.125f);
+        IntArrayList rowList = new IntArrayList();
+        IntArrayList columnList = new IntArrayList();
+        FloatArrayList valueList = new FloatArrayList();
+        A.getNonZeros(rowList, columnList, valueList);
+        assertEquals(2, valueList.size());
+        assertTrue(rowList.contains(A.rows() / 3));
+        assertTrue(columnList.contains(A.columns() / 2));
+        assertTrue(valueList.contains(0.75f));
+        assertTrue(valueList.contains(0.125f));
+    }
+
+    public void testGetPositiveValues() {
+        // values that half precision holds exactly
+        A.assign(0);
+        A.setQuick(A.rows() / 3, A.columns() / 3, 0.75f);
+        A.setQuick(A.rows() / 2, A.columns() / 2, 0.125f);
+        IntArrayList rowList = new IntArrayList();
+        IntArrayList columnList = new IntArrayList();
+        FloatArrayList valueList = new FloatArrayList();
+        A.getPositiveValues(rowList, columnList, valueList);
+        assertEquals(2, valueList.size());
+        assertTrue(rowList.contains(A.rows() / 3));
+        assertTrue(columnList.contains(A.columns() / 2));
+        assertTrue(valueList.contains(0.75f));
+        assertTrue(valueList.contains(0.125f));
+    }
+
+    public void testFormats() {
+        Float16Format half = Float16Format.Half;
+        // every half precision number is decoded exactly
+        for (int h = 0; h < 1 << 16; h++) {
+            float value = half.decode((short) h);
+            if (value == value) {
+                assertEquals(h, half.encode(value) & 0xffff);
+            }
+        }
+        assertEquals(65504f, half.decode(half.encode(65519f)), 0);
+        assertEquals(Float.POSITIVE_INFINITY, half.decode(half.encode(65520f)), 0);
+        assertEquals(0x1p-24f, half.decode(half.encode(0x1.8p-25f)), 0);
+        assertEquals(0, half.decode(half.encode(0x1p-25f)), 0);
+        assertEquals(1 + 0x1p-10f, half.decode(half.encode(1 + 0x1.8p-11f)), 0);
+        assertEquals(1f, half.decode(half.encode(1 + 0x1p-11f)), 0);
+        assertTrue(Float.isNaN(half.decode(half.encode(Float.NaN))));
+
+        Float16Format bfloat16 = Float16Format.BFloat16;
+        for (int h = 0; h < 1 << 16; h++) {
+            float value = bfloat16.decode((short) h);
+            if (value == value) {
+                assertEquals(h, bfloat16.encode(value) & 0xffff);
+            }
+        }
+        assertEquals(1 + 0x1p-7f, bfloat16.decode(bfloat16.encode(1 + 0x1.8p-8f)), 0);
+        assertEquals(1f, bfloat16.decode(bfloat16.encode(1 + 0x1p-8f)), 0);
+        assertEquals(Float.POSITIVE_INFINITY, bfloat16.decode(bfloat16.encode(Float.MAX_VALUE)), 0);
+        assertTrue(Float.isNaN(bfloat16.decode(bfloat16.encode(Float.NaN))));
+    }
+
+    public void testConversions() {
+        DenseFloat16Matrix2D H = new DenseFloat16Matrix2D(A, Float16Format.Half);
+        DenseFloatMatrix2D F = H.getDense();
+        DenseDoubleMatrix2D D = H.getDenseDouble();
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(A.getQuick(r, c), F.getQuick(r, c), 0);
+                assertEquals(A.getQuick(r, c), D.getQuick(r, c), 0);
+            }
+        }
+        assertEquals(A, new DenseFloat16Matrix2D(F, Float16Format.Half));
+        assertEquals(A, new DenseFloat16Matrix2D(D, Float16Format.Half));
+        DenseFloat16Matrix2D G = new DenseFloat16Matrix2D(F, Float16Format.BFloat16);
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(F.getQuick(r, c), G.getQuick(r, c), 0x1p-8f);
+            }
+        }
+    }
+
+    public void testZMultDouble() {
+        DenseFloat16Matrix2D H = new DenseFloat16Matrix2D(A, Float16Format.Half);
+        DenseDoubleMatrix2D D = H.getDenseDouble();
+        for (int t = 0; t < 2; t++) {
+            boolean transposeA = t == 1;
+            int rows = transposeA ? A.columns() : A.rows();
+            DoubleMatrix1D y = new DenseDoubleMatrix1D(transposeA ? A.rows() : A.columns());
+            for (int i = 0; i < y.size(); i++) {
+                y.setQuick(i, Math.random());
+            }
+            DoubleMatrix1D z = new DenseDoubleMatrix1D(rows).assign(2);
+            DoubleMatrix1D expected = D.zMult(y, z.copy(), 3, 0.5, transposeA);
+            H.zMult(y, z, 3, 0.5, transposeA);
+            for (int i = 0; i < rows; i++) {
+                assertEquals(expected.getQuick(i), z.getQuick(i), 1e-12);
+            }
+        }
+    }
+
+    public void testZMultParallel() {
+        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        ConcurrencyUtils.setNumberOfThreads(4);
+        try {
+            FloatMatrix2D H = new DenseFloat16Matrix2D(70, 45, Float16Format.BFloat16);
+            FloatMatrix2D G = new DenseFloat16Matrix2D(45, 33, Float16Format.Half);
+            H.assign(FloatFunctions.random());
+            G.assign(FloatFunctions.random());
+            FloatMatrix2D F = ((DenseFloat16Matrix2D) H).getDense();
+            FloatMatrix2D E = ((DenseFloat16Matrix2D) G).getDense();
+            assertClose(F.zMult(E, null), H.zMult(G, null));
+            assertClose(F.viewDice().zMult(F, null), H.zMult(H, null, 1, 0, true, false));
+            assertClose(E.zMult(F, null, 1, 0, true, true), G.zMult(H, null, 1, 0, true, true));
+            FloatMatrix2D C = new DenseFloatMatrix2D(70, 33).assign(1);
+            assertClose(F.zMult(E, C.copy(), 2, -1, false, false), H.zMult(G, C, 2, -1, false, false));
+            FloatMatrix1D y = new DenseFloatMatrix1D(45).assign(FloatFunctions.random());
+            FloatMatrix1D z = F.zMult(y, null);
+            FloatMatrix1D w = H.zMult(y, null);
+            for (int i = 0; i < z.size(); i++) {
+                assertEquals(z.getQuick(i), w.getQuick(i), TOL);
+            }
+            assertEquals(H.zSum(), F.zSum(), TOL);
+            assertEquals(H.aggregate(FloatFunctions.max, FloatFunctions.abs), F.aggregate(FloatFunctions.max,
+                    FloatFunctions.abs), 0);
+        } finally {
+            ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        }
+    }
+
+    private void assertClose(FloatMatrix2D expected, FloatMatrix2D actual) {
+        assertEquals(expected.rows(), actual.rows());
+        assertEquals(expected.columns(), actual.columns());
+        for (int r = 0; r < expected.rows(); r++) {
+            for (int c = 0; c < expected.columns(); c++) {
+                assertEquals(expected.getQuick(r, c), actual.getQuick(r, c), TOL);
+            }
+        }
+    }
+}
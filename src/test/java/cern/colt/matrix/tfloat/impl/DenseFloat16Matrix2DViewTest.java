@@ -0,0 +1,22 @@
+package cern.colt.matrix.tfloat.impl;
+
+import cern.colt.matrix.Float16Format;
+
+public class DenseFloat16Matrix2DViewTest extends DenseFloat16Matrix2DTest {
+
+    public DenseFloat16Matrix2DViewTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new DenseFloat16Matrix2D(NCOLUMNS, NROWS, Float16Format.Half).viewDice();
+        B = new DenseFloat16Matrix2D(NCOLUMNS, NROWS, Float16Format.Half).viewDice();
+        Bt = new DenseFloat16Matrix2D(NROWS, NCOLUMNS, Float16Format.Half).viewDice();
+    }
+
+    protected void populateMatrices() {
+        super.populateMatrices();
+        // products of views are stored in half precision matrices
+        TOL = 1e-1f;
+    }
+}
@@ -16,6 +16,7 @@ import cern.colt.matrix.tint.impl.DenseLargeIntMatrix3DTest;
 import cern.colt.matrix.tint.impl.DenseLargeIntMatrix3DViewTest;
 import cern.colt.matrix.tint.impl.DiagonalIntMatrix2DTest;
 import cern.colt.matrix.tint.impl.DiagonalIntMatrix2DViewTest;
+import cern.colt.matrix.tint.impl.IntMatrix2DMultiplicationTest;
 import cern.colt.matrix.tint.impl.SparseCCIntMatrix2DTest;
 import cern.colt.matrix.tint.impl.SparseCCIntMatrix2DViewTest;
 import cern.colt.matrix.tint.impl.SparseCCMIntMatrix2DTest;
@@ -61,6 +62,7 @@ public class AllIntMatrixTests {
         suite.addTestSuite(SparseCCIntMatrix2DViewTest.class);
         suite.addTestSuite(SparseCCMIntMatrix2DTest.class);
         suite.addTestSuite(SparseCCMIntMatrix2DViewTest.class);
+        suite.addTestSuite(IntMatrix2DMultiplicationTest.class);
 
         suite.addTestSuite(DenseIntMatrix3DTest.class);
         suite.addTestSuite(DenseIntMatrix3DViewTest.class);
@@ -1,5 +1,6 @@
 package cern.colt.matrix.tint.impl;
 
+import cern.colt.matrix.tint.IntMatrix2D;
 import cern.colt.matrix.tint.IntMatrix2DTest;
 
 public class DenseIntMatrix2DTest extends IntMatrix2DTest {
@@ -27,4 +28,56 @@ public class DenseIntMatrix2DTest extends IntMatrix2DTest {
             }
         }
     }
+
+    public void testAssignDenseColumnIntMatrix2D() {
+        DenseColumnIntMatrix2D C = new DenseColumnIntMatrix2D(A.rows(), A.columns());
+        C.assign(B);
+        A.assign(C);
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(B.getQuick(r, c), A.getQuick(r, c));
+            }
+        }
+        // views of a larger matrix of the other layout, in both directions
+        DenseColumnIntMatrix2D D = new DenseColumnIntMatrix2D(A.rows() + 3, A.columns() + 2);
+        IntMatrix2D V = D.viewPart(2, 1, A.rows(), A.columns());
+        V.assign(Bt.viewDice());
+        A.viewDice().assign(V.viewDice());
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(Bt.getQuick(c, r), V.getQuick(r, c));
+                assertEquals(Bt.getQuick(c, r), A.getQuick(r, c));
+            }
+        }
+    }
+
+    public void testToArrayView() {
+        IntMatrix2D V = Bt.viewDice().viewPart(1, 2, A.rows() - 3, A.columns() - 4);
+        int[][] array = V.toArray();
+        assertEquals(V.rows(), array.length);
+        for (int r = 0; r < V.rows(); r++) {
+            assertEquals(V.columns(), array[r].length);
+            for (int c = 0; c < V.columns(); c++) {
+                assertEquals(V.getQuick(r, c), array[r][c]);
+            }
+        }
+    }
+
+    public void testTransposeInPlace() {
+        int n = Math.min(A.rows(), A.columns());
+        DenseIntMatrix2D S = (DenseIntMatrix2D) A.viewPart(1, 0, n - 1, n - 1);
+        IntMatrix2D Scopy = S.copy();
+        S.transposeInPlace();
+        for (int r = 0; r < n - 1; r++) {
+            for (int c = 0; c < n - 1; c++) {
+                assertEquals(Scopy.getQuick(c, r), S.getQuick(r, c));
+            }
+        }
+        try {
+            ((DenseIntMatrix2D) A).transposeInPlace();
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
 }
@@ -0,0 +1,273 @@
+package cern.colt.matrix.tint.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.IntegerOverflow;
+import cern.colt.matrix.tint.IntMatrix1D;
+import cern.colt.matrix.tint.IntMatrix2D;
+import cern.colt.matrix.tlong.LongMatrix2D;
+import cern.colt.matrix.tlong.impl.DenseLongMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class IntMatrix2DMultiplicationTest extends TestCase {
+
+    // not multiples of the kernel and of the blocks
+    private static final int M = 141;
+
+    private static final int N = 263;
+
+    private static final int P = 531;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private int[][] a, b, c;
+
+    public IntMatrix2DMultiplicationTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        Random random = new Random(0);
+        a = random(random, M, N);
+        b = random(random, N, P);
+        c = random(random, M, P);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testLayouts() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            check(new DenseIntMatrix2D(a), new DenseColumnIntMatrix2D(b), new DenseIntMatrix2D(c));
+            check(new DenseColumnIntMatrix2D(a), new DenseIntMatrix2D(b), new DenseColumnIntMatrix2D(c));
+            check(new DenseLargeIntMatrix2D(M, N).assign(a), new DenseIntMatrix2D(b), new DenseLargeIntMatrix2D(M,
+                    P).assign(c));
+            check(new DenseIntMatrix2D(a), new SparseIntMatrix2D(b), new SparseIntMatrix2D(c));
+        }
+    }
+
+    public void testViews() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        // transposed storage
+        check(new DenseIntMatrix2D(transpose(a)).viewDice(), new DenseColumnIntMatrix2D(transpose(b)).viewDice(),
+                new DenseIntMatrix2D(c));
+        // selections with reversed rows and columns
+        int[] rows = reverse(M);
+        int[] middle = reverse(N);
+        int[] columns = reverse(P);
+        check(new DenseIntMatrix2D(reverse(a)).viewSelection(rows, middle), new DenseColumnIntMatrix2D(reverse(b))
+                .viewSelection(middle, columns), new DenseIntMatrix2D(reverse(c)).viewSelection(rows, columns));
+        // a part of a larger matrix
+        IntMatrix2D large = new DenseIntMatrix2D(M + 2, P + 3);
+        large.viewPart(2, 3, M, P).assign(c);
+        check(new DenseIntMatrix2D(a), new DenseIntMatrix2D(b), large.viewPart(2, 3, M, P));
+    }
+
+    public void testSparse() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            check(new SparseRCIntMatrix2D(a), new DenseIntMatrix2D(b), new DenseIntMatrix2D(c));
+            check(new SparseRCIntMatrix2D(a), new DenseColumnIntMatrix2D(b), new DenseColumnIntMatrix2D(c));
+            check(new SparseRCIntMatrix2D(transpose(a)).viewDice(), new DenseIntMatrix2D(b), new DenseIntMatrix2D(c));
+        }
+    }
+
+    public void testVector() {
+        int[] y = transpose(b)[0];
+        int[] z = transpose(c)[0];
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            IntMatrix2D B = new DenseIntMatrix2D(transpose(new int[][] { y }));
+            IntMatrix2D C = new DenseIntMatrix2D(transpose(new int[][] { z }));
+            check(new DenseIntMatrix2D(a), B, C);
+            IntMatrix1D Z = new DenseIntMatrix1D(z);
+            new DenseIntMatrix2D(transpose(a)).zMult(new DenseIntMatrix1D(y), Z, 3, -2, true);
+            for (int i = 0; i < M; i++) {
+                assertEquals(C.getQuick(i, 0), Z.getQuick(i));
+            }
+        }
+    }
+
+    public void testWrap() {
+        IntMatrix2D A = new DenseIntMatrix2D(new int[][] { { Integer.MAX_VALUE, 2 } });
+        IntMatrix2D B = new DenseIntMatrix2D(new int[][] { { 3 }, { Integer.MAX_VALUE } });
+        IntMatrix2D C = A.zMult(B, null);
+        assertEquals(Integer.MAX_VALUE * 3 + 2 * Integer.MAX_VALUE, C.getQuick(0, 0));
+    }
+
+    public void testChecked() {
+        IntMatrix2D A = new DenseIntMatrix2D(new int[][] { { Integer.MAX_VALUE, 2 } });
+        IntMatrix2D B = new DenseIntMatrix2D(new int[][] { { 3 }, { -Integer.MAX_VALUE } });
+        IntMatrix2D C = new DenseIntMatrix2D(1, 1);
+        IntMatrix2DMultiplication.zMult(A, B, C, 1, 0, IntegerOverflow.Checked);
+        assertEquals(Integer.MAX_VALUE, C.getQuick(0, 0));
+        try {
+            IntMatrix2DMultiplication.zMult(A, B, C, 2, 0, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            IntMatrix2DMultiplication.zMult(new SparseRCIntMatrix2D(A.toArray()), B, C, 2, 0,
+                    IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            IntMatrix2DMultiplication.zMult(A, new DenseIntMatrix1D(new int[] { 3, 3 }), new DenseIntMatrix1D(1), 1,
+                    0, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+    }
+
+    public void testCheckedThreads() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        // only the last row of A and the last column of B overflow, so that
+        // the exception is thrown by the last thread
+        IntMatrix2D A = new DenseIntMatrix2D(a);
+        IntMatrix2D B = new DenseIntMatrix2D(b);
+        A.viewRow(M - 1).assign(Integer.MAX_VALUE);
+        B.viewColumn(P - 1).assign(Integer.MAX_VALUE);
+        try {
+            IntMatrix2DMultiplication.zMult(A, B, new DenseIntMatrix2D(M, P), 1, 0, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            IntMatrix2DMultiplication.zMult(A.viewDice().copy().viewDice(), B, new DenseColumnIntMatrix2D(M, P), 1,
+                    0, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            IntMatrix2DMultiplication.zMult(A, B, new DenseLongMatrix2D(M, P), 1, 0, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            IntMatrix2DMultiplication.zMult(new SparseRCIntMatrix2D(A.toArray()), B, new DenseIntMatrix2D(M, P), 1,
+                    0, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            IntMatrix2DMultiplication.zMult(A, B.viewColumn(P - 1), new DenseIntMatrix1D(M), 1, 0,
+                    IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+    }
+
+    public void testSaturated() {
+        IntMatrix2D A = new DenseIntMatrix2D(new int[][] { { Integer.MAX_VALUE, 2 }, { Integer.MIN_VALUE, 1 } });
+        IntMatrix2D B = new DenseIntMatrix2D(new int[][] { { 3 }, { 1 } });
+        IntMatrix2D C = new DenseIntMatrix2D(new int[][] { { 1 }, { 1 } });
+        IntMatrix2DMultiplication.zMult(A, B, C, 1, -1, IntegerOverflow.Saturated);
+        assertEquals(Integer.MAX_VALUE, C.getQuick(0, 0));
+        assertEquals(Integer.MIN_VALUE, C.getQuick(1, 0));
+        IntMatrix1D z = IntMatrix2DMultiplication.zMult(new SparseRCIntMatrix2D(A.toArray()),
+                new DenseIntMatrix1D(new int[] { 3, 1 }), new DenseIntMatrix1D(2), 1, 0, IntegerOverflow.Saturated);
+        assertEquals(Integer.MAX_VALUE, z.getQuick(0));
+        assertEquals(Integer.MIN_VALUE, z.getQuick(1));
+    }
+
+    public void testLongResult() {
+        // the first two products overflow a long, the sum is 2^32
+        int[][] values = new int[][] { { Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE,
+                Integer.MIN_VALUE } };
+        int[][] column = new int[][] { { Integer.MIN_VALUE }, { Integer.MIN_VALUE }, { Integer.MAX_VALUE },
+                { Integer.MAX_VALUE } };
+        for (IntegerOverflow overflow : new IntegerOverflow[] { IntegerOverflow.Checked, IntegerOverflow.Saturated }) {
+            LongMatrix2D C = new DenseLongMatrix2D(1, 1);
+            IntMatrix2DMultiplication.zMult(new DenseIntMatrix2D(values), new DenseIntMatrix2D(column), C, 1, 0,
+                    overflow);
+            assertEquals(1L << 32, C.getQuick(0, 0));
+            C.assign(0);
+            IntMatrix2DMultiplication.zMult(new SparseRCIntMatrix2D(values), new DenseIntMatrix2D(column), C, 1, 0,
+                    overflow);
+            assertEquals(1L << 32, C.getQuick(0, 0));
+        }
+        IntMatrix2D C = new DenseIntMatrix2D(1, 1);
+        IntMatrix2DMultiplication.zMult(new DenseIntMatrix2D(values), new DenseIntMatrix2D(column), C, 1, 0,
+                IntegerOverflow.Saturated);
+        assertEquals(Integer.MAX_VALUE, C.getQuick(0, 0));
+
+        // counts that do not fit into an int
+        ConcurrencyUtils.setNumberOfThreads(4);
+        IntMatrix2D A = new DenseIntMatrix2D(M, N).assign(1 << 16);
+        IntMatrix2D B = new DenseIntMatrix2D(N, P).assign(1 << 16);
+        LongMatrix2D L = IntMatrix2DMultiplication.zMult(A, B, new DenseLongMatrix2D(M, P), 1, 0,
+                IntegerOverflow.Checked);
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < P; j++) {
+                assertEquals((long) N << 32, L.getQuick(i, j));
+            }
+        }
+    }
+
+    private void check(IntMatrix2D A, IntMatrix2D B, IntMatrix2D C) {
+        int alpha = 3, beta = -2;
+        int m = A.rows(), n = A.columns(), p = B.columns();
+        int[][] a = A.toArray();
+        int[][] b = B.toArray();
+        int[][] expected = C.toArray();
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < p; j++) {
+                int s = 0;
+                for (int k = 0; k < n; k++) {
+                    s += a[i][k] * b[k][j];
+                }
+                expected[i][j] = alpha * s + beta * expected[i][j];
+            }
+        }
+        A.zMult(B, C, alpha, beta, false, false);
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < p; j++) {
+                assertEquals(expected[i][j], C.getQuick(i, j));
+            }
+        }
+    }
+
+    private static int[][] random(Random random, int rows, int columns) {
+        int[][] values = new int[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                // about a third of zeros
+                int value = random.nextInt(150);
+                values[r][c] = value < 50 ? 0 : value - 100;
+            }
+        }
+        return values;
+    }
+
+    private static int[][] transpose(int[][] values) {
+        int[][] transposed = new int[values[0].length][values.length];
+        for (int r = 0; r < values.length; r++) {
+            for (int c = 0; c < values[0].length; c++) {
+                transposed[c][r] = values[r][c];
+            }
+        }
+        return transposed;
+    }
+
+    private static int[][] reverse(int[][] values) {
+        return new DenseIntMatrix2D(values).viewRowFlip().viewColumnFlip().toArray();
+    }
+
+    private static int[] reverse(int size) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = size - 1 - i;
+        }
+        return indexes;
+    }
+}
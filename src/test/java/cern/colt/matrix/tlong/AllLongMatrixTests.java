@@ -16,6 +16,7 @@ import cern.colt.matrix.tlong.impl.DenseLongMatrix3DTest;
 import cern.colt.matrix.tlong.impl.DenseLongMatrix3DViewTest;
 import cern.colt.matrix.tlong.impl.DiagonalLongMatrix2DTest;
 import cern.colt.matrix.tlong.impl.DiagonalLongMatrix2DViewTest;
+import cern.colt.matrix.tlong.impl.LongMatrix2DMultiplicationTest;
 import cern.colt.matrix.tlong.impl.SparseCCLongMatrix2DTest;
 import cern.colt.matrix.tlong.impl.SparseCCLongMatrix2DViewTest;
 import cern.colt.matrix.tlong.impl.SparseCCMLongMatrix2DTest;
@@ -61,6 +62,7 @@ public class AllLongMatrixTests {
         suite.addTestSuite(SparseCCLongMatrix2DViewTest.class);
         suite.addTestSuite(SparseCCMLongMatrix2DTest.class);
         suite.addTestSuite(SparseCCMLongMatrix2DViewTest.class);
+        suite.addTestSuite(LongMatrix2DMultiplicationTest.class);
 
         suite.addTestSuite(DenseLongMatrix3DTest.class);
         suite.addTestSuite(DenseLongMatrix3DViewTest.class);
@@ -0,0 +1,247 @@
+package cern.colt.matrix.tlong.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.IntegerOverflow;
+import cern.colt.matrix.tlong.LongMatrix1D;
+import cern.colt.matrix.tlong.LongMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class LongMatrix2DMultiplicationTest extends TestCase {
+
+    // not multiples of the kernel and of the blocks
+    private static final int M = 141;
+
+    private static final int N = 263;
+
+    private static final int P = 531;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN;
+
+    private long[][] a, b, c;
+
+    public LongMatrix2DMultiplicationTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        Random random = new Random(0);
+        a = random(random, M, N);
+        b = random(random, N, P);
+        c = random(random, M, P);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN);
+    }
+
+    public void testLayouts() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            check(new DenseLongMatrix2D(a), new DenseColumnLongMatrix2D(b), new DenseLongMatrix2D(c));
+            check(new DenseColumnLongMatrix2D(a), new DenseLongMatrix2D(b), new DenseColumnLongMatrix2D(c));
+            check(new DenseLargeLongMatrix2D(M, N).assign(a), new DenseLongMatrix2D(b), new DenseLargeLongMatrix2D(M,
+                    P).assign(c));
+            check(new DenseLongMatrix2D(a), new SparseLongMatrix2D(b), new SparseLongMatrix2D(c));
+        }
+    }
+
+    public void testViews() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        // transposed storage
+        check(new DenseLongMatrix2D(transpose(a)).viewDice(), new DenseColumnLongMatrix2D(transpose(b)).viewDice(),
+                new DenseLongMatrix2D(c));
+        // selections with reversed rows and columns
+        int[] rows = reverse(M);
+        int[] middle = reverse(N);
+        int[] columns = reverse(P);
+        check(new DenseLongMatrix2D(reverse(a)).viewSelection(rows, middle), new DenseColumnLongMatrix2D(reverse(b))
+                .viewSelection(middle, columns), new DenseLongMatrix2D(reverse(c)).viewSelection(rows, columns));
+        // a part of a larger matrix
+        LongMatrix2D large = new DenseLongMatrix2D(M + 2, P + 3);
+        large.viewPart(2, 3, M, P).assign(c);
+        check(new DenseLongMatrix2D(a), new DenseLongMatrix2D(b), large.viewPart(2, 3, M, P));
+    }
+
+    public void testSparse() {
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            check(new SparseRCLongMatrix2D(a), new DenseLongMatrix2D(b), new DenseLongMatrix2D(c));
+            check(new SparseRCLongMatrix2D(a), new DenseColumnLongMatrix2D(b), new DenseColumnLongMatrix2D(c));
+            check(new SparseRCLongMatrix2D(transpose(a)).viewDice(), new DenseLongMatrix2D(b),
+                    new DenseLongMatrix2D(c));
+        }
+    }
+
+    public void testVector() {
+        long[] y = transpose(b)[0];
+        long[] z = transpose(c)[0];
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            LongMatrix2D B = new DenseLongMatrix2D(transpose(new long[][] { y }));
+            LongMatrix2D C = new DenseLongMatrix2D(transpose(new long[][] { z }));
+            check(new DenseLongMatrix2D(a), B, C);
+            LongMatrix1D Z = new DenseLongMatrix1D(z);
+            new DenseLongMatrix2D(transpose(a)).zMult(new DenseLongMatrix1D(y), Z, 3, -2, true);
+            for (int i = 0; i < M; i++) {
+                assertEquals(C.getQuick(i, 0), Z.getQuick(i));
+            }
+        }
+    }
+
+    public void testWrap() {
+        LongMatrix2D A = new DenseLongMatrix2D(new long[][] { { Long.MAX_VALUE, 2 } });
+        LongMatrix2D B = new DenseLongMatrix2D(new long[][] { { 3 }, { Long.MAX_VALUE } });
+        LongMatrix2D C = A.zMult(B, null);
+        assertEquals(Long.MAX_VALUE * 3 + 2 * Long.MAX_VALUE, C.getQuick(0, 0));
+    }
+
+    public void testChecked() {
+        // the second product overflows, the sum does not
+        LongMatrix2D A = new DenseLongMatrix2D(new long[][] { { Long.MAX_VALUE, 1L << 40, -(1L << 40) } });
+        LongMatrix2D B = new DenseLongMatrix2D(new long[][] { { 1 }, { 1L << 40 }, { 1L << 40 } });
+        LongMatrix2D C = new DenseLongMatrix2D(1, 1);
+        LongMatrix2DMultiplication.zMult(A, B, C, 1, 0, IntegerOverflow.Checked);
+        assertEquals(Long.MAX_VALUE, C.getQuick(0, 0));
+        C.assign(0);
+        LongMatrix2DMultiplication.zMult(new SparseRCLongMatrix2D(A.toArray()), B, C, 1, 0, IntegerOverflow.Checked);
+        assertEquals(Long.MAX_VALUE, C.getQuick(0, 0));
+        LongMatrix1D z = LongMatrix2DMultiplication.zMult(A, B.viewColumn(0), new DenseLongMatrix1D(1), 1, 0,
+                IntegerOverflow.Checked);
+        assertEquals(Long.MAX_VALUE, z.getQuick(0));
+        try {
+            LongMatrix2DMultiplication.zMult(A, B, C, 1, 1, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            LongMatrix2DMultiplication.zMult(new SparseRCLongMatrix2D(A.toArray()), B, C, 2, 0,
+                    IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            LongMatrix2DMultiplication.zMult(A, new DenseLongMatrix1D(new long[] { 1, 1L << 40, 0 }),
+                    new DenseLongMatrix1D(1), 1, 0, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+    }
+
+    public void testCheckedThreads() {
+        ConcurrencyUtils.setNumberOfThreads(4);
+        // only the last row of A and the last column of B overflow, so that
+        // the exception is thrown by the last thread
+        LongMatrix2D A = new DenseLongMatrix2D(a);
+        LongMatrix2D B = new DenseLongMatrix2D(b);
+        A.viewRow(M - 1).assign(Long.MAX_VALUE);
+        B.viewColumn(P - 1).assign(Long.MAX_VALUE);
+        try {
+            LongMatrix2DMultiplication.zMult(A.viewDice().copy().viewDice(), B, new DenseColumnLongMatrix2D(M, P),
+                    1, 0, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            LongMatrix2DMultiplication.zMult(A, B, new DenseLongMatrix2D(M, P), 1, 0, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            LongMatrix2DMultiplication.zMult(new SparseRCLongMatrix2D(A.toArray()), B, new DenseLongMatrix2D(M, P),
+                    1, 0, IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+        try {
+            LongMatrix2DMultiplication.zMult(A, B.viewColumn(P - 1), new DenseLongMatrix1D(M), 1, 0,
+                    IntegerOverflow.Checked);
+            fail();
+        } catch (ArithmeticException e) {
+        }
+    }
+
+    public void testSaturated() {
+        LongMatrix2D A = new DenseLongMatrix2D(new long[][] { { 1L << 40, 2 }, { -(1L << 40), 1 } });
+        LongMatrix2D B = new DenseLongMatrix2D(new long[][] { { 1L << 40 }, { 1 } });
+        LongMatrix2D C = new DenseLongMatrix2D(new long[][] { { 1 }, { 1 } });
+        for (int nthreads = 1; nthreads <= 4; nthreads *= 2) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            LongMatrix2DMultiplication.zMult(A, B, C, 1, -1, IntegerOverflow.Saturated);
+            assertEquals(Long.MAX_VALUE, C.getQuick(0, 0));
+            assertEquals(Long.MIN_VALUE, C.getQuick(1, 0));
+            LongMatrix1D z = LongMatrix2DMultiplication.zMult(new SparseRCLongMatrix2D(A.toArray()), B.viewColumn(0),
+                    new DenseLongMatrix1D(2), 1, 0, IntegerOverflow.Saturated);
+            assertEquals(Long.MAX_VALUE, z.getQuick(0));
+            assertEquals(Long.MIN_VALUE, z.getQuick(1));
+        }
+        // the wrapped product
+        LongMatrix2DMultiplication.zMult(A, B, C.assign(0), 1, 0, IntegerOverflow.Wrap);
+        assertEquals(2, C.getQuick(0, 0));
+        assertEquals(1, C.getQuick(1, 0));
+    }
+
+    private void check(LongMatrix2D A, LongMatrix2D B, LongMatrix2D C) {
+        long alpha = 3, beta = -2;
+        int m = A.rows(), n = A.columns(), p = B.columns();
+        long[][] a = A.toArray();
+        long[][] b = B.toArray();
+        long[][] expected = C.toArray();
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < p; j++) {
+                long s = 0;
+                for (int k = 0; k < n; k++) {
+                    s += a[i][k] * b[k][j];
+                }
+                expected[i][j] = alpha * s + beta * expected[i][j];
+            }
+        }
+        A.zMult(B, C, alpha, beta, false, false);
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < p; j++) {
+                assertEquals(expected[i][j], C.getQuick(i, j));
+            }
+        }
+    }
+
+    private static long[][] random(Random random, int rows, int columns) {
+        long[][] values = new long[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                // about a third of zeros
+                int value = random.nextInt(150);
+                values[r][c] = value < 50 ? 0 : value - 100;
+            }
+        }
+        return values;
+    }
+
+    private static long[][] transpose(long[][] values) {
+        long[][] transposed = new long[values[0].length][values.length];
+        for (int r = 0; r < values.length; r++) {
+            for (int c = 0; c < values[0].length; c++) {
+                transposed[c][r] = values[r][c];
+            }
+        }
+        return transposed;
+    }
+
+    private static long[][] reverse(long[][] values) {
+        return new DenseLongMatrix2D(values).viewRowFlip().viewColumnFlip().toArray();
+    }
+
+    private static int[] reverse(int size) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = size - 1 - i;
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,130 @@
+package cern.colt.matrix.tobject.impl;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tobject.ObjectMatrix2D;
+
+public class DenseObjectMatrix2DTest extends TestCase {
+    /**
+     * Row-major matrix to test
+     */
+    protected DenseObjectMatrix2D A;
+
+    /**
+     * Column-major matrix of the same size as A
+     */
+    protected DenseColumnObjectMatrix2D B;
+
+    /**
+     * Row-major matrix of the size A.columns() x A.rows()
+     */
+    protected DenseObjectMatrix2D Bt;
+
+    protected int NROWS = 13;
+
+    protected int NCOLUMNS = 17;
+
+    public DenseObjectMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        A = new DenseObjectMatrix2D(NROWS, NCOLUMNS);
+        B = new DenseColumnObjectMatrix2D(NROWS, NCOLUMNS);
+        Bt = new DenseObjectMatrix2D(NCOLUMNS, NROWS);
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                A.setQuick(r, c, "a" + r + "," + c);
+                B.setQuick(r, c, "b" + r + "," + c);
+                Bt.setQuick(c, r, "bt" + c + "," + r);
+            }
+        }
+    }
+
+    protected void tearDown() throws Exception {
+        A = null;
+        B = null;
+        Bt = null;
+    }
+
+    public void testAssignDenseColumn() {
+        A.assign(B);
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                assertSame(B.getQuick(r, c), A.getQuick(r, c));
+            }
+        }
+        // views of a larger matrix of the other layout, in both directions
+        DenseColumnObjectMatrix2D D = new DenseColumnObjectMatrix2D(NROWS + 3, NCOLUMNS + 2);
+        ObjectMatrix2D V = D.viewPart(2, 1, NROWS, NCOLUMNS);
+        V.assign(Bt.viewDice());
+        A.viewDice().assign(V.viewDice());
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                assertSame(Bt.getQuick(c, r), V.getQuick(r, c));
+                assertSame(Bt.getQuick(c, r), A.getQuick(r, c));
+            }
+        }
+        assertNull(D.getQuick(0, 0));
+        assertNull(D.getQuick(NROWS + 2, NCOLUMNS + 1));
+    }
+
+    public void testAssignDense() {
+        B.assign(A);
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                assertSame(A.getQuick(r, c), B.getQuick(r, c));
+            }
+        }
+        B.viewDice().assign(Bt);
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                assertSame(Bt.getQuick(c, r), B.getQuick(r, c));
+            }
+        }
+    }
+
+    public void testToArray() {
+        Object[][] array = A.toArray();
+        assertEquals(NROWS, array.length);
+        for (int r = 0; r < NROWS; r++) {
+            assertEquals(NCOLUMNS, array[r].length);
+            for (int c = 0; c < NCOLUMNS; c++) {
+                assertSame(A.getQuick(r, c), array[r][c]);
+            }
+        }
+        ObjectMatrix2D V = B.viewDice().viewPart(1, 2, NCOLUMNS - 3, NROWS - 4);
+        array = V.toArray();
+        assertEquals(V.rows(), array.length);
+        for (int r = 0; r < V.rows(); r++) {
+            assertEquals(V.columns(), array[r].length);
+            for (int c = 0; c < V.columns(); c++) {
+                assertSame(V.getQuick(r, c), array[r][c]);
+            }
+        }
+    }
+
+    public void testTransposeInPlace() {
+        int n = Math.min(NROWS, NCOLUMNS);
+        DenseObjectMatrix2D S = (DenseObjectMatrix2D) A.viewPart(1, 0, n - 1, n - 1);
+        ObjectMatrix2D Scopy = S.copy();
+        S.transposeInPlace();
+        for (int r = 0; r < n - 1; r++) {
+            for (int c = 0; c < n - 1; c++) {
+                assertSame(Scopy.getQuick(c, r), S.getQuick(r, c));
+            }
+        }
+        DenseColumnObjectMatrix2D T = (DenseColumnObjectMatrix2D) B.viewPart(0, 2, n, n);
+        Scopy = T.copy();
+        T.transposeInPlace();
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                assertSame(Scopy.getQuick(c, r), T.getQuick(r, c));
+            }
+        }
+        try {
+            A.transposeInPlace();
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
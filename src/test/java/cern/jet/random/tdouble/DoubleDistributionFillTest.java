@@ -0,0 +1,213 @@
+package cern.jet.random.tdouble;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix3D;
+import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix3D;
+import cern.jet.random.tdouble.engine.DoubleMersenneTwister;
+import cern.jet.stat.tdouble.Probability;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class DoubleDistributionFillTest extends TestCase {
+
+    private static final int SIZE = 1000000;
+
+    // allowed deviation in standard errors
+    private static final double TOLERANCE = 5;
+
+    private int oldNthreads;
+
+    private int oldThreadsBeginN_1D;
+
+    private int oldThreadsBeginN_2D;
+
+    private int oldThreadsBeginN_3D;
+
+    public DoubleDistributionFillTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        oldNthreads = ConcurrencyUtils.getNumberOfThreads();
+        oldThreadsBeginN_1D = ConcurrencyUtils.getThreadsBeginN_1D();
+        oldThreadsBeginN_2D = ConcurrencyUtils.getThreadsBeginN_2D();
+        oldThreadsBeginN_3D = ConcurrencyUtils.getThreadsBeginN_3D();
+        ConcurrencyUtils.setNumberOfThreads(4);
+        ConcurrencyUtils.setThreadsBeginN_1D(1);
+        ConcurrencyUtils.setThreadsBeginN_2D(1);
+        ConcurrencyUtils.setThreadsBeginN_3D(1);
+    }
+
+    protected void tearDown() throws Exception {
+        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
+        ConcurrencyUtils.setThreadsBeginN_1D(oldThreadsBeginN_1D);
+        ConcurrencyUtils.setThreadsBeginN_2D(oldThreadsBeginN_2D);
+        ConcurrencyUtils.setThreadsBeginN_3D(oldThreadsBeginN_3D);
+    }
+
+    public void testNormal() {
+        double mean = 2, sd = 3;
+        Normal normal = new Normal(mean, sd, new DoubleMersenneTwister(1));
+        double[] values = new double[SIZE];
+        normal.fill(values, 0, SIZE);
+        checkMoments(values, mean, sd * sd, 2 * sd * sd * sd * sd);
+        // the bins cover the layers of the Ziggurat and the tail beyond 3.44
+        double[] bounds = new double[] { -4, -3.5, -3, -2.5, -2, -1.5, -1, -0.5, 0, 0.5, 1, 1.5, 2, 2.5, 3, 3.44,
+                3.5, 4 };
+        double[] cdf = new double[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            cdf[i] = Probability.normal(bounds[i]);
+            bounds[i] = mean + sd * bounds[i];
+        }
+        checkHistogram(values, bounds, cdf);
+    }
+
+    public void testExponential() {
+        double lambda = 2;
+        Exponential exponential = new Exponential(lambda, new DoubleMersenneTwister(2));
+        double[] values = new double[SIZE];
+        exponential.fill(values, 0, SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            assertTrue(values[i] >= 0);
+        }
+        checkMoments(values, 1 / lambda, 1 / (lambda * lambda), 8 / Math.pow(lambda, 4));
+        // the bins cover the layers of the Ziggurat and the tail beyond 7.70
+        double[] bounds = new double[] { 0, 0.05, 0.1, 0.25, 0.5, 1, 1.5, 2, 3, 4, 5, 6, 7, 7.7, 8, 9 };
+        double[] cdf = new double[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            cdf[i] = 1 - Math.exp(-bounds[i]);
+            bounds[i] /= lambda;
+        }
+        checkHistogram(values, bounds, cdf);
+    }
+
+    public void testDefaultFill() {
+        // DoubleUniform relies on the default implementation of fill
+        DoubleUniform uniform = new DoubleUniform(-1, 3, new DoubleMersenneTwister(3));
+        DoubleMatrix2D A = new DenseColumnDoubleMatrix2D(1000, 1000);
+        uniform.fill(A.viewDice());
+        double[] values = A.vectorize().toArray();
+        for (int i = 0; i < values.length; i++) {
+            assertTrue(values[i] >= -1 && values[i] <= 3);
+        }
+        checkMoments(values, 1, 16.0 / 12, 256.0 / 80 - 256.0 / 144);
+    }
+
+    public void testMatrices() {
+        Normal normal = new Normal(0, 1, new DoubleMersenneTwister(4));
+        DoubleMatrix1D x = new DenseDoubleMatrix1D(SIZE);
+        normal.fill(x);
+        checkMoments(x.toArray(), 0, 1, 2);
+        DoubleMatrix2D A = new DenseDoubleMatrix2D(1000, 1000);
+        normal.fill(A.viewPart(0, 0, 1000, 1000));
+        checkMoments(A.vectorize().toArray(), 0, 1, 2);
+        DoubleMatrix3D B = new DenseDoubleMatrix3D(100, 100, 100);
+        normal.fill(B.viewColumnFlip());
+        checkMoments(B.vectorize().toArray(), 0, 1, 2);
+    }
+
+    public void testSplit() {
+        AbstractDoubleDistribution[] streams = new Normal(0, 1, new DoubleMersenneTwister(5)).split(3);
+        AbstractDoubleDistribution[] again = new Normal(0, 1, new DoubleMersenneTwister(5)).split(3);
+        double[][] values = new double[3][1000];
+        for (int i = 0; i < 3; i++) {
+            streams[i].fill(values[i], 0, 1000);
+            double[] expected = new double[1000];
+            again[i].fill(expected, 0, 1000);
+            for (int j = 0; j < 1000; j++) {
+                assertEquals(expected[j], values[i][j], 0);
+            }
+        }
+        // the streams are different
+        for (int i = 0; i < 3; i++) {
+            for (int j = i + 1; j < 3; j++) {
+                int equal = 0;
+                for (int k = 0; k < 1000; k++) {
+                    if (values[i][k] == values[j][k]) {
+                        equal++;
+                    }
+                }
+                assertEquals(0, equal);
+            }
+        }
+    }
+
+    public void testReproducible() {
+        for (int nthreads = 1; nthreads <= 4; nthreads++) {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            DoubleMatrix2D A = new DenseDoubleMatrix2D(300, 200);
+            DoubleMatrix2D B = new DenseDoubleMatrix2D(300, 200);
+            new Exponential(1, new DoubleMersenneTwister(6)).fill(A.viewRowFlip());
+            new Exponential(1, new DoubleMersenneTwister(6)).fill(B.viewRowFlip());
+            assertEquals(A, B);
+        }
+    }
+
+    public void testRange() {
+        Normal normal = new Normal(0, 1, new DoubleMersenneTwister(7));
+        double[] values = new double[10];
+        normal.fill(values, 3, 7);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i >= 3 && i < 7, values[i] != 0);
+        }
+        try {
+            normal.fill(values, 7, 3);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+        try {
+            new DoubleUniform(new DoubleMersenneTwister(7)).fill(values, 0, 11);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    /**
+     * Checks the mean and the variance, given the variance of the squared
+     * deviations from the mean (<tt>mu4 - variance^2</tt>).
+     */
+    private static void checkMoments(double[] values, double mean, double variance, double varianceOfSquares) {
+        int n = values.length;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += values[i];
+        }
+        double sampleMean = sum / n;
+        double squares = 0;
+        for (int i = 0; i < n; i++) {
+            double d = values[i] - sampleMean;
+            squares += d * d;
+        }
+        double sampleVariance = squares / (n - 1);
+        assertEquals(mean, sampleMean, TOLERANCE * Math.sqrt(variance / n));
+        assertEquals(variance, sampleVariance, TOLERANCE * Math.sqrt(varianceOfSquares / n));
+    }
+
+    /**
+     * Checks the fractions of values below the first bound, between each pair
+     * of bounds and above the last bound against the given cdf values.
+     */
+    private static void checkHistogram(double[] values, double[] bounds, double[] cdf) {
+        int n = values.length;
+        int[] counts = new int[bounds.length + 1];
+        for (int i = 0; i < n; i++) {
+            int bin = 0;
+            while (bin < bounds.length && values[i] >= bounds[bin]) {
+                bin++;
+            }
+            counts[bin]++;
+        }
+        for (int bin = 0; bin <= bounds.length; bin++) {
+            double lower = bin == 0 ? 0 : cdf[bin - 1];
+            double upper = bin == bounds.length ? 1 : cdf[bin];
+            double p = upper - lower;
+            double expected = n * p;
+            double error = Math.sqrt(n * p * (1 - p));
+            assertEquals("bin " + bin, expected, counts[bin], TOLERANCE * error + 1);
+        }
+    }
+}